@@ -0,0 +1,109 @@
+/* ==================================================================
+ * BackupResourceSpoolTests.java - 19/10/2026 12:20:41 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.backup.s3.test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Test;
+import org.springframework.util.FileCopyUtils;
+import net.solarnetwork.node.backup.s3.BackupResourceSpool;
+
+/**
+ * Test cases for the {@link BackupResourceSpool} class.
+ *
+ * @author matt
+ * @version 1.0
+ */
+public class BackupResourceSpoolTests {
+
+	private static byte[] randomData(long seed, int size) {
+		byte[] data = new byte[size];
+		new Random(seed).nextBytes(data);
+		return data;
+	}
+
+	private static byte[] content(BackupResourceSpool spool) throws IOException {
+		try (InputStream in = spool.getInputStream()) {
+			return FileCopyUtils.copyToByteArray(in);
+		}
+	}
+
+	@Test
+	public void spool_memory() throws IOException {
+		// GIVEN
+		byte[] data = randomData(1L, 1000);
+
+		// WHEN
+		try (BackupResourceSpool spool = BackupResourceSpool.spool(new ByteArrayInputStream(data),
+				1024)) {
+
+			// THEN
+			assertThat("Content held in memory", spool.isSpilled(), is(equalTo(false)));
+			assertThat("Size computed", spool.getSize(), is(equalTo((long) data.length)));
+			assertThat("Digest computed", spool.getDigest(), is(equalTo(DigestUtils.sha256Hex(data))));
+			assertThat("Content readable", content(spool), is(equalTo(data)));
+			assertThat("Content readable again", content(spool), is(equalTo(data)));
+		}
+	}
+
+	@Test
+	public void spool_spill() throws IOException {
+		// GIVEN
+		byte[] data = randomData(2L, 50_000);
+
+		// WHEN
+		try (BackupResourceSpool spool = BackupResourceSpool.spool(new ByteArrayInputStream(data),
+				1024)) {
+
+			// THEN
+			assertThat("Content spilled to file", spool.isSpilled(), is(equalTo(true)));
+			assertThat("Size computed", spool.getSize(), is(equalTo((long) data.length)));
+			assertThat("Digest computed", spool.getDigest(), is(equalTo(DigestUtils.sha256Hex(data))));
+			assertThat("Content readable", content(spool), is(equalTo(data)));
+		}
+	}
+
+	@Test
+	public void spool_empty() throws IOException {
+		// GIVEN
+		byte[] data = new byte[0];
+
+		// WHEN
+		try (BackupResourceSpool spool = BackupResourceSpool.spool(new ByteArrayInputStream(data),
+				1024)) {
+
+			// THEN
+			assertThat("Content held in memory", spool.isSpilled(), is(equalTo(false)));
+			assertThat("Size computed", spool.getSize(), is(equalTo(0L)));
+			assertThat("Digest computed", spool.getDigest(),
+					is(equalTo(DigestUtils.sha256Hex(data))));
+		}
+	}
+
+}
@@ -0,0 +1,266 @@
+/* ==================================================================
+ * S3BackupServiceUploadTests.java - 19/10/2026 12:41:06 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.backup.s3.test;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.isNull;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.util.FileCopyUtils;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.solarnetwork.common.s3.S3Client;
+import net.solarnetwork.common.s3.S3ObjectMetadata;
+import net.solarnetwork.common.s3.S3ObjectRef;
+import net.solarnetwork.common.s3.S3ObjectReference;
+import net.solarnetwork.node.backup.Backup;
+import net.solarnetwork.node.backup.BackupResource;
+import net.solarnetwork.node.backup.ResourceBackupResource;
+import net.solarnetwork.node.backup.s3.S3BackupMetadata;
+import net.solarnetwork.node.backup.s3.S3BackupResourceMetadata;
+import net.solarnetwork.node.backup.s3.S3BackupService;
+
+/**
+ * Test cases for the {@link S3BackupService} upload process, using an
+ * in-memory S3 stand-in.
+ *
+ * @author matt
+ * @version 1.0
+ */
+public class S3BackupServiceUploadTests {
+
+	private static final String PREFIX = "test/";
+
+	private static final ObjectMapper MAPPER = new ObjectMapper()
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	private S3Client client;
+	private Map<String, byte[]> objects;
+	private S3BackupService service;
+
+	@Before
+	public void setup() throws IOException {
+		objects = new ConcurrentHashMap<>();
+		client = EasyMock.createMock(S3Client.class);
+		expect(client.isConfigured()).andReturn(true).anyTimes();
+		expect(client.listObjects(anyString())).andAnswer(() -> {
+			String prefix = (String) getCurrentArguments()[0];
+			return objects.keySet().stream().filter(k -> k.startsWith(prefix))
+					.<S3ObjectReference> map(S3ObjectRef::new).collect(Collectors.toSet());
+		}).anyTimes();
+
+		service = new S3BackupService();
+		service.setS3Client(client);
+		service.setObjectKeyPrefix(PREFIX);
+		service.setAdditionalBackupCount(0);
+		service.setUploadConcurrency(3);
+		service.setSpoolMemoryThreshold(1024);
+	}
+
+	@After
+	public void teardown() {
+		EasyMock.verify(client);
+	}
+
+	private void replayAll() {
+		EasyMock.replay(client);
+		service.configurationChanged(null);
+	}
+
+	private void expectPutObjects() throws IOException {
+		expect(client.putObject(anyString(), anyObject(InputStream.class),
+				anyObject(S3ObjectMetadata.class), isNull(), isNull())).andAnswer(() -> {
+					String key = (String) getCurrentArguments()[0];
+					InputStream in = (InputStream) getCurrentArguments()[1];
+					objects.put(key, FileCopyUtils.copyToByteArray(in));
+					return new S3ObjectRef(key);
+				}).anyTimes();
+	}
+
+	private static byte[] randomData(long seed, int size) {
+		byte[] data = new byte[size];
+		new Random(seed).nextBytes(data);
+		return data;
+	}
+
+	private static BackupResource resource(String path, byte[] data, String digest,
+			AtomicInteger reads) {
+		return new ResourceBackupResource(new ByteArrayResource(data) {
+
+			@Override
+			public InputStream getInputStream() throws IOException {
+				reads.incrementAndGet();
+				return super.getInputStream();
+			}
+
+		}, path, "test", digest);
+	}
+
+	private S3BackupMetadata savedMetadata() throws IOException {
+		List<String> metaKeys = objects.keySet().stream()
+				.filter(k -> k.startsWith(PREFIX + "backup-meta/")).collect(Collectors.toList());
+		assertThat("Backup metadata saved", metaKeys, hasSize(1));
+		return MAPPER.readValue(new String(objects.get(metaKeys.get(0)), StandardCharsets.UTF_8),
+				S3BackupMetadata.class);
+	}
+
+	@Test
+	public void backup_objects_singlePass() throws IOException {
+		// GIVEN
+		service.setChunkedStorage(false);
+		expectPutObjects();
+		replayAll();
+
+		final int[] sizes = new int[] { 100, 5_000, 20_000, 3_000 };
+		final List<byte[]> data = new ArrayList<>();
+		final List<AtomicInteger> reads = new ArrayList<>();
+		final List<BackupResource> resources = new ArrayList<>();
+		for ( int i = 0; i < sizes.length; i++ ) {
+			data.add(randomData(i, sizes[i]));
+			reads.add(new AtomicInteger());
+			resources.add(resource("r" + i, data.get(i), null, reads.get(i)));
+		}
+
+		// WHEN
+		Backup result = service.performBackup(resources);
+
+		// THEN
+		assertThat("Backup returned", result, is(notNullValue()));
+		S3BackupMetadata meta = savedMetadata();
+		assertThat("All resources in metadata", meta.getResourceMetadata(), hasSize(sizes.length));
+		for ( int i = 0; i < sizes.length; i++ ) {
+			assertThat("Resource read only once", reads.get(i).get(), is(equalTo(1)));
+			S3BackupResourceMetadata rsrcMeta = meta.getResourceMetadata().get(i);
+			String sha = DigestUtils.sha256Hex(data.get(i));
+			assertThat("Resource order preserved", rsrcMeta.getBackupPath(), is(equalTo("r" + i)));
+			assertThat("Resource digest saved", rsrcMeta.getDigest(), is(equalTo(sha)));
+			assertThat("Resource object key is digest", rsrcMeta.getObjectKey(),
+					is(equalTo(PREFIX + "backup-data/" + sha)));
+			assertThat("Resource content uploaded", objects.get(rsrcMeta.getObjectKey()),
+					is(equalTo(data.get(i))));
+		}
+	}
+
+	@Test
+	public void backup_objects_knownDigestNotRead() throws IOException {
+		// GIVEN
+		service.setChunkedStorage(false);
+		expectPutObjects();
+		replayAll();
+
+		final byte[] data = randomData(1L, 2_000);
+		final String sha = DigestUtils.sha256Hex(data);
+		objects.put(PREFIX + "backup-data/" + sha, data);
+		final AtomicInteger reads = new AtomicInteger();
+
+		// WHEN
+		Backup result = service.performBackup(List.of(resource("r", data, sha, reads)));
+
+		// THEN
+		assertThat("Backup returned", result, is(notNullValue()));
+		assertThat("Already saved resource not read", reads.get(), is(equalTo(0)));
+		S3BackupMetadata meta = savedMetadata();
+		assertThat("Resource in metadata", meta.getResourceMetadata(), hasSize(1));
+		assertThat("Resource object key is digest",
+				meta.getResourceMetadata().get(0).getObjectKey(),
+				is(equalTo(PREFIX + "backup-data/" + sha)));
+	}
+
+	@Test
+	public void backup_chunked_concurrent() throws IOException {
+		// GIVEN
+		service.setChunkedStorage(true);
+		expectPutObjects();
+		replayAll();
+
+		final byte[] data = randomData(2L, 1_000_000);
+		final AtomicInteger reads = new AtomicInteger();
+
+		// WHEN
+		Backup result = service.performBackup(List.of(resource("db.zip", data, null, reads)));
+
+		// THEN
+		assertThat("Backup returned", result, is(notNullValue()));
+		assertThat("Resource read only once", reads.get(), is(equalTo(1)));
+		S3BackupMetadata meta = savedMetadata();
+		assertThat("Resource in metadata", meta.getResourceMetadata(), hasSize(1));
+		S3BackupResourceMetadata rsrcMeta = meta.getResourceMetadata().get(0);
+		assertThat("Resource digest saved", rsrcMeta.getDigest(),
+				is(equalTo(DigestUtils.sha256Hex(data))));
+		ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+		for ( String key : rsrcMeta.getChunkKeys() ) {
+			byte[] chunk = objects.get(key);
+			assertThat("Chunk uploaded", chunk, is(notNullValue()));
+			out.write(chunk);
+		}
+		assertThat("Uploaded chunks reassemble to resource", out.toByteArray(), is(equalTo(data)));
+	}
+
+	@Test
+	public void backup_uploadFailure() throws IOException {
+		// GIVEN
+		service.setChunkedStorage(false);
+		expect(client.putObject(anyString(), anyObject(InputStream.class),
+				anyObject(S3ObjectMetadata.class), isNull(), isNull()))
+				.andThrow(new IOException("Test failure")).anyTimes();
+		replayAll();
+
+		final AtomicInteger reads = new AtomicInteger();
+
+		// WHEN
+		Backup result = service
+				.performBackup(List.of(resource("r", randomData(3L, 5_000), null, reads)));
+
+		// THEN
+		assertThat("No backup returned", result, is(nullValue()));
+		Set<String> metaKeys = objects.keySet().stream()
+				.filter(k -> k.startsWith(PREFIX + "backup-meta/")).collect(Collectors.toSet());
+		assertThat("No backup metadata saved", metaKeys, hasSize(0));
+	}
+
+}
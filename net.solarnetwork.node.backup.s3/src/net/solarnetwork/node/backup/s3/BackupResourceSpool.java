@@ -0,0 +1,178 @@
+/* ==================================================================
+ * BackupResourceSpool.java - 19/10/2026 11:42:18 am
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.backup.s3;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * A copy of backup resource content, read in a single pass while computing the
+ * content SHA-256 digest and length.
+ *
+ * <p>
+ * Content up to a memory threshold is held in memory. Larger content is
+ * spilled to a temporary file, which is deleted when {@link #close()} is
+ * called.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 2.4
+ */
+public final class BackupResourceSpool implements Closeable {
+
+	private static final String TEMP_FILE_PREFIX = "s3-backup-";
+
+	private final byte[] data;
+	private final Path file;
+	private final long size;
+	private final String digest;
+
+	private BackupResourceSpool(byte[] data, Path file, long size, String digest) {
+		super();
+		this.data = data;
+		this.file = file;
+		this.size = size;
+		this.digest = digest;
+	}
+
+	/**
+	 * Spool the content of a stream.
+	 *
+	 * <p>
+	 * The stream is read until the end, but not closed.
+	 * </p>
+	 *
+	 * @param in
+	 *        the stream to read
+	 * @param memoryThreshold
+	 *        the maximum number of bytes to hold in memory before spilling to
+	 *        a temporary file
+	 * @return the spool
+	 * @throws IOException
+	 *         if an IO error occurs
+	 */
+	public static BackupResourceSpool spool(InputStream in, int memoryThreshold)
+			throws IOException {
+		final MessageDigest md = DigestUtils.getSha256Digest();
+		final byte[] buf = new byte[8192];
+		final ByteArrayOutputStream mem = new ByteArrayOutputStream(
+				Math.min(buf.length, Math.max(memoryThreshold, 32)));
+		Path file = null;
+		OutputStream out = mem;
+		long size = 0;
+		try {
+			int len;
+			while ( (len = in.read(buf)) >= 0 ) {
+				md.update(buf, 0, len);
+				size += len;
+				if ( file == null && size > memoryThreshold ) {
+					file = Files.createTempFile(TEMP_FILE_PREFIX, ".dat");
+					out = new BufferedOutputStream(Files.newOutputStream(file));
+					mem.writeTo(out);
+				}
+				out.write(buf, 0, len);
+			}
+			out.close();
+		} catch ( IOException | RuntimeException e ) {
+			if ( file != null ) {
+				try {
+					out.close();
+				} catch ( IOException e2 ) {
+					// ignore
+				}
+				Files.deleteIfExists(file);
+			}
+			throw e;
+		}
+		return new BackupResourceSpool(file == null ? mem.toByteArray() : null, file, size,
+				Hex.encodeHexString(md.digest()));
+	}
+
+	/**
+	 * Open the spooled content for reading.
+	 *
+	 * @return the content
+	 * @throws IOException
+	 *         if an IO error occurs
+	 */
+	public InputStream getInputStream() throws IOException {
+		if ( file != null ) {
+			return new BufferedInputStream(Files.newInputStream(file));
+		}
+		return new ByteArrayInputStream(data);
+	}
+
+	/**
+	 * Test if the content was spilled to a temporary file.
+	 *
+	 * @return {@literal true} if the content is stored in a temporary file
+	 */
+	public boolean isSpilled() {
+		return file != null;
+	}
+
+	/**
+	 * Get the content length.
+	 *
+	 * @return the number of bytes read
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Get the SHA-256 digest of the content.
+	 *
+	 * @return the hex-encoded digest
+	 */
+	public String getDigest() {
+		return digest;
+	}
+
+	/**
+	 * Delete the temporary file, if any.
+	 *
+	 * <p>
+	 * This method can be safely called more than once.
+	 * </p>
+	 */
+	@Override
+	public void close() throws IOException {
+		if ( file != null ) {
+			Files.deleteIfExists(file);
+		}
+	}
+
+}
@@ -36,7 +36,7 @@ import net.solarnetwork.node.backup.BackupResource;
  * S3 implementation of {@link Backup}.
  *
  * @author matt
- * @version 1.1
+ * @version 1.2
  */
 @JsonPropertyOrder({ "key", "nodeId", "date", "qualifier", "size", "complete" })
 @JsonIgnoreProperties({ "id" })
@@ -177,6 +177,22 @@ public class S3BackupMetadata implements Backup {
 		resourceMetadata.add(meta);
 	}
 
+	/**
+	 * Add a chunked resource to the resource list.
+	 *
+	 * @param resource
+	 *        the resource to add
+	 * @param chunkKeys
+	 *        the S3 object keys of the resource content chunks, in order
+	 * @param digest
+	 *        the digest of the resource contents
+	 * @since 1.2
+	 */
+	public void addBackupResource(BackupResource resource, List<String> chunkKeys, String digest) {
+		addBackupResource(resource, (String) null, digest);
+		resourceMetadata.get(resourceMetadata.size() - 1).setChunkKeys(chunkKeys);
+	}
+
 	/**
 	 * Get the resource metadata.
 	 *
@@ -24,6 +24,11 @@ package net.solarnetwork.node.backup.s3;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
 import net.solarnetwork.common.s3.S3Client;
 import net.solarnetwork.common.s3.S3Object;
 import net.solarnetwork.node.backup.BackupResource;
@@ -33,11 +38,12 @@ import net.solarnetwork.node.backup.BackupResource;
  *
  * <p>
  * The {@link #getInputStream()} method will return new InputStream instances
- * each time, each stream will fetch from S3 anew.
+ * each time, each stream will fetch from S3 anew. For chunked resources, each
+ * chunk object is fetched only once the previous chunk has been read.
  * </p>
  *
  * @author matt
- * @version 1.0
+ * @version 1.1
  */
 public class S3BackupResource implements BackupResource {
 
@@ -65,6 +71,27 @@ public class S3BackupResource implements BackupResource {
 
 	@Override
 	public InputStream getInputStream() throws IOException {
+		final List<String> chunkKeys = metadata.getChunkKeys();
+		if ( chunkKeys != null ) {
+			final Iterator<String> itr = chunkKeys.iterator();
+			return new SequenceInputStream(new Enumeration<InputStream>() {
+
+				@Override
+				public boolean hasMoreElements() {
+					return itr.hasNext();
+				}
+
+				@Override
+				public InputStream nextElement() {
+					final String key = itr.next();
+					try {
+						return client.getObject(key, null, null).getInputStream();
+					} catch ( IOException e ) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			});
+		}
 		S3Object obj = client.getObject(metadata.getObjectKey(), null, null);
 		return obj.getInputStream();
 	}
@@ -22,11 +22,13 @@
 
 package net.solarnetwork.node.backup.s3;
 
+import java.util.List;
+
 /**
  * Metadata on a single backup resource within a backup.
  *
  * @author matt
- * @version 1.0
+ * @version 1.1
  */
 public class S3BackupResourceMetadata {
 
@@ -35,6 +37,7 @@ public class S3BackupResourceMetadata {
 	private String providerKey;
 	private String objectKey;
 	private String digest;
+	private List<String> chunkKeys;
 
 	/**
 	 * Constructor.
@@ -138,4 +141,27 @@ public class S3BackupResourceMetadata {
 		this.digest = digest;
 	}
 
+	/**
+	 * Get the content chunk object keys.
+	 *
+	 * @return the object keys of the resource content chunks, in order, or
+	 *         {@literal null} if the content is stored as the single object
+	 *         {@link #getObjectKey()}
+	 * @since 1.1
+	 */
+	public List<String> getChunkKeys() {
+		return chunkKeys;
+	}
+
+	/**
+	 * Set the content chunk object keys.
+	 *
+	 * @param chunkKeys
+	 *        the object keys of the resource content chunks, in order
+	 * @since 1.1
+	 */
+	public void setChunkKeys(List<String> chunkKeys) {
+		this.chunkKeys = chunkKeys;
+	}
+
 }
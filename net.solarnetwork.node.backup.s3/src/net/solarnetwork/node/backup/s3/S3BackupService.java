@@ -23,24 +23,33 @@
 package net.solarnetwork.node.backup.s3;
 
 import static java.time.ZoneOffset.UTC;
-import static java.util.Collections.singletonMap;
 import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.security.MessageDigest;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
@@ -48,11 +57,10 @@ import java.util.stream.Collectors;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.context.MessageSource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.MimeType;
 import net.solarnetwork.common.s3.S3Client;
 import net.solarnetwork.common.s3.S3ObjectMeta;
-import net.solarnetwork.common.s3.S3ObjectMetadata;
-import net.solarnetwork.common.s3.S3ObjectRef;
 import net.solarnetwork.common.s3.S3ObjectReference;
 import net.solarnetwork.common.s3.sdk.SdkS3Client;
 import net.solarnetwork.dao.BasicFilterResults;
@@ -66,6 +74,7 @@ import net.solarnetwork.node.backup.BackupServiceInfo;
 import net.solarnetwork.node.backup.BackupServiceSupport;
 import net.solarnetwork.node.backup.BackupStatus;
 import net.solarnetwork.node.backup.CollectionBackupResourceIterable;
+import net.solarnetwork.node.backup.ContentDefinedChunker;
 import net.solarnetwork.node.backup.SimpleBackup;
 import net.solarnetwork.node.backup.SimpleBackupServiceInfo;
 import net.solarnetwork.node.service.IdentityService;
@@ -76,6 +85,7 @@ import net.solarnetwork.settings.SettingSpecifierProvider;
 import net.solarnetwork.settings.SettingsChangeObserver;
 import net.solarnetwork.settings.support.BasicSliderSettingSpecifier;
 import net.solarnetwork.settings.support.BasicTextFieldSettingSpecifier;
+import net.solarnetwork.settings.support.BasicToggleSettingSpecifier;
 import net.solarnetwork.util.CachedResult;
 
 /**
@@ -100,14 +110,31 @@ import net.solarnetwork.util.CachedResult;
  * technically have access to all backups.
  * </p>
  *
+ * <p>
+ * When {@code chunkedStorage} is enabled, resources are instead split into
+ * content-defined chunks with a {@link ContentDefinedChunker}, and each chunk
+ * is stored as an object named after the SHA256 digest of its content with a
+ * {@code backup-chunk/} prefix added. The backup metadata then lists the
+ * chunks of each resource. Only the chunks not already stored are uploaded,
+ * so a resource that changes only slightly between backups only uploads the
+ * changed chunks.
+ * </p>
+ *
+ * <p>
+ * Each resource is read only once, computing its SHA256 digest and length
+ * while the content is copied into a {@link BackupResourceSpool} (for whole
+ * objects) or split into chunks (for chunked storage). The uploads themselves
+ * run on up to {@code uploadConcurrency} threads, so reading the next resource
+ * overlaps with uploading the previous ones, and the chunks of a large resource
+ * are uploaded in parallel.
+ * </p>
+ *
  * @author matt
- * @version 2.3
+ * @version 2.4
  */
 public class S3BackupService extends BackupServiceSupport
 		implements SettingSpecifierProvider, SettingsChangeObserver {
 
-	private static final String CONTENT_SHA256_KEY = "Content-SHA256";
-
 	/** The value returned by {@link #getKey()}. */
 	public static final String SERVICE_KEY = S3BackupService.class.getName();
 
@@ -134,10 +161,32 @@ public class S3BackupService extends BackupServiceSupport
 	 */
 	public static final int DEFAULT_CACHE_SECONDS = 3600;
 
+	/**
+	 * The {@code chunkedStorage} property default value.
+	 *
+	 * @since 2.4
+	 */
+	public static final boolean DEFAULT_CHUNKED_STORAGE = true;
+
+	/**
+	 * The {@code uploadConcurrency} property default value.
+	 *
+	 * @since 2.4
+	 */
+	public static final int DEFAULT_UPLOAD_CONCURRENCY = 2;
+
+	/**
+	 * The {@code spoolMemoryThreshold} property default value.
+	 *
+	 * @since 2.4
+	 */
+	public static final int DEFAULT_SPOOL_MEMORY_THRESHOLD = 1024 * 1024;
+
 	private static final String META_NAME_FORMAT = "node-%2$d-backup-%1$tY%1$tm%1$tdT%1$tH%1$tM%1$tS";
 	private static final String NODE_PREFIX_FORMAT = "node-%d-backup-";
 	private static final String META_OBJECT_KEY_PREFIX = "backup-meta/";
 	private static final String DATA_OBJECT_KEY_PREFIX = "backup-data/";
+	private static final String CHUNK_OBJECT_KEY_PREFIX = "backup-chunk/";
 
 	private String objectKeyPrefix;
 	private MessageSource messageSource;
@@ -145,8 +194,13 @@ public class S3BackupService extends BackupServiceSupport
 	private int cacheSeconds;
 	private int additionalBackupCount;
 	private String storageClass;
+	private boolean chunkedStorage = DEFAULT_CHUNKED_STORAGE;
+	private int uploadConcurrency = DEFAULT_UPLOAD_CONCURRENCY;
+	private int spoolMemoryThreshold = DEFAULT_SPOOL_MEMORY_THRESHOLD;
 
-	private SdkS3Client s3Client = new SdkS3Client();
+	private final ContentDefinedChunker chunker = new ContentDefinedChunker();
+
+	private S3Client s3Client = new SdkS3Client();
 
 	private final AtomicReference<BackupStatus> status = new AtomicReference<>(
 			BackupStatus.Unconfigured);
@@ -170,7 +224,10 @@ public class S3BackupService extends BackupServiceSupport
 
 	@Override
 	public void configurationChanged(Map<String, Object> properties) {
-		s3Client.configurationChanged(properties);
+		SdkS3Client c = sdkClient();
+		if ( c != null ) {
+			c.configurationChanged(properties);
+		}
 		setupClient();
 		cachedBackupList.set(null);
 		CACHED_BACKUPS.clear();
@@ -197,33 +254,12 @@ public class S3BackupService extends BackupServiceSupport
 		return performBackupInternal(resources, now, null);
 	}
 
-	private S3ObjectMeta setupMetadata(BackupResource rsrc, MessageDigest digest, byte[] buf)
-			throws IOException {
-		// S3 client buffers to RAM unless content length set; so since we have to calculate the
-		// SHA256 digest of the content anyway, also calculate the content length at the same time
-		long contentLength = 0;
-		digest.reset();
-		int len = 0;
-		try (InputStream rsrcIn = rsrc.getInputStream()) {
-			while ( (len = rsrcIn.read(buf)) >= 0 ) {
-				digest.update(buf, 0, len);
-				contentLength += len;
-			}
-		}
-		Date modified = null;
-		if ( rsrc.getModificationDate() > 0 ) {
-			modified = new Date(rsrc.getModificationDate());
-		} else {
-			modified = new Date();
-		}
-		String sha256 = new String(Hex.encodeHex(digest.digest()));
-
-		return new S3ObjectMeta(contentLength, modified, storageClass,
-				S3ObjectMetadata.DEFAULT_CONTENT_TYPE, singletonMap(CONTENT_SHA256_KEY, sha256));
+	private SdkS3Client sdkClient() {
+		return (s3Client instanceof SdkS3Client c ? c : null);
 	}
 
 	private void setupClient() {
-		SdkS3Client c = s3Client;
+		S3Client c = s3Client;
 		if ( c != null && c.isConfigured() ) {
 			status.set(BackupStatus.Configured);
 		}
@@ -254,27 +290,26 @@ public class S3BackupService extends BackupServiceSupport
 			final String metaObjectKey = objectKeyForPath(META_OBJECT_KEY_PREFIX + metaName);
 			log.info("Starting backup to archive {}", metaObjectKey);
 
-			final Set<S3ObjectReference> allDataObjects = client
-					.listObjects(objectKeyForPath(DATA_OBJECT_KEY_PREFIX));
-
 			S3BackupMetadata meta = new S3BackupMetadata();
 			meta.setNodeId(nodeId);
-			MessageDigest digest = DigestUtils.getSha256Digest();
-			byte[] buf = new byte[4096];
-			for ( BackupResource rsrc : resources ) {
-				S3ObjectMeta objMeta = setupMetadata(rsrc, digest, buf);
-				String sha = (String) objMeta.getExtendedMetadata().get(CONTENT_SHA256_KEY);
-				String objectKey = objectKeyForPath(DATA_OBJECT_KEY_PREFIX + sha);
-
-				// see if already exists
-				if ( !allDataObjects.contains(new S3ObjectRef(objectKey)) ) {
-					log.info("Saving resource to S3: {}", rsrc.getBackupPath());
-					client.putObject(objectKey, rsrc.getInputStream(),
-							new S3ObjectMeta(objMeta.getSize(), objMeta.getModified()), null, null);
+			try (Uploads uploads = new Uploads(uploadConcurrency)) {
+				if ( chunkedStorage ) {
+					final Set<String> knownChunks = objectKeys(client,
+							objectKeyForPath(CHUNK_OBJECT_KEY_PREFIX));
+					final MessageDigest digest = DigestUtils.getSha256Digest();
+					final MessageDigest chunkDigest = DigestUtils.getSha256Digest();
+					for ( BackupResource rsrc : resources ) {
+						backupResourceChunks(client, rsrc, meta, knownChunks, digest, chunkDigest,
+								uploads);
+					}
 				} else {
-					log.info("Backup resource already saved to S3: {}", rsrc.getBackupPath());
+					final Set<String> knownObjects = objectKeys(client,
+							objectKeyForPath(DATA_OBJECT_KEY_PREFIX));
+					for ( BackupResource rsrc : resources ) {
+						backupResourceObject(client, rsrc, meta, knownObjects, uploads);
+					}
 				}
-				meta.addBackupResource(rsrc, objectKey, sha);
+				uploads.await();
 			}
 
 			// now save metadata
@@ -331,6 +366,189 @@ public class S3BackupService extends BackupServiceSupport
 		return result;
 	}
 
+	private static Set<String> objectKeys(S3Client client, String prefix) throws IOException {
+		return client.listObjects(prefix).stream().map(S3ObjectReference::getKey)
+				.collect(Collectors.toCollection(HashSet::new));
+	}
+
+	private static Date modificationDate(BackupResource rsrc) {
+		return (rsrc.getModificationDate() > 0 ? new Date(rsrc.getModificationDate()) : new Date());
+	}
+
+	private void backupResourceObject(S3Client client, BackupResource rsrc, S3BackupMetadata meta,
+			Set<String> knownObjects, Uploads uploads) throws IOException {
+		final String expectedDigest = rsrc.getSha256Digest();
+		if ( expectedDigest != null ) {
+			// no need to read content already saved
+			final String objectKey = objectKeyForPath(DATA_OBJECT_KEY_PREFIX + expectedDigest);
+			if ( knownObjects.contains(objectKey) ) {
+				log.info("Backup resource already saved to S3: {}", rsrc.getBackupPath());
+				meta.addBackupResource(rsrc, objectKey, expectedDigest);
+				return;
+			}
+		}
+		final BackupResourceSpool spool;
+		try (InputStream in = rsrc.getInputStream()) {
+			spool = BackupResourceSpool.spool(in, spoolMemoryThreshold);
+		}
+		final String sha = spool.getDigest();
+		final String objectKey = objectKeyForPath(DATA_OBJECT_KEY_PREFIX + sha);
+		if ( knownObjects.add(objectKey) ) {
+			log.info("Saving resource to S3: {}", rsrc.getBackupPath());
+			final S3ObjectMeta objMeta = new S3ObjectMeta(spool.getSize(), modificationDate(rsrc));
+			uploads.submit(() -> {
+				try (InputStream in = spool.getInputStream()) {
+					client.putObject(objectKey, in, objMeta, null, null);
+				}
+			}, spool);
+		} else {
+			spool.close();
+			log.info("Backup resource already saved to S3: {}", rsrc.getBackupPath());
+		}
+		meta.addBackupResource(rsrc, objectKey, sha);
+	}
+
+	private void backupResourceChunks(S3Client client, BackupResource rsrc, S3BackupMetadata meta,
+			Set<String> knownChunks, MessageDigest digest, MessageDigest chunkDigest,
+			Uploads uploads) throws IOException {
+		final Date modified = modificationDate(rsrc);
+		final List<String> chunkKeys = new ArrayList<>(8);
+		final int[] newChunkCount = new int[] { 0 };
+		digest.reset();
+		try (InputStream in = rsrc.getInputStream()) {
+			chunker.split(in, (data, offset, length) -> {
+				digest.update(data, offset, length);
+				chunkDigest.update(data, offset, length);
+				final String objectKey = objectKeyForPath(
+						CHUNK_OBJECT_KEY_PREFIX + new String(Hex.encodeHex(chunkDigest.digest())));
+				if ( knownChunks.add(objectKey) ) {
+					final byte[] chunk = Arrays.copyOfRange(data, offset, offset + length);
+					uploads.submit(() -> {
+						try (ByteArrayInputStream chunkIn = new ByteArrayInputStream(chunk)) {
+							client.putObject(objectKey, chunkIn, new S3ObjectMeta(chunk.length, modified),
+									null, null);
+						}
+					}, null);
+					newChunkCount[0]++;
+				}
+				chunkKeys.add(objectKey);
+			});
+		}
+		log.info("Saving resource to S3 with {} new of {} chunks: {}", newChunkCount[0],
+				chunkKeys.size(), rsrc.getBackupPath());
+		meta.addBackupResource(rsrc, chunkKeys, new String(Hex.encodeHex(digest.digest())));
+	}
+
+	/**
+	 * API for a single upload task.
+	 */
+	@FunctionalInterface
+	private interface Upload {
+
+		void upload() throws IOException;
+
+	}
+
+	/**
+	 * Run uploads concurrently, limiting the number of pending uploads so the
+	 * resources read ahead of the uploads stay bounded.
+	 */
+	private static final class Uploads implements Closeable {
+
+		private final ExecutorService executor;
+		private final Semaphore permits;
+		private final List<Future<?>> futures = new ArrayList<>(16);
+		private final List<Closeable> resources = new ArrayList<>(16);
+
+		private Uploads(int concurrency) {
+			super();
+			final int n = Math.max(1, concurrency);
+			this.executor = Executors.newFixedThreadPool(n, new CustomizableThreadFactory("S3-Backup-"));
+			this.permits = new Semaphore(n * 2);
+		}
+
+		private void submit(Upload upload, Closeable resource) throws IOException {
+			if ( resource != null ) {
+				resources.add(resource);
+			}
+			checkFailures();
+			try {
+				permits.acquire();
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted waiting to upload backup resource.");
+			}
+			try {
+				futures.add(executor.submit(() -> {
+					try {
+						upload.upload();
+					} finally {
+						permits.release();
+						if ( resource != null ) {
+							resource.close();
+						}
+					}
+					return null;
+				}));
+			} catch ( RejectedExecutionException e ) {
+				permits.release();
+				throw e;
+			}
+		}
+
+		private void checkFailures() throws IOException {
+			for ( Iterator<Future<?>> itr = futures.iterator(); itr.hasNext(); ) {
+				Future<?> f = itr.next();
+				if ( f.isDone() ) {
+					result(f);
+					itr.remove();
+				}
+			}
+		}
+
+		private void await() throws IOException {
+			for ( Future<?> f : futures ) {
+				result(f);
+			}
+			futures.clear();
+		}
+
+		private static void result(Future<?> f) throws IOException {
+			try {
+				f.get();
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted waiting for backup resource upload.");
+			} catch ( ExecutionException e ) {
+				Throwable t = e.getCause();
+				if ( t instanceof IOException ioe ) {
+					throw ioe;
+				} else if ( t instanceof RuntimeException re ) {
+					throw re;
+				}
+				throw new IOException("Error uploading backup resource: " + t, t);
+			}
+		}
+
+		@Override
+		public void close() {
+			executor.shutdownNow();
+			try {
+				executor.awaitTermination(1, TimeUnit.MINUTES);
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+			for ( Closeable r : resources ) {
+				try {
+					r.close();
+				} catch ( IOException e ) {
+					// ignore
+				}
+			}
+		}
+
+	}
+
 	private void updateCachedBackupList(List<Backup> newList) {
 		CachedResult<List<Backup>> cached = cachedBackupList.get();
 		if ( cached != null ) {
@@ -580,6 +798,9 @@ public class S3BackupService extends BackupServiceSupport
 				(double) DEFAULT_ADDITIONAL_BACKUP_COUNT, 0.0, 20.0, 1.0));
 		result.add(new BasicTextFieldSettingSpecifier("cacheSeconds",
 				String.valueOf(DEFAULT_CACHE_SECONDS)));
+		result.add(new BasicToggleSettingSpecifier("chunkedStorage", DEFAULT_CHUNKED_STORAGE));
+		result.add(new BasicTextFieldSettingSpecifier("uploadConcurrency",
+				String.valueOf(DEFAULT_UPLOAD_CONCURRENCY)));
 		return result;
 	}
 
@@ -600,7 +821,10 @@ public class S3BackupService extends BackupServiceSupport
 	 *        the access token to set
 	 */
 	public void setAccessToken(String accessToken) {
-		s3Client.setAccessToken(accessToken);
+		SdkS3Client c = sdkClient();
+		if ( c != null ) {
+			c.setAccessToken(accessToken);
+		}
 	}
 
 	/**
@@ -610,7 +834,10 @@ public class S3BackupService extends BackupServiceSupport
 	 *        the access secret to set
 	 */
 	public void setAccessSecret(String accessSecret) {
-		s3Client.setAccessSecret(accessSecret);
+		SdkS3Client c = sdkClient();
+		if ( c != null ) {
+			c.setAccessSecret(accessSecret);
+		}
 	}
 
 	/**
@@ -620,7 +847,10 @@ public class S3BackupService extends BackupServiceSupport
 	 *        the region name to set
 	 */
 	public void setRegionName(String regionName) {
-		s3Client.setRegionName(regionName);
+		SdkS3Client c = sdkClient();
+		if ( c != null ) {
+			c.setRegionName(regionName);
+		}
 	}
 
 	/**
@@ -630,7 +860,10 @@ public class S3BackupService extends BackupServiceSupport
 	 *        the name to set
 	 */
 	public void setBucketName(String bucketName) {
-		s3Client.setBucketName(bucketName);
+		SdkS3Client c = sdkClient();
+		if ( c != null ) {
+			c.setBucketName(bucketName);
+		}
 	}
 
 	/**
@@ -690,10 +923,15 @@ public class S3BackupService extends BackupServiceSupport
 	/**
 	 * Set the S3 client.
 	 *
+	 * <p>
+	 * The AWS connection settings are only applied to {@link SdkS3Client}
+	 * instances.
+	 * </p>
+	 *
 	 * @param s3Client
 	 *        the client
 	 */
-	public void setS3Client(SdkS3Client s3Client) {
+	public void setS3Client(S3Client s3Client) {
 		this.s3Client = s3Client;
 	}
 
@@ -736,4 +974,87 @@ public class S3BackupService extends BackupServiceSupport
 		this.storageClass = storageClass;
 	}
 
+	/**
+	 * Get the chunked storage mode.
+	 *
+	 * @return {@literal true} to store resources as de-duplicated chunks;
+	 *         defaults to {@link #DEFAULT_CHUNKED_STORAGE}
+	 * @since 2.4
+	 */
+	public boolean isChunkedStorage() {
+		return chunkedStorage;
+	}
+
+	/**
+	 * Set the chunked storage mode.
+	 *
+	 * <p>
+	 * Changing this setting does not affect existing backups, which can still
+	 * be restored.
+	 * </p>
+	 *
+	 * @param chunkedStorage
+	 *        {@literal true} to store resources as de-duplicated chunks, or
+	 *        {@literal false} to store each resource as a single object
+	 * @since 2.4
+	 */
+	public void setChunkedStorage(boolean chunkedStorage) {
+		this.chunkedStorage = chunkedStorage;
+	}
+
+	/**
+	 * Get the number of resources to upload concurrently.
+	 *
+	 * @return the upload concurrency; defaults to
+	 *         {@link #DEFAULT_UPLOAD_CONCURRENCY}
+	 * @since 2.4
+	 */
+	public int getUploadConcurrency() {
+		return uploadConcurrency;
+	}
+
+	/**
+	 * Set the number of resources to upload concurrently.
+	 *
+	 * <p>
+	 * When {@code chunkedStorage} is enabled, this is the number of chunks
+	 * uploaded concurrently, which can belong to the same resource.
+	 * </p>
+	 *
+	 * @param uploadConcurrency
+	 *        the upload concurrency; anything less than {@code 1} is treated
+	 *        as {@code 1}
+	 * @since 2.4
+	 */
+	public void setUploadConcurrency(int uploadConcurrency) {
+		this.uploadConcurrency = uploadConcurrency;
+	}
+
+	/**
+	 * Get the maximum resource size to hold in memory while uploading.
+	 *
+	 * @return the threshold, in bytes; defaults to
+	 *         {@link #DEFAULT_SPOOL_MEMORY_THRESHOLD}
+	 * @since 2.4
+	 */
+	public int getSpoolMemoryThreshold() {
+		return spoolMemoryThreshold;
+	}
+
+	/**
+	 * Set the maximum resource size to hold in memory while uploading.
+	 *
+	 * <p>
+	 * When {@code chunkedStorage} is disabled, resources larger than this are
+	 * copied to a temporary file while they are uploaded.
+	 * </p>
+	 *
+	 * @param spoolMemoryThreshold
+	 *        the threshold, in bytes
+	 * @since 2.4
+	 */
+	public void setSpoolMemoryThreshold(int spoolMemoryThreshold) {
+		this.spoolMemoryThreshold = spoolMemoryThreshold;
+	}
+
 }
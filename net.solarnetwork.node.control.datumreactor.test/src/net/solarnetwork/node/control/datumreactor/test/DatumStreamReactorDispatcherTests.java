@@ -0,0 +1,140 @@
+/* ==================================================================
+ * DatumStreamReactorDispatcherTests.java - 19/10/2026 10:14:52 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.control.datumreactor.test;
+
+import static java.util.Collections.singletonMap;
+import static org.easymock.EasyMock.expect;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import java.time.Instant;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import net.solarnetwork.domain.datum.DatumSamples;
+import net.solarnetwork.node.control.datumreactor.DatumStreamReactor;
+import net.solarnetwork.node.control.datumreactor.DatumStreamReactorDispatcher;
+import net.solarnetwork.node.domain.datum.SimpleDatum;
+import net.solarnetwork.node.service.DatumBus;
+import net.solarnetwork.node.service.PlaceholderService;
+import net.solarnetwork.service.StaticOptionalService;
+
+/**
+ * Test cases for the {@link DatumStreamReactorDispatcher} class.
+ *
+ * @author matt
+ * @version 1.0
+ */
+public class DatumStreamReactorDispatcherTests {
+
+	private PlaceholderService placeholderService;
+	private DatumStreamReactorDispatcher dispatcher;
+
+	@Before
+	public void setup() {
+		placeholderService = EasyMock.createMock(PlaceholderService.class);
+		dispatcher = new DatumStreamReactorDispatcher();
+	}
+
+	@After
+	public void teardown() {
+		EasyMock.verify(placeholderService);
+	}
+
+	private void replayAll() {
+		EasyMock.replay(placeholderService);
+	}
+
+	private DatumStreamReactor reactor(String sourceIdRegex, String controlId) {
+		DatumStreamReactor r = new DatumStreamReactor();
+		r.setDispatcher(dispatcher);
+		r.setSourceIdRegexValue(sourceIdRegex);
+		r.getConfig().setControlId(controlId);
+		r.setPlaceholderService(new StaticOptionalService<>(placeholderService));
+		r.serviceDidStartup();
+		return r;
+	}
+
+	private void post(String sourceId) {
+		SimpleDatum datum = SimpleDatum.nodeDatum(sourceId, Instant.now(), new DatumSamples());
+		dispatcher.datumPublished(DatumBus.Stage.Acquired, datum);
+	}
+
+	@Test
+	public void dispatchToMatchingReactors() {
+		// GIVEN
+		reactor("^/load/(\\d+)", "/throttle/{1}");
+		reactor("^/meter/.*", "/meter/control");
+
+		expect(placeholderService.resolvePlaceholders("/throttle/{1}", singletonMap("1", "1")))
+				.andReturn("/throttle/1").times(2);
+		expect(placeholderService.resolvePlaceholders("/meter/control", null))
+				.andReturn("/meter/control");
+
+		// WHEN
+		replayAll();
+		post("/load/1");
+		post("/load/1");
+		post("/meter/1");
+		post("/other/1");
+		post("/other/1");
+
+		// THEN
+		assertThat("Reactors registered", dispatcher.getReactorCount(), is(equalTo(2)));
+		assertThat("Source IDs indexed, including those without matches", dispatcher.getIndexSize(),
+				is(equalTo(3)));
+	}
+
+	@Test
+	public void reindexOnPatternChange() {
+		// GIVEN
+		DatumStreamReactor r = reactor("^/load/.*", "/throttle/1");
+
+		expect(placeholderService.resolvePlaceholders("/throttle/1", null)).andReturn("/throttle/1");
+
+		// WHEN
+		replayAll();
+		post("/other/1");
+		r.setSourceIdRegexValue("^/other/.*");
+
+		// THEN
+		assertThat("Index discarded on pattern change", dispatcher.getIndexSize(), is(equalTo(0)));
+		post("/other/1");
+	}
+
+	@Test
+	public void unregister() {
+		// GIVEN
+		DatumStreamReactor r = reactor("^/load/.*", "/throttle/1");
+
+		// WHEN
+		replayAll();
+		r.serviceDidShutdown();
+		post("/load/1");
+
+		// THEN
+		assertThat("Reactor unregistered", dispatcher.getReactorCount(), is(equalTo(0)));
+	}
+
+}
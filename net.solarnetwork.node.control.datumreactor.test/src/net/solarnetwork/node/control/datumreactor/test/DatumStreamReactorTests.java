@@ -31,9 +31,14 @@ import static org.easymock.EasyMock.capture;
 import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.easymock.Capture;
@@ -67,7 +72,7 @@ import net.solarnetwork.test.Assertion;
  * Test cases for the {@link DatumStreamReactor} class.
  * 
  * @author matt
- * @version 1.0
+ * @version 1.1
  */
 public class DatumStreamReactorTests {
 
@@ -336,4 +341,130 @@ public class DatumStreamReactorTests {
 		// THEN
 	}
 
+	private void expectInstruction(String expectedValue) {
+		Capture<Instruction> instrCaptor = Capture.newInstance();
+		expect(instructionExecutionService.executeInstruction(capture(instrCaptor)))
+				.andAnswer(new IAnswer<InstructionStatus>() {
+
+					@Override
+					public InstructionStatus answer() throws Throwable {
+						Instruction instr = instrCaptor.getValue();
+						assertThat("Control output value is result of expression",
+								instr.getParameterValue(TEST_CONTROL_ID), is(expectedValue));
+						return InstructionUtils.createStatus(instr, InstructionState.Completed);
+					}
+				});
+	}
+
+	@Test
+	public void unchangedValueSuppressed() {
+		// GIVEN
+		expect(placeholderService.resolvePlaceholders(TEST_CONTROL_ID, null)).andReturn(TEST_CONTROL_ID)
+				.times(3);
+		placeholderService.smartCopyPlaceholders(anyObject());
+		EasyMock.expectLastCall().times(3);
+
+		service.getConfig().setExpression(String.format("%s / 2", TEST_DATUM_PROP));
+
+		expectInstruction("62");
+		expectInstruction("63");
+
+		// WHEN
+		replayAll();
+		service.handleEvent(
+				datumCapturedEvent(createTestGeneralNodeDatum(TEST_SOURCE_ID, TEST_DATUM_PROP, 124)));
+		service.handleEvent(
+				datumCapturedEvent(createTestGeneralNodeDatum(TEST_SOURCE_ID, TEST_DATUM_PROP, 124)));
+		service.handleEvent(
+				datumCapturedEvent(createTestGeneralNodeDatum(TEST_SOURCE_ID, TEST_DATUM_PROP, 126)));
+
+		// THEN
+		assertThat("Unchanged value suppressed", service.getSuppressedInstructionCount(),
+				is(equalTo(1L)));
+	}
+
+	@Test
+	public void unchangedValueWithinDeadbandSuppressed() {
+		// GIVEN
+		service.setDeadband(new BigDecimal("1.5"));
+		expect(placeholderService.resolvePlaceholders(TEST_CONTROL_ID, null)).andReturn(TEST_CONTROL_ID)
+				.times(3);
+		placeholderService.smartCopyPlaceholders(anyObject());
+		EasyMock.expectLastCall().times(3);
+
+		service.getConfig().setExpression(String.format("%s / 2", TEST_DATUM_PROP));
+
+		expectInstruction("62");
+		expectInstruction("64");
+
+		// WHEN
+		replayAll();
+		service.handleEvent(
+				datumCapturedEvent(createTestGeneralNodeDatum(TEST_SOURCE_ID, TEST_DATUM_PROP, 124)));
+		service.handleEvent(
+				datumCapturedEvent(createTestGeneralNodeDatum(TEST_SOURCE_ID, TEST_DATUM_PROP, 126)));
+		service.handleEvent(
+				datumCapturedEvent(createTestGeneralNodeDatum(TEST_SOURCE_ID, TEST_DATUM_PROP, 128)));
+
+		// THEN
+		assertThat("Value within deadband suppressed", service.getSuppressedInstructionCount(),
+				is(equalTo(1L)));
+	}
+
+	@Test
+	public void unchangedValueSuppressionDisabled() {
+		// GIVEN
+		service.setMaximumReassertSeconds(0);
+		expect(placeholderService.resolvePlaceholders(TEST_CONTROL_ID, null)).andReturn(TEST_CONTROL_ID)
+				.times(2);
+		placeholderService.smartCopyPlaceholders(anyObject());
+		EasyMock.expectLastCall().times(2);
+
+		service.getConfig().setExpression(String.format("%s / 2", TEST_DATUM_PROP));
+
+		expectInstruction("62");
+		expectInstruction("62");
+
+		// WHEN
+		replayAll();
+		service.handleEvent(
+				datumCapturedEvent(createTestGeneralNodeDatum(TEST_SOURCE_ID, TEST_DATUM_PROP, 124)));
+		service.handleEvent(
+				datumCapturedEvent(createTestGeneralNodeDatum(TEST_SOURCE_ID, TEST_DATUM_PROP, 124)));
+
+		// THEN
+		assertThat("Nothing suppressed", service.getSuppressedInstructionCount(), is(equalTo(0L)));
+	}
+
+	@Test
+	public void pendingReactionsCoalesced() {
+		// GIVEN
+		final List<Runnable> tasks = new ArrayList<>(2);
+		service.setExecutor(tasks::add);
+
+		expect(placeholderService.resolvePlaceholders(TEST_CONTROL_ID, null)).andReturn(TEST_CONTROL_ID)
+				.times(3);
+		placeholderService.smartCopyPlaceholders(anyObject());
+
+		service.getConfig().setExpression(String.format("%s / 2", TEST_DATUM_PROP));
+
+		expectInstruction("63");
+
+		// WHEN
+		replayAll();
+		service.handleEvent(
+				datumCapturedEvent(createTestGeneralNodeDatum(TEST_SOURCE_ID, TEST_DATUM_PROP, 122)));
+		service.handleEvent(
+				datumCapturedEvent(createTestGeneralNodeDatum(TEST_SOURCE_ID, TEST_DATUM_PROP, 124)));
+		service.handleEvent(
+				datumCapturedEvent(createTestGeneralNodeDatum(TEST_SOURCE_ID, TEST_DATUM_PROP, 126)));
+
+		// THEN
+		assertThat("Single task scheduled for control", tasks, hasSize(1));
+		tasks.remove(0).run();
+		assertThat("No further tasks scheduled", tasks, hasSize(0));
+		assertThat("Older pending reactions coalesced", service.getCoalescedReactionCount(),
+				is(equalTo(2L)));
+	}
+
 }
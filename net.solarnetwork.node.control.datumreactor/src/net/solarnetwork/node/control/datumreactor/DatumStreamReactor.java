@@ -38,7 +38,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import org.osgi.service.event.Event;
@@ -56,6 +62,7 @@ import net.solarnetwork.node.service.OperationalModesService;
 import net.solarnetwork.node.service.support.BaseIdentifiable;
 import net.solarnetwork.service.ExpressionService;
 import net.solarnetwork.service.OptionalService;
+import net.solarnetwork.service.ServiceLifecycleObserver;
 import net.solarnetwork.service.support.ExpressionServiceExpression;
 import net.solarnetwork.settings.SettingSpecifier;
 import net.solarnetwork.settings.SettingSpecifierProvider;
@@ -68,25 +75,55 @@ import net.solarnetwork.util.StringUtils;
  * Service to monitor a datum stream and issue an instruction to a control with
  * a value resulting from evaluating an expression.
  *
+ * <p>
+ * When a {@link DatumStreamReactorDispatcher} is configured the reactor
+ * registers itself with that when {@link #serviceDidStartup()} is called, and
+ * datum are delivered by the dispatcher rather than via
+ * {@link #handleEvent(Event)}.
+ * </p>
+ *
+ * <p>
+ * Reactions are coalesced per control ID: while a reaction for a control is
+ * pending or running, newer datum for that control replace any older pending
+ * datum, so only the newest one is evaluated next. If the resulting control
+ * value is unchanged from the last successfully issued value (within
+ * {@code deadband} for numbers), no instruction is issued unless
+ * {@code maximumReassertSeconds} have elapsed since it was last issued.
+ * </p>
+ *
  * @author matt
- * @version 1.1
+ * @version 1.2
  */
 public class DatumStreamReactor extends BaseIdentifiable
-		implements SettingSpecifierProvider, EventHandler {
+		implements SettingSpecifierProvider, EventHandler, ServiceLifecycleObserver {
 
 	/** The {@code instructionTopic} property default value. */
 	public static final String DEFAULT_INSTRUCTION_TOPIC = InstructionHandler.TOPIC_SET_CONTROL_PARAMETER;
 
+	/**
+	 * The {@code maximumReassertSeconds} property default value.
+	 *
+	 * @since 1.2
+	 */
+	public static final int DEFAULT_MAXIMUM_REASSERT_SECONDS = 300;
+
 	private final ControlPropertyConfig config = new ControlPropertyConfig();
+	private final ConcurrentMap<String, ControlReaction> reactions = new ConcurrentHashMap<>(4, 0.75f,
+			2);
 	private Executor executor;
-	private Pattern sourceIdRegex;
+	private volatile Pattern sourceIdRegex;
 	private String instructionTopic = DEFAULT_INSTRUCTION_TOPIC;
 	private OptionalService<InstructionExecutionService> instructionExecutionService;
 	private OptionalService<DatumService> datumService;
 	private OptionalService<OperationalModesService> opModesService;
+	private DatumStreamReactorDispatcher dispatcher;
+	private BigDecimal deadband;
+	private int maximumReassertSeconds = DEFAULT_MAXIMUM_REASSERT_SECONDS;
 
 	private Instruction lastInstruction;
 	private InstructionStatus lastInstructionResult;
+	private final LongAdder coalescedCount = new LongAdder();
+	private final LongAdder suppressedCount = new LongAdder();
 
 	/**
 	 * Constructor.
@@ -95,12 +132,35 @@ public class DatumStreamReactor extends BaseIdentifiable
 		super();
 	}
 
+	/**
+	 * Register with the configured dispatcher, if any.
+	 *
+	 * @since 1.2
+	 */
 	@Override
-	public void handleEvent(Event event) {
-		// validate configuration and extract datum property for input load
-		if ( !config.isValid() ) {
-			return;
+	public void serviceDidStartup() {
+		final DatumStreamReactorDispatcher d = this.dispatcher;
+		if ( d != null ) {
+			d.register(this);
 		}
+	}
+
+	/**
+	 * Unregister from the configured dispatcher, if any.
+	 *
+	 * @since 1.2
+	 */
+	@Override
+	public void serviceDidShutdown() {
+		final DatumStreamReactorDispatcher d = this.dispatcher;
+		if ( d != null ) {
+			d.unregister(this);
+		}
+		reactions.clear();
+	}
+
+	@Override
+	public void handleEvent(Event event) {
 		final String topic = event.getTopic();
 		if ( !DatumQueue.EVENT_TOPIC_DATUM_ACQUIRED.equals(topic) ) {
 			return;
@@ -110,81 +170,194 @@ public class DatumStreamReactor extends BaseIdentifiable
 			return;
 		}
 		final NodeDatum datum = (NodeDatum) val;
-		final Pattern sourceIdRegex = getSourceIdRegex();
-		final String[] sourceIdMatch = (sourceIdRegex != null
-				? StringUtils.match(sourceIdRegex, datum.getSourceId())
-				: new String[] { datum.getSourceId() });
+		final String[] sourceIdMatch = sourceIdMatch(datum.getSourceId());
 		if ( sourceIdMatch == null ) {
 			log.debug("Ignoring datum: ID {} does not match pattern {}", datum.getSourceId(),
 					sourceIdRegex);
 			return;
 		}
+		react(datum, sourceIdMatch);
+	}
+
+	/**
+	 * Match a source ID against the configured source ID pattern.
+	 *
+	 * @param sourceId
+	 *        the source ID to match
+	 * @return the match groups, or {@literal null} if {@code sourceId} does not
+	 *         match
+	 */
+	String[] sourceIdMatch(String sourceId) {
+		final Pattern sourceIdRegex = getSourceIdRegex();
+		return (sourceIdRegex != null ? StringUtils.match(sourceIdRegex, sourceId)
+				: new String[] { sourceId });
+	}
 
+	/**
+	 * React to a datum whose source ID matched the configured pattern.
+	 *
+	 * @param datum
+	 *        the datum
+	 * @param sourceIdMatch
+	 *        the source ID pattern match groups
+	 */
+	void react(NodeDatum datum, String[] sourceIdMatch) {
+		// validate configuration and extract datum property for input load
+		if ( !config.isValid() ) {
+			return;
+		}
 		final String controlId = controlId(sourceIdMatch);
+		if ( controlId == null ) {
+			return;
+		}
+		reactions.computeIfAbsent(controlId, ControlReaction::new).submit(datum);
+	}
 
-		// evaluate expression to determine load balance output based in input load value,
-		// and then set configured control to that result
-		Runnable task = new Runnable() {
+	/**
+	 * Coalescing reaction state for a single control.
+	 *
+	 * <p>
+	 * At most one task per control is submitted to the executor at a time; the
+	 * task evaluates the newest pending datum until none remain.
+	 * </p>
+	 */
+	private final class ControlReaction implements Runnable {
+
+		private final String controlId;
+		private final AtomicReference<NodeDatum> pending = new AtomicReference<>();
+		private final AtomicBoolean scheduled = new AtomicBoolean();
 
-			@Override
-			public void run() {
-				Object desiredControlValue = null;
-				Instruction instr = null;
-				InstructionStatus instrResult = null;
+		// only accessed by the single running task
+		private Object issuedValue;
+		private long issuedTime;
+
+		private ControlReaction(String controlId) {
+			super();
+			this.controlId = controlId;
+		}
+
+		private void submit(NodeDatum datum) {
+			if ( pending.getAndSet(datum) != null ) {
+				coalescedCount.increment();
+				log.trace("Coalesced pending reaction on control [{}]", controlId);
+			}
+			schedule();
+		}
+
+		private void schedule() {
+			if ( !scheduled.compareAndSet(false, true) ) {
+				return;
+			}
+			final Executor e = executor;
+			if ( e != null ) {
 				try {
-					if ( config.getExpression() != null && config.getExpressionServiceId() != null ) {
-						desiredControlValue = evaluateExpression(datum, controlId);
-					}
-					desiredControlValue = applyNumberConstraints(desiredControlValue);
-					if ( log.isDebugEnabled() ) {
-						log.debug("Reaction to input {} to {} on control [{}]: {}", datum,
-								instructionTopic, controlId, desiredControlValue);
-					}
-					if ( desiredControlValue == null ) {
-						return;
-					}
-					InstructionExecutionService instrService = service(instructionExecutionService);
-					instr = createLocalInstruction(instructionTopic, controlId,
-							desiredControlValue instanceof Number
-									? bigDecimalForNumber((Number) desiredControlValue).toPlainString()
-									: desiredControlValue.toString());
-					if ( instrService != null ) {
-						instrResult = instrService.executeInstruction(instr);
-					} else {
-						instrResult = createStatus(instr, Declined, singletonMap(PARAM_MESSAGE,
-								"No InstructionExecutionService available."));
-					}
-				} catch ( ExpressionException e ) {
-					instr = createLocalInstruction(instructionTopic, controlId, "-1");
-					instrResult = createStatus(instr, Declined,
-							singletonMap(PARAM_MESSAGE,
-									String.format("Exception evaluating expression [%s]: %s",
-											config.getExpression(), e.getMessage())));
-				} catch ( RuntimeException e ) {
-					instrResult = createStatus(instr, Declined, singletonMap(PARAM_MESSAGE,
-							"Exception handling instruction: " + e.toString()));
+					e.execute(this);
+					return;
+				} catch ( RejectedExecutionException ex ) {
+					log.warn("Reaction on control [{}] rejected by executor; running directly.",
+							controlId);
+				}
+			}
+			run();
+		}
+
+		@Override
+		public void run() {
+			try {
+				NodeDatum datum;
+				while ( (datum = pending.getAndSet(null)) != null ) {
+					evaluate(datum);
+				}
+			} finally {
+				scheduled.set(false);
+			}
+			if ( pending.get() != null ) {
+				// datum submitted after our last check but before clearing the flag
+				schedule();
+			}
+		}
+
+		// evaluate expression to determine load balance output based in input load value,
+		// and then set configured control to that result
+		private void evaluate(NodeDatum datum) {
+			Object desiredControlValue = null;
+			Instruction instr = null;
+			InstructionStatus instrResult = null;
+			try {
+				if ( config.getExpression() != null && config.getExpressionServiceId() != null ) {
+					desiredControlValue = evaluateExpression(datum, controlId);
 				}
-				if ( instrResult == null ) {
-					log.warn("Unable to {} on control [{}] with [{}]: control not available",
+				desiredControlValue = applyNumberConstraints(desiredControlValue);
+				if ( log.isDebugEnabled() ) {
+					log.debug("Reaction to input {} to {} on control [{}]: {}", datum,
 							instructionTopic, controlId, desiredControlValue);
-				} else if ( instrResult.getInstructionState() != Completed ) {
-					log.warn("Failed to {} control [{}] with [{}] (instruction result {}): {}",
-							instructionTopic, controlId, desiredControlValue, instrResult,
-							instrResult.getResultParameters());
 				}
-				synchronized ( this ) {
-					lastInstruction = instr;
-					lastInstructionResult = instrResult;
+				if ( desiredControlValue == null ) {
+					return;
+				}
+				final long now = System.currentTimeMillis();
+				if ( isUnchanged(desiredControlValue, now) ) {
+					suppressedCount.increment();
+					log.debug("Control [{}] value [{}] unchanged from [{}]; not issuing {}",
+							controlId, desiredControlValue, issuedValue, instructionTopic);
+					return;
+				}
+				InstructionExecutionService instrService = service(instructionExecutionService);
+				instr = createLocalInstruction(instructionTopic, controlId,
+						desiredControlValue instanceof Number
+								? bigDecimalForNumber((Number) desiredControlValue).toPlainString()
+								: desiredControlValue.toString());
+				if ( instrService != null ) {
+					instrResult = instrService.executeInstruction(instr);
+				} else {
+					instrResult = createStatus(instr, Declined, singletonMap(PARAM_MESSAGE,
+							"No InstructionExecutionService available."));
+				}
+				if ( instrResult != null && instrResult.getInstructionState() == Completed ) {
+					issuedValue = desiredControlValue;
+					issuedTime = now;
+				} else {
+					issuedValue = null;
 				}
+			} catch ( ExpressionException e ) {
+				instr = createLocalInstruction(instructionTopic, controlId, "-1");
+				instrResult = createStatus(instr, Declined,
+						singletonMap(PARAM_MESSAGE,
+								String.format("Exception evaluating expression [%s]: %s",
+										config.getExpression(), e.getMessage())));
+			} catch ( RuntimeException e ) {
+				instrResult = createStatus(instr, Declined, singletonMap(PARAM_MESSAGE,
+						"Exception handling instruction: " + e.toString()));
+			}
+			if ( instrResult == null ) {
+				log.warn("Unable to {} on control [{}] with [{}]: control not available",
+						instructionTopic, controlId, desiredControlValue);
+			} else if ( instrResult.getInstructionState() != Completed ) {
+				log.warn("Failed to {} control [{}] with [{}] (instruction result {}): {}",
+						instructionTopic, controlId, desiredControlValue, instrResult,
+						instrResult.getResultParameters());
 			}
+			synchronized ( DatumStreamReactor.this ) {
+				lastInstruction = instr;
+				lastInstructionResult = instrResult;
+			}
+		}
 
-		};
-		Executor e = this.executor;
-		if ( e != null ) {
-			e.execute(task);
-		} else {
-			task.run();
+		private boolean isUnchanged(Object value, long now) {
+			final int reassertSecs = maximumReassertSeconds;
+			if ( reassertSecs < 1 || issuedValue == null
+					|| now - issuedTime >= reassertSecs * 1000L ) {
+				return false;
+			}
+			if ( value instanceof Number && issuedValue instanceof Number ) {
+				BigDecimal diff = bigDecimalForNumber((Number) value)
+						.subtract(bigDecimalForNumber((Number) issuedValue)).abs();
+				final BigDecimal db = deadband;
+				return (db != null ? diff.compareTo(db) <= 0 : diff.signum() == 0);
+			}
+			return value.equals(issuedValue);
 		}
+
 	}
 
 	private String controlId(String[] sourceIdMatch) {
@@ -272,6 +445,9 @@ public class DatumStreamReactor extends BaseIdentifiable
 		results.addAll(baseIdentifiableSettings(""));
 		results.add(new BasicTextFieldSettingSpecifier("sourceIdRegexValue", ""));
 		results.add(new BasicTextFieldSettingSpecifier("instructionTopic", DEFAULT_INSTRUCTION_TOPIC));
+		results.add(new BasicTextFieldSettingSpecifier("deadband", null));
+		results.add(new BasicTextFieldSettingSpecifier("maximumReassertSeconds",
+				String.valueOf(DEFAULT_MAXIMUM_REASSERT_SECONDS)));
 		results.addAll(ControlPropertyConfig.settings("config.", services(getExpressionServices())));
 		return results;
 	}
@@ -350,6 +526,10 @@ public class DatumStreamReactor extends BaseIdentifiable
 	 */
 	public void setSourceIdRegex(Pattern sourceIdRegex) {
 		this.sourceIdRegex = sourceIdRegex;
+		final DatumStreamReactorDispatcher d = this.dispatcher;
+		if ( d != null ) {
+			d.reindex();
+		}
 	}
 
 	/**
@@ -460,4 +640,110 @@ public class DatumStreamReactor extends BaseIdentifiable
 		this.opModesService = opModesService;
 	}
 
+	/**
+	 * Get the dispatcher.
+	 *
+	 * @return the dispatcher, or {@literal null}
+	 * @since 1.2
+	 */
+	public DatumStreamReactorDispatcher getDispatcher() {
+		return dispatcher;
+	}
+
+	/**
+	 * Set the dispatcher.
+	 *
+	 * <p>
+	 * If configured, this reactor registers itself with the dispatcher in
+	 * {@link #serviceDidStartup()} and should then not also be registered as
+	 * an event handler for datum events.
+	 * </p>
+	 *
+	 * @param dispatcher
+	 *        the dispatcher to set
+	 * @since 1.2
+	 */
+	public void setDispatcher(DatumStreamReactorDispatcher dispatcher) {
+		this.dispatcher = dispatcher;
+	}
+
+	/**
+	 * Get the control value deadband.
+	 *
+	 * @return the deadband, or {@literal null} if a number control value must
+	 *         differ exactly from the last issued value to be issued again
+	 * @since 1.2
+	 */
+	public BigDecimal getDeadband() {
+		return deadband;
+	}
+
+	/**
+	 * Set the control value deadband.
+	 *
+	 * <p>
+	 * A number control value that differs from the last issued value by this
+	 * amount or less is treated as unchanged.
+	 * </p>
+	 *
+	 * @param deadband
+	 *        the deadband to set, or {@literal null} for none
+	 * @since 1.2
+	 */
+	public void setDeadband(BigDecimal deadband) {
+		this.deadband = deadband;
+	}
+
+	/**
+	 * Get the maximum number of seconds an unchanged control value is
+	 * suppressed for.
+	 *
+	 * @return the seconds; defaults to
+	 *         {@link #DEFAULT_MAXIMUM_REASSERT_SECONDS}
+	 * @since 1.2
+	 */
+	public int getMaximumReassertSeconds() {
+		return maximumReassertSeconds;
+	}
+
+	/**
+	 * Set the maximum number of seconds an unchanged control value is
+	 * suppressed for.
+	 *
+	 * <p>
+	 * An unchanged control value will be issued again once this many seconds
+	 * have elapsed since it was last issued.
+	 * </p>
+	 *
+	 * @param maximumReassertSeconds
+	 *        the seconds to set; anything less than {@literal 1} disables
+	 *        suppression so every reaction issues an instruction
+	 * @since 1.2
+	 */
+	public void setMaximumReassertSeconds(int maximumReassertSeconds) {
+		this.maximumReassertSeconds = maximumReassertSeconds;
+	}
+
+	/**
+	 * Get the number of reactions replaced by newer datum before being
+	 * evaluated.
+	 *
+	 * @return the count
+	 * @since 1.2
+	 */
+	public long getCoalescedReactionCount() {
+		return coalescedCount.sum();
+	}
+
+	/**
+	 * Get the number of control instructions suppressed because the control
+	 * value was unchanged.
+	 *
+	 * @return the count
+	 * @since 1.2
+	 */
+	public long getSuppressedInstructionCount() {
+		return suppressedCount.sum();
+	}
+
 }
@@ -0,0 +1,221 @@
+/* ==================================================================
+ * DatumStreamReactorDispatcher.java - 19/10/2026 9:42:16 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.control.datumreactor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import net.solarnetwork.node.domain.datum.NodeDatum;
+import net.solarnetwork.node.service.DatumBus;
+
+/**
+ * Dispatch datum acquired via the {@link DatumBus} to registered
+ * {@link DatumStreamReactor} instances, using an index of source ID to
+ * matching reactors.
+ *
+ * <p>
+ * The source ID pattern of each reactor is evaluated only the first time a
+ * given source ID is seen, after which the matching reactors (and their
+ * pattern match groups) are looked up directly. This means datum that no
+ * reactor is interested in are skipped without evaluating any pattern. The
+ * index is discarded whenever a reactor is registered, unregistered, or has its
+ * source ID pattern changed.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 3.1
+ */
+public class DatumStreamReactorDispatcher implements DatumBus.Subscriber {
+
+	/** The {@code maximumIndexSize} property default value. */
+	public static final int DEFAULT_MAXIMUM_INDEX_SIZE = 2048;
+
+	private static final Match[] NO_MATCHES = new Match[0];
+
+	private final List<DatumStreamReactor> reactors = new ArrayList<>(8);
+	private int maximumIndexSize = DEFAULT_MAXIMUM_INDEX_SIZE;
+	private volatile Index index = new Index(new DatumStreamReactor[0]);
+
+	/**
+	 * Constructor.
+	 */
+	public DatumStreamReactorDispatcher() {
+		super();
+	}
+
+	@Override
+	public void datumPublished(DatumBus.Stage stage, NodeDatum datum) {
+		if ( stage != DatumBus.Stage.Acquired || datum == null ) {
+			return;
+		}
+		final String sourceId = datum.getSourceId();
+		if ( sourceId == null ) {
+			return;
+		}
+		for ( Match m : index.matches(sourceId, maximumIndexSize) ) {
+			m.reactor.react(datum, m.sourceIdMatch);
+		}
+	}
+
+	/**
+	 * Register a reactor.
+	 *
+	 * @param reactor
+	 *        the reactor to register
+	 */
+	public void register(DatumStreamReactor reactor) {
+		if ( reactor == null ) {
+			return;
+		}
+		synchronized ( reactors ) {
+			if ( !reactors.contains(reactor) ) {
+				reactors.add(reactor);
+			}
+			reindex();
+		}
+	}
+
+	/**
+	 * Unregister a reactor.
+	 *
+	 * @param reactor
+	 *        the reactor to unregister
+	 */
+	public void unregister(DatumStreamReactor reactor) {
+		synchronized ( reactors ) {
+			if ( reactors.remove(reactor) ) {
+				reindex();
+			}
+		}
+	}
+
+	/**
+	 * Discard the source ID index, for example after a registered reactor has
+	 * changed its source ID pattern.
+	 */
+	public void reindex() {
+		synchronized ( reactors ) {
+			index = new Index(reactors.toArray(new DatumStreamReactor[reactors.size()]));
+		}
+	}
+
+	/**
+	 * Get the number of registered reactors.
+	 *
+	 * @return the number of reactors
+	 */
+	public int getReactorCount() {
+		return index.reactors.length;
+	}
+
+	/**
+	 * Get the number of source IDs in the index.
+	 *
+	 * @return the index size
+	 */
+	public int getIndexSize() {
+		return index.matches.size();
+	}
+
+	/**
+	 * Get the maximum number of source IDs to index.
+	 *
+	 * @return the maximum index size; defaults to
+	 *         {@link #DEFAULT_MAXIMUM_INDEX_SIZE}
+	 */
+	public int getMaximumIndexSize() {
+		return maximumIndexSize;
+	}
+
+	/**
+	 * Set the maximum number of source IDs to index.
+	 *
+	 * <p>
+	 * Once this many source IDs have been indexed, other source IDs will be
+	 * matched against each reactor for every datum.
+	 * </p>
+	 *
+	 * @param maximumIndexSize
+	 *        the maximum index size to set
+	 */
+	public void setMaximumIndexSize(int maximumIndexSize) {
+		this.maximumIndexSize = maximumIndexSize;
+	}
+
+	private static final class Match {
+
+		private final DatumStreamReactor reactor;
+		private final String[] sourceIdMatch;
+
+		private Match(DatumStreamReactor reactor, String[] sourceIdMatch) {
+			super();
+			this.reactor = reactor;
+			this.sourceIdMatch = sourceIdMatch;
+		}
+
+	}
+
+	private static final class Index {
+
+		private final DatumStreamReactor[] reactors;
+		private final ConcurrentMap<String, Match[]> matches = new ConcurrentHashMap<>(16, 0.75f,
+				2);
+
+		private Index(DatumStreamReactor[] reactors) {
+			super();
+			this.reactors = reactors;
+		}
+
+		private Match[] matches(String sourceId, int maximumSize) {
+			Match[] result = matches.get(sourceId);
+			if ( result == null ) {
+				result = resolve(sourceId);
+				if ( matches.size() < maximumSize ) {
+					matches.putIfAbsent(sourceId, result);
+				}
+			}
+			return result;
+		}
+
+		private Match[] resolve(String sourceId) {
+			Match[] result = NO_MATCHES;
+			int count = 0;
+			for ( DatumStreamReactor reactor : reactors ) {
+				String[] sourceIdMatch = reactor.sourceIdMatch(sourceId);
+				if ( sourceIdMatch == null ) {
+					continue;
+				}
+				if ( count == result.length ) {
+					result = Arrays.copyOf(result, Math.max(2, count * 2));
+				}
+				result[count++] = new Match(reactor, sourceIdMatch);
+			}
+			return (count == result.length ? result : Arrays.copyOf(result, count));
+		}
+
+	}
+
+}
@@ -22,18 +22,32 @@
 
 package net.solarnetwork.node.control.demandbalancer.test;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import java.time.Clock;
 import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
 import org.easymock.Capture;
+import org.easymock.CaptureType;
 import org.easymock.EasyMock;
 import org.easymock.IAnswer;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.scheduling.TaskScheduler;
 import net.solarnetwork.domain.BasicNodeControlInfo;
 import net.solarnetwork.domain.InstructionStatus.InstructionState;
 import net.solarnetwork.domain.NodeControlInfo;
@@ -41,12 +55,14 @@ import net.solarnetwork.domain.NodeControlPropertyType;
 import net.solarnetwork.domain.datum.DatumSamples;
 import net.solarnetwork.node.control.demandbalancer.DemandBalancer;
 import net.solarnetwork.node.control.demandbalancer.SimpleDemandBalanceStrategy;
+import net.solarnetwork.node.domain.datum.NodeDatum;
 import net.solarnetwork.node.domain.datum.SimpleAcEnergyDatum;
 import net.solarnetwork.node.reactor.Instruction;
 import net.solarnetwork.node.reactor.InstructionHandler;
 import net.solarnetwork.node.reactor.InstructionStatus;
 import net.solarnetwork.node.reactor.InstructionUtils;
 import net.solarnetwork.node.reactor.SimpleInstructionExecutionService;
+import net.solarnetwork.node.service.DatumBus;
 import net.solarnetwork.node.service.DatumDataSource;
 import net.solarnetwork.node.service.NodeControlProvider;
 import net.solarnetwork.service.StaticOptionalService;
@@ -56,12 +72,47 @@ import net.solarnetwork.service.StaticOptionalServiceCollection;
  * Test cases for the {@link DemandBalancer} class.
  *
  * @author matt
- * @version 2.0
+ * @version 2.1
  */
 public class DemandBalancerTests {
 
 	private static final String TEST_CONTROL_ID = "test/power/limit";
 
+	private static final String TEST_CONTROL_ID_2 = "test/power/limit/2";
+
+	private static final String TEST_METER_SOURCE_ID = "test/meter";
+
+	private static final class TestClock extends Clock {
+
+		private Instant now;
+
+		private TestClock(Instant now) {
+			super();
+			this.now = now;
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+
+		private void advance(long ms) {
+			now = now.plusMillis(ms);
+		}
+
+	}
+
+	private TestClock clock;
 	private DemandBalancer demandBalancer;
 
 	private SimpleDemandBalanceStrategy strategy;
@@ -80,8 +131,11 @@ public class DemandBalancerTests {
 	@Before
 	public void setup() {
 		pcmHandler = EasyMock.createMock(InstructionHandler.class);
-		demandBalancer = new DemandBalancer(new StaticOptionalService<>(
-				new SimpleInstructionExecutionService(singletonList(pcmHandler))));
+		clock = new TestClock(Instant.now());
+		demandBalancer = new DemandBalancer(
+				new StaticOptionalService<>(
+						new SimpleInstructionExecutionService(singletonList(pcmHandler))),
+				clock);
 
 		consumptionDataSource = EasyMock.createMock(DatumDataSource.class);
 		demandBalancer.setConsumptionDataSource(
@@ -141,4 +195,307 @@ public class DemandBalancerTests {
 				is(String.valueOf(strategy.getUnknownDemandLimit())));
 	}
 
+	private NodeControlInfo limitInfo(String controlId, int limit) {
+		return BasicNodeControlInfo.builder().withControlId(controlId)
+				.withType(NodeControlPropertyType.Integer).withReadonly(false)
+				.withValue(String.valueOf(limit)).build();
+	}
+
+	private SimpleAcEnergyDatum meterDatum(int watts) {
+		final SimpleAcEnergyDatum d = new SimpleAcEnergyDatum(TEST_METER_SOURCE_ID, clock.instant(),
+				new DatumSamples());
+		d.setWatts(watts);
+		return d;
+	}
+
+	private void acquired(NodeDatum datum) {
+		demandBalancer.datumPublished(DatumBus.Stage.Acquired, datum);
+	}
+
+	private Capture<Runnable> scheduleEvaluations() {
+		TaskScheduler scheduler = EasyMock.createMock(TaskScheduler.class);
+		demandBalancer.setTaskScheduler(scheduler);
+		Capture<Runnable> taskCaptor = Capture.newInstance(CaptureType.ALL);
+		expect(scheduler.schedule(EasyMock.capture(taskCaptor), EasyMock.anyObject(Instant.class)))
+				.andReturn(null).anyTimes();
+		replay(scheduler);
+		return taskCaptor;
+	}
+
+	private InstructionHandler controlHandler(String controlId, Capture<Instruction> captor) {
+		InstructionHandler handler = EasyMock.createMock(InstructionHandler.class);
+		expect(handler.handlesTopic(InstructionHandler.TOPIC_DEMAND_BALANCE)).andReturn(true)
+				.anyTimes();
+		expect(handler.processInstruction(EasyMock.capture(captor))).andAnswer(() -> {
+			Instruction instr = captor.getValue();
+			if ( instr.getParameterValue(controlId) == null ) {
+				return null;
+			}
+			return InstructionUtils.createStatus(instr, InstructionState.Completed);
+		}).anyTimes();
+		return handler;
+	}
+
+	private Capture<Instruction> expectInstruction() {
+		expect(pcmHandler.handlesTopic(InstructionHandler.TOPIC_DEMAND_BALANCE)).andReturn(true);
+		Capture<Instruction> instructionCapture = Capture.newInstance();
+		expect(pcmHandler.processInstruction(EasyMock.capture(instructionCapture)))
+				.andAnswer(() -> InstructionUtils.createStatus(instructionCapture.getValue(),
+						InstructionState.Completed));
+		return instructionCapture;
+	}
+
+	@Test
+	public void multipleControls() {
+		// GIVEN
+		demandBalancer.setPowerControlId(TEST_CONTROL_ID + "," + TEST_CONTROL_ID_2);
+		demandBalancer.setPowerControls(singletonList(pcmControl));
+		demandBalancer.setPowerMaximumWatts(1000);
+
+		expect(pcmControl.getAvailableControlIds())
+				.andReturn(Arrays.asList(TEST_CONTROL_ID, TEST_CONTROL_ID_2)).anyTimes();
+		expect(pcmControl.getCurrentControlInfo(TEST_CONTROL_ID))
+				.andReturn(limitInfo(TEST_CONTROL_ID, 100));
+		expect(pcmControl.getCurrentControlInfo(TEST_CONTROL_ID_2))
+				.andReturn(limitInfo(TEST_CONTROL_ID_2, 50));
+		expect(consumptionDataSource.readCurrentDatum()).andReturn(meterDatum(500));
+		Capture<Instruction> instructionCapture = expectInstruction();
+
+		// WHEN
+		replayAll();
+		demandBalancer.evaluateBalance();
+
+		// THEN
+		verifyAll();
+		Instruction instr = instructionCapture.getValue();
+		assertThat("Instruction topic", instr.getTopic(),
+				is(InstructionHandler.TOPIC_DEMAND_BALANCE));
+		assertThat("Changed control limit on instruction", instr.getParameterValue(TEST_CONTROL_ID),
+				is(equalTo("50")));
+		assertThat("Unchanged control limit not on instruction",
+				instr.getParameterValue(TEST_CONTROL_ID_2), is(nullValue()));
+	}
+
+	@Test
+	public void multipleControlsMultipleHandlers() {
+		// GIVEN
+		Capture<Instruction> handler1Captor = Capture.newInstance(CaptureType.ALL);
+		Capture<Instruction> handler2Captor = Capture.newInstance(CaptureType.ALL);
+		InstructionHandler handler1 = controlHandler(TEST_CONTROL_ID, handler1Captor);
+		InstructionHandler handler2 = controlHandler(TEST_CONTROL_ID_2, handler2Captor);
+		demandBalancer = new DemandBalancer(
+				new StaticOptionalService<>(
+						new SimpleInstructionExecutionService(asList(handler1, handler2))),
+				clock);
+		demandBalancer.setConsumptionDataSource(
+				new StaticOptionalServiceCollection<>(singletonList(consumptionDataSource)));
+		demandBalancer.setPowerControl(new StaticOptionalService<>(pcmControl));
+		demandBalancer.setBalanceStrategy(new StaticOptionalService<>(strategy));
+		demandBalancer.setPowerControlId(TEST_CONTROL_ID + "," + TEST_CONTROL_ID_2);
+		demandBalancer.setPowerControls(singletonList(pcmControl));
+		demandBalancer.setPowerMaximumWatts(1000);
+
+		expect(pcmControl.getAvailableControlIds())
+				.andReturn(Arrays.asList(TEST_CONTROL_ID, TEST_CONTROL_ID_2)).anyTimes();
+		expect(pcmControl.getCurrentControlInfo(TEST_CONTROL_ID))
+				.andReturn(limitInfo(TEST_CONTROL_ID, 100));
+		expect(pcmControl.getCurrentControlInfo(TEST_CONTROL_ID_2))
+				.andReturn(limitInfo(TEST_CONTROL_ID_2, 80));
+		expect(consumptionDataSource.readCurrentDatum()).andReturn(meterDatum(500));
+
+		// WHEN
+		replayAll();
+		replay(handler1, handler2);
+		demandBalancer.evaluateBalance();
+
+		// THEN
+		verifyAll();
+		verify(handler1, handler2);
+
+		List<Instruction> handler1Instructions = handler1Captor.getValues();
+		assertThat("Handler 1 given each instruction", handler1Instructions, hasSize(2));
+		assertThat("Handler 1 received control 1 setpoint",
+				handler1Instructions.get(0).getParameterValue(TEST_CONTROL_ID), is(equalTo("50")));
+		assertThat("Control 1 instruction has only control 1 setpoint",
+				handler1Instructions.get(0).getParameterValue(TEST_CONTROL_ID_2), is(nullValue()));
+
+		List<Instruction> handler2Instructions = handler2Captor.getValues();
+		assertThat("Handler 2 given only instruction not completed by handler 1",
+				handler2Instructions, hasSize(1));
+		assertThat("Handler 2 received control 2 setpoint",
+				handler2Instructions.get(0).getParameterValue(TEST_CONTROL_ID_2),
+				is(equalTo("50")));
+		assertThat("Control 2 instruction has only control 2 setpoint",
+				handler2Instructions.get(0).getParameterValue(TEST_CONTROL_ID), is(nullValue()));
+	}
+
+	@Test
+	public void eventSampleEvaluatesBalance() {
+		// GIVEN
+		demandBalancer.setConsumptionSourceIds(singleton(TEST_METER_SOURCE_ID));
+		demandBalancer.setPowerMaximumWatts(1000);
+		demandBalancer.setEventDebounceMs(0L);
+		Capture<Runnable> taskCaptor = scheduleEvaluations();
+
+		expect(pcmControl.getCurrentControlInfo(TEST_CONTROL_ID))
+				.andReturn(limitInfo(TEST_CONTROL_ID, 100));
+		Capture<Instruction> instructionCapture = expectInstruction();
+
+		// WHEN
+		replayAll();
+		acquired(meterDatum(250));
+		assertThat("Evaluation handed off to scheduler", taskCaptor.getValues(), hasSize(1));
+		taskCaptor.getValue().run();
+
+		// THEN
+		verifyAll();
+		assertThat("Limit from event sample",
+				instructionCapture.getValue().getParameterValue(TEST_CONTROL_ID),
+				is(equalTo("25")));
+	}
+
+	@Test
+	public void eventSampleOtherSourceIgnored() {
+		// GIVEN
+		demandBalancer.setConsumptionSourceIds(singleton(TEST_METER_SOURCE_ID));
+
+		// WHEN
+		replayAll();
+		SimpleAcEnergyDatum d = new SimpleAcEnergyDatum("not/the/meter", clock.instant(),
+				new DatumSamples());
+		d.setWatts(1);
+		acquired(d);
+
+		// THEN
+		verifyAll();
+	}
+
+	@Test
+	public void eventSamplesDebounced() {
+		// GIVEN
+		TaskScheduler scheduler = EasyMock.createMock(TaskScheduler.class);
+		demandBalancer.setTaskScheduler(scheduler);
+		demandBalancer.setConsumptionSourceIds(
+				new LinkedHashSet<>(asList(TEST_METER_SOURCE_ID, TEST_METER_SOURCE_ID + "/2")));
+		demandBalancer.setPowerMaximumWatts(1000);
+
+		Capture<Runnable> taskCaptor = Capture.newInstance();
+		ScheduledFuture<?> future = EasyMock.createMock(ScheduledFuture.class);
+		expect(scheduler.schedule(EasyMock.capture(taskCaptor),
+				EasyMock.eq(clock.instant().plusMillis(demandBalancer.getEventDebounceMs()))))
+				.andReturn(future);
+		expect(pcmControl.getCurrentControlInfo(TEST_CONTROL_ID))
+				.andReturn(limitInfo(TEST_CONTROL_ID, 100));
+		Capture<Instruction> instructionCapture = expectInstruction();
+
+		// WHEN
+		replayAll();
+		replay(scheduler, future);
+		acquired(meterDatum(250));
+		SimpleAcEnergyDatum d = new SimpleAcEnergyDatum(TEST_METER_SOURCE_ID + "/2",
+				clock.instant(), new DatumSamples());
+		d.setWatts(150);
+		acquired(d);
+		taskCaptor.getValue().run();
+
+		// THEN
+		verifyAll();
+		verify(scheduler, future);
+		assertThat("Limit from sum of event samples",
+				instructionCapture.getValue().getParameterValue(TEST_CONTROL_ID),
+				is(equalTo("40")));
+	}
+
+	@Test
+	public void staleEventSampleReadsDataSource() {
+		// GIVEN
+		demandBalancer.setConsumptionSourceIds(singleton(TEST_METER_SOURCE_ID));
+		demandBalancer.setEventSampleMaxAgeSeconds(30);
+		demandBalancer.setPowerMaximumWatts(1000);
+
+		Capture<Runnable> taskCaptor = scheduleEvaluations();
+
+		expect(pcmControl.getCurrentControlInfo(TEST_CONTROL_ID))
+				.andReturn(limitInfo(TEST_CONTROL_ID, 25)).times(2);
+		expect(consumptionDataSource.readCurrentDatum()).andAnswer(() -> meterDatum(800));
+		Capture<Instruction> instructionCapture = expectInstruction();
+
+		// WHEN
+		replayAll();
+		acquired(meterDatum(250));
+		taskCaptor.getValue().run();
+		clock.advance(30_001L);
+		demandBalancer.evaluateBalance();
+
+		// THEN
+		verifyAll();
+		assertThat("Limit from data source after event sample too old",
+				instructionCapture.getValue().getParameterValue(TEST_CONTROL_ID),
+				is(equalTo("80")));
+	}
+
+	@Test
+	public void singleControlUsesPowerControl() {
+		// GIVEN
+		NodeControlProvider otherControl = EasyMock.createMock(NodeControlProvider.class);
+		demandBalancer.setPowerControls(singletonList(otherControl));
+		demandBalancer.setPowerMaximumWatts(1000);
+
+		expect(pcmControl.getCurrentControlInfo(TEST_CONTROL_ID))
+				.andReturn(limitInfo(TEST_CONTROL_ID, 100));
+		expect(consumptionDataSource.readCurrentDatum()).andReturn(meterDatum(500));
+		Capture<Instruction> instructionCapture = expectInstruction();
+
+		// WHEN
+		replayAll();
+		replay(otherControl);
+		demandBalancer.evaluateBalance();
+
+		// THEN
+		verifyAll();
+		verify(otherControl);
+		assertThat("Limit from power control service",
+				instructionCapture.getValue().getParameterValue(TEST_CONTROL_ID),
+				is(equalTo("50")));
+	}
+
+	@Test
+	public void oneStaleEventSampleReadsDataSource() {
+		// GIVEN
+		final String meter2SourceId = TEST_METER_SOURCE_ID + "/2";
+		TaskScheduler scheduler = EasyMock.createMock(TaskScheduler.class);
+		demandBalancer.setTaskScheduler(scheduler);
+		demandBalancer.setConsumptionSourceIds(
+				new LinkedHashSet<>(asList(TEST_METER_SOURCE_ID, meter2SourceId)));
+		demandBalancer.setEventSampleMaxAgeSeconds(30);
+		demandBalancer.setPowerMaximumWatts(1000);
+
+		ScheduledFuture<?> future = EasyMock.createMock(ScheduledFuture.class);
+		expect(scheduler.schedule(EasyMock.anyObject(Runnable.class),
+				EasyMock.anyObject(Instant.class))).andReturn(future);
+		expect(pcmControl.getCurrentControlInfo(TEST_CONTROL_ID))
+				.andReturn(limitInfo(TEST_CONTROL_ID, 40));
+		expect(consumptionDataSource.readCurrentDatum()).andAnswer(() -> meterDatum(800));
+		Capture<Instruction> instructionCapture = expectInstruction();
+
+		// WHEN
+		replayAll();
+		replay(scheduler, future);
+		acquired(meterDatum(250));
+		clock.advance(20_000L);
+		SimpleAcEnergyDatum d = new SimpleAcEnergyDatum(meter2SourceId, clock.instant(),
+				new DatumSamples());
+		d.setWatts(150);
+		acquired(d);
+		clock.advance(15_000L);
+		demandBalancer.evaluateBalance();
+
+		// THEN
+		verifyAll();
+		verify(scheduler, future);
+		assertThat("Limit from data source when one event sample too old",
+				instructionCapture.getValue().getParameterValue(TEST_CONTROL_ID),
+				is(equalTo("80")));
+	}
+
 }
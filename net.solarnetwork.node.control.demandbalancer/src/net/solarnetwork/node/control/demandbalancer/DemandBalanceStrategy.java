@@ -22,12 +22,15 @@
 
 package net.solarnetwork.node.control.demandbalancer;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * API for evaluating current demand balance conditions and producing a desired
  * generation limit.
  * 
  * @author matt
- * @version 2.0
+ * @version 2.1
  */
 public interface DemandBalanceStrategy {
 
@@ -61,4 +64,41 @@ public interface DemandBalanceStrategy {
 	int evaluateBalance(final String powerControlId, final int demandWatts, final int generationWatts,
 			final int generationCapacityWatts, final int currentLimit);
 
+	/**
+	 * Evaluate current demand and generation conditions across a set of
+	 * generation controls, and produce per-control adjustments if necessary.
+	 *
+	 * <p>
+	 * This default implementation calls
+	 * {@link #evaluateBalance(String, int, int, int, int)} for each control in
+	 * {@code currentLimits}. Strategies can override this to distribute the
+	 * demand across the controls differently.
+	 * </p>
+	 *
+	 * @param currentLimits
+	 *        a mapping of generation control IDs to their current generation
+	 *        limit as an integer percentage, or <b>-1</b> if unknown
+	 * @param demandWatts
+	 *        the current demand, in watts, or <b>-1</b> if unknown
+	 * @param generationWatts
+	 *        the current generation, in watts, or <b>-1</b> if unknown
+	 * @param generationCapacityWatts
+	 *        the overall generation capacity of all controls, in watts, or
+	 *        <b>-1</b> if unknown
+	 * @return a mapping of generation control IDs to their desired generation
+	 *         limit, as an integer percentage, or <b>-1</b> for no change;
+	 *         controls without a mapping are not changed
+	 * @since 2.1
+	 */
+	default Map<String, Integer> evaluateBalance(final Map<String, Integer> currentLimits,
+			final int demandWatts, final int generationWatts, final int generationCapacityWatts) {
+		final Map<String, Integer> result = new LinkedHashMap<>(currentLimits.size());
+		for ( Map.Entry<String, Integer> e : currentLimits.entrySet() ) {
+			final int currentLimit = (e.getValue() != null ? e.getValue().intValue() : -1);
+			result.put(e.getKey(), evaluateBalance(e.getKey(), demandWatts, generationWatts,
+					generationCapacityWatts, currentLimit));
+		}
+		return result;
+	}
+
 }
@@ -24,20 +24,27 @@ package net.solarnetwork.node.control.demandbalancer;
 
 import static net.solarnetwork.service.OptionalService.service;
 import static net.solarnetwork.util.StringUtils.commaDelimitedStringFromCollection;
+import java.time.Clock;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventAdmin;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.MessageSource;
+import org.springframework.scheduling.TaskScheduler;
 import net.solarnetwork.domain.AcPhase;
 import net.solarnetwork.domain.InstructionStatus.InstructionState;
 import net.solarnetwork.domain.NodeControlInfo;
@@ -51,6 +58,7 @@ import net.solarnetwork.node.reactor.InstructionExecutionService;
 import net.solarnetwork.node.reactor.InstructionHandler;
 import net.solarnetwork.node.reactor.InstructionStatus;
 import net.solarnetwork.node.reactor.InstructionUtils;
+import net.solarnetwork.node.service.DatumBus;
 import net.solarnetwork.node.service.DatumDataSource;
 import net.solarnetwork.node.service.MultiDatumDataSource;
 import net.solarnetwork.node.service.NodeControlProvider;
@@ -73,10 +81,29 @@ import net.solarnetwork.util.StringUtils;
  * instructions to a specific control to limit generation to an amount that
  * keeps generation at or below current consumption levels.
  *
+ * <p>
+ * The {@code powerControlId} can be a comma-delimited list of control IDs, in
+ * which case the {@link DemandBalanceStrategy} is asked for a limit for each
+ * control, and each changed limit is sent on its own instruction, as a
+ * control handler only applies the limit for the control it manages.
+ * </p>
+ *
+ * <p>
+ * When {@code consumptionSourceIds} or {@code powerSourceIds} are configured,
+ * the latest power of each matching source is kept from datum
+ * {@link DatumBus.Stage#Acquired} on the {@link DatumBus} and used in place of
+ * reading the associated data sources, as long as every source has a value no
+ * older than {@code eventSampleMaxAgeSeconds}. Each such datum also triggers
+ * an evaluation of the balance, at most once per {@code eventDebounceMs}, so
+ * that a burst of events from several sources results in one evaluation. The
+ * evaluation is always run on the {@code taskScheduler}, never on the thread
+ * publishing the datum.
+ * </p>
+ *
  * @author matt
- * @version 2.1
+ * @version 2.2
  */
-public class DemandBalancer implements SettingSpecifierProvider {
+public class DemandBalancer implements SettingSpecifierProvider, DatumBus.Subscriber {
 
 	private static final String ERROR_NO_DATA_RETURNED = "No data returned.";
 
@@ -116,8 +143,25 @@ public class DemandBalancer implements SettingSpecifierProvider {
 	/** The {@code powerMaximumWatts} property default value. */
 	public static final int DEFAULT_POWER_MAXIMUM_WATTS = 1000;
 
+	/**
+	 * The {@code eventSampleMaxAgeSeconds} property default value.
+	 *
+	 * @since 2.2
+	 */
+	public static final int DEFAULT_EVENT_SAMPLE_MAX_AGE_SECONDS = 60;
+
+	/**
+	 * The {@code eventDebounceMs} property default value.
+	 *
+	 * @since 2.2
+	 */
+	public static final long DEFAULT_EVENT_DEBOUNCE_MS = 500L;
+
 	private final OptionalService<InstructionExecutionService> instructionExecutionService;
+	private final Clock clock;
 	private String powerControlId;
+	private Set<String> powerControlIds = Collections.emptySet();
+	private Collection<NodeControlProvider> powerControls;
 	private OptionalService<EventAdmin> eventAdmin;
 	private OptionalFilterableService<NodeControlProvider> powerControl;
 	private OptionalFilterableServiceCollection<DatumDataSource> powerDataSource;
@@ -129,6 +173,17 @@ public class DemandBalancer implements SettingSpecifierProvider {
 	private MessageSource messageSource;
 	private boolean collectPower = DEFAULT_COLLECT_POWER;
 	private Set<AcPhase> acEnergyPhaseFilter;
+	private Set<String> consumptionSourceIds;
+	private Set<String> powerSourceIds;
+	private int eventSampleMaxAgeSeconds = DEFAULT_EVENT_SAMPLE_MAX_AGE_SECONDS;
+	private long eventDebounceMs = DEFAULT_EVENT_DEBOUNCE_MS;
+	private TaskScheduler taskScheduler;
+
+	private final ConcurrentMap<String, EventSample> consumptionSamples = new ConcurrentHashMap<>(8,
+			0.9f, 2);
+	private final ConcurrentMap<String, EventSample> powerSamples = new ConcurrentHashMap<>(8, 0.9f,
+			2);
+	private final AtomicBoolean evaluationPending = new AtomicBoolean();
 
 	final Map<String, Object> stats = new LinkedHashMap<>(8);
 
@@ -143,30 +198,176 @@ public class DemandBalancer implements SettingSpecifierProvider {
 	 *         if any argument is {@literal null}
 	 */
 	public DemandBalancer(OptionalService<InstructionExecutionService> instructionExecutionService) {
+		this(instructionExecutionService, Clock.systemUTC());
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param instructionExecutionService
+	 *        the service to set
+	 * @param clock
+	 *        the clock to use
+	 * @throws IllegalArgumentException
+	 *         if any argument is {@literal null}
+	 * @since 2.2
+	 */
+	public DemandBalancer(OptionalService<InstructionExecutionService> instructionExecutionService,
+			Clock clock) {
 		super();
 		if ( instructionExecutionService == null ) {
 			throw new IllegalArgumentException(
 					"The instructionExecutionService argument must not be null.");
 		}
+		if ( clock == null ) {
+			throw new IllegalArgumentException("The clock argument must not be null.");
+		}
 		this.instructionExecutionService = instructionExecutionService;
+		this.clock = clock;
+	}
+
+	/**
+	 * The latest power value of a source, from an event.
+	 */
+	private static final class EventSample {
+
+		private final String sourceId;
+		private final int watts;
+		private final long received;
+
+		private EventSample(String sourceId, int watts, long received) {
+			super();
+			this.sourceId = sourceId;
+			this.watts = watts;
+			this.received = received;
+		}
+
 	}
 
 	/**
 	 * Evaluate current demand (consumption) and generation (power) and attempt
 	 * to maximize power generation up to the current demand level.
 	 */
-	public void evaluateBalance() {
+	public synchronized void evaluateBalance() {
 		final Integer demandWatts = collectDemandWatts();
 		final Integer generationWatts = collectGenerationWatts();
-		final Integer generationLimitPercent = readCurrentGenerationLimitPercent();
-		log.debug("Current demand: {}, generation: {}, capacity: {}, limit: {}",
+		final Map<String, Integer> generationLimits = readCurrentGenerationLimitPercents();
+		log.debug("Current demand: {}, generation: {}, capacity: {}, limits: {}",
 				(demandWatts == null ? "N/A" : demandWatts.toString()),
 				(generationWatts == null ? "N/A" : generationWatts.toString()), powerMaximumWatts,
-				(generationLimitPercent == null ? "N/A" : generationLimitPercent + "%"));
-		executeDemandBalanceStrategy(demandWatts, generationWatts, generationLimitPercent);
+				generationLimits);
+		executeDemandBalanceStrategy(demandWatts, generationWatts, generationLimits);
 		postStatisticsEvent();
 	}
 
+	@Override
+	public void datumPublished(DatumBus.Stage stage, NodeDatum datum) {
+		if ( stage != DatumBus.Stage.Acquired || datum == null ) {
+			return;
+		}
+		final String sourceId = datum.getSourceId();
+		if ( sourceId == null ) {
+			return;
+		}
+		final Set<String> consumptionIds = consumptionSourceIds;
+		final Set<String> powerIds = powerSourceIds;
+		final boolean consumption = (consumptionIds != null && consumptionIds.contains(sourceId));
+		final boolean power = (powerIds != null && powerIds.contains(sourceId));
+		if ( !(consumption || power) ) {
+			return;
+		}
+		final EnergyDatum eDatum = asEnergyDatum(datum);
+		if ( !acPhaseMatches(eDatum) ) {
+			return;
+		}
+		final Integer watts = eDatum.getWatts();
+		if ( watts == null ) {
+			return;
+		}
+		final EventSample sample = new EventSample(sourceId, watts, clock.millis());
+		final String key = sampleKey(eDatum);
+		if ( consumption ) {
+			consumptionSamples.put(key, sample);
+		}
+		if ( power ) {
+			powerSamples.put(key, sample);
+		}
+		requestEvaluation();
+	}
+
+	private static String sampleKey(EnergyDatum datum) {
+		if ( datum instanceof AcEnergyDatum ) {
+			AcPhase phase = ((AcEnergyDatum) datum).getAcPhase();
+			if ( phase != null ) {
+				return datum.getSourceId() + '/' + phase.name();
+			}
+		}
+		return datum.getSourceId();
+	}
+
+	private void requestEvaluation() {
+		if ( !evaluationPending.compareAndSet(false, true) ) {
+			// evaluation already scheduled, which will use this sample
+			return;
+		}
+		final Runnable task = () -> {
+			evaluationPending.set(false);
+			try {
+				evaluateBalance();
+			} catch ( RuntimeException e ) {
+				log.error("Error evaluating demand balance: {}", e.toString(), e);
+			}
+		};
+		final TaskScheduler scheduler = this.taskScheduler;
+		final long debounce = Math.max(0L, this.eventDebounceMs);
+		try {
+			if ( scheduler != null ) {
+				scheduler.schedule(task, clock.instant().plusMillis(debounce));
+			} else {
+				CompletableFuture.runAsync(task);
+			}
+		} catch ( RuntimeException e ) {
+			evaluationPending.set(false);
+			log.warn("Unable to schedule demand balance evaluation: {}", e.toString());
+		}
+	}
+
+	/**
+	 * Get the total power of the event samples, if all are current.
+	 *
+	 * <p>
+	 * A partial total would understate the actual power, so the event samples
+	 * are only used when every configured source ID has a sample and none of
+	 * the samples are older than {@code eventSampleMaxAgeSeconds}.
+	 * </p>
+	 *
+	 * @param sourceIds
+	 *        the configured source IDs
+	 * @param samples
+	 *        the samples
+	 * @return the total power, or {@literal null} if the samples are not all
+	 *         current
+	 */
+	private Integer eventSampleWatts(Set<String> sourceIds, Map<String, EventSample> samples) {
+		if ( sourceIds == null || sourceIds.isEmpty() || samples.size() < sourceIds.size() ) {
+			return null;
+		}
+		final long minReceived = clock.millis() - eventSampleMaxAgeSeconds * 1000L;
+		final Set<String> found = new HashSet<>(sourceIds.size());
+		int total = 0;
+		for ( EventSample sample : samples.values() ) {
+			if ( !sourceIds.contains(sample.sourceId) ) {
+				continue;
+			}
+			if ( sample.received < minReceived ) {
+				return null;
+			}
+			total += sample.watts;
+			found.add(sample.sourceId);
+		}
+		return (found.size() == sourceIds.size() ? total : null);
+	}
+
 	/**
 	 * Get a message for an exception. This will try to return the root cause's
 	 * message. If that is not available the name of the root cause's class will
@@ -192,6 +393,12 @@ public class DemandBalancer implements SettingSpecifierProvider {
 	}
 
 	private Integer collectDemandWatts() {
+		final Integer eventWatts = eventSampleWatts(consumptionSourceIds, consumptionSamples);
+		if ( eventWatts != null ) {
+			stats.put(STAT_LAST_CONSUMPTION_COLLECTION_DATE, clock.millis());
+			stats.remove(STAT_LAST_CONSUMPTION_COLLECTION_ERROR);
+			return eventWatts;
+		}
 		log.debug("Collecting current consumption data to inform demand balancer...");
 		Iterable<EnergyDatum> demand = null;
 		try {
@@ -211,7 +418,13 @@ public class DemandBalancer implements SettingSpecifierProvider {
 
 	private Integer collectGenerationWatts() {
 		final Integer generationWatts;
-		if ( collectPower ) {
+		final Integer eventWatts = (collectPower ? eventSampleWatts(powerSourceIds, powerSamples)
+				: null);
+		if ( eventWatts != null ) {
+			stats.put(STAT_LAST_POWER_COLLECTION_DATE, clock.millis());
+			stats.remove(STAT_LAST_POWER_COLLECTION_ERROR);
+			generationWatts = eventWatts;
+		} else if ( collectPower ) {
 			log.debug("Collecting current generation data to inform demand balancer...");
 			Iterable<EnergyDatum> generation = null;
 			try {
@@ -233,11 +446,20 @@ public class DemandBalancer implements SettingSpecifierProvider {
 		return generationWatts;
 	}
 
-	private Integer readCurrentGenerationLimitPercent() {
-		log.debug("Reading current {} value to inform demand balancer...", powerControlId);
+	private Map<String, Integer> readCurrentGenerationLimitPercents() {
+		final Set<String> controlIds = powerControlIds;
+		final Map<String, Integer> result = new LinkedHashMap<>(controlIds.size());
+		for ( String controlId : controlIds ) {
+			result.put(controlId, readCurrentGenerationLimitPercent(controlId));
+		}
+		return result;
+	}
+
+	private Integer readCurrentGenerationLimitPercent(final String controlId) {
+		log.debug("Reading current {} value to inform demand balancer...", controlId);
 		NodeControlInfo generationLimit = null;
 		try {
-			generationLimit = getCurrentControlValue(powerControl, powerControlId);
+			generationLimit = getCurrentControlValue(controlId);
 			if ( generationLimit != null ) {
 				stats.put(STAT_LAST_POWER_CONTROL_COLLECTION_DATE, System.currentTimeMillis());
 				stats.remove(STAT_LAST_POWER_CONTROL_COLLECTION_ERROR);
@@ -245,19 +467,18 @@ public class DemandBalancer implements SettingSpecifierProvider {
 				stats.put(STAT_LAST_POWER_CONTROL_COLLECTION_ERROR, ERROR_NO_DATA_RETURNED);
 			}
 		} catch ( RuntimeException e ) {
-			log.error("Error collecting {} data: {}", powerControlId, e.getMessage());
+			log.error("Error collecting {} data: {}", controlId, e.getMessage());
 			stats.put(STAT_LAST_POWER_CONTROL_COLLECTION_ERROR, messageForException(e));
 		}
 		return percentForLimit(generationLimit);
 	}
 
 	private void executeDemandBalanceStrategy(final Integer demandWatts, final Integer generationWatts,
-			final Integer generationLimitPercent) {
+			final Map<String, Integer> generationLimits) {
 		try {
 			InstructionStatus.InstructionState result = evaluateBalance(
 					(demandWatts == null ? -1 : demandWatts.intValue()),
-					(generationWatts == null ? -1 : generationWatts.intValue()),
-					(generationLimitPercent == null ? -1 : generationLimitPercent.intValue()));
+					(generationWatts == null ? -1 : generationWatts.intValue()), generationLimits);
 			if ( result != null ) {
 				stats.put(STAT_LAST_POWER_CONTROL_MODIFY_DATE, System.currentTimeMillis());
 			}
@@ -281,49 +502,88 @@ public class DemandBalancer implements SettingSpecifierProvider {
 	 *        the current demand, in watts
 	 * @param generationWatts
 	 *        the current generation, in watts
-	 * @param currentLimit
-	 *        the current generation limit, as an integer percentage
-	 * @return the result of adjusting the generation limit, or {@literal null}
-	 *         if no adjustment was made
+	 * @param currentLimits
+	 *        the current generation limits, as integer percentages, for each
+	 *        power control
+	 * @return the result of adjusting the generation limits, or
+	 *         {@literal null} if no adjustment was made
 	 */
 	private InstructionStatus.InstructionState evaluateBalance(final int demandWatts,
-			final int generationWatts, final int currentLimit) {
+			final int generationWatts, final Map<String, Integer> currentLimits) {
 		DemandBalanceStrategy strategy = getDemandBalanceStrategy();
 		if ( strategy == null ) {
 			throw new RuntimeException("No DemandBalanceStrategy configured.");
 		}
-		int desiredLimit = strategy.evaluateBalance(powerControlId, demandWatts, generationWatts,
-				powerMaximumWatts, currentLimit);
-		if ( desiredLimit > 0 && desiredLimit != currentLimit ) {
-			log.info("Demand of {} with generation {} (capacity {}) will be adjusted from {}% to {}%",
-					demandWatts, powerControlId, powerMaximumWatts, currentLimit, desiredLimit);
-			InstructionStatus.InstructionState result = adjustLimit(desiredLimit);
-			log.info("Demand adjumstment instruction result: {}", result);
-			return result;
+		if ( currentLimits.isEmpty() ) {
+			return null;
+		}
+		final Map<String, Integer> limits = new LinkedHashMap<>(currentLimits.size());
+		for ( Map.Entry<String, Integer> e : currentLimits.entrySet() ) {
+			limits.put(e.getKey(), e.getValue() != null ? e.getValue() : -1);
 		}
-		return null;
+		final Map<String, Integer> desiredLimits = strategy.evaluateBalance(limits, demandWatts,
+				generationWatts, powerMaximumWatts);
+		if ( desiredLimits == null || desiredLimits.isEmpty() ) {
+			return null;
+		}
+		final Map<String, String> changes = new LinkedHashMap<>(desiredLimits.size());
+		for ( Map.Entry<String, Integer> e : desiredLimits.entrySet() ) {
+			final Integer currentLimit = limits.get(e.getKey());
+			final int desiredLimit = (e.getValue() != null ? e.getValue().intValue() : -1);
+			if ( currentLimit != null && desiredLimit > 0 && desiredLimit != currentLimit ) {
+				log.info(
+						"Demand of {} with generation {} (capacity {}) will be adjusted from {}% to {}%",
+						demandWatts, e.getKey(), powerMaximumWatts, currentLimit, desiredLimit);
+				changes.put(e.getKey(), String.valueOf(desiredLimit));
+			}
+		}
+		if ( changes.isEmpty() ) {
+			return null;
+		}
+		InstructionStatus.InstructionState result = adjustLimits(changes);
+		log.info("Demand adjumstment instruction result: {}", result);
+		return result;
 	}
 
 	/**
-	 * Adjust the generation limit. If no handlers are available, or no handlers
-	 * acknowledge handling the instruction,
+	 * Adjust the generation limits.
+	 *
+	 * <p>
+	 * One instruction is executed per control, because an instruction is
+	 * handled by at most one handler. If no handlers are available, or no
+	 * handlers acknowledge handling the instruction for any control,
 	 * {@link InstructionStatus.InstructionState#Declined} will be returned.
+	 * </p>
 	 *
-	 * @param desiredLimit
-	 *        the desired limit, as an integer percentage
-	 * @return the result of handling the adjustment instruction, never
+	 * @param desiredLimits
+	 *        the desired limits, as integer percentages, for each power
+	 *        control
+	 * @return {@link InstructionStatus.InstructionState#Completed} if the
+	 *         instructions for all controls completed, otherwise the state of
+	 *         the first instruction that did not complete; never
 	 *         {@literal null}
 	 */
-	private InstructionState adjustLimit(final int desiredLimit) {
+	private InstructionState adjustLimits(final Map<String, String> desiredLimits) {
 		final InstructionExecutionService service = service(instructionExecutionService);
-		InstructionStatus result = null;
-		if ( service != null && powerControlId != null && !powerControlId.isBlank() ) {
+		if ( service == null ) {
+			return InstructionState.Declined;
+		}
+		InstructionState result = InstructionState.Completed;
+		for ( Map.Entry<String, String> e : desiredLimits.entrySet() ) {
 			final Instruction instr = InstructionUtils.createLocalInstruction(
-					InstructionHandler.TOPIC_DEMAND_BALANCE, powerControlId,
-					String.valueOf(desiredLimit));
-			result = service.executeInstruction(instr);
+					InstructionHandler.TOPIC_DEMAND_BALANCE, e.getKey(), e.getValue());
+			final InstructionStatus status = service.executeInstruction(instr);
+			final InstructionState state = (status != null ? status.getInstructionState()
+					: InstructionState.Declined);
+			if ( state != InstructionState.Completed ) {
+				log.warn("Demand adjustment of control {} to {}% not completed: {}", e.getKey(),
+						e.getValue(), state);
+				if ( result == InstructionState.Completed ) {
+					result = state;
+				}
+			}
 		}
-		return (result != null ? result.getInstructionState() : InstructionState.Declined);
+		return result;
 	}
 
 	private void postStatisticsEvent() {
@@ -365,12 +625,8 @@ public class DemandBalancer implements SettingSpecifierProvider {
 		}
 		int total = -1;
 		for ( EnergyDatum datum : datums ) {
-			if ( datum instanceof AcEnergyDatum && acEnergyPhaseFilter != null
-					&& acEnergyPhaseFilter.size() > 0 ) {
-				AcPhase phase = ((AcEnergyDatum) datum).getAcPhase();
-				if ( !acEnergyPhaseFilter.contains(phase) ) {
-					continue;
-				}
+			if ( !acPhaseMatches(datum) ) {
+				continue;
 			}
 			Integer w = wattsForEnergyDatum(datum);
 			if ( w != null ) {
@@ -384,12 +640,35 @@ public class DemandBalancer implements SettingSpecifierProvider {
 		return (total < 0 ? null : total);
 	}
 
-	private NodeControlInfo getCurrentControlValue(OptionalService<NodeControlProvider> service,
-			String controlId) {
-		if ( service == null ) {
-			return null;
+	private boolean acPhaseMatches(EnergyDatum datum) {
+		final Set<AcPhase> filter = acEnergyPhaseFilter;
+		if ( datum instanceof AcEnergyDatum && filter != null && filter.size() > 0 ) {
+			AcPhase phase = ((AcEnergyDatum) datum).getAcPhase();
+			return filter.contains(phase);
+		}
+		return true;
+	}
+
+	private NodeControlInfo getCurrentControlValue(String controlId) {
+		NodeControlProvider provider = null;
+		final boolean multi = powerControlIds.size() > 1;
+		if ( !multi || controlId.equals(primaryPowerControlId()) ) {
+			// the powerControl service is filtered to the (primary) control ID
+			if ( powerControl != null ) {
+				provider = powerControl.service();
+			}
+		} else {
+			final Collection<NodeControlProvider> providers = powerControls;
+			if ( providers != null ) {
+				for ( NodeControlProvider p : providers ) {
+					List<String> ids = p.getAvailableControlIds();
+					if ( ids != null && ids.contains(controlId) ) {
+						provider = p;
+						break;
+					}
+				}
+			}
 		}
-		NodeControlProvider provider = service.service();
 		if ( provider == null ) {
 			return null;
 		}
@@ -475,11 +754,17 @@ public class DemandBalancer implements SettingSpecifierProvider {
 				"consumptionDataSource.propertyFilters['groupUid']", ""));
 		results.add(new BasicTextFieldSettingSpecifier("acEnergyPhaseFilter",
 				commaDelimitedStringFromCollection(null)));
+		results.add(new BasicTextFieldSettingSpecifier("consumptionSourceIds", ""));
 		results.add(new BasicToggleSettingSpecifier("collectPower", DEFAULT_COLLECT_POWER));
 		results.add(new BasicTextFieldSettingSpecifier("powerDataSource.propertyFilters['uid']", null,
 				false, "(objectClass=net.solarnetwork.node.service.DatumDataSource)"));
 		results.add(
 				new BasicTextFieldSettingSpecifier("powerDataSource.propertyFilters['groupUid']", ""));
+		results.add(new BasicTextFieldSettingSpecifier("powerSourceIds", ""));
+		results.add(new BasicTextFieldSettingSpecifier("eventSampleMaxAgeSeconds",
+				String.valueOf(DEFAULT_EVENT_SAMPLE_MAX_AGE_SECONDS)));
+		results.add(new BasicTextFieldSettingSpecifier("eventDebounceMs",
+				String.valueOf(DEFAULT_EVENT_DEBOUNCE_MS)));
 		results.add(new BasicTextFieldSettingSpecifier("powerControlId", null));
 		results.add(new BasicTextFieldSettingSpecifier("powerMaximumWatts",
 				String.valueOf(DEFAULT_POWER_MAXIMUM_WATTS)));
@@ -519,17 +804,70 @@ public class DemandBalancer implements SettingSpecifierProvider {
 	 * {@link InstructionHandler#TOPIC_DEMAND_BALANCE} instruction to match
 	 * generation levels to consumption levels.
 	 *
+	 * <p>
+	 * Since version 2.2 this can be a comma-delimited list of control IDs, to
+	 * balance generation across several controls. The current value of each
+	 * control is then read from the matching {@code powerControls} provider.
+	 * </p>
+	 *
 	 * @param powerControlId
 	 *        the power control ID
 	 */
 	public void setPowerControlId(String powerControlId) {
 		this.powerControlId = powerControlId;
+		Set<String> ids = StringUtils.commaDelimitedStringToSet(powerControlId);
+		this.powerControlIds = (ids != null ? ids : Collections.emptySet());
 		if ( this.powerControl != null ) {
 			// automatically enforce filter
-			this.powerControl.setPropertyFilter("availableControlIds", this.powerControlId);
+			this.powerControl.setPropertyFilter("availableControlIds", primaryPowerControlId());
 		}
 	}
 
+	private String primaryPowerControlId() {
+		final Set<String> ids = powerControlIds;
+		return (ids.size() > 1 ? ids.iterator().next() : powerControlId);
+	}
+
+	/**
+	 * Get the power control IDs.
+	 *
+	 * @return the set of control IDs parsed from {@code powerControlId}, never
+	 *         {@literal null}
+	 * @since 2.2
+	 */
+	public Set<String> getPowerControlIds() {
+		return powerControlIds;
+	}
+
+	/**
+	 * Get the power control providers.
+	 *
+	 * @return the providers
+	 * @since 2.2
+	 */
+	public Collection<NodeControlProvider> getPowerControls() {
+		return powerControls;
+	}
+
+	/**
+	 * Set the collection of {@link NodeControlProvider} to find the current
+	 * value of each configured power control from.
+	 *
+	 * <p>
+	 * When more than one control ID is configured on {@code powerControlId},
+	 * the current value of each control is read from the first provider in
+	 * this collection that includes the control ID in its available control
+	 * IDs.
+	 * </p>
+	 *
+	 * @param powerControls
+	 *        the providers to set
+	 * @since 2.2
+	 */
+	public void setPowerControls(Collection<NodeControlProvider> powerControls) {
+		this.powerControls = powerControls;
+	}
+
 	/**
 	 * Get the power control.
 	 *
@@ -556,7 +894,7 @@ public class DemandBalancer implements SettingSpecifierProvider {
 	 *        the power control
 	 */
 	public void setPowerControl(OptionalFilterableService<NodeControlProvider> powerControl) {
-		powerControl.setPropertyFilter("availableControlIds", this.powerControlId);
+		powerControl.setPropertyFilter("availableControlIds", primaryPowerControlId());
 		this.powerControl = powerControl;
 
 	}
@@ -747,6 +1085,8 @@ public class DemandBalancer implements SettingSpecifierProvider {
 	 */
 	public void setAcEnergyPhaseFilter(Set<AcPhase> acEnergyPhaseFilter) {
 		this.acEnergyPhaseFilter = acEnergyPhaseFilter;
+		consumptionSamples.clear();
+		powerSamples.clear();
 	}
 
 	/**
@@ -785,4 +1125,144 @@ public class DemandBalancer implements SettingSpecifierProvider {
 		acEnergyPhaseFilter = EnumSet.copyOf(result);
 	}
 
+	/**
+	 * Get the consumption event source IDs.
+	 *
+	 * @return the source IDs of datum acquired events to take consumption
+	 *         samples from
+	 * @since 2.2
+	 */
+	public Set<String> getConsumptionSourceIds() {
+		return consumptionSourceIds;
+	}
+
+	/**
+	 * Set the consumption event source IDs.
+	 *
+	 * <p>
+	 * When configured, the latest power of each source is kept from datum
+	 * acquired events and used in place of reading the
+	 * {@code consumptionDataSource} services, and each event triggers an
+	 * evaluation of the balance.
+	 * </p>
+	 *
+	 * @param consumptionSourceIds
+	 *        the source IDs to set
+	 * @since 2.2
+	 */
+	public void setConsumptionSourceIds(Set<String> consumptionSourceIds) {
+		this.consumptionSourceIds = consumptionSourceIds;
+		consumptionSamples.clear();
+	}
+
+	/**
+	 * Get the power event source IDs.
+	 *
+	 * @return the source IDs of datum acquired events to take generation
+	 *         samples from
+	 * @since 2.2
+	 */
+	public Set<String> getPowerSourceIds() {
+		return powerSourceIds;
+	}
+
+	/**
+	 * Set the power event source IDs.
+	 *
+	 * <p>
+	 * When configured, and {@code collectPower} is enabled, the latest power
+	 * of each source is kept from datum acquired events and used in place of
+	 * reading the {@code powerDataSource} services, and each event triggers an
+	 * evaluation of the balance.
+	 * </p>
+	 *
+	 * @param powerSourceIds
+	 *        the source IDs to set
+	 * @since 2.2
+	 */
+	public void setPowerSourceIds(Set<String> powerSourceIds) {
+		this.powerSourceIds = powerSourceIds;
+		powerSamples.clear();
+	}
+
+	/**
+	 * Get the event sample maximum age.
+	 *
+	 * @return the maximum number of seconds an event sample is used for;
+	 *         defaults to {@link #DEFAULT_EVENT_SAMPLE_MAX_AGE_SECONDS}
+	 * @since 2.2
+	 */
+	public int getEventSampleMaxAgeSeconds() {
+		return eventSampleMaxAgeSeconds;
+	}
+
+	/**
+	 * Set the event sample maximum age.
+	 *
+	 * <p>
+	 * Once any event sample is older than this, or if any configured source ID
+	 * has no sample, the associated data sources are read instead.
+	 * </p>
+	 *
+	 * @param eventSampleMaxAgeSeconds
+	 *        the maximum number of seconds an event sample is used for
+	 * @since 2.2
+	 */
+	public void setEventSampleMaxAgeSeconds(int eventSampleMaxAgeSeconds) {
+		this.eventSampleMaxAgeSeconds = eventSampleMaxAgeSeconds;
+	}
+
+	/**
+	 * Get the event debounce time.
+	 *
+	 * @return the number of milliseconds to wait after an event sample before
+	 *         evaluating the balance; defaults to
+	 *         {@link #DEFAULT_EVENT_DEBOUNCE_MS}
+	 * @since 2.2
+	 */
+	public long getEventDebounceMs() {
+		return eventDebounceMs;
+	}
+
+	/**
+	 * Set the event debounce time.
+	 *
+	 * <p>
+	 * Event samples that arrive while an evaluation is pending are included in
+	 * that evaluation. Set to {@literal 0} to evaluate as soon as possible
+	 * after every event sample.
+	 * </p>
+	 *
+	 * @param eventDebounceMs
+	 *        the number of milliseconds to wait after an event sample before
+	 *        evaluating the balance
+	 * @since 2.2
+	 */
+	public void setEventDebounceMs(long eventDebounceMs) {
+		this.eventDebounceMs = eventDebounceMs;
+	}
+
+	/**
+	 * Get the task scheduler.
+	 *
+	 * @return the scheduler
+	 * @since 2.2
+	 */
+	public TaskScheduler getTaskScheduler() {
+		return taskScheduler;
+	}
+
+	/**
+	 * Set the task scheduler.
+	 *
+	 * @param taskScheduler
+	 *        the scheduler to use for evaluations triggered by events; if
+	 *        {@literal null} then the common fork-join pool is used, without
+	 *        debouncing
+	 * @since 2.2
+	 */
+	public void setTaskScheduler(TaskScheduler taskScheduler) {
+		this.taskScheduler = taskScheduler;
+	}
+
 }
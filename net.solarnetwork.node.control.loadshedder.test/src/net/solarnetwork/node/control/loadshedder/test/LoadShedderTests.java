@@ -0,0 +1,283 @@
+/* ==================================================================
+ * LoadShedderTests.java - 19/10/2026 4:21:52 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.control.loadshedder.test;
+
+import static org.easymock.EasyMock.anyLong;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.expect;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.easymock.Capture;
+import org.easymock.CaptureType;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import net.solarnetwork.domain.datum.DatumSamples;
+import net.solarnetwork.node.control.loadshedder.LoadShedAction;
+import net.solarnetwork.node.control.loadshedder.LoadShedder;
+import net.solarnetwork.node.control.loadshedder.LoadShedderStrategy;
+import net.solarnetwork.node.domain.datum.EnergyDatum;
+import net.solarnetwork.node.domain.datum.SimpleEnergyDatum;
+import net.solarnetwork.node.reactor.InstructionExecutionService;
+import net.solarnetwork.node.service.DatumBus;
+import net.solarnetwork.node.service.DatumDataSource;
+import net.solarnetwork.service.StaticOptionalService;
+
+/**
+ * Test cases for the {@link LoadShedder} class.
+ *
+ * @author matt
+ * @version 1.0
+ */
+public class LoadShedderTests {
+
+	private static final String TEST_SOURCE_ID = "test.meter";
+
+	private static final class TestClock extends Clock {
+
+		private Instant now;
+
+		private TestClock(Instant now) {
+			super();
+			this.now = now;
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+
+		private void advance(long ms) {
+			now = now.plusMillis(ms);
+		}
+
+	}
+
+	private InstructionExecutionService instructionExecutionService;
+	private LoadShedderStrategy strategy;
+	private DatumDataSource dataSource;
+	private TestClock clock;
+	private LoadShedder service;
+
+	@Before
+	public void setup() {
+		instructionExecutionService = EasyMock.createMock(InstructionExecutionService.class);
+		strategy = EasyMock.createMock(LoadShedderStrategy.class);
+		dataSource = EasyMock.createMock(DatumDataSource.class);
+		clock = new TestClock(Instant.now());
+		service = new LoadShedder(new StaticOptionalService<>(instructionExecutionService), clock);
+		service.setShedStrategy(new StaticOptionalService<>(strategy));
+		service.setConsumptionDataSource(new StaticOptionalService<>(dataSource));
+		service.setConsumptionSourceId(TEST_SOURCE_ID);
+		service.setTaskExecutor(Runnable::run);
+	}
+
+	@After
+	public void teardown() {
+		EasyMock.verify(instructionExecutionService, strategy, dataSource);
+	}
+
+	private void replayAll() {
+		EasyMock.replay(instructionExecutionService, strategy, dataSource);
+	}
+
+	private SimpleEnergyDatum datum(String sourceId, int watts) {
+		SimpleEnergyDatum d = new SimpleEnergyDatum(sourceId, clock.instant(), new DatumSamples());
+		d.setWatts(watts);
+		return d;
+	}
+
+	private void acquired(String sourceId, int watts) {
+		service.datumPublished(DatumBus.Stage.Acquired, datum(sourceId, watts));
+	}
+
+	private Capture<Collection<EnergyDatum>> expectEvaluations(int count) {
+		Capture<Collection<EnergyDatum>> samplesCaptor = Capture.newInstance(CaptureType.ALL);
+		expect(strategy.evaulateRules(anyObject(), anyObject(), anyLong(), capture(samplesCaptor)))
+				.andReturn(Collections.<LoadShedAction> emptyList()).times(count);
+		return samplesCaptor;
+	}
+
+	private static List<Integer> watts(Collection<EnergyDatum> samples) {
+		return samples.stream().map(EnergyDatum::getWatts).collect(Collectors.toList());
+	}
+
+	@Test
+	public void eventSampleEvaluated() {
+		// GIVEN
+		Capture<Collection<EnergyDatum>> samplesCaptor = expectEvaluations(2);
+
+		// WHEN
+		replayAll();
+		acquired(TEST_SOURCE_ID, 1000);
+		clock.advance(1000L);
+		acquired(TEST_SOURCE_ID, 2000);
+
+		// THEN
+		List<Collection<EnergyDatum>> evaluated = samplesCaptor.getValues();
+		assertThat("Rules evaluated for each sample", evaluated, hasSize(2));
+		assertThat("First evaluation samples", watts(evaluated.get(0)), contains(1000));
+		assertThat("Second evaluation samples ordered most recent first",
+				watts(evaluated.get(1)), contains(2000, 1000));
+	}
+
+	@Test
+	public void eventSampleEvaluationHandedOff() {
+		// GIVEN
+		List<Runnable> tasks = new ArrayList<>();
+		service.setTaskExecutor(tasks::add);
+		service.setEventEvaluationIntervalMs(0L);
+		Capture<Collection<EnergyDatum>> samplesCaptor = expectEvaluations(1);
+
+		// WHEN
+		replayAll();
+		acquired(TEST_SOURCE_ID, 1000);
+		clock.advance(100L);
+		acquired(TEST_SOURCE_ID, 2000);
+
+		// THEN
+		assertThat("Rules not evaluated on publishing thread", samplesCaptor.getValues(),
+				hasSize(0));
+		assertThat("One evaluation pending", tasks, hasSize(1));
+
+		tasks.get(0).run();
+		List<Collection<EnergyDatum>> evaluated = samplesCaptor.getValues();
+		assertThat("Pending evaluation ran once", evaluated, hasSize(1));
+		assertThat("Pending evaluation used latest samples", watts(evaluated.get(0)),
+				contains(2000, 1000));
+	}
+
+	@Test
+	public void eventSampleOtherSourceIgnored() {
+		// WHEN
+		replayAll();
+		acquired("not.the.meter", 1000);
+	}
+
+	@Test
+	public void eventSampleRateLimited() {
+		// GIVEN
+		service.setEventEvaluationIntervalMs(500L);
+		Capture<Collection<EnergyDatum>> samplesCaptor = expectEvaluations(2);
+
+		// WHEN
+		replayAll();
+		acquired(TEST_SOURCE_ID, 1000);
+		clock.advance(100L);
+		acquired(TEST_SOURCE_ID, 2000);
+		clock.advance(400L);
+		acquired(TEST_SOURCE_ID, 3000);
+
+		// THEN
+		List<Collection<EnergyDatum>> evaluated = samplesCaptor.getValues();
+		assertThat("Rules not evaluated within interval", evaluated, hasSize(2));
+		assertThat("Rate limited sample still kept", watts(evaluated.get(1)),
+				contains(3000, 2000, 1000));
+	}
+
+	@Test
+	public void eventSampleHysteresis() {
+		// GIVEN
+		service.setEventEvaluationIntervalMs(0L);
+		service.setEventHysteresisWatts(100);
+		Capture<Collection<EnergyDatum>> samplesCaptor = expectEvaluations(2);
+
+		// WHEN
+		replayAll();
+		acquired(TEST_SOURCE_ID, 1000);
+		clock.advance(100L);
+		acquired(TEST_SOURCE_ID, 1050);
+		clock.advance(100L);
+		acquired(TEST_SOURCE_ID, 1099);
+		clock.advance(100L);
+		acquired(TEST_SOURCE_ID, 1100);
+
+		// THEN
+		List<Collection<EnergyDatum>> evaluated = samplesCaptor.getValues();
+		assertThat("Rules not evaluated for changes within hysteresis", evaluated, hasSize(2));
+		assertThat("Evaluated when change reached hysteresis", watts(evaluated.get(1)).get(0),
+				is(equalTo(1100)));
+	}
+
+	@Test
+	public void watchdogUsesEventSamples() {
+		// GIVEN
+		Capture<Collection<EnergyDatum>> samplesCaptor = expectEvaluations(2);
+
+		// WHEN
+		replayAll();
+		acquired(TEST_SOURCE_ID, 1000);
+		clock.advance(10_000L);
+		service.executeJobService();
+
+		// THEN
+		List<Collection<EnergyDatum>> evaluated = samplesCaptor.getValues();
+		assertThat("Rules evaluated by job", evaluated, hasSize(2));
+		assertThat("Job evaluated event samples without reading data source",
+				watts(evaluated.get(1)), contains(1000));
+	}
+
+	@Test
+	public void watchdogReadsDataSourceAfterEventTimeout() {
+		// GIVEN
+		service.setEventTimeoutSeconds(30);
+		Capture<Collection<EnergyDatum>> samplesCaptor = expectEvaluations(2);
+		expect(dataSource.readCurrentDatum()).andAnswer(() -> datum(TEST_SOURCE_ID, 2000));
+
+		// WHEN
+		replayAll();
+		acquired(TEST_SOURCE_ID, 1000);
+		clock.advance(30_000L);
+		service.executeJobService();
+
+		// THEN
+		List<Collection<EnergyDatum>> evaluated = samplesCaptor.getValues();
+		assertThat("Rules evaluated by job", evaluated, hasSize(2));
+		assertThat("Job read data source", watts(evaluated.get(1)), contains(2000, 1000));
+	}
+
+}
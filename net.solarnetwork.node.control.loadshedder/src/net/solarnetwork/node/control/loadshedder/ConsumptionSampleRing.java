@@ -0,0 +1,140 @@
+/* ==================================================================
+ * ConsumptionSampleRing.java - 19/10/2026 3:48:25 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.control.loadshedder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import net.solarnetwork.domain.datum.DatumSamples;
+import net.solarnetwork.node.domain.datum.EnergyDatum;
+import net.solarnetwork.node.domain.datum.SimpleEnergyDatum;
+
+/**
+ * A fixed-size ring of power samples, stored as primitive values.
+ *
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 4.1
+ */
+final class ConsumptionSampleRing {
+
+	private final long[] dates;
+	private final int[] watts;
+	private String sourceId;
+	private int head;
+	private int size;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity
+	 *        the maximum number of samples to hold; will be forced to at least
+	 *        {@literal 1}
+	 */
+	ConsumptionSampleRing(int capacity) {
+		super();
+		final int cap = Math.max(1, capacity);
+		this.dates = new long[cap];
+		this.watts = new int[cap];
+		this.head = cap - 1;
+	}
+
+	/**
+	 * Add a sample, replacing the oldest sample if the ring is full.
+	 *
+	 * @param sourceId
+	 *        the sample source ID
+	 * @param date
+	 *        the sample date, as an epoch millisecond value
+	 * @param watts
+	 *        the sample power
+	 * @return {@literal true} if the sample was added, {@literal false} if it
+	 *         has the same date as the latest sample
+	 */
+	boolean add(String sourceId, long date, int watts) {
+		if ( size > 0 && dates[head] == date ) {
+			return false;
+		}
+		head = (head + 1) % dates.length;
+		dates[head] = date;
+		this.watts[head] = watts;
+		this.sourceId = sourceId;
+		if ( size < dates.length ) {
+			size++;
+		}
+		return true;
+	}
+
+	/**
+	 * Get the number of samples.
+	 *
+	 * @return the number of samples
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Get the latest sample power.
+	 *
+	 * @return the latest power, or {@literal null} if there are no samples
+	 */
+	Integer latestWatts() {
+		return (size > 0 ? watts[head] : null);
+	}
+
+	/**
+	 * Get the latest sample.
+	 *
+	 * @return the latest sample, or {@literal null} if there are no samples
+	 */
+	EnergyDatum latest() {
+		return (size > 0 ? datum(head) : null);
+	}
+
+	/**
+	 * Get the samples as a list of datum.
+	 *
+	 * @return the samples, ordered from most recent to oldest
+	 */
+	List<EnergyDatum> toList() {
+		final List<EnergyDatum> result = new ArrayList<>(size);
+		for ( int i = 0, idx = head; i < size; i++ ) {
+			result.add(datum(idx));
+			idx = (idx == 0 ? dates.length - 1 : idx - 1);
+		}
+		return result;
+	}
+
+	private EnergyDatum datum(int idx) {
+		SimpleEnergyDatum d = new SimpleEnergyDatum(sourceId, Instant.ofEpochMilli(dates[idx]),
+				new DatumSamples());
+		d.setWatts(watts[idx]);
+		return d;
+	}
+
+}
@@ -25,29 +25,31 @@ package net.solarnetwork.node.control.loadshedder;
 import static java.util.Collections.singletonMap;
 import static net.solarnetwork.node.reactor.InstructionUtils.createLocalInstruction;
 import static net.solarnetwork.service.OptionalService.service;
-import java.util.ArrayDeque;
+import java.time.Clock;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
-import java.util.Deque;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.MessageSource;
 import net.solarnetwork.domain.InstructionStatus.InstructionState;
-import net.solarnetwork.domain.datum.DatumSamples;
+import net.solarnetwork.domain.datum.DatumSamplesType;
 import net.solarnetwork.node.domain.datum.EnergyDatum;
 import net.solarnetwork.node.domain.datum.NodeDatum;
-import net.solarnetwork.node.domain.datum.SimpleEnergyDatum;
 import net.solarnetwork.node.job.JobService;
 import net.solarnetwork.node.reactor.Instruction;
 import net.solarnetwork.node.reactor.InstructionExecutionService;
 import net.solarnetwork.node.reactor.InstructionHandler;
 import net.solarnetwork.node.reactor.InstructionStatus;
+import net.solarnetwork.node.service.DatumBus;
 import net.solarnetwork.node.service.DatumDataSource;
 import net.solarnetwork.service.OptionalService;
 import net.solarnetwork.service.StaticOptionalService;
@@ -65,10 +67,40 @@ import net.solarnetwork.support.PrefixedMessageSource;
  * {@link InstructionHandler#TOPIC_SHED_LOAD} instructions to a specific control
  * to limit power draw to below a maximum threshold.
  *
+ * <p>
+ * When a {@code consumptionSourceId} is configured, power samples are taken
+ * from datum {@link DatumBus.Stage#Acquired} on the {@link DatumBus} for that
+ * source and the rules are evaluated as each new sample arrives, limited to at most once
+ * per {@code eventEvaluationIntervalMs} and only when the power has changed by
+ * at least {@code eventHysteresisWatts} since the last evaluation. The
+ * evaluation is handed off to the configured {@code taskExecutor}, with at most
+ * one evaluation pending at a time, so the datum bus is not blocked by any
+ * resulting control changes. The
+ * scheduled job then acts as a watchdog: it evaluates the rules against the
+ * existing samples, and only reads from the consumption data source when no
+ * event sample has arrived within {@code eventTimeoutSeconds}.
+ * </p>
+ *
  * @author matt
- * @version 2.1
+ * @version 2.2
  */
-public class LoadShedder implements SettingSpecifierProvider, JobService {
+public class LoadShedder implements SettingSpecifierProvider, JobService, DatumBus.Subscriber {
+
+	/**
+	 * The {@code eventEvaluationIntervalMs} property default value.
+	 *
+	 * @since 2.2
+	 */
+	public static final long DEFAULT_EVENT_EVALUATION_INTERVAL_MS = 250L;
+
+	/**
+	 * The {@code eventTimeoutSeconds} property default value.
+	 *
+	 * @since 2.2
+	 */
+	public static final int DEFAULT_EVENT_TIMEOUT_SECONDS = 60;
+
+	private final Clock clock;
 
 	private final OptionalService<InstructionExecutionService> instructionExecutionService;
 	private OptionalService<LoadShedderStrategy> shedStrategy = new StaticOptionalService<LoadShedderStrategy>(
@@ -77,11 +109,20 @@ public class LoadShedder implements SettingSpecifierProvider, JobService {
 	private List<LoadShedControlConfig> configs = new ArrayList<LoadShedControlConfig>(4);
 
 	private int consumptionSampleLimit = 10;
-	private final Deque<EnergyDatum> consumptionSamples = new ArrayDeque<EnergyDatum>(10);
+	private ConsumptionSampleRing consumptionSamples = new ConsumptionSampleRing(10);
+	private String consumptionSourceId;
+	private long eventEvaluationIntervalMs = DEFAULT_EVENT_EVALUATION_INTERVAL_MS;
+	private int eventHysteresisWatts;
+	private int eventTimeoutSeconds = DEFAULT_EVENT_TIMEOUT_SECONDS;
+	private long lastEventSampleTime;
+	private long lastEvaluationTime;
+	private Integer lastEvaluationWatts;
 	private final ConcurrentMap<String, LoadShedControlInfo> switchInfos = new ConcurrentHashMap<String, LoadShedControlInfo>(
 			4);
 	private Date lastEvaluationDate;
 	private MessageSource messageSource;
+	private Executor taskExecutor;
+	private final AtomicBoolean evaluationPending = new AtomicBoolean(false);
 
 	private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -94,30 +135,125 @@ public class LoadShedder implements SettingSpecifierProvider, JobService {
 	 *         if any argument is {@literal null}
 	 */
 	public LoadShedder(OptionalService<InstructionExecutionService> instructionExecutionService) {
+		this(instructionExecutionService, Clock.systemUTC());
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param instructionExecutionService
+	 *        the execution service
+	 * @param clock
+	 *        the clock to use
+	 * @throws IllegalArgumentException
+	 *         if any argument is {@literal null}
+	 * @since 2.2
+	 */
+	public LoadShedder(OptionalService<InstructionExecutionService> instructionExecutionService,
+			Clock clock) {
 		super();
 		if ( instructionExecutionService == null ) {
 			throw new IllegalArgumentException(
 					"The instructionExecutionService argument must not be null.");
 		}
+		if ( clock == null ) {
+			throw new IllegalArgumentException("The clock argument must not be null.");
+		}
 		this.instructionExecutionService = instructionExecutionService;
+		this.clock = clock;
 	}
 
 	/**
 	 * Evaluate current demand (consumption) and attempt to shed load as
 	 * necessary.
 	 *
+	 * <p>
+	 * A new sample is read from the consumption data source, unless a
+	 * consumption sample has been received from an event within the configured
+	 * {@code eventTimeoutSeconds}.
+	 * </p>
+	 *
 	 * @return the resulting state
 	 */
 	public synchronized InstructionState evaluatePowerLoad() {
-		final long now = System.currentTimeMillis();
+		final long now = clock.millis();
+		if ( !isEventSampleCurrent(now) ) {
+			addPowerSample(readPowerSample()); // adds to sample buffer
+		}
+		return evaluateRules(now);
+	}
+
+	/**
+	 * Add a new demand (consumption) sample to the sample buffer.
+	 *
+	 * @param datum
+	 *        the sample to add
+	 * @return {@literal true} if the rules should be evaluated, that is they
+	 *         have not been evaluated within the configured
+	 *         {@code eventEvaluationIntervalMs} and the sample power differs
+	 *         from the power at the last evaluation by at least the configured
+	 *         {@code eventHysteresisWatts}
+	 */
+	private synchronized boolean recordPowerSample(NodeDatum datum) {
+		final long now = clock.millis();
+		if ( !addPowerSample(datum) ) {
+			return false;
+		}
+		lastEventSampleTime = now;
+		if ( lastEvaluationTime > 0 && now - lastEvaluationTime < eventEvaluationIntervalMs ) {
+			return false;
+		}
+		final int watts = consumptionSamples.latestWatts();
+		return (lastEvaluationWatts == null
+				|| Math.abs(watts - lastEvaluationWatts.intValue()) >= eventHysteresisWatts);
+	}
+
+	private synchronized InstructionState evaluatePowerSamples() {
+		return evaluateRules(clock.millis());
+	}
+
+	private void requestEvaluation() {
+		if ( !evaluationPending.compareAndSet(false, true) ) {
+			// evaluation already pending, which will use the latest sample
+			return;
+		}
+		final Runnable task = () -> {
+			evaluationPending.set(false);
+			try {
+				evaluatePowerSamples();
+			} catch ( RuntimeException e ) {
+				log.error("Error evaluating load shed rules: {}", e.toString(), e);
+			}
+		};
+		final Executor executor = this.taskExecutor;
+		try {
+			if ( executor != null ) {
+				executor.execute(task);
+			} else {
+				CompletableFuture.runAsync(task);
+			}
+		} catch ( RuntimeException e ) {
+			evaluationPending.set(false);
+			log.warn("Unable to schedule load shed evaluation: {}", e.toString());
+		}
+	}
+
+	private boolean isEventSampleCurrent(long now) {
+		final String sourceId = getConsumptionSourceId();
+		return (sourceId != null && lastEventSampleTime > 0
+				&& now - lastEventSampleTime < eventTimeoutSeconds * 1000L);
+	}
+
+	private InstructionState evaluateRules(final long now) {
 		LoadShedderStrategy strategy = getStrategy();
 		if ( strategy == null ) {
 			log.warn("No LoadShedderStrategy service avaialble");
 			return null;
 		}
 		lastEvaluationDate = new Date(now);
-		addPowerSample(consumptionDataSource, consumptionSamples); // adds to sample buffer
-		Deque<EnergyDatum> samples = consumptionSamples;
+		lastEvaluationTime = now;
+		lastEvaluationWatts = consumptionSamples.latestWatts();
+		List<EnergyDatum> samples = consumptionSamples.toList();
 		Collection<LoadShedAction> actions = strategy.evaulateRules(getConfigs(), switchInfos, now,
 				samples);
 		if ( actions == null || actions.size() < 1 ) {
@@ -135,7 +271,8 @@ public class LoadShedder implements SettingSpecifierProvider, JobService {
 			if ( result != null && result.getInstructionState() == InstructionState.Completed ) {
 				log.info("Switch {} limit released for {}W", action.getControlId(),
 						action.getShedWatts());
-				updateSwitchInfo(action.getControlId(), action, samples.peek());
+				updateSwitchInfo(action.getControlId(), action,
+						samples.isEmpty() ? null : samples.get(0));
 			}
 		}
 		return (result != null ? result.getInstructionState()
@@ -163,6 +300,33 @@ public class LoadShedder implements SettingSpecifierProvider, JobService {
 		evaluatePowerLoad();
 	}
 
+	@Override
+	public void datumPublished(DatumBus.Stage stage, NodeDatum datum) {
+		final String sourceId = getConsumptionSourceId();
+		if ( sourceId == null || stage != DatumBus.Stage.Acquired || datum == null
+				|| !sourceId.equals(datum.getSourceId()) ) {
+			return;
+		}
+		if ( recordPowerSample(datum) ) {
+			requestEvaluation();
+		}
+	}
+
+	/**
+	 * Get the datum bus subscriber.
+	 *
+	 * <p>
+	 * This is provided to support registering this service as a datum bus
+	 * subscriber when run as a job.
+	 * </p>
+	 *
+	 * @return this instance
+	 * @since 2.2
+	 */
+	public DatumBus.Subscriber getDatumBusSubscriber() {
+		return this;
+	}
+
 	/**
 	 * Get the strategy.
 	 *
@@ -177,40 +341,27 @@ public class LoadShedder implements SettingSpecifierProvider, JobService {
 
 	// Datum support
 
-	private EnergyDatum addPowerSample(OptionalService<DatumDataSource> service,
-			Deque<EnergyDatum> samples) {
-		DatumDataSource dataSource = service(service);
+	private NodeDatum readPowerSample() {
+		DatumDataSource dataSource = service(consumptionDataSource);
 		if ( dataSource == null ) {
 			return null;
 		}
-		NodeDatum nodeDatum = dataSource.readCurrentDatum();
-		if ( nodeDatum == null ) {
-			return null;
-		}
-		EnergyDatum datum;
-		if ( nodeDatum instanceof EnergyDatum ) {
-			datum = (EnergyDatum) nodeDatum;
-		} else {
-			// convert to EnergyDatum instance
-			DatumSamples s = new DatumSamples(nodeDatum.asSampleOperations());
-			datum = new SimpleEnergyDatum(nodeDatum.getSourceId(), nodeDatum.getTimestamp(), s);
-		}
-
-		// maintain a buffer of samples so we can monitor the effect of limit operations
-		// buffer ordered from most recent to oldest
+		return dataSource.readCurrentDatum();
+	}
 
-		EnergyDatum previous = samples.peek();
-		if ( previous != null && previous.getTimestamp().equals(datum.getTimestamp()) ) {
-			// sample unchanged
-			return previous;
+	private boolean addPowerSample(NodeDatum datum) {
+		if ( datum == null || datum.getTimestamp() == null ) {
+			return false;
 		}
-
-		if ( samples.size() >= consumptionSampleLimit ) {
-			samples.removeLast();
+		final Integer watts = datum.asSampleOperations().getSampleInteger(
+				DatumSamplesType.Instantaneous, EnergyDatum.WATTS_KEY);
+		if ( watts == null ) {
+			return false;
 		}
-		samples.addFirst(datum);
 
-		return datum;
+		// maintain a buffer of samples so we can monitor the effect of limit operations
+		return consumptionSamples.add(datum.getSourceId(), datum.getTimestamp().toEpochMilli(),
+				watts);
 	}
 
 	// Settings support
@@ -264,6 +415,12 @@ public class LoadShedder implements SettingSpecifierProvider, JobService {
 				false, "(objectClass=net.solarnetwork.node.control.loadshedder.LoadShedderStrategy)"));
 		results.add(new BasicTextFieldSettingSpecifier("consumptionDataSource.propertyFilters['uid']",
 				null, false, "(objectClass=net.solarnetwork.node.service.DatumDataSource)"));
+		results.add(new BasicTextFieldSettingSpecifier("consumptionSourceId", null));
+		results.add(new BasicTextFieldSettingSpecifier("eventEvaluationIntervalMs",
+				String.valueOf(DEFAULT_EVENT_EVALUATION_INTERVAL_MS)));
+		results.add(new BasicTextFieldSettingSpecifier("eventHysteresisWatts", "0"));
+		results.add(new BasicTextFieldSettingSpecifier("eventTimeoutSeconds",
+				String.valueOf(DEFAULT_EVENT_TIMEOUT_SECONDS)));
 
 		LoadShedderStrategy strategy = getStrategy();
 		if ( strategy instanceof SettingSpecifierProvider ) {
@@ -304,7 +461,7 @@ public class LoadShedder implements SettingSpecifierProvider, JobService {
 		}
 		StringBuilder buf = new StringBuilder();
 		buf.append(messageSource.getMessage("info.basic", new Object[] { lastEvaluationDate }, locale));
-		EnergyDatum latest = consumptionSamples.peek();
+		EnergyDatum latest = consumptionSamples.latest();
 		if ( latest != null ) {
 			buf.append(" ").append(messageSource.getMessage("info.reading",
 					new Object[] { latest.getWatts(), latest.getTimestamp() }, locale));
@@ -446,8 +603,112 @@ public class LoadShedder implements SettingSpecifierProvider, JobService {
 	 * @param consumptionSampleLimit
 	 *        the limit to set
 	 */
-	public void setConsumptionSampleLimit(int consumptionSampleLimit) {
+	public synchronized void setConsumptionSampleLimit(int consumptionSampleLimit) {
+		if ( consumptionSampleLimit == this.consumptionSampleLimit ) {
+			return;
+		}
 		this.consumptionSampleLimit = consumptionSampleLimit;
+		this.consumptionSamples = new ConsumptionSampleRing(consumptionSampleLimit);
+	}
+
+	/**
+	 * Get the consumption source ID.
+	 *
+	 * @return the source ID of consumption datum events to sample, or
+	 *         {@literal null} to only read from the consumption data source
+	 * @since 2.2
+	 */
+	public String getConsumptionSourceId() {
+		return consumptionSourceId;
+	}
+
+	/**
+	 * Set the consumption source ID.
+	 *
+	 * <p>
+	 * When configured, consumption samples are taken from datum acquired
+	 * events with this source ID, and the rules evaluated as each sample
+	 * arrives.
+	 * </p>
+	 *
+	 * @param consumptionSourceId
+	 *        the source ID to set
+	 * @since 2.2
+	 */
+	public void setConsumptionSourceId(String consumptionSourceId) {
+		this.consumptionSourceId = (consumptionSourceId != null
+				&& !consumptionSourceId.trim().isEmpty() ? consumptionSourceId.trim() : null);
+	}
+
+	/**
+	 * Get the minimum event evaluation interval.
+	 *
+	 * @return the minimum number of milliseconds between evaluating the rules
+	 *         from event samples; defaults to
+	 *         {@link #DEFAULT_EVENT_EVALUATION_INTERVAL_MS}
+	 * @since 2.2
+	 */
+	public long getEventEvaluationIntervalMs() {
+		return eventEvaluationIntervalMs;
+	}
+
+	/**
+	 * Set the minimum event evaluation interval.
+	 *
+	 * @param eventEvaluationIntervalMs
+	 *        the minimum number of milliseconds between evaluating the rules
+	 *        from event samples
+	 * @since 2.2
+	 */
+	public void setEventEvaluationIntervalMs(long eventEvaluationIntervalMs) {
+		this.eventEvaluationIntervalMs = eventEvaluationIntervalMs;
+	}
+
+	/**
+	 * Get the event hysteresis power.
+	 *
+	 * @return the minimum power change since the last evaluation required to
+	 *         evaluate the rules from an event sample; defaults to {@literal 0}
+	 * @since 2.2
+	 */
+	public int getEventHysteresisWatts() {
+		return eventHysteresisWatts;
+	}
+
+	/**
+	 * Set the event hysteresis power.
+	 *
+	 * @param eventHysteresisWatts
+	 *        the minimum power change since the last evaluation required to
+	 *        evaluate the rules from an event sample
+	 * @since 2.2
+	 */
+	public void setEventHysteresisWatts(int eventHysteresisWatts) {
+		this.eventHysteresisWatts = eventHysteresisWatts;
+	}
+
+	/**
+	 * Get the event timeout.
+	 *
+	 * @return the maximum number of seconds since the last event sample
+	 *         before the consumption data source is read by the job; defaults
+	 *         to {@link #DEFAULT_EVENT_TIMEOUT_SECONDS}
+	 * @since 2.2
+	 */
+	public int getEventTimeoutSeconds() {
+		return eventTimeoutSeconds;
+	}
+
+	/**
+	 * Set the event timeout.
+	 *
+	 * @param eventTimeoutSeconds
+	 *        the maximum number of seconds since the last event sample before
+	 *        the consumption data source is read by the job
+	 * @since 2.2
+	 */
+	public void setEventTimeoutSeconds(int eventTimeoutSeconds) {
+		this.eventTimeoutSeconds = eventTimeoutSeconds;
 	}
 
 	/**
@@ -469,4 +730,30 @@ public class LoadShedder implements SettingSpecifierProvider, JobService {
 		this.shedStrategy = shedStrategy;
 	}
 
+	/**
+	 * Get the task executor.
+	 *
+	 * @return the executor used to evaluate event samples
+	 * @since 2.2
+	 */
+	public Executor getTaskExecutor() {
+		return taskExecutor;
+	}
+
+	/**
+	 * Set the task executor.
+	 *
+	 * <p>
+	 * Rules triggered by event samples are evaluated using this executor. If
+	 * not configured, the common fork-join pool is used.
+	 * </p>
+	 *
+	 * @param taskExecutor
+	 *        the executor to use
+	 * @since 2.2
+	 */
+	public void setTaskExecutor(Executor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
 }
@@ -25,6 +25,11 @@ package net.solarnetwork.node.dao.jdbc.test;
 import static org.assertj.core.api.BDDAssertions.then;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -33,6 +38,7 @@ import java.sql.Timestamp;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.Map;
 import java.util.TimeZone;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -45,6 +51,8 @@ import org.springframework.test.context.transaction.BeforeTransaction;
 import org.springframework.test.context.transaction.TestTransaction;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.FileSystemUtils;
 import net.solarnetwork.node.backup.BackupResource;
 import net.solarnetwork.node.backup.ResourceBackupResource;
 import net.solarnetwork.node.dao.jdbc.DatabaseSetup;
@@ -55,7 +63,7 @@ import net.solarnetwork.node.test.AbstractNodeTransactionalTest;
  * Test cases for the {@link JdbcTableBackupResourceProvider} class.
  *
  * @author matt
- * @version 1.0
+ * @version 1.1
  */
 public class JdbcTableBackupResourceProviderTests extends AbstractNodeTransactionalTest {
 
@@ -185,4 +193,129 @@ public class JdbcTableBackupResourceProviderTests extends AbstractNodeTransactio
 			;
 		// @formatter:on
 	}
+
+	private static String content(BackupResource rsrc) throws IOException {
+		try (InputStream in = rsrc.getInputStream()) {
+			return new String(FileCopyUtils.copyToByteArray(in), StandardCharsets.UTF_8);
+		}
+	}
+
+	private String exportIncremental(Path exportDir, int limit) throws IOException {
+		final JdbcTableBackupResourceProvider provider = new JdbcTableBackupResourceProvider("test",
+				jdbcTemplate, txTemplate,
+				new ConcurrentTaskExecutor(Executors.newSingleThreadExecutor()));
+		provider.setTableNames(new String[] { "SOLARNODE.TEST_CSV_IO" });
+		provider.setIncrementalColumns(Map.of("SOLARNODE.TEST_CSV_IO", "PK"));
+		provider.setExportDirectory(exportDir.toFile());
+		provider.setIncrementalExportLimit(limit);
+		return content(provider.getBackupResources().iterator().next());
+	}
+
+	@Test
+	public void exportTable_incremental() throws Exception {
+		// GIVEN
+		importData("SOLARNODE.TEST_CSV_IO");
+		TestTransaction.flagForCommit();
+		TestTransaction.end();
+
+		final String baseline = new String(
+				FileCopyUtils.copyToByteArray(getClass().getResourceAsStream("csv-data-01.csv")),
+				StandardCharsets.UTF_8);
+		final Path exportDir = Files.createTempDirectory("jdbc-table-export-");
+		try {
+			final String full = exportIncremental(exportDir, 10);
+			jdbcTemplate.update("""
+					INSERT INTO solarnode.test_csv_io (pk, str, inum, dnum, ts)
+					VALUES (6, 'a,"b"', 6, 6.0, TIMESTAMP '2016-10-06 12:01:02.345')""");
+
+			// WHEN
+			final String incremental = exportIncremental(exportDir, 10);
+
+			// THEN
+			// @formatter:off
+			then(full)
+				.as("First export is full export")
+				.isEqualTo(baseline)
+				;
+			then(incremental)
+				.as("Incremental export appends rows added since last export, quoted as needed")
+				.isEqualTo(baseline + "6,\"a,\"\"b\"\"\",6,6.0,2016-10-06T12:01:02.345Z\r\n")
+				;
+			// @formatter:on
+		} finally {
+			jdbcTemplate.update("DELETE FROM solarnode.test_csv_io WHERE pk > 5");
+			FileSystemUtils.deleteRecursively(exportDir.toFile());
+		}
+	}
+
+	@Test
+	public void exportTable_incremental_fullAfterDelete() throws Exception {
+		// GIVEN
+		importData("SOLARNODE.TEST_CSV_IO");
+		TestTransaction.flagForCommit();
+		TestTransaction.end();
+
+		final Path exportDir = Files.createTempDirectory("jdbc-table-export-");
+		try {
+			final String full = exportIncremental(exportDir, 10);
+			jdbcTemplate.update("DELETE FROM solarnode.test_csv_io WHERE pk = 1");
+
+			// WHEN
+			final String afterDelete = exportIncremental(exportDir, 10);
+			final String next = exportIncremental(exportDir, 10);
+
+			// THEN
+			final String row1 = "1,s01,1,1.0,2016-10-01T12:01:02.345Z\r\n";
+			// @formatter:off
+			then(full)
+				.as("First export includes row")
+				.contains(row1)
+				;
+			then(afterDelete)
+				.as("Export after delete is full export without deleted row")
+				.isEqualTo(full.replace(row1, ""))
+				;
+			then(next)
+				.as("Following incremental export without deleted row")
+				.isEqualTo(afterDelete)
+				;
+			// @formatter:on
+		} finally {
+			importData("SOLARNODE.TEST_CSV_IO");
+			FileSystemUtils.deleteRecursively(exportDir.toFile());
+		}
+	}
+
+	@Test
+	public void exportTable_incremental_fullAfterInsertBelowHighWater() throws Exception {
+		// GIVEN
+		importData("SOLARNODE.TEST_CSV_IO");
+		TestTransaction.flagForCommit();
+		TestTransaction.end();
+
+		final Path exportDir = Files.createTempDirectory("jdbc-table-export-");
+		try {
+			final String full = exportIncremental(exportDir, 10);
+			jdbcTemplate.update("""
+					INSERT INTO solarnode.test_csv_io (pk, str, inum, dnum, ts)
+					VALUES (0, 's00', 0, 0.0, TIMESTAMP '2016-09-30 12:01:02.345')""");
+
+			// WHEN
+			final String afterInsert = exportIncremental(exportDir, 10);
+
+			// THEN
+			final String row0 = "0,s00,0,0.0,2016-09-30T12:01:02.345Z\r\n";
+			final int headerEnd = full.indexOf("\r\n") + 2;
+			// @formatter:off
+			then(afterInsert)
+				.as("Export after insert below high-water mark is full export with inserted row")
+				.isEqualTo(full.substring(0, headerEnd) + row0 + full.substring(headerEnd))
+				;
+			// @formatter:on
+		} finally {
+			jdbcTemplate.update("DELETE FROM solarnode.test_csv_io WHERE pk < 1");
+			FileSystemUtils.deleteRecursively(exportDir.toFile());
+		}
+	}
+
 }
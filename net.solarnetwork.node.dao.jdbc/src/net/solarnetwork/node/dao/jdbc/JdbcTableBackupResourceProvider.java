@@ -22,12 +22,25 @@
 
 package net.solarnetwork.node.dao.jdbc;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
+import java.io.Reader;
 import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -35,7 +48,9 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Savepoint;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.sql.Types;
+import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -43,8 +58,8 @@ import java.util.Calendar;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Properties;
 import java.util.TimeZone;
-import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.MessageSource;
@@ -62,7 +77,7 @@ import de.siegmar.fastcsv.reader.CsvReader;
 import de.siegmar.fastcsv.reader.CsvRecord;
 import de.siegmar.fastcsv.reader.CsvRecordHandler;
 import de.siegmar.fastcsv.reader.FieldModifiers;
-import de.siegmar.fastcsv.writer.CsvWriter;
+import net.solarnetwork.node.Constants;
 import net.solarnetwork.node.backup.BackupResource;
 import net.solarnetwork.node.backup.BackupResourceInfo;
 import net.solarnetwork.node.backup.BackupResourceProvider;
@@ -73,19 +88,75 @@ import net.solarnetwork.node.backup.SimpleBackupResourceProviderInfo;
 /**
  * Backup support for JDBC tables.
  *
+ * <p>
+ * Each table is exported as a CSV resource. By default every table is exported
+ * in full each time a backup is made. Tables configured in
+ * {@code incrementalColumns} are instead exported incrementally: a full export
+ * of the table is cached in {@code exportDirectory} along with a
+ * <i>high-water mark</i>, the largest value of the configured column (for
+ * example an auto-generated primary key or a creation date) seen so far. Each
+ * backup then only queries the rows whose column value is greater than the
+ * high-water mark, appends them to the cached export, and provides the cached
+ * export as the backup resource. Thus each backup still contains the complete
+ * table, while the database only has to read the rows added since the
+ * previous backup, and the unchanged start of the export can be de-duplicated
+ * by the backup service.
+ * </p>
+ *
+ * <p>
+ * Incremental exports are only suitable for append-only tables, whose rows are
+ * never updated once added, although old rows may be deleted, for example by
+ * a retention policy. Before each incremental export the number of table rows
+ * up to the high-water mark is compared to the number of rows in the cached
+ * export, and a full export is made instead if they differ, for example when
+ * rows have been deleted or added with a column value not greater than the
+ * high-water mark. Updated rows cannot be detected this way,
+ * so as a safeguard a new full export also replaces the cached export after
+ * every {@code incrementalExportLimit} incremental exports, after a table is
+ * restored, or if the table columns change.
+ * </p>
+ *
  * @author matt
- * @version 2.0
+ * @version 2.1
  * @since 1.17
  */
 public class JdbcTableBackupResourceProvider implements BackupResourceProvider {
 
+	/**
+	 * The {@code exportDirectory} property default value, relative to the
+	 * SolarNode home directory.
+	 *
+	 * @since 2.1
+	 */
+	public static final String DEFAULT_EXPORT_PATH = "var/db-export";
+
+	/**
+	 * The {@code incrementalExportLimit} property default value.
+	 *
+	 * @since 2.1
+	 */
+	public static final int DEFAULT_INCREMENTAL_EXPORT_LIMIT = 10;
+
+	private static final char COMMENT_CHARACTER = '!';
+
+	private static final String STATE_COLUMN = "column";
+	private static final String STATE_HEADER = "header";
+	private static final String STATE_HIGH_WATER = "highWater";
+	private static final String STATE_HIGH_WATER_TYPE = "highWaterType";
+	private static final String STATE_INCREMENTAL_COUNT = "incrementalCount";
+	private static final String STATE_ROW_COUNT = "rowCount";
+
 	private final String key;
 	private final JdbcTemplate jdbcTemplate;
 	private final TransactionTemplate transactionTemplate;
 	private final TaskExecutor taskExecutor;
+	private final Object exportLock = new Object();
 
 	private MessageSource messageSource;
 	private String[] tableNames;
+	private Map<String, String> incrementalColumns;
+	private File exportDirectory = new File(Constants.solarNodeHome(), DEFAULT_EXPORT_PATH);
+	private int incrementalExportLimit = DEFAULT_INCREMENTAL_EXPORT_LIMIT;
 
 	private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -146,10 +217,24 @@ public class JdbcTableBackupResourceProvider implements BackupResourceProvider {
 		return result;
 	}
 
+	private String incrementalColumn(String tableName) {
+		final Map<String, String> columns = this.incrementalColumns;
+		if ( columns == null || exportDirectory == null ) {
+			return null;
+		}
+		for ( Map.Entry<String, String> e : columns.entrySet() ) {
+			if ( tableName.equalsIgnoreCase(e.getKey()) ) {
+				return e.getValue();
+			}
+		}
+		return null;
+	}
+
 	private final class JdbcTableBackupResource implements BackupResource {
 
 		private final long modTime;
 		private final String tableName;
+		private Path export;
 
 		private JdbcTableBackupResource(String tableName) {
 			super();
@@ -174,6 +259,15 @@ public class JdbcTableBackupResourceProvider implements BackupResourceProvider {
 
 		@Override
 		public InputStream getInputStream() throws IOException {
+			final String column = incrementalColumn(tableName);
+			if ( column != null ) {
+				synchronized ( this ) {
+					if ( export == null ) {
+						export = incrementalExport(tableName, column);
+					}
+				}
+				return new BufferedInputStream(Files.newInputStream(export));
+			}
 			PipedOutputStream sink = new PipedOutputStream();
 			PipedInputStream result = new PipedInputStream(sink);
 			taskExecutor.execute(new JdbcTableCsvExporter(tableName, sink));
@@ -215,84 +309,527 @@ public class JdbcTableBackupResourceProvider implements BackupResourceProvider {
 
 		}
 
-		private void exportTable(Connection con) throws SQLException, IOException, UncheckedIOException {
+		private void exportTable(Connection con) throws SQLException, IOException {
 			try (Statement stmt = con.createStatement(ResultSet.TYPE_FORWARD_ONLY,
 					ResultSet.CONCUR_READ_ONLY);
 					ResultSet rs = stmt.executeQuery(sqlQuery);
-					CsvWriter csv = CsvWriter.builder().commentCharacter('!').build(out)) {
-				final ResultSetMetaData meta = rs.getMetaData();
-				final String[] headers = resultSetHeaders(meta);
-				final int colCount = headers.length;
-				final List<String> row = new ArrayList<String>(headers.length);
-				final Calendar utcCalendar = Calendar.getInstance(TimeZone.getTimeZone(ZoneOffset.UTC));
-				csv.writeRecord(headers);
+					Writer w = csvWriter(out)) {
+				final ResultSetCsvEncoder csv = new ResultSetCsvEncoder(w, rs.getMetaData());
+				csv.writeHeader();
 				while ( rs.next() ) {
-					row.clear();
-					for ( int i = 1; i <= colCount; i++ ) {
-						final int sqlType = meta.getColumnType(i);
-						String val = null;
-						switch (sqlType) {
-							case Types.DATE: {
-								java.sql.Date d = rs.getDate(i, utcCalendar);
-								if ( d != null ) {
-									val = DateTimeFormatter.ISO_LOCAL_DATE.format(d.toLocalDate());
-								}
-							}
-								break;
-
-							case Types.TIME: {
-								java.sql.Time d = rs.getTime(i, utcCalendar);
-								if ( d != null ) {
-									val = DateTimeFormatter.ISO_LOCAL_TIME.format(d.toLocalTime());
-								}
-							}
-								break;
-
-							case Types.TIMESTAMP:
-							case Types.TIMESTAMP_WITH_TIMEZONE: {
-								java.sql.Timestamp d = rs.getTimestamp(i, utcCalendar);
-								if ( d != null ) {
-									val = DateTimeFormatter.ISO_INSTANT.format(d.toInstant());
-								}
-							}
-								break;
-
-							case Types.BINARY:
-							case Types.VARBINARY:
-							case Types.LONGVARBINARY: {
-								byte[] d = rs.getBytes(i);
-								if ( d != null ) {
-									val = Hex.encodeHexString(d);
-								}
-							}
-								break;
-
-							default: {
-								Object v = rs.getObject(i);
-								if ( v != null ) {
-									val = v.toString();
-								}
-							}
+					csv.writeRow(rs);
+				}
+			}
+		}
+
+	}
+
+	private static Writer csvWriter(OutputStream out) {
+		return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+	}
+
+	private static String[] resultSetHeaders(final ResultSetMetaData meta) throws SQLException {
+		final int colCount = meta.getColumnCount();
+		final String[] headers = new String[colCount];
+		for ( int i = 0; i < colCount; i++ ) {
+			headers[i] = meta.getColumnName(i + 1).toUpperCase(Locale.ROOT);
+		}
+		return headers;
+	}
+
+	/**
+	 * Encode result set rows as CSV.
+	 *
+	 * <p>
+	 * Column values are formatted into a re-used buffer and written directly to
+	 * the output, without creating intermediate strings for each row. The
+	 * output is compatible with the CSV reader used to restore tables.
+	 * </p>
+	 */
+	private static final class ResultSetCsvEncoder {
+
+		private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+		private final Writer out;
+		private final String[] headers;
+		private final int[] sqlTypes;
+		private final Calendar utcCalendar = Calendar
+				.getInstance(TimeZone.getTimeZone(ZoneOffset.UTC));
+		private final StringBuilder buf = new StringBuilder(64);
+		private char[] chars = new char[64];
+
+		private ResultSetCsvEncoder(Writer out, ResultSetMetaData meta) throws SQLException {
+			super();
+			this.out = out;
+			this.headers = resultSetHeaders(meta);
+			this.sqlTypes = new int[headers.length];
+			for ( int i = 0; i < sqlTypes.length; i++ ) {
+				sqlTypes[i] = meta.getColumnType(i + 1);
+			}
+		}
+
+		private void writeHeader() throws IOException {
+			for ( int i = 0; i < headers.length; i++ ) {
+				if ( i > 0 ) {
+					out.write(',');
+				}
+				buf.setLength(0);
+				buf.append(headers[i]);
+				writeField(i);
+			}
+			out.write("\r\n");
+		}
+
+		private void writeRow(ResultSet rs) throws SQLException, IOException {
+			for ( int i = 0; i < sqlTypes.length; i++ ) {
+				if ( i > 0 ) {
+					out.write(',');
+				}
+				buf.setLength(0);
+				appendValue(rs, i + 1, sqlTypes[i]);
+				writeField(i);
+			}
+			out.write("\r\n");
+		}
+
+		private void appendValue(ResultSet rs, int col, int sqlType) throws SQLException {
+			switch (sqlType) {
+				case Types.DATE: {
+					java.sql.Date d = rs.getDate(col, utcCalendar);
+					if ( d != null ) {
+						DateTimeFormatter.ISO_LOCAL_DATE.formatTo(d.toLocalDate(), buf);
+					}
+				}
+					break;
+
+				case Types.TIME: {
+					java.sql.Time d = rs.getTime(col, utcCalendar);
+					if ( d != null ) {
+						DateTimeFormatter.ISO_LOCAL_TIME.formatTo(d.toLocalTime(), buf);
+					}
+				}
+					break;
+
+				case Types.TIMESTAMP:
+				case Types.TIMESTAMP_WITH_TIMEZONE: {
+					Timestamp d = rs.getTimestamp(col, utcCalendar);
+					if ( d != null ) {
+						DateTimeFormatter.ISO_INSTANT.formatTo(d.toInstant(), buf);
+					}
+				}
+					break;
 
+				case Types.BINARY:
+				case Types.VARBINARY:
+				case Types.LONGVARBINARY: {
+					byte[] d = rs.getBytes(col);
+					if ( d != null ) {
+						for ( byte b : d ) {
+							buf.append(HEX[(b >> 4) & 0x0F]).append(HEX[b & 0x0F]);
 						}
-						row.add(val);
 					}
-					csv.writeRecord(row);
+				}
+					break;
+
+				case Types.TINYINT:
+				case Types.SMALLINT:
+				case Types.INTEGER:
+				case Types.BIGINT: {
+					long d = rs.getLong(col);
+					if ( !rs.wasNull() ) {
+						buf.append(d);
+					}
+				}
+					break;
+
+				default: {
+					Object v = rs.getObject(col);
+					if ( v != null ) {
+						buf.append(v);
+					}
 				}
 			}
 		}
 
-		private String[] resultSetHeaders(final ResultSetMetaData meta) throws SQLException {
-			final int colCount = meta.getColumnCount();
-			final String[] headers = new String[colCount];
-			for ( int i = 0; i < colCount; i++ ) {
-				headers[i] = meta.getColumnName(i + 1).toUpperCase(Locale.ROOT);
+		private void writeField(int idx) throws IOException {
+			final int len = buf.length();
+			if ( len < 1 ) {
+				return;
+			}
+			if ( chars.length < len ) {
+				chars = new char[Math.max(len, chars.length * 2)];
+			}
+			buf.getChars(0, len, chars, 0);
+			boolean quote = (idx == 0 && chars[0] == COMMENT_CHARACTER);
+			for ( int i = 0; !quote && i < len; i++ ) {
+				final char c = chars[i];
+				quote = (c == ',' || c == '"' || c == '\r' || c == '\n');
+			}
+			if ( !quote ) {
+				out.write(chars, 0, len);
+				return;
+			}
+			out.write('"');
+			int start = 0;
+			for ( int i = 0; i < len; i++ ) {
+				if ( chars[i] == '"' ) {
+					// write through the quote, then start next segment at quote to escape it
+					out.write(chars, start, i + 1 - start);
+					start = i;
+				}
 			}
-			return headers;
+			out.write(chars, start, len - start);
+			out.write('"');
 		}
 
 	}
 
+	/**
+	 * Tracks the high-water mark column value of exported rows.
+	 */
+	private static final class HighWaterMark {
+
+		private static final char TYPE_NUMBER = 'n';
+		private static final char TYPE_TIMESTAMP = 't';
+		private static final char TYPE_STRING = 's';
+
+		private final Calendar utcCalendar = Calendar
+				.getInstance(TimeZone.getTimeZone(ZoneOffset.UTC));
+		private final int col;
+		private final char type;
+		private String value;
+
+		private HighWaterMark(ResultSetMetaData meta, int col, String value) throws SQLException {
+			super();
+			this.col = col;
+			this.type = valueType(meta.getColumnType(col));
+			this.value = value;
+			if ( type == 0 ) {
+				throw new SQLException("Unsupported high-water mark column type for column "
+						+ meta.getColumnName(col) + ".");
+			}
+		}
+
+		private static char valueType(int sqlType) {
+			switch (sqlType) {
+				case Types.TINYINT:
+				case Types.SMALLINT:
+				case Types.INTEGER:
+				case Types.BIGINT:
+					return TYPE_NUMBER;
+
+				case Types.DATE:
+				case Types.TIMESTAMP:
+				case Types.TIMESTAMP_WITH_TIMEZONE:
+					return TYPE_TIMESTAMP;
+
+				case Types.CHAR:
+				case Types.VARCHAR:
+				case Types.NCHAR:
+				case Types.NVARCHAR:
+					return TYPE_STRING;
+
+				default:
+					return 0;
+			}
+		}
+
+		private static void bind(PreparedStatement ps, int idx, char type, String value)
+				throws SQLException {
+			switch (type) {
+				case TYPE_NUMBER:
+					ps.setLong(idx, Long.parseLong(value));
+					break;
+
+				case TYPE_TIMESTAMP:
+					ps.setTimestamp(idx, Timestamp.from(Instant.parse(value)),
+							Calendar.getInstance(TimeZone.getTimeZone(ZoneOffset.UTC)));
+					break;
+
+				default:
+					ps.setString(idx, value);
+			}
+		}
+
+		/**
+		 * Update the high-water mark from the current row.
+		 *
+		 * <p>
+		 * Rows are exported in column order, so the last row has the highest
+		 * value.
+		 * </p>
+		 */
+		private void update(ResultSet rs) throws SQLException {
+			switch (type) {
+				case TYPE_NUMBER: {
+					long v = rs.getLong(col);
+					if ( !rs.wasNull() ) {
+						value = Long.toString(v);
+					}
+				}
+					break;
+
+				case TYPE_TIMESTAMP: {
+					Timestamp v = rs.getTimestamp(col, utcCalendar);
+					if ( v != null ) {
+						value = v.toInstant().toString();
+					}
+				}
+					break;
+
+				default: {
+					String v = rs.getString(col);
+					if ( v != null ) {
+						value = v;
+					}
+				}
+			}
+		}
+
+	}
+
+	private static int columnIndex(String[] headers, String column) throws SQLException {
+		for ( int i = 0; i < headers.length; i++ ) {
+			if ( headers[i].equalsIgnoreCase(column) ) {
+				return i + 1;
+			}
+		}
+		throw new SQLException("High-water mark column " + column + " not found.");
+	}
+
+	private Path incrementalExport(final String tableName, final String column) throws IOException {
+		synchronized ( exportLock ) {
+			final String baseName = tableName.toLowerCase(Locale.ROOT);
+			final Path dir = exportDirectory.toPath();
+			final Path dataFile = dir.resolve(baseName + ".csv");
+			final Path stateFile = dir.resolve(baseName + ".state");
+			Files.createDirectories(dir);
+			final Properties state = loadExportState(stateFile, dataFile, column);
+
+			// remove state while export is modified, to force full export after any failure
+			Files.deleteIfExists(stateFile);
+			try {
+				Properties newState = null;
+				if ( state != null ) {
+					newState = exportIncrement(tableName, column, state, dataFile);
+				}
+				if ( newState == null ) {
+					newState = exportFull(tableName, column, dataFile);
+				}
+				saveExportState(stateFile, newState);
+			} catch ( UncheckedIOException e ) {
+				throw e.getCause();
+			} catch ( DataAccessException e ) {
+				throw new IOException(
+						"Error exporting table " + tableName + " to CSV: " + e.getMessage(), e);
+			}
+			return dataFile;
+		}
+	}
+
+	private Properties loadExportState(Path stateFile, Path dataFile, String column)
+			throws IOException {
+		if ( !(Files.isRegularFile(stateFile) && Files.isRegularFile(dataFile)) ) {
+			return null;
+		}
+		final Properties state = new Properties();
+		try (Reader in = Files.newBufferedReader(stateFile, StandardCharsets.UTF_8)) {
+			state.load(in);
+		}
+		if ( !column.equalsIgnoreCase(state.getProperty(STATE_COLUMN))
+				|| state.getProperty(STATE_HIGH_WATER_TYPE, "").length() != 1 ) {
+			return null;
+		}
+		int count;
+		try {
+			count = Integer.parseInt(state.getProperty(STATE_INCREMENTAL_COUNT, ""));
+			Long.parseLong(state.getProperty(STATE_ROW_COUNT, ""));
+		} catch ( NumberFormatException e ) {
+			return null;
+		}
+		if ( count >= incrementalExportLimit ) {
+			return null;
+		}
+		return state;
+	}
+
+	private static void saveExportState(Path stateFile, Properties state) throws IOException {
+		final Path tmp = Files.createTempFile(stateFile.getParent(), ".tmp-", ".state");
+		try {
+			try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+				state.store(out, null);
+			}
+			Files.move(tmp, stateFile, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	private static Properties exportState(String column, String[] headers, HighWaterMark hw,
+			long rowCount, int incrementalCount) {
+		final Properties state = new Properties();
+		state.setProperty(STATE_COLUMN, column);
+		state.setProperty(STATE_HEADER, String.join(",", headers));
+		state.setProperty(STATE_HIGH_WATER_TYPE, String.valueOf(hw.type));
+		if ( hw.value != null ) {
+			state.setProperty(STATE_HIGH_WATER, hw.value);
+		}
+		state.setProperty(STATE_ROW_COUNT, String.valueOf(rowCount));
+		state.setProperty(STATE_INCREMENTAL_COUNT, String.valueOf(incrementalCount));
+		return state;
+	}
+
+	private Properties exportFull(final String tableName, final String column, final Path dataFile)
+			throws IOException {
+		final Path tmp = Files.createTempFile(dataFile.getParent(), ".tmp-", ".csv");
+		try {
+			final String sql = "SELECT * FROM " + tableName + " ORDER BY " + column;
+			final Properties state = jdbcTemplate.execute((ConnectionCallback<Properties>) con -> {
+				try (Statement stmt = con.createStatement(ResultSet.TYPE_FORWARD_ONLY,
+						ResultSet.CONCUR_READ_ONLY);
+						ResultSet rs = stmt.executeQuery(sql);
+						Writer w = csvWriter(Files.newOutputStream(tmp))) {
+					final ResultSetMetaData meta = rs.getMetaData();
+					final ResultSetCsvEncoder csv = new ResultSetCsvEncoder(w, meta);
+					final HighWaterMark hw = new HighWaterMark(meta,
+							columnIndex(csv.headers, column), null);
+					csv.writeHeader();
+					long rowCount = 0;
+					while ( rs.next() ) {
+						csv.writeRow(rs);
+						hw.update(rs);
+						rowCount++;
+					}
+					return exportState(column, csv.headers, hw, rowCount, 0);
+				} catch ( IOException e ) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			Files.move(tmp, dataFile, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			log.info("Exported table {} in full for backup", tableName);
+			return state;
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	private Properties exportIncrement(final String tableName, final String column,
+			final Properties state, final Path dataFile) {
+		final String highWater = state.getProperty(STATE_HIGH_WATER);
+		final long rowCount = Long.parseLong(state.getProperty(STATE_ROW_COUNT));
+		final long exportedRowCount = exportedRowCount(tableName, column, state);
+		if ( exportedRowCount != rowCount ) {
+			log.info("Table {} has {} rows up to the last backup, but {} were exported; "
+					+ "exporting in full", tableName, exportedRowCount, rowCount);
+			return null;
+		}
+		final StringBuilder sql = new StringBuilder("SELECT * FROM ").append(tableName);
+		if ( highWater != null ) {
+			sql.append(" WHERE ").append(column).append(" > ?");
+		}
+		sql.append(" ORDER BY ").append(column);
+		return jdbcTemplate.execute((ConnectionCallback<Properties>) con -> {
+			try (PreparedStatement ps = con.prepareStatement(sql.toString(),
+					ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+				if ( highWater != null ) {
+					HighWaterMark.bind(ps, 1, state.getProperty(STATE_HIGH_WATER_TYPE).charAt(0),
+							highWater);
+				}
+				try (ResultSet rs = ps.executeQuery()) {
+					final ResultSetMetaData meta = rs.getMetaData();
+					final String[] headers = resultSetHeaders(meta);
+					if ( !String.join(",", headers).equals(state.getProperty(STATE_HEADER)) ) {
+						log.info("Columns of table {} changed since last backup; exporting in full",
+								tableName);
+						return null;
+					}
+					final HighWaterMark hw = new HighWaterMark(meta, columnIndex(headers, column),
+							highWater);
+					final int count = Integer.parseInt(state.getProperty(STATE_INCREMENTAL_COUNT));
+					final long added = appendRows(rs, meta, hw, dataFile);
+					log.info("Exported table {} {} rows added since last backup", tableName, added);
+					return exportState(column, headers, hw, rowCount + added, count + 1);
+				}
+			} catch ( IOException e ) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	/**
+	 * Count the table rows covered by a previous export.
+	 *
+	 * <p>
+	 * These are the rows whose high-water mark column value is not greater
+	 * than the high-water mark, or all rows if there is no high-water mark.
+	 * </p>
+	 */
+	private long exportedRowCount(final String tableName, final String column,
+			final Properties state) {
+		final String highWater = state.getProperty(STATE_HIGH_WATER);
+		final StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM ").append(tableName);
+		if ( highWater != null ) {
+			sql.append(" WHERE ").append(column).append(" <= ?");
+		}
+		final Long result = jdbcTemplate.execute((ConnectionCallback<Long>) con -> {
+			try (PreparedStatement ps = con.prepareStatement(sql.toString())) {
+				if ( highWater != null ) {
+					HighWaterMark.bind(ps, 1, state.getProperty(STATE_HIGH_WATER_TYPE).charAt(0),
+							highWater);
+				}
+				try (ResultSet rs = ps.executeQuery()) {
+					return (rs.next() ? rs.getLong(1) : 0L);
+				}
+			}
+		});
+		return (result != null ? result : 0L);
+	}
+
+	private static long appendRows(ResultSet rs, ResultSetMetaData meta, HighWaterMark hw,
+			Path dataFile) throws SQLException, IOException {
+		try (FileChannel ch = FileChannel.open(dataFile, StandardOpenOption.WRITE)) {
+			final long start = ch.size();
+			ch.position(start);
+			boolean complete = false;
+			long count = 0;
+			try {
+				// the writer is not closed, so the channel can be truncated after a failure
+				final Writer w = csvWriter(Channels.newOutputStream(ch));
+				final ResultSetCsvEncoder csv = new ResultSetCsvEncoder(w, meta);
+				while ( rs.next() ) {
+					csv.writeRow(rs);
+					hw.update(rs);
+					count++;
+				}
+				w.flush();
+				complete = true;
+				return count;
+			} finally {
+				if ( !complete ) {
+					ch.truncate(start);
+				}
+			}
+		}
+	}
+
+	private void resetIncrementalExport(String tableName) {
+		if ( incrementalColumn(tableName) == null ) {
+			return;
+		}
+		final Path stateFile = exportDirectory.toPath()
+				.resolve(tableName.toLowerCase(Locale.ROOT) + ".state");
+		synchronized ( exportLock ) {
+			try {
+				Files.deleteIfExists(stateFile);
+			} catch ( IOException e ) {
+				log.warn("Unable to delete table {} export state {}: {}", tableName, stateFile,
+						e.getMessage());
+			}
+		}
+	}
+
 	@Override
 	public boolean restoreBackupResource(final BackupResource resource) {
 		if ( resource == null ) {
@@ -314,7 +851,7 @@ public class JdbcTableBackupResourceProvider implements BackupResourceProvider {
 				return false;
 			}
 		}
-		return transactionTemplate.execute(new TransactionCallback<Boolean>() {
+		final Boolean result = transactionTemplate.execute(new TransactionCallback<Boolean>() {
 
 			@Override
 			public Boolean doInTransaction(TransactionStatus status) {
@@ -328,6 +865,12 @@ public class JdbcTableBackupResourceProvider implements BackupResourceProvider {
 				});
 			}
 		});
+		if ( result != null && result ) {
+			// the table changed, so the next export must be a full export
+			resetIncrementalExport(tableName);
+			return true;
+		}
+		return false;
 	}
 
 	@Override
@@ -443,4 +986,80 @@ public class JdbcTableBackupResourceProvider implements BackupResourceProvider {
 		this.messageSource = messageSource;
 	}
 
+	/**
+	 * Get the incremental export high-water mark columns.
+	 *
+	 * @return the mapping of table names to high-water mark column names
+	 * @since 2.1
+	 */
+	public Map<String, String> getIncrementalColumns() {
+		return incrementalColumns;
+	}
+
+	/**
+	 * Set the incremental export high-water mark columns.
+	 *
+	 * <p>
+	 * Tables included in this mapping will be exported incrementally, using
+	 * the associated column as the high-water mark. The column should be a
+	 * non-null integer, date, or string column whose value increases as rows
+	 * are added, such as an auto-generated primary key or a creation date.
+	 * Only append-only tables should be configured, as updated rows are not
+	 * detected until the next full export.
+	 * </p>
+	 *
+	 * @param incrementalColumns
+	 *        the mapping of table names to high-water mark column names
+	 * @since 2.1
+	 */
+	public void setIncrementalColumns(Map<String, String> incrementalColumns) {
+		this.incrementalColumns = incrementalColumns;
+	}
+
+	/**
+	 * Get the directory to cache incremental exports in.
+	 *
+	 * @return the directory; defaults to {@link #DEFAULT_EXPORT_PATH} within
+	 *         the SolarNode home directory
+	 * @since 2.1
+	 */
+	public File getExportDirectory() {
+		return exportDirectory;
+	}
+
+	/**
+	 * Set the directory to cache incremental exports in.
+	 *
+	 * @param exportDirectory
+	 *        the directory to use, or {@literal null} to disable incremental
+	 *        exports
+	 * @since 2.1
+	 */
+	public void setExportDirectory(File exportDirectory) {
+		this.exportDirectory = exportDirectory;
+	}
+
+	/**
+	 * Get the maximum number of incremental exports to perform between full
+	 * exports.
+	 *
+	 * @return the limit; defaults to {@link #DEFAULT_INCREMENTAL_EXPORT_LIMIT}
+	 * @since 2.1
+	 */
+	public int getIncrementalExportLimit() {
+		return incrementalExportLimit;
+	}
+
+	/**
+	 * Set the maximum number of incremental exports to perform between full
+	 * exports.
+	 *
+	 * @param incrementalExportLimit
+	 *        the limit; {@code 0} to always perform full exports
+	 * @since 2.1
+	 */
+	public void setIncrementalExportLimit(int incrementalExportLimit) {
+		this.incrementalExportLimit = incrementalExportLimit;
+	}
+
 }
@@ -24,6 +24,7 @@ package net.solarnetwork.node.dao.jdbc.general;
 
 import static java.lang.String.format;
 import static net.solarnetwork.node.dao.jdbc.JdbcUtils.setUtcTimestampStatementValue;
+import static net.solarnetwork.service.OptionalService.service;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -55,7 +56,9 @@ import net.solarnetwork.node.dao.jdbc.JdbcUtils;
 import net.solarnetwork.node.domain.Mock;
 import net.solarnetwork.node.domain.datum.NodeDatum;
 import net.solarnetwork.node.domain.datum.SimpleDatum;
+import net.solarnetwork.node.service.DatumBus;
 import net.solarnetwork.node.service.DatumEvents;
+import net.solarnetwork.service.OptionalService;
 import net.solarnetwork.service.PingTest;
 import net.solarnetwork.service.PingTestResult;
 import net.solarnetwork.settings.SettingSpecifier;
@@ -68,7 +71,7 @@ import net.solarnetwork.util.StatCounter;
  * {@link NodeDatum} domain objects.
  *
  * @author matt
- * @version 2.4
+ * @version 2.5
  */
 public class JdbcGeneralNodeDatumDao extends AbstractJdbcDao<NodeDatum>
 		implements DatumDao, SettingSpecifierProvider, PingTest {
@@ -139,6 +142,7 @@ public class JdbcGeneralNodeDatumDao extends AbstractJdbcDao<NodeDatum>
 	private int maxFetchForUpload = DEFAULT_MAX_FETCH_FOR_UPLOAD;
 	private boolean ignoreMockData = true;
 	private int maxCountPingFail = DEFAULT_MAX_COUNT_PING_FAIL;
+	private OptionalService<DatumBus> datumBus;
 
 	/**
 	 * Default constructor.
@@ -530,11 +534,21 @@ public class JdbcGeneralNodeDatumDao extends AbstractJdbcDao<NodeDatum>
 	 * Post an {@link Event} for the {@link DatumDao#EVENT_TOPIC_DATUM_STORED}
 	 * topic.
 	 *
+	 * <p>
+	 * If a {@link DatumBus} is available the datum is published to that with
+	 * the {@link DatumBus.Stage#Stored} stage, which also posts the event.
+	 * </p>
+	 *
 	 * @param datum
 	 *        the datum that was stored
 	 * @since 1.3
 	 */
 	protected final void postDatumStoredEvent(NodeDatum datum) {
+		final DatumBus bus = service(datumBus);
+		if ( bus != null ) {
+			bus.publish(DatumBus.Stage.Stored, datum);
+			return;
+		}
 		Event event = createDatumStoredEvent(datum);
 		postEvent(event);
 	}
@@ -697,4 +711,30 @@ public class JdbcGeneralNodeDatumDao extends AbstractJdbcDao<NodeDatum>
 		this.maxCountPingFail = maxCountPingFail;
 	}
 
+	/**
+	 * Get the datum bus.
+	 *
+	 * @return the datum bus
+	 * @since 2.5
+	 */
+	public OptionalService<DatumBus> getDatumBus() {
+		return datumBus;
+	}
+
+	/**
+	 * Set the datum bus.
+	 *
+	 * <p>
+	 * If configured, stored datum are published to this bus instead of being
+	 * posted directly as events.
+	 * </p>
+	 *
+	 * @param datumBus
+	 *        the datum bus to set
+	 * @since 2.5
+	 */
+	public void setDatumBus(OptionalService<DatumBus> datumBus) {
+		this.datumBus = datumBus;
+	}
+
 }
@@ -35,6 +35,7 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.sameInstance;
 import java.time.Instant;
@@ -59,13 +60,14 @@ import net.solarnetwork.node.domain.datum.SimpleNodeControlInfoDatum;
 import net.solarnetwork.node.service.DatumEvents;
 import net.solarnetwork.node.service.DatumQueue;
 import net.solarnetwork.node.service.NodeControlProvider;
+import net.solarnetwork.node.service.NodeControlStateRegistry;
 import net.solarnetwork.service.StaticOptionalService;
 
 /**
  * Test cases for the {@link NodeControlInfoDatumDataSource} class.
  * 
  * @author matt
- * @version 2.0
+ * @version 2.1
  */
 public class NodeControlInfoDatumDataSourceTests {
 
@@ -375,4 +377,101 @@ public class NodeControlInfoDatumDataSourceTests {
 		EasyMock.verify(p2);
 	}
 
+	@Test
+	public void handleStateChanged() {
+		// GIVEN
+		dataSource.setEventMode(ControlEventMode.StateChange);
+		Capture<NodeDatum> datumCaptor = Capture.newInstance();
+		expect(datumQueue.offer(capture(datumCaptor), eq(false))).andReturn(true);
+
+		// WHEN
+		replayAll();
+		SimpleNodeControlInfoDatum info = createControlInfo();
+		Event event = createDatumEvent(NodeControlStateRegistry.EVENT_TOPIC_CONTROL_STATE_CHANGED,
+				info);
+		dataSource.handleEvent(event);
+
+		// THEN
+		assertThat("Datum offered", datumCaptor.getValue(), sameInstance(info));
+	}
+
+	@Test
+	public void handleStateChanged_eventMode_filtered() {
+		// GIVEN
+		dataSource.setEventMode(ControlEventMode.Change);
+
+		// WHEN
+		replayAll();
+		SimpleNodeControlInfoDatum info = createControlInfo();
+		Event event = createDatumEvent(NodeControlStateRegistry.EVENT_TOPIC_CONTROL_STATE_CHANGED,
+				info);
+		dataSource.handleEvent(event);
+	}
+
+	@Test
+	public void handleChanged_stateChangeEventMode_filtered() {
+		// GIVEN
+		dataSource.setEventMode(ControlEventMode.StateChange);
+
+		// WHEN
+		replayAll();
+		SimpleNodeControlInfoDatum info = createControlInfo();
+		Event event = createDatumEvent(NodeControlProvider.EVENT_TOPIC_CONTROL_INFO_CHANGED, info);
+		dataSource.handleEvent(event);
+	}
+
+	@Test
+	public void poll_cachedState() {
+		// GIVEN
+		NodeControlStateRegistry registry = EasyMock.createMock(NodeControlStateRegistry.class);
+		dataSource.setControlStateRegistry(new StaticOptionalService<>(registry));
+		dataSource.setCachedStateMaximumAgeSeconds(60);
+
+		final String controlId = UUID.randomUUID().toString();
+		final SimpleNodeControlInfoDatum info = createControlInfo(
+				createControlInfoBuilder().withControlId(controlId));
+		expect(provider.getAvailableControlIds()).andReturn(singletonList(controlId));
+		expect(registry.getControlInfoDate(controlId)).andReturn(Instant.now().minusSeconds(10));
+		expect(registry.getControlInfo(controlId)).andReturn(info);
+
+		// WHEN
+		replayAll(registry);
+		Collection<NodeDatum> result = dataSource.readMultipleDatum();
+
+		// THEN
+		EasyMock.verify(registry);
+		assertThat("Result has datum", result, hasSize(1));
+		NodeDatum d = result.iterator().next();
+		assertThat("New datum created from cached state", d, not(sameInstance(info)));
+		assertThat("Control ID -> source ID", d.getSourceId(), equalTo(controlId));
+		assertThat("Cached value used", d.asSampleOperations().getSampleInteger(Instantaneous, "v"),
+				equalTo(1));
+	}
+
+	@Test
+	public void poll_cachedState_expired() {
+		// GIVEN
+		NodeControlStateRegistry registry = EasyMock.createMock(NodeControlStateRegistry.class);
+		dataSource.setControlStateRegistry(new StaticOptionalService<>(registry));
+		dataSource.setCachedStateMaximumAgeSeconds(60);
+
+		final String controlId = UUID.randomUUID().toString();
+		final SimpleNodeControlInfoDatum info = createControlInfo(
+				createControlInfoBuilder().withControlId(controlId));
+		expect(provider.getAvailableControlIds()).andReturn(singletonList(controlId));
+		expect(registry.getControlInfoDate(controlId)).andReturn(Instant.now().minusSeconds(61));
+		expect(provider.getCurrentControlInfo(controlId)).andReturn(info);
+		expect(registry.publishControlInfo(info)).andReturn(true);
+
+		// WHEN
+		replayAll(registry);
+		Collection<NodeDatum> result = dataSource.readMultipleDatum();
+
+		// THEN
+		EasyMock.verify(registry);
+		assertThat("Result has datum", result, hasSize(1));
+		assertThat("Datum that returned from Provider", result.iterator().next(),
+				sameInstance(info));
+	}
+
 }
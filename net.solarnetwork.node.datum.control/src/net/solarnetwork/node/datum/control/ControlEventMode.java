@@ -26,7 +26,7 @@ package net.solarnetwork.node.datum.control;
  * An enumeration of control event modes.
  * 
  * @author matt
- * @version 1.0
+ * @version 1.1
  */
 public enum ControlEventMode {
 
@@ -42,4 +42,12 @@ public enum ControlEventMode {
 	/** Generate datum when both control info is captured and changes. */
 	CaptureAndChange,
 
+	/**
+	 * Generate datum only when the control state registry reports a change
+	 * larger than the control's deadband.
+	 * 
+	 * @since 1.1
+	 */
+	StateChange,
+
 }
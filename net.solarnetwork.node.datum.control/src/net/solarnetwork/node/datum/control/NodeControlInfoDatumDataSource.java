@@ -23,6 +23,7 @@
 package net.solarnetwork.node.datum.control;
 
 import static net.solarnetwork.service.OptionalService.service;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -46,6 +47,7 @@ import net.solarnetwork.node.service.DatumEvents;
 import net.solarnetwork.node.service.DatumQueue;
 import net.solarnetwork.node.service.MultiDatumDataSource;
 import net.solarnetwork.node.service.NodeControlProvider;
+import net.solarnetwork.node.service.NodeControlStateRegistry;
 import net.solarnetwork.node.service.support.DatumDataSourceSupport;
 import net.solarnetwork.service.OptionalService;
 import net.solarnetwork.settings.SettingSpecifier;
@@ -57,8 +59,15 @@ import net.solarnetwork.settings.support.BasicTextFieldSettingSpecifier;
  * Data source for controls, supporting both scheduling polling and real-time
  * persisting of changes.
  *
+ * <p>
+ * If a {@link NodeControlStateRegistry} is available and
+ * {@code cachedStateMaximumAgeSeconds} is greater than {@literal 0}, polling
+ * will use the control values cached by the registry when they are recent
+ * enough, and only read controls from their provider otherwise.
+ * </p>
+ *
  * @author matt
- * @version 2.1
+ * @version 2.2
  */
 public class NodeControlInfoDatumDataSource extends DatumDataSourceSupport
 		implements SettingSpecifierProvider, EventHandler, MultiDatumDataSource {
@@ -74,6 +83,8 @@ public class NodeControlInfoDatumDataSource extends DatumDataSourceSupport
 	private Pattern controlIdRegex;
 	private ControlEventMode eventMode = DEFAULT_EVENT_MODE;
 	private QueuePersistMode persistMode = DEFAULT_PERSIST_MODE;
+	private OptionalService<NodeControlStateRegistry> controlStateRegistry;
+	private int cachedStateMaximumAgeSeconds;
 
 	/**
 	 * Constructor.
@@ -111,11 +122,17 @@ public class NodeControlInfoDatumDataSource extends DatumDataSourceSupport
 		}
 		final String topic = event.getTopic();
 		if ( NodeControlProvider.EVENT_TOPIC_CONTROL_INFO_CAPTURED.equals(topic) ) {
-			if ( eventMode == ControlEventMode.Change ) {
+			if ( eventMode == ControlEventMode.Change
+					|| eventMode == ControlEventMode.StateChange ) {
 				return;
 			}
 		} else if ( NodeControlProvider.EVENT_TOPIC_CONTROL_INFO_CHANGED.equals(topic) ) {
-			if ( eventMode == ControlEventMode.Capture ) {
+			if ( eventMode == ControlEventMode.Capture
+					|| eventMode == ControlEventMode.StateChange ) {
+				return;
+			}
+		} else if ( NodeControlStateRegistry.EVENT_TOPIC_CONTROL_STATE_CHANGED.equals(topic) ) {
+			if ( eventMode != ControlEventMode.StateChange ) {
 				return;
 			}
 		} else {
@@ -213,6 +230,8 @@ public class NodeControlInfoDatumDataSource extends DatumDataSourceSupport
 		persistModeSpec.setValueTitles(persistModeTitles);
 		results.add(persistModeSpec);
 
+		results.add(new BasicTextFieldSettingSpecifier("cachedStateMaximumAgeSeconds", "0"));
+
 		return results;
 	}
 
@@ -225,6 +244,10 @@ public class NodeControlInfoDatumDataSource extends DatumDataSourceSupport
 	public Collection<NodeDatum> readMultipleDatum() {
 		List<NodeDatum> result = new ArrayList<>();
 		final Pattern controlIdRegex = getControlIdRegex();
+		final NodeControlStateRegistry registry = service(controlStateRegistry);
+		final Instant minCachedDate = (registry != null && cachedStateMaximumAgeSeconds > 0
+				? Instant.now().minus(Duration.ofSeconds(cachedStateMaximumAgeSeconds))
+				: null);
 		for ( NodeControlProvider p : providers ) {
 			List<String> controlIds = p.getAvailableControlIds();
 			if ( controlIds == null || controlIds.isEmpty() ) {
@@ -237,6 +260,14 @@ public class NodeControlInfoDatumDataSource extends DatumDataSourceSupport
 							controlIdRegex);
 					continue;
 				}
+				if ( minCachedDate != null ) {
+					NodeControlInfo info = cachedControlInfo(registry, controlId, minCachedDate);
+					if ( info != null ) {
+						log.trace("Using cached control [{}] state {}", controlId, info);
+						result.add(new SimpleNodeControlInfoDatum(info, Instant.now()));
+						continue;
+					}
+				}
 				NodeControlInfo info = null;
 				try {
 					info = p.getCurrentControlInfo(controlId);
@@ -250,6 +281,9 @@ public class NodeControlInfoDatumDataSource extends DatumDataSourceSupport
 				if ( info == null ) {
 					continue;
 				}
+				if ( registry != null ) {
+					registry.publishControlInfo(info);
+				}
 				NodeDatum datum = datumForInfo(info);
 				if ( datum != null ) {
 					result.add(datum);
@@ -259,6 +293,15 @@ public class NodeControlInfoDatumDataSource extends DatumDataSourceSupport
 		return result;
 	}
 
+	private static NodeControlInfo cachedControlInfo(NodeControlStateRegistry registry,
+			String controlId, Instant minDate) {
+		final Instant date = registry.getControlInfoDate(controlId);
+		if ( date == null || date.isBefore(minDate) ) {
+			return null;
+		}
+		return registry.getControlInfo(controlId);
+	}
+
 	@Override
 	public Collection<String> publishedSourceIds() {
 		final List<NodeControlProvider> providers = this.providers;
@@ -453,4 +496,53 @@ public class NodeControlInfoDatumDataSource extends DatumDataSourceSupport
 		setPersistMode(mode);
 	}
 
+	/**
+	 * Get the control state registry.
+	 *
+	 * @return the registry
+	 * @since 2.2
+	 */
+	public OptionalService<NodeControlStateRegistry> getControlStateRegistry() {
+		return controlStateRegistry;
+	}
+
+	/**
+	 * Set the control state registry.
+	 *
+	 * @param controlStateRegistry
+	 *        the registry to set
+	 * @since 2.2
+	 */
+	public void setControlStateRegistry(
+			OptionalService<NodeControlStateRegistry> controlStateRegistry) {
+		this.controlStateRegistry = controlStateRegistry;
+	}
+
+	/**
+	 * Get the maximum age of cached control state to use when polling.
+	 *
+	 * @return the maximum age, in seconds, or {@literal 0} to always read
+	 *         controls from their provider; defaults to {@literal 0}
+	 * @since 2.2
+	 */
+	public int getCachedStateMaximumAgeSeconds() {
+		return cachedStateMaximumAgeSeconds;
+	}
+
+	/**
+	 * Set the maximum age of cached control state to use when polling.
+	 *
+	 * <p>
+	 * This requires a {@code controlStateRegistry} to be configured.
+	 * </p>
+	 *
+	 * @param cachedStateMaximumAgeSeconds
+	 *        the maximum age, in seconds, or {@literal 0} to always read
+	 *        controls from their provider
+	 * @since 2.2
+	 */
+	public void setCachedStateMaximumAgeSeconds(int cachedStateMaximumAgeSeconds) {
+		this.cachedStateMaximumAgeSeconds = cachedStateMaximumAgeSeconds;
+	}
+
 }
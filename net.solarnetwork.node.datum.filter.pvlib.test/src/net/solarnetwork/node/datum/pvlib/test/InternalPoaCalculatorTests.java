@@ -0,0 +1,140 @@
+/* ==================================================================
+ * InternalPoaCalculatorTests.java - 19/10/2026 3:44:05 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.datum.pvlib.test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import net.solarnetwork.node.datum.pvlib.CommandOptions;
+import net.solarnetwork.node.datum.pvlib.InternalPoaCalculator;
+import net.solarnetwork.node.datum.pvlib.SolarPosition;
+import net.solarnetwork.node.datum.pvlib.TranspositionModel;
+
+/**
+ * Test cases for the {@link InternalPoaCalculator} class.
+ *
+ * @author matt
+ * @version 1.0
+ */
+public class InternalPoaCalculatorTests {
+
+	private InternalPoaCalculator calc;
+	private Map<String, String> args;
+
+	@Before
+	public void setup() {
+		calc = new InternalPoaCalculator();
+		args = new LinkedHashMap<>(8);
+		args.put(CommandOptions.Latitude.getOption(), "-36.861564");
+		args.put(CommandOptions.Lonitude.getOption(), "174.718725");
+		args.put(CommandOptions.TimeZone.getOption(), "Pacific/Auckland");
+		args.put(CommandOptions.Tilt.getOption(), "5");
+		args.put(CommandOptions.Azimuth.getOption(), "342");
+		args.put(CommandOptions.Date.getOption(), "2024-11-18T10:24:47");
+		args.put(CommandOptions.Ghi.getOption(), "805");
+	}
+
+	@Test
+	public void supports() {
+		assertThat("Default model supported", calc.supports(args), is(true));
+
+		args.put(CommandOptions.TranspositionModel.getOption(), TranspositionModel.HayDavies.getKey());
+		assertThat("Hay Davies supported", calc.supports(args), is(true));
+
+		args.put(CommandOptions.TranspositionModel.getOption(),
+				TranspositionModel.PerezDriesse.getKey());
+		assertThat("Perez-Driesse not supported", calc.supports(args), is(false));
+
+		args.put(CommandOptions.TranspositionModel.getOption(), "klucher");
+		assertThat("Unknown model not supported", calc.supports(args), is(false));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void calculate_unsupported() {
+		args.put(CommandOptions.TranspositionModel.getOption(),
+				TranspositionModel.PerezDriesse.getKey());
+		calc.calculate(args);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void calculate_invalidNumber() {
+		args.put(CommandOptions.Ghi.getOption(), "lots");
+		calc.calculate(args);
+	}
+
+	@Test
+	public void calculate() {
+		// WHEN
+		Map<String, ?> result = calc.calculate(args);
+
+		// THEN
+		assertThat("Result has script keys", result.keySet(),
+				contains("date", "zone", "ghi", "dni", "dhi", "zenith", "azimuth", "min_cos_zenith",
+						"max_zenith", "poa_global", "poa_direct", "poa_diffuse", "poa_sky_diffuse",
+						"poa_ground_diffuse"));
+		assertThat("Date echoed", result.get("date"), is(equalTo((Object) "2024-11-18T10:24:47")));
+		assertThat("Zone echoed", result.get("zone"), is(equalTo((Object) "Pacific/Auckland")));
+
+		SolarPosition pos = SolarPosition.calculate(LocalDateTime.parse("2024-11-18T10:24:47")
+				.atZone(ZoneId.of("Pacific/Auckland")).toInstant(), -36.861564, 174.718725, 0.0);
+		assertThat("Apparent zenith", (Double) result.get("zenith"),
+				closeTo(pos.getApparentZenith(), 1e-9));
+		assertThat("Azimuth", (Double) result.get("azimuth"), closeTo(pos.getAzimuth(), 1e-9));
+
+		double direct = (Double) result.get("poa_direct");
+		double sky = (Double) result.get("poa_sky_diffuse");
+		double ground = (Double) result.get("poa_ground_diffuse");
+		assertThat("Diffuse is sky + ground", (Double) result.get("poa_diffuse"),
+				closeTo(sky + ground, 1e-9));
+		assertThat("Global is direct + diffuse", (Double) result.get("poa_global"),
+				closeTo(direct + sky + ground, 1e-9));
+
+		// pvlib output for the same inputs (see README example)
+		final double tolerance = 1e-4;
+		assertThat("pvlib DNI", (Double) result.get("dni"), closeTo(844.5952562517782, tolerance));
+		assertThat("pvlib DHI", (Double) result.get("dhi"), closeTo(151.71952235515488, tolerance));
+		assertThat("pvlib zenith", (Double) result.get("zenith"),
+				closeTo(39.3322587975266, tolerance));
+		assertThat("pvlib azimuth", (Double) result.get("azimuth"),
+				closeTo(74.67509718383894, tolerance));
+		assertThat("pvlib POA global", (Double) result.get("poa_global"),
+				closeTo(799.951169881113, tolerance));
+		assertThat("pvlib POA direct", (Double) result.get("poa_direct"),
+				closeTo(648.6170024103126, tolerance));
+		assertThat("pvlib POA diffuse", (Double) result.get("poa_diffuse"),
+				closeTo(151.3341674708004, tolerance));
+		assertThat("pvlib POA sky diffuse", (Double) result.get("poa_sky_diffuse"),
+				closeTo(150.9512589662823, tolerance));
+		assertThat("pvlib POA ground diffuse", (Double) result.get("poa_ground_diffuse"),
+				closeTo(0.38290850451810454, tolerance));
+	}
+
+}
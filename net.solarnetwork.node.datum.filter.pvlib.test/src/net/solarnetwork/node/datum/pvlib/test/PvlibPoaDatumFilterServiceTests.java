@@ -0,0 +1,103 @@
+/* ==================================================================
+ * PvlibPoaDatumFilterServiceTests.java - 19/10/2026 6:12:30 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.datum.pvlib.test;
+
+import static org.easymock.EasyMock.createMock;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.solarnetwork.node.datum.pvlib.CalculationMode;
+import net.solarnetwork.node.datum.pvlib.PvlibPoaDatumFilterService;
+import net.solarnetwork.node.service.DatumMetadataService;
+import net.solarnetwork.node.service.MetadataService;
+import net.solarnetwork.service.OptionalService;
+import net.solarnetwork.service.OptionalService.OptionalFilterableService;
+
+/**
+ * Test cases for the {@link PvlibPoaDatumFilterService} class.
+ *
+ * @author matt
+ * @version 1.0
+ */
+public class PvlibPoaDatumFilterServiceTests {
+
+	private PvlibPoaDatumFilterService service;
+
+	@SuppressWarnings("unchecked")
+	@Before
+	public void setup() {
+		service = new PvlibPoaDatumFilterService(new ObjectMapper(),
+				createMock(OptionalService.class), createMock(OptionalFilterableService.class));
+	}
+
+	@After
+	public void teardown() {
+		service.serviceDidShutdown();
+	}
+
+	@Test
+	public void calculationMode_default() {
+		assertThat("Default mode used with default command", service.getCalculationMode(),
+				is(equalTo(PvlibPoaDatumFilterService.DEFAULT_CALCULATION_MODE)));
+	}
+
+	@Test
+	public void calculationMode_customCommand() {
+		// WHEN
+		service.setCommand("/usr/local/bin/my-ghi-to-poa");
+
+		// THEN
+		assertThat("Command mode used with customised command", service.getCalculationMode(),
+				is(equalTo(CalculationMode.Command)));
+	}
+
+	@Test
+	public void calculationMode_customCommand_explicitMode() {
+		// WHEN
+		service.setCommand("/usr/local/bin/my-ghi-to-poa");
+		service.setCalculationMode(CalculationMode.Worker);
+
+		// THEN
+		assertThat("Explicit mode used with customised command", service.getCalculationMode(),
+				is(equalTo(CalculationMode.Worker)));
+	}
+
+	@Test
+	public void calculationMode_resetToDefault() {
+		// GIVEN
+		service.setCommand("/usr/local/bin/my-ghi-to-poa");
+		service.setCalculationMode(CalculationMode.Internal);
+
+		// WHEN
+		service.setCalculationMode(null);
+
+		// THEN
+		assertThat("Default mode for customised command restored", service.getCalculationMode(),
+				is(equalTo(CalculationMode.Command)));
+	}
+
+}
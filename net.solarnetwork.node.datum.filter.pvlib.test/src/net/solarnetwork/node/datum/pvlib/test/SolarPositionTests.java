@@ -0,0 +1,78 @@
+/* ==================================================================
+ * SolarPositionTests.java - 19/10/2026 3:22:10 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.datum.pvlib.test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import org.junit.Test;
+import net.solarnetwork.node.datum.pvlib.SolarPosition;
+
+/**
+ * Test cases for the {@link SolarPosition} class.
+ *
+ * @author matt
+ * @version 1.0
+ */
+public class SolarPositionTests {
+
+	@Test
+	public void nrelSpaReference() {
+		// GIVEN the NREL SPA reference case, as used in the pvlib test suite
+		LocalDateTime date = LocalDateTime.of(2003, 10, 17, 12, 30, 30);
+
+		// WHEN
+		SolarPosition pos = SolarPosition.calculate(date.atOffset(ZoneOffset.ofHours(-7)).toInstant(),
+				39.742476, -105.1786, 82000.0, 11.0);
+
+		// THEN
+		assertThat("Apparent zenith within 0.01 degrees of SPA", pos.getApparentZenith(),
+				closeTo(50.111622, 0.01));
+		assertThat("Azimuth within 0.01 degrees of SPA", pos.getAzimuth(), closeTo(194.340241, 0.01));
+		assertThat("Refraction applied", pos.getZenith() - pos.getApparentZenith(),
+				closeTo(0.0163, 0.001));
+	}
+
+	@Test
+	public void belowHorizon() {
+		// GIVEN midnight in Auckland
+		LocalDateTime date = LocalDateTime.of(2024, 11, 17, 11, 0, 0);
+
+		// WHEN
+		SolarPosition pos = SolarPosition.calculate(date.toInstant(ZoneOffset.UTC), -36.8509,
+				174.7645, 0.0);
+
+		// THEN
+		assertThat("No refraction below horizon", pos.getApparentZenith(),
+				closeTo(pos.getZenith(), 0.0));
+		assertThat("Sun well below horizon", pos.getZenith(), closeTo(120.0, 30.0));
+	}
+
+	@Test
+	public void altitudeToPressure() {
+		assertThat("Sea level", SolarPosition.altitudeToPressure(0.0), closeTo(101325.0, 0.01));
+		assertThat("1830m", SolarPosition.altitudeToPressure(1830.14), closeTo(81186.466, 0.01));
+	}
+
+}
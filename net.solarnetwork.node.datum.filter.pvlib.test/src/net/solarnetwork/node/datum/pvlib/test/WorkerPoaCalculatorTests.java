@@ -0,0 +1,250 @@
+/* ==================================================================
+ * WorkerPoaCalculatorTests.java - 19/10/2026 4:02:36 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.datum.pvlib.test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.fail;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.solarnetwork.node.datum.pvlib.CommandOptions;
+import net.solarnetwork.node.datum.pvlib.WorkerPoaCalculator;
+
+/**
+ * Test cases for the {@link WorkerPoaCalculator} class.
+ *
+ * <p>
+ * These tests use a shell script to emulate the worker process.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ */
+public class WorkerPoaCalculatorTests {
+
+	private ObjectMapper objectMapper;
+	private Path script;
+	private WorkerPoaCalculator calc;
+
+	@Before
+	public void setup() {
+		objectMapper = new ObjectMapper();
+	}
+
+	@After
+	public void teardown() throws IOException {
+		if ( calc != null ) {
+			calc.close();
+		}
+		if ( script != null ) {
+			Files.deleteIfExists(script);
+		}
+	}
+
+	private WorkerPoaCalculator workerScript(String body) throws IOException {
+		script = Files.createTempFile("ghi-to-poa-worker-", ".sh");
+		Files.write(script, ("#!/bin/sh\n" + body + "\n").getBytes(UTF_8));
+		script.toFile().setExecutable(true);
+		calc = new WorkerPoaCalculator(objectMapper, script.toAbsolutePath().toString());
+		return calc;
+	}
+
+	private static Map<String, String> ghi(String value) {
+		return Collections.singletonMap(CommandOptions.Ghi.getOption(), value);
+	}
+
+	@Test
+	public void calculate() throws IOException {
+		// GIVEN
+		workerScript("""
+				[ "$1" = "--worker" ] || exit 1
+				while read line; do
+				  echo "[{\\"poa_global\\":123.4,\\"req\\":$line}]"
+				done""");
+
+		// WHEN
+		Map<String, ?> result = calc.calculate(ghi("805"));
+		Map<String, ?> result2 = calc.calculate(ghi("806"));
+
+		// THEN
+		assertThat("POA result parsed", result, hasEntry("poa_global", (Object) 123.4));
+		assertThat("Request uses option names without dashes", result.get("req"),
+				is(equalTo((Object) Arrays.asList(Collections.singletonMap("irradiance", "805")))));
+		assertThat("Same worker handled second request", result2.get("req"),
+				is(equalTo((Object) Arrays.asList(Collections.singletonMap("irradiance", "806")))));
+		assertThat("Worker still running", calc.isRunning(), is(true));
+	}
+
+	@Test
+	public void calculate_batch() throws IOException {
+		// GIVEN
+		workerScript("""
+				while read line; do
+				  echo '[{"poa_global":1},{"poa_global":2}]'
+				done""");
+
+		// WHEN
+		List<Map<String, ?>> results = calc.calculate(Arrays.asList(ghi("1"), ghi("2")));
+
+		// THEN
+		assertThat("Batch results returned", results, hasSize(2));
+		assertThat("Result 1", results.get(0), hasEntry("poa_global", (Object) 1));
+		assertThat("Result 2", results.get(1), hasEntry("poa_global", (Object) 2));
+	}
+
+	@Test
+	public void calculate_restartAfterExit() throws IOException {
+		// GIVEN
+		workerScript("""
+				read line
+				echo '[{"poa_global":1}]'""");
+
+		// WHEN
+		Map<String, ?> result = calc.calculate(ghi("1"));
+		Map<String, ?> result2 = null;
+		for ( int i = 0; i < 2 && result2 == null; i++ ) {
+			try {
+				result2 = calc.calculate(ghi("2"));
+			} catch ( RuntimeException e ) {
+				// worker may have exited after the first response; next attempt restarts it
+				assertThat("Worker stopped after error", calc.isRunning(), is(false));
+			}
+		}
+
+		// THEN
+		assertThat("First result", result, hasEntry("poa_global", (Object) 1));
+		assertThat("Worker restarted", result2, hasEntry("poa_global", (Object) 1));
+	}
+
+	@Test
+	public void calculate_error() throws IOException {
+		// GIVEN
+		workerScript("""
+				while read line; do
+				  echo '[{"error":"boom"}]'
+				done""");
+
+		// WHEN
+		try {
+			calc.calculate(ghi("1"));
+			fail("Should have thrown error");
+		} catch ( RuntimeException e ) {
+			// THEN
+			assertThat("Error message from worker", e.getMessage().endsWith("error: boom"), is(true));
+		}
+		assertThat("Worker kept running after calculation error", calc.isRunning(), is(true));
+	}
+
+	@Test
+	public void calculate_timeout() throws Exception {
+		// GIVEN
+		workerScript("""
+				while read line; do
+				  sleep 30
+				done""");
+		calc.setTimeoutMillis(500);
+		calc.setHungTimeoutMillis(1500);
+
+		// WHEN
+		final long start = System.currentTimeMillis();
+		try {
+			calc.calculate(ghi("1"));
+			fail("Should have thrown timeout error");
+		} catch ( RuntimeException e ) {
+			// THEN
+			assertThat("Timeout error message", e.getMessage().endsWith("no response within 500ms"),
+					is(true));
+		}
+		assertThat("Returned after timeout", System.currentTimeMillis() - start,
+				is(lessThan(10_000L)));
+		assertThat("Worker left running after timeout", calc.isRunning(), is(true));
+
+		final long start2 = System.currentTimeMillis();
+		try {
+			calc.calculate(ghi("2"));
+			fail("Should have thrown pending error");
+		} catch ( RuntimeException e ) {
+			assertThat("Pending error message",
+					e.getMessage().endsWith("waiting for response to previous request"), is(true));
+		}
+		assertThat("Returned immediately while response pending",
+				System.currentTimeMillis() - start2, is(lessThan(250L)));
+
+		Thread.sleep(1500);
+		try {
+			calc.calculate(ghi("3"));
+			fail("Should have thrown hung error");
+		} catch ( RuntimeException e ) {
+			assertThat("Hung error message", e.getMessage().endsWith("no response within 1500ms"),
+					is(true));
+		}
+		assertThat("Worker stopped after hung timeout", calc.isRunning(), is(false));
+	}
+
+	@Test
+	public void calculate_slowStart() throws Exception {
+		// GIVEN
+		workerScript("""
+				sleep 1
+				while read line; do
+				  echo "[{\\"poa_global\\":1,\\"req\\":$line}]"
+				done""");
+		calc.setTimeoutMillis(250);
+
+		// WHEN
+		try {
+			calc.calculate(ghi("1"));
+			fail("Should have thrown timeout error");
+		} catch ( RuntimeException e ) {
+			// expected
+		}
+		Map<String, ?> result = null;
+		for ( int i = 0; i < 20 && result == null; i++ ) {
+			try {
+				result = calc.calculate(ghi("2"));
+			} catch ( RuntimeException e ) {
+				Thread.sleep(200);
+			}
+		}
+
+		// THEN
+		assertThat("Worker kept after slow start", calc.isRunning(), is(true));
+		assertThat("Late response discarded, response matches request", result.get("req"),
+				is(equalTo((Object) Arrays.asList(Collections.singletonMap("irradiance", "2")))));
+	}
+
+}
@@ -21,7 +21,17 @@ def usage():
 -t --array-tilt      solar array tilt angle from horizontal, in degrees
 -T --transpose       the transposition model to use, e.g. 'haydavies', 'perez-driesse'
 -u --array-azimuth   solar array angle clockwise from north
+-w --worker          run as a persistent worker, reading requests from stdin
 -z --zone            time zone, like Pacific/Auckland
+
+In worker mode each input line must be a JSON array of request objects, using
+the long option names above as keys, for example:
+
+[{"latitude":"-36.8509","longitude":"174.7645","irradiance":"1000"}]
+
+A JSON array of result objects is written as a single line for each input
+line, in the same order as the requests. A result with an "error" property
+represents a failed request.
 """)
 
 def ghi_get_irradiance(location: Location,
@@ -81,70 +91,105 @@ def ghi_get_irradiance(location: Location,
 
     return result
 
+def ghi_to_poa(params) -> dict:
+    """Calculate POA irradiance from (long option name, value) parameter pairs."""
+    lat = 0
+    lon = 0
+    alt = 0
+    zone = 'UTC'
+    array_azimuth = 0
+    array_tilt = 0
+
+    min_cos_zenith = None
+    max_zenith = None
+    model = 'haydavies'
+
+    ghi = 0
+    date = datetime.now(timezone.utc).strftime('%Y-%m-%dT%H:%M:%S')
+
+    for opt, arg in params:
+        if opt == 'altitude': # m
+            alt = float(arg)
+        elif opt == 'date':
+            date = arg
+        elif opt == 'irradiance': # W/m2
+            ghi = float(arg)
+        elif opt == 'latitude':
+            lat = float(arg)
+        elif opt == 'longitude':
+            lon = float(arg)
+        elif opt == 'min-cos-zenith':
+            min_cos_zenith = float(arg)
+        elif opt == 'max-zenith':
+            max_zenith = float(arg)
+        elif opt == 'array-tilt': # angle in degrees
+            array_tilt = float(arg)
+        elif opt == 'transpose':
+            model = arg
+        elif opt == 'array-azimuth': # angle in degrees
+            array_azimuth = float(arg)
+        elif opt == 'zone':
+            zone = arg
+
+    loc = Location(lat, lon, tz=zone, altitude=alt)
+
+    return ghi_get_irradiance(
+        location = loc,
+        array_tilt = array_tilt,
+        array_azimuth = array_azimuth,
+        min_cos_zenith = min_cos_zenith,
+        max_zenith = max_zenith,
+        ghi = ghi,
+        date = date,
+        transposition_model = model
+    )
+
+def worker():
+    """Process batches of JSON requests from stdin, one batch per line."""
+    for line in sys.stdin:
+        line = line.strip()
+        if not line:
+            continue
+        try:
+            requests = json.loads(line)
+        except ValueError as e:
+            print(json.dumps([{'error': str(e)}]), flush=True)
+            continue
+        results = []
+        for req in requests:
+            try:
+                results.append(ghi_to_poa(req.items()))
+            except Exception as e:
+                results.append({'error': str(e)})
+        print(json.dumps(results), flush=True)
+
+SHORT_OPTS = {
+    '-a': 'altitude', '-d': 'date', '-i': 'irradiance',
+    '-l': 'latitude', '-L': 'longitude',
+    '-m': 'min-cos-zenith', '-M': 'max-zenith',
+    '-t': 'array-tilt', '-T': 'transpose',
+    '-u': 'array-azimuth', '-z': 'zone',
+}
+
 try:
     opts, args = getopt.getopt(
         sys.argv[1:],
-        'a:d:i:l:L:m:M:t:T:u:z:',
+        'a:d:i:l:L:m:M:t:T:u:wz:',
         ['altitude=', 'date=', 'irradiance=',
         'latitude=', 'longitude=', 
         'min-cos-zenith=', 'max-zenith=', 
         'array-tilt=', 'transpose=',
-        'array-azimuth=', 'zone='],
+        'array-azimuth=', 'worker', 'zone='],
     )
 except getopt.GetoptError as e:
     print(e)
     usage()
     sys.exit(2)
 
-lat = 0
-lon = 0
-alt = 0
-zone = 'UTC'
-array_azimuth = 0
-array_tilt = 0
-
-min_cos_zenith = None
-max_zenith = None
-model = 'haydavies'
-
-ghi = 0
-date = datetime.now(timezone.utc).strftime('%Y-%m-%dT%H:%M:%S')
-
-for opt, arg in opts:
-    if opt in ('-a', '--altitude'): # m
-        alt = float(arg)
-    elif opt in ('-d', '--date'):
-        date = arg
-    elif opt in ('-i', '--irradiance'): # W/m2
-        ghi = float(arg)
-    elif opt in ('-l', '--latitude'):
-        lat = float(arg)
-    elif opt in ('-L', '--longitude'):
-        lon = float(arg)
-    elif opt in ('-m', '--min-cos-zenith'):
-        min_cos_zenith = float(arg)
-    elif opt in ('-M', '--max-zenith'):
-        max_zenith = float(arg)
-    elif opt in ('-t', '--array-tilt'): # angle in degrees
-        array_tilt = float(arg)
-    elif opt in ('-T', '--transpose'):
-        model = arg
-    elif opt in ('-u', '--array-azimuth'): # angle in degrees
-        array_azimuth = float(arg)
-    elif opt in ('-z', '--zone'):
-        zone = arg
-
-loc = Location(lat, lon, tz=zone, altitude=alt)
-
-poa = ghi_get_irradiance(
-    location = loc,
-    array_tilt = array_tilt,
-    array_azimuth = array_azimuth,
-    min_cos_zenith = min_cos_zenith,
-    max_zenith = max_zenith,
-    ghi = ghi,
-    date = date,
-    transposition_model = model
-)
-
-print(json.dumps(poa))
+if any(opt in ('-w', '--worker') for opt, arg in opts):
+    worker()
+    sys.exit(0)
+
+params = [(SHORT_OPTS[opt] if opt in SHORT_OPTS else opt[2:], arg) for opt, arg in opts]
+
+print(json.dumps(ghi_to_poa(params)))
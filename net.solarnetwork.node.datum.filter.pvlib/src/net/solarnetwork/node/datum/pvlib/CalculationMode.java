@@ -0,0 +1,81 @@
+/* ==================================================================
+ * CalculationMode.java - 19/10/2026 2:07:12 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.datum.pvlib;
+
+/**
+ * Enumeration of POA irradiance calculation modes.
+ *
+ * @author matt
+ * @version 1.0
+ * @since 2.1
+ */
+public enum CalculationMode {
+
+	/**
+	 * Calculate in-process where the transposition model is supported,
+	 * otherwise fall back to {@link #Worker}.
+	 */
+	Internal("internal"),
+
+	/** Calculate with a persistent external worker process. */
+	Worker("worker"),
+
+	/** Calculate with a new external process for each datum. */
+	Command("command"),
+
+	;
+
+	private final String key;
+
+	private CalculationMode(String key) {
+		this.key = key;
+	}
+
+	/**
+	 * Get the key value.
+	 *
+	 * @return the key
+	 */
+	public final String getKey() {
+		return key;
+	}
+
+	/**
+	 * Get an enum instance for a key value.
+	 *
+	 * @param key
+	 *        the key
+	 * @return the enum
+	 * @throws IllegalArgumentException
+	 *         if {@code key} is not a valid value
+	 */
+	public static CalculationMode forKey(String key) {
+		for ( CalculationMode e : CalculationMode.values() ) {
+			if ( e.name().equals(key) || e.key.equalsIgnoreCase(key) ) {
+				return e;
+			}
+		}
+		throw new IllegalArgumentException("Unknown CalculationMode key [" + key + "]");
+	}
+
+}
@@ -26,7 +26,7 @@ package net.solarnetwork.node.datum.pvlib;
  * Enumeration of command options with associated metadata keys.
  *
  * @author matt
- * @version 1.1
+ * @version 1.2
  */
 public enum CommandOptions {
 
@@ -88,6 +88,20 @@ public enum CommandOptions {
 		return option;
 	}
 
+	/**
+	 * Get the command option name, without any leading dashes.
+	 *
+	 * <p>
+	 * This is the key used for the option in worker process requests.
+	 * </p>
+	 *
+	 * @return the option name
+	 * @since 1.2
+	 */
+	public final String getName() {
+		return option.substring(2);
+	}
+
 	/**
 	 * Get the meadata key.
 	 *
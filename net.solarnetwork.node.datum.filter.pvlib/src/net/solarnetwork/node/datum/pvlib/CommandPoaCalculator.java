@@ -0,0 +1,124 @@
+/* ==================================================================
+ * CommandPoaCalculator.java - 19/10/2026 2:31:17 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.datum.pvlib;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static net.solarnetwork.codec.JsonUtils.STRING_MAP_TYPE;
+import static net.solarnetwork.util.ObjectUtils.requireNonNullArgument;
+import static net.solarnetwork.util.StringUtils.nonEmptyString;
+import static org.springframework.util.FileCopyUtils.copyToString;
+import static org.springframework.util.StringUtils.arrayToDelimitedString;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * GHI to POA irradiance calculator that executes an external OS command for
+ * each calculation.
+ *
+ * <p>
+ * The command will be provided the arguments as defined in the
+ * {@link CommandOptions} enumeration, and is expected to print a JSON object
+ * result.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 2.1
+ */
+public class CommandPoaCalculator implements PoaCalculator {
+
+	private static final Logger log = LoggerFactory.getLogger(CommandPoaCalculator.class);
+
+	private final ObjectMapper objectMapper;
+	private final String command;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param objectMapper
+	 *        the object mapper to use
+	 * @param command
+	 *        the OS command to execute
+	 * @throws IllegalArgumentException
+	 *         if any argument is {@literal null}
+	 */
+	public CommandPoaCalculator(ObjectMapper objectMapper, String command) {
+		super();
+		this.objectMapper = requireNonNullArgument(objectMapper, "objectMapper");
+		this.command = requireNonNullArgument(command, "command");
+	}
+
+	@Override
+	public Map<String, ?> calculate(Map<String, String> arguments) {
+		String[] cmd = new String[arguments.size() * 2 + 1];
+		cmd[0] = command;
+		int i = 0;
+		for ( Entry<String, String> e : arguments.entrySet() ) {
+			cmd[++i] = e.getKey();
+			cmd[++i] = e.getValue();
+		}
+		if ( log.isDebugEnabled() ) {
+			log.debug("Executing GHI -> POA irradiance command: {} ", arrayToDelimitedString(cmd, " "));
+		}
+		ProcessBuilder pb = new ProcessBuilder(cmd);
+		try {
+			Process pr = pb.start();
+
+			String json = nonEmptyString(
+					copyToString(new InputStreamReader(pr.getInputStream(), UTF_8)));
+
+			String err = nonEmptyString(copyToString(new InputStreamReader(pr.getErrorStream(), UTF_8)));
+			if ( err != null ) {
+				throw new RuntimeException(
+						String.format("GHI -> POA irradiance command [%s] error: %s", command, err));
+			} else if ( json == null ) {
+				throw new RuntimeException(
+						String.format("GHI -> POA irradiance command [%s] produced no output", command));
+			}
+
+			return objectMapper.readValue(json, STRING_MAP_TYPE);
+		} catch ( JacksonException e ) {
+			throw new RuntimeException(
+					String.format("Error parsing GHI -> POA irradiance command [%s] output: %s", command,
+							e.getMessage()));
+		} catch ( IOException e ) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Get the command.
+	 *
+	 * @return the command
+	 */
+	public final String getCommand() {
+		return command;
+	}
+
+}
@@ -0,0 +1,173 @@
+/* ==================================================================
+ * InternalPoaCalculator.java - 19/10/2026 2:14:40 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.datum.pvlib;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-process GHI to POA irradiance calculator.
+ *
+ * <p>
+ * This calculator mirrors the {@code def/ghi-to-poa.py} script: the apparent
+ * solar position is derived with {@link SolarPosition}, DNI and DHI are
+ * estimated with the Erbs model, and the sky diffuse irradiance is transposed
+ * with one of the supported {@link TranspositionModel} values. The result map
+ * contains the same keys as the script output.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 2.1
+ */
+public class InternalPoaCalculator implements PoaCalculator {
+
+	/**
+	 * Constructor.
+	 */
+	public InternalPoaCalculator() {
+		super();
+	}
+
+	/**
+	 * Test if a transposition model is supported by this calculator.
+	 *
+	 * @param model
+	 *        the model to test
+	 * @return {@literal true} if the model is supported
+	 */
+	public static boolean isSupported(TranspositionModel model) {
+		return model == TranspositionModel.HayDavies;
+	}
+
+	/**
+	 * Test if a set of calculation arguments is supported by this calculator.
+	 *
+	 * @param arguments
+	 *        the arguments
+	 * @return {@literal true} if the transposition model in the arguments is
+	 *         supported
+	 */
+	public boolean supports(Map<String, String> arguments) {
+		String modelKey = arguments.get(CommandOptions.TranspositionModel.getOption());
+		if ( modelKey == null ) {
+			// the script defaults to Hay & Davies
+			return true;
+		}
+		try {
+			return isSupported(TranspositionModel.forKey(modelKey));
+		} catch ( IllegalArgumentException e ) {
+			return false;
+		}
+	}
+
+	@Override
+	public Map<String, ?> calculate(Map<String, String> arguments) {
+		if ( !supports(arguments) ) {
+			throw new IllegalArgumentException(String.format(
+					"Transposition model [%s] not supported by in-process GHI -> POA calculator.",
+					arguments.get(CommandOptions.TranspositionModel.getOption())));
+		}
+		final double lat = doubleArgument(arguments, CommandOptions.Latitude, 0.0);
+		final double lon = doubleArgument(arguments, CommandOptions.Lonitude, 0.0);
+		final double alt = doubleArgument(arguments, CommandOptions.Altitude, 0.0);
+		final double tilt = doubleArgument(arguments, CommandOptions.Tilt, 0.0);
+		final double azimuth = doubleArgument(arguments, CommandOptions.Azimuth, 0.0);
+		final double minCosZenith = doubleArgument(arguments, CommandOptions.MinCosZenith,
+				Irradiance.DEFAULT_MIN_COS_ZENITH);
+		final double maxZenith = doubleArgument(arguments, CommandOptions.MaxZenith,
+				Irradiance.DEFAULT_MAX_ZENITH);
+		final double ghi = doubleArgument(arguments, CommandOptions.Ghi, 0.0);
+
+		final String zoneId = arguments.get(CommandOptions.TimeZone.getOption());
+		final ZoneId zone = (zoneId != null ? ZoneId.of(zoneId) : ZoneOffset.UTC);
+		String dateValue = arguments.get(CommandOptions.Date.getOption());
+		final Instant date;
+		if ( dateValue != null ) {
+			try {
+				date = LocalDateTime.parse(dateValue).atZone(zone).toInstant();
+			} catch ( DateTimeParseException e ) {
+				throw new IllegalArgumentException(
+						String.format("Invalid GHI -> POA date value [%s]", dateValue));
+			}
+		} else {
+			date = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+			dateValue = LocalDateTime.ofInstant(date, ZoneOffset.UTC).toString();
+		}
+
+		final SolarPosition pos = SolarPosition.calculate(date, lat, lon, alt);
+		final double zenith = pos.getApparentZenith();
+
+		// pvlib derives the day of year from the UTC date
+		final double dniExtra = Irradiance
+				.extraRadiation(date.atZone(ZoneOffset.UTC).getDayOfYear());
+		final double[] erbs = Irradiance.erbs(ghi, zenith, dniExtra, minCosZenith, maxZenith);
+		final double dni = erbs[0];
+		final double dhi = erbs[1];
+
+		final double skyDiffuse = Irradiance.haydavies(tilt, azimuth, dhi, dni, dniExtra, zenith,
+				pos.getAzimuth());
+		final double groundDiffuse = Irradiance.groundDiffuse(tilt, ghi, Irradiance.DEFAULT_ALBEDO);
+		final double direct = Math.max(
+				dni * Irradiance.aoiProjection(tilt, azimuth, zenith, pos.getAzimuth()), 0.0);
+		final double diffuse = skyDiffuse + groundDiffuse;
+
+		Map<String, Object> result = new LinkedHashMap<>(16);
+		result.put("date", dateValue);
+		result.put("zone", zone.getId());
+		result.put("ghi", ghi);
+		result.put("dni", dni);
+		result.put("dhi", dhi);
+		result.put("zenith", zenith);
+		result.put("azimuth", pos.getAzimuth());
+		result.put("min_cos_zenith", minCosZenith);
+		result.put("max_zenith", maxZenith);
+		result.put("poa_global", direct + diffuse);
+		result.put("poa_direct", direct);
+		result.put("poa_diffuse", diffuse);
+		result.put("poa_sky_diffuse", skyDiffuse);
+		result.put("poa_ground_diffuse", groundDiffuse);
+		return result;
+	}
+
+	private static double doubleArgument(Map<String, String> arguments, CommandOptions opt,
+			double defaultValue) {
+		String val = arguments.get(opt.getOption());
+		if ( val == null || val.isEmpty() ) {
+			return defaultValue;
+		}
+		try {
+			return Double.parseDouble(val);
+		} catch ( NumberFormatException e ) {
+			throw new IllegalArgumentException(
+					String.format("Invalid GHI -> POA %s value [%s]", opt.getName(), val));
+		}
+	}
+
+}
@@ -0,0 +1,186 @@
+/* ==================================================================
+ * Irradiance.java - 19/10/2026 1:41:52 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.datum.pvlib;
+
+/**
+ * Irradiance decomposition and transposition functions.
+ *
+ * <p>
+ * These functions are ports of the equivalent functions in the pvlib
+ * {@code irradiance} module, and produce the same results for a single
+ * timestamp.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 2.1
+ */
+public final class Irradiance {
+
+	/** The default minimum cos(zenith) value used in Erbs decomposition. */
+	public static final double DEFAULT_MIN_COS_ZENITH = 0.065;
+
+	/** The default maximum zenith value used in Erbs decomposition. */
+	public static final double DEFAULT_MAX_ZENITH = 87.0;
+
+	/** The default ground surface albedo. */
+	public static final double DEFAULT_ALBEDO = 0.25;
+
+	/** The solar constant, in W/m^2. */
+	public static final double SOLAR_CONSTANT = 1366.1;
+
+	/** The cosine of 89 degrees, the Hay-Davies minimum cos(zenith) limit. */
+	private static final double COS_89 = Math.cos(Math.toRadians(89.0));
+
+	private Irradiance() {
+		// not available
+	}
+
+	/**
+	 * Calculate the extraterrestrial radiation using the Spencer method.
+	 *
+	 * @param dayOfYear
+	 *        the day of the year, starting from {@code 1}
+	 * @return the extraterrestrial radiation, in W/m^2
+	 */
+	public static double extraRadiation(int dayOfYear) {
+		final double b = (2.0 * Math.PI / 365.0) * (dayOfYear - 1);
+		final double rFactor = 1.00011 + 0.034221 * Math.cos(b) + 0.00128 * Math.sin(b)
+				+ 0.000719 * Math.cos(2.0 * b) + 0.000077 * Math.sin(2.0 * b);
+		return SOLAR_CONSTANT * rFactor;
+	}
+
+	/**
+	 * Estimate DNI and DHI from GHI using the Erbs model.
+	 *
+	 * @param ghi
+	 *        the global horizontal irradiance, in W/m^2
+	 * @param zenith
+	 *        the solar zenith angle, in degrees
+	 * @param dniExtra
+	 *        the extraterrestrial radiation, in W/m^2
+	 * @param minCosZenith
+	 *        the minimum cos(zenith) value to use when calculating the global
+	 *        clearness index
+	 * @param maxZenith
+	 *        the maximum zenith value to allow in the DNI calculation
+	 * @return a two-element array of DNI and DHI values, in W/m^2
+	 */
+	public static double[] erbs(double ghi, double zenith, double dniExtra, double minCosZenith,
+			double maxZenith) {
+		final double cosZenith = cosd(zenith);
+		final double kt = Math.min(Math.max(ghi / (dniExtra * Math.max(cosZenith, minCosZenith)), 0.0),
+				1.0);
+		final double df;
+		if ( kt <= 0.22 ) {
+			df = 1.0 - 0.09 * kt;
+		} else if ( kt <= 0.8 ) {
+			df = 0.9511 - 0.1604 * kt + 4.388 * kt * kt - 16.638 * kt * kt * kt
+					+ 12.336 * kt * kt * kt * kt;
+		} else {
+			df = 0.165;
+		}
+		final double dhi = df * ghi;
+		final double dni = (ghi - dhi) / cosZenith;
+		if ( zenith > maxZenith || ghi < 0.0 || dni < 0.0 ) {
+			return new double[] { 0.0, ghi };
+		}
+		return new double[] { dni, dhi };
+	}
+
+	/**
+	 * Calculate the dot product of the sun position unit vector and the surface
+	 * normal unit vector.
+	 *
+	 * @param surfaceTilt
+	 *        the surface tilt, in degrees from horizontal
+	 * @param surfaceAzimuth
+	 *        the surface azimuth, in degrees clockwise from north
+	 * @param solarZenith
+	 *        the solar zenith, in degrees
+	 * @param solarAzimuth
+	 *        the solar azimuth, in degrees clockwise from north
+	 * @return the projection, between {@code -1} and {@code 1}
+	 */
+	public static double aoiProjection(double surfaceTilt, double surfaceAzimuth, double solarZenith,
+			double solarAzimuth) {
+		final double projection = cosd(surfaceTilt) * cosd(solarZenith)
+				+ sind(surfaceTilt) * sind(solarZenith) * cosd(solarAzimuth - surfaceAzimuth);
+		return Math.min(Math.max(projection, -1.0), 1.0);
+	}
+
+	/**
+	 * Calculate the sky diffuse irradiance on a tilted surface using the Hay
+	 * &amp; Davies model.
+	 *
+	 * @param surfaceTilt
+	 *        the surface tilt, in degrees from horizontal
+	 * @param surfaceAzimuth
+	 *        the surface azimuth, in degrees clockwise from north
+	 * @param dhi
+	 *        the diffuse horizontal irradiance, in W/m^2
+	 * @param dni
+	 *        the direct normal irradiance, in W/m^2
+	 * @param dniExtra
+	 *        the extraterrestrial radiation, in W/m^2
+	 * @param solarZenith
+	 *        the solar zenith, in degrees
+	 * @param solarAzimuth
+	 *        the solar azimuth, in degrees clockwise from north
+	 * @return the sky diffuse irradiance, in W/m^2
+	 */
+	public static double haydavies(double surfaceTilt, double surfaceAzimuth, double dhi, double dni,
+			double dniExtra, double solarZenith, double solarAzimuth) {
+		final double cosTt = Math.max(
+				aoiProjection(surfaceTilt, surfaceAzimuth, solarZenith, solarAzimuth), 0.0);
+		final double rb = cosTt / Math.max(cosd(solarZenith), COS_89);
+		final double ai = dni / dniExtra;
+		final double isotropic = Math.max(dhi * (1.0 - ai) * 0.5 * (1.0 + cosd(surfaceTilt)), 0.0);
+		final double circumsolar = Math.max(dhi * ai * rb, 0.0);
+		return isotropic + circumsolar;
+	}
+
+	/**
+	 * Calculate the ground reflected irradiance on a tilted surface.
+	 *
+	 * @param surfaceTilt
+	 *        the surface tilt, in degrees from horizontal
+	 * @param ghi
+	 *        the global horizontal irradiance, in W/m^2
+	 * @param albedo
+	 *        the ground surface albedo
+	 * @return the ground diffuse irradiance, in W/m^2
+	 */
+	public static double groundDiffuse(double surfaceTilt, double ghi, double albedo) {
+		return ghi * albedo * (1.0 - cosd(surfaceTilt)) * 0.5;
+	}
+
+	private static double cosd(double deg) {
+		return Math.cos(Math.toRadians(deg));
+	}
+
+	private static double sind(double deg) {
+		return Math.sin(Math.toRadians(deg));
+	}
+
+}
@@ -0,0 +1,49 @@
+/* ==================================================================
+ * PoaCalculator.java - 19/10/2026 2:05:31 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+
+package net.solarnetwork.node.datum.pvlib;
+
+import java.util.Map;
+
+/**
+ * API for a GHI to POA irradiance calculator.
+ *
+ * @author matt
+ * @version 1.0
+ * @since 2.1
+ */
+public interface PoaCalculator {
+
+	/**
+	 * Calculate POA irradiance values.
+	 *
+	 * @param arguments
+	 *        the calculation arguments, using {@link CommandOptions} option
+	 *        values as keys
+	 * @return the calculation result, never {@literal null}
+	 * @throws RuntimeException
+	 *         if any error occurs
+	 */
+	Map<String, ?> calculate(Map<String, String> arguments);
+
+}
@@ -22,20 +22,14 @@
 
 package net.solarnetwork.node.datum.pvlib;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
-import static net.solarnetwork.codec.JsonUtils.STRING_MAP_TYPE;
 import static net.solarnetwork.node.Constants.solarNodeHome;
 import static net.solarnetwork.service.OptionalService.service;
 import static net.solarnetwork.service.OptionalServiceCollection.services;
 import static net.solarnetwork.util.ObjectUtils.requireNonNullArgument;
 import static net.solarnetwork.util.StringUtils.nonEmptyString;
-import static org.springframework.util.FileCopyUtils.copyToString;
-import static org.springframework.util.StringUtils.arrayToDelimitedString;
-import java.io.IOException;
-import java.io.InputStreamReader;
 import java.math.BigDecimal;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
@@ -45,9 +39,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Map.Entry;
 import org.springframework.context.MessageSource;
-import com.fasterxml.jackson.core.JacksonException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import net.solarnetwork.domain.Location;
 import net.solarnetwork.domain.datum.Datum;
@@ -66,6 +58,7 @@ import net.solarnetwork.service.DatumFilterService;
 import net.solarnetwork.service.ExpressionService;
 import net.solarnetwork.service.OptionalService;
 import net.solarnetwork.service.OptionalService.OptionalFilterableService;
+import net.solarnetwork.service.ServiceLifecycleObserver;
 import net.solarnetwork.settings.SettingSpecifier;
 import net.solarnetwork.settings.SettingSpecifierProvider;
 import net.solarnetwork.settings.support.BasicGroupSettingSpecifier;
@@ -80,17 +73,23 @@ import net.solarnetwork.util.CollectionUtils;
  * {@link DatumDataSource} for POA data derived from GHI data.
  *
  * <p>
- * This filter relies on an external OS command to perform the GHI to POA
- * irradiance calculation. The command is expected to return a JSON object with
- * a {@link #getPoaResultKey()} property with the result. The command will be
- * provided the arguments as defined in the {@link CommandOptions} enumeration.
+ * The GHI to POA irradiance calculation is performed by a {@link PoaCalculator}
+ * selected by the {@link #getCalculationMode()} setting. In
+ * {@link CalculationMode#Internal} mode the calculation is performed
+ * in-process for the transposition models supported by
+ * {@link InternalPoaCalculator}, falling back to a persistent worker process
+ * for other models. Otherwise the calculation relies on an external OS command,
+ * either run as a persistent worker or once per datum. The command is expected
+ * to return a JSON object with a {@link #getPoaResultKey()} property with the
+ * result. The command will be provided the arguments as defined in the
+ * {@link CommandOptions} enumeration.
  * </p>
  *
  * @author matt
- * @version 1.2
+ * @version 1.3
  */
 public class PvlibPoaDatumFilterService extends BaseDatumFilterSupport
-		implements DatumFilterService, SettingSpecifierProvider {
+		implements DatumFilterService, SettingSpecifierProvider, ServiceLifecycleObserver {
 
 	/** The {@code ghiPropertyName} property default value. */
 	public static final String DEFAULT_GHI_PROPERTY_NAME = "irradiance";
@@ -111,9 +110,31 @@ public class PvlibPoaDatumFilterService extends BaseDatumFilterSupport
 	 */
 	public static final TranspositionModel DEFAULT_TRANSPOSITION_MODEL = TranspositionModel.HayDavies;
 
+	/**
+	 * The {@code calculationMode} property default value, when {@code command}
+	 * is {@link #DEFAULT_COMMAND}.
+	 *
+	 * <p>
+	 * When a different command is configured, the default mode is
+	 * {@link CalculationMode#Command}, so that a customised command continues
+	 * to be used.
+	 * </p>
+	 *
+	 * @since 1.3
+	 */
+	public static final CalculationMode DEFAULT_CALCULATION_MODE = CalculationMode.Internal;
+
+	/**
+	 * The {@code workerTimeoutSecs} property default value.
+	 *
+	 * @since 1.3
+	 */
+	public static final int DEFAULT_WORKER_TIMEOUT_SECS = 2;
+
 	private final OptionalService<DatumMetadataService> datumMetadataService;
 	private final OptionalFilterableService<MetadataService> characteristicsMetadataService;
 	private final ObjectMapper objectMapper;
+	private final InternalPoaCalculator internalCalculator;
 
 	private String metadataPath;
 	private String alternateMetadataPath;
@@ -130,8 +151,12 @@ public class PvlibPoaDatumFilterService extends BaseDatumFilterSupport
 	private BigDecimal minCosZenith;
 	private BigDecimal maxZenith;
 	private TranspositionModel transpositionModel = DEFAULT_TRANSPOSITION_MODEL;
+	private CalculationMode calculationMode;
 
 	private String command = DEFAULT_COMMAND;
+	private CommandPoaCalculator commandCalculator;
+	private WorkerPoaCalculator workerCalculator;
+	private int workerTimeoutSecs = DEFAULT_WORKER_TIMEOUT_SECS;
 	private String poaResultKey = DEFAULT_POA_RESULT_KEY;
 
 	private ExpressionConfig[] expressionConfigs;
@@ -156,7 +181,20 @@ public class PvlibPoaDatumFilterService extends BaseDatumFilterSupport
 		this.datumMetadataService = requireNonNullArgument(datumMetadataService, "datumMetadataService");
 		this.characteristicsMetadataService = requireNonNullArgument(characteristicsMetadataService,
 				"characteristicsMetadataService");
+		this.internalCalculator = new InternalPoaCalculator();
+		this.commandCalculator = new CommandPoaCalculator(objectMapper, command);
+		this.workerCalculator = new WorkerPoaCalculator(objectMapper, command);
+		this.workerCalculator.setTimeoutMillis(workerTimeoutSecs * 1000L);
+	}
+
+	@Override
+	public void serviceDidStartup() {
+		// nothing to do
+	}
 
+	@Override
+	public synchronized void serviceDidShutdown() {
+		workerCalculator.close();
 	}
 
 	@Override
@@ -259,9 +297,9 @@ public class PvlibPoaDatumFilterService extends BaseDatumFilterSupport
 			cmdArguments.put(CommandOptions.Date.getOption(), datum.getTimestamp().atZone(timeZone)
 					.truncatedTo(ChronoUnit.SECONDS).toLocalDateTime().toString());
 
-			Map<String, ?> result = executeCommand(cmdArguments);
+			Map<String, ?> result = calculate(cmdArguments);
 			if ( result != null ) {
-				log.debug("GHI -> POA command options {} returned {}", cmdArguments, result);
+				log.debug("GHI -> POA options {} returned {}", cmdArguments, result);
 				DatumSamples samplesCopy = new DatumSamples(samples);
 				s = samplesCopy;
 
@@ -317,40 +355,29 @@ public class PvlibPoaDatumFilterService extends BaseDatumFilterSupport
 		}
 	}
 
-	private Map<String, ?> executeCommand(final Map<String, String> args) {
-		String[] cmd = new String[args.size() * 2 + 1];
-		cmd[0] = command;
-		int i = 0;
-		for ( Entry<String, String> e : args.entrySet() ) {
-			cmd[++i] = e.getKey();
-			cmd[++i] = e.getValue();
-		}
-		if ( log.isDebugEnabled() ) {
-			log.debug("Executing GHI -> POA irradiance command: {} ", arrayToDelimitedString(cmd, " "));
-		}
-		ProcessBuilder pb = new ProcessBuilder(cmd);
+	private Map<String, ?> calculate(final Map<String, String> args) {
+		final PoaCalculator calc = calculator(args);
 		try {
-			Process pr = pb.start();
-
-			String json = nonEmptyString(
-					copyToString(new InputStreamReader(pr.getInputStream(), UTF_8)));
-
-			String err = nonEmptyString(copyToString(new InputStreamReader(pr.getErrorStream(), UTF_8)));
-			if ( err != null ) {
-				throw new RuntimeException(
-						String.format("GHI -> POA irradiance command [%s] error: %s", command, err));
-			} else if ( json == null ) {
-				throw new RuntimeException(
-						String.format("GHI -> POA irradiance command [%s] produced no output", command));
+			return calc.calculate(args);
+		} catch ( RuntimeException e ) {
+			if ( calc instanceof WorkerPoaCalculator && internalCalculator.supports(args) ) {
+				log.warn("{}; falling back to internal calculation", e.getMessage());
+				return internalCalculator.calculate(args);
 			}
+			throw e;
+		}
+	}
+
+	private synchronized PoaCalculator calculator(final Map<String, String> args) {
+		switch (getCalculationMode()) {
+			case Command:
+				return commandCalculator;
 
-			return objectMapper.readValue(json, STRING_MAP_TYPE);
-		} catch ( JacksonException e ) {
-			throw new RuntimeException(
-					String.format("Error parsing GHI -> POA irradiance command [%s] output: %s", command,
-							e.getMessage()));
-		} catch ( IOException e ) {
-			throw new RuntimeException(e);
+			case Worker:
+				return workerCalculator;
+
+			default:
+				return (internalCalculator.supports(args) ? internalCalculator : workerCalculator);
 		}
 	}
 
@@ -410,7 +437,20 @@ public class PvlibPoaDatumFilterService extends BaseDatumFilterSupport
 		modelSpec.setValueTitles(modelSpecTitles);
 		results.add(modelSpec);
 
+		// drop-down menu for calculationModeName
+		BasicMultiValueSettingSpecifier calcModeSpec = new BasicMultiValueSettingSpecifier(
+				"calculationModeName", DEFAULT_CALCULATION_MODE.getKey());
+		Map<String, String> calcModeSpecTitles = new LinkedHashMap<>(3);
+		for ( CalculationMode e : CalculationMode.values() ) {
+			calcModeSpecTitles.put(e.getKey(), messageSource.getMessage("calculationMode." + e.getKey(),
+					null, e.name(), Locale.getDefault()));
+		}
+		calcModeSpec.setValueTitles(calcModeSpecTitles);
+		results.add(calcModeSpec);
+
 		results.add(new BasicTextFieldSettingSpecifier("command", DEFAULT_COMMAND));
+		results.add(new BasicTextFieldSettingSpecifier("workerTimeoutSecs",
+				String.valueOf(DEFAULT_WORKER_TIMEOUT_SECS)));
 		results.add(new BasicTextFieldSettingSpecifier("poaResultKey", DEFAULT_POA_RESULT_KEY));
 
 		Iterable<ExpressionService> exprServices = services(getExpressionServices());
@@ -755,8 +795,49 @@ public class PvlibPoaDatumFilterService extends BaseDatumFilterSupport
 	 *        the command to set; if {@code null} or empty then
 	 *        {@link #DEFAULT_COMMAND} will be used
 	 */
-	public final void setCommand(String command) {
-		this.command = (command != null && !command.isEmpty() ? command : DEFAULT_COMMAND);
+	public final synchronized void setCommand(String command) {
+		final String cmd = (command != null && !command.isEmpty() ? command : DEFAULT_COMMAND);
+		if ( cmd.equals(this.command) ) {
+			return;
+		}
+		this.command = cmd;
+		this.commandCalculator = new CommandPoaCalculator(objectMapper, cmd);
+		WorkerPoaCalculator oldWorker = this.workerCalculator;
+		this.workerCalculator = new WorkerPoaCalculator(objectMapper, cmd);
+		this.workerCalculator.setTimeoutMillis(workerTimeoutSecs * 1000L);
+		oldWorker.close();
+	}
+
+	/**
+	 * Get the worker response timeout.
+	 *
+	 * @return the maximum number of seconds to wait for a worker response;
+	 *         defaults to {@link #DEFAULT_WORKER_TIMEOUT_SECS}
+	 * @since 1.3
+	 */
+	public final int getWorkerTimeoutSecs() {
+		return workerTimeoutSecs;
+	}
+
+	/**
+	 * Set the worker response timeout.
+	 *
+	 * <p>
+	 * If the worker does not respond within this time the internal calculator
+	 * is used instead, if it supports the configured transposition model. As
+	 * the calculation is performed on the thread processing the datum, this
+	 * should be kept short. A worker that does not respond within
+	 * {@link WorkerPoaCalculator#DEFAULT_HUNG_TIMEOUT_MILLIS} is stopped.
+	 * </p>
+	 *
+	 * @param workerTimeoutSecs
+	 *        the maximum number of seconds to wait for a worker response, or
+	 *        {@literal 0} to wait forever
+	 * @since 1.3
+	 */
+	public final synchronized void setWorkerTimeoutSecs(int workerTimeoutSecs) {
+		this.workerTimeoutSecs = workerTimeoutSecs;
+		workerCalculator.setTimeoutMillis(workerTimeoutSecs * 1000L);
 	}
 
 	/**
@@ -875,4 +956,64 @@ public class PvlibPoaDatumFilterService extends BaseDatumFilterSupport
 		setTranspositionModel(model);
 	}
 
+	/**
+	 * Get the calculation mode.
+	 *
+	 * @return the mode, never {@literal null}; if no mode has been set then
+	 *         {@link #DEFAULT_CALCULATION_MODE} if {@code command} is
+	 *         {@link #DEFAULT_COMMAND}, otherwise
+	 *         {@link CalculationMode#Command}
+	 * @since 1.3
+	 */
+	public final synchronized CalculationMode getCalculationMode() {
+		if ( calculationMode != null ) {
+			return calculationMode;
+		}
+		return (DEFAULT_COMMAND.equals(command) ? DEFAULT_CALCULATION_MODE
+				: CalculationMode.Command);
+	}
+
+	/**
+	 * Set the calculation mode.
+	 *
+	 * @param calculationMode
+	 *        the mode to set; if {@code null} then the default mode will be
+	 *        used, as described in {@link #getCalculationMode()}
+	 * @since 1.3
+	 */
+	public final synchronized void setCalculationMode(CalculationMode calculationMode) {
+		this.calculationMode = calculationMode;
+		if ( getCalculationMode() == CalculationMode.Command ) {
+			workerCalculator.close();
+		}
+	}
+
+	/**
+	 * Get the calculation mode as a key name.
+	 *
+	 * @return the mode, never {@literal null}
+	 * @since 1.3
+	 */
+	public final String getCalculationModeName() {
+		return getCalculationMode().getKey();
+	}
+
+	/**
+	 * Set the calculation mode as a key name.
+	 *
+	 * @param calculationMode
+	 *        the mode to set; if {@code null} then the default mode will be
+	 *        used, as described in {@link #getCalculationMode()}
+	 * @since 1.3
+	 */
+	public final void setCalculationModeName(String calculationMode) {
+		CalculationMode mode = null;
+		try {
+			mode = CalculationMode.forKey(calculationMode);
+		} catch ( IllegalArgumentException e ) {
+			// ignore, use default
+		}
+		setCalculationMode(mode);
+	}
+
 }
@@ -0,0 +1,217 @@
+/* ==================================================================
+ * SolarPosition.java - 19/10/2026 1:12:08 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.datum.pvlib;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+/**
+ * Solar position calculation.
+ *
+ * <p>
+ * The topocentric position is calculated with the PSA algorithm (Blanco-Muriel
+ * et al., 2001), which is accurate to about 0.01&deg; for years 1999 - 2050.
+ * The apparent position applies the same atmospheric refraction correction as
+ * the NREL SPA algorithm used by pvlib.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 2.1
+ */
+public final class SolarPosition {
+
+	/** The default air temperature, in degrees Celsius, as used by pvlib. */
+	public static final double DEFAULT_TEMPERATURE = 12.0;
+
+	/** The standard atmospheric pressure, in Pascals. */
+	public static final double STANDARD_PRESSURE = 101325.0;
+
+	private static final double TWO_PI = 2.0 * Math.PI;
+
+	/** The ratio of mean Earth radius to one astronomical unit. */
+	private static final double PARALLAX_FACTOR = 6371.01 / 149597890.0;
+
+	/** The sun radius plus atmospheric refraction at sunrise, in degrees. */
+	private static final double REFRACTION_LIMIT = -(0.26667 + 0.5667);
+
+	private final double zenith;
+	private final double apparentZenith;
+	private final double azimuth;
+
+	private SolarPosition(double zenith, double apparentZenith, double azimuth) {
+		super();
+		this.zenith = zenith;
+		this.apparentZenith = apparentZenith;
+		this.azimuth = azimuth;
+	}
+
+	/**
+	 * Calculate the solar position for a point in time and location.
+	 *
+	 * @param date
+	 *        the date
+	 * @param latitude
+	 *        the decimal latitude
+	 * @param longitude
+	 *        the decimal longitude
+	 * @param pressure
+	 *        the atmospheric pressure, in Pascals
+	 * @param temperature
+	 *        the air temperature, in degrees Celsius
+	 * @return the position
+	 */
+	public static SolarPosition calculate(Instant date, double latitude, double longitude,
+			double pressure, double temperature) {
+		final ZonedDateTime utc = date.atZone(ZoneOffset.UTC);
+		final double decimalHours = utc.getHour() + utc.getMinute() / 60.0
+				+ (utc.getSecond() + utc.getNano() / 1e9) / 3600.0;
+
+		// elapsed Julian days since J2000.0
+		final int month = utc.getMonthValue();
+		final int year = utc.getYear();
+		final long aux1 = (month - 14) / 12;
+		final long aux2 = (1461L * (year + 4800 + aux1)) / 4 + (367L * (month - 2 - 12 * aux1)) / 12
+				- (3L * ((year + 4900 + aux1) / 100)) / 4 + utc.getDayOfMonth() - 32075;
+		final double n = (aux2 - 0.5 + decimalHours / 24.0) - 2451545.0;
+
+		// ecliptic coordinates
+		final double omega = 2.1429 - 0.0010394594 * n;
+		final double meanLongitude = 4.8950630 + 0.017202791698 * n;
+		final double meanAnomaly = 6.2400600 + 0.0172019699 * n;
+		final double eclipticLongitude = meanLongitude + 0.03341607 * Math.sin(meanAnomaly)
+				+ 0.00034894 * Math.sin(2 * meanAnomaly) - 0.0001134 - 0.0000203 * Math.sin(omega);
+		final double eclipticObliquity = 0.4090928 - 6.2140e-9 * n + 0.0000396 * Math.cos(omega);
+
+		// celestial coordinates
+		final double sinEclipticLongitude = Math.sin(eclipticLongitude);
+		double rightAscension = Math.atan2(Math.cos(eclipticObliquity) * sinEclipticLongitude,
+				Math.cos(eclipticLongitude));
+		if ( rightAscension < 0.0 ) {
+			rightAscension += TWO_PI;
+		}
+		final double declination = Math.asin(Math.sin(eclipticObliquity) * sinEclipticLongitude);
+
+		// local coordinates
+		final double gmst = 6.6974243242 + 0.0657098283 * n + decimalHours;
+		final double lmst = Math.toRadians(gmst * 15.0 + longitude);
+		final double hourAngle = lmst - rightAscension;
+		final double latRad = Math.toRadians(latitude);
+		final double cosLat = Math.cos(latRad);
+		final double sinLat = Math.sin(latRad);
+		final double cosHourAngle = Math.cos(hourAngle);
+
+		double zenithRad = Math.acos(cosLat * cosHourAngle * Math.cos(declination)
+				+ Math.sin(declination) * sinLat);
+		double azimuthRad = Math.atan2(-Math.sin(hourAngle),
+				Math.tan(declination) * cosLat - sinLat * cosHourAngle);
+		if ( azimuthRad < 0.0 ) {
+			azimuthRad += TWO_PI;
+		}
+		zenithRad += PARALLAX_FACTOR * Math.sin(zenithRad);
+
+		final double zenith = Math.toDegrees(zenithRad);
+		final double elevation = 90.0 - zenith;
+		double refraction = 0.0;
+		if ( elevation >= REFRACTION_LIMIT ) {
+			refraction = (pressure / 100.0 / 1010.0) * (283.0 / (273.0 + temperature)) * 1.02
+					/ (60.0 * Math.tan(Math.toRadians(elevation + 10.3 / (elevation + 5.11))));
+		}
+		return new SolarPosition(zenith, 90.0 - (elevation + refraction),
+				Math.toDegrees(azimuthRad));
+	}
+
+	/**
+	 * Calculate the solar position for a point in time and location, using
+	 * the standard atmosphere for a given altitude.
+	 *
+	 * @param date
+	 *        the date
+	 * @param latitude
+	 *        the decimal latitude
+	 * @param longitude
+	 *        the decimal longitude
+	 * @param altitude
+	 *        the altitude, in meters above sea level
+	 * @return the position
+	 * @see #altitudeToPressure(double)
+	 */
+	public static SolarPosition calculate(Instant date, double latitude, double longitude,
+			double altitude) {
+		return calculate(date, latitude, longitude, altitudeToPressure(altitude),
+				DEFAULT_TEMPERATURE);
+	}
+
+	/**
+	 * Determine the standard atmospheric pressure for an altitude.
+	 *
+	 * @param altitude
+	 *        the altitude, in meters above sea level
+	 * @return the pressure, in Pascals
+	 */
+	public static double altitudeToPressure(double altitude) {
+		return 100.0 * Math.pow((44331.514 - altitude) / 11880.516, 1.0 / 0.1902632);
+	}
+
+	/**
+	 * Get the true zenith angle.
+	 *
+	 * @return the zenith, in degrees
+	 */
+	public double getZenith() {
+		return zenith;
+	}
+
+	/**
+	 * Get the apparent zenith angle, corrected for atmospheric refraction.
+	 *
+	 * @return the apparent zenith, in degrees
+	 */
+	public double getApparentZenith() {
+		return apparentZenith;
+	}
+
+	/**
+	 * Get the azimuth angle.
+	 *
+	 * @return the azimuth, in degrees clockwise from north
+	 */
+	public double getAzimuth() {
+		return azimuth;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("SolarPosition{zenith=");
+		builder.append(zenith);
+		builder.append(", apparentZenith=");
+		builder.append(apparentZenith);
+		builder.append(", azimuth=");
+		builder.append(azimuth);
+		builder.append("}");
+		return builder.toString();
+	}
+
+}
@@ -0,0 +1,412 @@
+/* ==================================================================
+ * WorkerPoaCalculator.java - 19/10/2026 2:48:03 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.datum.pvlib;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonList;
+import static net.solarnetwork.util.ObjectUtils.requireNonNullArgument;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * GHI to POA irradiance calculator that uses a persistent external worker
+ * process.
+ *
+ * <p>
+ * The worker process is started by executing the configured command with the
+ * {@link #WORKER_OPTION} argument, and is kept running between calculations.
+ * The worker protocol is line based: each request is a single line containing
+ * a JSON array of argument objects, using {@link CommandOptions#getName()}
+ * values as keys. The worker must respond with a single line containing a JSON
+ * array of result objects, in the same order as the requests. A result object
+ * with an {@code error} property represents a failed calculation.
+ * </p>
+ *
+ * <p>
+ * A calculation waits at most {@code timeoutMillis} for a response. If the
+ * worker has not responded by then, the calculation fails but the worker is
+ * left running, to allow for a slow start, and further calculations fail
+ * immediately until the late response has been received. If the worker does
+ * not respond within {@code hungTimeoutMillis}, exits, or the protocol fails,
+ * the process is stopped and a new one will be started for the next
+ * calculation.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 2.1
+ */
+public class WorkerPoaCalculator implements PoaCalculator, Closeable {
+
+	/** The command argument to start the worker mode with. */
+	public static final String WORKER_OPTION = "--worker";
+
+	/** The result key for a calculation error message. */
+	public static final String ERROR_KEY = "error";
+
+	/** The {@code timeoutMillis} property default value. */
+	public static final long DEFAULT_TIMEOUT_MILLIS = 2_000L;
+
+	/** The {@code hungTimeoutMillis} property default value. */
+	public static final long DEFAULT_HUNG_TIMEOUT_MILLIS = 30_000L;
+
+	private static final TypeReference<List<Map<String, Object>>> RESULT_LIST_TYPE = new TypeReference<List<Map<String, Object>>>() {
+	};
+
+	private static final Logger log = LoggerFactory.getLogger(WorkerPoaCalculator.class);
+
+	private final ObjectMapper objectMapper;
+	private final String command;
+	private volatile long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+	private volatile long hungTimeoutMillis = DEFAULT_HUNG_TIMEOUT_MILLIS;
+
+	private Process process;
+	private BufferedWriter input;
+	private BufferedReader output;
+	private ExecutorService reader;
+	private Future<String> pending;
+	private long pendingSince;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param objectMapper
+	 *        the object mapper to use
+	 * @param command
+	 *        the OS command to execute
+	 * @throws IllegalArgumentException
+	 *         if any argument is {@literal null}
+	 */
+	public WorkerPoaCalculator(ObjectMapper objectMapper, String command) {
+		super();
+		this.objectMapper = requireNonNullArgument(objectMapper, "objectMapper");
+		this.command = requireNonNullArgument(command, "command");
+	}
+
+	@Override
+	public Map<String, ?> calculate(Map<String, String> arguments) {
+		return calculate(singletonList(arguments)).get(0);
+	}
+
+	/**
+	 * Calculate a batch of POA irradiance values with a single worker request.
+	 *
+	 * @param arguments
+	 *        the list of calculation arguments, each using
+	 *        {@link CommandOptions} option values as keys
+	 * @return the calculation results, in the same order as {@code arguments}
+	 * @throws RuntimeException
+	 *         if any error occurs
+	 */
+	public synchronized List<Map<String, ?>> calculate(List<Map<String, String>> arguments) {
+		List<Map<String, String>> requests = new ArrayList<>(arguments.size());
+		for ( Map<String, String> args : arguments ) {
+			Map<String, String> req = new LinkedHashMap<>(args.size());
+			for ( Entry<String, String> e : args.entrySet() ) {
+				String key = e.getKey();
+				req.put(key.startsWith("--") ? key.substring(2) : key, e.getValue());
+			}
+			requests.add(req);
+		}
+		final List<Map<String, Object>> results;
+		try {
+			final String line = objectMapper.writeValueAsString(requests);
+			checkPending();
+			startWorker();
+			log.debug("Sending GHI -> POA irradiance worker [{}] request: {}", command, line);
+			final long sent = System.currentTimeMillis();
+			input.write(line);
+			input.newLine();
+			input.flush();
+			String resp = readResponse(sent);
+			if ( resp == null ) {
+				throw new IOException("worker process exited");
+			}
+			results = objectMapper.readValue(resp, RESULT_LIST_TYPE);
+			if ( results == null || results.size() != requests.size() ) {
+				throw new IOException(String.format("expected %d results but received %d",
+						requests.size(), (results != null ? results.size() : 0)));
+			}
+		} catch ( WorkerPendingException e ) {
+			throw new RuntimeException(String.format("GHI -> POA irradiance worker [%s] error: %s",
+					command, e.getMessage()), e);
+		} catch ( IOException e ) {
+			stopWorker(e instanceof WorkerTimeoutException);
+			throw new RuntimeException(String.format("GHI -> POA irradiance worker [%s] error: %s",
+					command, e.getMessage()), e);
+		}
+		List<Map<String, ?>> list = new ArrayList<>(results.size());
+		for ( Map<String, Object> result : results ) {
+			Object err = (result != null ? result.get(ERROR_KEY) : null);
+			if ( result == null || err != null ) {
+				throw new RuntimeException(
+						String.format("GHI -> POA irradiance worker [%s] error: %s", command, err));
+			}
+			list.add(result);
+		}
+		return list;
+	}
+
+	/**
+	 * Check for a response still pending from an earlier request.
+	 *
+	 * <p>
+	 * A late response is read (and discarded) by the pending read task, so the
+	 * next response read belongs to the next request.
+	 * </p>
+	 *
+	 * @throws WorkerPendingException
+	 *         if a response is still pending
+	 * @throws WorkerTimeoutException
+	 *         if a response has been pending for longer than
+	 *         {@code hungTimeoutMillis}
+	 */
+	private void checkPending() throws IOException {
+		final Future<String> f = this.pending;
+		if ( f == null ) {
+			return;
+		}
+		if ( f.isDone() ) {
+			log.debug("Discarding late GHI -> POA irradiance worker [{}] response", command);
+			this.pending = null;
+			return;
+		}
+		final long hungMs = hungTimeoutMillis;
+		if ( hungMs > 0 && System.currentTimeMillis() - pendingSince >= hungMs ) {
+			throw new WorkerTimeoutException(String.format("no response within %dms", hungMs));
+		}
+		throw new WorkerPendingException("waiting for response to previous request");
+	}
+
+	/**
+	 * Read a response line from the worker, waiting at most
+	 * {@code timeoutMillis}.
+	 *
+	 * <p>
+	 * The line is read on a separate thread, so that the calling thread is not
+	 * blocked by a slow or hung worker. If no response is received in time,
+	 * the read is left pending.
+	 * </p>
+	 *
+	 * @param sent
+	 *        the time the request was sent
+	 */
+	private String readResponse(long sent) throws IOException {
+		final BufferedReader out = this.output;
+		final Future<String> f = reader.submit(out::readLine);
+		final long timeoutMs = timeoutMillis;
+		try {
+			return (timeoutMs > 0 ? f.get(timeoutMs, TimeUnit.MILLISECONDS) : f.get());
+		} catch ( TimeoutException e ) {
+			this.pending = f;
+			this.pendingSince = sent;
+			throw new WorkerPendingException(String.format("no response within %dms", timeoutMs));
+		} catch ( InterruptedException e ) {
+			f.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted waiting for response");
+		} catch ( ExecutionException e ) {
+			Throwable t = e.getCause();
+			if ( t instanceof IOException ) {
+				throw (IOException) t;
+			}
+			throw new IOException(t.toString(), t);
+		}
+	}
+
+	/** Exception thrown when the worker has not responded yet. */
+	private static final class WorkerPendingException extends IOException {
+
+		private static final long serialVersionUID = 2601788496458036641L;
+
+		private WorkerPendingException(String message) {
+			super(message);
+		}
+
+	}
+
+	/** Exception thrown when the worker is considered hung. */
+	private static final class WorkerTimeoutException extends IOException {
+
+		private static final long serialVersionUID = -3185096476232207153L;
+
+		private WorkerTimeoutException(String message) {
+			super(message);
+		}
+
+	}
+
+	private void startWorker() throws IOException {
+		if ( process != null && process.isAlive() ) {
+			return;
+		}
+		stopWorker(false);
+		log.info("Starting GHI -> POA irradiance worker: {} {}", command, WORKER_OPTION);
+		ProcessBuilder pb = new ProcessBuilder(command, WORKER_OPTION);
+		pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+		Process pr = pb.start();
+		this.process = pr;
+		this.input = new BufferedWriter(new OutputStreamWriter(pr.getOutputStream(), UTF_8));
+		this.output = new BufferedReader(new InputStreamReader(pr.getInputStream(), UTF_8));
+		this.reader = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "GHI-POA-Worker-Reader");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	private void stopWorker(boolean force) {
+		final Process pr = this.process;
+		if ( pr == null ) {
+			return;
+		}
+		log.info("Stopping GHI -> POA irradiance worker: {} {}", command, WORKER_OPTION);
+		if ( force ) {
+			pr.destroyForcibly();
+		} else {
+			pr.destroy();
+		}
+		try {
+			input.close();
+		} catch ( IOException e ) {
+			// ignore
+		}
+		// close output on the reader thread, as a pending read holds the reader lock until the
+		// process exits
+		final BufferedReader out = this.output;
+		final ExecutorService r = this.reader;
+		r.execute(() -> {
+			try {
+				out.close();
+			} catch ( IOException e ) {
+				// ignore
+			}
+		});
+		r.shutdown();
+		this.pending = null;
+		this.process = null;
+		this.input = null;
+		this.output = null;
+		this.reader = null;
+	}
+
+	/**
+	 * Stop the worker process, if running.
+	 */
+	@Override
+	public synchronized void close() {
+		stopWorker(false);
+	}
+
+	/**
+	 * Test if the worker process is running.
+	 *
+	 * @return {@literal true} if the worker process is running
+	 */
+	public synchronized boolean isRunning() {
+		return (process != null && process.isAlive());
+	}
+
+	/**
+	 * Get the response timeout.
+	 *
+	 * @return the maximum number of milliseconds to wait for a worker
+	 *         response; defaults to {@link #DEFAULT_TIMEOUT_MILLIS}
+	 */
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	/**
+	 * Set the response timeout.
+	 *
+	 * <p>
+	 * If the worker does not respond within this time, the calculation fails.
+	 * </p>
+	 *
+	 * @param timeoutMillis
+	 *        the maximum number of milliseconds to wait for a worker response,
+	 *        or {@literal 0} to wait forever
+	 */
+	public void setTimeoutMillis(long timeoutMillis) {
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * Get the hung worker timeout.
+	 *
+	 * @return the maximum number of milliseconds to wait for a late worker
+	 *         response before stopping the worker; defaults to
+	 *         {@link #DEFAULT_HUNG_TIMEOUT_MILLIS}
+	 */
+	public long getHungTimeoutMillis() {
+		return hungTimeoutMillis;
+	}
+
+	/**
+	 * Set the hung worker timeout.
+	 *
+	 * <p>
+	 * If the worker has not responded to a request within this time, it is
+	 * forcibly stopped. This allows for a slow worker start without blocking
+	 * each calculation for that long.
+	 * </p>
+	 *
+	 * @param hungTimeoutMillis
+	 *        the maximum number of milliseconds to wait for a late worker
+	 *        response, or {@literal 0} to wait forever
+	 */
+	public void setHungTimeoutMillis(long hungTimeoutMillis) {
+		this.hungTimeoutMillis = hungTimeoutMillis;
+	}
+
+	/**
+	 * Get the command.
+	 *
+	 * @return the command
+	 */
+	public final String getCommand() {
+		return command;
+	}
+
+}
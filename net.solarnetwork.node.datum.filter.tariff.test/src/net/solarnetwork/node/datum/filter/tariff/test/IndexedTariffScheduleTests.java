@@ -0,0 +1,153 @@
+/* ==================================================================
+ * IndexedTariffScheduleTests.java - 19/10/2026 5:02:44 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.datum.filter.tariff.test;
+
+import static java.util.Collections.emptyMap;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import java.io.InputStreamReader;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.junit.Test;
+import org.springframework.util.FileCopyUtils;
+import net.solarnetwork.domain.tariff.SimpleTemporalRangesTariffEvaluator;
+import net.solarnetwork.domain.tariff.Tariff;
+import net.solarnetwork.domain.tariff.TariffSchedule;
+import net.solarnetwork.domain.tariff.TariffUtils;
+import net.solarnetwork.node.datum.filter.tariff.IndexedTariffSchedule;
+
+/**
+ * Test cases for the {@link IndexedTariffSchedule} class.
+ *
+ * @author matt
+ * @version 1.0
+ */
+public class IndexedTariffScheduleTests {
+
+	private String stringResource(String resource) {
+		try {
+			return FileCopyUtils.copyToString(
+					new InputStreamReader(getClass().getResourceAsStream(resource), "UTF-8"));
+		} catch ( Exception e ) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private TariffSchedule schedule(String resource, boolean firstMatchOnly) throws Exception {
+		return TariffUtils.parseCsvTemporalRangeSchedule(Locale.getDefault(), false, firstMatchOnly,
+				SimpleTemporalRangesTariffEvaluator.DEFAULT_EVALUATOR, stringResource(resource));
+	}
+
+	private static Map<String, Object> rates(Tariff t) {
+		if ( t == null ) {
+			return null;
+		}
+		Map<String, Object> m = new LinkedHashMap<>(4);
+		for ( Entry<String, ? extends Tariff.Rate> e : t.getRates().entrySet() ) {
+			m.put(e.getKey(), e.getValue().getAmount());
+		}
+		return m;
+	}
+
+	private void assertMatchesDelegate(TariffSchedule delegate, IndexedTariffSchedule idx) {
+		for ( LocalDateTime date = idx.getStart(); date.isBefore(idx.getEnd()); date = date
+				.plusMinutes(7) ) {
+			assertThat("Index is used for " + date, idx.isIndexed(date), is(true));
+			assertThat("Rates at " + date, rates(idx.resolveTariff(date, emptyMap())),
+					is(equalTo(rates(delegate.resolveTariff(date, emptyMap())))));
+		}
+	}
+
+	@Test
+	public void firstMatch() throws Exception {
+		// GIVEN
+		TariffSchedule delegate = schedule("test-tariffs-01.csv", true);
+
+		// WHEN
+		IndexedTariffSchedule idx = IndexedTariffSchedule.index(delegate,
+				LocalDateTime.of(2021, 5, 13, 0, 0), 7);
+
+		// THEN
+		assertThat("Start", idx.getStart(), is(equalTo(LocalDateTime.of(2021, 5, 13, 0, 0))));
+		assertThat("End", idx.getEnd(), is(equalTo(LocalDateTime.of(2021, 5, 20, 0, 0))));
+		// Thu - Wed: 0-8 and 8-24 intervals for each day
+		assertThat("Consecutive equal rates combined into intervals", idx.getIntervalCount(),
+				is(14));
+		assertMatchesDelegate(delegate, idx);
+	}
+
+	@Test
+	public void multiMatch() throws Exception {
+		// GIVEN
+		TariffSchedule delegate = schedule("test-tariffs-02.csv", false);
+
+		// WHEN
+		IndexedTariffSchedule idx = IndexedTariffSchedule.index(delegate,
+				LocalDateTime.of(2021, 5, 13, 0, 0), 7);
+
+		// THEN
+		assertMatchesDelegate(delegate, idx);
+	}
+
+	@Test
+	public void outsideHorizon() throws Exception {
+		// GIVEN
+		TariffSchedule delegate = schedule("test-tariffs-01.csv", true);
+		IndexedTariffSchedule idx = IndexedTariffSchedule.index(delegate,
+				LocalDateTime.of(2021, 5, 13, 0, 0), 1);
+
+		// WHEN
+		LocalDateTime date = LocalDateTime.of(2021, 5, 15, 2, 0);
+		Tariff t = idx.resolveTariff(date, emptyMap());
+
+		// THEN
+		assertThat("Date not indexed", idx.isIndexed(date), is(false));
+		assertThat("Delegate resolved tariff", rates(t),
+				is(equalTo(rates(delegate.resolveTariff(date, emptyMap())))));
+	}
+
+	@Test
+	public void noMatch() throws Exception {
+		// GIVEN
+		TariffSchedule delegate = TariffUtils.parseCsvTemporalRangeSchedule(Locale.getDefault(),
+				false, true, SimpleTemporalRangesTariffEvaluator.DEFAULT_EVALUATOR,
+				"Month,Day Range,Day of Week Range,Hour of Day Range,Rate\n"
+						+ "January-December,,Mon-Fri,8-17,1.23\n");
+
+		// WHEN
+		IndexedTariffSchedule idx = IndexedTariffSchedule.index(delegate,
+				LocalDateTime.of(2021, 5, 15, 0, 0), 1);
+
+		// THEN
+		assertThat("Single interval for Saturday", idx.getIntervalCount(), is(1));
+		assertThat("No tariff on Saturday",
+				idx.resolveTariff(LocalDateTime.of(2021, 5, 15, 12, 0), emptyMap()),
+				is(nullValue()));
+	}
+
+}
@@ -26,6 +26,7 @@ import static java.util.Collections.emptyMap;
 import static org.easymock.EasyMock.expect;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.sameInstance;
@@ -42,6 +43,8 @@ import net.solarnetwork.domain.datum.DatumSamples;
 import net.solarnetwork.domain.datum.DatumSamplesOperations;
 import net.solarnetwork.domain.datum.DatumSamplesType;
 import net.solarnetwork.domain.tariff.SimpleTemporalRangesTariffEvaluator;
+import net.solarnetwork.domain.tariff.TariffSchedule;
+import net.solarnetwork.node.datum.filter.tariff.IndexedTariffSchedule;
 import net.solarnetwork.node.datum.filter.tariff.TariffDatumFilterService;
 import net.solarnetwork.node.domain.datum.SimpleDatum;
 import net.solarnetwork.node.service.MetadataService;
@@ -52,7 +55,7 @@ import net.solarnetwork.service.StaticOptionalService;
  * Test cases for the {@link TariffDatumFilterService} class.
  *
  * @author matt
- * @version 2.0
+ * @version 2.1
  */
 public class TariffDatumFilterServiceTests {
 
@@ -203,4 +206,48 @@ public class TariffDatumFilterServiceTests {
 				is(equalTo(new BigDecimal("11.00"))));
 	}
 
+	@Test
+	public void indexed() {
+		// GIVEN
+		String csv = stringResource("test-tariffs-01.csv");
+		expect(metadataService.metadataAtPath(META_PATH)).andReturn(csv);
+
+		LocalDateTime datumDate = LocalDateTime.now().withHour(12);
+		SimpleDatum d = SimpleDatum.nodeDatum("test",
+				datumDate.atZone(ZoneId.systemDefault()).toInstant(), new DatumSamples());
+
+		// WHEN
+		replayAll();
+		DatumSamplesOperations result = service.filter(d, d.getSamples(), emptyMap());
+		TariffSchedule schedule = service.tariffSchedule();
+
+		// THEN
+		assertThat("Cached schedule indexed", schedule, is(instanceOf(IndexedTariffSchedule.class)));
+		assertThat("Datum date indexed", ((IndexedTariffSchedule) schedule).isIndexed(datumDate),
+				is(true));
+		BigDecimal expected = switch (datumDate.getDayOfWeek()) {
+			case SATURDAY, SUNDAY -> new BigDecimal("11.21");
+			default -> new BigDecimal("11.00");
+		};
+		assertThat("Rate applied from index",
+				result.getSampleBigDecimal(DatumSamplesType.Instantaneous, "rate"),
+				is(equalTo(expected)));
+	}
+
+	@Test
+	public void indexed_disabled() {
+		// GIVEN
+		service.setIndexHorizonDays(0);
+		String csv = stringResource("test-tariffs-01.csv");
+		expect(metadataService.metadataAtPath(META_PATH)).andReturn(csv);
+
+		// WHEN
+		replayAll();
+		TariffSchedule schedule = service.tariffSchedule();
+
+		// THEN
+		assertThat("Cached schedule not indexed", schedule,
+				is(not(instanceOf(IndexedTariffSchedule.class))));
+	}
+
 }
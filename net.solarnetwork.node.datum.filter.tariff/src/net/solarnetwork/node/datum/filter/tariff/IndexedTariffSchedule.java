@@ -0,0 +1,230 @@
+/* ==================================================================
+ * IndexedTariffSchedule.java - 19/10/2026 4:35:12 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.datum.filter.tariff;
+
+import static java.util.Collections.emptyMap;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import net.solarnetwork.domain.tariff.Tariff;
+import net.solarnetwork.domain.tariff.Tariff.Rate;
+import net.solarnetwork.domain.tariff.TariffSchedule;
+
+/**
+ * A {@link TariffSchedule} that pre-computes the resolved tariffs of another
+ * schedule over a fixed time horizon.
+ *
+ * <p>
+ * The delegate schedule is evaluated at every minute within the horizon, and
+ * consecutive minutes that resolve to equivalent tariffs are combined into a
+ * sorted table of non-overlapping intervals. Resolving a tariff for a date
+ * within the horizon is then a binary search on that table. Dates outside the
+ * horizon are resolved by the delegate schedule. The tariff rules are assumed
+ * to have at most minute precision, and to not depend on the parameters passed
+ * to {@link #resolveTariff(LocalDateTime, Map)}.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 4.2
+ */
+public class IndexedTariffSchedule implements TariffSchedule {
+
+	private final TariffSchedule delegate;
+	private final LocalDateTime start;
+	private final LocalDateTime end;
+	private final long startMinute;
+	private final long endMinute;
+	private final long[] intervalStarts;
+	private final Tariff[] intervalTariffs;
+
+	private IndexedTariffSchedule(TariffSchedule delegate, LocalDateTime start, LocalDateTime end,
+			long[] intervalStarts, Tariff[] intervalTariffs) {
+		super();
+		this.delegate = delegate;
+		this.start = start;
+		this.end = end;
+		this.startMinute = epochMinute(start);
+		this.endMinute = epochMinute(end);
+		this.intervalStarts = intervalStarts;
+		this.intervalTariffs = intervalTariffs;
+	}
+
+	/**
+	 * Create an index for a schedule.
+	 *
+	 * @param delegate
+	 *        the schedule to index
+	 * @param start
+	 *        the start of the horizon to index; will be truncated to minutes
+	 * @param days
+	 *        the number of days in the horizon
+	 * @return the indexed schedule
+	 * @throws IllegalArgumentException
+	 *         if {@code delegate} or {@code start} are {@literal null} or
+	 *         {@code days} is less than {@code 1}
+	 */
+	public static IndexedTariffSchedule index(TariffSchedule delegate, LocalDateTime start,
+			int days) {
+		if ( delegate == null ) {
+			throw new IllegalArgumentException("The delegate argument must not be null.");
+		}
+		if ( start == null ) {
+			throw new IllegalArgumentException("The start argument must not be null.");
+		}
+		if ( days < 1 ) {
+			throw new IllegalArgumentException("The days argument must be at least 1.");
+		}
+		final LocalDateTime s = start.truncatedTo(ChronoUnit.MINUTES);
+		final LocalDateTime e = s.plusDays(days);
+		final int minutes = (int) ChronoUnit.MINUTES.between(s, e);
+
+		long[] starts = new long[64];
+		Tariff[] tariffs = new Tariff[64];
+		int count = 0;
+		LocalDateTime date = s;
+		for ( int i = 0; i < minutes; i++, date = date.plusMinutes(1) ) {
+			Tariff t = delegate.resolveTariff(date, emptyMap());
+			if ( count > 0 && sameRates(tariffs[count - 1], t) ) {
+				continue;
+			}
+			if ( count == starts.length ) {
+				starts = Arrays.copyOf(starts, count * 2);
+				tariffs = Arrays.copyOf(tariffs, count * 2);
+			}
+			starts[count] = epochMinute(date);
+			tariffs[count] = t;
+			count++;
+		}
+		return new IndexedTariffSchedule(delegate, s, e, Arrays.copyOf(starts, count),
+				Arrays.copyOf(tariffs, count));
+	}
+
+	private static long epochMinute(LocalDateTime date) {
+		return Math.floorDiv(date.toEpochSecond(ZoneOffset.UTC), 60L);
+	}
+
+	private static boolean sameRates(Tariff a, Tariff b) {
+		if ( a == b ) {
+			return true;
+		}
+		if ( a == null || b == null ) {
+			return false;
+		}
+		Map<String, ? extends Rate> ra = a.getRates();
+		Map<String, ? extends Rate> rb = b.getRates();
+		if ( ra == null || rb == null || ra.size() != rb.size() ) {
+			return (ra == rb);
+		}
+		for ( Entry<String, ? extends Rate> e : ra.entrySet() ) {
+			Rate r1 = e.getValue();
+			Rate r2 = rb.get(e.getKey());
+			if ( r1 == r2 ) {
+				continue;
+			}
+			if ( r1 == null || r2 == null || !Objects.equals(r1.getId(), r2.getId())
+					|| !Objects.equals(r1.getAmount(), r2.getAmount())
+					|| !Objects.equals(r1.getDescription(), r2.getDescription()) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public Collection<? extends Tariff> rules() {
+		return delegate.rules();
+	}
+
+	@Override
+	public Tariff resolveTariff(LocalDateTime date, Map<String, ?> parameters) {
+		if ( date != null ) {
+			final long minute = epochMinute(date);
+			if ( minute >= startMinute && minute < endMinute ) {
+				int idx = Arrays.binarySearch(intervalStarts, minute);
+				if ( idx < 0 ) {
+					idx = -idx - 2;
+				}
+				return intervalTariffs[idx];
+			}
+		}
+		return delegate.resolveTariff(date, parameters);
+	}
+
+	/**
+	 * Test if a date falls within the indexed horizon.
+	 *
+	 * @param date
+	 *        the date to test
+	 * @return {@literal true} if {@code date} is within the indexed horizon
+	 */
+	public boolean isIndexed(LocalDateTime date) {
+		if ( date == null ) {
+			return false;
+		}
+		final long minute = epochMinute(date);
+		return (minute >= startMinute && minute < endMinute);
+	}
+
+	/**
+	 * Get the delegate schedule.
+	 *
+	 * @return the delegate
+	 */
+	public TariffSchedule getDelegate() {
+		return delegate;
+	}
+
+	/**
+	 * Get the indexed horizon starting date.
+	 *
+	 * @return the start date, inclusive
+	 */
+	public LocalDateTime getStart() {
+		return start;
+	}
+
+	/**
+	 * Get the indexed horizon ending date.
+	 *
+	 * @return the end date, exclusive
+	 */
+	public LocalDateTime getEnd() {
+		return end;
+	}
+
+	/**
+	 * Get the number of intervals in the index.
+	 *
+	 * @return the interval count
+	 */
+	public int getIntervalCount() {
+		return intervalStarts.length;
+	}
+
+}
@@ -25,6 +25,7 @@ package net.solarnetwork.node.datum.filter.tariff;
 import static net.solarnetwork.domain.tariff.SimpleTemporalRangesTariffEvaluator.DEFAULT_EVALUATOR;
 import static net.solarnetwork.service.OptionalService.service;
 import java.io.IOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Collection;
@@ -39,6 +40,7 @@ import net.solarnetwork.domain.datum.Datum;
 import net.solarnetwork.domain.datum.DatumSamples;
 import net.solarnetwork.domain.datum.DatumSamplesOperations;
 import net.solarnetwork.domain.datum.DatumSamplesType;
+import net.solarnetwork.domain.tariff.SimpleTemporalRangesTariffEvaluator;
 import net.solarnetwork.domain.tariff.SimpleTemporalTariffSchedule;
 import net.solarnetwork.domain.tariff.Tariff;
 import net.solarnetwork.domain.tariff.Tariff.Rate;
@@ -64,8 +66,16 @@ import net.solarnetwork.util.CachedResult;
  * Transform service that can resolve a time-of-use based tarrif from
  * spreadsheet style tariff metadata.
  *
+ * <p>
+ * When the default tariff evaluator is used, the cached schedule is compiled
+ * into an {@link IndexedTariffSchedule} covering {@link #getIndexHorizonDays()}
+ * days from the start of the current day, every time the cache is refreshed.
+ * Tariff lookups within that horizon, including those made by expressions via
+ * {@link TariffScheduleProvider}, are then resolved by a binary search.
+ * </p>
+ *
  * @author matt
- * @version 1.5
+ * @version 1.6
  * @since 2.0
  */
 public class TariffDatumFilterService extends BaseDatumFilterSupport implements DatumFilterService,
@@ -77,6 +87,13 @@ public class TariffDatumFilterService extends BaseDatumFilterSupport implements
 	/** The {@code scheduleCacheSeconds} default value (12 hours). */
 	public static final int DEFAULT_SCHEDULE_CACHE_SECONDS = 60 * 60 * 12;
 
+	/**
+	 * The {@code indexHorizonDays} default value.
+	 *
+	 * @since 1.6
+	 */
+	public static final int DEFAULT_INDEX_HORIZON_DAYS = 7;
+
 	private final OptionalFilterableService<MetadataService> metadataService;
 	private final OptionalFilterableService<TemporalTariffEvaluator> evaluator;
 	private String tariffMetadataPath = DEFAULT_TARIFF_METADATA_PATH;
@@ -84,6 +101,7 @@ public class TariffDatumFilterService extends BaseDatumFilterSupport implements
 	private int scheduleCacheSeconds = DEFAULT_SCHEDULE_CACHE_SECONDS;
 	private boolean firstMatchOnly = SimpleTemporalTariffSchedule.DEFAULT_FIRST_MATCH_ONLY;
 	private boolean preserveRateCase;
+	private int indexHorizonDays = DEFAULT_INDEX_HORIZON_DAYS;
 
 	private final AtomicReference<CachedResult<TariffSchedule>> schedule = new AtomicReference<>();
 
@@ -169,6 +187,8 @@ public class TariffDatumFilterService extends BaseDatumFilterSupport implements
 		result.add(new BasicToggleSettingSpecifier("preserveRateCase", Boolean.FALSE));
 		result.add(new BasicTextFieldSettingSpecifier("scheduleCacheSeconds",
 				String.valueOf(DEFAULT_SCHEDULE_CACHE_SECONDS)));
+		result.add(new BasicTextFieldSettingSpecifier("indexHorizonDays",
+				String.valueOf(DEFAULT_INDEX_HORIZON_DAYS)));
 		result.add(new BasicTextFieldSettingSpecifier("evaluatorUid", null, false,
 				"(objectClass=net.solarnetwork.domain.tariff.TemporalTariffEvaluator)"));
 		result.add(new BasicTextFieldSettingSpecifier("language", null));
@@ -204,6 +224,12 @@ public class TariffDatumFilterService extends BaseDatumFilterSupport implements
 					null));
 			buf.append("</p>");
 		}
+		if ( schedule instanceof IndexedTariffSchedule idx ) {
+			buf.append("<p>");
+			buf.append(messageSource.getMessage("index.info",
+					new Object[] { idx.getIntervalCount(), idx.getStart(), idx.getEnd() }, null));
+			buf.append("</p>");
+		}
 		return buf.toString();
 	}
 
@@ -242,7 +268,7 @@ public class TariffDatumFilterService extends BaseDatumFilterSupport implements
 				if ( s == null ) {
 					return null;
 				}
-				return new CachedResult<>(s, scheduleCacheSeconds, TimeUnit.SECONDS);
+				return new CachedResult<>(indexSchedule(s), scheduleCacheSeconds, TimeUnit.SECONDS);
 			} catch ( Exception e ) {
 				log.warn(
 						"Error parsing tariff filter [{}] from metadata at path [{}], unable to resolve tariff schedule: {}",
@@ -253,6 +279,21 @@ public class TariffDatumFilterService extends BaseDatumFilterSupport implements
 		return (r != null ? r.getResult() : null);
 	}
 
+	private TariffSchedule indexSchedule(TariffSchedule s) {
+		final int days = indexHorizonDays;
+		if ( days < 1 || s.rules().isEmpty()
+				|| !(evaluator() instanceof SimpleTemporalRangesTariffEvaluator) ) {
+			return s;
+		}
+		final long start = System.currentTimeMillis();
+		IndexedTariffSchedule idx = IndexedTariffSchedule.index(s, LocalDate.now().atStartOfDay(),
+				days);
+		log.debug("Indexed tariff filter [{}] schedule into {} intervals from {} to {} in {}ms",
+				getUid(), idx.getIntervalCount(), idx.getStart(), idx.getEnd(),
+				System.currentTimeMillis() - start);
+		return idx;
+	}
+
 	private TariffSchedule parseSchedule(Object o) throws IOException {
 		return TariffUtils.parseCsvTemporalRangeSchedule(locale, preserveRateCase, firstMatchOnly,
 				evaluator(), o);
@@ -429,4 +470,29 @@ public class TariffDatumFilterService extends BaseDatumFilterSupport implements
 	public final void setPreserveRateCase(boolean preserveRateCase) {
 		this.preserveRateCase = preserveRateCase;
 	}
+
+	/**
+	 * Get the number of days to pre-compute tariffs for.
+	 *
+	 * @return the number of days, starting from the current day, to index
+	 *         the tariff schedule for when it is cached; defaults to
+	 *         {@link #DEFAULT_INDEX_HORIZON_DAYS}
+	 * @since 1.6
+	 */
+	public final int getIndexHorizonDays() {
+		return indexHorizonDays;
+	}
+
+	/**
+	 * Set the number of days to pre-compute tariffs for.
+	 *
+	 * @param indexHorizonDays
+	 *        the number of days, starting from the current day, to index the
+	 *        tariff schedule for when it is cached; anything less than
+	 *        {@code 1} disables the index
+	 * @since 1.6
+	 */
+	public final void setIndexHorizonDays(int indexHorizonDays) {
+		this.indexHorizonDays = indexHorizonDays;
+	}
 }
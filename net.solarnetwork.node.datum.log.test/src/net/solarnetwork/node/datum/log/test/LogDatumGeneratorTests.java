@@ -0,0 +1,303 @@
+/* ==================================================================
+ * LogDatumGeneratorTests.java - 20/10/2026 9:12:40 am
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.datum.log.test;
+
+import static net.solarnetwork.node.datum.log.LogDatumGenerator.COUNT_PROPERTY;
+import static net.solarnetwork.node.datum.log.LogDatumGenerator.EVENT_ADMIN_LOG_TOPIC;
+import static net.solarnetwork.node.datum.log.LogDatumGenerator.FIRST_TIMESTAMP_PROPERTY;
+import static net.solarnetwork.node.datum.log.LogDatumGenerator.LAST_TIMESTAMP_PROPERTY;
+import static net.solarnetwork.node.datum.log.LogDatumGenerator.SUPPRESSED_PROPERTY;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.easymock.Capture;
+import org.easymock.CaptureType;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.service.event.Event;
+import org.springframework.scheduling.TaskScheduler;
+import net.solarnetwork.domain.datum.DatumSamplesType;
+import net.solarnetwork.node.datum.log.LogDatumGenerator;
+import net.solarnetwork.node.datum.log.LogDatumGenerator.LogDatumStats;
+import net.solarnetwork.node.domain.datum.NodeDatum;
+import net.solarnetwork.node.service.DatumQueue;
+import net.solarnetwork.service.StaticOptionalService;
+
+/**
+ * Test cases for the {@link LogDatumGenerator} class.
+ *
+ * @author matt
+ * @version 1.0
+ */
+public class LogDatumGeneratorTests {
+
+	private static final String TEST_LOG_NAME = "net.solarnetwork.node.Test";
+
+	/** A settable clock. */
+	private static final class TestClock implements InstantSource {
+
+		private long millis;
+
+		private TestClock(long millis) {
+			super();
+			this.millis = millis;
+		}
+
+		@Override
+		public Instant instant() {
+			return Instant.ofEpochMilli(millis);
+		}
+
+		@Override
+		public long millis() {
+			return millis;
+		}
+
+		private void advance(Duration d) {
+			millis += d.toMillis();
+		}
+
+	}
+
+	private TestClock clock;
+	private DatumQueue datumQueue;
+	private TaskScheduler taskScheduler;
+	private Capture<NodeDatum> datumCaptor;
+	private LogDatumGenerator service;
+
+	@Before
+	public void setup() {
+		clock = new TestClock(Instant.parse("2026-10-20T00:00:00Z").toEpochMilli());
+		datumQueue = EasyMock.createMock(DatumQueue.class);
+		taskScheduler = EasyMock.createMock(TaskScheduler.class);
+		datumCaptor = Capture.newInstance(CaptureType.ALL);
+		service = new LogDatumGenerator(clock, new StaticOptionalService<>(datumQueue));
+		service.setTaskScheduler(taskScheduler);
+	}
+
+	@After
+	public void teardown() {
+		EasyMock.verify(datumQueue, taskScheduler);
+	}
+
+	private void replayAll() {
+		EasyMock.replay(datumQueue, taskScheduler);
+	}
+
+	private void expectOffers(int count) {
+		expect(datumQueue.offer(capture(datumCaptor))).andReturn(true).times(count);
+	}
+
+	private Event logEvent(String level, String msg) {
+		Map<String, Object> props = new HashMap<>(8);
+		props.put("ts", clock.millis());
+		props.put("name", TEST_LOG_NAME);
+		props.put("level", level);
+		props.put("priority", 1);
+		props.put("msg", msg);
+		return new Event(EVENT_ADMIN_LOG_TOPIC, props);
+	}
+
+	@Test
+	public void defaults_noLimits() {
+		// GIVEN
+		expectOffers(20);
+
+		// WHEN
+		replayAll();
+		for ( int i = 0; i < 20; i++ ) {
+			service.handleEvent(logEvent("WARN", "Same message"));
+		}
+
+		// THEN
+		assertThat("Every event generated a datum by default", datumCaptor.getValues(), hasSize(20));
+		assertThat("No events rate limited", service.getStats().get(LogDatumStats.RateLimited),
+				is(equalTo(0L)));
+		assertThat("No events deduplicated", service.getStats().get(LogDatumStats.Deduplicated),
+				is(equalTo(0L)));
+	}
+
+	@Test
+	public void rateLimit_burstThenRefill() {
+		// GIVEN
+		service.setRateLimitPerMinute(60);
+		service.setRateLimitBurst(3);
+		expectOffers(4);
+
+		// WHEN
+		replayAll();
+		for ( int i = 0; i < 5; i++ ) {
+			service.handleEvent(logEvent("WARN", "Message " + i));
+		}
+		clock.advance(Duration.ofSeconds(1));
+		service.handleEvent(logEvent("WARN", "Message after refill"));
+
+		// THEN
+		List<NodeDatum> datum = datumCaptor.getValues();
+		assertThat("Burst datum and one refilled datum generated", datum, hasSize(4));
+		for ( int i = 0; i < 3; i++ ) {
+			assertThat("Burst datum %d has no suppressed count".formatted(i),
+					datum.get(i).asSampleOperations().getSampleInteger(DatumSamplesType.Instantaneous,
+							SUPPRESSED_PROPERTY),
+					is(nullValue()));
+		}
+		assertThat("Refilled datum message", datum.get(3).asSampleOperations()
+				.getSampleString(DatumSamplesType.Status, "msg"), is(equalTo("Message after refill")));
+		assertThat("Refilled datum reports suppressed count", datum.get(3).asSampleOperations()
+				.getSampleInteger(DatumSamplesType.Instantaneous, SUPPRESSED_PROPERTY),
+				is(equalTo(2)));
+		assertThat("Rate limited stat", service.getStats().get(LogDatumStats.RateLimited),
+				is(equalTo(2L)));
+	}
+
+	@Test
+	public void rateLimit_perLevel() {
+		// GIVEN
+		service.setRateLimitPerMinute(60);
+		service.setRateLimitBurst(1);
+		expectOffers(2);
+
+		// WHEN
+		replayAll();
+		service.handleEvent(logEvent("WARN", "Message 1"));
+		service.handleEvent(logEvent("WARN", "Message 2"));
+		service.handleEvent(logEvent("ERROR", "Message 3"));
+
+		// THEN
+		assertThat("One datum per level generated", datumCaptor.getValues(), hasSize(2));
+		assertThat("Rate limited stat", service.getStats().get(LogDatumStats.RateLimited),
+				is(equalTo(1L)));
+	}
+
+	@Test
+	public void dedup_summaryFlushedByScheduler() {
+		// GIVEN
+		service.setDedupSecs(60);
+
+		Capture<Runnable> flushCaptor = Capture.newInstance();
+		expect(taskScheduler.scheduleWithFixedDelay(capture(flushCaptor), eq(Duration.ofSeconds(5))))
+				.andReturn(null);
+		expectOffers(2);
+
+		// WHEN
+		replayAll();
+		service.serviceDidStartup();
+		final long firstTs = clock.millis();
+		service.handleEvent(logEvent("WARN", "Repeated"));
+		clock.advance(Duration.ofSeconds(10));
+		service.handleEvent(logEvent("WARN", "Repeated"));
+		clock.advance(Duration.ofSeconds(10));
+		final long lastTs = clock.millis();
+		service.handleEvent(logEvent("WARN", "Repeated"));
+
+		// flush before window expired: nothing
+		Runnable flush = flushCaptor.getValue();
+		assertThat("Flush task scheduled", flush, is(notNullValue()));
+		flush.run();
+		assertThat("Only first occurrence generated before window expires",
+				datumCaptor.getValues(), hasSize(1));
+
+		clock.advance(Duration.ofSeconds(60));
+		flush.run();
+		flush.run();
+
+		// THEN
+		List<NodeDatum> datum = datumCaptor.getValues();
+		assertThat("First occurrence and summary generated", datum, hasSize(2));
+		assertThat("First occurrence has no count", datum.get(0).asSampleOperations()
+				.getSampleInteger(DatumSamplesType.Instantaneous, COUNT_PROPERTY), is(nullValue()));
+
+		NodeDatum summary = datum.get(1);
+		assertThat("Summary message", summary.asSampleOperations()
+				.getSampleString(DatumSamplesType.Status, "msg"), is(equalTo("Repeated")));
+		assertThat("Summary count", summary.asSampleOperations()
+				.getSampleInteger(DatumSamplesType.Instantaneous, COUNT_PROPERTY), is(equalTo(3)));
+		assertThat("Summary first timestamp", summary.asSampleOperations()
+				.getSampleLong(DatumSamplesType.Status, FIRST_TIMESTAMP_PROPERTY),
+				is(equalTo(firstTs)));
+		assertThat("Summary last timestamp", summary.asSampleOperations()
+				.getSampleLong(DatumSamplesType.Status, LAST_TIMESTAMP_PROPERTY), is(equalTo(lastTs)));
+		assertThat("Summary timestamp is last occurrence", summary.getTimestamp(),
+				is(equalTo(Instant.ofEpochMilli(lastTs))));
+		assertThat("Deduplicated stat", service.getStats().get(LogDatumStats.Deduplicated),
+				is(equalTo(2L)));
+	}
+
+	@Test
+	public void dedup_summaryOfferedWhenRepeatAfterWindow() {
+		// GIVEN
+		service.setDedupSecs(60);
+		expectOffers(3);
+
+		// WHEN
+		replayAll();
+		service.handleEvent(logEvent("WARN", "Repeated"));
+		service.handleEvent(logEvent("WARN", "Repeated"));
+		clock.advance(Duration.ofSeconds(61));
+		service.handleEvent(logEvent("WARN", "Repeated"));
+
+		// THEN
+		List<NodeDatum> datum = datumCaptor.getValues();
+		assertThat("First, summary, and new first occurrence generated", datum, hasSize(3));
+		assertThat("Summary count", datum.get(1).asSampleOperations()
+				.getSampleInteger(DatumSamplesType.Instantaneous, COUNT_PROPERTY), is(equalTo(2)));
+		assertThat("New occurrence has no count", datum.get(2).asSampleOperations()
+				.getSampleInteger(DatumSamplesType.Instantaneous, COUNT_PROPERTY), is(nullValue()));
+	}
+
+	@Test
+	public void dedup_trackingCapped() {
+		// GIVEN
+		service.setDedupSecs(60);
+		final int count = 1100;
+		expectOffers(count + 1);
+
+		// WHEN
+		replayAll();
+		for ( int i = 0; i < count; i++ ) {
+			service.handleEvent(logEvent("WARN", "Unique " + i));
+		}
+		// a repeat of an untracked message is not de-duplicated
+		service.handleEvent(logEvent("WARN", "Unique " + (count - 1)));
+
+		// THEN
+		assertThat("All unique messages generated", datumCaptor.getValues(), hasSize(count + 1));
+		assertThat("Untracked repeat not deduplicated",
+				service.getStats().get(LogDatumStats.Deduplicated), is(equalTo(0L)));
+	}
+
+}
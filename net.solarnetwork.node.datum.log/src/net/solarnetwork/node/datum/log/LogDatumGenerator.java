@@ -24,35 +24,55 @@ package net.solarnetwork.node.datum.log;
 
 import static net.solarnetwork.service.OptionalService.service;
 import static net.solarnetwork.util.ObjectUtils.requireNonNullArgument;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.InstantSource;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
 import java.util.stream.Collectors;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventHandler;
+import org.springframework.scheduling.TaskScheduler;
 import net.solarnetwork.domain.datum.DatumSamples;
 import net.solarnetwork.node.domain.datum.SimpleDatum;
 import net.solarnetwork.node.service.DatumQueue;
 import net.solarnetwork.node.service.DatumSourceIdProvider;
 import net.solarnetwork.node.service.support.BaseIdentifiable;
 import net.solarnetwork.service.OptionalService;
+import net.solarnetwork.service.ServiceLifecycleObserver;
 import net.solarnetwork.settings.SettingSpecifier;
 import net.solarnetwork.settings.SettingSpecifierProvider;
 import net.solarnetwork.settings.support.BasicTextFieldSettingSpecifier;
+import net.solarnetwork.settings.support.BasicTitleSettingSpecifier;
+import net.solarnetwork.util.StatCounter;
 
 /**
  * Generate datum from log events.
  *
+ * <p>
+ * To prevent a storm of log events from crowding out other datum, log events
+ * can be rate limited per log name and level via a token bucket, and repeated
+ * messages can be combined into a single summary datum that includes the
+ * number of times the message occurred and the first/last timestamps of those
+ * occurrences.
+ * </p>
+ *
  * @author matt
- * @version 1.1
+ * @version 1.2
  */
-public class LogDatumGenerator extends BaseIdentifiable
-		implements EventHandler, SettingSpecifierProvider, DatumSourceIdProvider {
+public class LogDatumGenerator extends BaseIdentifiable implements EventHandler,
+		SettingSpecifierProvider, DatumSourceIdProvider, ServiceLifecycleObserver {
 
 	/** The EventAdmin topic for log events. */
 	public static final String EVENT_ADMIN_LOG_TOPIC = "net/solarnetwork/Log";
@@ -63,8 +83,206 @@ public class LogDatumGenerator extends BaseIdentifiable
 	/** The default source ID prefix. */
 	public static final String DEFAULT_SOURCE_ID_PREFIX = DEFAULT_SOURCE_ID + "/";
 
+	/**
+	 * The {@code rateLimitPerMinute} property default value.
+	 *
+	 * @since 1.2
+	 */
+	public static final int DEFAULT_RATE_LIMIT_PER_MINUTE = 0;
+
+	/**
+	 * The {@code rateLimitBurst} property default value.
+	 *
+	 * @since 1.2
+	 */
+	public static final int DEFAULT_RATE_LIMIT_BURST = 10;
+
+	/**
+	 * The {@code dedupSecs} property default value.
+	 *
+	 * @since 1.2
+	 */
+	public static final int DEFAULT_DEDUP_SECS = 0;
+
+	/**
+	 * The statistic log frequency.
+	 *
+	 * @since 1.2
+	 */
+	public static final int DEFAULT_STAT_LOG_FREQUENCY = 1000;
+
+	/**
+	 * The datum property for the number of occurrences of a repeated message.
+	 *
+	 * @since 1.2
+	 */
+	public static final String COUNT_PROPERTY = "count";
+
+	/**
+	 * The datum property for the timestamp of the first occurrence of a
+	 * repeated message.
+	 *
+	 * @since 1.2
+	 */
+	public static final String FIRST_TIMESTAMP_PROPERTY = "firstTs";
+
+	/**
+	 * The datum property for the timestamp of the last occurrence of a repeated
+	 * message.
+	 *
+	 * @since 1.2
+	 */
+	public static final String LAST_TIMESTAMP_PROPERTY = "lastTs";
+
+	/**
+	 * The datum property for the number of events suppressed by the rate
+	 * limit since the previous datum for the same log name and level.
+	 *
+	 * @since 1.2
+	 */
+	public static final String SUPPRESSED_PROPERTY = "suppressed";
+
+	/** The period to check for expired repeated messages. */
+	private static final Duration DEDUP_FLUSH_PERIOD = Duration.ofSeconds(5);
+
+	/**
+	 * The maximum number of repeated messages to track. When reached, expired
+	 * messages are flushed inline and if still reached new messages are not
+	 * de-duplicated.
+	 */
+	private static final int MAX_TRACKED_MESSAGES = 1000;
+
+	/**
+	 * Log datum statistics.
+	 *
+	 * @since 1.2
+	 */
+	public static enum LogDatumStats implements StatCounter.Stat {
+
+		/** Log events received. */
+		EventsReceived("events received"),
+
+		/** Datum generated. */
+		DatumGenerated("datum generated"),
+
+		/** Events combined into a repeated message summary. */
+		Deduplicated("deduplicated"),
+
+		/** Events suppressed by the rate limit. */
+		RateLimited("rate limited"),
+
+		;
+
+		private String description;
+
+		private LogDatumStats(String description) {
+			this.description = description;
+		}
+
+		@Override
+		public int getIndex() {
+			return ordinal();
+		}
+
+		@Override
+		public String getDescription() {
+			return description;
+		}
+
+	}
+
+	/** A rate limit key. */
+	private static record LogKey(String name, String level) {
+
+	}
+
+	/** A repeated message key. */
+	private static record MessageKey(String name, String level, String msg) {
+
+	}
+
+	/**
+	 * A token bucket rate limiter.
+	 */
+	private static final class TokenBucket {
+
+		private double tokens;
+		private long lastRefill;
+		private long suppressed;
+
+		private TokenBucket(int capacity, long now) {
+			super();
+			this.tokens = capacity;
+			this.lastRefill = now;
+		}
+
+		/**
+		 * Try to acquire a token.
+		 *
+		 * @param tokensPerMs
+		 *        the token refill rate
+		 * @param capacity
+		 *        the bucket capacity
+		 * @param now
+		 *        the current time, in milliseconds
+		 * @return the number of suppressed events since the last acquired
+		 *         token, or {@code -1} if a token could not be acquired
+		 */
+		private synchronized long tryAcquire(double tokensPerMs, int capacity, long now) {
+			tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerMs);
+			lastRefill = now;
+			if ( tokens < 1.0 ) {
+				suppressed++;
+				return -1;
+			}
+			tokens -= 1.0;
+			long result = suppressed;
+			suppressed = 0;
+			return result;
+		}
+
+	}
+
+	/**
+	 * Tracking info for a repeated message.
+	 *
+	 * <p>
+	 * Only the properties needed for the summary datum are kept, not the
+	 * event itself, so exception stack traces are not retained.
+	 * </p>
+	 */
+	private static final class RepeatedMessage {
+
+		private final MessageKey key;
+		private final Object priority;
+		private final long firstTs;
+		private long lastTs;
+		private int count;
+
+		private RepeatedMessage(MessageKey key, Object priority, long ts) {
+			super();
+			this.key = key;
+			this.priority = priority;
+			this.firstTs = ts;
+			this.lastTs = ts;
+			this.count = 1;
+		}
+
+	}
+
+	private final InstantSource clock;
 	private final OptionalService<DatumQueue> datumQueue;
+	private final StatCounter stats;
+	private final ConcurrentMap<LogKey, TokenBucket> rateLimiters = new ConcurrentHashMap<>(16, 0.9f,
+			2);
+	private final ConcurrentMap<MessageKey, RepeatedMessage> repeats = new ConcurrentHashMap<>(16,
+			0.9f, 2);
 	private String sourceId = DEFAULT_SOURCE_ID;
+	private int rateLimitPerMinute = DEFAULT_RATE_LIMIT_PER_MINUTE;
+	private int rateLimitBurst = DEFAULT_RATE_LIMIT_BURST;
+	private int dedupSecs = DEFAULT_DEDUP_SECS;
+	private TaskScheduler taskScheduler;
+	private ScheduledFuture<?> flushTask;
 
 	/**
 	 * Constructor.
@@ -73,11 +291,46 @@ public class LogDatumGenerator extends BaseIdentifiable
 	 *        the datum queue
 	 */
 	public LogDatumGenerator(OptionalService<DatumQueue> datumQueue) {
+		this(Clock.systemUTC(), datumQueue);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param clock
+	 *        the clock to use for rate limiting and repeated message expiry
+	 * @param datumQueue
+	 *        the datum queue
+	 * @throws IllegalArgumentException
+	 *         if any argument is {@literal null}
+	 * @since 1.2
+	 */
+	public LogDatumGenerator(InstantSource clock, OptionalService<DatumQueue> datumQueue) {
 		super();
+		this.clock = requireNonNullArgument(clock, "clock");
 		this.datumQueue = requireNonNullArgument(datumQueue, "datumQueue");
+		this.stats = new StatCounter("LogDatum", "", log, DEFAULT_STAT_LOG_FREQUENCY,
+				LogDatumStats.values());
 		setDisplayName("Log Datum Generator");
 	}
 
+	@Override
+	public synchronized void serviceDidStartup() {
+		final TaskScheduler scheduler = getTaskScheduler();
+		if ( scheduler != null && flushTask == null ) {
+			flushTask = scheduler.scheduleWithFixedDelay(this::flushExpiredRepeats,
+					DEDUP_FLUSH_PERIOD);
+		}
+	}
+
+	@Override
+	public synchronized void serviceDidShutdown() {
+		if ( flushTask != null ) {
+			flushTask.cancel(true);
+			flushTask = null;
+		}
+	}
+
 	@Override
 	public Collection<String> publishedSourceIds() {
 		final String sourceId = resolvePlaceholders(this.sourceId);
@@ -92,11 +345,26 @@ public class LogDatumGenerator extends BaseIdentifiable
 
 	@Override
 	public List<SettingSpecifier> getSettingSpecifiers() {
-		List<SettingSpecifier> results = new ArrayList<>(2);
+		List<SettingSpecifier> results = new ArrayList<>(5);
+		results.add(new BasicTitleSettingSpecifier("status", getStatusMessage(), true, true));
 		results.add(new BasicTextFieldSettingSpecifier("sourceId", DEFAULT_SOURCE_ID));
+		results.add(new BasicTextFieldSettingSpecifier("rateLimitPerMinute",
+				String.valueOf(DEFAULT_RATE_LIMIT_PER_MINUTE)));
+		results.add(new BasicTextFieldSettingSpecifier("rateLimitBurst",
+				String.valueOf(DEFAULT_RATE_LIMIT_BURST)));
+		results.add(new BasicTextFieldSettingSpecifier("dedupSecs", String.valueOf(DEFAULT_DEDUP_SECS)));
 		return results;
 	}
 
+	private String getStatusMessage() {
+		final LogDatumStats[] all = LogDatumStats.values();
+		Object[] params = new Object[all.length];
+		for ( int i = 0; i < all.length; i++ ) {
+			params[i] = stats.get(all[i]);
+		}
+		return getMessageSource().getMessage("status.msg", params, Locale.getDefault());
+	}
+
 	@Override
 	public void handleEvent(Event event) {
 		if ( event == null || !EVENT_ADMIN_LOG_TOPIC.equals(event.getTopic()) ) {
@@ -118,38 +386,161 @@ public class LogDatumGenerator extends BaseIdentifiable
 		Object name = event.getProperty("name");
 		Object level = event.getProperty("level");
 		Object msg = event.getProperty("msg");
-		if ( ts instanceof Long && name != null && level != null && msg != null ) {
-			Map<String, Object> placeholders = new HashMap<>(4);
-			placeholders.put("logLevel", level);
-			DatumSamples s = new DatumSamples();
-
-			Object priority = event.getProperty("priority");
-			if ( priority instanceof Integer ) {
-				s.putInstantaneousSampleValue("priority", (Integer) priority);
-				placeholders.put("logPriority", priority);
+		if ( !(ts instanceof Long && name != null && level != null && msg != null) ) {
+			return;
+		}
+		if ( getClass().getName().equals(name) ) {
+			// ignore our own log events, to avoid feedback
+			return;
+		}
+		stats.incrementAndGet(LogDatumStats.EventsReceived);
+
+		final long time = (Long) ts;
+		final int dedupSecs = getDedupSecs();
+		if ( dedupSecs > 0 ) {
+			final long windowMs = dedupSecs * 1000L;
+			final MessageKey key = new MessageKey(name.toString(), level.toString(), msg.toString());
+			if ( repeats.size() >= MAX_TRACKED_MESSAGES && !repeats.containsKey(key) ) {
+				flushExpiredRepeats();
 			}
-			s.putStatusSampleValue("name", name);
-			placeholders.put("logName", name);
-			placeholders.put("logNameSlashed", name.toString().replace('.', '/'));
-			s.putStatusSampleValue("level", level);
-			s.putStatusSampleValue("msg", msg);
-			s.putStatusSampleValue("exMsg", event.getProperty("exMsg"));
-			Object st = event.getProperty("exSt");
-			if ( st instanceof String[] ) {
-				String stString = Arrays.stream((String[]) st).collect(Collectors.joining("\n"));
-				s.putStatusSampleValue("exSt", stString);
+			if ( repeats.size() < MAX_TRACKED_MESSAGES || repeats.containsKey(key) ) {
+				final Object priority = event.getProperty("priority");
+				final RepeatedMessage[] expired = new RepeatedMessage[1];
+				final RepeatedMessage repeat = repeats.compute(key, (k, v) -> {
+					if ( v != null && time - v.firstTs < windowMs ) {
+						v.count++;
+						v.lastTs = time;
+						return v;
+					}
+					expired[0] = v;
+					return new RepeatedMessage(k, priority, time);
+				});
+				if ( expired[0] != null ) {
+					offerSummary(queue, sourceId, expired[0]);
+				}
+				if ( repeat.count > 1 ) {
+					stats.incrementAndGet(LogDatumStats.Deduplicated);
+					return;
+				}
 			}
+			// else too many distinct messages to track, so skip de-duplication
+		}
+
+		final long suppressed = acquireRateLimit(name.toString(), level.toString());
+		if ( suppressed < 0 ) {
+			stats.incrementAndGet(LogDatumStats.RateLimited);
+			return;
+		}
+
+		SimpleDatum d = createDatum(sourceId, time, name, level, msg, event.getProperty("priority"),
+				event.getProperty("exMsg"), event.getProperty("exSt"));
+		if ( d != null ) {
+			if ( suppressed > 0 ) {
+				d.getSamples().putInstantaneousSampleValue(SUPPRESSED_PROPERTY, suppressed);
+			}
+			offer(queue, d);
+		}
+	}
+
+	/**
+	 * Acquire a rate limit token.
+	 *
+	 * @param name
+	 *        the log name
+	 * @param level
+	 *        the log level
+	 * @return the number of events suppressed since the last acquired token,
+	 *         or {@code -1} if the rate limit has been reached
+	 */
+	private long acquireRateLimit(String name, String level) {
+		final int perMinute = getRateLimitPerMinute();
+		if ( perMinute < 1 ) {
+			return 0;
+		}
+		final int capacity = Math.max(1, getRateLimitBurst());
+		final long now = clock.millis();
+		final TokenBucket bucket = rateLimiters.computeIfAbsent(new LogKey(name, level),
+				k -> new TokenBucket(capacity, now));
+		return bucket.tryAcquire(perMinute / 60_000.0, capacity, now);
+	}
 
-			String resolvedSourceId = resolvePlaceholders(sourceId, placeholders);
-			if ( resolvedSourceId != null && (DEFAULT_SOURCE_ID.equals(resolvedSourceId)
-					|| resolvedSourceId.startsWith(DEFAULT_SOURCE_ID_PREFIX)) ) {
-				SimpleDatum d = SimpleDatum.nodeDatum(resolvedSourceId, Instant.ofEpochMilli((Long) ts),
-						s);
-				queue.offer(d);
+	/**
+	 * Offer summary datum for all repeated messages whose de-duplication
+	 * window has expired.
+	 */
+	private void flushExpiredRepeats() {
+		final DatumQueue queue = service(datumQueue);
+		final String sourceId = getSourceId();
+		final long windowMs = getDedupSecs() * 1000L;
+		final long now = clock.millis();
+		for ( Iterator<Map.Entry<MessageKey, RepeatedMessage>> itr = repeats.entrySet()
+				.iterator(); itr.hasNext(); ) {
+			Map.Entry<MessageKey, RepeatedMessage> e = itr.next();
+			RepeatedMessage r = e.getValue();
+			if ( now - r.firstTs >= windowMs && repeats.remove(e.getKey(), r) ) {
+				if ( queue != null && sourceId != null && !sourceId.isEmpty() ) {
+					offerSummary(queue, sourceId, r);
+				}
 			}
 		}
 	}
 
+	private void offerSummary(DatumQueue queue, String sourceId, RepeatedMessage r) {
+		// r has been removed from the map already, so no further updates are possible
+		final int count = r.count;
+		final long firstTs = r.firstTs;
+		final long lastTs = r.lastTs;
+		if ( count < 2 ) {
+			// no repeats to report
+			return;
+		}
+		final MessageKey k = r.key;
+		SimpleDatum d = createDatum(sourceId, lastTs, k.name(), k.level(), k.msg(), r.priority, null,
+				null);
+		if ( d != null ) {
+			DatumSamples s = d.getSamples();
+			s.putInstantaneousSampleValue(COUNT_PROPERTY, count);
+			s.putStatusSampleValue(FIRST_TIMESTAMP_PROPERTY, firstTs);
+			s.putStatusSampleValue(LAST_TIMESTAMP_PROPERTY, lastTs);
+			offer(queue, d);
+		}
+	}
+
+	private void offer(DatumQueue queue, SimpleDatum d) {
+		if ( queue.offer(d) ) {
+			stats.incrementAndGet(LogDatumStats.DatumGenerated);
+		}
+	}
+
+	private SimpleDatum createDatum(String sourceId, long ts, Object name, Object level, Object msg,
+			Object priority, Object exMsg, Object st) {
+		Map<String, Object> placeholders = new HashMap<>(4);
+		placeholders.put("logLevel", level);
+		DatumSamples s = new DatumSamples();
+
+		if ( priority instanceof Integer ) {
+			s.putInstantaneousSampleValue("priority", (Integer) priority);
+			placeholders.put("logPriority", priority);
+		}
+		s.putStatusSampleValue("name", name);
+		placeholders.put("logName", name);
+		placeholders.put("logNameSlashed", name.toString().replace('.', '/'));
+		s.putStatusSampleValue("level", level);
+		s.putStatusSampleValue("msg", msg);
+		s.putStatusSampleValue("exMsg", exMsg);
+		if ( st instanceof String[] ) {
+			String stString = Arrays.stream((String[]) st).collect(Collectors.joining("\n"));
+			s.putStatusSampleValue("exSt", stString);
+		}
+
+		String resolvedSourceId = resolvePlaceholders(sourceId, placeholders);
+		if ( resolvedSourceId != null && (DEFAULT_SOURCE_ID.equals(resolvedSourceId)
+				|| resolvedSourceId.startsWith(DEFAULT_SOURCE_ID_PREFIX)) ) {
+			return SimpleDatum.nodeDatum(resolvedSourceId, Instant.ofEpochMilli(ts), s);
+		}
+		return null;
+	}
+
 	/**
 	 * Get the source ID.
 	 *
@@ -169,4 +560,116 @@ public class LogDatumGenerator extends BaseIdentifiable
 		this.sourceId = sourceId;
 	}
 
+	/**
+	 * Get the rate limit.
+	 *
+	 * @return the maximum number of datum to generate per minute, per log name
+	 *         and level; defaults to {@link #DEFAULT_RATE_LIMIT_PER_MINUTE}
+	 * @since 1.2
+	 */
+	public int getRateLimitPerMinute() {
+		return rateLimitPerMinute;
+	}
+
+	/**
+	 * Set the rate limit.
+	 *
+	 * @param rateLimitPerMinute
+	 *        the maximum number of datum to generate per minute, per log name
+	 *        and level; anything less than {@code 1} disables the rate limit
+	 * @since 1.2
+	 */
+	public void setRateLimitPerMinute(int rateLimitPerMinute) {
+		this.rateLimitPerMinute = rateLimitPerMinute;
+	}
+
+	/**
+	 * Get the rate limit burst size.
+	 *
+	 * @return the maximum number of datum that can be generated in a burst,
+	 *         per log name and level; defaults to
+	 *         {@link #DEFAULT_RATE_LIMIT_BURST}
+	 * @since 1.2
+	 */
+	public int getRateLimitBurst() {
+		return rateLimitBurst;
+	}
+
+	/**
+	 * Set the rate limit burst size.
+	 *
+	 * @param rateLimitBurst
+	 *        the maximum number of datum that can be generated in a burst, per
+	 *        log name and level
+	 * @since 1.2
+	 */
+	public void setRateLimitBurst(int rateLimitBurst) {
+		this.rateLimitBurst = rateLimitBurst;
+	}
+
+	/**
+	 * Get the repeated message window.
+	 *
+	 * @return the number of seconds to combine repeated messages over;
+	 *         defaults to {@link #DEFAULT_DEDUP_SECS}
+	 * @since 1.2
+	 */
+	public int getDedupSecs() {
+		return dedupSecs;
+	}
+
+	/**
+	 * Set the repeated message window.
+	 *
+	 * <p>
+	 * The first occurrence of a message generates a datum immediately. Any
+	 * repeats of the same log name, level, and message within this window are
+	 * combined into a single datum generated after the window expires.
+	 * </p>
+	 *
+	 * @param dedupSecs
+	 *        the number of seconds to combine repeated messages over; anything
+	 *        less than {@code 1} disables de-duplication
+	 * @since 1.2
+	 */
+	public void setDedupSecs(int dedupSecs) {
+		this.dedupSecs = dedupSecs;
+	}
+
+	/**
+	 * Get the task scheduler.
+	 *
+	 * @return the task scheduler
+	 * @since 1.2
+	 */
+	public TaskScheduler getTaskScheduler() {
+		return taskScheduler;
+	}
+
+	/**
+	 * Set the task scheduler.
+	 *
+	 * <p>
+	 * The scheduler is used to generate the summary datum for repeated
+	 * messages.
+	 * </p>
+	 *
+	 * @param taskScheduler
+	 *        the task scheduler to set
+	 * @since 1.2
+	 */
+	public void setTaskScheduler(TaskScheduler taskScheduler) {
+		this.taskScheduler = taskScheduler;
+	}
+
+	/**
+	 * Get the statistics.
+	 *
+	 * @return the statistics
+	 * @since 1.2
+	 */
+	public StatCounter getStats() {
+		return stats;
+	}
+
 }
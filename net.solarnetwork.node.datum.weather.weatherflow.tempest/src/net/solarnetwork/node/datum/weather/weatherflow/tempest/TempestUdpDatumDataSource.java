@@ -72,7 +72,9 @@ import net.solarnetwork.node.domain.datum.SimpleDatum;
 import net.solarnetwork.node.service.DatumMetadataService;
 import net.solarnetwork.node.service.DatumQueue;
 import net.solarnetwork.node.service.MultiDatumDataSource;
+import net.solarnetwork.node.service.NettyEventLoopService;
 import net.solarnetwork.node.service.support.DatumDataSourceSupport;
+import net.solarnetwork.service.OptionalService;
 import net.solarnetwork.service.ServiceLifecycleObserver;
 import net.solarnetwork.settings.SettingSpecifier;
 import net.solarnetwork.settings.SettingSpecifierProvider;
@@ -83,7 +85,7 @@ import net.solarnetwork.settings.support.BasicTextFieldSettingSpecifier;
  * WeatherFlow Tempest datum source reading UDP messages.
  *
  * @author matt
- * @version 1.2
+ * @version 1.3
  */
 public class TempestUdpDatumDataSource extends DatumDataSourceSupport implements MultiDatumDataSource,
 		SettingSpecifierProvider, ServiceLifecycleObserver, SettingsChangeObserver {
@@ -102,6 +104,7 @@ public class TempestUdpDatumDataSource extends DatumDataSourceSupport implements
 	private DeviceInfo hubDeviceInfo;
 	private ScheduledFuture<?> startupFuture;
 	private volatile Channel channel;
+	private OptionalService<NettyEventLoopService> eventLoopService;
 
 	/**
 	 * Constructor.
@@ -228,15 +231,22 @@ public class TempestUdpDatumDataSource extends DatumDataSourceSupport implements
 	private synchronized void start() {
 		log.info("Starting Tempest UDP listener for source [{}]", sourceId);
 		startupFuture = null;
-		EventLoopGroup group = new MultiThreadIoEventLoopGroup(NioIoHandler.newFactory());
+		final NettyEventLoopService shared = service(eventLoopService);
+		final EventLoopGroup group = (shared != null ? shared.getWorkerGroup()
+				: new MultiThreadIoEventLoopGroup(NioIoHandler.newFactory()));
 		Bootstrap b = new Bootstrap();
 		b.group(group).channel(NioDatagramChannel.class).option(ChannelOption.SO_BROADCAST, true)
 				.handler(new ServerInitializer());
+		if ( shared != null ) {
+			b.option(ChannelOption.ALLOCATOR, shared.getAllocator());
+		}
 		try {
 			Channel channel = b.bind(port).sync().channel();
-			channel.closeFuture().addListener((f) -> {
-				group.shutdownGracefully();
-			});
+			if ( shared == null ) {
+				channel.closeFuture().addListener((f) -> {
+					group.shutdownGracefully();
+				});
+			}
 			this.channel = channel;
 		} catch ( Exception e ) {
 			log.warn("Interrupted during start.", e);
@@ -935,4 +945,30 @@ public class TempestUdpDatumDataSource extends DatumDataSourceSupport implements
 		this.sourceId = sourceId;
 	}
 
+	/**
+	 * Get the shared Netty event loop service.
+	 *
+	 * @return the service
+	 * @since 1.3
+	 */
+	public OptionalService<NettyEventLoopService> getEventLoopService() {
+		return eventLoopService;
+	}
+
+	/**
+	 * Set the shared Netty event loop service.
+	 *
+	 * <p>
+	 * If available, the shared worker group and buffer allocator will be used
+	 * instead of a dedicated event loop group.
+	 * </p>
+	 *
+	 * @param eventLoopService
+	 *        the service to set
+	 * @since 1.3
+	 */
+	public void setEventLoopService(OptionalService<NettyEventLoopService> eventLoopService) {
+		this.eventLoopService = eventLoopService;
+	}
+
 }
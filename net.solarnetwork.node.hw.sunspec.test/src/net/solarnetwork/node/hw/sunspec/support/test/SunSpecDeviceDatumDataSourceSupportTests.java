@@ -22,26 +22,85 @@
 
 package net.solarnetwork.node.hw.sunspec.support.test;
 
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.junit.Before;
 import org.junit.Test;
+import net.solarnetwork.node.dao.LocalStateDao;
+import net.solarnetwork.node.domain.LocalState;
+import net.solarnetwork.node.domain.LocalStateType;
 import net.solarnetwork.node.hw.sunspec.ModelAccessor;
 import net.solarnetwork.node.hw.sunspec.ModelData;
+import net.solarnetwork.node.hw.sunspec.ModelDataFactory;
+import net.solarnetwork.node.hw.sunspec.ModelLayout;
 import net.solarnetwork.node.hw.sunspec.combiner.test.StringCombinerAdvancedModelAccessorImpl_402_01Tests;
 import net.solarnetwork.node.hw.sunspec.inverter.InverterModelAccessor;
 import net.solarnetwork.node.hw.sunspec.inverter.test.IntegerInverterModelAccessor_101_01Tests;
+import net.solarnetwork.node.hw.sunspec.meter.MeterModelAccessor;
 import net.solarnetwork.node.hw.sunspec.support.SunSpecDeviceDatumDataSourceSupport;
+import net.solarnetwork.node.hw.sunspec.test.ModelDataFactoryTests;
 import net.solarnetwork.node.hw.sunspec.test.ModelDataUtils;
+import net.solarnetwork.node.io.modbus.ModbusConnection;
+import net.solarnetwork.node.io.modbus.ModbusConnectionAction;
+import net.solarnetwork.node.io.modbus.ModbusNetwork;
+import net.solarnetwork.node.io.modbus.support.StaticDataMapReadonlyModbusConnection;
+import net.solarnetwork.node.test.DataUtils;
+import net.solarnetwork.service.StaticOptionalService;
+import net.solarnetwork.util.IntShortMap;
 
 /**
  * Test cases for the {@link SunSpecDeviceDatumDataSourceSupport} class.
  * 
  * @author matt
- * @version 1.0
+ * @version 1.1
  */
 public class SunSpecDeviceDatumDataSourceSupportTests {
 
+	private static final String TEST_NETWORK_UID = "test";
+	private static final int TEST_UNIT_ID = 1;
+	private static final int TEST_BASE_ADDRESS = 1000;
+	private static final String TEST_LAYOUT_KEY = String.format(
+			SunSpecDeviceDatumDataSourceSupport.MODEL_LAYOUT_LOCAL_STATE_KEY_TEMPLATE,
+			TEST_NETWORK_UID, TEST_UNIT_ID);
+
+	private ModbusNetwork modbusNetwork;
+	private LocalStateDao localStateDao;
+	private ModbusConnection conn;
+
+	@Before
+	public void setup() throws IOException {
+		modbusNetwork = EasyMock.createMock(ModbusNetwork.class);
+		localStateDao = EasyMock.createMock(LocalStateDao.class);
+
+		Map<Integer, Integer> registers = DataUtils
+				.parseModbusHexRegisterMappingLines(new BufferedReader(new InputStreamReader(
+						ModelDataFactoryTests.class.getResourceAsStream("test-data-01.txt"))));
+		IntShortMap map = new IntShortMap(registers.size());
+		for ( Map.Entry<Integer, Integer> entry : registers.entrySet() ) {
+			map.putValue(entry.getKey(), entry.getValue());
+		}
+		conn = new StaticDataMapReadonlyModbusConnection(map);
+	}
+
+	private void replayAll() {
+		EasyMock.replay(modbusNetwork, localStateDao);
+	}
+
+	private void verifyAll() {
+		EasyMock.verify(modbusNetwork, localStateDao);
+	}
+
 	private class TestDatumDataSource extends SunSpecDeviceDatumDataSourceSupport {
 
 		private final Class<? extends ModelAccessor> primaryType;
@@ -110,4 +169,121 @@ public class SunSpecDeviceDatumDataSourceSupportTests {
 		assertThat("Message contains secondary models", msg, equalTo("402 (Advanced string combiner)"));
 	}
 
+	private TestDatumDataSource layoutCacheDataSource(Integer baseAddress) throws IOException {
+		expect(modbusNetwork.getUid()).andReturn(TEST_NETWORK_UID).anyTimes();
+		Capture<ModbusConnectionAction<ModelData>> actionCaptor = Capture.newInstance();
+		expect(modbusNetwork.performAction(eq(TEST_UNIT_ID), capture(actionCaptor)))
+				.andAnswer(() -> actionCaptor.getValue().doWithConnection(conn));
+
+		TestDatumDataSource ds = new TestDatumDataSource(MeterModelAccessor.class, null);
+		ds.setModbusNetwork(new StaticOptionalService<>(modbusNetwork));
+		ds.setLocalStateDao(new StaticOptionalService<>(localStateDao));
+		ds.setUnitId(TEST_UNIT_ID);
+		ds.setBaseAddress(baseAddress);
+		return ds;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ModelLayout savedLayout(LocalState state) {
+		return ModelLayout.fromMap((Map<String, ?>) state.getValue());
+	}
+
+	private ModelLayout discoveredLayout() throws IOException {
+		ModelData discovered = ModelDataFactory.getInstance().getModelData(conn,
+				ModelDataFactory.DEFAULT_MAX_READ_WORDS_COUNT, TEST_BASE_ADDRESS, false);
+		return ModelLayout.forModelData(discovered);
+	}
+
+	@Test
+	public void modelLayoutCache_hit() throws IOException {
+		// GIVEN
+		final ModelLayout layout = discoveredLayout();
+		TestDatumDataSource ds = layoutCacheDataSource(TEST_BASE_ADDRESS);
+
+		expect(localStateDao.get(TEST_LAYOUT_KEY))
+				.andReturn(new LocalState(TEST_LAYOUT_KEY, LocalStateType.Mapping, layout.toMap()));
+
+		// WHEN
+		replayAll();
+		ModelData result = ds.modelData();
+
+		// THEN
+		verifyAll();
+		assertThat("Model data restored from cached layout", result, notNullValue());
+		assertThat("Manufacturer", result.getManufacturer(), equalTo("Veris Industries"));
+		assertThat("Same layout", ModelLayout.forModelData(result), equalTo(layout));
+	}
+
+	@Test
+	public void modelLayoutCache_hit_autoBaseAddress() throws IOException {
+		// GIVEN
+		final ModelLayout layout = discoveredLayout();
+
+		// -1 base address means auto-discover, so cached layout must be used as-is
+		TestDatumDataSource ds = layoutCacheDataSource(-1);
+
+		expect(localStateDao.get(TEST_LAYOUT_KEY))
+				.andReturn(new LocalState(TEST_LAYOUT_KEY, LocalStateType.Mapping, layout.toMap()));
+
+		// WHEN
+		replayAll();
+		ModelData result = ds.modelData();
+
+		// THEN
+		verifyAll();
+		assertThat("Model data restored from cached layout", result, notNullValue());
+		assertThat("Same layout", ModelLayout.forModelData(result), equalTo(layout));
+	}
+
+	@Test
+	public void modelLayoutCache_miss_differentDevice() throws IOException {
+		// GIVEN
+		final ModelLayout layout = discoveredLayout();
+		final ModelLayout otherLayout = new ModelLayout(layout.getCommonModelAddress(),
+				layout.getManufacturer(), layout.getModelName(), "not-a-match", layout.getModels());
+		TestDatumDataSource ds = layoutCacheDataSource(TEST_BASE_ADDRESS);
+
+		expect(localStateDao.get(TEST_LAYOUT_KEY)).andReturn(
+				new LocalState(TEST_LAYOUT_KEY, LocalStateType.Mapping, otherLayout.toMap()));
+
+		Capture<LocalState> stateCaptor = Capture.newInstance();
+		expect(localStateDao.compareAndChange(capture(stateCaptor))).andReturn(null);
+
+		// WHEN
+		replayAll();
+		ModelData result = ds.modelData();
+
+		// THEN
+		verifyAll();
+		assertThat("Model data discovered", result, notNullValue());
+		assertThat("Discovered layout saved", stateCaptor.getValue().getKey(),
+				equalTo(TEST_LAYOUT_KEY));
+		assertThat("Discovered layout saved as mapping", stateCaptor.getValue().getType(),
+				equalTo(LocalStateType.Mapping));
+		assertThat("Saved layout replaces cached layout",
+				savedLayout(stateCaptor.getValue()), equalTo(layout));
+	}
+
+	@Test
+	public void modelLayoutCache_miss_empty() throws IOException {
+		// GIVEN
+		final ModelLayout layout = discoveredLayout();
+		TestDatumDataSource ds = layoutCacheDataSource(TEST_BASE_ADDRESS);
+
+		expect(localStateDao.get(TEST_LAYOUT_KEY)).andReturn(null);
+
+		Capture<LocalState> stateCaptor = Capture.newInstance();
+		expect(localStateDao.compareAndChange(capture(stateCaptor))).andReturn(null);
+
+		// WHEN
+		replayAll();
+		ModelData result = ds.modelData();
+
+		// THEN
+		verifyAll();
+		assertThat("Model data discovered", result, notNullValue());
+		assertThat("Discovered layout saved",
+				savedLayout(stateCaptor.getValue()), equalTo(layout));
+	}
+
 }
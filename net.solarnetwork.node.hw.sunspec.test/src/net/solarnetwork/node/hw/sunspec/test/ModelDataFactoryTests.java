@@ -32,6 +32,8 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -41,6 +43,7 @@ import org.junit.Before;
 import org.junit.Test;
 import net.solarnetwork.node.hw.sunspec.ModelData;
 import net.solarnetwork.node.hw.sunspec.ModelDataFactory;
+import net.solarnetwork.node.hw.sunspec.ModelLayout;
 import net.solarnetwork.node.hw.sunspec.ModelRegister;
 import net.solarnetwork.node.hw.sunspec.meter.MeterModelAccessor;
 import net.solarnetwork.node.hw.sunspec.meter.test.IntegerMeterModelAccessorTests;
@@ -55,7 +58,7 @@ import net.solarnetwork.util.IntShortMap;
  * Test cases for the {@link ModelDataFactory} class.
  *
  * @author matt
- * @version 1.1
+ * @version 1.2
  */
 public class ModelDataFactoryTests {
 
@@ -180,4 +183,53 @@ public class ModelDataFactoryTests {
 				0);
 	}
 
+	private ModbusConnection nonStandardAddressConnection() throws IOException {
+		Map<Integer, Integer> registers = DataUtils
+				.parseModbusHexRegisterMappingLines(new BufferedReader(
+						new InputStreamReader(getClass().getResourceAsStream("test-data-01.txt"))));
+		IntShortMap map = new IntShortMap(registers.size());
+		for ( Map.Entry<Integer, Integer> entry : registers.entrySet() ) {
+			map.putValue(entry.getKey(), entry.getValue());
+		}
+		return new StaticDataMapReadonlyModbusConnection(map);
+	}
+
+	@Test
+	public void createModelFromLayout() throws IOException {
+		// GIVEN
+		ModbusConnection conn = nonStandardAddressConnection();
+		ModelData discovered = ModelDataFactory.getInstance().getModelData(conn,
+				ModelDataFactory.DEFAULT_MAX_READ_WORDS_COUNT, 1000, false);
+		ModelLayout layout = ModelLayout.fromMap(ModelLayout.forModelData(discovered).toMap());
+
+		// WHEN
+		ModelData data = ModelDataFactory.getInstance().getModelData(conn,
+				ModelDataFactory.DEFAULT_MAX_READ_WORDS_COUNT, layout);
+
+		// THEN
+		assertThat("Model data restored from layout", data, notNullValue());
+		assertThat("Manufacturer", data.getManufacturer(), equalTo("Veris Industries"));
+		assertThat("Model count", data.getModels(), hasSize(discovered.getModels().size()));
+		assertThat("Same layout", ModelLayout.forModelData(data), equalTo(layout));
+	}
+
+	@Test
+	public void createModelFromLayout_differentDevice() throws IOException {
+		// GIVEN
+		ModbusConnection conn = nonStandardAddressConnection();
+		ModelData discovered = ModelDataFactory.getInstance().getModelData(conn,
+				ModelDataFactory.DEFAULT_MAX_READ_WORDS_COUNT, 1000, false);
+		ModelLayout discoveredLayout = ModelLayout.forModelData(discovered);
+		ModelLayout layout = new ModelLayout(discoveredLayout.getCommonModelAddress(),
+				discoveredLayout.getManufacturer(), discoveredLayout.getModelName(), "not-a-match",
+				discoveredLayout.getModels());
+
+		// WHEN
+		ModelData data = ModelDataFactory.getInstance().getModelData(conn,
+				ModelDataFactory.DEFAULT_MAX_READ_WORDS_COUNT, layout);
+
+		// THEN
+		assertThat("Model data not restored for different serial number", data, nullValue());
+	}
+
 }
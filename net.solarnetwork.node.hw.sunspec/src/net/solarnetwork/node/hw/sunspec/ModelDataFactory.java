@@ -59,7 +59,7 @@ import net.solarnetwork.util.ByteUtils;
  * </p>
  *
  * @author matt
- * @version 1.11
+ * @version 1.12
  */
 public class ModelDataFactory {
 
@@ -362,6 +362,49 @@ public class ModelDataFactory {
 		return readModelData(conn, maxReadWordsCount, baseAddress, false);
 	}
 
+	/**
+	 * Create a new model data instance from a previously discovered model
+	 * layout.
+	 *
+	 * <p>
+	 * Only the common model is read from the device, to verify the device
+	 * identity matches that of the layout. The remaining models are then
+	 * created directly from the layout, without walking the model chain on the
+	 * device.
+	 * </p>
+	 *
+	 * @param conn
+	 *        the modbus connection
+	 * @param maxReadWordsCount
+	 *        the maxReadWordsCount to set; anything less than {@literal 1} is
+	 *        ignored; pass {@link Integer#MAX_VALUE} for no limit
+	 * @param layout
+	 *        the layout to use
+	 * @return the data, without loading any model properties, or
+	 *         {@literal null} if the device does not match {@code layout}
+	 * @throws IOException
+	 *         if any communication error occurs
+	 * @since 1.12
+	 */
+	public ModelData getModelData(ModbusConnection conn, int maxReadWordsCount, ModelLayout layout)
+			throws IOException {
+		ModelData data = new ModelData(layout.getCommonModelAddress());
+		data.setMaxReadWordsCount(maxReadWordsCount);
+		data.readCommonModelData(conn);
+		if ( !layout.isSameDevice(data) ) {
+			log.info("SunSpec device [{} {} {}] does not match cached layout [{} {} {}]",
+					data.getManufacturer(), data.getModelName(), data.getSerialNumber(),
+					layout.getManufacturer(), layout.getModelName(), layout.getSerialNumber());
+			return null;
+		}
+		for ( ModelLayout.ModelBlock block : layout.getModels() ) {
+			ModelAccessor accessor = createAccessor(data, block.address(), block.modelId(),
+					block.length());
+			data.addModel(block.length(), accessor);
+		}
+		return data;
+	}
+
 	private ModelData readModelData(ModbusConnection conn, int maxReadWordsCount, int sunSpecBaseAddress,
 			boolean load) throws IOException {
 		ModelData data = new ModelData(sunSpecBaseAddress + 2);
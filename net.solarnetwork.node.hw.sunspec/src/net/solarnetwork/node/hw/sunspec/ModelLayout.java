@@ -0,0 +1,289 @@
+/* ==================================================================
+ * ModelLayout.java - 19/10/2026 9:12:44 am
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.hw.sunspec;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An immutable description of the layout of the SunSpec models discovered on a
+ * device.
+ *
+ * <p>
+ * A layout captures the Modbus address of the common model, the identity of
+ * the device as reported by the common model, and the ID, address, and length
+ * of every subsequent model. A layout can be used to re-create a
+ * {@link ModelData} instance without walking the model chain on the device
+ * again.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 3.3
+ */
+public final class ModelLayout {
+
+	/** The map key for the common model address. */
+	public static final String COMMON_MODEL_ADDRESS_KEY = "addr";
+
+	/** The map key for the device manufacturer. */
+	public static final String MANUFACTURER_KEY = "mfr";
+
+	/** The map key for the device model name. */
+	public static final String MODEL_NAME_KEY = "model";
+
+	/** The map key for the device serial number. */
+	public static final String SERIAL_NUMBER_KEY = "sn";
+
+	/** The map key for the model blocks. */
+	public static final String MODELS_KEY = "models";
+
+	/**
+	 * A single model block within the layout.
+	 *
+	 * @param modelId
+	 *        the model ID
+	 * @param address
+	 *        the Modbus address of the model header
+	 * @param length
+	 *        the model length, in registers, excluding the model header
+	 */
+	public static record ModelBlock(int modelId, int address, int length) {
+
+	}
+
+	private final int commonModelAddress;
+	private final String manufacturer;
+	private final String modelName;
+	private final String serialNumber;
+	private final List<ModelBlock> models;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param commonModelAddress
+	 *        the Modbus address of the common model header
+	 * @param manufacturer
+	 *        the device manufacturer
+	 * @param modelName
+	 *        the device model name
+	 * @param serialNumber
+	 *        the device serial number
+	 * @param models
+	 *        the model blocks following the common model
+	 */
+	public ModelLayout(int commonModelAddress, String manufacturer, String modelName,
+			String serialNumber, List<ModelBlock> models) {
+		super();
+		this.commonModelAddress = commonModelAddress;
+		this.manufacturer = manufacturer;
+		this.modelName = modelName;
+		this.serialNumber = serialNumber;
+		this.models = (models != null ? List.copyOf(models) : List.of());
+	}
+
+	/**
+	 * Create a layout from discovered model data.
+	 *
+	 * @param data
+	 *        the data, with the common model loaded and all models added
+	 * @return the layout, or {@literal null} if {@code data} is
+	 *         {@literal null} or does not provide a manufacturer
+	 */
+	public static ModelLayout forModelData(ModelData data) {
+		if ( data == null || data.getManufacturer() == null ) {
+			return null;
+		}
+		List<ModelAccessor> accessors = data.getModels();
+		List<ModelBlock> blocks = new ArrayList<>(accessors.size());
+		for ( ModelAccessor accessor : accessors ) {
+			if ( accessor.getModelId() == null ) {
+				continue;
+			}
+			blocks.add(new ModelBlock(accessor.getModelId().getId(), accessor.getBaseAddress(),
+					accessor.getModelLength()));
+		}
+		return new ModelLayout(data.getBaseAddress(), data.getManufacturer(), data.getModelName(),
+				data.getSerialNumber(), blocks);
+	}
+
+	/**
+	 * Create a layout from a map, as previously created via {@link #toMap()}.
+	 *
+	 * @param map
+	 *        the map
+	 * @return the layout, or {@literal null} if {@code map} is
+	 *         {@literal null} or not a valid layout
+	 */
+	public static ModelLayout fromMap(Map<String, ?> map) {
+		if ( map == null || !(map.get(COMMON_MODEL_ADDRESS_KEY) instanceof Number addr)
+				|| !(map.get(MODELS_KEY) instanceof List<?> list) ) {
+			return null;
+		}
+		List<ModelBlock> blocks = new ArrayList<>(list.size());
+		for ( Object o : list ) {
+			if ( !(o instanceof List<?> l && l.size() > 2 && l.get(0) instanceof Number id
+					&& l.get(1) instanceof Number a && l.get(2) instanceof Number len) ) {
+				return null;
+			}
+			blocks.add(new ModelBlock(id.intValue(), a.intValue(), len.intValue()));
+		}
+		Object mfr = map.get(MANUFACTURER_KEY);
+		if ( mfr == null ) {
+			return null;
+		}
+		Object model = map.get(MODEL_NAME_KEY);
+		Object sn = map.get(SERIAL_NUMBER_KEY);
+		return new ModelLayout(addr.intValue(), mfr.toString(),
+				(model != null ? model.toString() : null), (sn != null ? sn.toString() : null),
+				blocks);
+	}
+
+	/**
+	 * Get a map representation of this layout.
+	 *
+	 * <p>
+	 * Each model block is encoded as a list of model ID, address, and length
+	 * values.
+	 * </p>
+	 *
+	 * @return the map, never {@literal null}
+	 */
+	public Map<String, Object> toMap() {
+		Map<String, Object> map = new LinkedHashMap<>(5);
+		map.put(COMMON_MODEL_ADDRESS_KEY, commonModelAddress);
+		map.put(MANUFACTURER_KEY, manufacturer);
+		if ( modelName != null ) {
+			map.put(MODEL_NAME_KEY, modelName);
+		}
+		if ( serialNumber != null ) {
+			map.put(SERIAL_NUMBER_KEY, serialNumber);
+		}
+		List<List<Integer>> blocks = new ArrayList<>(models.size());
+		for ( ModelBlock b : models ) {
+			blocks.add(List.of(b.modelId(), b.address(), b.length()));
+		}
+		map.put(MODELS_KEY, blocks);
+		return map;
+	}
+
+	/**
+	 * Test if the device identity in a common model matches this layout.
+	 *
+	 * @param common
+	 *        the common model to compare
+	 * @return {@literal true} if the manufacturer, model name, and serial
+	 *         number all match
+	 */
+	public boolean isSameDevice(CommonModelAccessor common) {
+		return (common != null && Objects.equals(manufacturer, common.getManufacturer())
+				&& Objects.equals(modelName, common.getModelName())
+				&& Objects.equals(serialNumber, common.getSerialNumber()));
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(commonModelAddress, manufacturer, modelName, serialNumber, models);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if ( this == obj ) {
+			return true;
+		}
+		if ( !(obj instanceof ModelLayout other) ) {
+			return false;
+		}
+		return commonModelAddress == other.commonModelAddress
+				&& Objects.equals(manufacturer, other.manufacturer)
+				&& Objects.equals(modelName, other.modelName)
+				&& Objects.equals(serialNumber, other.serialNumber)
+				&& Objects.equals(models, other.models);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("ModelLayout{commonModelAddress=");
+		builder.append(commonModelAddress);
+		builder.append(", manufacturer=");
+		builder.append(manufacturer);
+		builder.append(", modelName=");
+		builder.append(modelName);
+		builder.append(", serialNumber=");
+		builder.append(serialNumber);
+		builder.append(", models=");
+		builder.append(models);
+		builder.append("}");
+		return builder.toString();
+	}
+
+	/**
+	 * Get the Modbus address of the common model header.
+	 *
+	 * @return the address
+	 */
+	public int getCommonModelAddress() {
+		return commonModelAddress;
+	}
+
+	/**
+	 * Get the device manufacturer.
+	 *
+	 * @return the manufacturer
+	 */
+	public String getManufacturer() {
+		return manufacturer;
+	}
+
+	/**
+	 * Get the device model name.
+	 *
+	 * @return the model name
+	 */
+	public String getModelName() {
+		return modelName;
+	}
+
+	/**
+	 * Get the device serial number.
+	 *
+	 * @return the serial number
+	 */
+	public String getSerialNumber() {
+		return serialNumber;
+	}
+
+	/**
+	 * Get the model blocks following the common model.
+	 *
+	 * @return the models, never {@literal null}
+	 */
+	public List<ModelBlock> getModels() {
+		return models;
+	}
+
+}
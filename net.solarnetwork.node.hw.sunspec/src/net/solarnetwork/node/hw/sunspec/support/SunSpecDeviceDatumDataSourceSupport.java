@@ -35,12 +35,16 @@ import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import net.solarnetwork.domain.DeviceInfo;
+import net.solarnetwork.node.dao.LocalStateDao;
 import net.solarnetwork.node.domain.DataAccessor;
+import net.solarnetwork.node.domain.LocalState;
+import net.solarnetwork.node.domain.LocalStateType;
 import net.solarnetwork.node.hw.sunspec.GenericModelId;
 import net.solarnetwork.node.hw.sunspec.ModelAccessor;
 import net.solarnetwork.node.hw.sunspec.ModelData;
 import net.solarnetwork.node.hw.sunspec.ModelDataFactory;
 import net.solarnetwork.node.hw.sunspec.ModelDataProvider;
+import net.solarnetwork.node.hw.sunspec.ModelLayout;
 import net.solarnetwork.node.io.modbus.ModbusConnection;
 import net.solarnetwork.node.io.modbus.ModbusConnectionAction;
 import net.solarnetwork.node.io.modbus.ModbusNetwork;
@@ -49,6 +53,7 @@ import net.solarnetwork.service.OptionalService;
 import net.solarnetwork.settings.SettingSpecifier;
 import net.solarnetwork.settings.support.BasicTextFieldSettingSpecifier;
 import net.solarnetwork.settings.support.BasicTitleSettingSpecifier;
+import net.solarnetwork.settings.support.BasicToggleSettingSpecifier;
 import net.solarnetwork.util.StringUtils;
 
 /**
@@ -56,18 +61,37 @@ import net.solarnetwork.util.StringUtils;
  * implementations for SunSpec devices.
  *
  * @author matt
- * @version 2.4
+ * @version 2.5
  * @since 1.1
  */
 public abstract class SunSpecDeviceDatumDataSourceSupport extends ModbusDeviceDatumDataSourceSupport
 		implements ModelDataProvider {
 
+	/**
+	 * The {@link LocalState} key template for a persisted model layout.
+	 *
+	 * <p>
+	 * The template accepts the Modbus network UID and unit ID parameters.
+	 * </p>
+	 *
+	 * @since 2.5
+	 */
+	public static final String MODEL_LAYOUT_LOCAL_STATE_KEY_TEMPLATE = "sunspec.layout/%s/%d";
+
+	/**
+	 * The {@code modelLayoutCache} property default value.
+	 *
+	 * @since 2.5
+	 */
+	public static final boolean DEFAULT_MODEL_LAYOUT_CACHE = true;
+
 	private final AtomicReference<ModelData> sample;
 
 	private long sampleCacheMs = 5000;
 	private String sourceId = null;
 	private Integer baseAddress = null;
 	private Set<Integer> secondaryModelIds;
+	private boolean modelLayoutCache = DEFAULT_MODEL_LAYOUT_CACHE;
 
 	/**
 	 * Default constructor.
@@ -166,12 +190,84 @@ public abstract class SunSpecDeviceDatumDataSourceSupport extends ModbusDeviceDa
 	}
 
 	private ModelData modelData(ModbusConnection conn) throws IOException {
-		Integer manualBaseAddress = getBaseAddress();
+		final ModelDataFactory factory = ModelDataFactory.getInstance();
+		final Integer manualBaseAddress = getBaseAddress();
+		final String layoutKey = modelLayoutLocalStateKey();
+		ModelData result = cachedLayoutModelData(conn, factory, layoutKey, manualBaseAddress);
+		if ( result != null ) {
+			return result;
+		}
 		if ( manualBaseAddress != null && manualBaseAddress.intValue() >= 0 ) {
-			return ModelDataFactory.getInstance().getModelData(conn,
-					ModelDataFactory.DEFAULT_MAX_READ_WORDS_COUNT, manualBaseAddress, false);
+			result = factory.getModelData(conn, ModelDataFactory.DEFAULT_MAX_READ_WORDS_COUNT,
+					manualBaseAddress, false);
+		} else {
+			result = factory.getModelData(conn, false);
+		}
+		saveModelLayout(layoutKey, result);
+		return result;
+	}
+
+	private String modelLayoutLocalStateKey() {
+		if ( !modelLayoutCache ) {
+			return null;
+		}
+		final ModbusNetwork network = modbusNetwork();
+		final String networkUid = (network != null ? network.getUid() : null);
+		if ( networkUid == null || networkUid.isBlank() ) {
+			return null;
+		}
+		return String.format(MODEL_LAYOUT_LOCAL_STATE_KEY_TEMPLATE, networkUid, getUnitId());
+	}
+
+	@SuppressWarnings("unchecked")
+	private ModelData cachedLayoutModelData(ModbusConnection conn, ModelDataFactory factory,
+			String key, Integer manualBaseAddress) {
+		final LocalStateDao dao = (key != null ? OptionalService.service(getLocalStateDao()) : null);
+		if ( dao == null ) {
+			return null;
+		}
+		try {
+			final LocalState state = dao.get(key);
+			final ModelLayout layout = (state != null && state.getValue() instanceof Map<?, ?> m
+					? ModelLayout.fromMap((Map<String, ?>) m)
+					: null);
+			if ( layout == null ) {
+				return null;
+			}
+			if ( manualBaseAddress != null && manualBaseAddress.intValue() >= 0
+					&& layout.getCommonModelAddress() != manualBaseAddress.intValue() + 2 ) {
+				// manual address changed since layout cached
+				return null;
+			}
+			ModelData result = factory.getModelData(conn,
+					ModelDataFactory.DEFAULT_MAX_READ_WORDS_COUNT, layout);
+			if ( result != null ) {
+				log.debug("Using cached SunSpec model layout for {}: {}", modbusDeviceName(),
+						layout);
+			}
+			return result;
+		} catch ( IOException | RuntimeException e ) {
+			log.info("Unable to use cached SunSpec model layout for {}, will rediscover: {}",
+					modbusDeviceName(), e.toString());
+		}
+		return null;
+	}
+
+	private void saveModelLayout(String key, ModelData data) {
+		final LocalStateDao dao = (key != null ? OptionalService.service(getLocalStateDao()) : null);
+		if ( dao == null ) {
+			return;
+		}
+		final ModelLayout layout = ModelLayout.forModelData(data);
+		if ( layout == null ) {
+			return;
+		}
+		try {
+			dao.compareAndChange(new LocalState(key, LocalStateType.Mapping, layout.toMap()));
+		} catch ( RuntimeException e ) {
+			log.warn("Error saving SunSpec model layout for {}: {}", modbusDeviceName(),
+					e.toString());
 		}
-		return ModelDataFactory.getInstance().getModelData(conn, false);
 	}
 
 	private List<ModelAccessor> getSecondaryModelAccessors(ModelData data) {
@@ -358,6 +454,8 @@ public abstract class SunSpecDeviceDatumDataSourceSupport extends ModbusDeviceDa
 	 * <li>A <code>sampleCacheMs</code> text field.</li>
 	 * <li>A <code>sourceId</code> text field.</li>
 	 * <li>A <code>secondaryModelIdsValue</code> text field.</li>
+	 * <li>A <code>baseAddress</code> text field.</li>
+	 * <li>A <code>modelLayoutCache</code> toggle.</li>
 	 * </ol>
 	 *
 	 * @param defaults
@@ -385,6 +483,8 @@ public abstract class SunSpecDeviceDatumDataSourceSupport extends ModbusDeviceDa
 		results.add(new BasicTextFieldSettingSpecifier("secondaryModelIdsValue",
 				defaults.getSecondaryModelIdsValue()));
 		results.add(new BasicTextFieldSettingSpecifier("baseAddress", ""));
+		results.add(new BasicToggleSettingSpecifier("modelLayoutCache",
+				defaults.isModelLayoutCache()));
 
 		results.addAll(getDeviceInfoMetadataSettingSpecifiers());
 
@@ -588,4 +688,34 @@ public abstract class SunSpecDeviceDatumDataSourceSupport extends ModbusDeviceDa
 		this.baseAddress = baseAddress;
 	}
 
+	/**
+	 * Get the model layout cache mode.
+	 *
+	 * @return {@literal true} to persist the discovered SunSpec model layout
+	 *         to local state and re-use it after a restart; defaults to
+	 *         {@link #DEFAULT_MODEL_LAYOUT_CACHE}
+	 * @since 2.5
+	 */
+	public boolean isModelLayoutCache() {
+		return modelLayoutCache;
+	}
+
+	/**
+	 * Set the model layout cache mode.
+	 *
+	 * <p>
+	 * When enabled, the discovered model layout is persisted via the
+	 * configured {@link LocalStateDao}, keyed by Modbus network and unit ID.
+	 * On startup the persisted layout is validated by reading only the common
+	 * model, avoiding the base address discovery and model chain walk.
+	 * </p>
+	 *
+	 * @param modelLayoutCache
+	 *        {@literal true} to persist the discovered SunSpec model layout
+	 * @since 2.5
+	 */
+	public void setModelLayoutCache(boolean modelLayoutCache) {
+		this.modelLayoutCache = modelLayoutCache;
+	}
+
 }
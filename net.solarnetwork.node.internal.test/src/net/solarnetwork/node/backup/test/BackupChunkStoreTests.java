@@ -0,0 +1,149 @@
+/* ==================================================================
+ * BackupChunkStoreTests.java - 19/10/2026 10:31:08 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.backup.test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.FileSystemUtils;
+import net.solarnetwork.node.backup.BackupChunkStore;
+import net.solarnetwork.node.backup.ContentDefinedChunker;
+
+/**
+ * Test cases for the {@link BackupChunkStore} class.
+ *
+ * @author matt
+ * @version 1.0
+ */
+public class BackupChunkStoreTests {
+
+	private Path tmpDir;
+	private BackupChunkStore store;
+
+	@Before
+	public void setup() throws IOException {
+		tmpDir = Files.createTempDirectory("BackupChunkStoreTests-");
+		store = new BackupChunkStore(tmpDir.toFile(), new ContentDefinedChunker(256, 1024, 4096));
+	}
+
+	@After
+	public void teardown() {
+		FileSystemUtils.deleteRecursively(tmpDir.toFile());
+	}
+
+	private static byte[] randomData(long seed, int size) {
+		byte[] data = new byte[size];
+		new Random(seed).nextBytes(data);
+		return data;
+	}
+
+	@Test
+	public void storeAndOpen() throws IOException {
+		// GIVEN
+		byte[] data = randomData(1L, 20_000);
+
+		// WHEN
+		BackupChunkStore.StoreResult result = store.store(new ByteArrayInputStream(data));
+
+		// THEN
+		assertThat("Size returned", result.getSize(), is(equalTo((long) data.length)));
+		assertThat("Digest of content returned", result.getDigest(),
+				is(equalTo(DigestUtils.sha256Hex(data))));
+		assertThat("Multiple chunks stored", result.getChunks().size(), is(greaterThan(1)));
+		assertThat("All chunks new", result.getNewChunkCount(),
+				is(equalTo(new HashSet<>(result.getChunks()).size())));
+		try (InputStream in = store.open(result.getChunks())) {
+			assertThat("Content restored from chunks", FileCopyUtils.copyToByteArray(in),
+					is(equalTo(data)));
+		}
+	}
+
+	@Test
+	public void store_deduplicate() throws IOException {
+		// GIVEN
+		byte[] data = randomData(2L, 20_000);
+		BackupChunkStore.StoreResult first = store.store(new ByteArrayInputStream(data));
+		byte[] modified = data.clone();
+		modified[data.length - 1] ^= 0xFF;
+
+		// WHEN
+		BackupChunkStore.StoreResult second = store.store(new ByteArrayInputStream(data));
+		BackupChunkStore.StoreResult third = store.store(new ByteArrayInputStream(modified));
+
+		// THEN
+		assertThat("Same chunks for same content", second.getChunks(),
+				is(equalTo(first.getChunks())));
+		assertThat("No new chunks for same content", second.getNewChunkCount(), is(equalTo(0)));
+		assertThat("Only changed chunk stored for modified content", third.getNewChunkCount(),
+				is(equalTo(1)));
+		try (InputStream in = store.open(third.getChunks())) {
+			assertThat("Modified content restored from chunks", FileCopyUtils.copyToByteArray(in),
+					is(equalTo(modified)));
+		}
+	}
+
+	@Test
+	public void retainAll() throws IOException {
+		// GIVEN
+		BackupChunkStore.StoreResult keep = store
+				.store(new ByteArrayInputStream(randomData(3L, 10_000)));
+		BackupChunkStore.StoreResult remove = store
+				.store(new ByteArrayInputStream(randomData(4L, 10_000)));
+
+		// WHEN
+		int count = store.retainAll(new HashSet<>(keep.getChunks()));
+
+		// THEN
+		assertThat("Unreferenced chunks deleted", count, is(greaterThan(0)));
+		assertThat("Deleted count at most removed chunk count", count,
+				is(lessThan(remove.getChunks().size() + 1)));
+		for ( String chunk : keep.getChunks() ) {
+			assertThat("Referenced chunk retained", store.contains(chunk), is(equalTo(true)));
+		}
+		for ( String chunk : remove.getChunks() ) {
+			assertThat("Unreferenced chunk deleted", store.contains(chunk), is(equalTo(false)));
+		}
+	}
+
+	@Test(expected = FileNotFoundException.class)
+	public void open_missingChunk() throws IOException {
+		store.open(List.of(DigestUtils.sha256Hex("missing")));
+	}
+
+}
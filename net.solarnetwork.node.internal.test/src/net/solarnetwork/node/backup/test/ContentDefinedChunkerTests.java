@@ -0,0 +1,160 @@
+/* ==================================================================
+ * ContentDefinedChunkerTests.java - 19/10/2026 10:12:55 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.backup.test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Test;
+import net.solarnetwork.node.backup.ContentDefinedChunker;
+
+/**
+ * Test cases for the {@link ContentDefinedChunker} class.
+ *
+ * @author matt
+ * @version 1.0
+ */
+public class ContentDefinedChunkerTests {
+
+	private static final int MIN_SIZE = 256;
+	private static final int AVG_SIZE = 1024;
+	private static final int MAX_SIZE = 4096;
+
+	private static byte[] randomData(long seed, int size) {
+		byte[] data = new byte[size];
+		new Random(seed).nextBytes(data);
+		return data;
+	}
+
+	private static List<String> chunkDigests(ContentDefinedChunker chunker, byte[] data)
+			throws IOException {
+		List<String> result = new ArrayList<>();
+		chunker.split(new ByteArrayInputStream(data), (buf, offset, length) -> {
+			byte[] chunk = new byte[length];
+			System.arraycopy(buf, offset, chunk, 0, length);
+			result.add(DigestUtils.sha256Hex(chunk));
+		});
+		return result;
+	}
+
+	@Test
+	public void split_reassemble() throws IOException {
+		// GIVEN
+		ContentDefinedChunker chunker = new ContentDefinedChunker(MIN_SIZE, AVG_SIZE, MAX_SIZE);
+		byte[] data = randomData(1L, 200_000);
+
+		// WHEN
+		ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+		List<Integer> sizes = new ArrayList<>();
+		long total = chunker.split(new ByteArrayInputStream(data), (buf, offset, length) -> {
+			out.write(buf, offset, length);
+			sizes.add(length);
+		});
+
+		// THEN
+		assertThat("Total size returned", total, is(equalTo((long) data.length)));
+		assertThat("Chunks reassemble to original data", out.toByteArray(), is(equalTo(data)));
+		for ( int i = 0; i < sizes.size(); i++ ) {
+			int size = sizes.get(i);
+			assertThat("Chunk size at most maximum", size, is(lessThanOrEqualTo(MAX_SIZE)));
+			if ( i + 1 < sizes.size() ) {
+				assertThat("Chunk size at least minimum", size, is(greaterThanOrEqualTo(MIN_SIZE)));
+			}
+		}
+		double avg = (double) data.length / sizes.size();
+		assertThat("Average chunk size near configured average", avg,
+				is(greaterThan(AVG_SIZE / 2.0)));
+		assertThat("Average chunk size near configured average", avg,
+				is(lessThanOrEqualTo(AVG_SIZE * 2.0)));
+	}
+
+	@Test
+	public void split_empty() throws IOException {
+		// GIVEN
+		ContentDefinedChunker chunker = new ContentDefinedChunker(MIN_SIZE, AVG_SIZE, MAX_SIZE);
+
+		// WHEN
+		List<String> digests = chunkDigests(chunker, new byte[0]);
+
+		// THEN
+		assertThat("No chunks for empty stream", digests.isEmpty(), is(equalTo(true)));
+	}
+
+	@Test
+	public void split_deterministic() throws IOException {
+		// GIVEN
+		byte[] data = randomData(2L, 50_000);
+
+		// WHEN
+		List<String> digests1 = chunkDigests(new ContentDefinedChunker(MIN_SIZE, AVG_SIZE, MAX_SIZE),
+				data);
+		List<String> digests2 = chunkDigests(new ContentDefinedChunker(MIN_SIZE, AVG_SIZE, MAX_SIZE),
+				data);
+
+		// THEN
+		assertThat("Same data produces same chunks", digests2, is(equalTo(digests1)));
+	}
+
+	@Test
+	public void split_insertion() throws IOException {
+		// GIVEN
+		ContentDefinedChunker chunker = new ContentDefinedChunker(MIN_SIZE, AVG_SIZE, MAX_SIZE);
+		byte[] data = randomData(3L, 100_000);
+		byte[] modified = new byte[data.length + 10];
+		System.arraycopy(data, 0, modified, 0, 5_000);
+		System.arraycopy(randomData(4L, 10), 0, modified, 5_000, 10);
+		System.arraycopy(data, 5_000, modified, 5_010, data.length - 5_000);
+
+		// WHEN
+		List<String> digests = chunkDigests(chunker, data);
+		List<String> modifiedDigests = chunkDigests(chunker, modified);
+
+		// THEN
+		Set<String> changed = new HashSet<>(modifiedDigests);
+		changed.removeAll(digests);
+		assertThat("Only chunks near insertion changed", changed.size(), is(lessThanOrEqualTo(3)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_unorderedSizes() {
+		new ContentDefinedChunker(AVG_SIZE, MIN_SIZE, MAX_SIZE);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_avgNotPowerOf2() {
+		new ContentDefinedChunker(MIN_SIZE, 1000, MAX_SIZE);
+	}
+
+}
@@ -24,6 +24,7 @@ package net.solarnetwork.node.backup.test;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
@@ -32,18 +33,22 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.GregorianCalendar;
 import java.util.List;
+import java.util.stream.Stream;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.util.FileCopyUtils;
+import org.springframework.util.FileSystemUtils;
 import net.solarnetwork.node.backup.Backup;
 import net.solarnetwork.node.backup.BackupResource;
 import net.solarnetwork.node.backup.BackupResourceIterable;
@@ -60,7 +65,7 @@ import net.solarnetwork.service.StaticOptionalService;
  * Test case for the {@link FileSystemBackupService}.
  *
  * @author matt
- * @version 2.0
+ * @version 2.1
  */
 public class FileSystemBackupServiceTest {
 
@@ -295,4 +300,57 @@ public class FileSystemBackupServiceTest {
 				result.stream().map(Backup::getNodeId).toArray(Long[]::new),
 				is(arrayContaining(0L, 0L, TEST_NODE_ID)));
 	}
+
+	private static int fileCount(File dir) throws IOException {
+		try (Stream<Path> files = Files.walk(dir.toPath())) {
+			return (int) files.filter(Files::isRegularFile).count();
+		}
+	}
+
+	@Test
+	public void backupChunked_sharedChunks() throws Exception {
+		final Path tmpDir = Files.createTempDirectory("FileSystemBackupServiceTest-");
+		try {
+			// GIVEN
+			service.setBackupDir(tmpDir.toFile());
+			service.setAdditionalBackupCount(1);
+			final File chunkDir = new File(tmpDir.toFile(), FileSystemBackupService.CHUNK_DIR_NAME);
+			final ClassPathResource testResource = new ClassPathResource("test-context.xml",
+					AbstractNodeTransactionalTest.class);
+			final List<BackupResource> resources = new ArrayList<BackupResource>(2);
+			resources.add(new ResourceBackupResource(testResource, "test.xml"));
+			resources.add(new ResourceBackupResource(testResource, "copy/test.xml"));
+
+			// WHEN
+			Backup result1 = service.performBackup(resources);
+			final int chunkCount1 = fileCount(chunkDir);
+			Thread.sleep(1000);
+			Backup result2 = service.performBackup(resources);
+			final int chunkCount2 = fileCount(chunkDir);
+
+			// THEN
+			assertNotNull(result1);
+			assertNotNull(result2);
+			assertThat("Identical resources share chunks", chunkCount1, is(equalTo(1)));
+			assertThat("Unchanged resources stored no new chunks", chunkCount2,
+					is(equalTo(chunkCount1)));
+
+			final byte[] expected = FileCopyUtils.copyToByteArray(testResource.getInputStream());
+			int count = 0;
+			try (BackupResourceIterable backupResources = service.getBackupResources(result1)) {
+				for ( BackupResource r : backupResources ) {
+					count++;
+					Assert.assertArrayEquals(expected,
+							FileCopyUtils.copyToByteArray(r.getInputStream()));
+				}
+			}
+			assertEquals("Should have 2 backup resources", 2, count);
+
+			service.removeAllBackups();
+			assertThat("Unused chunks removed with backups", fileCount(chunkDir), is(equalTo(0)));
+		} finally {
+			FileSystemUtils.deleteRecursively(tmpDir.toFile());
+		}
+	}
+
 }
@@ -27,8 +27,16 @@ import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.nullValue;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
 import net.solarnetwork.domain.InstructionStatus.InstructionState;
 import net.solarnetwork.node.reactor.BasicInstruction;
@@ -42,7 +50,7 @@ import net.solarnetwork.node.reactor.SimpleInstructionExecutionService;
  * Test cases for the {@link SimpleInstructionExecutionService} class.
  * 
  * @author matt
- * @version 1.0
+ * @version 1.1
  */
 public class SimpleInstructionExecutionServiceTests {
 
@@ -169,4 +177,180 @@ public class SimpleInstructionExecutionServiceTests {
 		assertThat("Acknoledged state", status.getAcknowledgedInstructionState(), nullValue());
 	}
 
+	private static BasicInstruction controlInstruction(long id, String controlId) {
+		BasicInstruction instr = new BasicInstruction(id,
+				InstructionHandler.TOPIC_SET_CONTROL_PARAMETER, Instant.now(),
+				Instruction.LOCAL_INSTRUCTION_ID, null);
+		instr.addParameter(controlId, "1");
+		return instr;
+	}
+
+	@Test
+	public void handlerIndexedByTopic() {
+		// given
+		final AtomicInteger handlesTopicCount = new AtomicInteger();
+		InstructionHandler handler = new TestTopicInstructionHandler() {
+
+			@Override
+			public boolean handlesTopic(String topic) {
+				handlesTopicCount.incrementAndGet();
+				return super.handlesTopic(topic);
+			}
+
+			@Override
+			public InstructionStatus processInstruction(Instruction instruction) {
+				return InstructionUtils.createStatus(instruction, InstructionState.Completed);
+			}
+
+		};
+		SimpleInstructionExecutionService service = new SimpleInstructionExecutionService(
+				Collections.singletonList(handler));
+
+		// when
+		for ( int i = 0; i < 3; i++ ) {
+			BasicInstruction instr = new BasicInstruction((long) i, TEST_TOPIC, Instant.now(),
+					Instruction.LOCAL_INSTRUCTION_ID, null);
+			InstructionStatus status = service.executeInstruction(instr);
+			assertThat("Result status", status, notNullValue());
+		}
+
+		// then
+		assertThat("Handler topic support tested once", handlesTopicCount.get(), equalTo(1));
+		SimpleInstructionExecutionService.TopicStats stats = service.getTopicStats()
+				.get(TEST_TOPIC);
+		assertThat("Topic stats available", stats, notNullValue());
+		assertThat("Topic execution count", stats.getCount(), equalTo(3L));
+		assertThat("Topic queue drained", stats.getQueueDepth(), equalTo(0));
+	}
+
+	@Test
+	public void handlerIndexResetWhenHandlersChange() {
+		// given
+		List<InstructionHandler> handlers = new ArrayList<>();
+		SimpleInstructionExecutionService service = new SimpleInstructionExecutionService(
+				handlers);
+		BasicInstruction instr = new BasicInstruction(1L, TEST_TOPIC, Instant.now(),
+				Instruction.LOCAL_INSTRUCTION_ID, null);
+		handlers.add(new TestTopicInstructionHandler() {
+
+			@Override
+			public InstructionStatus processInstruction(Instruction instruction) {
+				return null;
+			}
+
+		});
+		assertThat("Not handled", service.executeInstruction(instr), nullValue());
+
+		// when
+		handlers.add(new TestTopicInstructionHandler() {
+
+			@Override
+			public InstructionStatus processInstruction(Instruction instruction) {
+				return InstructionUtils.createStatus(instruction, InstructionState.Completed);
+			}
+
+		});
+		InstructionStatus status = service.executeInstruction(instr);
+
+		// then
+		assertThat("Handled by added handler", status, notNullValue());
+		assertThat("State", status.getInstructionState(), equalTo(InstructionState.Completed));
+	}
+
+	@Test
+	public void differentControlsExecuteConcurrently() throws Exception {
+		// given
+		final CountDownLatch latch = new CountDownLatch(2);
+		InstructionHandler handler = new InstructionHandler() {
+
+			@Override
+			public boolean handlesTopic(String topic) {
+				return TOPIC_SET_CONTROL_PARAMETER.equals(topic);
+			}
+
+			@Override
+			public InstructionStatus processInstruction(Instruction instruction) {
+				latch.countDown();
+				try {
+					// both instructions must be executing at the same time to complete
+					return InstructionUtils.createStatus(instruction,
+							latch.await(5, TimeUnit.SECONDS) ? InstructionState.Completed
+									: InstructionState.Declined);
+				} catch ( InterruptedException e ) {
+					return null;
+				}
+			}
+
+		};
+		SimpleInstructionExecutionService service = new SimpleInstructionExecutionService(
+				Collections.singletonList(handler));
+
+		// when
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<InstructionStatus> f1 = executor
+					.submit(() -> service.executeInstruction(controlInstruction(1L, "a")));
+			Future<InstructionStatus> f2 = executor
+					.submit(() -> service.executeInstruction(controlInstruction(2L, "b")));
+
+			// then
+			assertThat("Control a state", f1.get(10, TimeUnit.SECONDS).getInstructionState(),
+					equalTo(InstructionState.Completed));
+			assertThat("Control b state", f2.get(10, TimeUnit.SECONDS).getInstructionState(),
+					equalTo(InstructionState.Completed));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void sameControlExecutesSerially() throws Exception {
+		// given
+		final AtomicInteger active = new AtomicInteger();
+		final AtomicInteger maxActive = new AtomicInteger();
+		InstructionHandler handler = new InstructionHandler() {
+
+			@Override
+			public boolean handlesTopic(String topic) {
+				return TOPIC_SET_CONTROL_PARAMETER.equals(topic);
+			}
+
+			@Override
+			public InstructionStatus processInstruction(Instruction instruction) {
+				maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(20);
+				} catch ( InterruptedException e ) {
+					// ignore
+				} finally {
+					active.decrementAndGet();
+				}
+				return InstructionUtils.createStatus(instruction, InstructionState.Completed);
+			}
+
+		};
+		SimpleInstructionExecutionService service = new SimpleInstructionExecutionService(
+				Collections.singletonList(handler));
+
+		// when
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<InstructionStatus>> futures = new ArrayList<>();
+			for ( int i = 0; i < 4; i++ ) {
+				final long id = i;
+				futures.add(executor
+						.submit(() -> service.executeInstruction(controlInstruction(id, "a"))));
+			}
+			for ( Future<InstructionStatus> f : futures ) {
+				assertThat("State", f.get(10, TimeUnit.SECONDS).getInstructionState(),
+						equalTo(InstructionState.Completed));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// then
+		assertThat("Same control never executed concurrently", maxActive.get(), equalTo(1));
+	}
+
 }
@@ -0,0 +1,248 @@
+/* ==================================================================
+ * DefaultDatumBusTests.java - 19/10/2026 7:02:18 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.runtime.test;
+
+import static java.util.Collections.singleton;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.easymock.Capture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+import org.springframework.util.AntPathMatcher;
+import net.solarnetwork.domain.datum.DatumSamples;
+import net.solarnetwork.node.domain.datum.NodeDatum;
+import net.solarnetwork.node.domain.datum.SimpleDatum;
+import net.solarnetwork.node.runtime.DefaultDatumBus;
+import net.solarnetwork.node.service.DatumBus;
+import net.solarnetwork.node.service.DatumBus.Stage;
+import net.solarnetwork.node.service.DatumBus.Subscriber;
+import net.solarnetwork.node.service.DatumEvents;
+import net.solarnetwork.node.service.DatumQueue;
+import net.solarnetwork.service.StaticOptionalService;
+
+/**
+ * Test cases for the {@link DefaultDatumBus} class.
+ *
+ * @author matt
+ * @version 1.0
+ */
+public class DefaultDatumBusTests {
+
+	private EventAdmin eventAdmin;
+	private DefaultDatumBus bus;
+
+	@Before
+	public void setup() {
+		eventAdmin = createMock(EventAdmin.class);
+		bus = new DefaultDatumBus(new AntPathMatcher(), new StaticOptionalService<>(eventAdmin));
+		bus.setEventAdminBridge(false);
+	}
+
+	@After
+	public void teardown() {
+		verify(eventAdmin);
+	}
+
+	private static NodeDatum datum(String sourceId) {
+		return SimpleDatum.nodeDatum(sourceId, Instant.now(), new DatumSamples());
+	}
+
+	@Test
+	public void publish_allSubscriber() {
+		// GIVEN
+		List<NodeDatum> received = new ArrayList<>();
+		bus.subscribe((stage, d) -> received.add(d), null, null);
+
+		// WHEN
+		replay(eventAdmin);
+		NodeDatum d1 = datum("a");
+		NodeDatum d2 = datum("b");
+		bus.publish(Stage.Captured, d1);
+		bus.publish(Stage.Stored, d2);
+
+		// THEN
+		assertThat("All datum received", received, contains(sameInstance(d1), sameInstance(d2)));
+	}
+
+	@Test
+	public void publish_sourceIdPattern() {
+		// GIVEN
+		List<NodeDatum> received = new ArrayList<>();
+		bus.subscribe((stage, d) -> received.add(d), singleton("/meter/**"), null);
+
+		// WHEN
+		replay(eventAdmin);
+		NodeDatum d1 = datum("/meter/1");
+		bus.publish(Stage.Captured, d1);
+		bus.publish(Stage.Captured, datum("/inv/1"));
+		bus.publish(Stage.Captured, d1);
+
+		// THEN
+		assertThat("Only matching datum received", received,
+				contains(sameInstance(d1), sameInstance(d1)));
+	}
+
+	@Test
+	public void publish_stage() {
+		// GIVEN
+		List<Stage> received = new ArrayList<>();
+		bus.subscribe((stage, d) -> received.add(stage), null,
+				EnumSet.of(Stage.Acquired, Stage.Stored));
+
+		// WHEN
+		replay(eventAdmin);
+		NodeDatum d = datum("a");
+		bus.publish(Stage.Captured, d);
+		bus.publish(Stage.Acquired, d);
+		bus.publish(Stage.Stored, d);
+
+		// THEN
+		assertThat("Only subscribed stages received", received,
+				contains(Stage.Acquired, Stage.Stored));
+	}
+
+	@Test
+	public void subscribe_replace() {
+		// GIVEN
+		List<NodeDatum> received = new ArrayList<>();
+		Subscriber sub = (stage, d) -> received.add(d);
+		bus.subscribe(sub, singleton("a"), null);
+
+		// WHEN
+		replay(eventAdmin);
+		NodeDatum d1 = datum("a");
+		NodeDatum d2 = datum("b");
+		bus.publish(Stage.Captured, d1);
+		bus.subscribe(sub, singleton("b"), null);
+		bus.publish(Stage.Captured, d1);
+		bus.publish(Stage.Captured, d2);
+
+		// THEN
+		assertThat("Subscription replaced", bus.getSubscriberCount(), is(equalTo(1)));
+		assertThat("Datum received per active subscription", received,
+				contains(sameInstance(d1), sameInstance(d2)));
+	}
+
+	@Test
+	public void unsubscribe() {
+		// GIVEN
+		List<NodeDatum> received = new ArrayList<>();
+		Subscriber sub = (stage, d) -> received.add(d);
+		bus.subscribe(sub, null, null);
+
+		// WHEN
+		replay(eventAdmin);
+		NodeDatum d = datum("a");
+		bus.publish(Stage.Captured, d);
+		bus.unsubscribe(sub);
+		bus.publish(Stage.Captured, d);
+
+		// THEN
+		assertThat("No subscribers remain", bus.getSubscriberCount(), is(equalTo(0)));
+		assertThat("Datum not received after unsubscribe", received, hasSize(1));
+	}
+
+	@Test
+	public void publish_subscriberError() {
+		// GIVEN
+		List<NodeDatum> received = new ArrayList<>();
+		bus.subscribe((stage, d) -> {
+			throw new RuntimeException("test");
+		}, null, null);
+		bus.subscribe((stage, d) -> received.add(d), null, null);
+
+		// WHEN
+		replay(eventAdmin);
+		NodeDatum d = datum("a");
+		bus.publish(Stage.Captured, d);
+
+		// THEN
+		assertThat("Subscriber error does not prevent delivery to others", received,
+				contains(sameInstance(d)));
+	}
+
+	@Test
+	public void publish_eventAdminBridge() {
+		// GIVEN
+		bus.setEventAdminBridge(true);
+		Capture<Event> eventCaptor = Capture.newInstance();
+		eventAdmin.postEvent(capture(eventCaptor));
+		expectLastCall();
+
+		// WHEN
+		replay(eventAdmin);
+		NodeDatum d = datum("a");
+		bus.publish(Stage.Acquired, d);
+
+		// THEN
+		Event evt = eventCaptor.getValue();
+		assertThat("Event topic from stage", evt.getTopic(),
+				is(equalTo(DatumQueue.EVENT_TOPIC_DATUM_ACQUIRED)));
+		assertThat("Event datum is published datum", evt.getProperty(DatumEvents.DATUM_PROPERTY),
+				is(sameInstance(d)));
+	}
+
+	@Test
+	public void bindSubscriber_serviceProperties() {
+		// GIVEN
+		List<NodeDatum> received = new ArrayList<>();
+		Subscriber sub = (stage, d) -> received.add(d);
+		Map<String, Object> props = new HashMap<>(2);
+		props.put(DatumBus.SUBSCRIBER_SOURCE_IDS_PROPERTY, "/meter/**");
+		props.put(DatumBus.SUBSCRIBER_STAGES_PROPERTY, new String[] { "Acquired" });
+
+		// WHEN
+		replay(eventAdmin);
+		bus.onBindSubscriber(sub, props);
+		NodeDatum d1 = datum("/meter/1");
+		bus.publish(Stage.Captured, d1);
+		bus.publish(Stage.Acquired, d1);
+		bus.publish(Stage.Acquired, datum("/inv/1"));
+		bus.onUnbindSubscriber(sub, props);
+		bus.publish(Stage.Acquired, d1);
+
+		// THEN
+		assertThat("Only matching source and stage received while bound", received,
+				contains(sameInstance(d1)));
+		assertThat("No subscribers remain", bus.getSubscriberCount(), is(equalTo(0)));
+	}
+
+}
@@ -0,0 +1,123 @@
+/* ==================================================================
+ * DefaultNettyEventLoopServiceTests.java - 19/10/2026 5:58:14 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.runtime.test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.EventLoopGroup;
+import net.solarnetwork.node.runtime.DefaultNettyEventLoopService;
+
+/**
+ * Test cases for the {@link DefaultNettyEventLoopService} class.
+ *
+ * @author matt
+ * @version 1.0
+ */
+public class DefaultNettyEventLoopServiceTests {
+
+	private DefaultNettyEventLoopService service;
+
+	@Before
+	public void setup() {
+		service = new DefaultNettyEventLoopService();
+		service.setBossThreadCount(1);
+		service.setWorkerThreadCount(2);
+		service.setShutdownTimeoutSeconds(1);
+		service.serviceDidStartup();
+	}
+
+	@After
+	public void teardown() {
+		service.serviceDidShutdown();
+	}
+
+	@Test
+	public void groupsCreatedOnDemand() {
+		// THEN
+		assertThat("No boss threads before use", service.getBossThreadCount(), is(equalTo(0)));
+		assertThat("No worker threads before use", service.getWorkerThreadCount(), is(equalTo(0)));
+		assertThat("No pending tasks before use", service.getPendingTaskCount(), is(equalTo(0L)));
+	}
+
+	@Test
+	public void groupsShared() {
+		// WHEN
+		EventLoopGroup boss = service.getBossGroup();
+		EventLoopGroup worker = service.getWorkerGroup();
+
+		// THEN
+		assertThat("Same boss group returned", service.getBossGroup(), is(sameInstance(boss)));
+		assertThat("Same worker group returned", service.getWorkerGroup(),
+				is(sameInstance(worker)));
+		assertThat("Boss and worker groups distinct", boss, is(not(sameInstance(worker))));
+		assertThat("Boss thread count", service.getBossThreadCount(), is(equalTo(1)));
+		assertThat("Worker thread count", service.getWorkerThreadCount(), is(equalTo(2)));
+	}
+
+	@Test
+	public void allocatorMetrics() {
+		// GIVEN
+		service.setPreferDirect(false);
+
+		// WHEN
+		ByteBuf buf = service.getAllocator().buffer(1024);
+		long used;
+		try {
+			used = service.getUsedHeapMemory();
+		} finally {
+			buf.release();
+		}
+
+		// THEN
+		assertThat("Same allocator returned", service.getAllocator(),
+				is(sameInstance(service.getAllocator())));
+		assertThat("Heap memory used by buffer", used, is(greaterThan(0L)));
+		assertThat("No direct memory used", service.getUsedDirectMemory(), is(equalTo(0L)));
+	}
+
+	@Test
+	public void shutdown() throws InterruptedException {
+		// GIVEN
+		EventLoopGroup worker = service.getWorkerGroup();
+
+		// WHEN
+		service.serviceDidShutdown();
+
+		// THEN
+		assertThat("Worker group terminated", worker.awaitTermination(5, TimeUnit.SECONDS),
+				is(equalTo(true)));
+		assertThat("Worker thread count reset", service.getWorkerThreadCount(), is(equalTo(0)));
+		assertThat("New worker group created after shutdown", service.getWorkerGroup(),
+				is(not(sameInstance(worker))));
+	}
+
+}
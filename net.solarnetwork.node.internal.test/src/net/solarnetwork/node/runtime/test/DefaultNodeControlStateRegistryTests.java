@@ -0,0 +1,185 @@
+/* ==================================================================
+ * DefaultNodeControlStateRegistryTests.java - 19/10/2026 10:41:50 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.runtime.test;
+
+import static org.easymock.EasyMock.capture;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import java.time.Instant;
+import org.easymock.Capture;
+import org.easymock.CaptureType;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+import net.solarnetwork.domain.BasicNodeControlInfo;
+import net.solarnetwork.domain.NodeControlInfo;
+import net.solarnetwork.domain.NodeControlPropertyType;
+import net.solarnetwork.node.domain.datum.SimpleNodeControlInfoDatum;
+import net.solarnetwork.node.runtime.DefaultNodeControlStateRegistry;
+import net.solarnetwork.node.service.DatumEvents;
+import net.solarnetwork.node.service.NodeControlProvider;
+import net.solarnetwork.node.service.NodeControlStateRegistry;
+import net.solarnetwork.service.StaticOptionalService;
+
+/**
+ * Test cases for the {@link DefaultNodeControlStateRegistry} class.
+ *
+ * @author matt
+ * @version 1.0
+ */
+public class DefaultNodeControlStateRegistryTests {
+
+	private static final String CONTROL_ID = "/test/ctrl";
+
+	private EventAdmin eventAdmin;
+	private DefaultNodeControlStateRegistry registry;
+
+	@Before
+	public void setup() {
+		eventAdmin = EasyMock.createMock(EventAdmin.class);
+		registry = new DefaultNodeControlStateRegistry(new StaticOptionalService<>(eventAdmin));
+	}
+
+	@After
+	public void teardown() {
+		EasyMock.verify(eventAdmin);
+	}
+
+	private static NodeControlInfo info(String value) {
+		// @formatter:off
+		return BasicNodeControlInfo.builder()
+				.withControlId(CONTROL_ID)
+				.withType(NodeControlPropertyType.Float)
+				.withValue(value)
+				.withReadonly(true)
+				.build();
+		// @formatter:on
+	}
+
+	@Test
+	public void publish() {
+		// GIVEN
+		Capture<Event> eventCaptor = Capture.newInstance();
+		eventAdmin.postEvent(capture(eventCaptor));
+
+		// WHEN
+		EasyMock.replay(eventAdmin);
+		NodeControlInfo info = info("1.0");
+		boolean changed = registry.publishControlInfo(info);
+
+		// THEN
+		assertThat("First value is a change", changed, is(equalTo(true)));
+		assertThat("Info cached", registry.getControlInfo(CONTROL_ID), is(sameInstance(info)));
+		assertThat("Date cached", registry.getControlInfoDate(CONTROL_ID), is(notNullValue()));
+		assertThat("All infos", registry.getControlInfos().size(), is(equalTo(1)));
+		Event event = eventCaptor.getValue();
+		assertThat("State changed event posted", event.getTopic(),
+				is(equalTo(NodeControlStateRegistry.EVENT_TOPIC_CONTROL_STATE_CHANGED)));
+		Object datum = event.getProperty(DatumEvents.DATUM_PROPERTY);
+		assertThat("Event datum is control info", ((NodeControlInfo) datum).getValue(),
+				is(equalTo("1.0")));
+	}
+
+	@Test
+	public void publish_unchanged() {
+		// GIVEN
+		eventAdmin.postEvent(EasyMock.anyObject(Event.class));
+
+		// WHEN
+		EasyMock.replay(eventAdmin);
+		registry.publishControlInfo(info("1.0"));
+		NodeControlInfo info2 = info("1.0");
+		boolean changed = registry.publishControlInfo(info2);
+
+		// THEN
+		assertThat("Same value is not a change", changed, is(equalTo(false)));
+		assertThat("Latest info cached", registry.getControlInfo(CONTROL_ID),
+				is(sameInstance(info2)));
+	}
+
+	@Test
+	public void publish_deadband() {
+		// GIVEN
+		registry.setControlDeadbandsValue(CONTROL_ID + "=0.5");
+		Capture<Event> eventCaptor = Capture.newInstance(CaptureType.ALL);
+		eventAdmin.postEvent(capture(eventCaptor));
+		EasyMock.expectLastCall().times(2);
+
+		// WHEN
+		EasyMock.replay(eventAdmin);
+		boolean c1 = registry.publishControlInfo(info("1.0"));
+		boolean c2 = registry.publishControlInfo(info("1.3"));
+		boolean c3 = registry.publishControlInfo(info("1.5"));
+		boolean c4 = registry.publishControlInfo(info("1.6"));
+
+		// THEN
+		assertThat("Deadband configured", registry.getControlDeadband(CONTROL_ID),
+				is(equalTo(0.5)));
+		assertThat("First value is a change", c1, is(equalTo(true)));
+		assertThat("Within deadband", c2, is(equalTo(false)));
+		assertThat("At deadband", c3, is(equalTo(false)));
+		assertThat("Beyond deadband of last significant value", c4, is(equalTo(true)));
+		assertThat("Latest value cached", registry.getControlInfo(CONTROL_ID).getValue(),
+				is(equalTo("1.6")));
+		assertThat("Change event value", ((NodeControlInfo) eventCaptor.getValues().get(1)
+				.getProperty(DatumEvents.DATUM_PROPERTY)).getValue(), is(equalTo("1.6")));
+	}
+
+	@Test
+	public void handleEvent() {
+		// GIVEN
+		eventAdmin.postEvent(EasyMock.anyObject(Event.class));
+
+		// WHEN
+		EasyMock.replay(eventAdmin);
+		SimpleNodeControlInfoDatum info = new SimpleNodeControlInfoDatum(info("2.0"),
+				Instant.now());
+		Event event = DatumEvents.datumEvent(NodeControlProvider.EVENT_TOPIC_CONTROL_INFO_CAPTURED,
+				info);
+		registry.handleEvent(event);
+
+		// THEN
+		assertThat("Info cached from event", registry.getControlInfo(CONTROL_ID),
+				is(sameInstance(info)));
+	}
+
+	@Test
+	public void handleEvent_otherTopic() {
+		// WHEN
+		EasyMock.replay(eventAdmin);
+		SimpleNodeControlInfoDatum info = new SimpleNodeControlInfoDatum(info("2.0"),
+				Instant.now());
+		registry.handleEvent(DatumEvents.datumEvent("foo/bar", info));
+
+		// THEN
+		assertThat("Info not cached", registry.getControlInfo(CONTROL_ID), is(nullValue()));
+	}
+
+}
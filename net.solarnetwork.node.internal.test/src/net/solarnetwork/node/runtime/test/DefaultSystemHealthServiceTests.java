@@ -0,0 +1,270 @@
+/* ==================================================================
+ * DefaultSystemHealthServiceTests.java - 19/10/2026 9:26:31 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.runtime.test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import net.solarnetwork.node.runtime.DefaultSystemHealthService;
+import net.solarnetwork.node.runtime.DefaultSystemHealthService.PingTestHistory;
+import net.solarnetwork.node.service.SystemHealthService.PingTestResults;
+import net.solarnetwork.service.PingTest;
+import net.solarnetwork.service.PingTestResult;
+import net.solarnetwork.service.PingTestResultDisplay;
+
+/**
+ * Test cases for the {@link DefaultSystemHealthService} class.
+ *
+ * @author matt
+ * @version 1.0
+ */
+public class DefaultSystemHealthServiceTests {
+
+	private static class TestPingTest implements PingTest {
+
+		private final String id;
+		private final long maxMs;
+		private final Callable<PingTest.Result> task;
+		private final AtomicInteger count = new AtomicInteger();
+
+		private TestPingTest(String id, long maxMs, Callable<PingTest.Result> task) {
+			super();
+			this.id = id;
+			this.maxMs = maxMs;
+			this.task = task;
+		}
+
+		@Override
+		public String getPingTestId() {
+			return id;
+		}
+
+		@Override
+		public String getPingTestName() {
+			return id;
+		}
+
+		@Override
+		public long getPingTestMaximumExecutionMilliseconds() {
+			return maxMs;
+		}
+
+		@Override
+		public Result performPingTest() throws Exception {
+			count.incrementAndGet();
+			return task.call();
+		}
+
+	}
+
+	private ExecutorService executor;
+
+	@Before
+	public void setup() {
+		executor = Executors.newFixedThreadPool(2);
+	}
+
+	@After
+	public void teardown() {
+		executor.shutdownNow();
+	}
+
+	private static PingTestResult ok() {
+		return new PingTestResult(true, "OK");
+	}
+
+	@Test
+	public void concurrent() {
+		// GIVEN
+		final CountDownLatch running = new CountDownLatch(2);
+		final Callable<PingTest.Result> task = () -> {
+			running.countDown();
+			return new PingTestResult(running.await(5, TimeUnit.SECONDS), "Done");
+		};
+		TestPingTest t1 = new TestPingTest("t1", 10_000L, task);
+		TestPingTest t2 = new TestPingTest("t2", 10_000L, task);
+		DefaultSystemHealthService service = new DefaultSystemHealthService(asList(t1, t2));
+
+		// WHEN
+		PingTestResults results = service.performPingTests(null);
+
+		// THEN
+		assertThat("Both tests ran at the same time", results.isAllGood(), is(equalTo(true)));
+		assertThat("Result count", results.getResults().size(), is(equalTo(2)));
+	}
+
+	@Test
+	public void cached() {
+		// GIVEN
+		TestPingTest t = new TestPingTest("t", 1000L, DefaultSystemHealthServiceTests::ok);
+		DefaultSystemHealthService service = new DefaultSystemHealthService(asList(t));
+		service.setResultCacheSeconds(60);
+
+		// WHEN
+		PingTestResults r1 = service.performPingTests(null);
+		PingTestResults r2 = service.performPingTests(singleton("t"));
+
+		// THEN
+		assertThat("Test executed once", t.count.get(), is(equalTo(1)));
+		assertThat("Cached result returned", r2.getResults().get("t"),
+				is(equalTo(r1.getResults().get("t"))));
+	}
+
+	@Test
+	public void notCached() {
+		// GIVEN
+		TestPingTest t = new TestPingTest("t", 1000L, DefaultSystemHealthServiceTests::ok);
+		DefaultSystemHealthService service = new DefaultSystemHealthService(asList(t));
+		service.setResultCacheSeconds(0);
+
+		// WHEN
+		service.performPingTests(null);
+		service.performPingTests(null);
+
+		// THEN
+		assertThat("Test executed for each call", t.count.get(), is(equalTo(2)));
+	}
+
+	@Test
+	public void coalesced() throws Exception {
+		// GIVEN
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		TestPingTest t = new TestPingTest("t", 10_000L, () -> {
+			started.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return ok();
+		});
+		DefaultSystemHealthService service = new DefaultSystemHealthService(asList(t));
+		service.setResultCacheSeconds(0);
+
+		// WHEN
+		Future<PingTestResults> f1 = executor.submit(() -> service.performPingTests(null));
+		assertThat("Test started", started.await(5, TimeUnit.SECONDS), is(equalTo(true)));
+		Future<PingTestResults> f2 = executor.submit(() -> service.performPingTests(null));
+		Thread.sleep(100);
+		release.countDown();
+
+		// THEN
+		assertThat("First caller result", f1.get(5, TimeUnit.SECONDS).isAllGood(),
+				is(equalTo(true)));
+		assertThat("Second caller result", f2.get(5, TimeUnit.SECONDS).isAllGood(),
+				is(equalTo(true)));
+		assertThat("Concurrent callers shared one execution", t.count.get(), is(equalTo(1)));
+	}
+
+	@Test
+	public void testTimeout() {
+		// GIVEN
+		TestPingTest t = new TestPingTest("t", 100L, () -> {
+			Thread.sleep(5000);
+			return ok();
+		});
+		DefaultSystemHealthService service = new DefaultSystemHealthService(asList(t));
+
+		// WHEN
+		PingTestResults results = service.performPingTests(null);
+
+		// THEN
+		PingTestResultDisplay r = results.getResults().get("t");
+		assertThat("Test failed", r.isSuccess(), is(equalTo(false)));
+		assertThat("Test timeout message", r.getMessage(), containsString("within 100ms"));
+	}
+
+	@Test
+	public void overallTimeout() {
+		// GIVEN
+		final CountDownLatch release = new CountDownLatch(1);
+		TestPingTest slow = new TestPingTest("slow", 10_000L, () -> {
+			release.await(5, TimeUnit.SECONDS);
+			return ok();
+		});
+		TestPingTest fast = new TestPingTest("fast", 10_000L, DefaultSystemHealthServiceTests::ok);
+		DefaultSystemHealthService service = new DefaultSystemHealthService(asList(slow, fast));
+		service.setMaximumExecutionMilliseconds(200L);
+
+		// WHEN
+		PingTestResults results;
+		try {
+			results = service.performPingTests(null);
+		} finally {
+			release.countDown();
+		}
+
+		// THEN
+		PingTestResultDisplay r = results.getResults().get("slow");
+		assertThat("Slow test failed", r.isSuccess(), is(equalTo(false)));
+		assertThat("Overall timeout message", r.getMessage(), containsString("overall 200ms"));
+		assertThat("Fast test passed", results.getResults().get("fast").isSuccess(),
+				is(equalTo(true)));
+	}
+
+	@Test
+	public void history() {
+		// GIVEN
+		final AtomicInteger calls = new AtomicInteger();
+		TestPingTest t = new TestPingTest("t", 1000L, () -> {
+			if ( calls.incrementAndGet() == 2 ) {
+				throw new RuntimeException("Boom");
+			}
+			return ok();
+		});
+		DefaultSystemHealthService service = new DefaultSystemHealthService(asList(t));
+		service.setResultCacheSeconds(0);
+
+		// WHEN
+		service.performPingTests(null);
+		PingTestResults failed = service.performPingTests(null);
+		service.performPingTests(null);
+		Map<String, PingTestHistory> history = service.getPingTestHistory();
+
+		// THEN
+		assertThat("Exception reported as failure", failed.getResults().get("t").getMessage(),
+				containsString("Boom"));
+		PingTestHistory h = history.get("t");
+		assertThat("History available", h, is(notNullValue()));
+		assertThat("Execution count", h.getExecutionCount(), is(equalTo(3L)));
+		assertThat("Success count", h.getSuccessCount(), is(equalTo(2L)));
+		assertThat("Failure count", h.getFailureCount(), is(equalTo(1L)));
+		assertThat("Consecutive failures reset by success", h.getConsecutiveFailureCount(),
+				is(equalTo(0)));
+		assertThat("Last success date", h.getLastSuccessDate(), is(notNullValue()));
+		assertThat("Last failure date", h.getLastFailureDate(), is(notNullValue()));
+	}
+
+}
@@ -22,23 +22,33 @@
 
 package net.solarnetwork.node.runtime.test;
 
+import static org.easymock.EasyMock.anyObject;
 import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.expect;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.Matchers.instanceOf;
 import java.time.Instant;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import org.easymock.Capture;
+import org.easymock.CaptureType;
 import org.easymock.EasyMock;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.osgi.service.event.Event;
 import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.messaging.simp.user.SimpSession;
+import org.springframework.messaging.simp.user.SimpSubscription;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.scheduling.TaskScheduler;
 import net.solarnetwork.domain.Result;
 import net.solarnetwork.domain.datum.DatumSamples;
 import net.solarnetwork.node.dao.DatumDao;
@@ -52,16 +62,20 @@ import net.solarnetwork.service.StaticOptionalService;
  * Test cases for the {@link EventMessageBridge} class.
  * 
  * @author matt
- * @version 1.0
+ * @version 1.1
  */
 public class EventMessageBridgeTests {
 
 	private SimpMessageSendingOperations messageSendingOps;
+	private SimpUserRegistry userRegistry;
+	private TaskScheduler taskScheduler;
 	private EventMessageBridge eventMessageBridge;
 
 	@Before
 	public void setup() {
 		messageSendingOps = EasyMock.createMock(SimpMessageSendingOperations.class);
+		userRegistry = EasyMock.createMock(SimpUserRegistry.class);
+		taskScheduler = EasyMock.createMock(TaskScheduler.class);
 
 		eventMessageBridge = new EventMessageBridge(
 				new StaticOptionalService<SimpMessageSendingOperations>(messageSendingOps));
@@ -69,11 +83,37 @@ public class EventMessageBridgeTests {
 
 	@After
 	public void teardown() {
-		EasyMock.verify(messageSendingOps);
+		EasyMock.verify(messageSendingOps, userRegistry, taskScheduler);
 	}
 
 	private void replayAll() {
-		EasyMock.replay(messageSendingOps);
+		EasyMock.replay(messageSendingOps, userRegistry, taskScheduler);
+	}
+
+	private static SimpSubscription subscription(String destination) {
+		return new SimpSubscription() {
+
+			@Override
+			public String getId() {
+				return "1";
+			}
+
+			@Override
+			public SimpSession getSession() {
+				return null;
+			}
+
+			@Override
+			public String getDestination() {
+				return destination;
+			}
+		};
+	}
+
+	private static Event datumCapturedEvent(String sourceId, int watts) {
+		SimpleDatum d = SimpleDatum.nodeDatum(sourceId, Instant.now(), new DatumSamples());
+		d.getSamples().putInstantaneousSampleValue("watts", watts);
+		return DatumEvents.datumEvent(DatumDataSource.EVENT_TOPIC_DATUM_CAPTURED, d);
 	}
 
 	@Test
@@ -159,4 +199,70 @@ public class EventMessageBridgeTests {
 		}
 	}
 
+	@Test
+	public void handleDatumCapturedEvent_noSubscriptions() {
+		// GIVEN
+		eventMessageBridge.setUserRegistry(new StaticOptionalService<>(userRegistry));
+		expect(userRegistry.findSubscriptions(anyObject())).andReturn(Collections.emptySet());
+
+		// WHEN
+		replayAll();
+		eventMessageBridge.handleEvent(datumCapturedEvent("test-source", 1));
+		eventMessageBridge.handleEvent(datumCapturedEvent("test-source", 2));
+
+		// THEN
+		// no message posted, and subscriptions looked up only once
+	}
+
+	@Test
+	public void handleDatumCapturedEvent_subscribed() {
+		// GIVEN
+		eventMessageBridge.setUserRegistry(new StaticOptionalService<>(userRegistry));
+		expect(userRegistry.findSubscriptions(anyObject()))
+				.andReturn(Set.of(subscription("/topic/datum/captured/a/**")));
+
+		Capture<String> destCaptor = Capture.newInstance();
+		messageSendingOps.convertAndSend(capture(destCaptor), anyObject(),
+				EasyMock.<Map<String, Object>> isNull());
+
+		// WHEN
+		replayAll();
+		eventMessageBridge.handleEvent(datumCapturedEvent("b/1", 1));
+		eventMessageBridge.handleEvent(datumCapturedEvent("a/1", 2));
+
+		// THEN
+		assertThat("Message posted only for subscribed topic", destCaptor.getValue(),
+				equalTo("/topic/datum/captured/a/1"));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void handleDatumCapturedEvent_coalesced() {
+		// GIVEN
+		eventMessageBridge.setTaskScheduler(taskScheduler);
+
+		Capture<Runnable> flushCaptor = Capture.newInstance();
+		expect(taskScheduler.schedule(capture(flushCaptor), anyObject(Instant.class))).andReturn(null);
+
+		Capture<String> destCaptor = Capture.newInstance(CaptureType.ALL);
+		Capture<Object> msgCaptor = Capture.newInstance(CaptureType.ALL);
+		messageSendingOps.convertAndSend(capture(destCaptor), capture(msgCaptor),
+				EasyMock.<Map<String, Object>> isNull());
+		EasyMock.expectLastCall().times(2);
+
+		// WHEN
+		replayAll();
+		eventMessageBridge.handleEvent(datumCapturedEvent("a", 1));
+		eventMessageBridge.handleEvent(datumCapturedEvent("b", 2));
+		eventMessageBridge.handleEvent(datumCapturedEvent("a", 3));
+		flushCaptor.getValue().run();
+
+		// THEN
+		assertThat("Messages posted per destination", destCaptor.getValues(),
+				contains("/topic/datum/captured/a", "/topic/datum/captured/b"));
+		Map<String, Object> msgData = (Map<String, Object>) ((Result<?>) msgCaptor.getValues().get(0))
+				.getData();
+		assertThat("Latest data posted for destination", msgData, hasEntry("watts", (Object) 3));
+	}
+
 }
@@ -53,6 +53,7 @@ import io.netty.channel.socket.nio.NioDatagramChannel;
 import net.solarnetwork.node.io.canbus.CanbusConnection;
 import net.solarnetwork.node.io.canbus.CanbusFrame;
 import net.solarnetwork.node.io.canbus.CanbusFrameListener;
+import net.solarnetwork.node.service.NettyEventLoopService;
 import net.solarnetwork.service.OptionalService;
 import net.solarnetwork.service.support.BasicIdentifiable;
 import net.solarnetwork.settings.SettingsChangeObserver;
@@ -62,7 +63,7 @@ import net.solarnetwork.settings.SettingsChangeObserver;
  * server.
  *
  * @author matt
- * @version 2.1
+ * @version 2.2
  */
 public class CannelloniCanbusConnection extends BasicIdentifiable
 		implements CanbusConnection, SettingsChangeObserver {
@@ -82,18 +83,20 @@ public class CannelloniCanbusConnection extends BasicIdentifiable
 	private final Logger log = LoggerFactory.getLogger(getClass());
 
 	private final TaskScheduler taskScheduler;
-	private final Bootstrap bootstrap;
 	private final String host;
 	private final int port;
 	private final String busName;
 	private int reconnectSeconds;
 	private int shutdownSeconds;
 	private OptionalService<EventAdmin> eventAdmin;
+	private OptionalService<NettyEventLoopService> eventLoopService;
 
 	private boolean shutdown;
 	private ScheduledFuture<?> connectFuture;
 	private ChannelFuture startFuture;
 	private Channel channel;
+	private Bootstrap bootstrap;
+	private EventLoopGroup ownedGroup;
 
 	/**
 	 * Constructor.
@@ -123,7 +126,6 @@ public class CannelloniCanbusConnection extends BasicIdentifiable
 			int port) {
 		super();
 		this.taskScheduler = taskScheduler;
-		this.bootstrap = createBootstrap();
 		this.busName = busName;
 		this.host = host;
 		this.port = port;
@@ -133,14 +135,31 @@ public class CannelloniCanbusConnection extends BasicIdentifiable
 
 	}
 
+	private synchronized Bootstrap bootstrap() {
+		if ( bootstrap == null ) {
+			bootstrap = createBootstrap();
+		}
+		return bootstrap;
+	}
+
 	private Bootstrap createBootstrap() {
-		CustomizableThreadFactory tf = new CustomizableThreadFactory("cannalloni-");
-		tf.setDaemon(true);
+		final NettyEventLoopService shared = OptionalService.service(eventLoopService);
+		final EventLoopGroup group;
+		if ( shared != null ) {
+			group = shared.getWorkerGroup();
+		} else {
+			CustomizableThreadFactory tf = new CustomizableThreadFactory("cannalloni-");
+			tf.setDaemon(true);
+			group = new MultiThreadIoEventLoopGroup(0, tf, NioIoHandler.newFactory());
+			ownedGroup = group;
+		}
 
 		Bootstrap b = new Bootstrap();
-		EventLoopGroup group = new MultiThreadIoEventLoopGroup(0, tf, NioIoHandler.newFactory());
 		b.group(group).channel(NioDatagramChannel.class).option(ChannelOption.SO_BROADCAST, true)
 				.handler(new CannelloniChannelInitializer(new CanbusFrameHandler()));
+		if ( shared != null ) {
+			b.option(ChannelOption.ALLOCATOR, shared.getAllocator());
+		}
 		return b;
 	}
 
@@ -208,7 +227,7 @@ public class CannelloniCanbusConnection extends BasicIdentifiable
 			return restart();
 		}
 		log.info("Connecting to Cannelloni @ {}:{}", host, port);
-		ChannelFuture f = bootstrap.bind(host, port);
+		ChannelFuture f = bootstrap().bind(host, port);
 		f.addListener(new ConnectFuture());
 		this.startFuture = f;
 		return f;
@@ -426,6 +445,13 @@ public class CannelloniCanbusConnection extends BasicIdentifiable
 		} catch ( ExecutionException | InterruptedException | TimeoutException e ) {
 			log.warn("Error waiting for Cannelloni connection to close gracefully: {}", e.toString(), e);
 		}
+		synchronized ( this ) {
+			bootstrap = null;
+			if ( ownedGroup != null ) {
+				ownedGroup.shutdownGracefully(0, shutdownSeconds, TimeUnit.SECONDS);
+				ownedGroup = null;
+			}
+		}
 	}
 
 	@Override
@@ -561,4 +587,31 @@ public class CannelloniCanbusConnection extends BasicIdentifiable
 		this.eventAdmin = eventAdmin;
 	}
 
+	/**
+	 * Get the shared Netty event loop service.
+	 *
+	 * @return the service
+	 * @since 2.2
+	 */
+	public OptionalService<NettyEventLoopService> getEventLoopService() {
+		return eventLoopService;
+	}
+
+	/**
+	 * Set the shared Netty event loop service.
+	 *
+	 * <p>
+	 * If available when the connection is first opened, the shared worker
+	 * group and buffer allocator will be used instead of a dedicated event loop
+	 * group.
+	 * </p>
+	 *
+	 * @param eventLoopService
+	 *        the service to set
+	 * @since 2.2
+	 */
+	public void setEventLoopService(OptionalService<NettyEventLoopService> eventLoopService) {
+		this.eventLoopService = eventLoopService;
+	}
+
 }
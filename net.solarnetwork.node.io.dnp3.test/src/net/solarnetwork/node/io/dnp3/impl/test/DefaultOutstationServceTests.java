@@ -25,34 +25,52 @@ package net.solarnetwork.node.io.dnp3.impl.test;
 import static java.util.concurrent.Executors.newSingleThreadExecutor;
 import static net.solarnetwork.domain.InstructionStatus.InstructionState.Completed;
 import static net.solarnetwork.node.reactor.InstructionUtils.createStatus;
+import static org.easymock.EasyMock.anyObject;
 import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
+import java.time.Instant;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import org.easymock.Capture;
+import org.easymock.CaptureType;
 import org.easymock.EasyMock;
 import org.easymock.IAnswer;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.osgi.service.event.Event;
 import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.TaskScheduler;
+import com.automatak.dnp3.AnalogInput;
 import com.automatak.dnp3.AnalogOutputInt32;
 import com.automatak.dnp3.ControlRelayOutputBlock;
 import com.automatak.dnp3.Database;
+import com.automatak.dnp3.Outstation;
+import com.automatak.dnp3.OutstationChangeSet;
 import com.automatak.dnp3.enums.CommandStatus;
+import com.automatak.dnp3.enums.EventMode;
 import com.automatak.dnp3.enums.OperateType;
 import com.automatak.dnp3.enums.OperationType;
 import com.automatak.dnp3.enums.TripCloseCode;
+import net.solarnetwork.domain.datum.DatumSamples;
+import net.solarnetwork.node.domain.datum.NodeDatum;
+import net.solarnetwork.node.domain.datum.SimpleDatum;
 import net.solarnetwork.node.io.dnp3.ChannelService;
 import net.solarnetwork.node.io.dnp3.domain.ControlConfig;
 import net.solarnetwork.node.io.dnp3.domain.ControlType;
+import net.solarnetwork.node.io.dnp3.domain.MeasurementConfig;
+import net.solarnetwork.node.io.dnp3.domain.MeasurementType;
 import net.solarnetwork.node.io.dnp3.impl.DefaultOutstationService;
 import net.solarnetwork.node.reactor.Instruction;
 import net.solarnetwork.node.reactor.InstructionExecutionService;
 import net.solarnetwork.node.reactor.InstructionHandler;
 import net.solarnetwork.node.reactor.InstructionStatus;
+import net.solarnetwork.node.service.DatumDataSource;
+import net.solarnetwork.node.service.DatumEvents;
 import net.solarnetwork.node.test.CapturingExecutorService;
 import net.solarnetwork.service.OptionalService;
 import net.solarnetwork.service.StaticOptionalService;
@@ -61,19 +79,23 @@ import net.solarnetwork.service.StaticOptionalService;
  * Test cases for the {@link DefaultOutstationService} class.
  *
  * @author matt
- * @version 3.0
+ * @version 3.1
  */
 public class DefaultOutstationServceTests {
 
 	private ChannelService channelService;
 	private InstructionExecutionService instructionService;
 	private Database database;
+	private TaskScheduler taskScheduler;
+	private Outstation outstation;
 
 	@Before
 	public void setup() {
 		channelService = EasyMock.createMock(ChannelService.class);
 		instructionService = EasyMock.createMock(InstructionExecutionService.class);
 		database = EasyMock.createMock(Database.class);
+		taskScheduler = EasyMock.createMock(TaskScheduler.class);
+		outstation = EasyMock.createMock(Outstation.class);
 	}
 
 	@After
@@ -82,11 +104,11 @@ public class DefaultOutstationServceTests {
 	}
 
 	private void replayAll() {
-		EasyMock.replay(channelService, instructionService, database);
+		EasyMock.replay(channelService, instructionService, database, taskScheduler, outstation);
 	}
 
 	private void verifyAll() {
-		EasyMock.verify(channelService, instructionService, database);
+		EasyMock.verify(channelService, instructionService, database, taskScheduler, outstation);
 	}
 
 	private TestOutstationService createOutstationService() {
@@ -108,6 +130,11 @@ public class DefaultOutstationServceTests {
 		public com.automatak.dnp3.CommandHandler getCommandHandler() {
 			return super.getCommandHandler();
 		}
+
+		@Override
+		public void setDnp3Stack(Outstation dnp3Stack) {
+			super.setDnp3Stack(dnp3Stack);
+		}
 	}
 
 	@Test
@@ -325,4 +352,92 @@ public class DefaultOutstationServceTests {
 		assertThat("Instruction handled in background", executor.getCapturedFutures(), hasSize(1));
 	}
 
+	private static Event datumCapturedEvent(String sourceId, String prop, Number val) {
+		SimpleDatum datum = SimpleDatum.nodeDatum(sourceId, Instant.now(), new DatumSamples());
+		datum.getSamples().putInstantaneousSampleValue(prop, val);
+		return DatumEvents.datumEvent(DatumDataSource.EVENT_TOPIC_DATUM_CAPTURED, (NodeDatum) datum);
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Test
+	public void handleDatumCaptured_batched() {
+		// GIVEN
+		TestOutstationService service = createOutstationService();
+		service.setTaskScheduler(taskScheduler);
+		service.setDnp3Stack(outstation);
+		service.setMeasurementConfigs(new MeasurementConfig[] {
+				new MeasurementConfig("/meter/1", "watts", MeasurementType.AnalogInput),
+				new MeasurementConfig("/meter/2", "watts", MeasurementType.AnalogInput), });
+
+		ScheduledFuture<?> future = EasyMock.createMock(ScheduledFuture.class);
+		Capture<Runnable> flushCaptor = Capture.newInstance();
+		expect(taskScheduler.schedule(capture(flushCaptor), anyObject(Instant.class)))
+				.andReturn((ScheduledFuture) future);
+
+		Capture<OutstationChangeSet> changesCaptor = Capture.newInstance(CaptureType.ALL);
+		outstation.apply(capture(changesCaptor));
+
+		// the applied change set is replayed into the database to verify its updates
+		Capture<AnalogInput> meter1Captor = Capture.newInstance();
+		database.update(capture(meter1Captor), eq(0), eq(EventMode.Detect));
+		Capture<AnalogInput> meter2Captor = Capture.newInstance();
+		database.update(capture(meter2Captor), eq(1), eq(EventMode.Detect));
+
+		// WHEN
+		replayAll();
+		service.handleEvent(datumCapturedEvent("/meter/1", "watts", 1));
+		service.handleEvent(datumCapturedEvent("/meter/2", "watts", 2));
+		service.handleEvent(datumCapturedEvent("/not/mapped", "watts", 3));
+		flushCaptor.getValue().run();
+
+		// THEN
+		assertThat("Single change set applied for both datum", changesCaptor.getValues(),
+				hasSize(1));
+		changesCaptor.getValue().apply(database);
+		assertThat("Change set updates /meter/1 watts at analog input 0",
+				meter1Captor.getValue().value, equalTo(1.0));
+		assertThat("Change set updates /meter/2 watts at analog input 1",
+				meter2Captor.getValue().value, equalTo(2.0));
+	}
+
+	@Test
+	public void handleDatumCaptured_unmapped() {
+		// GIVEN
+		TestOutstationService service = createOutstationService();
+		service.setTaskScheduler(taskScheduler);
+		service.setDnp3Stack(outstation);
+		service.setMeasurementConfigs(new MeasurementConfig[] {
+				new MeasurementConfig("/meter/1", "watts", MeasurementType.AnalogInput), });
+
+		// WHEN
+		replayAll();
+		service.handleEvent(datumCapturedEvent("/not/mapped", "watts", 1));
+
+		// THEN
+		// no schedule or apply calls
+	}
+
+	@Test
+	public void handleDatumCaptured_noBatching() {
+		// GIVEN
+		TestOutstationService service = createOutstationService();
+		service.setTaskScheduler(taskScheduler);
+		service.setUpdateBatchDelayMs(0);
+		service.setDnp3Stack(outstation);
+		service.setMeasurementConfigs(new MeasurementConfig[] {
+				new MeasurementConfig("/meter/1", "watts", MeasurementType.AnalogInput), });
+
+		Capture<OutstationChangeSet> changesCaptor = Capture.newInstance(CaptureType.ALL);
+		outstation.apply(capture(changesCaptor));
+		EasyMock.expectLastCall().times(2);
+
+		// WHEN
+		replayAll();
+		service.handleEvent(datumCapturedEvent("/meter/1", "watts", 1));
+		service.handleEvent(datumCapturedEvent("/meter/1", "watts", 2));
+
+		// THEN
+		assertThat("Change set applied for each datum", changesCaptor.getValues(), hasSize(2));
+	}
+
 }
@@ -34,9 +34,11 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventHandler;
 import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
 import com.automatak.dnp3.AnalogConfig;
 import com.automatak.dnp3.AnalogInput;
 import com.automatak.dnp3.AnalogOutputDouble64;
@@ -105,7 +107,7 @@ import net.solarnetwork.util.StringUtils;
  * events to DNP3.
  *
  * @author matt
- * @version 3.1
+ * @version 3.2
  */
 public class DefaultOutstationService extends AbstractApplicationService<Outstation>
 		implements OutstationService, EventHandler, SettingSpecifierProvider {
@@ -113,6 +115,13 @@ public class DefaultOutstationService extends AbstractApplicationService<Outstat
 	/** The default event buffer size. */
 	private static final int DEFAULT_EVENT_BUFFER_SIZE = 30;
 
+	/**
+	 * The default update batch delay, in milliseconds.
+	 *
+	 * @since 3.2
+	 */
+	public static final int DEFAULT_UPDATE_BATCH_DELAY_MS = 100;
+
 	private final Application app;
 	private final CommandHandler commandHandler;
 	private final OptionalService<InstructionExecutionService> instructionExecutionService;
@@ -121,6 +130,12 @@ public class DefaultOutstationService extends AbstractApplicationService<Outstat
 	private MeasurementConfig[] measurementConfigs;
 	private ControlConfig[] controlConfigs;
 	private int eventBufferSize = DEFAULT_EVENT_BUFFER_SIZE;
+	private int updateBatchDelayMs = DEFAULT_UPDATE_BATCH_DELAY_MS;
+
+	private final Object pendingChangesLock = new Object();
+	private volatile Map<String, List<PointMapping>> sourceIndex;
+	private OutstationChangeSet pendingChanges;
+	private ScheduledFuture<?> pendingChangesFlush;
 
 	/**
 	 * Constructor.
@@ -140,6 +155,18 @@ public class DefaultOutstationService extends AbstractApplicationService<Outstat
 		setDisplayName("DNP3 Outstation");
 	}
 
+	@Override
+	public synchronized void configurationChanged(Map<String, Object> properties) {
+		resetSourceIndex();
+		super.configurationChanged(properties);
+	}
+
+	@Override
+	public synchronized void serviceDidShutdown() {
+		discardPendingChanges();
+		super.serviceDidShutdown();
+	}
+
 	@Override
 	protected synchronized Outstation createDnp3Stack() {
 		final String uid = getUid();
@@ -427,7 +454,11 @@ public class DefaultOutstationService extends AbstractApplicationService<Outstat
 
 	private void handleDatumCapturedEvent(Event event) {
 		final Object datum = event.getProperty(DatumEvents.DATUM_PROPERTY);
-		if ( !(datum instanceof Datum && ((Datum) datum).getSourceId() != null) ) {
+		if ( !(datum instanceof Datum d && d.getSourceId() != null) ) {
+			return;
+		}
+		if ( !sourceIndex().containsKey(d.getSourceId()) ) {
+			// not mapped to any measurement or control
 			return;
 		}
 
@@ -437,36 +468,60 @@ public class DefaultOutstationService extends AbstractApplicationService<Outstat
 
 				@Override
 				public void run() {
-					applyDatumCapturedUpdates((Datum) datum, event);
+					applyDatumCapturedUpdates(d);
 				}
 			});
 		} else {
-			applyDatumCapturedUpdates((Datum) datum, event);
+			applyDatumCapturedUpdates(d);
 		}
 	}
 
 	private void handleControlInfoCapturedEvent(Event event) {
-		final Object datum = event.getProperty(DatumEvents.DATUM_PROPERTY);
-		if ( !(datum instanceof Datum && ((Datum) datum).getSourceId() != null) ) {
+		// control info events are handled in the same manner as datum events
+		handleDatumCapturedEvent(event);
+	}
+
+	private void applyDatumCapturedUpdates(Datum datum) {
+		final int delay = getUpdateBatchDelayMs();
+		final TaskScheduler scheduler = getTaskScheduler();
+		if ( delay < 1 || scheduler == null ) {
+			applyChanges(changeSetForDatum(datum, null));
 			return;
 		}
+		synchronized ( pendingChangesLock ) {
+			OutstationChangeSet changes = changeSetForDatum(datum, pendingChanges);
+			if ( changes == null ) {
+				return;
+			}
+			pendingChanges = changes;
+			if ( pendingChangesFlush == null ) {
+				pendingChangesFlush = scheduler.schedule(this::flushPendingChanges,
+						Instant.now().plusMillis(delay));
+			}
+		}
+	}
 
-		TaskExecutor executor = getTaskExecutor();
-		if ( executor != null ) {
-			executor.execute(new Runnable() {
+	private void flushPendingChanges() {
+		final OutstationChangeSet changes;
+		synchronized ( pendingChangesLock ) {
+			changes = pendingChanges;
+			pendingChanges = null;
+			pendingChangesFlush = null;
+		}
+		applyChanges(changes);
+	}
 
-				@Override
-				public void run() {
-					applyDatumCapturedUpdates((Datum) datum, event);
-				}
-			});
-		} else {
-			applyDatumCapturedUpdates((Datum) datum, event);
+	private void discardPendingChanges() {
+		synchronized ( pendingChangesLock ) {
+			if ( pendingChangesFlush != null ) {
+				pendingChangesFlush.cancel(false);
+				pendingChangesFlush = null;
+			}
+			pendingChanges = null;
 		}
 	}
 
-	private void applyDatumCapturedUpdates(Datum datum, Event event) {
-		OutstationChangeSet changes = changeSetForDatumCapturedEvent(datum, event);
+	private void applyChanges(OutstationChangeSet changes) {
 		if ( changes == null ) {
 			return;
 		}
@@ -479,153 +534,213 @@ public class DefaultOutstationService extends AbstractApplicationService<Outstat
 		}
 	}
 
-	private OutstationChangeSet changeSetForDatumCapturedEvent(final Datum datum, final Event event) {
-		Map<MeasurementType, List<MeasurementConfig>> map = measurementTypeMap(getMeasurementConfigs());
-		Map<ControlType, List<ControlConfig>> controlMap = controlTypeMap(getControlConfigs());
-		if ( datum == null
-				|| ((map == null || map.isEmpty()) && (controlMap == null || controlMap.isEmpty())) ) {
-			return null;
+	/**
+	 * A measurement or control register mapped from a datum source ID.
+	 *
+	 * <p>
+	 * Exactly one of {@code measurementType} or {@code controlType} will be
+	 * non-{@code null}.
+	 * </p>
+	 */
+	private static record PointMapping(MeasurementType measurementType,
+			MeasurementConfig measurementConfig, ControlType controlType, int index) {
+
+	}
+
+	/**
+	 * Get the source ID index, creating it if necessary.
+	 *
+	 * @return the index, never {@literal null}
+	 */
+	private Map<String, List<PointMapping>> sourceIndex() {
+		Map<String, List<PointMapping>> index = this.sourceIndex;
+		if ( index == null ) {
+			index = createSourceIndex();
+			this.sourceIndex = index;
+		}
+		return index;
+	}
+
+	private Map<String, List<PointMapping>> createSourceIndex() {
+		final Map<MeasurementType, List<MeasurementConfig>> map = measurementTypeMap(
+				getMeasurementConfigs());
+		final Map<ControlType, List<ControlConfig>> controlMap = controlTypeMap(getControlConfigs());
+		if ( map.isEmpty() && controlMap.isEmpty() ) {
+			return Collections.emptyMap();
+		}
+		final Map<String, List<PointMapping>> index = new LinkedHashMap<>(16);
+		for ( Map.Entry<MeasurementType, List<MeasurementConfig>> me : map.entrySet() ) {
+			MeasurementType type = me.getKey();
+			for ( ListIterator<MeasurementConfig> itr = me.getValue().listIterator(); itr
+					.hasNext(); ) {
+				MeasurementConfig config = itr.next();
+				if ( config.getSourceId() == null ) {
+					continue;
+				}
+				index.computeIfAbsent(config.getSourceId(), k -> new ArrayList<>(4))
+						.add(new PointMapping(type, config, null, itr.previousIndex()));
+			}
+		}
+		final int analogStatusOffset = typeConfigCount(MeasurementType.AnalogOutputStatus, map);
+		final int binaryStatusOffset = typeConfigCount(MeasurementType.BinaryOutputStatus, map);
+		for ( Map.Entry<ControlType, List<ControlConfig>> me : controlMap.entrySet() ) {
+			ControlType type = me.getKey();
+			for ( ListIterator<ControlConfig> itr = me.getValue().listIterator(); itr.hasNext(); ) {
+				ControlConfig config = itr.next();
+				int idx = (type == ControlType.Analog ? analogStatusOffset : binaryStatusOffset)
+						+ itr.previousIndex();
+				index.computeIfAbsent(config.getControlId(), k -> new ArrayList<>(4))
+						.add(new PointMapping(null, null, type, idx));
+			}
+		}
+		for ( Map.Entry<String, List<PointMapping>> e : index.entrySet() ) {
+			e.setValue(List.copyOf(e.getValue()));
+		}
+		return Collections.unmodifiableMap(index);
+	}
+
+	private void resetSourceIndex() {
+		this.sourceIndex = null;
+	}
+
+	/**
+	 * Add changes for a datum to a change set.
+	 *
+	 * @param datum
+	 *        the datum to get changes for
+	 * @param changes
+	 *        the change set to add changes to, or {@literal null} to create a
+	 *        new change set if any changes are needed
+	 * @return the change set, or {@literal null} if {@code changes} is
+	 *         {@literal null} and no changes are needed
+	 */
+	private OutstationChangeSet changeSetForDatum(final Datum datum, OutstationChangeSet changes) {
+		if ( datum == null || datum.getSourceId() == null ) {
+			return changes;
 		}
 		final String sourceId = datum.getSourceId();
+		final List<PointMapping> mappings = sourceIndex().get(sourceId);
+		if ( mappings == null ) {
+			return changes;
+		}
 		final Instant timestamp = datum.getTimestamp();
 		if ( timestamp == null ) {
-			return null;
+			return changes;
 		}
 		final long ts = timestamp.toEpochMilli();
 		final DNPTime dnpTs = new DNPTime(ts);
 		final Map<String, ?> datumProps = datum.getSampleData();
-		OutstationChangeSet changes = null;
-		if ( map != null ) {
-			for ( Map.Entry<MeasurementType, List<MeasurementConfig>> me : map.entrySet() ) {
-				MeasurementType type = me.getKey();
-				List<MeasurementConfig> list = me.getValue();
-				for ( ListIterator<MeasurementConfig> itr = list.listIterator(); itr.hasNext(); ) {
-					MeasurementConfig config = itr.next();
-					if ( sourceId.equals(config.getSourceId()) ) {
-						Object propVal = datumProps.get(config.getPropertyName());
-						if ( propVal != null ) {
-							if ( propVal instanceof Number n ) {
-								propVal = config.applyTransformations(n);
-							}
-							if ( changes == null ) {
-								changes = new OutstationChangeSet();
-							}
-							log.debug("Updating DNP3 {}[{}] from [{}].{} -> {}", type,
-									itr.previousIndex(), sourceId, config.getPropertyName(), propVal);
-							switch (type) {
-								case AnalogInput:
-									if ( propVal instanceof Number n ) {
-										changes.update(new AnalogInput(n.doubleValue(),
-												new Flags((byte) AnalogQuality.ONLINE.toType()), dnpTs),
-												itr.previousIndex());
-									}
-									break;
-
-								case AnalogOutputStatus:
-									if ( propVal instanceof Number n ) {
-										changes.update(new AnalogOutputStatus(n.doubleValue(), new Flags(
-												(byte) AnalogOutputStatusQuality.ONLINE.toType()),
-												dnpTs), itr.previousIndex());
-									}
-									break;
-
-								case BinaryInput:
-									changes.update(new BinaryInput(booleanPropertyValue(propVal),
-											new Flags((byte) BinaryQuality.ONLINE.toType()), dnpTs),
-											itr.previousIndex());
-									break;
-
-								case BinaryOutputStatus:
-									changes.update(new BinaryOutputStatus(booleanPropertyValue(propVal),
-											new Flags((byte) BinaryOutputStatusQuality.ONLINE.toType()),
-											dnpTs), itr.previousIndex());
-									break;
-
-								case Counter:
-									if ( propVal instanceof Number n ) {
-										changes.update(new Counter(n.longValue(),
-												new Flags((byte) CounterQuality.ONLINE.toType()), dnpTs),
-												itr.previousIndex());
-									}
-									break;
-
-								case DoubleBitBinaryInput:
-									changes.update(new DoubleBitBinaryInput(
-											booleanPropertyValue(propVal) ? DoubleBit.DETERMINED_ON
-													: DoubleBit.DETERMINED_OFF,
-											new Flags((byte) DoubleBitBinaryQuality.ONLINE.toType()),
-											dnpTs), itr.previousIndex());
-									break;
-
-								case FrozenCounter:
-									changes.freezeCounter(itr.previousIndex(),
-											booleanPropertyValue(propVal));
-									break;
-							}
-						}
-					}
+		if ( datumProps == null || datumProps.isEmpty() ) {
+			return changes;
+		}
+		for ( PointMapping mapping : mappings ) {
+			if ( mapping.measurementType() != null ) {
+				final MeasurementType type = mapping.measurementType();
+				final MeasurementConfig config = mapping.measurementConfig();
+				final int index = mapping.index();
+				Object propVal = datumProps.get(config.getPropertyName());
+				if ( propVal == null ) {
+					continue;
 				}
-			}
-			if ( controlMap != null ) {
-				int analogStatusOffset = typeConfigCount(MeasurementType.AnalogOutputStatus, map);
-				int binaryStatusOffset = typeConfigCount(MeasurementType.BinaryOutputStatus, map);
-				for ( Map.Entry<ControlType, List<ControlConfig>> me : controlMap.entrySet() ) {
-					ControlType type = me.getKey();
-					List<ControlConfig> list = me.getValue();
-					for ( ListIterator<ControlConfig> itr = list.listIterator(); itr.hasNext(); ) {
-						ControlConfig config = itr.next();
-						if ( sourceId.equals(config.getControlId()) ) {
-							if ( changes == null ) {
-								changes = new OutstationChangeSet();
-							}
+				if ( propVal instanceof Number n ) {
+					propVal = config.applyTransformations(n);
+				}
+				if ( changes == null ) {
+					changes = new OutstationChangeSet();
+				}
+				log.debug("Updating DNP3 {}[{}] from [{}].{} -> {}", type, index, sourceId,
+						config.getPropertyName(), propVal);
+				switch (type) {
+					case AnalogInput:
+						if ( propVal instanceof Number n ) {
+							changes.update(new AnalogInput(n.doubleValue(),
+									new Flags((byte) AnalogQuality.ONLINE.toType()), dnpTs), index);
+						}
+						break;
 
-							int index = (type == ControlType.Analog ? analogStatusOffset
-									: binaryStatusOffset) + itr.previousIndex();
+					case AnalogOutputStatus:
+						if ( propVal instanceof Number n ) {
+							changes.update(new AnalogOutputStatus(n.doubleValue(),
+									new Flags((byte) AnalogOutputStatusQuality.ONLINE.toType()),
+									dnpTs), index);
+						}
+						break;
 
-							Object propVal = datumProps.get("val");
-							if ( propVal == null ) {
-								propVal = datumProps.get("value");
-							}
-							if ( propVal == null ) {
-								// take first available value
-								propVal = datumProps.values().iterator().next();
-							}
-							log.debug("Updating DNP3 control {}[{}] from [{}].value -> {}", type, index,
-									sourceId, propVal);
-							switch (type) {
-								case Analog:
-									try {
-										Number n = null;
-										if ( propVal instanceof Number num ) {
-											n = num;
-										} else {
-											n = new BigDecimal(propVal.toString());
-										}
-										changes.update(new AnalogOutputStatus(n.doubleValue(), new Flags(
-												(byte) AnalogOutputStatusQuality.ONLINE.toType()),
-												dnpTs), index);
-									} catch ( NumberFormatException e ) {
-										log.warn("Cannot convert control [{}] value [{}] to number: {}",
-												sourceId, propVal, e.getMessage());
-									}
-									break;
-
-								case Binary:
-									changes.update(new BinaryOutputStatus(booleanPropertyValue(propVal),
-											new Flags((byte) BinaryOutputStatusQuality.ONLINE.toType()),
-											dnpTs), index);
-									break;
+					case BinaryInput:
+						changes.update(new BinaryInput(booleanPropertyValue(propVal),
+								new Flags((byte) BinaryQuality.ONLINE.toType()), dnpTs), index);
+						break;
+
+					case BinaryOutputStatus:
+						changes.update(new BinaryOutputStatus(booleanPropertyValue(propVal),
+								new Flags((byte) BinaryOutputStatusQuality.ONLINE.toType()), dnpTs),
+								index);
+						break;
 
+					case Counter:
+						if ( propVal instanceof Number n ) {
+							changes.update(new Counter(n.longValue(),
+									new Flags((byte) CounterQuality.ONLINE.toType()), dnpTs), index);
+						}
+						break;
+
+					case DoubleBitBinaryInput:
+						changes.update(new DoubleBitBinaryInput(
+								booleanPropertyValue(propVal) ? DoubleBit.DETERMINED_ON
+										: DoubleBit.DETERMINED_OFF,
+								new Flags((byte) DoubleBitBinaryQuality.ONLINE.toType()), dnpTs),
+								index);
+						break;
+
+					case FrozenCounter:
+						changes.freezeCounter(index, booleanPropertyValue(propVal));
+						break;
+				}
+			} else {
+				final ControlType type = mapping.controlType();
+				final int index = mapping.index();
+				if ( changes == null ) {
+					changes = new OutstationChangeSet();
+				}
+
+				Object propVal = datumProps.get("val");
+				if ( propVal == null ) {
+					propVal = datumProps.get("value");
+				}
+				if ( propVal == null ) {
+					// take first available value
+					propVal = datumProps.values().iterator().next();
+				}
+				log.debug("Updating DNP3 control {}[{}] from [{}].value -> {}", type, index, sourceId,
+						propVal);
+				switch (type) {
+					case Analog:
+						try {
+							Number n = null;
+							if ( propVal instanceof Number num ) {
+								n = num;
+							} else {
+								n = new BigDecimal(propVal.toString());
 							}
+							changes.update(new AnalogOutputStatus(n.doubleValue(),
+									new Flags((byte) AnalogOutputStatusQuality.ONLINE.toType()),
+									dnpTs), index);
+						} catch ( NumberFormatException e ) {
+							log.warn("Cannot convert control [{}] value [{}] to number: {}", sourceId,
+									propVal, e.getMessage());
 						}
-					}
+						break;
+
+					case Binary:
+						changes.update(new BinaryOutputStatus(booleanPropertyValue(propVal),
+								new Flags((byte) BinaryOutputStatusQuality.ONLINE.toType()), dnpTs),
+								index);
+						break;
+
 				}
 			}
-
 		}
-
 		return changes;
-
 	}
 
 	private <T, C> int typeConfigCount(T key, Map<T, List<C>> map) {
@@ -842,6 +957,8 @@ public class DefaultOutstationService extends AbstractApplicationService<Outstat
 
 		result.add(new BasicTextFieldSettingSpecifier("eventBufferSize",
 				String.valueOf(DEFAULT_EVENT_BUFFER_SIZE)));
+		result.add(new BasicTextFieldSettingSpecifier("updateBatchDelayMs",
+				String.valueOf(DEFAULT_UPDATE_BATCH_DELAY_MS)));
 		result.add(new BasicTextFieldSettingSpecifier("dnp3Channel.propertyFilters['uid']", null, false,
 				"(&(objectClass=net.solarnetwork.node.io.dnp3.ChannelService)(function=server))"));
 
@@ -938,6 +1055,7 @@ public class DefaultOutstationService extends AbstractApplicationService<Outstat
 	 */
 	public void setMeasurementConfigs(MeasurementConfig[] measurementConfigs) {
 		this.measurementConfigs = measurementConfigs;
+		resetSourceIndex();
 	}
 
 	/**
@@ -964,6 +1082,7 @@ public class DefaultOutstationService extends AbstractApplicationService<Outstat
 	public void setMeasurementConfigsCount(int count) {
 		this.measurementConfigs = ArrayUtils.arrayWithLength(this.measurementConfigs, count,
 				MeasurementConfig.class, null);
+		resetSourceIndex();
 	}
 
 	/**
@@ -983,6 +1102,7 @@ public class DefaultOutstationService extends AbstractApplicationService<Outstat
 	 */
 	public void setControlConfigs(ControlConfig[] controlConfigs) {
 		this.controlConfigs = controlConfigs;
+		resetSourceIndex();
 	}
 
 	/**
@@ -1009,6 +1129,7 @@ public class DefaultOutstationService extends AbstractApplicationService<Outstat
 	public void setControlConfigsCount(int count) {
 		this.controlConfigs = ArrayUtils.arrayWithLength(this.controlConfigs, count, ControlConfig.class,
 				null);
+		resetSourceIndex();
 	}
 
 	/**
@@ -1037,6 +1158,34 @@ public class DefaultOutstationService extends AbstractApplicationService<Outstat
 		this.eventBufferSize = eventBufferSize;
 	}
 
+	/**
+	 * Get the update batch delay.
+	 *
+	 * <p>
+	 * Datum captured within this amount of time are combined into a single
+	 * DNP3 change set. Requires a {@link TaskScheduler} to be configured.
+	 * </p>
+	 *
+	 * @return the delay, in milliseconds; defaults to
+	 *         {@link #DEFAULT_UPDATE_BATCH_DELAY_MS}
+	 * @since 3.2
+	 */
+	public int getUpdateBatchDelayMs() {
+		return updateBatchDelayMs;
+	}
+
+	/**
+	 * Set the update batch delay.
+	 *
+	 * @param updateBatchDelayMs
+	 *        the delay to set, in milliseconds; anything less than {@code 1}
+	 *        disables batching so each datum is applied immediately
+	 * @since 3.2
+	 */
+	public void setUpdateBatchDelayMs(int updateBatchDelayMs) {
+		this.updateBatchDelayMs = updateBatchDelayMs;
+	}
+
 	/**
 	 * Get the outstation configuration.
 	 *
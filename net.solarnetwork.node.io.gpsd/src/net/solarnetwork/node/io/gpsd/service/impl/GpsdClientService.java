@@ -69,6 +69,7 @@ import net.solarnetwork.node.io.gpsd.service.GpsdClientConnection;
 import net.solarnetwork.node.io.gpsd.service.GpsdClientStatus;
 import net.solarnetwork.node.io.gpsd.service.GpsdMessageHandler;
 import net.solarnetwork.node.io.gpsd.service.GpsdMessageListener;
+import net.solarnetwork.node.service.NettyEventLoopService;
 import net.solarnetwork.service.OptionalService;
 import net.solarnetwork.service.support.BasicIdentifiable;
 import net.solarnetwork.settings.SettingSpecifier;
@@ -82,7 +83,7 @@ import net.solarnetwork.settings.support.BasicToggleSettingSpecifier;
  * GPSd client component.
  *
  * @author matt
- * @version 2.2
+ * @version 2.3
  */
 public class GpsdClientService extends BasicIdentifiable implements GpsdClientConnection,
 		SettingsChangeObserver, SettingSpecifierProvider, GpsdMessageHandler {
@@ -114,7 +115,6 @@ public class GpsdClientService extends BasicIdentifiable implements GpsdClientCo
 	private final Logger log = LoggerFactory.getLogger(getClass());
 
 	private final TaskScheduler taskScheduler;
-	private final Bootstrap bootstrap;
 	private final GpsdClientChannelHandler handler;
 	private String host;
 	private int port;
@@ -123,11 +123,14 @@ public class GpsdClientService extends BasicIdentifiable implements GpsdClientCo
 	private boolean gpsRolloverCompensation;
 	private GpsdMessageHandler messageHandler;
 	private OptionalService<EventAdmin> eventAdmin;
+	private OptionalService<NettyEventLoopService> eventLoopService;
 
 	private boolean shutdown;
 	private ScheduledFuture<?> connectFuture;
 	private ChannelFuture startFuture;
 	private Channel channel;
+	private Bootstrap bootstrap;
+	private EventLoopGroup ownedGroup;
 
 	/**
 	 * Constructor.
@@ -141,9 +144,7 @@ public class GpsdClientService extends BasicIdentifiable implements GpsdClientCo
 		super();
 		this.taskScheduler = taskScheduler;
 
-		GpsdClientChannelHandler handler = new GpsdClientChannelHandler(mapper, this);
-		this.handler = handler;
-		this.bootstrap = createBootstrap(handler);
+		this.handler = new GpsdClientChannelHandler(mapper, this);
 
 		this.host = DEFAULT_HOST;
 		this.port = DEFAULT_PORT;
@@ -155,17 +156,34 @@ public class GpsdClientService extends BasicIdentifiable implements GpsdClientCo
 		this.shutdown = false;
 	}
 
+	private synchronized Bootstrap bootstrap() {
+		if ( bootstrap == null ) {
+			bootstrap = createBootstrap(handler);
+		}
+		return bootstrap;
+	}
+
 	private Bootstrap createBootstrap(ChannelHandler handler) {
-		CustomizableThreadFactory tf = new CustomizableThreadFactory("gpsd-");
-		tf.setDaemon(true);
+		final NettyEventLoopService shared = OptionalService.service(eventLoopService);
+		final EventLoopGroup group;
+		if ( shared != null ) {
+			group = shared.getWorkerGroup();
+		} else {
+			CustomizableThreadFactory tf = new CustomizableThreadFactory("gpsd-");
+			tf.setDaemon(true);
+			group = new MultiThreadIoEventLoopGroup(0, tf, NioIoHandler.newFactory());
+			ownedGroup = group;
+		}
 
 		Bootstrap b = new Bootstrap();
-		EventLoopGroup group = new MultiThreadIoEventLoopGroup(0, tf, NioIoHandler.newFactory());
 		b.group(group).channel(NioSocketChannel.class)
 				.option(ChannelOption.CONNECT_TIMEOUT_MILLIS,
 						(int) TimeUnit.SECONDS.toMillis(DEFAULT_RECONNECT_SECONDS))
 				.option(ChannelOption.SO_KEEPALIVE, true)
 				.handler(new GpsdClientChannelInitializer(handler));
+		if ( shared != null ) {
+			b.option(ChannelOption.ALLOCATOR, shared.getAllocator());
+		}
 		return b;
 	}
 
@@ -224,6 +242,13 @@ public class GpsdClientService extends BasicIdentifiable implements GpsdClientCo
 		} catch ( ExecutionException | InterruptedException | TimeoutException e ) {
 			log.warn("Error waiting for GPSd connection to close gracefully: {}", e.toString(), e);
 		}
+		synchronized ( this ) {
+			bootstrap = null;
+			if ( ownedGroup != null ) {
+				ownedGroup.shutdownGracefully(0, shutdownSeconds, TimeUnit.SECONDS);
+				ownedGroup = null;
+			}
+		}
 	}
 
 	@Override
@@ -253,7 +278,7 @@ public class GpsdClientService extends BasicIdentifiable implements GpsdClientCo
 			return restart();
 		}
 		log.info("Connecting to GPSd @ {}:{}", host, port);
-		ChannelFuture f = bootstrap.connect(host, port);
+		ChannelFuture f = bootstrap().connect(host, port);
 		f.addListener(new ConnectFuture());
 		this.startFuture = f;
 		return f;
@@ -705,6 +730,32 @@ public class GpsdClientService extends BasicIdentifiable implements GpsdClientCo
 		this.eventAdmin = eventAdmin;
 	}
 
+	/**
+	 * Get the shared Netty event loop service.
+	 *
+	 * @return the service
+	 * @since 2.3
+	 */
+	public OptionalService<NettyEventLoopService> getEventLoopService() {
+		return eventLoopService;
+	}
+
+	/**
+	 * Set the shared Netty event loop service.
+	 *
+	 * <p>
+	 * If available when the client first connects, the shared worker group and
+	 * buffer allocator will be used instead of a dedicated event loop group.
+	 * </p>
+	 *
+	 * @param eventLoopService
+	 *        the service to set
+	 * @since 2.3
+	 */
+	public void setEventLoopService(OptionalService<NettyEventLoopService> eventLoopService) {
+		this.eventLoopService = eventLoopService;
+	}
+
 	/**
 	 * Get the GPS week rollover compensation mode.
 	 *
@@ -42,6 +42,7 @@ import net.solarnetwork.io.modbus.netty.handler.NettyModbusClientConfig;
 import net.solarnetwork.node.io.modbus.ModbusConnection;
 import net.solarnetwork.node.io.modbus.ModbusNetwork;
 import net.solarnetwork.node.io.modbus.support.AbstractModbusNetwork;
+import net.solarnetwork.node.service.NettyEventLoopService;
 import net.solarnetwork.node.service.OperationalModesService;
 import net.solarnetwork.node.service.OperationalModesService.OperationalModeInfo;
 import net.solarnetwork.service.OptionalService;
@@ -59,7 +60,7 @@ import net.solarnetwork.util.ObjectUtils;
  * @param <C>
  *        the configuration type
  * @author matt
- * @version 1.3
+ * @version 1.4
  */
 public abstract class AbstractNiftyModbusNetwork<C extends NettyModbusClientConfig>
 		extends AbstractModbusNetwork implements SettingSpecifierProvider, SettingsChangeObserver,
@@ -109,6 +110,7 @@ public abstract class AbstractNiftyModbusNetwork<C extends NettyModbusClientConf
 	protected ModbusClient controller;
 
 	private EventLoopGroup eventLoopGroup;
+	private boolean eventLoopGroupShared;
 	private int eventLoopGroupMaxThreadCount;
 	private int keepOpenSeconds = DEFAULT_KEEP_OPEN_SECONDS;
 	private long replyTimeout = DEFAULT_REPLY_TIMEOUT;
@@ -118,6 +120,7 @@ public abstract class AbstractNiftyModbusNetwork<C extends NettyModbusClientConf
 	private boolean publishCliCommandsMode;
 	private boolean publishCliCommandMessages;
 	private OptionalService<SimpMessageSendingOperations> messageSendingOps;
+	private OptionalService<NettyEventLoopService> eventLoopService;
 
 	private UUID opModeRegistrationId;
 	private NiftyCachedModbusConnection cachedConnection;
@@ -164,19 +167,13 @@ public abstract class AbstractNiftyModbusNetwork<C extends NettyModbusClientConf
 			controller.stop();
 			controller = null;
 		}
-		if ( eventLoopGroup != null ) {
-			eventLoopGroup.shutdownGracefully();
-			eventLoopGroup = null;
-		}
+		shutdownEventLoopGroup();
 	}
 
 	@Override
 	public synchronized void configurationChanged(Map<String, Object> properties) {
 		try {
-			if ( eventLoopGroup != null ) {
-				eventLoopGroup.shutdownGracefully();
-				eventLoopGroup = null;
-			}
+			shutdownEventLoopGroup();
 			closeCachedConnection();
 			if ( controller != null ) {
 				controller.stop();
@@ -191,6 +188,16 @@ public abstract class AbstractNiftyModbusNetwork<C extends NettyModbusClientConf
 		}
 	}
 
+	private synchronized void shutdownEventLoopGroup() {
+		if ( eventLoopGroup != null ) {
+			if ( !eventLoopGroupShared ) {
+				eventLoopGroup.shutdownGracefully();
+			}
+			eventLoopGroup = null;
+			eventLoopGroupShared = false;
+		}
+	}
+
 	private synchronized void closeCachedConnection() {
 		if ( cachedConnection != null ) {
 			if ( controller != null ) {
@@ -244,6 +251,38 @@ public abstract class AbstractNiftyModbusNetwork<C extends NettyModbusClientConf
 		return g;
 	}
 
+	/**
+	 * Get the event loop group, using the shared NIO worker group if available
+	 * or otherwise creating it if it does not already exist.
+	 *
+	 * <p>
+	 * Only NIO based networks should use this method, as the shared group
+	 * cannot be used with other transports.
+	 * </p>
+	 *
+	 * @param factory
+	 *        the factory for creating a new event loop group, if the shared
+	 *        group is not available
+	 * @return the event loop group, never {@literal null}
+	 * @see #setEventLoopService(OptionalService)
+	 * @since 1.4
+	 */
+	protected synchronized EventLoopGroup getOrCreateSharedEventLoopGroup(
+			Supplier<EventLoopGroup> factory) {
+		EventLoopGroup g = eventLoopGroup();
+		if ( g != null ) {
+			return g;
+		}
+		final NettyEventLoopService shared = service(eventLoopService);
+		if ( shared == null ) {
+			return getOrCreateEventLoopGroup(factory);
+		}
+		g = shared.getWorkerGroup();
+		this.eventLoopGroup = g;
+		this.eventLoopGroupShared = true;
+		return g;
+	}
+
 	/**
 	 * Test if the network is fully configured.
 	 *
@@ -398,6 +437,33 @@ public abstract class AbstractNiftyModbusNetwork<C extends NettyModbusClientConf
 		this.eventLoopGroupMaxThreadCount = eventLoopGroupMaxThreadCount;
 	}
 
+	/**
+	 * Get the shared Netty event loop service.
+	 *
+	 * @return the service
+	 * @since 1.4
+	 */
+	public OptionalService<NettyEventLoopService> getEventLoopService() {
+		return eventLoopService;
+	}
+
+	/**
+	 * Set the shared Netty event loop service.
+	 *
+	 * <p>
+	 * If available, networks that support it will use the shared worker group
+	 * instead of a dedicated event loop group, and the
+	 * {@code eventLoopGroupMaxThreadCount} property will not apply.
+	 * </p>
+	 *
+	 * @param eventLoopService
+	 *        the service to set
+	 * @since 1.4
+	 */
+	public void setEventLoopService(OptionalService<NettyEventLoopService> eventLoopService) {
+		this.eventLoopService = eventLoopService;
+	}
+
 	/**
 	 * Get the message reply timeout.
 	 *
@@ -41,7 +41,7 @@ import net.solarnetwork.settings.support.BasicTextFieldSettingSpecifier;
  * Nifty Modbus implementation of {@link ModbusNetwork} using a TCP connection.
  *
  * @author matt
- * @version 1.1
+ * @version 1.2
  */
 public class NiftyTcpModbusNetwork extends AbstractNiftyModbusNetwork<NettyTcpModbusClientConfig> {
 
@@ -62,7 +62,7 @@ public class NiftyTcpModbusNetwork extends AbstractNiftyModbusNetwork<NettyTcpMo
 
 	@Override
 	protected synchronized ModbusClient createController() {
-		EventLoopGroup g = getOrCreateEventLoopGroup(() -> {
+		EventLoopGroup g = getOrCreateSharedEventLoopGroup(() -> {
 			return new MultiThreadIoEventLoopGroup(getEventLoopGroupMaxThreadCount(),
 					NiftyTcpModbusNetwork.this, NioIoHandler.newFactory());
 		});
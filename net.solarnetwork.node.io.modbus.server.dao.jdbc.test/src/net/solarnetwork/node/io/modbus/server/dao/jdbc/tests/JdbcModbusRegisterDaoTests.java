@@ -55,7 +55,7 @@ import net.solarnetwork.node.test.AbstractNodeTransactionalTest;
  * Test cases for the {@link JdbcModbusRegisterDao} class.
  *
  * @author matt
- * @version 1.2
+ * @version 1.3
  */
 public class JdbcModbusRegisterDaoTests extends AbstractNodeTransactionalTest {
 
@@ -122,6 +122,38 @@ public class JdbcModbusRegisterDaoTests extends AbstractNodeTransactionalTest {
 		assertThat("Value updated", entity.getValue(), is(equalTo(update.getValue())));
 	}
 
+	@Test
+	public void saveAll() {
+		// GIVEN
+		ModbusRegisterEntity obj1 = createTestModbusRegisterEntity("test", 1,
+				ModbusRegisterBlockType.Holding, 1, (short) 0xFF);
+		obj1 = dao.get(dao.save(obj1));
+
+		ModbusRegisterEntity update1 = obj1.clone();
+		update1.setValue((short) 0xEE);
+		update1.setModified(obj1.getModified().plusSeconds(1));
+		ModbusRegisterEntity obj2 = createTestModbusRegisterEntity("test", 1,
+				ModbusRegisterBlockType.Holding, 2, (short) 0xDD);
+		final long saveCount = dao.getStats().get(ModbusServerDaoStat.EntitiesUpdated);
+
+		// WHEN
+		int result = dao.saveAll(List.of(update1, obj2));
+
+		// THEN
+		assertThat("Save count returned", result, is(equalTo(2)));
+		assertThat("Save count incremented", dao.getStats().get(ModbusServerDaoStat.EntitiesUpdated),
+				is(equalTo(saveCount + 2)));
+
+		ModbusRegisterEntity entity1 = dao.get(obj1.getId());
+		assertThat("Created unchanged", entity1.getCreated(), is(equalTo(obj1.getCreated())));
+		assertThat("Modified updated", entity1.getModified(), is(equalTo(update1.getModified())));
+		assertThat("Value updated", entity1.getValue(), is(equalTo(update1.getValue())));
+
+		ModbusRegisterEntity entity2 = dao.get(obj2.getId());
+		assertThat("Inserted", entity2, is(equalTo(obj2)));
+		assertThat("Value inserted", entity2.getValue(), is(equalTo(obj2.getValue())));
+	}
+
 	@Test
 	public void findAll() {
 		ModbusRegisterEntity obj1 = createTestModbusRegisterEntity("test", 1,
@@ -27,11 +27,14 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import net.solarnetwork.dao.BasicFilterResults;
 import net.solarnetwork.dao.FilterResults;
 import net.solarnetwork.domain.SortDescriptor;
@@ -50,7 +53,7 @@ import net.solarnetwork.util.StatTracker;
  * JDBC implementation of {@link ModbusRegisterDao}.
  *
  * @author matt
- * @version 1.4
+ * @version 1.5
  */
 public class JdbcModbusRegisterDao extends BaseJdbcBatchableDao<ModbusRegisterEntity, ModbusRegisterKey>
 		implements ModbusRegisterDao, SettingSpecifierProvider {
@@ -132,6 +135,33 @@ public class JdbcModbusRegisterDao extends BaseJdbcBatchableDao<ModbusRegisterEn
 		return result;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>
+	 * This implementation executes the update statement for all entities as a
+	 * single JDBC batch, within one transaction.
+	 * </p>
+	 *
+	 * @since 1.5
+	 */
+	@Transactional(readOnly = false, propagation = Propagation.REQUIRED)
+	@Override
+	public int saveAll(Collection<ModbusRegisterEntity> entities) {
+		if ( entities == null || entities.isEmpty() ) {
+			return 0;
+		}
+		final List<ModbusRegisterEntity> list = (entities instanceof List<ModbusRegisterEntity> l ? l
+				: new ArrayList<>(entities));
+		getJdbcTemplate().batchUpdate(getSqlResource(SQL_UPDATE), list, list.size(),
+				(ps, entity) -> setUpdateStatementValues(entity, ps));
+		for ( ModbusRegisterEntity entity : list ) {
+			postEntityEvent(entity.getId(), entity, EntityEventType.STORED);
+		}
+		stats.add(ModbusServerDaoStat.EntitiesUpdated, list.size());
+		return list.size();
+	}
+
 	@Override
 	protected Object[] primaryKeyArguments(ModbusRegisterKey id) {
 		return new Object[] { id.getServerId(), (short) id.getUnitId(),
@@ -37,16 +37,19 @@ import static net.solarnetwork.node.test.NodeTestUtils.randomString;
 import static net.solarnetwork.util.NumberUtils.bigDecimalForNumber;
 import static org.assertj.core.api.BDDAssertions.from;
 import static org.assertj.core.api.BDDAssertions.then;
+import static org.easymock.EasyMock.capture;
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
+import org.easymock.Capture;
 import org.junit.Before;
 import org.junit.Test;
 import org.osgi.service.event.Event;
@@ -57,6 +60,8 @@ import net.solarnetwork.node.domain.datum.SimpleDatum;
 import net.solarnetwork.node.io.modbus.ModbusDataType;
 import net.solarnetwork.node.io.modbus.ModbusDataUtils;
 import net.solarnetwork.node.io.modbus.ModbusRegisterBlockType;
+import net.solarnetwork.node.io.modbus.server.dao.ModbusRegisterDao;
+import net.solarnetwork.node.io.modbus.server.dao.ModbusRegisterEntity;
 import net.solarnetwork.node.io.modbus.server.domain.MeasurementConfig;
 import net.solarnetwork.node.io.modbus.server.domain.ModbusRegisterData;
 import net.solarnetwork.node.io.modbus.server.domain.RegisterBlockConfig;
@@ -75,7 +80,7 @@ import net.solarnetwork.util.NumberUtils;
  * Test cases for the {@link BaseModbusServer} class.
  *
  * @author matt
- * @version 1.1
+ * @version 1.3
  */
 public class BaseModbusServerTests {
 
@@ -589,4 +594,155 @@ public class BaseModbusServerTests {
 		verify(opModesService);
 	}
 
+	@Test
+	public void persist_batchUnchangedSkipped() {
+		// GIVEN
+		final String sourceId = randomString();
+		final String propName = randomString();
+		final Integer propVal = randomInt();
+		final int unitId = 1;
+
+		// @formatter:off
+		final MeasurementConfig[] measConfigs = new MeasurementConfig[] {
+			meas(sourceId, propName, Int32, 0, "1", null)
+		};
+		final RegisterBlockConfig[] blockConfigs = new RegisterBlockConfig[] {
+			block(ModbusRegisterBlockType.Holding, 0, measConfigs)
+		};
+		final UnitConfig[] unitConfigs = new UnitConfig[] {
+			unit(unitId, blockConfigs)
+		};
+		// @formatter:on
+
+		final String serverId = randomString();
+		server.setUid(serverId);
+		server.setUnitConfigs(unitConfigs);
+
+		final ModbusRegisterDao dao = createMock(ModbusRegisterDao.class);
+		server.setRegisterDao(new StaticOptionalService<>(dao));
+
+		// both registers saved in one batch, only once
+		Capture<Collection<ModbusRegisterEntity>> batchCaptor = Capture.newInstance();
+		expect(dao.saveAll(capture(batchCaptor))).andReturn(2);
+
+		// WHEN
+		replay(dao);
+
+		SimpleDatum datum = new SimpleDatum(DatumId.nodeId(randomLong(), sourceId, null),
+				new DatumSamples(Map.of(propName, propVal), null, null));
+		Event evt = new Event(DatumQueue.EVENT_TOPIC_DATUM_ACQUIRED,
+				Map.of(DatumEvents.DATUM_PROPERTY, datum));
+		server.handleEvent(evt);
+		server.handleEvent(evt);
+
+		// THEN
+		final short[] expected = encodeInt32(propVal);
+		// @formatter:off
+		then(batchCaptor.getValue())
+			.as("Both registers of measurement saved in batch")
+			.hasSize(2)
+			.extracting(ModbusRegisterEntity::getValue)
+			.containsExactly(expected[0], expected[1])
+			;
+		// @formatter:on
+
+		verify(dao);
+	}
+
+	@Test
+	public void datumEvent_unmappedSource() {
+		// GIVEN
+		final String sourceId = randomString();
+		final String propName = randomString();
+		final int unitId = 1;
+
+		// @formatter:off
+		final MeasurementConfig[] measConfigs = new MeasurementConfig[] {
+			meas(sourceId, propName, Int32, 0, "1", null)
+		};
+		final RegisterBlockConfig[] blockConfigs = new RegisterBlockConfig[] {
+			block(ModbusRegisterBlockType.Holding, 0, measConfigs)
+		};
+		final UnitConfig[] unitConfigs = new UnitConfig[] {
+			unit(unitId, blockConfigs)
+		};
+		// @formatter:on
+
+		server.setUnitConfigs(unitConfigs);
+		server.setRequiredOperationalMode(randomString());
+
+		final OperationalModesService opModesService = createMock(OperationalModesService.class);
+		server.setOpModesService(new StaticOptionalService<>(opModesService));
+
+		// WHEN
+		replay(opModesService);
+
+		SimpleDatum datum = new SimpleDatum(DatumId.nodeId(randomLong(), randomString(), null),
+				new DatumSamples(Map.of(propName, randomInt()), null, null));
+		Event evt = new Event(DatumQueue.EVENT_TOPIC_DATUM_ACQUIRED,
+				Map.of(DatumEvents.DATUM_PROPERTY, datum));
+		server.handleEvent(evt);
+
+		// THEN
+		// @formatter:off
+		then(registers)
+			.as("Server data not updated for unmapped source, without checking operational mode")
+			.isEmpty()
+			;
+		// @formatter:on
+
+		verify(opModesService);
+	}
+
+	@Test
+	public void datumEvent_configurationChanged() {
+		// GIVEN
+		final String sourceId = randomString();
+		final String propName = randomString();
+		final Integer propVal = randomInt();
+		final int unitId = 1;
+
+		// @formatter:off
+		final MeasurementConfig[] measConfigs = new MeasurementConfig[] {
+			meas(sourceId, propName, Int32, 0, "1", null),
+			meas(sourceId, propName, Int32, 0, "1", null),
+		};
+		final RegisterBlockConfig[] blockConfigs = new RegisterBlockConfig[] {
+			block(ModbusRegisterBlockType.Holding, 0, measConfigs)
+		};
+		final UnitConfig[] unitConfigs = new UnitConfig[] {
+			unit(unitId, blockConfigs)
+		};
+		// @formatter:on
+
+		server.setUnitConfigs(unitConfigs);
+
+		SimpleDatum datum = new SimpleDatum(DatumId.nodeId(randomLong(), sourceId, null),
+				new DatumSamples(Map.of(propName, propVal), null, null));
+		Event evt = new Event(DatumQueue.EVENT_TOPIC_DATUM_ACQUIRED,
+				Map.of(DatumEvents.DATUM_PROPERTY, datum));
+		server.handleEvent(evt);
+
+		// change the source ID of the first measurement
+		final String sourceId2 = randomString();
+		measConfigs[0].setSourceId(sourceId2);
+		server.configurationChanged(Map.of());
+		registers.clear();
+
+		// WHEN
+		server.handleEvent(evt);
+
+		// THEN
+		// @formatter:off
+		then(registers)
+			.as("Server data contains unit ID for updated measurement")
+			.containsOnlyKeys(unitId)
+			.extractingByKey(unitId)
+			.as("Only measurement still mapped to source updated, at configured address")
+			.returns(new short[] {0, 0}, from(r -> r.readHoldings(0, 2)))
+			.returns(encodeInt32(propVal), from(r -> r.readHoldings(2, 2)))
+			;
+		// @formatter:on
+	}
+
 }
@@ -0,0 +1,168 @@
+/* ==================================================================
+ * ModbusRegisterUpdateBufferTests.java - 19/10/2026 5:41:08 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.io.modbus.server.impl.test;
+
+import static net.solarnetwork.node.io.modbus.server.dao.ModbusRegisterEntity.newRegisterEntity;
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.assertj.core.groups.Tuple.tuple;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import org.easymock.Capture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import net.solarnetwork.node.io.modbus.ModbusRegisterBlockType;
+import net.solarnetwork.node.io.modbus.server.dao.ModbusRegisterDao;
+import net.solarnetwork.node.io.modbus.server.dao.ModbusRegisterEntity;
+import net.solarnetwork.node.io.modbus.server.impl.ModbusRegisterUpdateBuffer;
+
+/**
+ * Test cases for the {@link ModbusRegisterUpdateBuffer} class.
+ *
+ * @author matt
+ * @version 1.0
+ */
+public class ModbusRegisterUpdateBufferTests {
+
+	private static final String SERVER_ID = "test";
+
+	private ModbusRegisterDao dao;
+	private ModbusRegisterUpdateBuffer buffer;
+
+	@Before
+	public void setup() {
+		dao = createMock(ModbusRegisterDao.class);
+		buffer = new ModbusRegisterUpdateBuffer();
+	}
+
+	@After
+	public void teardown() {
+		verify(dao);
+	}
+
+	private static ModbusRegisterEntity reg(int address, int value) {
+		return newRegisterEntity(SERVER_ID, 1, ModbusRegisterBlockType.Holding, address, Instant.now(),
+				(short) value);
+	}
+
+	@Test
+	public void add_coalesce() {
+		// GIVEN
+		Capture<Collection<ModbusRegisterEntity>> batchCaptor = Capture.newInstance();
+		expect(dao.saveAll(capture(batchCaptor))).andReturn(2);
+
+		// WHEN
+		replay(dao);
+		buffer.add(reg(0, 1));
+		buffer.add(reg(1, 1));
+		buffer.add(reg(0, 2));
+		buffer.add(reg(0, 3));
+		int result = buffer.flush(dao);
+
+		// THEN
+		then(result).as("Flush count returned").isEqualTo(2);
+		then(batchCaptor.getValue()).as("Only latest update of each register persisted")
+				.extracting(ModbusRegisterEntity::getAddress, ModbusRegisterEntity::getValue)
+				.containsExactly(tuple(0, (short) 3), tuple(1, (short) 1));
+		then(buffer.getPendingCount()).as("Nothing pending after flush").isEqualTo(0);
+	}
+
+	@Test
+	public void add_unchanged() {
+		// GIVEN
+		buffer.reset(List.of(reg(0, 1)));
+
+		// WHEN
+		replay(dao);
+		boolean added = buffer.add(reg(0, 1));
+		int result = buffer.flush(dao);
+
+		// THEN
+		then(added).as("Unchanged persisted value not added").isFalse();
+		then(result).as("Nothing flushed").isEqualTo(0);
+	}
+
+	@Test
+	public void add_unchangedSincePreviousFlush() {
+		// GIVEN
+		expect(dao.saveAll(anyObject())).andReturn(1);
+
+		// WHEN
+		replay(dao);
+		boolean added1 = buffer.add(reg(0, 1));
+		buffer.flush(dao);
+		boolean added2 = buffer.add(reg(0, 1));
+		int result = buffer.flush(dao);
+
+		// THEN
+		then(added1).as("Unknown register value added").isTrue();
+		then(added2).as("Unchanged value not added").isFalse();
+		then(result).as("Nothing flushed").isEqualTo(0);
+	}
+
+	@Test
+	public void flush_error() {
+		// GIVEN
+		expect(dao.saveAll(anyObject())).andThrow(new RuntimeException("test"));
+
+		// WHEN
+		replay(dao);
+		buffer.add(reg(0, 1));
+		buffer.add(reg(1, 1));
+		try {
+			buffer.flush(dao);
+		} catch ( RuntimeException e ) {
+			// expected
+		}
+
+		// THEN
+		then(buffer.getPendingCount()).as("Updates returned to buffer after error").isEqualTo(2);
+	}
+
+	@Test
+	public void reset_preservesPending() {
+		// GIVEN
+		Capture<Collection<ModbusRegisterEntity>> batchCaptor = Capture.newInstance();
+		expect(dao.saveAll(capture(batchCaptor))).andReturn(1);
+
+		// WHEN
+		replay(dao);
+		buffer.add(reg(0, 2));
+		buffer.reset(List.of(reg(0, 1)));
+		boolean added = buffer.add(reg(0, 2));
+		buffer.flush(dao);
+
+		// THEN
+		then(added).as("Pending value takes precedence over persisted value").isFalse();
+		then(batchCaptor.getValue()).as("Pending update persisted")
+				.extracting(ModbusRegisterEntity::getValue).containsExactly((short) 2);
+	}
+
+}
@@ -23,6 +23,7 @@
 package net.solarnetwork.node.io.modbus.server.dao;
 
 import java.time.Instant;
+import java.util.Collection;
 import net.solarnetwork.dao.BatchableDao;
 import net.solarnetwork.dao.FilterableDao;
 import net.solarnetwork.dao.GenericDao;
@@ -31,7 +32,7 @@ import net.solarnetwork.dao.GenericDao;
  * Data access API for {@link ModbusRegisterEntity} entities.
  *
  * @author matt
- * @version 1.2
+ * @version 1.3
  */
 public interface ModbusRegisterDao extends GenericDao<ModbusRegisterEntity, ModbusRegisterKey>,
 		FilterableDao<ModbusRegisterEntity, ModbusRegisterKey, ModbusRegisterFilter>,
@@ -52,6 +53,32 @@ public interface ModbusRegisterDao extends GenericDao<ModbusRegisterEntity, Modb
 		return deleteCount;
 	}
 
+	/**
+	 * Save a collection of entities.
+	 *
+	 * <p>
+	 * This default implementation calls {@code save()} for each entity.
+	 * Implementations are encouraged to persist all entities in a single batch
+	 * operation.
+	 * </p>
+	 *
+	 * @param entities
+	 *        the entities to save
+	 * @return the number of saved entities
+	 * @since 1.3
+	 */
+	default int saveAll(Collection<ModbusRegisterEntity> entities) {
+		if ( entities == null ) {
+			return 0;
+		}
+		int saveCount = 0;
+		for ( ModbusRegisterEntity entity : entities ) {
+			save(entity);
+			saveCount++;
+		}
+		return saveCount;
+	}
+
 	/**
 	 * Get the most recent modification date of all local state.
 	 *
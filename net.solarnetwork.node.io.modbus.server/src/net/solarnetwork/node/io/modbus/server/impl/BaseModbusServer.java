@@ -31,6 +31,7 @@ import static net.solarnetwork.node.service.DatumDataSource.EVENT_TOPIC_DATUM_CA
 import static net.solarnetwork.node.service.DatumQueue.EVENT_TOPIC_DATUM_ACQUIRED;
 import static net.solarnetwork.service.OptionalService.service;
 import java.io.IOException;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -114,7 +115,7 @@ import net.solarnetwork.util.StringUtils;
  * @param <T>
  *        the server type
  * @author matt
- * @version 1.4
+ * @version 1.6
  * @since 5.3
  */
 public abstract class BaseModbusServer<T> extends BaseIdentifiable
@@ -127,6 +128,13 @@ public abstract class BaseModbusServer<T> extends BaseIdentifiable
 	/** The {@code datumEventMode} property default value. */
 	public static final DatumEventMode DEFAULT_DATUM_EVENT_MODE = Acquire;
 
+	/**
+	 * The {@code persistInterval} property default value, in milliseconds.
+	 *
+	 * @since 1.5
+	 */
+	public static final long DEFAULT_PERSIST_INTERVAL = 5000L;
+
 	/** A class-level logger. */
 	protected final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -149,9 +157,13 @@ public abstract class BaseModbusServer<T> extends BaseIdentifiable
 	private String requiredOperationalMode;
 	private boolean daoRequired;
 	private DatumEventMode datumEventMode = DEFAULT_DATUM_EVENT_MODE;
+	private long persistInterval = DEFAULT_PERSIST_INTERVAL;
 
 	private T server;
 	private ScheduledFuture<?> startupFuture;
+	private volatile ScheduledFuture<?> persistFuture;
+	private volatile Map<String, List<MeasurementUpdate>> measurementIndex;
+	private final ModbusRegisterUpdateBuffer registerUpdates = new ModbusRegisterUpdateBuffer();
 
 	/**
 	 * Constructor.
@@ -181,6 +193,7 @@ public abstract class BaseModbusServer<T> extends BaseIdentifiable
 		this.registers = ObjectUtils.requireNonNullArgument(registers, "registers");
 		this.handler = new ModbusConnectionHandler(registers, this::description, this::handleException,
 				this::getUid, () -> service(registerDao));
+		this.handler.setRegisterPersister(this::persistRegisterUpdates);
 	}
 
 	/**
@@ -197,6 +210,7 @@ public abstract class BaseModbusServer<T> extends BaseIdentifiable
 
 	@Override
 	public final void configurationChanged(Map<String, Object> properties) {
+		measurementIndex = null;
 		if ( server != null ) {
 			log.info("Restarting Modbus server [{}] from configuration change", description());
 		}
@@ -238,6 +252,7 @@ public abstract class BaseModbusServer<T> extends BaseIdentifiable
 		try {
 			server = startServer();
 			log.info("Started Modbus server [{}]", description());
+			schedulePersistTask();
 		} catch ( OptionalServiceNotAvailableException e ) {
 			log.info("Modbus server configuration [{}] incomplete, cannot start: {}", description(),
 					e.getMessage());
@@ -268,6 +283,10 @@ public abstract class BaseModbusServer<T> extends BaseIdentifiable
 
 	/**
 	 * Shut down the server.
+	 *
+	 * <p>
+	 * Any pending register updates will be persisted.
+	 * </p>
 	 */
 	public final synchronized void stop() {
 		if ( startupFuture != null && !startupFuture.isDone() ) {
@@ -279,6 +298,70 @@ public abstract class BaseModbusServer<T> extends BaseIdentifiable
 			log.info("Stopped Modbus server [{}]", description());
 			server = null;
 		}
+		if ( persistFuture != null ) {
+			persistFuture.cancel(false);
+			persistFuture = null;
+		}
+		flushRegisterUpdates();
+	}
+
+	private void schedulePersistTask() {
+		if ( persistFuture != null || taskScheduler == null || persistInterval < 1 ) {
+			return;
+		}
+		persistFuture = taskScheduler.scheduleWithFixedDelay(this::flushRegisterUpdates,
+				Instant.now().plusMillis(persistInterval), Duration.ofMillis(persistInterval));
+	}
+
+	private boolean isPersistScheduled() {
+		final ScheduledFuture<?> f = persistFuture;
+		return (f != null && !f.isDone());
+	}
+
+	/**
+	 * Add register updates to the persistence buffer.
+	 *
+	 * <p>
+	 * Updates that do not change a register value are ignored. If no periodic
+	 * persistence task is scheduled, the updates are persisted immediately.
+	 * </p>
+	 *
+	 * @param entities
+	 *        the updated registers
+	 */
+	private void persistRegisterUpdates(Collection<ModbusRegisterEntity> entities) {
+		if ( registerUpdates.addAll(entities) > 0 && !isPersistScheduled() ) {
+			flushRegisterUpdates();
+		}
+	}
+
+	/**
+	 * Persist all pending register updates.
+	 *
+	 * <p>
+	 * All register updates since the last flush are saved to the register DAO
+	 * as a single batch. This method is invoked periodically according to the
+	 * {@link #getPersistInterval()} setting, and when the server is stopped.
+	 * If the register DAO is not available, or saving fails, the updates
+	 * remain pending.
+	 * </p>
+	 *
+	 * @since 1.5
+	 */
+	public final void flushRegisterUpdates() {
+		final ModbusRegisterDao dao = service(registerDao);
+		if ( dao == null ) {
+			return;
+		}
+		try {
+			int count = registerUpdates.flush(dao);
+			if ( count > 0 ) {
+				log.debug("Persisted {} Modbus server [{}] register updates", count, description());
+			}
+		} catch ( RuntimeException e ) {
+			log.warn("Error persisting Modbus server [{}] register updates: {}", description(),
+					e.toString());
+		}
 	}
 
 	/**
@@ -365,12 +448,16 @@ public abstract class BaseModbusServer<T> extends BaseIdentifiable
 			return;
 		}
 
+		// persist any pending updates before re-loading
+		flushRegisterUpdates();
+
 		// clear any existing data to re-load from persistence store
 		registers.clear();
 
 		log.info("Loading Modbus server [{}] register data from persistence store", description());
 		FilterResults<ModbusRegisterEntity, ModbusRegisterKey> data = dao
 				.findFiltered(forServerId(serviceId));
+		registerUpdates.reset(data);
 		if ( data == null || data.getReturnedResultCount() < 1 ) {
 			return;
 		}
@@ -483,8 +570,9 @@ public abstract class BaseModbusServer<T> extends BaseIdentifiable
 		if ( !(d instanceof NodeDatum datum && datum.getSourceId() != null) ) {
 			return;
 		}
-		UnitConfig[] unitConfigs = getUnitConfigs();
-		if ( unitConfigs == null || unitConfigs.length < 1 ) {
+		final String sourceId = datum.getSourceId();
+		final List<MeasurementUpdate> mappings = measurementIndex().get(sourceId);
+		if ( mappings == null ) {
 			return;
 		}
 
@@ -496,10 +584,59 @@ public abstract class BaseModbusServer<T> extends BaseIdentifiable
 		}
 
 		final DatumSamplesOperations ops = datum.asSampleOperations();
-		final String sourceId = datum.getSourceId();
 
 		log.trace("Inspecting {} event datum {} ", event.getTopic(), datum);
 		List<MeasurementUpdate> updates = null;
+		for ( MeasurementUpdate mapping : mappings ) {
+			final String propName = mapping.measConfig.getPropertyName();
+			if ( ops.hasSampleValue(propName) ) {
+				if ( updates == null ) {
+					updates = new ArrayList<>(mappings.size());
+				}
+				updates.add(mapping.withPropertyValue(ops.findSampleValue(propName)));
+			}
+		}
+		if ( updates != null ) {
+			log.debug("Queuing [{}] updates: {}", sourceId, updates.stream().map(Object::toString)
+					.collect(Collectors.joining(",\n\t", "[\n\t", "\n]")));
+			final List<MeasurementUpdate> finalUpdates = updates;
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					applyMeasurementUpdates(finalUpdates);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Get the source ID measurement index.
+	 *
+	 * <p>
+	 * The index maps datum source IDs to the list of measurements configured
+	 * for that source, with their register addresses resolved. It is built
+	 * from the unit configurations when first needed after a configuration
+	 * change.
+	 * </p>
+	 *
+	 * @return the index, never {@literal null}
+	 */
+	private Map<String, List<MeasurementUpdate>> measurementIndex() {
+		Map<String, List<MeasurementUpdate>> index = this.measurementIndex;
+		if ( index == null ) {
+			index = buildMeasurementIndex(getUnitConfigs());
+			this.measurementIndex = index;
+		}
+		return index;
+	}
+
+	private static Map<String, List<MeasurementUpdate>> buildMeasurementIndex(
+			UnitConfig[] unitConfigs) {
+		if ( unitConfigs == null || unitConfigs.length < 1 ) {
+			return Collections.emptyMap();
+		}
+		final Map<String, List<MeasurementUpdate>> index = new HashMap<>(8);
 		for ( UnitConfig unitConfig : unitConfigs ) {
 			RegisterBlockConfig[] blockConfigs = unitConfig.getRegisterBlockConfigs();
 			if ( blockConfigs == null || blockConfigs.length < 1 ) {
@@ -512,32 +649,19 @@ public abstract class BaseModbusServer<T> extends BaseIdentifiable
 				}
 				int address = blockConfig.getStartAddress();
 				for ( MeasurementConfig measConfig : measConfigs ) {
-					if ( sourceId.equals(measConfig.getSourceId())
-							&& measConfig.getPropertyName() != null
-							&& ops.hasSampleValue(measConfig.getPropertyName()) ) {
-						MeasurementUpdate up = new MeasurementUpdate(unitConfig, blockConfig, measConfig,
-								ops.findSampleValue(measConfig.getPropertyName()), address);
-						if ( updates == null ) {
-							updates = new ArrayList<>(4);
-						}
-						updates.add(up);
+					if ( measConfig.getSourceId() != null && measConfig.getPropertyName() != null ) {
+						index.computeIfAbsent(measConfig.getSourceId(), k -> new ArrayList<>(4))
+								.add(new MeasurementUpdate(unitConfig, blockConfig, measConfig, null,
+										address));
 					}
 					address += measConfig.getSize();
 				}
 			}
 		}
-		if ( updates != null ) {
-			log.debug("Queuing [{}] updates: {}", sourceId, updates.stream().map(Object::toString)
-					.collect(Collectors.joining(",\n\t", "[\n\t", "\n]")));
-			final List<MeasurementUpdate> finalUpdates = updates;
-			executor.execute(new Runnable() {
-
-				@Override
-				public void run() {
-					applyMeasurementUpdates(finalUpdates);
-				}
-			});
+		for ( Entry<String, List<MeasurementUpdate>> e : index.entrySet() ) {
+			e.setValue(List.copyOf(e.getValue()));
 		}
+		return Collections.unmodifiableMap(index);
 	}
 
 	private static class MeasurementUpdate {
@@ -599,6 +723,8 @@ public abstract class BaseModbusServer<T> extends BaseIdentifiable
 		final ModbusRegisterDao dao = (serverId != null && !serverId.isEmpty() ? service(registerDao)
 				: null);
 		final Instant now = Instant.now();
+		final List<ModbusRegisterEntity> entities = (dao != null ? new ArrayList<>(updates.size())
+				: null);
 		for ( MeasurementUpdate update : updates ) {
 			Integer unitId = update.unitConfig.getUnitId();
 			ModbusRegisterBlockType blockType = update.blockConfig.getBlockType();
@@ -616,8 +742,8 @@ public abstract class BaseModbusServer<T> extends BaseIdentifiable
 				case Discrete:
 					boolean bitVal = booleanPropertyValue(update.propertyValue);
 					regData.writeBit(blockType, update.address, bitVal);
-					if ( dao != null ) {
-						dao.save(newRegisterEntity(serverId, unitId, blockType, update.address, now,
+					if ( entities != null ) {
+						entities.add(newRegisterEntity(serverId, unitId, blockType, update.address, now,
 								bitVal ? (short) 1 : (short) 0));
 					}
 					break;
@@ -631,16 +757,19 @@ public abstract class BaseModbusServer<T> extends BaseIdentifiable
 					} else {
 						regData.writeInputs(update.address, vals);
 					}
-					if ( dao != null ) {
+					if ( entities != null ) {
 						for ( int i = 0, len = vals.length; i < len; i++ ) {
-							dao.save(newRegisterEntity(serverId, unitId, blockType, update.address + i,
-									now, vals[i]));
+							entities.add(newRegisterEntity(serverId, unitId, blockType,
+									update.address + i, now, vals[i]));
 						}
 					}
 					break;
 
 			}
 		}
+		if ( entities != null && !entities.isEmpty() ) {
+			persistRegisterUpdates(entities);
+		}
 	}
 
 	private boolean booleanPropertyValue(Object propVal) {
@@ -715,6 +844,8 @@ public abstract class BaseModbusServer<T> extends BaseIdentifiable
 				String.valueOf(ModbusConnectionHandler.DEFAULT_REQUEST_THROTTLE)));
 		result.add(new BasicTextFieldSettingSpecifier("startupDelay",
 				String.valueOf(DEFAULT_STARTUP_DELAY_SECS)));
+		result.add(new BasicTextFieldSettingSpecifier("persistInterval",
+				String.valueOf(DEFAULT_PERSIST_INTERVAL)));
 		result.add(new BasicToggleSettingSpecifier("allowWrites", false));
 		result.add(new BasicToggleSettingSpecifier("daoRequired", false));
 		result.add(new BasicToggleSettingSpecifier("restrictUnitIds", false));
@@ -1062,6 +1193,7 @@ public abstract class BaseModbusServer<T> extends BaseIdentifiable
 	 */
 	public final void setUnitConfigs(UnitConfig[] unitConfigs) {
 		this.unitConfigs = unitConfigs;
+		this.measurementIndex = null;
 	}
 
 	/**
@@ -1087,6 +1219,7 @@ public abstract class BaseModbusServer<T> extends BaseIdentifiable
 	 */
 	public final void setUnitConfigsCount(int count) {
 		this.unitConfigs = ArrayUtils.arrayWithLength(this.unitConfigs, count, UnitConfig.class, null);
+		this.measurementIndex = null;
 	}
 
 	/**
@@ -1328,4 +1461,32 @@ public abstract class BaseModbusServer<T> extends BaseIdentifiable
 		this.datumEventMode = (datumEventMode != null ? datumEventMode : DEFAULT_DATUM_EVENT_MODE);
 	}
 
+	/**
+	 * Get the register persistence interval.
+	 *
+	 * @return the number of milliseconds between persisting register updates;
+	 *         defaults to {@link #DEFAULT_PERSIST_INTERVAL}
+	 * @since 1.5
+	 */
+	public final long getPersistInterval() {
+		return persistInterval;
+	}
+
+	/**
+	 * Set the register persistence interval.
+	 *
+	 * <p>
+	 * Register updates are buffered in memory and persisted as a single batch
+	 * at this interval, and when the server is stopped. If less than
+	 * {@code 1} then updates are persisted immediately.
+	 * </p>
+	 *
+	 * @param persistInterval
+	 *        the number of milliseconds between persisting register updates
+	 * @since 1.5
+	 */
+	public final void setPersistInterval(long persistInterval) {
+		this.persistInterval = persistInterval;
+	}
+
 }
@@ -36,7 +36,10 @@ import static net.solarnetwork.util.ObjectUtils.requireNonNullArgument;
 import java.math.BigInteger;
 import java.time.Clock;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentMap;
@@ -55,6 +58,7 @@ import net.solarnetwork.io.modbus.netty.msg.BaseModbusMessage;
 import net.solarnetwork.node.io.modbus.ModbusData;
 import net.solarnetwork.node.io.modbus.ModbusRegisterBlockType;
 import net.solarnetwork.node.io.modbus.server.dao.ModbusRegisterDao;
+import net.solarnetwork.node.io.modbus.server.dao.ModbusRegisterEntity;
 import net.solarnetwork.node.io.modbus.server.domain.ModbusRegisterData;
 import net.solarnetwork.util.NumberUtils;
 
@@ -62,7 +66,7 @@ import net.solarnetwork.util.NumberUtils;
  * Handler for a Modbus server connection.
  *
  * @author matt
- * @version 2.2
+ * @version 2.3
  */
 public class ModbusConnectionHandler implements BiConsumer<ModbusMessage, Consumer<ModbusMessage>> {
 
@@ -81,6 +85,7 @@ public class ModbusConnectionHandler implements BiConsumer<ModbusMessage, Consum
 	private boolean allowWrites;
 	private boolean restrictUnitIds;
 	private boolean restrictAddresses;
+	private Consumer<Collection<ModbusRegisterEntity>> registerPersister;
 
 	private long lastRequestTime;
 
@@ -465,10 +470,12 @@ public class ModbusConnectionHandler implements BiConsumer<ModbusMessage, Consum
 		final String serverId = (dao != null ? serverIdProvider.get() : null);
 		if ( dao != null && serverId != null ) {
 			Instant now = clock.instant();
+			List<ModbusRegisterEntity> entities = new ArrayList<>(data.size());
 			for ( int i = 0, len = data.size(); i < len; i++ ) {
-				dao.save(newRegisterEntity(serverId, req.getUnitId(), ModbusRegisterBlockType.Coil,
+				entities.add(newRegisterEntity(serverId, req.getUnitId(), ModbusRegisterBlockType.Coil,
 						req.getAddress() + i, now, data.get(i) ? (short) 1 : (short) 0));
 			}
+			persistRegisterData(dao, entities);
 		}
 	}
 
@@ -480,9 +487,22 @@ public class ModbusConnectionHandler implements BiConsumer<ModbusMessage, Consum
 		final String serverId = (dao != null ? serverIdProvider.get() : null);
 		if ( dao != null && serverId != null ) {
 			Instant now = clock.instant();
+			List<ModbusRegisterEntity> entities = new ArrayList<>(data.length);
 			for ( int i = 0, len = data.length; i < len; i++ ) {
-				dao.save(newRegisterEntity(serverId, req.getUnitId(), Holding, req.getAddress() + i, now,
-						data[i]));
+				entities.add(newRegisterEntity(serverId, req.getUnitId(), Holding, req.getAddress() + i,
+						now, data[i]));
+			}
+			persistRegisterData(dao, entities);
+		}
+	}
+
+	private void persistRegisterData(ModbusRegisterDao dao, List<ModbusRegisterEntity> entities) {
+		final Consumer<Collection<ModbusRegisterEntity>> persister = this.registerPersister;
+		if ( persister != null ) {
+			persister.accept(entities);
+		} else {
+			for ( ModbusRegisterEntity entity : entities ) {
+				dao.save(entity);
 			}
 		}
 	}
@@ -580,4 +600,33 @@ public class ModbusConnectionHandler implements BiConsumer<ModbusMessage, Consum
 		this.restrictAddresses = restrictAddresses;
 	}
 
+	/**
+	 * Get the register persister.
+	 *
+	 * @return the persister, or {@literal null} to save updated registers
+	 *         directly to the DAO
+	 * @since 2.3
+	 */
+	public Consumer<Collection<ModbusRegisterEntity>> getRegisterPersister() {
+		return registerPersister;
+	}
+
+	/**
+	 * Set the register persister.
+	 *
+	 * <p>
+	 * If configured, then register updates written by Modbus clients will be
+	 * passed to this persister instead of being saved directly to the DAO. A
+	 * DAO must still be available for updates to be persisted.
+	 * </p>
+	 *
+	 * @param registerPersister
+	 *        the persister to set, or {@literal null} to save updated registers
+	 *        directly to the DAO
+	 * @since 2.3
+	 */
+	public void setRegisterPersister(Consumer<Collection<ModbusRegisterEntity>> registerPersister) {
+		this.registerPersister = registerPersister;
+	}
+
 }
@@ -0,0 +1,171 @@
+/* ==================================================================
+ * ModbusRegisterUpdateBuffer.java - 19/10/2026 5:12:47 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.io.modbus.server.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import net.solarnetwork.node.io.modbus.server.dao.ModbusRegisterDao;
+import net.solarnetwork.node.io.modbus.server.dao.ModbusRegisterEntity;
+import net.solarnetwork.node.io.modbus.server.dao.ModbusRegisterKey;
+
+/**
+ * Buffer of Modbus register updates waiting to be persisted.
+ *
+ * <p>
+ * Only the most recent update of each register is kept, so a register updated
+ * many times between flushes is persisted once. The last known value of each
+ * register is also tracked, so that updates that do not change the value of a
+ * register are ignored.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 5.7
+ */
+public class ModbusRegisterUpdateBuffer {
+
+	private final Map<ModbusRegisterKey, Short> values = new HashMap<>(64);
+	private final Map<ModbusRegisterKey, ModbusRegisterEntity> pending = new LinkedHashMap<>(64);
+	private final Object flushLock = new Object();
+
+	/**
+	 * Constructor.
+	 */
+	public ModbusRegisterUpdateBuffer() {
+		super();
+	}
+
+	/**
+	 * Reset the known register values to a persisted state.
+	 *
+	 * <p>
+	 * Any pending updates are preserved, and take precedence over the given
+	 * persisted values.
+	 * </p>
+	 *
+	 * @param persisted
+	 *        the persisted register entities
+	 */
+	public synchronized void reset(Iterable<ModbusRegisterEntity> persisted) {
+		values.clear();
+		if ( persisted != null ) {
+			for ( ModbusRegisterEntity entity : persisted ) {
+				values.put(entity.getId(), entity.getValue());
+			}
+		}
+		for ( ModbusRegisterEntity entity : pending.values() ) {
+			values.put(entity.getId(), entity.getValue());
+		}
+	}
+
+	/**
+	 * Add a register update.
+	 *
+	 * @param entity
+	 *        the updated register
+	 * @return {@literal true} if the update changed the register value and is
+	 *         now pending, {@literal false} if the value was unchanged
+	 */
+	public synchronized boolean add(ModbusRegisterEntity entity) {
+		final ModbusRegisterKey key = entity.getId();
+		final Short prev = values.put(key, entity.getValue());
+		if ( prev != null && prev.shortValue() == entity.getValue() ) {
+			return false;
+		}
+		pending.put(key, entity);
+		return true;
+	}
+
+	/**
+	 * Add a collection of register updates.
+	 *
+	 * @param entities
+	 *        the updated registers
+	 * @return the number of updates that changed register values and are now
+	 *         pending
+	 */
+	public synchronized int addAll(Collection<ModbusRegisterEntity> entities) {
+		int count = 0;
+		if ( entities != null ) {
+			for ( ModbusRegisterEntity entity : entities ) {
+				if ( add(entity) ) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Persist all pending updates as a single batch.
+	 *
+	 * <p>
+	 * Flushes are serialized, so that batches are persisted in the order they
+	 * were taken from the buffer. If saving the batch fails, the updates are
+	 * returned to the buffer unless newer updates for the same registers have
+	 * been added in the meantime.
+	 * </p>
+	 *
+	 * @param dao
+	 *        the DAO to persist the updates with
+	 * @return the number of persisted updates
+	 * @throws RuntimeException
+	 *         if any error occurs saving the updates
+	 */
+	public int flush(ModbusRegisterDao dao) {
+		synchronized ( flushLock ) {
+			final List<ModbusRegisterEntity> batch;
+			synchronized ( this ) {
+				if ( pending.isEmpty() ) {
+					return 0;
+				}
+				batch = new ArrayList<>(pending.values());
+				pending.clear();
+			}
+			try {
+				return dao.saveAll(batch);
+			} catch ( RuntimeException e ) {
+				synchronized ( this ) {
+					for ( ModbusRegisterEntity entity : batch ) {
+						pending.putIfAbsent(entity.getId(), entity);
+					}
+				}
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Get the number of pending updates.
+	 *
+	 * @return the pending update count
+	 */
+	public synchronized int getPendingCount() {
+		return pending.size();
+	}
+
+}
@@ -0,0 +1,285 @@
+/* ==================================================================
+ * DatumFieldAccessPlanTests.java - 19/10/2026 8:42:17 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.io.protobuf.test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.PropertyAccessor;
+import org.springframework.beans.PropertyAccessorFactory;
+import net.solarnetwork.domain.datum.DatumSamplesType;
+import net.solarnetwork.node.domain.datum.SimpleDatum;
+import net.solarnetwork.node.io.protobuf.DatumFieldAccessPlan;
+import net.solarnetwork.node.io.protobuf.DatumFieldConfig;
+
+/**
+ * Test cases for the {@link DatumFieldAccessPlan} class.
+ *
+ * @author matt
+ * @version 1.0
+ */
+public class DatumFieldAccessPlanTests {
+
+	private static final Logger log = LoggerFactory.getLogger(DatumFieldAccessPlanTests.class);
+
+	/** A message-like class with a nested message. */
+	public static class TestLocation {
+
+		private final double lat;
+		private final double lon;
+
+		public TestLocation(double lat, double lon) {
+			super();
+			this.lat = lat;
+			this.lon = lon;
+		}
+
+		public double getLat() {
+			return lat;
+		}
+
+		public double getLon() {
+			return lon;
+		}
+
+	}
+
+	/** A message-like class. */
+	public static class TestMessage {
+
+		private final double voltage;
+		private final long energy;
+		private final boolean ok;
+		private final TestLocation location;
+		private final int[] phases;
+
+		public TestMessage(double voltage, long energy, boolean ok, TestLocation location,
+				int[] phases) {
+			super();
+			this.voltage = voltage;
+			this.energy = energy;
+			this.ok = ok;
+			this.location = location;
+			this.phases = phases;
+		}
+
+		public double getVoltage() {
+			return voltage;
+		}
+
+		public long getEnergy() {
+			return energy;
+		}
+
+		public boolean isOk() {
+			return ok;
+		}
+
+		public TestLocation getLocation() {
+			return location;
+		}
+
+		public int[] getPhases() {
+			return phases;
+		}
+
+	}
+
+	private DatumFieldConfig[] configs;
+
+	@Before
+	public void setup() {
+		configs = new DatumFieldConfig[] {
+				new DatumFieldConfig("volts", DatumSamplesType.Instantaneous, "voltage"),
+				new DatumFieldConfig("wattHours", DatumSamplesType.Accumulating, "energy"),
+				new DatumFieldConfig("ok", DatumSamplesType.Status, "ok"),
+				new DatumFieldConfig("lat", DatumSamplesType.Instantaneous, "location.lat"),
+				new DatumFieldConfig("lon", DatumSamplesType.Instantaneous, "location.lon"), };
+	}
+
+	private static TestMessage message(int i) {
+		return new TestMessage(230.0 + i, 1000L + i, true, new TestLocation(1.5, 2.5),
+				new int[] { 1, 2, 3 });
+	}
+
+	@Test
+	public void decode() {
+		// GIVEN
+		DatumFieldAccessPlan plan = DatumFieldAccessPlan.compile(configs)
+				.forMessageClass(TestMessage.class);
+
+		// WHEN
+		SimpleDatum d = plan.populateDatum(message(1));
+
+		// THEN
+		assertThat("Volts decoded", d.getSamples().getInstantaneousSampleDouble("volts"),
+				is(equalTo(231.0)));
+		assertThat("Watt hours decoded", d.getSamples().getAccumulatingSampleLong("wattHours"),
+				is(equalTo(1001L)));
+		assertThat("Status decoded", d.getSamples().getStatusSampleString("ok"),
+				is(equalTo("true")));
+		assertThat("Lat decoded from nested path",
+				d.getSamples().getInstantaneousSampleBigDecimal("lat"),
+				is(equalTo(new BigDecimal("1.5"))));
+		assertThat("Lon decoded from nested path",
+				d.getSamples().getInstantaneousSampleBigDecimal("lon"),
+				is(equalTo(new BigDecimal("2.5"))));
+	}
+
+	@Test
+	public void decode_nullNestedMessage() {
+		// GIVEN
+		DatumFieldAccessPlan plan = DatumFieldAccessPlan.compile(configs)
+				.forMessageClass(TestMessage.class);
+
+		// WHEN
+		SimpleDatum d = plan.populateDatum(new TestMessage(1.0, 2L, false, null, null));
+
+		// THEN
+		assertThat("Volts decoded", d.getSamples().getInstantaneousSampleDouble("volts"),
+				is(equalTo(1.0)));
+		assertThat("Lat skipped", d.getSamples().getInstantaneousSampleDouble("lat"),
+				is(nullValue()));
+	}
+
+	@Test
+	public void decode_indexedPathFallback() {
+		// GIVEN
+		DatumFieldConfig[] confs = new DatumFieldConfig[] {
+				new DatumFieldConfig("phaseB", DatumSamplesType.Instantaneous, "phases[1]"),
+				new DatumFieldConfig("nope", DatumSamplesType.Instantaneous, "missing"), };
+		DatumFieldAccessPlan plan = DatumFieldAccessPlan.compile(confs)
+				.forMessageClass(TestMessage.class);
+
+		// WHEN
+		SimpleDatum d = plan.populateDatum(message(1));
+
+		// THEN
+		assertThat("Indexed path decoded with bean access",
+				d.getSamples().getInstantaneousSampleInteger("phaseB"), is(equalTo(2)));
+		assertThat("Missing field skipped", d.getSamples().getInstantaneousSampleDouble("nope"),
+				is(nullValue()));
+	}
+
+	@Test
+	public void encode() {
+		// GIVEN
+		DatumFieldAccessPlan plan = DatumFieldAccessPlan.compile(configs);
+		Map<String, Object> data = new LinkedHashMap<>();
+		data.put("volts", 1.23);
+		data.put("lat", 2.34);
+		data.put("other", "ignored");
+
+		// WHEN
+		Map<String, Object> result = plan.fieldValues(data);
+
+		// THEN
+		Map<String, Object> expected = new LinkedHashMap<>();
+		expected.put("voltage", 1.23);
+		expected.put("location.lat", 2.34);
+		assertThat("Datum properties mapped to fields", result, is(equalTo(expected)));
+	}
+
+	@Test
+	public void matches() {
+		// GIVEN
+		DatumFieldAccessPlan plan = DatumFieldAccessPlan.compile(configs);
+		DatumFieldAccessPlan bound = plan.forMessageClass(TestMessage.class);
+
+		// WHEN
+		boolean before = bound.matches(configs);
+		configs[0].setFieldProperty("current");
+		boolean after = bound.matches(configs);
+
+		// THEN
+		assertThat("Same bound plan returned for same class",
+				bound.forMessageClass(TestMessage.class), is(sameInstance(bound)));
+		assertThat("Plan matches unchanged configuration", before, is(equalTo(true)));
+		assertThat("Plan does not match changed configuration", after, is(equalTo(false)));
+		assertThat("Plan does not match different configuration",
+				bound.matches(new DatumFieldConfig[0]), is(equalTo(false)));
+	}
+
+	private SimpleDatum decodeWithBeanAccess(Object msg) {
+		PropertyAccessor accessor = PropertyAccessorFactory.forBeanPropertyAccess(msg);
+		SimpleDatum result = SimpleDatum.nodeDatum(null);
+		for ( DatumFieldConfig conf : configs ) {
+			Object val = accessor.getPropertyValue(conf.getFieldProperty());
+			if ( val != null ) {
+				result.putSampleValue(conf.getPropertyType(), conf.getDatumProperty(), val);
+			}
+		}
+		return result;
+	}
+
+	@Test
+	public void throughput() {
+		// GIVEN
+		final int count = 20_000;
+		final TestMessage[] msgs = new TestMessage[count];
+		for ( int i = 0; i < count; i++ ) {
+			msgs[i] = message(i);
+		}
+		DatumFieldAccessPlan plan = DatumFieldAccessPlan.compile(configs)
+				.forMessageClass(TestMessage.class);
+
+		// warm up both paths
+		for ( int i = 0; i < 1000; i++ ) {
+			plan.populateDatum(msgs[i]);
+			decodeWithBeanAccess(msgs[i]);
+		}
+
+		// WHEN
+		SimpleDatum[] planResults = new SimpleDatum[count];
+		long start = System.nanoTime();
+		for ( int i = 0; i < count; i++ ) {
+			planResults[i] = plan.populateDatum(msgs[i]);
+		}
+		final long planNanos = System.nanoTime() - start;
+
+		SimpleDatum[] beanResults = new SimpleDatum[count];
+		start = System.nanoTime();
+		for ( int i = 0; i < count; i++ ) {
+			beanResults[i] = decodeWithBeanAccess(msgs[i]);
+		}
+		final long beanNanos = System.nanoTime() - start;
+
+		// THEN
+		log.info("Decoded {} messages: plan {}ms, bean access {}ms", count, planNanos / 1_000_000,
+				beanNanos / 1_000_000);
+		for ( int i = 0; i < count; i++ ) {
+			assertThat("Plan result same as bean access result " + i,
+					planResults[i].getSamples(), is(equalTo(beanResults[i].getSamples())));
+		}
+	}
+
+}
@@ -27,8 +27,12 @@ import static net.solarnetwork.node.io.protobuf.DatumProtobufObjectCodec.RESOURC
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.instanceOf;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.commons.codec.binary.Hex;
 import org.junit.Before;
 import org.junit.Test;
@@ -44,7 +48,7 @@ import net.solarnetwork.service.StaticOptionalService;
  * Test cases for the {@link DatumProtobufObjectCodec}.
  * 
  * @author matt
- * @version 2.0
+ * @version 2.1
  */
 public class DatumProtobufObjectCodecTests extends BaseProtocProtobufCompilerServiceTestSupport {
 
@@ -129,4 +133,35 @@ public class DatumProtobufObjectCodecTests extends BaseProtocProtobufCompilerSer
 				equalTo(123456L));
 	}
 
+	@Test
+	public void delimited_roundTrip() throws Exception {
+		// GIVEN
+		List<SimpleDatum> datum = new ArrayList<>();
+		for ( int i = 0; i < 3; i++ ) {
+			SimpleDatum d = SimpleDatum.nodeDatum(null);
+			d.getSamples().putInstantaneousSampleValue("volts", 1.234 + i);
+			d.getSamples().putAccumulatingSampleValue("wattHours", 123456 + i);
+			datum.add(d);
+		}
+
+		// WHEN
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int written = codec.encodeDelimited(datum, out, null);
+		List<Object> decoded = new ArrayList<>();
+		int read = codec.decodeDelimited(new ByteArrayInputStream(out.toByteArray()), null,
+				decoded::add);
+
+		// THEN
+		assertThat("Messages written", written, equalTo(3));
+		assertThat("Messages read", read, equalTo(3));
+		for ( int i = 0; i < 3; i++ ) {
+			assertThat("Data decoded", decoded.get(i), instanceOf(SimpleDatum.class));
+			SimpleDatum d = (SimpleDatum) decoded.get(i);
+			assertThat("Volts decoded", d.getSamples().getInstantaneousSampleBigDecimal("volts"),
+					equalTo(new BigDecimal("1.234").add(new BigDecimal(i))));
+			assertThat("wattHours decoded", d.getSamples().getAccumulatingSampleLong("wattHours"),
+					equalTo(123456L + i));
+		}
+	}
+
 }
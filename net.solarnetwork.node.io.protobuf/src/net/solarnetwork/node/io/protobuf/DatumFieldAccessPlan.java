@@ -0,0 +1,351 @@
+/* ==================================================================
+ * DatumFieldAccessPlan.java - 19/10/2026 8:04:52 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.io.protobuf;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.PropertyAccessor;
+import org.springframework.beans.PropertyAccessorFactory;
+import net.solarnetwork.domain.datum.DatumSamplesType;
+import net.solarnetwork.node.domain.datum.SimpleDatum;
+
+/**
+ * A pre-compiled mapping between datum properties and Protobuf message fields.
+ *
+ * <p>
+ * A plan is compiled once from a set of {@link DatumFieldConfig} and can then
+ * be used repeatedly to map datum properties to message fields, for encoding,
+ * and message fields to datum properties, for decoding. For decoding, the plan
+ * must first be bound to a message class with {@link #forMessageClass(Class)},
+ * which resolves each field path (for example {@code location.lat}) into a
+ * chain of {@link MethodHandle} getter calls. Field paths that cannot be
+ * resolved this way, such as indexed paths, fall back to Spring bean property
+ * access.
+ * </p>
+ *
+ * <p>
+ * A plan captures the configuration values at the time it is compiled. Use
+ * {@link #matches(DatumFieldConfig[])} to test if a plan is still valid for a
+ * given configuration. Instances of this class are immutable and thread safe.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 4.1
+ */
+public final class DatumFieldAccessPlan {
+
+	private static final Logger log = LoggerFactory.getLogger(DatumFieldAccessPlan.class);
+
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class,
+			Object.class);
+
+	private final DatumFieldConfig[] configs;
+	private final String[] configKeys;
+	private final DatumSamplesType[] configTypes;
+	private final String[] configFields;
+
+	private final String[] keys;
+	private final DatumSamplesType[] types;
+	private final String[] fields;
+
+	private final Class<?> messageClass;
+	private final MethodHandle[][] getters;
+	private final boolean fallback;
+
+	private DatumFieldAccessPlan(DatumFieldConfig[] configs, String[] configKeys,
+			DatumSamplesType[] configTypes, String[] configFields, String[] keys,
+			DatumSamplesType[] types, String[] fields, Class<?> messageClass,
+			MethodHandle[][] getters) {
+		super();
+		this.configs = configs;
+		this.configKeys = configKeys;
+		this.configTypes = configTypes;
+		this.configFields = configFields;
+		this.keys = keys;
+		this.types = types;
+		this.fields = fields;
+		this.messageClass = messageClass;
+		this.getters = getters;
+		boolean f = false;
+		if ( getters != null ) {
+			for ( MethodHandle[] chain : getters ) {
+				if ( chain == null ) {
+					f = true;
+					break;
+				}
+			}
+		}
+		this.fallback = f;
+	}
+
+	/**
+	 * Compile a plan from a set of field configurations.
+	 *
+	 * <p>
+	 * Configurations without both a datum property and field property are
+	 * ignored.
+	 * </p>
+	 *
+	 * @param configs
+	 *        the configurations
+	 * @return the plan, never {@literal null}
+	 */
+	public static DatumFieldAccessPlan compile(DatumFieldConfig[] configs) {
+		final int len = (configs != null ? configs.length : 0);
+		final String[] configKeys = new String[len];
+		final DatumSamplesType[] configTypes = new DatumSamplesType[len];
+		final String[] configFields = new String[len];
+		final List<Integer> valid = new ArrayList<>(len);
+		for ( int i = 0; i < len; i++ ) {
+			DatumFieldConfig conf = configs[i];
+			if ( conf == null ) {
+				continue;
+			}
+			configKeys[i] = conf.getDatumProperty();
+			configTypes[i] = conf.getPropertyType();
+			configFields[i] = conf.getFieldProperty();
+			if ( configKeys[i] == null || configKeys[i].isEmpty() || configFields[i] == null
+					|| configFields[i].isEmpty() ) {
+				continue;
+			}
+			valid.add(i);
+		}
+		final int count = valid.size();
+		final String[] keys = new String[count];
+		final DatumSamplesType[] types = new DatumSamplesType[count];
+		final String[] fields = new String[count];
+		for ( int i = 0; i < count; i++ ) {
+			int idx = valid.get(i);
+			keys[i] = configKeys[idx];
+			types[i] = configTypes[idx];
+			fields[i] = configFields[idx];
+		}
+		return new DatumFieldAccessPlan(configs, configKeys, configTypes, configFields, keys, types,
+				fields, null, null);
+	}
+
+	/**
+	 * Get a plan bound to a specific message class, for decoding.
+	 *
+	 * @param messageClass
+	 *        the message class
+	 * @return the bound plan, which will be this instance if already bound to
+	 *         {@code messageClass}
+	 */
+	public DatumFieldAccessPlan forMessageClass(Class<?> messageClass) {
+		if ( this.messageClass == messageClass ) {
+			return this;
+		}
+		final MethodHandle[][] chains = new MethodHandle[fields.length][];
+		for ( int i = 0; i < fields.length; i++ ) {
+			chains[i] = getterChain(messageClass, fields[i]);
+			if ( chains[i] == null ) {
+				log.debug("Using bean property access for Protobuf message {} field {}",
+						messageClass.getName(), fields[i]);
+			}
+		}
+		return new DatumFieldAccessPlan(configs, configKeys, configTypes, configFields, keys, types,
+				fields, messageClass, chains);
+	}
+
+	private static MethodHandle[] getterChain(Class<?> clazz, String path) {
+		if ( path.indexOf('[') >= 0 ) {
+			return null;
+		}
+		final String[] names = path.split("\\.");
+		final MethodHandle[] chain = new MethodHandle[names.length];
+		final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+		Class<?> c = clazz;
+		for ( int i = 0; i < names.length; i++ ) {
+			Method m = getter(c, names[i]);
+			if ( m == null ) {
+				return null;
+			}
+			try {
+				chain[i] = lookup.unreflect(m).asType(GETTER_TYPE);
+			} catch ( IllegalAccessException e ) {
+				return null;
+			}
+			c = m.getReturnType();
+		}
+		return chain;
+	}
+
+	private static Method getter(Class<?> clazz, String name) {
+		if ( name.isEmpty() || !Modifier.isPublic(clazz.getModifiers()) ) {
+			return null;
+		}
+		final String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+		for ( String prefix : new String[] { "get", "is" } ) {
+			try {
+				Method m = clazz.getMethod(prefix + suffix);
+				if ( m.getReturnType() != void.class && !Modifier.isStatic(m.getModifiers()) ) {
+					return m;
+				}
+			} catch ( NoSuchMethodException e ) {
+				// try next
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Test if this plan was compiled from configurations equal to a given set.
+	 *
+	 * @param configs
+	 *        the configurations to compare
+	 * @return {@literal true} if {@code configs} has the same values as those
+	 *         used to compile this plan
+	 */
+	public boolean matches(DatumFieldConfig[] configs) {
+		if ( configs != this.configs ) {
+			return false;
+		}
+		final int len = (configs != null ? configs.length : 0);
+		for ( int i = 0; i < len; i++ ) {
+			DatumFieldConfig conf = configs[i];
+			if ( conf == null ) {
+				if ( configKeys[i] != null || configTypes[i] != null || configFields[i] != null ) {
+					return false;
+				}
+				continue;
+			}
+			if ( !(Objects.equals(configKeys[i], conf.getDatumProperty())
+					&& configTypes[i] == conf.getPropertyType()
+					&& Objects.equals(configFields[i], conf.getFieldProperty())) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Test if this plan has no usable field mappings.
+	 *
+	 * @return {@literal true} if there are no field mappings
+	 */
+	public boolean isEmpty() {
+		return fields.length < 1;
+	}
+
+	/**
+	 * Get the message class this plan is bound to.
+	 *
+	 * @return the message class, or {@literal null} if not bound
+	 */
+	public Class<?> getMessageClass() {
+		return messageClass;
+	}
+
+	/**
+	 * Map datum property values to message field values.
+	 *
+	 * @param data
+	 *        the datum property values
+	 * @return the message field values, or {@literal null} if none available
+	 */
+	public Map<String, Object> fieldValues(Map<String, ?> data) {
+		if ( data == null || fields.length < 1 ) {
+			return null;
+		}
+		Map<String, Object> result = new LinkedHashMap<>(fields.length);
+		for ( int i = 0; i < fields.length; i++ ) {
+			Object val = data.get(keys[i]);
+			if ( val != null ) {
+				result.put(fields[i], val);
+			}
+		}
+		return (result.isEmpty() ? null : result);
+	}
+
+	/**
+	 * Populate a new datum from message field values.
+	 *
+	 * @param message
+	 *        the message to read
+	 * @return the datum, never {@literal null}
+	 * @throws IllegalStateException
+	 *         if this plan is not bound to the class of {@code message}
+	 */
+	public SimpleDatum populateDatum(Object message) {
+		if ( message == null || message.getClass() != messageClass ) {
+			throw new IllegalStateException("Plan not bound to message class "
+					+ (message != null ? message.getClass().getName() : null));
+		}
+		final SimpleDatum result = SimpleDatum.nodeDatum(null);
+		PropertyAccessor accessor = null;
+		for ( int i = 0; i < fields.length; i++ ) {
+			Object val = null;
+			final MethodHandle[] chain = getters[i];
+			if ( chain != null ) {
+				val = invokeChain(chain, message, i);
+			} else if ( fallback ) {
+				if ( accessor == null ) {
+					accessor = PropertyAccessorFactory.forBeanPropertyAccess(message);
+				}
+				try {
+					val = accessor.getPropertyValue(fields[i]);
+				} catch ( BeansException e ) {
+					log.debug("Error reading Protobuf message {} field {}: {}",
+							messageClass.getName(), fields[i], e.getMessage());
+				}
+			}
+			if ( val != null ) {
+				result.putSampleValue(types[i], keys[i], val);
+			}
+		}
+		return result;
+	}
+
+	private Object invokeChain(MethodHandle[] chain, Object message, int fieldIdx) {
+		Object val = message;
+		try {
+			for ( MethodHandle mh : chain ) {
+				val = (Object) mh.invokeExact(val);
+				if ( val == null ) {
+					break;
+				}
+			}
+		} catch ( Error e ) {
+			throw e;
+		} catch ( Throwable t ) {
+			log.debug("Error reading Protobuf message {} field {}: {}", messageClass.getName(),
+					fields[fieldIdx], t.getMessage());
+			val = null;
+		}
+		return val;
+	}
+
+}
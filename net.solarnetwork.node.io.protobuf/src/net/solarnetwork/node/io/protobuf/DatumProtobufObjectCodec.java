@@ -24,7 +24,9 @@ package net.solarnetwork.node.io.protobuf;
 
 import static java.lang.String.format;
 import static java.util.Arrays.asList;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -33,21 +35,17 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
-import org.springframework.beans.BeansException;
-import org.springframework.beans.PropertyAccessor;
-import org.springframework.beans.PropertyAccessorFactory;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.util.FileCopyUtils;
 import net.solarnetwork.common.protobuf.ProtobufCompilerService;
 import net.solarnetwork.common.protobuf.ProtobufMessagePopulator;
 import net.solarnetwork.domain.datum.Datum;
-import net.solarnetwork.domain.datum.DatumSamplesType;
 import net.solarnetwork.node.domain.datum.SimpleDatum;
 import net.solarnetwork.node.service.support.BaseIdentifiable;
 import net.solarnetwork.node.settings.SettingResourceHandler;
@@ -81,8 +79,16 @@ import net.solarnetwork.util.ArrayUtils;
  * {@link net.solarnetwork.node.domain.datum.SimpleDatum} instance.
  * </p>
  *
+ * <p>
+ * The property configurations are compiled into a {@link DatumFieldAccessPlan}
+ * that is reused for every message, until the configuration or message class
+ * changes. Batches of length-delimited messages can be encoded and decoded
+ * with {@link #encodeDelimited(Iterable, OutputStream, Map)} and
+ * {@link #decodeDelimited(InputStream, Map, Consumer)}.
+ * </p>
+ *
  * @author matt
- * @version 2.1
+ * @version 2.2
  */
 public class DatumProtobufObjectCodec extends net.solarnetwork.common.protobuf.ProtobufObjectCodec
 		implements SettingSpecifierProvider, SettingResourceHandler {
@@ -96,9 +102,18 @@ public class DatumProtobufObjectCodec extends net.solarnetwork.common.protobuf.P
 	/** The setting resource key for proto files. */
 	public static final String RESOURCE_KEY_PROTO_FILES = "protoFiles";
 
+	/**
+	 * The maximum length of a single message read by
+	 * {@link #decodeDelimited(InputStream, Map, Consumer)}.
+	 *
+	 * @since 2.2
+	 */
+	public static final int MAX_DELIMITED_MESSAGE_LENGTH = 1024 * 1024;
+
 	private Path protoDir = Paths.get(DEFAULT_PROTO_DIR);
 	private String[] protoFileNames;
 	private DatumFieldConfig[] propConfigs;
+	private volatile DatumFieldAccessPlan plan;
 
 	/**
 	 * Constructor.
@@ -109,27 +124,39 @@ public class DatumProtobufObjectCodec extends net.solarnetwork.common.protobuf.P
 
 	@Override
 	protected Map<String, ?> convertToMap(Object obj, Map<String, ?> parameters) {
-		DatumFieldConfig[] confs = getPropConfigs();
-		if ( confs == null || confs.length < 1 ) {
+		final DatumFieldAccessPlan p = plan(null);
+		if ( p.isEmpty() ) {
 			return null;
 		}
 		Map<String, ?> data = dataForObject(obj);
 		if ( data == null ) {
 			return null;
 		}
-		Map<String, Object> result = new LinkedHashMap<>(confs.length);
-		for ( DatumFieldConfig conf : confs ) {
-			String key = conf.getDatumProperty();
-			String field = conf.getFieldProperty();
-			if ( key == null || key.isEmpty() || field == null || field.isEmpty() ) {
-				continue;
-			}
-			Object val = data.get(key);
-			if ( val != null ) {
-				result.put(field, val);
-			}
+		return p.fieldValues(data);
+	}
+
+	/**
+	 * Get the access plan for the current property configurations.
+	 *
+	 * @param messageClass
+	 *        the message class to bind the plan to, or {@literal null} if no
+	 *        binding is needed
+	 * @return the plan, never {@literal null}
+	 */
+	private DatumFieldAccessPlan plan(Class<?> messageClass) {
+		final DatumFieldConfig[] confs = getPropConfigs();
+		DatumFieldAccessPlan p = this.plan;
+		DatumFieldAccessPlan result = p;
+		if ( result == null || !result.matches(confs) ) {
+			result = DatumFieldAccessPlan.compile(confs);
+		}
+		if ( messageClass != null ) {
+			result = result.forMessageClass(messageClass);
+		}
+		if ( result != p ) {
+			this.plan = result;
 		}
-		return (result.isEmpty() ? null : result);
+		return result;
 	}
 
 	@Override
@@ -144,25 +171,7 @@ public class DatumProtobufObjectCodec extends net.solarnetwork.common.protobuf.P
 					getMessageClassName()));
 		}
 		Object msg = super.decodeFromBytes(data, parameters);
-		PropertyAccessor accessor = PropertyAccessorFactory.forBeanPropertyAccess(msg);
-		SimpleDatum result = SimpleDatum.nodeDatum(null);
-		for ( DatumFieldConfig conf : confs ) {
-			String key = conf.getDatumProperty();
-			DatumSamplesType type = conf.getPropertyType();
-			String field = conf.getFieldProperty();
-			if ( key == null || key.isEmpty() || field == null || field.isEmpty() ) {
-				continue;
-			}
-			try {
-				Object val = accessor.getPropertyValue(field);
-				if ( val != null ) {
-					result.putSampleValue(type, key, val);
-				}
-			} catch ( BeansException e ) {
-				log.debug("Error reading Protobuf message {} field {}: {}", className, field,
-						e.getMessage());
-			}
-		}
+		SimpleDatum result = plan(msg.getClass()).populateDatum(msg);
 		if ( result.getSamples() == null || result.getSamples().isEmpty() ) {
 			throw new IOException(
 					format("No datum properties populated from Protobuf message %s", className));
@@ -170,6 +179,115 @@ public class DatumProtobufObjectCodec extends net.solarnetwork.common.protobuf.P
 		return result;
 	}
 
+	/**
+	 * Encode a batch of objects as length-delimited messages.
+	 *
+	 * <p>
+	 * Each message is written as a varint-encoded length followed by the
+	 * message bytes, the same format as the Protobuf
+	 * {@code writeDelimitedTo()} method.
+	 * </p>
+	 *
+	 * @param objects
+	 *        the objects to encode
+	 * @param out
+	 *        the stream to write to
+	 * @param parameters
+	 *        optional encoding parameters
+	 * @return the number of messages written
+	 * @throws IOException
+	 *         if any encoding or I/O error occurs
+	 * @since 2.2
+	 */
+	public int encodeDelimited(Iterable<?> objects, OutputStream out, Map<String, ?> parameters)
+			throws IOException {
+		if ( objects == null ) {
+			return 0;
+		}
+		int count = 0;
+		for ( Object obj : objects ) {
+			byte[] data = encodeAsBytes(obj, parameters);
+			writeVarint(out, data.length);
+			out.write(data);
+			count++;
+		}
+		out.flush();
+		return count;
+	}
+
+	/**
+	 * Decode a stream of length-delimited messages.
+	 *
+	 * <p>
+	 * Messages are read until the end of the stream, in the format written by
+	 * {@link #encodeDelimited(Iterable, OutputStream, Map)}. Each decoded datum
+	 * is passed to {@code consumer} as soon as it is read.
+	 * </p>
+	 *
+	 * @param in
+	 *        the stream to read from
+	 * @param parameters
+	 *        optional decoding parameters
+	 * @param consumer
+	 *        the consumer of decoded datum
+	 * @return the number of messages decoded
+	 * @throws IOException
+	 *         if any decoding or I/O error occurs, or a message length is
+	 *         greater than {@link #MAX_DELIMITED_MESSAGE_LENGTH}
+	 * @since 2.2
+	 */
+	public int decodeDelimited(InputStream in, Map<String, ?> parameters,
+			Consumer<Object> consumer) throws IOException {
+		int count = 0;
+		int len;
+		while ( (len = readVarint(in)) >= 0 ) {
+			if ( len > MAX_DELIMITED_MESSAGE_LENGTH ) {
+				throw new IOException(format("Delimited %s message length %d exceeds maximum %d.",
+						getMessageClassName(), len, MAX_DELIMITED_MESSAGE_LENGTH));
+			}
+			byte[] data = in.readNBytes(len);
+			if ( data.length < len ) {
+				throw new EOFException(format("Truncated delimited %s message: expected %d bytes.",
+						getMessageClassName(), len));
+			}
+			Object result = decodeFromBytes(data, parameters);
+			if ( consumer != null ) {
+				consumer.accept(result);
+			}
+			count++;
+		}
+		return count;
+	}
+
+	private static void writeVarint(OutputStream out, int value) throws IOException {
+		while ( (value & ~0x7F) != 0 ) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static int readVarint(InputStream in) throws IOException {
+		int result = 0;
+		for ( int shift = 0; shift < 32; shift += 7 ) {
+			int b = in.read();
+			if ( b < 0 ) {
+				if ( shift == 0 ) {
+					return -1;
+				}
+				throw new EOFException("Truncated delimited message length.");
+			}
+			result |= (b & 0x7F) << shift;
+			if ( (b & 0x80) == 0 ) {
+				if ( result < 0 ) {
+					throw new IOException("Invalid delimited message length.");
+				}
+				return result;
+			}
+		}
+		throw new IOException("Invalid delimited message length.");
+	}
+
 	@SuppressWarnings("unchecked")
 	private Map<String, ?> dataForObject(Object obj) {
 		if ( obj instanceof Map ) {
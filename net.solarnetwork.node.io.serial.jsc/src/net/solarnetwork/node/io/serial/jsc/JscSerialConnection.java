@@ -23,7 +23,6 @@
 package net.solarnetwork.node.io.serial.jsc;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -34,17 +33,28 @@ import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.fazecast.jSerialComm.SerialPort;
+import com.fazecast.jSerialComm.SerialPortDataListener;
+import com.fazecast.jSerialComm.SerialPortEvent;
 import net.solarnetwork.node.io.serial.SerialConnection;
+import net.solarnetwork.node.io.serial.support.FixedLengthSerialFrameDecoder;
+import net.solarnetwork.node.io.serial.support.MarkedSerialFrameDecoder;
+import net.solarnetwork.node.io.serial.support.SerialFrameDecoder;
+import net.solarnetwork.node.io.serial.support.SerialFrameReader;
 import net.solarnetwork.node.service.LockTimeoutException;
 import net.solarnetwork.node.service.support.SerialPortBeanParameters;
-import net.solarnetwork.util.ByteList;
 import net.solarnetwork.util.ObjectUtils;
 
 /**
- * PureJavaComm implementation of {@link SerialConnection}.
+ * jSerialComm implementation of {@link SerialConnection}.
+ * 
+ * <p>
+ * Received data is delivered by a serial port data listener into a
+ * {@link SerialFrameReader}, from which messages are decoded without polling
+ * the port.
+ * </p>
  * 
  * @author matt
- * @version 1.0
+ * @version 1.1
  */
 public class JscSerialConnection implements SerialConnection {
 
@@ -57,9 +67,9 @@ public class JscSerialConnection implements SerialConnection {
 
 	private final SerialPortBeanParameters serialParams;
 	private final ExecutorService executor;
+	private final SerialFrameReader frameReader;
 
 	private SerialPort serialPort;
-	private InputStream in;
 	private OutputStream out;
 
 	/**
@@ -74,6 +84,7 @@ public class JscSerialConnection implements SerialConnection {
 		super();
 		this.serialParams = ObjectUtils.requireNonNullArgument(serialParams, "serialParams");
 		this.executor = ObjectUtils.requireNonNullArgument(executor, "executor");
+		this.frameReader = new SerialFrameReader(serialParams.getFrameBufferSize());
 	}
 
 	@Override
@@ -91,6 +102,8 @@ public class JscSerialConnection implements SerialConnection {
 					throw new IOException(
 							"Serial port " + serialParams.getSerialPort() + " failed to open");
 				}
+				frameReader.clear();
+				serialPort.addDataListener(new DataReceivedListener());
 			} catch ( RuntimeException e ) {
 				try {
 					close();
@@ -140,16 +153,7 @@ public class JscSerialConnection implements SerialConnection {
 			return;
 		}
 		try {
-			if ( in != null ) {
-				log.debug("Closing serial port {} InputStream", this.serialPort);
-				try {
-					in.close();
-				} catch ( IOException e ) {
-					// ignore this
-					log.warn("Exception closing serial port {} input stream: {}", this.serialPort,
-							e.getMessage());
-				}
-			}
+			serialPort.removeDataListener();
 			if ( out != null ) {
 				log.debug("Closing serial port {} OutputStream", this.serialPort);
 				try {
@@ -164,76 +168,47 @@ public class JscSerialConnection implements SerialConnection {
 			serialPort.closePort();
 			log.trace("Serial port {} closed", this.serialPort);
 		} finally {
-			in = null;
 			out = null;
 			serialPort = null;
+			frameReader.clear();
 		}
 	}
 
 	@Override
 	public byte[] readMarkedMessage(final byte[] startMarker, final int length) throws IOException {
-		final ByteList sink = new ByteList(startMarker.length + length);
-		final byte[] buf = new byte[64];
-		boolean result = false;
-		if ( serialParams.getMaxWait() < 1 ) {
-			do {
-				result = readMarkedMessage(getInputStream(), sink, buf, startMarker, length);
-			} while ( !result );
-			return sink.toArrayValue();
-		}
-		AbortableCallable<Boolean> task = new AbortableCallable<Boolean>() {
-
-			private boolean keepGoing = true;
-
-			@Override
-			public Boolean call() throws Exception {
-				boolean found = false;
-				do {
-					found = readMarkedMessage(getInputStream(), sink, buf, startMarker, length);
-				} while ( !found && keepGoing );
-				return found;
-			}
-
-			@Override
-			public void abort() {
-				keepGoing = false;
-			}
+		return readFrame(new FixedLengthSerialFrameDecoder(startMarker, length));
+	}
 
-		};
-		result = performIOTaskWithMaxWait(task);
-		return (result ? sink.toArrayValue() : null);
+	@Override
+	public byte[] readMarkedMessage(final byte[] startMarker, final byte[] endMarker)
+			throws IOException {
+		return readFrame(new MarkedSerialFrameDecoder(startMarker, endMarker));
 	}
 
-	private boolean readMarkedMessage(final InputStream in, final ByteList sink, final byte[] buf,
-			final byte[] startMarker, final int length) throws IOException {
-		boolean lookingForEndMarker = (sink.size() > startMarker.length);
-		int max = (lookingForEndMarker ? length - sink.size() : startMarker.length);
-		if ( eventLog.isTraceEnabled() ) {
-			eventLog.trace("Sink contains {} bytes: {}", sink.size(),
-					asciiDebugValue(sink.toArrayValue()));
+	private byte[] readFrame(final SerialFrameDecoder decoder) throws IOException {
+		if ( !isOpen() ) {
+			open();
 		}
-		int len = -1;
-		eventLog.trace("Attempting to read up to {} bytes from serial port", max);
-		while ( max > 0 && (len = in.read(buf, 0, max > buf.length ? buf.length : max)) > 0 ) {
-			sink.add(buf, 0, len);
-			if ( lookingForEndMarker == false ) {
-				int foundMarkerByteCount = findMarkerBytes(sink, len, startMarker, false);
-				if ( foundMarkerByteCount == startMarker.length ) {
-					lookingForEndMarker = true;
-				}
-			}
-			if ( lookingForEndMarker ) {
-				if ( sink.size() == length ) {
-					return true;
-				}
-				max = (length - sink.size());
-				if ( eventLog.isDebugEnabled() ) {
-					eventLog.debug("Looking for {} more message bytes, buffer: {}", max,
-							asciiDebugValue(sink.toArrayValue()));
-				}
-			}
+		final long maxMs = serialParams.getMaxWait();
+		if ( maxMs > 0 ) {
+			eventLog.trace("Waiting at most {}ms for data", maxMs);
+		}
+		final byte[] result;
+		try {
+			result = frameReader.awaitFrame(decoder, maxMs, TimeUnit.MILLISECONDS);
+		} catch ( InterruptedException e ) {
+			log.debug("Interrupted communicating with serial port", e);
+			throw new IOException("Interrupted communicating with serial port", e);
 		}
-		return false;
+		if ( result == null ) {
+			log.warn("Timeout waiting {}ms for serial data, aborting operation", maxMs);
+			throw new LockTimeoutException(
+					"Timeout waiting " + serialParams.getMaxWait() + "ms for serial data");
+		}
+		if ( eventLog.isDebugEnabled() ) {
+			eventLog.debug("Read message: {}", asciiDebugValue(result));
+		}
+		return result;
 	}
 
 	@Override
@@ -259,88 +234,14 @@ public class JscSerialConnection implements SerialConnection {
 
 	@Override
 	public byte[] drainInputBuffer() throws IOException {
-		InputStream in = getInputStream();
-		int avail = in.available();
-		if ( avail < 1 ) {
-			return new byte[0];
-		}
-		eventLog.trace("Attempting to drain {} bytes from serial port", avail);
-		byte[] result = new byte[avail];
-		int count = 0;
-		while ( count < result.length ) {
-			count += in.read(result, count, result.length - count);
+		if ( !isOpen() ) {
+			open();
 		}
+		byte[] result = frameReader.drain();
 		eventLog.trace("Drained {} bytes from serial port", result.length);
 		return result;
 	}
 
-	@Override
-	public byte[] readMarkedMessage(final byte[] startMarker, final byte[] endMarker)
-			throws IOException {
-		final ByteList sink = new ByteList(1024);
-		final byte[] buf = new byte[64];
-		boolean result = false;
-		if ( serialParams.getMaxWait() < 1 ) {
-			do {
-				result = readMarkedMessage(getInputStream(), sink, buf, startMarker, endMarker);
-			} while ( !result );
-			return sink.toArrayValue();
-		}
-
-		AbortableCallable<Boolean> task = new AbortableCallable<Boolean>() {
-
-			private boolean keepGoing = true;
-
-			@Override
-			public Boolean call() throws Exception {
-				boolean found = false;
-				do {
-					found = readMarkedMessage(getInputStream(), sink, buf, startMarker, endMarker);
-				} while ( !found && keepGoing );
-				return found;
-			}
-
-			@Override
-			public void abort() {
-				keepGoing = false;
-			}
-
-		};
-		result = performIOTaskWithMaxWait(task);
-		return (result ? sink.toArrayValue() : null);
-	}
-
-	private boolean readMarkedMessage(final InputStream in, final ByteList sink, final byte[] buf,
-			final byte[] startMarker, final byte[] endMarker) throws IOException {
-		boolean lookingForEndMarker = (sink.size() > startMarker.length);
-		int max = (lookingForEndMarker ? endMarker.length : startMarker.length);
-		if ( eventLog.isTraceEnabled() ) {
-			eventLog.trace("Sink contains {} bytes: {}", sink.size(),
-					asciiDebugValue(sink.toArrayValue()));
-		}
-		int len = -1;
-		eventLog.trace("Attempting to read up to {} bytes from serial port", max);
-		while ( max > 0 && (len = in.read(buf, 0, max > buf.length ? buf.length : max)) > 0 ) {
-			sink.add(buf, 0, len);
-			int foundMarkerByteCount = findMarkerBytes(sink, len,
-					(lookingForEndMarker ? endMarker : startMarker), lookingForEndMarker);
-			if ( lookingForEndMarker == false && foundMarkerByteCount == startMarker.length ) {
-				lookingForEndMarker = true;
-				// immediately look for end marker, might already be in the buffer
-				foundMarkerByteCount = findMarkerBytes(sink, startMarker.length, endMarker, true);
-			}
-			if ( lookingForEndMarker && foundMarkerByteCount == endMarker.length ) {
-				return true;
-			}
-		}
-		if ( eventLog.isTraceEnabled() ) {
-			eventLog.debug("Looking for marker {}, buffer: {}",
-					(lookingForEndMarker ? asciiDebugValue(endMarker) : asciiDebugValue(startMarker)),
-					asciiDebugValue(sink.toArrayValue()));
-		}
-		return false;
-	}
-
 	private <T> T performIOTaskWithMaxWait(AbortableCallable<T> task) throws IOException {
 		T result = null;
 		Future<T> future = executor.submit(task);
@@ -365,17 +266,6 @@ public class JscSerialConnection implements SerialConnection {
 		return result;
 	}
 
-	private InputStream getInputStream() throws IOException {
-		if ( in != null ) {
-			return in;
-		}
-		if ( !isOpen() ) {
-			open();
-		}
-		in = serialPort.getInputStream();
-		return in;
-	}
-
 	private OutputStream getOutputStream() throws IOException {
 		if ( out != null ) {
 			return out;
@@ -387,57 +277,6 @@ public class JscSerialConnection implements SerialConnection {
 		return out;
 	}
 
-	private int findMarkerBytes(final ByteList sink, final int appendedLength, final byte[] marker,
-			final boolean end) {
-		//final byte[] sinkBuf = sink.toArray();
-		final int sinkBufLength = sink.size();
-		int markerIdx = Math.max(0, sinkBufLength - appendedLength - marker.length);
-		boolean foundMarker = false;
-		int j = 0;
-
-		if ( eventLog.isTraceEnabled() ) {
-			eventLog.trace("Looking for {} marker bytes {} in buffer {}", new Object[] { marker.length,
-					asciiDebugValue(marker), asciiDebugValue(sink.toArrayValue()) });
-		}
-		for ( ; markerIdx < sinkBufLength; markerIdx++ ) {
-			foundMarker = true;
-			for ( j = 0; j < marker.length && (j + markerIdx) < sinkBufLength; j++ ) {
-				if ( sink.getValue(markerIdx + j) != marker[j] ) {
-					foundMarker = false;
-					break;
-				}
-			}
-			if ( foundMarker ) {
-				break;
-			}
-		}
-		// we may have only found a partial match at the end of the buffer, so test j here
-		if ( foundMarker && j == marker.length ) {
-			if ( eventLog.isDebugEnabled() ) {
-				eventLog.debug("Found desired {} marker bytes at index {}", asciiDebugValue(marker),
-						markerIdx);
-			}
-			if ( end ) {
-				sink.remove(markerIdx + marker.length, sink.size() - markerIdx - marker.length);
-			} else {
-				// shift bytes to start at marker
-				sink.remove(0, markerIdx);
-			}
-			if ( eventLog.isDebugEnabled() ) {
-				eventLog.debug("Buffer message at marker: {}", asciiDebugValue(sink.toArrayValue()));
-			}
-			return marker.length;
-		} else if ( !end ) {
-			// truncate sink to any partial match
-			if ( j > 0 ) {
-				sink.remove(0, markerIdx);
-			} else {
-				sink.clear();
-			}
-		}
-		return j;
-	}
-
 	private String asciiDebugValue(byte[] data) {
 		if ( data == null || data.length < 1 ) {
 			return "";
@@ -455,6 +294,44 @@ public class JscSerialConnection implements SerialConnection {
 		return buf.toString();
 	}
 
+	private class DataReceivedListener implements SerialPortDataListener {
+
+		@Override
+		public int getListeningEvents() {
+			return SerialPort.LISTENING_EVENT_DATA_RECEIVED;
+		}
+
+		@Override
+		public void serialEvent(SerialPortEvent event) {
+			final byte[] data = event.getReceivedData();
+			if ( data == null || data.length < 1 ) {
+				return;
+			}
+			if ( eventLog.isTraceEnabled() ) {
+				eventLog.trace("Received {} bytes from serial port: {}", data.length,
+						asciiDebugValue(data));
+			}
+			frameReader.bytesReceived(data, 0, data.length);
+		}
+
+	}
+
+	/**
+	 * Get the frame reader that received data is delivered to.
+	 * 
+	 * <p>
+	 * Frame listeners can be added to this reader, along with a decoder, to
+	 * receive decoded frames as they arrive instead of calling the
+	 * {@code readMarkedMessage()} methods.
+	 * </p>
+	 * 
+	 * @return the frame reader, never {@literal null}
+	 * @since 1.1
+	 */
+	public SerialFrameReader getFrameReader() {
+		return frameReader;
+	}
+
 	/**
 	 * Get the serial port.
 	 * 
@@ -0,0 +1,220 @@
+/* ==================================================================
+ * SerialFrameDecoderTests.java - 19/10/2026 7:12:44 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.io.serial.support.test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import net.solarnetwork.node.io.serial.support.FixedLengthSerialFrameDecoder;
+import net.solarnetwork.node.io.serial.support.LengthPrefixedSerialFrameDecoder;
+import net.solarnetwork.node.io.serial.support.MarkedSerialFrameDecoder;
+import net.solarnetwork.node.io.serial.support.SerialByteRing;
+import net.solarnetwork.node.io.serial.support.SerialFrameDecoder;
+
+/**
+ * Test cases for the {@link SerialFrameDecoder} implementations.
+ *
+ * @author matt
+ * @version 1.0
+ */
+public class SerialFrameDecoderTests {
+
+	private static byte[] bytes(String s) {
+		return s.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private static void write(SerialByteRing ring, String s) {
+		byte[] b = bytes(s);
+		ring.write(b, 0, b.length);
+	}
+
+	private static String string(byte[] b) {
+		return (b != null ? new String(b, StandardCharsets.US_ASCII) : null);
+	}
+
+	@Test
+	public void ring_wrap() {
+		// GIVEN
+		SerialByteRing ring = new SerialByteRing(8);
+		write(ring, "abcdef");
+		ring.skip(4);
+
+		// WHEN
+		write(ring, "ghijkl");
+
+		// THEN
+		assertThat("Size includes wrapped bytes", ring.size(), is(equalTo(8)));
+		assertThat("Bytes read in order across wrap", string(ring.take(8)),
+				is(equalTo("efghijkl")));
+	}
+
+	@Test
+	public void ring_overflow() {
+		// GIVEN
+		SerialByteRing ring = new SerialByteRing(4);
+		write(ring, "abc");
+
+		// WHEN
+		byte[] b = bytes("defgh");
+		int discarded = ring.write(b, 0, b.length);
+
+		// THEN
+		assertThat("Oldest bytes discarded", discarded, is(equalTo(4)));
+		assertThat("Most recent bytes kept", string(ring.take(4)), is(equalTo("efgh")));
+	}
+
+	@Test
+	public void marked_partial() {
+		// GIVEN
+		SerialFrameDecoder decoder = new MarkedSerialFrameDecoder(bytes("<m>"), bytes("</m>"));
+		SerialByteRing ring = new SerialByteRing(64);
+
+		// WHEN
+		write(ring, "junk<m>hel");
+		byte[] first = decoder.decode(ring);
+		write(ring, "lo</");
+		byte[] second = decoder.decode(ring);
+		write(ring, "m>more");
+		byte[] third = decoder.decode(ring);
+
+		// THEN
+		assertThat("No frame before end marker", first, is(nullValue()));
+		assertThat("No frame before complete end marker", second, is(nullValue()));
+		assertThat("Frame decoded with markers", string(third), is(equalTo("<m>hello</m>")));
+		assertThat("Trailing bytes left in buffer", ring.size(), is(equalTo(4)));
+	}
+
+	@Test
+	public void marked_partialStartMarkerKept() {
+		// GIVEN
+		SerialFrameDecoder decoder = new MarkedSerialFrameDecoder(bytes("<m>"), bytes("</m>"));
+		SerialByteRing ring = new SerialByteRing(64);
+
+		// WHEN
+		write(ring, "junk<");
+		byte[] first = decoder.decode(ring);
+		write(ring, "m>x</m>");
+		byte[] second = decoder.decode(ring);
+
+		// THEN
+		assertThat("No frame without start marker", first, is(nullValue()));
+		assertThat("Frame decoded from split start marker", string(second),
+				is(equalTo("<m>x</m>")));
+	}
+
+	@Test
+	public void marked_multipleFrames() {
+		// GIVEN
+		SerialFrameDecoder decoder = new MarkedSerialFrameDecoder(bytes("<"), bytes(">"));
+		SerialByteRing ring = new SerialByteRing(64);
+		write(ring, "<a><b>x<c");
+
+		// WHEN
+		byte[] first = decoder.decode(ring);
+		byte[] second = decoder.decode(ring);
+		byte[] third = decoder.decode(ring);
+
+		// THEN
+		assertThat("First frame", string(first), is(equalTo("<a>")));
+		assertThat("Second frame", string(second), is(equalTo("<b>")));
+		assertThat("Incomplete third frame", third, is(nullValue()));
+	}
+
+	@Test
+	public void fixedLength() {
+		// GIVEN
+		SerialFrameDecoder decoder = new FixedLengthSerialFrameDecoder(bytes("$"), 5);
+		SerialByteRing ring = new SerialByteRing(64);
+
+		// WHEN
+		write(ring, "xx$ab");
+		byte[] first = decoder.decode(ring);
+		write(ring, "cd$efgh");
+		byte[] second = decoder.decode(ring);
+		byte[] third = decoder.decode(ring);
+
+		// THEN
+		assertThat("No frame before length reached", first, is(nullValue()));
+		assertThat("First frame", string(second), is(equalTo("$abcd")));
+		assertThat("Second frame", string(third), is(equalTo("$efgh")));
+	}
+
+	@Test
+	public void lengthPrefixed_mbusLongFrame() {
+		// GIVEN
+		SerialFrameDecoder decoder = new LengthPrefixedSerialFrameDecoder(new byte[] { 0x68 }, 1,
+				1, 4);
+		SerialByteRing ring = new SerialByteRing(64);
+		byte[] frame = new byte[] { 0x68, 0x03, 0x03, 0x68, 0x08, 0x01, 0x72, 0x7B, 0x16 };
+
+		// WHEN
+		ring.write(new byte[] { 0x00, 0x68, 0x03 }, 0, 3);
+		byte[] first = decoder.decode(ring);
+		ring.write(frame, 2, frame.length - 2);
+		byte[] second = decoder.decode(ring);
+
+		// THEN
+		assertThat("No frame before length reached", first, is(nullValue()));
+		assertThat("Frame decoded", second, is(equalTo(frame)));
+		assertThat("Buffer consumed", ring.isEmpty(), is(equalTo(true)));
+	}
+
+	@Test
+	public void lengthPrefixed_littleEndian() {
+		// GIVEN
+		LengthPrefixedSerialFrameDecoder decoder = new LengthPrefixedSerialFrameDecoder(
+				new byte[0], 0, 2, 0);
+		decoder.setBigEndian(false);
+		SerialByteRing ring = new SerialByteRing(64);
+		byte[] frame = new byte[] { 0x03, 0x00, 0x0A, 0x0B, 0x0C };
+		ring.write(frame, 0, frame.length);
+
+		// WHEN
+		byte[] result = decoder.decode(ring);
+
+		// THEN
+		assertThat("Frame decoded", result, is(equalTo(frame)));
+	}
+
+	@Test
+	public void lengthPrefixed_invalidLengthResync() {
+		// GIVEN
+		LengthPrefixedSerialFrameDecoder decoder = new LengthPrefixedSerialFrameDecoder(
+				new byte[] { 0x68 }, 1, 1, 4);
+		decoder.setMaxFrameLength(16);
+		SerialByteRing ring = new SerialByteRing(64);
+		byte[] data = new byte[] { 0x68, 0x7F, 0x68, 0x01, 0x01, 0x68, 0x08, 0x08, 0x16 };
+		ring.write(data, 0, data.length);
+
+		// WHEN
+		byte[] result = decoder.decode(ring);
+
+		// THEN
+		assertThat("Frame decoded after invalid length skipped", result,
+				is(equalTo(new byte[] { 0x68, 0x01, 0x01, 0x68, 0x08, 0x08, 0x16 })));
+	}
+
+}
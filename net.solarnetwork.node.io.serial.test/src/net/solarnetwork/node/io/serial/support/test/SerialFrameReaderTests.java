@@ -0,0 +1,207 @@
+/* ==================================================================
+ * SerialFrameReaderTests.java - 19/10/2026 7:31:05 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.io.serial.support.test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import net.solarnetwork.node.io.serial.support.MarkedSerialFrameDecoder;
+import net.solarnetwork.node.io.serial.support.SerialFrameDecoder;
+import net.solarnetwork.node.io.serial.support.SerialFrameReader;
+
+/**
+ * Test cases for the {@link SerialFrameReader} class.
+ *
+ * @author matt
+ * @version 1.0
+ */
+public class SerialFrameReaderTests {
+
+	private static final SerialFrameDecoder DECODER = new MarkedSerialFrameDecoder(bytes("<"),
+			bytes(">"));
+
+	private ExecutorService executor;
+	private SerialFrameReader reader;
+
+	@Before
+	public void setup() {
+		executor = Executors.newSingleThreadExecutor();
+		reader = new SerialFrameReader(64);
+	}
+
+	@After
+	public void teardown() {
+		executor.shutdownNow();
+	}
+
+	private static byte[] bytes(String s) {
+		return s.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private static String string(byte[] b) {
+		return (b != null ? new String(b, StandardCharsets.US_ASCII) : null);
+	}
+
+	private void receive(String s) {
+		byte[] b = bytes(s);
+		reader.bytesReceived(b, 0, b.length);
+	}
+
+	@Test
+	public void listenersNotified() {
+		// GIVEN
+		List<String> frames = new ArrayList<>();
+		reader.setDecoder(DECODER);
+		reader.addFrameListener(f -> frames.add(string(f)));
+
+		// WHEN
+		receive("<a");
+		receive("><b><");
+		receive("c>");
+
+		// THEN
+		assertThat("Frames delivered in order", frames, contains("<a>", "<b>", "<c>"));
+		assertThat("Buffer consumed", reader.size(), is(equalTo(0)));
+	}
+
+	@Test
+	public void listenerExceptionDoesNotStopDelivery() {
+		// GIVEN
+		List<String> frames = new ArrayList<>();
+		reader.setDecoder(DECODER);
+		reader.addFrameListener(f -> {
+			throw new RuntimeException("test");
+		});
+		reader.addFrameListener(f -> frames.add(string(f)));
+
+		// WHEN
+		receive("<a><b>");
+
+		// THEN
+		assertThat("Frames delivered to other listeners", frames, contains("<a>", "<b>"));
+	}
+
+	@Test
+	public void awaitFrame() throws Exception {
+		// GIVEN
+		CompletableFuture<Void> waiting = new CompletableFuture<>();
+		Future<byte[]> result = executor.submit(() -> {
+			waiting.complete(null);
+			return reader.awaitFrame(DECODER, 5, TimeUnit.SECONDS);
+		});
+		waiting.get(5, TimeUnit.SECONDS);
+
+		// WHEN
+		receive("xx<he");
+		receive("llo>yy");
+
+		// THEN
+		assertThat("Frame returned to waiting thread", string(result.get(5, TimeUnit.SECONDS)),
+				is(equalTo("<hello>")));
+		assertThat("Trailing bytes left in buffer", string(reader.drain()), is(equalTo("yy")));
+	}
+
+	@Test
+	public void awaitFrameTimeout() throws Exception {
+		// GIVEN
+		receive("<partial");
+
+		// WHEN
+		byte[] result = reader.awaitFrame(DECODER, 50, TimeUnit.MILLISECONDS);
+
+		// THEN
+		assertThat("No frame returned after timeout", result, is(nullValue()));
+		assertThat("Partial frame left in buffer", reader.size(), is(equalTo(8)));
+	}
+
+	@Test
+	public void overflowDiscardsOldest() {
+		// GIVEN
+		reader = new SerialFrameReader(8);
+
+		// WHEN
+		receive("<abc>");
+		receive("<defg>");
+
+		// THEN
+		assertThat("Buffer limited to capacity", reader.size(), is(equalTo(8)));
+		assertThat("Oldest bytes discarded", string(reader.drain()), is(equalTo("c><defg>")));
+	}
+
+	@Test
+	public void readFromStream() throws IOException {
+		// GIVEN
+		List<String> frames = new ArrayList<>();
+		reader.setDecoder(DECODER);
+		reader.addFrameListener(f -> frames.add(string(f)));
+		ByteArrayInputStream in = new ByteArrayInputStream(bytes("<a><b><c>"));
+
+		// WHEN
+		int count = reader.readFrom(in);
+		int eof = reader.readFrom(in);
+
+		// THEN
+		assertThat("All available bytes read at once", count, is(equalTo(9)));
+		assertThat("End of stream", eof, is(equalTo(-1)));
+		assertThat("Frames delivered", frames, contains("<a>", "<b>", "<c>"));
+	}
+
+	@Test
+	public void readFromPipe() throws Exception {
+		// GIVEN
+		try (PipedOutputStream out = new PipedOutputStream();
+				PipedInputStream in = new PipedInputStream(out)) {
+			Future<byte[]> result = executor.submit(() -> {
+				return reader.awaitFrame(DECODER, 5, TimeUnit.SECONDS);
+			});
+
+			// WHEN
+			out.write(bytes("<pi"));
+			reader.readFrom(in);
+			out.write(bytes("pe>"));
+			reader.readFrom(in);
+
+			// THEN
+			assertThat("Frame decoded from piped stream", string(result.get(5, TimeUnit.SECONDS)),
+					is(equalTo("<pipe>")));
+		}
+	}
+
+}
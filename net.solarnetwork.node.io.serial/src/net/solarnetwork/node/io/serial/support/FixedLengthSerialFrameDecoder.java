@@ -0,0 +1,75 @@
+/* ==================================================================
+ * FixedLengthSerialFrameDecoder.java - 19/10/2026 6:41:29 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.io.serial.support;
+
+/**
+ * Decode fixed-length frames that begin with start marker bytes.
+ *
+ * <p>
+ * Decoded frames include the start marker bytes. Bytes before the start marker
+ * are discarded.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 3.3
+ */
+public class FixedLengthSerialFrameDecoder implements SerialFrameDecoder {
+
+	private final byte[] startMarker;
+	private final int length;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param startMarker
+	 *        the starting byte sequence
+	 * @param length
+	 *        the length of each frame, <b>including</b> the length of
+	 *        {@code startMarker}
+	 * @throws IllegalArgumentException
+	 *         if {@code startMarker} is {@literal null} or {@code length} is
+	 *         less than the length of {@code startMarker}
+	 */
+	public FixedLengthSerialFrameDecoder(byte[] startMarker, int length) {
+		super();
+		if ( startMarker == null ) {
+			throw new IllegalArgumentException("The startMarker argument must not be null.");
+		}
+		this.startMarker = startMarker;
+		if ( length < startMarker.length || length < 1 ) {
+			throw new IllegalArgumentException(
+					"The length argument must be at least the length of the start marker.");
+		}
+		this.length = length;
+	}
+
+	@Override
+	public byte[] decode(SerialByteRing buffer) {
+		if ( !buffer.skipTo(startMarker) || buffer.size() < length ) {
+			return null;
+		}
+		return buffer.take(length);
+	}
+
+}
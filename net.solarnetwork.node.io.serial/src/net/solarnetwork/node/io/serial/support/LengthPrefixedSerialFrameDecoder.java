@@ -0,0 +1,174 @@
+/* ==================================================================
+ * LengthPrefixedSerialFrameDecoder.java - 19/10/2026 6:45:03 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.io.serial.support;
+
+/**
+ * Decode frames that begin with start marker bytes and include a frame length
+ * field.
+ *
+ * <p>
+ * The total frame length is calculated as {@code lengthOffset + lengthSize +
+ * L + lengthAdjustment}, where {@code L} is the unsigned value of the length
+ * field. For example an M-Bus long frame, with a 1-byte length at offset
+ * {@literal 1} followed by the length repeated, a second start byte, the
+ * {@code L} data bytes, a checksum, and a stop byte, is decoded using a
+ * {@code lengthOffset} of {@literal 1}, a {@code lengthSize} of {@literal 1}
+ * and a {@code lengthAdjustment} of {@literal 4}.
+ * </p>
+ *
+ * <p>
+ * Decoded frames include the start marker bytes. Bytes before the start marker
+ * are discarded. If a decoded length is not valid, the first byte is discarded
+ * and decoding resumes at the next start marker.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 3.3
+ */
+public class LengthPrefixedSerialFrameDecoder implements SerialFrameDecoder {
+
+	/** The {@code maxFrameLength} property default value. */
+	public static final int DEFAULT_MAX_FRAME_LENGTH = 1024;
+
+	private final byte[] startMarker;
+	private final int lengthOffset;
+	private final int lengthSize;
+	private final int lengthAdjustment;
+	private boolean bigEndian = true;
+	private int maxFrameLength = DEFAULT_MAX_FRAME_LENGTH;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param startMarker
+	 *        the starting byte sequence
+	 * @param lengthOffset
+	 *        the offset of the length field from the start of the frame
+	 * @param lengthSize
+	 *        the number of bytes in the length field, from {@literal 1} to
+	 *        {@literal 4}
+	 * @param lengthAdjustment
+	 *        the number of bytes to add to the length field value to account
+	 *        for the bytes that follow the length field but are not counted
+	 *        by it
+	 * @throws IllegalArgumentException
+	 *         if {@code startMarker} is {@literal null}, {@code lengthOffset}
+	 *         is negative, or {@code lengthSize} is not between {@literal 1}
+	 *         and {@literal 4}
+	 */
+	public LengthPrefixedSerialFrameDecoder(byte[] startMarker, int lengthOffset, int lengthSize,
+			int lengthAdjustment) {
+		super();
+		if ( startMarker == null ) {
+			throw new IllegalArgumentException("The startMarker argument must not be null.");
+		}
+		this.startMarker = startMarker;
+		if ( lengthOffset < 0 ) {
+			throw new IllegalArgumentException("The lengthOffset argument must not be negative.");
+		}
+		this.lengthOffset = lengthOffset;
+		if ( lengthSize < 1 || lengthSize > 4 ) {
+			throw new IllegalArgumentException("The lengthSize argument must be between 1 and 4.");
+		}
+		this.lengthSize = lengthSize;
+		this.lengthAdjustment = lengthAdjustment;
+	}
+
+	@Override
+	public byte[] decode(SerialByteRing buffer) {
+		final int headerLength = lengthOffset + lengthSize;
+		while ( buffer.skipTo(startMarker) ) {
+			if ( buffer.size() < headerLength ) {
+				return null;
+			}
+			final long frameLength = headerLength + frameLengthValue(buffer) + lengthAdjustment;
+			if ( frameLength < Math.max(1, Math.max(headerLength, startMarker.length))
+					|| frameLength > maxFrameLength ) {
+				// not a valid frame; resync on next start marker
+				buffer.skip(1);
+				continue;
+			}
+			if ( buffer.size() < frameLength ) {
+				return null;
+			}
+			return buffer.take((int) frameLength);
+		}
+		return null;
+	}
+
+	private long frameLengthValue(SerialByteRing buffer) {
+		long result = 0;
+		for ( int i = 0; i < lengthSize; i++ ) {
+			final int idx = lengthOffset + (bigEndian ? i : lengthSize - 1 - i);
+			result = (result << 8) | (buffer.get(idx) & 0xFF);
+		}
+		return result;
+	}
+
+	/**
+	 * Get the length field byte order.
+	 *
+	 * @return {@literal true} if the length field is big endian; defaults to
+	 *         {@literal true}
+	 */
+	public boolean isBigEndian() {
+		return bigEndian;
+	}
+
+	/**
+	 * Set the length field byte order.
+	 *
+	 * @param bigEndian
+	 *        {@literal true} if the length field is big endian,
+	 *        {@literal false} for little endian
+	 */
+	public void setBigEndian(boolean bigEndian) {
+		this.bigEndian = bigEndian;
+	}
+
+	/**
+	 * Get the maximum frame length.
+	 *
+	 * @return the maximum frame length; defaults to
+	 *         {@link #DEFAULT_MAX_FRAME_LENGTH}
+	 */
+	public int getMaxFrameLength() {
+		return maxFrameLength;
+	}
+
+	/**
+	 * Set the maximum frame length.
+	 *
+	 * <p>
+	 * Frames with a decoded length larger than this are treated as invalid.
+	 * </p>
+	 *
+	 * @param maxFrameLength
+	 *        the maximum frame length to set
+	 */
+	public void setMaxFrameLength(int maxFrameLength) {
+		this.maxFrameLength = maxFrameLength;
+	}
+
+}
@@ -0,0 +1,76 @@
+/* ==================================================================
+ * MarkedSerialFrameDecoder.java - 19/10/2026 6:38:12 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.io.serial.support;
+
+/**
+ * Decode frames delimited by start and end marker bytes.
+ *
+ * <p>
+ * Decoded frames include both the start and end marker bytes. Bytes before the
+ * start marker are discarded.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 3.3
+ */
+public class MarkedSerialFrameDecoder implements SerialFrameDecoder {
+
+	private final byte[] startMarker;
+	private final byte[] endMarker;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param startMarker
+	 *        the starting byte sequence
+	 * @param endMarker
+	 *        the ending byte sequence
+	 * @throws IllegalArgumentException
+	 *         if any argument is {@literal null} or empty
+	 */
+	public MarkedSerialFrameDecoder(byte[] startMarker, byte[] endMarker) {
+		super();
+		if ( startMarker == null || startMarker.length < 1 ) {
+			throw new IllegalArgumentException("The startMarker argument must not be empty.");
+		}
+		this.startMarker = startMarker;
+		if ( endMarker == null || endMarker.length < 1 ) {
+			throw new IllegalArgumentException("The endMarker argument must not be empty.");
+		}
+		this.endMarker = endMarker;
+	}
+
+	@Override
+	public byte[] decode(SerialByteRing buffer) {
+		if ( !buffer.skipTo(startMarker) ) {
+			return null;
+		}
+		final int end = buffer.indexOf(endMarker, startMarker.length);
+		if ( end < 0 ) {
+			return null;
+		}
+		return buffer.take(end + endMarker.length);
+	}
+
+}
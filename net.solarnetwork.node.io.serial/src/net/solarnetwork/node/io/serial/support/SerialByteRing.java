@@ -0,0 +1,234 @@
+/* ==================================================================
+ * SerialByteRing.java - 19/10/2026 6:21:37 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.io.serial.support;
+
+/**
+ * A fixed-capacity, reusable ring buffer of bytes received from a serial port.
+ *
+ * <p>
+ * When more bytes are written than the buffer can hold, the oldest bytes are
+ * discarded. This class is not thread safe.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 3.3
+ */
+public final class SerialByteRing {
+
+	private final byte[] data;
+	private int head;
+	private int size;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity
+	 *        the maximum number of bytes to hold
+	 * @throws IllegalArgumentException
+	 *         if {@code capacity} is less than {@literal 1}
+	 */
+	public SerialByteRing(int capacity) {
+		super();
+		if ( capacity < 1 ) {
+			throw new IllegalArgumentException("The capacity argument must be at least 1.");
+		}
+		this.data = new byte[capacity];
+	}
+
+	/**
+	 * Get the maximum number of bytes this buffer can hold.
+	 *
+	 * @return the capacity
+	 */
+	public int capacity() {
+		return data.length;
+	}
+
+	/**
+	 * Get the number of bytes in the buffer.
+	 *
+	 * @return the number of bytes
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Test if the buffer is empty.
+	 *
+	 * @return {@literal true} if there are no bytes in the buffer
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Remove all bytes from the buffer.
+	 */
+	public void clear() {
+		head = 0;
+		size = 0;
+	}
+
+	/**
+	 * Get a byte from the buffer.
+	 *
+	 * @param index
+	 *        the index of the byte to get, relative to the oldest byte in the
+	 *        buffer
+	 * @return the byte
+	 * @throws IndexOutOfBoundsException
+	 *         if {@code index} is not between {@literal 0} and {@code size()}
+	 */
+	public byte get(int index) {
+		if ( index < 0 || index >= size ) {
+			throw new IndexOutOfBoundsException(
+					"Index " + index + " out of bounds for size " + size);
+		}
+		return data[(head + index) % data.length];
+	}
+
+	/**
+	 * Append bytes to the buffer.
+	 *
+	 * @param src
+	 *        the bytes to append
+	 * @param offset
+	 *        the offset within {@code src} to start from
+	 * @param length
+	 *        the number of bytes to append
+	 * @return the number of older bytes discarded to make room for the new
+	 *         bytes
+	 */
+	public int write(byte[] src, int offset, int length) {
+		int discarded = 0;
+		if ( length > data.length ) {
+			// only the most recent bytes can fit
+			discarded = size + (length - data.length);
+			offset += length - data.length;
+			length = data.length;
+			clear();
+		} else if ( size + length > data.length ) {
+			discarded = size + length - data.length;
+			skip(discarded);
+		}
+		int tail = (head + size) % data.length;
+		int first = Math.min(length, data.length - tail);
+		System.arraycopy(src, offset, data, tail, first);
+		if ( first < length ) {
+			System.arraycopy(src, offset + first, data, 0, length - first);
+		}
+		size += length;
+		return discarded;
+	}
+
+	/**
+	 * Find the index of a byte sequence in the buffer.
+	 *
+	 * @param pattern
+	 *        the bytes to look for
+	 * @param fromIndex
+	 *        the index to start looking from
+	 * @return the index of the first byte of {@code pattern}, or {@literal -1}
+	 *         if not found
+	 */
+	public int indexOf(byte[] pattern, int fromIndex) {
+		final int last = size - pattern.length;
+		for ( int i = Math.max(0, fromIndex); i <= last; i++ ) {
+			boolean found = true;
+			for ( int j = 0; j < pattern.length; j++ ) {
+				if ( data[(head + i + j) % data.length] != pattern[j] ) {
+					found = false;
+					break;
+				}
+			}
+			if ( found ) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Discard bytes up to the first occurrence of a byte sequence.
+	 *
+	 * <p>
+	 * If {@code marker} is not found, all bytes are discarded except for any
+	 * trailing bytes that could be the start of a partial match.
+	 * </p>
+	 *
+	 * @param marker
+	 *        the bytes to look for
+	 * @return {@literal true} if the buffer now starts with {@code marker}
+	 */
+	public boolean skipTo(byte[] marker) {
+		final int idx = indexOf(marker, 0);
+		if ( idx < 0 ) {
+			skip(size - (marker.length - 1));
+			return false;
+		}
+		skip(idx);
+		return true;
+	}
+
+	/**
+	 * Discard bytes from the start of the buffer.
+	 *
+	 * @param count
+	 *        the number of bytes to discard; will be limited to {@code size()}
+	 */
+	public void skip(int count) {
+		final int n = Math.min(Math.max(0, count), size);
+		head = (head + n) % data.length;
+		size -= n;
+		if ( size == 0 ) {
+			head = 0;
+		}
+	}
+
+	/**
+	 * Remove bytes from the start of the buffer.
+	 *
+	 * @param count
+	 *        the number of bytes to remove
+	 * @return the removed bytes
+	 * @throws IndexOutOfBoundsException
+	 *         if {@code count} is greater than {@code size()}
+	 */
+	public byte[] take(int count) {
+		if ( count < 0 || count > size ) {
+			throw new IndexOutOfBoundsException(
+					"Count " + count + " out of bounds for size " + size);
+		}
+		final byte[] result = new byte[count];
+		final int first = Math.min(count, data.length - head);
+		System.arraycopy(data, head, result, 0, first);
+		if ( first < count ) {
+			System.arraycopy(data, 0, result, first, count - first);
+		}
+		skip(count);
+		return result;
+	}
+
+}
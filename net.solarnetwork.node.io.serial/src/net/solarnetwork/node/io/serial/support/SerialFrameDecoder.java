@@ -0,0 +1,51 @@
+/* ==================================================================
+ * SerialFrameDecoder.java - 19/10/2026 6:34:02 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.io.serial.support;
+
+/**
+ * API for extracting frames from bytes received from a serial port.
+ *
+ * @author matt
+ * @version 1.0
+ * @since 3.3
+ */
+@FunctionalInterface
+public interface SerialFrameDecoder {
+
+	/**
+	 * Decode the next frame from a buffer.
+	 *
+	 * <p>
+	 * If a complete frame is available, its bytes must be removed from the
+	 * buffer. Decoders may also discard bytes that cannot be part of a frame.
+	 * Any other bytes must be left in the buffer for the next invocation.
+	 * </p>
+	 *
+	 * @param buffer
+	 *        the buffer to decode from
+	 * @return the frame bytes, or {@literal null} if a complete frame is not
+	 *         available yet
+	 */
+	byte[] decode(SerialByteRing buffer);
+
+}
@@ -0,0 +1,43 @@
+/* ==================================================================
+ * SerialFrameListener.java - 19/10/2026 6:35:47 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.io.serial.support;
+
+/**
+ * API for receiving decoded serial frames.
+ *
+ * @author matt
+ * @version 1.0
+ * @since 3.3
+ */
+@FunctionalInterface
+public interface SerialFrameListener {
+
+	/**
+	 * Handle a decoded frame.
+	 *
+	 * @param frame
+	 *        the frame bytes
+	 */
+	void serialFrameReceived(byte[] frame);
+
+}
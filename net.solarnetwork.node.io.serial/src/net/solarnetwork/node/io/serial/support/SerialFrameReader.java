@@ -0,0 +1,295 @@
+/* ==================================================================
+ * SerialFrameReader.java - 19/10/2026 6:52:18 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.io.serial.support;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Event-driven serial frame reader.
+ *
+ * <p>
+ * Bytes are pushed into this reader as they are received, either via
+ * {@link #bytesReceived(byte[], int, int)} from a serial port data event, or
+ * via {@link #readFrom(InputStream)} from a stream. The bytes are accumulated
+ * in a reusable {@link SerialByteRing}. Frames can then be consumed in one of
+ * two ways:
+ * </p>
+ *
+ * <ol>
+ * <li>by configuring a {@link #setDecoder(SerialFrameDecoder)} and adding
+ * {@link SerialFrameListener} instances, which are notified of every frame
+ * decoded as bytes arrive, or</li>
+ * <li>by calling {@link #awaitFrame(SerialFrameDecoder, long, TimeUnit)} to
+ * wait for the next frame matching a specific decoder.</li>
+ * </ol>
+ *
+ * <p>
+ * A reader should only be used in one of these ways at a time, as frames
+ * delivered to listeners are not available to {@code awaitFrame()}.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 3.3
+ */
+public class SerialFrameReader {
+
+	/** The default buffer capacity. */
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	private static final Logger log = LoggerFactory.getLogger(SerialFrameReader.class);
+
+	private final SerialByteRing buffer;
+	private final byte[] readBuffer;
+	private final List<SerialFrameListener> listeners = new CopyOnWriteArrayList<>();
+	private volatile SerialFrameDecoder decoder;
+
+	/**
+	 * Constructor.
+	 *
+	 * <p>
+	 * A buffer with {@link #DEFAULT_CAPACITY} will be used.
+	 * </p>
+	 */
+	public SerialFrameReader() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity
+	 *        the buffer capacity
+	 * @throws IllegalArgumentException
+	 *         if {@code capacity} is less than {@literal 1}
+	 */
+	public SerialFrameReader(int capacity) {
+		super();
+		this.buffer = new SerialByteRing(capacity);
+		this.readBuffer = new byte[Math.min(capacity, 1024)];
+	}
+
+	/**
+	 * Add received bytes to the buffer.
+	 *
+	 * <p>
+	 * If a decoder and listeners are configured, all frames that can be
+	 * decoded are delivered to the listeners, on the calling thread. Any
+	 * threads waiting in
+	 * {@link #awaitFrame(SerialFrameDecoder, long, TimeUnit)} are woken up.
+	 * </p>
+	 *
+	 * @param data
+	 *        the received bytes
+	 * @param offset
+	 *        the offset within {@code data} to start from
+	 * @param length
+	 *        the number of bytes to add
+	 * @return the number of frames delivered to listeners
+	 */
+	public int bytesReceived(byte[] data, int offset, int length) {
+		if ( length < 1 ) {
+			return 0;
+		}
+		final List<byte[]> frames;
+		synchronized ( this ) {
+			final int discarded = buffer.write(data, offset, length);
+			if ( discarded > 0 ) {
+				log.warn("Serial buffer full ({} bytes): discarded {} oldest bytes",
+						buffer.capacity(), discarded);
+			}
+			frames = decodeForListeners();
+			notifyAll();
+		}
+		return deliver(frames);
+	}
+
+	/**
+	 * Read bytes from a stream into the buffer.
+	 *
+	 * <p>
+	 * This performs a single read on {@code in}, which may block until data
+	 * is available, reading as many bytes as are available up to a fixed
+	 * chunk size. Frames are then handled as in
+	 * {@link #bytesReceived(byte[], int, int)}. Threads waiting for frames are
+	 * not blocked while this method waits for data.
+	 * </p>
+	 *
+	 * @param in
+	 *        the stream to read from
+	 * @return the number of bytes read, or {@literal -1} if the end of the
+	 *         stream has been reached
+	 * @throws IOException
+	 *         if any IO error occurs
+	 */
+	public int readFrom(InputStream in) throws IOException {
+		synchronized ( readBuffer ) {
+			final int len = in.read(readBuffer, 0, readBuffer.length);
+			if ( len > 0 ) {
+				bytesReceived(readBuffer, 0, len);
+			}
+			return len;
+		}
+	}
+
+	private List<byte[]> decodeForListeners() {
+		final SerialFrameDecoder d = this.decoder;
+		if ( d == null || listeners.isEmpty() ) {
+			return null;
+		}
+		List<byte[]> result = null;
+		byte[] frame;
+		while ( (frame = d.decode(buffer)) != null ) {
+			if ( result == null ) {
+				result = new ArrayList<>(2);
+			}
+			result.add(frame);
+		}
+		return result;
+	}
+
+	private int deliver(List<byte[]> frames) {
+		if ( frames == null ) {
+			return 0;
+		}
+		for ( byte[] frame : frames ) {
+			for ( SerialFrameListener l : listeners ) {
+				try {
+					l.serialFrameReceived(frame);
+				} catch ( RuntimeException e ) {
+					log.warn("Serial frame listener {} threw exception: {}", l, e.toString(), e);
+				}
+			}
+		}
+		return frames.size();
+	}
+
+	/**
+	 * Wait for the next frame to be available.
+	 *
+	 * @param decoder
+	 *        the decoder to use
+	 * @param timeout
+	 *        the maximum amount of time to wait, or {@literal 0} or less to
+	 *        wait forever
+	 * @param unit
+	 *        the timeout unit
+	 * @return the decoded frame, or {@literal null} if the timeout elapsed
+	 *         before a frame was available
+	 * @throws InterruptedException
+	 *         if interrupted while waiting
+	 */
+	public synchronized byte[] awaitFrame(SerialFrameDecoder decoder, long timeout, TimeUnit unit)
+			throws InterruptedException {
+		final long deadline = (timeout > 0 ? System.nanoTime() + unit.toNanos(timeout) : 0);
+		while ( true ) {
+			byte[] frame = decoder.decode(buffer);
+			if ( frame != null ) {
+				return frame;
+			}
+			if ( deadline == 0 ) {
+				wait();
+			} else {
+				final long remaining = deadline - System.nanoTime();
+				if ( remaining <= 0 ) {
+					return null;
+				}
+				TimeUnit.NANOSECONDS.timedWait(this, remaining);
+			}
+		}
+	}
+
+	/**
+	 * Remove and return all bytes currently in the buffer.
+	 *
+	 * @return the bytes, never {@literal null}
+	 */
+	public synchronized byte[] drain() {
+		return buffer.take(buffer.size());
+	}
+
+	/**
+	 * Discard all bytes currently in the buffer.
+	 */
+	public synchronized void clear() {
+		buffer.clear();
+	}
+
+	/**
+	 * Get the number of bytes currently in the buffer.
+	 *
+	 * @return the number of bytes
+	 */
+	public synchronized int size() {
+		return buffer.size();
+	}
+
+	/**
+	 * Add a frame listener.
+	 *
+	 * @param listener
+	 *        the listener to add
+	 */
+	public void addFrameListener(SerialFrameListener listener) {
+		if ( listener != null ) {
+			listeners.add(listener);
+		}
+	}
+
+	/**
+	 * Remove a frame listener.
+	 *
+	 * @param listener
+	 *        the listener to remove
+	 */
+	public void removeFrameListener(SerialFrameListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Get the decoder used for frames delivered to listeners.
+	 *
+	 * @return the decoder, or {@literal null}
+	 */
+	public SerialFrameDecoder getDecoder() {
+		return decoder;
+	}
+
+	/**
+	 * Set the decoder used for frames delivered to listeners.
+	 *
+	 * @param decoder
+	 *        the decoder to set
+	 */
+	public void setDecoder(SerialFrameDecoder decoder) {
+		this.decoder = decoder;
+	}
+
+}
@@ -28,9 +28,16 @@ import static java.util.stream.Collectors.toList;
 import static java.util.stream.StreamSupport.stream;
 import static net.solarnetwork.node.metrics.domain.Metric.metricValue;
 import static net.solarnetwork.node.test.TestDbUtils.allTableData;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
@@ -42,20 +49,24 @@ import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.DoubleSummaryStatistics;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
 import org.junit.Test;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.test.context.transaction.BeforeTransaction;
 import net.solarnetwork.dao.BasicBatchOptions;
 import net.solarnetwork.dao.BatchableDao.BatchCallback;
 import net.solarnetwork.dao.BatchableDao.BatchCallbackResult;
+import net.solarnetwork.dao.BatchableDao.BatchResult;
 import net.solarnetwork.dao.FilterResults;
 import net.solarnetwork.node.dao.jdbc.DatabaseSetup;
 import net.solarnetwork.node.metrics.dao.BasicMetricFilter;
@@ -73,7 +84,7 @@ import net.solarnetwork.node.test.AbstractNodeTransactionalTest;
  * Test cases for the {@link
  *
  * @author matt
- * @version 1.2
+ * @version 1.4
  */
 public class JdbcMetricDaoTests extends AbstractNodeTransactionalTest {
 
@@ -536,4 +547,302 @@ public class JdbcMetricDaoTests extends AbstractNodeTransactionalTest {
 				contains(allMetrics.subList(2, 6).toArray(new Metric[6 - 2])));
 	}
 
+	@Test
+	public void saveAll_ignoreExisting() {
+		// GIVEN
+		insert();
+		final Instant start = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+		final List<Metric> metrics = new ArrayList<>(4);
+		metrics.add(new Metric(last.getId(), 234.0));
+		for ( int i = 0; i < 3; i++ ) {
+			metrics.add(metricValue(start.plusSeconds(i), "t", "a", i));
+		}
+
+		// WHEN
+		int result = dao.saveAll(metrics);
+
+		// THEN
+		assertThat("New metrics persisted, existing metric ignored", result, is(equalTo(3)));
+		final List<Map<String, Object>> rows = allTableData(log, jdbcOps, "SOLARNODE.MTR_METRIC",
+				"ts, mtype, mname");
+		assertThat("Expected row count", rows, hasSize(4));
+		assertThat("Existing metric unchanged", dao.get(last.getId()).getValue(),
+				is(equalTo(last.getValue())));
+	}
+
+	@Test
+	public void offer_immediate() {
+		// GIVEN
+		final Instant start = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+		// WHEN
+		dao.offer(metricValue(start, "t", "a", 1.0));
+		dao.offer(metricValue(start, "t", "a", 2.0));
+
+		// THEN
+		assertThat("Nothing buffered without scheduler", dao.getBufferedCount(), is(equalTo(0)));
+		final List<Map<String, Object>> rows = allTableData(log, jdbcOps, "SOLARNODE.MTR_METRIC",
+				"ts, mtype, mname");
+		assertThat("Duplicate metric ignored", rows, hasSize(1));
+		assertThat(dao.getStats().get(MetricDaoStat.MetricsStored), is(equalTo(1L)));
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Test
+	public void offer_bufferedUntilSize() {
+		// GIVEN
+		TaskScheduler scheduler = createMock(TaskScheduler.class);
+		ScheduledFuture<?> future = createMock(ScheduledFuture.class);
+		dao.setTaskScheduler(scheduler);
+		dao.setBufferSize(3);
+
+		expect(scheduler.schedule(anyObject(Runnable.class), anyObject(Instant.class)))
+				.andReturn((ScheduledFuture) future);
+		expect(future.cancel(false)).andReturn(true);
+
+		// WHEN
+		replay(scheduler, future);
+		final Instant start = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+		dao.offer(metricValue(start, "t", "a", 1.0));
+		dao.offer(metricValue(start, "t", "b", 2.0));
+		final List<Map<String, Object>> rowsBuffered = allTableData(log, jdbcOps,
+				"SOLARNODE.MTR_METRIC", "ts, mtype, mname");
+		final int buffered = dao.getBufferedCount();
+		dao.offer(metricValue(start, "t", "c", 3.0));
+
+		// THEN
+		assertThat("Metrics buffered below buffer size", buffered, is(equalTo(2)));
+		assertThat("Buffered metrics not persisted", rowsBuffered, hasSize(0));
+		assertThat("Buffer flushed at buffer size", dao.getBufferedCount(), is(equalTo(0)));
+		final List<Map<String, Object>> rows = allTableData(log, jdbcOps, "SOLARNODE.MTR_METRIC",
+				"ts, mtype, mname");
+		assertThat("Buffered metrics persisted", rows, hasSize(3));
+		assertThat(dao.getStats().getAccumulation(MetricDaoStat.BufferDepth).avg(),
+				is(equalTo(3.0)));
+		verify(scheduler, future);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Test
+	public void offer_flushedBeforeQuery() {
+		// GIVEN
+		TaskScheduler scheduler = createMock(TaskScheduler.class);
+		ScheduledFuture<?> future = createMock(ScheduledFuture.class);
+		dao.setTaskScheduler(scheduler);
+
+		expect(scheduler.schedule(anyObject(Runnable.class), anyObject(Instant.class)))
+				.andReturn((ScheduledFuture) future);
+		expect(future.cancel(false)).andReturn(true);
+
+		// WHEN
+		replay(scheduler, future);
+		final Instant start = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+		dao.offer(metricValue(start, "t", "a", 1.0));
+		dao.offer(metricValue(start.plusSeconds(1), "t", "a", 2.0));
+		BasicMetricFilter filter = new BasicMetricFilter();
+		filter.setType("t");
+		FilterResults<Metric, MetricKey> results = dao.findFiltered(filter);
+
+		// THEN
+		assertThat("Buffered metrics returned by query", results.getReturnedResultCount(),
+				is(equalTo(2)));
+		assertThat("Buffer flushed", dao.getBufferedCount(), is(equalTo(0)));
+		verify(scheduler, future);
+	}
+
+	private List<Metric> populateMultiDayMetrics(Instant start, Instant end) {
+		final List<Metric> allMetrics = new ArrayList<>(256);
+		int i = 0;
+		for ( Instant ts = start; ts.isBefore(end); ts = ts.plus(37, ChronoUnit.MINUTES) ) {
+			for ( int j = 0; j < 2; j++ ) {
+				allMetrics.add(metricValue(ts, Metric.METRIC_TYPE_SAMPLE, "metric." + j,
+						(i++ % 17) + (j * 100)));
+			}
+		}
+		dao.saveAll(allMetrics);
+		return allMetrics;
+	}
+
+	private static BasicMetricFilter rollupAggFilter(Instant start, Instant end) {
+		BasicMetricFilter filter = new BasicMetricFilter();
+		filter.setStartDate(start);
+		filter.setEndDate(end);
+		filter.setType(Metric.METRIC_TYPE_SAMPLE);
+		// @formatter:off
+		filter.setAggregates(new MetricAggregate[] {
+			BasicMetricAggregate.Minimum,
+			BasicMetricAggregate.Maximum,
+			BasicMetricAggregate.Average,
+			BasicMetricAggregate.Count,
+			BasicMetricAggregate.Sum,
+		});
+		// @formatter:on
+		return filter;
+	}
+
+	private static Map<String, Double> expectedAggregates(List<Metric> metrics, Instant start,
+			Instant end) {
+		final Map<String, DoubleSummaryStatistics> stats = new HashMap<>(4);
+		for ( Metric m : metrics ) {
+			if ( !m.getTimestamp().isBefore(start) && m.getTimestamp().isBefore(end) ) {
+				stats.computeIfAbsent(m.getName(), k -> new DoubleSummaryStatistics())
+						.accept(m.getValue());
+			}
+		}
+		final Map<String, Double> result = new HashMap<>(16);
+		for ( Map.Entry<String, DoubleSummaryStatistics> e : stats.entrySet() ) {
+			final DoubleSummaryStatistics s = e.getValue();
+			result.put(e.getKey() + "/min", s.getMin());
+			result.put(e.getKey() + "/max", s.getMax());
+			result.put(e.getKey() + "/avg", s.getAverage());
+			result.put(e.getKey() + "/cnt", (double) s.getCount());
+			result.put(e.getKey() + "/sum", s.getSum());
+		}
+		return result;
+	}
+
+	private static Map<String, Double> resultAggregates(FilterResults<Metric, MetricKey> results) {
+		final Map<String, Double> result = new HashMap<>(16);
+		for ( Metric m : results ) {
+			result.put(m.getName() + "/" + m.getType(), m.getValue());
+		}
+		return result;
+	}
+
+	private static void assertAggregatesEqual(String msg, Map<String, Double> actual,
+			Map<String, Double> expected) {
+		assertThat(msg + " aggregate keys", actual.keySet(), is(equalTo(expected.keySet())));
+		for ( Map.Entry<String, Double> e : expected.entrySet() ) {
+			assertThat(format("%s aggregate %s", msg, e.getKey()), actual.get(e.getKey()),
+					is(closeTo(e.getValue(), 0.000001)));
+		}
+	}
+
+	@Test
+	public void findFiltered_agg_rollupWindow() {
+		// GIVEN
+		final Instant day = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(5, ChronoUnit.DAYS);
+		final List<Metric> allMetrics = populateMultiDayMetrics(day, day.plus(4, ChronoUnit.DAYS));
+
+		// WHEN
+		final Instant start = day.plus(7, ChronoUnit.HOURS).plus(13, ChronoUnit.MINUTES);
+		final Instant end = day.plus(3, ChronoUnit.DAYS).plus(5, ChronoUnit.HOURS)
+				.plus(41, ChronoUnit.MINUTES);
+		FilterResults<Metric, MetricKey> results = dao.findFiltered(rollupAggFilter(start, end));
+
+		dao.setRollupQueries(false);
+		FilterResults<Metric, MetricKey> rawResults = dao.findFiltered(rollupAggFilter(start, end));
+
+		// THEN
+		final Map<String, Double> expected = expectedAggregates(allMetrics, start, end);
+		assertAggregatesEqual("Rollup", resultAggregates(results), expected);
+		assertAggregatesEqual("Raw", resultAggregates(rawResults), expected);
+	}
+
+	@Test
+	public void deleteFiltered_rollupsRebuilt() {
+		// GIVEN
+		final Instant day = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(5, ChronoUnit.DAYS);
+		final List<Metric> allMetrics = populateMultiDayMetrics(day, day.plus(3, ChronoUnit.DAYS));
+
+		// WHEN
+		final Instant deleteEnd = day.plus(1, ChronoUnit.DAYS).plus(10, ChronoUnit.HOURS)
+				.plus(20, ChronoUnit.MINUTES);
+		BasicMetricFilter deleteFilter = new BasicMetricFilter();
+		deleteFilter.setEndDate(deleteEnd);
+		deleteFilter.setName("metric.0");
+		int deleted = dao.deleteFiltered(deleteFilter);
+
+		final Instant start = day.plus(20, ChronoUnit.MINUTES);
+		final Instant end = day.plus(2, ChronoUnit.DAYS).plus(23, ChronoUnit.HOURS);
+		FilterResults<Metric, MetricKey> results = dao.findFiltered(rollupAggFilter(start, end));
+
+		// THEN
+		final List<Metric> remaining = allMetrics.stream()
+				.filter(m -> !("metric.0".equals(m.getName())
+						&& m.getTimestamp().isBefore(deleteEnd)))
+				.collect(toList());
+		assertThat("Metrics deleted", deleted, is(equalTo(allMetrics.size() - remaining.size())));
+		allTableData(log, jdbcOps, "SOLARNODE.MTR_METRIC_AGG", "agg, ts, mtype, mname");
+		assertAggregatesEqual("Rollup", resultAggregates(results),
+				expectedAggregates(remaining, start, end));
+	}
+
+	@Test
+	public void findFiltered_agg_rollupWindow_quantiles() {
+		// GIVEN
+		final Instant day = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(5, ChronoUnit.DAYS);
+		populateMultiDayMetrics(day, day.plus(4, ChronoUnit.DAYS));
+
+		// WHEN
+		final Instant start = day.plus(7, ChronoUnit.HOURS).plus(13, ChronoUnit.MINUTES);
+		final Instant end = day.plus(3, ChronoUnit.DAYS).plus(5, ChronoUnit.HOURS)
+				.plus(41, ChronoUnit.MINUTES);
+		final BasicMetricFilter filter = rollupAggFilter(start, end);
+		final MetricAggregate[] aggs = Arrays.copyOf(filter.getAggregates(),
+				filter.getAggregates().length + 2);
+		aggs[aggs.length - 2] = ParameterizedMetricAggregate.METRIC_TYPE_QUANTILE_25;
+		aggs[aggs.length - 1] = ParameterizedMetricAggregate.METRIC_TYPE_QUANTILE_75;
+		filter.setAggregates(aggs);
+		FilterResults<Metric, MetricKey> results = dao.findFiltered(filter);
+
+		dao.setRollupQueries(false);
+		FilterResults<Metric, MetricKey> rawResults = dao.findFiltered(filter);
+
+		// THEN
+		final Map<String, Double> expected = resultAggregates(rawResults);
+		assertThat("Raw quantiles returned", expected.keySet(),
+				hasItems("metric.0/q:25", "metric.0/q:75", "metric.1/q:25", "metric.1/q:75"));
+		assertAggregatesEqual("Rollup with quantiles", resultAggregates(results), expected);
+	}
+
+	@Test
+	public void batchProcess_delete_rollupsRebuilt() {
+		// GIVEN
+		final Instant day = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(5, ChronoUnit.DAYS);
+		final List<Metric> allMetrics = populateMultiDayMetrics(day, day.plus(3, ChronoUnit.DAYS));
+		final List<Map<String, Object>> otherDayRollupsBefore = jdbcOps.queryForList(
+				"SELECT * FROM solarnode.mtr_metric_agg WHERE ts >= ? ORDER BY agg, ts, mtype, mname",
+				Timestamp.from(day.plus(2, ChronoUnit.DAYS)));
+
+		// WHEN
+		final Instant deleteStart = day.plus(1, ChronoUnit.DAYS).plus(3, ChronoUnit.HOURS);
+		final Instant deleteEnd = deleteStart.plus(5, ChronoUnit.HOURS);
+		BasicMetricFilter deleteFilter = new BasicMetricFilter();
+		deleteFilter.setStartDate(deleteStart);
+		deleteFilter.setEndDate(deleteEnd);
+		deleteFilter.setName("metric.1");
+		Map<String, Object> params = new HashMap<>(4);
+		params.put(MetricDao.BATCH_PARAM_FILTER, deleteFilter);
+		BasicBatchOptions opts = new BasicBatchOptions("delete", 50, true, params);
+		BatchResult batchResult = dao.batchProcess(new BatchCallback<Metric>() {
+
+			@Override
+			public BatchCallbackResult handle(Metric metric) {
+				return BatchCallbackResult.DELETE;
+			}
+		}, opts);
+
+		final Instant start = day.plus(20, ChronoUnit.MINUTES);
+		final Instant end = day.plus(2, ChronoUnit.DAYS).plus(23, ChronoUnit.HOURS);
+		FilterResults<Metric, MetricKey> results = dao.findFiltered(rollupAggFilter(start, end));
+
+		// THEN
+		final List<Metric> remaining = allMetrics.stream()
+				.filter(m -> !("metric.1".equals(m.getName())
+						&& !m.getTimestamp().isBefore(deleteStart)
+						&& m.getTimestamp().isBefore(deleteEnd)))
+				.collect(toList());
+		assertThat("Metrics processed for delete", batchResult.numProcessed(),
+				is(equalTo(allMetrics.size() - remaining.size())));
+		assertAggregatesEqual("Rollup", resultAggregates(results),
+				expectedAggregates(remaining, start, end));
+		assertThat("Rollups of other days unchanged",
+				jdbcOps.queryForList(
+						"SELECT * FROM solarnode.mtr_metric_agg WHERE ts >= ? "
+								+ "ORDER BY agg, ts, mtype, mname",
+						Timestamp.from(day.plus(2, ChronoUnit.DAYS))),
+				is(equalTo(otherDayRollupsBefore)));
+	}
+
 }
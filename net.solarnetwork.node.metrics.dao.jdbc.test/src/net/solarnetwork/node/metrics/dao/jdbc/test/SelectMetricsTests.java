@@ -29,6 +29,7 @@ import static org.easymock.EasyMock.capture;
 import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import java.sql.Array;
@@ -58,7 +59,7 @@ import net.solarnetwork.node.metrics.domain.ParameterizedMetricAggregate;
  * Test cases for the {@link SelectMetrics} class.
  *
  * @author matt
- * @version 1.1
+ * @version 1.2
  */
 public class SelectMetricsTests {
 
@@ -277,4 +278,122 @@ public class SelectMetricsTests {
 				equalToTextResource("select-metrics-05.sql", getClass(), null));
 	}
 
+	@Test
+	public void aggs_rollup() throws SQLException {
+		// GIVEN
+		final Instant start = Instant.parse("2026-01-01T00:30:00Z");
+		final Instant end = Instant.parse("2026-01-03T12:15:00Z");
+		BasicMetricFilter filter = new BasicMetricFilter();
+		filter.setType(Metric.METRIC_TYPE_SAMPLE);
+		filter.setStartDate(start);
+		filter.setEndDate(end);
+		// @formatter:off
+		filter.setAggregates(new MetricAggregate[] {
+			BasicMetricAggregate.Minimum,
+			BasicMetricAggregate.Maximum,
+			BasicMetricAggregate.Average,
+			BasicMetricAggregate.Count,
+			BasicMetricAggregate.Sum,
+		});
+		// @formatter:on
+
+		Capture<String> sqlCaptor = Capture.newInstance();
+		expect(conn.prepareStatement(capture(sqlCaptor), eq(ResultSet.TYPE_FORWARD_ONLY),
+				eq(ResultSet.CONCUR_READ_ONLY), eq(ResultSet.CLOSE_CURSORS_AT_COMMIT))).andReturn(ps);
+		ps.setFetchSize(SelectMetrics.DEFAULT_FETCH_SIZE);
+
+		expect(ps.getConnection()).andReturn(conn).anyTimes();
+		expect(conn.createArrayOf(eq("VARCHAR"), aryEq(new String[] { filter.getType() })))
+				.andReturn(textArray).times(2);
+		textArray.free();
+
+		final Instant h1 = Instant.parse("2026-01-01T01:00:00Z");
+		final Instant d1 = Instant.parse("2026-01-02T00:00:00Z");
+		final Instant d2 = Instant.parse("2026-01-03T00:00:00Z");
+		final Instant h2 = Instant.parse("2026-01-03T12:00:00Z");
+
+		// daily rollups
+		ps.setObject(1, d1.atOffset(UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+		ps.setObject(2, d2.atOffset(UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+		// hourly rollups
+		ps.setObject(3, h1.atOffset(UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+		ps.setObject(4, d1.atOffset(UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+		ps.setObject(5, d2.atOffset(UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+		ps.setObject(6, h2.atOffset(UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+		ps.setArray(7, textArray);
+		// raw edges
+		ps.setObject(8, start.atOffset(UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+		ps.setObject(9, h1.atOffset(UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+		ps.setObject(10, h2.atOffset(UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+		ps.setObject(11, end.atOffset(UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+		ps.setArray(12, textArray);
+
+		// WHEN
+		replayAll();
+		SelectMetrics select = new SelectMetrics(filter, SelectMetrics.DEFAULT_FETCH_SIZE, true);
+		PreparedStatement ps = select.createPreparedStatement(conn);
+
+		// THEN
+		assertThat("Rollups used", select.isRollup(), is(equalTo(true)));
+		assertThat("PreparedStatement returned", ps, is(notNullValue()));
+		assertThat("Generated SQL", sqlCaptor.getValue(),
+				equalToTextResource("select-metrics-agg-rollup-01.sql", getClass(), null));
+	}
+
+	@Test
+	public void aggs_rollup_quantile() throws SQLException {
+		// GIVEN
+		final Instant start = Instant.parse("2026-01-01T00:30:00Z");
+		final Instant end = Instant.parse("2026-01-03T12:15:00Z");
+		BasicMetricFilter filter = new BasicMetricFilter();
+		filter.setStartDate(start);
+		filter.setEndDate(end);
+		// @formatter:off
+		filter.setAggregates(new MetricAggregate[] {
+			BasicMetricAggregate.Average,
+			ParameterizedMetricAggregate.METRIC_TYPE_QUANTILE_25,
+		});
+		// @formatter:on
+
+		Capture<String> sqlCaptor = Capture.newInstance();
+		expect(conn.prepareStatement(capture(sqlCaptor), eq(ResultSet.TYPE_FORWARD_ONLY),
+				eq(ResultSet.CONCUR_READ_ONLY), eq(ResultSet.CLOSE_CURSORS_AT_COMMIT))).andReturn(ps);
+		ps.setFetchSize(SelectMetrics.DEFAULT_FETCH_SIZE);
+
+		final Instant h1 = Instant.parse("2026-01-01T01:00:00Z");
+		final Instant d1 = Instant.parse("2026-01-02T00:00:00Z");
+		final Instant d2 = Instant.parse("2026-01-03T00:00:00Z");
+		final Instant h2 = Instant.parse("2026-01-03T12:00:00Z");
+
+		// daily rollups
+		ps.setObject(1, d1.atOffset(UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+		ps.setObject(2, d2.atOffset(UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+		// hourly rollups
+		ps.setObject(3, h1.atOffset(UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+		ps.setObject(4, d1.atOffset(UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+		ps.setObject(5, d2.atOffset(UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+		ps.setObject(6, h2.atOffset(UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+		// raw edges
+		ps.setObject(7, start.atOffset(UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+		ps.setObject(8, h1.atOffset(UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+		ps.setObject(9, h2.atOffset(UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+		ps.setObject(10, end.atOffset(UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+		// raw quantiles
+		ps.setObject(11, ParameterizedMetricAggregate.METRIC_TYPE_QUANTILE_25.numberParameter(0));
+		ps.setObject(12, start.atOffset(UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+		ps.setObject(13, end.atOffset(UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+
+		// WHEN
+		replayAll();
+		SelectMetrics select = new SelectMetrics(filter, SelectMetrics.DEFAULT_FETCH_SIZE, true);
+		PreparedStatement ps = select.createPreparedStatement(conn);
+
+		// THEN
+		assertThat("Rollups used for non-quantile aggregates", select.isRollup(),
+				is(equalTo(true)));
+		assertThat("PreparedStatement returned", ps, is(notNullValue()));
+		assertThat("Generated SQL", sqlCaptor.getValue(),
+				equalToTextResource("select-metrics-agg-rollup-02.sql", getClass(), null));
+	}
+
 }
@@ -0,0 +1,54 @@
+WITH r AS (
+	SELECT mname, cnt, vsum, vmin, vmax
+	FROM solarnode.mtr_metric_agg
+	WHERE ((agg = 'd' AND ts >= ? AND ts < ?)
+		OR (agg = 'h' AND ((ts >= ? AND ts < ?) OR (ts >= ? AND ts < ?))))
+		AND mtype = ANY(?)
+	UNION ALL
+	SELECT mname, CASE WHEN val IS NULL THEN 0 ELSE 1 END, val, val, val
+	FROM solarnode.mtr_metric
+	WHERE ((ts >= ? AND ts < ?) OR (ts >= ? AND ts < ?))
+		AND mtype = ANY(?)
+)
+, m AS (
+	SELECT mname
+		, min(vmin) AS m0
+		, max(vmax) AS m1
+		, sum(vsum) / NULLIF(sum(cnt), 0) AS m2
+		, sum(cnt) AS m3
+		, sum(vsum) AS m4
+	FROM r
+	GROUP BY mname
+)
+, d AS (
+	SELECT 'min' AS mtype
+		, mname
+		, m0 AS val
+	FROM m
+	UNION ALL
+	SELECT 'max' AS mtype
+		, mname
+		, m1 AS val
+	FROM m
+	UNION ALL
+	SELECT 'avg' AS mtype
+		, mname
+		, m2 AS val
+	FROM m
+	UNION ALL
+	SELECT 'cnt' AS mtype
+		, mname
+		, m3 AS val
+	FROM m
+	UNION ALL
+	SELECT 'sum' AS mtype
+		, mname
+		, m4 AS val
+	FROM m
+)
+SELECT CURRENT_TIMESTAMP AS ts
+	, mtype
+	, mname
+	, val
+FROM d
+ORDER BY mname, mtype
@@ -0,0 +1,47 @@
+WITH r AS (
+	SELECT mname, cnt, vsum, vmin, vmax
+	FROM solarnode.mtr_metric_agg
+	WHERE ((agg = 'd' AND ts >= ? AND ts < ?)
+		OR (agg = 'h' AND ((ts >= ? AND ts < ?) OR (ts >= ? AND ts < ?))))
+	UNION ALL
+	SELECT mname, CASE WHEN val IS NULL THEN 0 ELSE 1 END, val, val, val
+	FROM solarnode.mtr_metric
+	WHERE ((ts >= ? AND ts < ?) OR (ts >= ? AND ts < ?))
+)
+, rm AS (
+	SELECT mname
+		, sum(vsum) / NULLIF(sum(cnt), 0) AS m0
+	FROM r
+	GROUP BY mname
+)
+, q AS (
+	SELECT mname
+		, percentile_cont(?) WITHIN GROUP (ORDER BY val) AS m1
+	FROM solarnode.mtr_metric
+	WHERE ts >= ? AND ts < ?
+	GROUP BY mname
+)
+, m AS (
+	SELECT rm.mname
+		, rm.m0 AS m0
+		, q.m1 AS m1
+	FROM rm
+	LEFT OUTER JOIN q ON q.mname = rm.mname
+)
+, d AS (
+	SELECT 'avg' AS mtype
+		, mname
+		, m0 AS val
+	FROM m
+	UNION ALL
+	SELECT 'q:25' AS mtype
+		, mname
+		, m1 AS val
+	FROM m
+)
+SELECT CURRENT_TIMESTAMP AS ts
+	, mtype
+	, mname
+	, val
+FROM d
+ORDER BY mname, mtype
@@ -37,11 +37,15 @@ import net.solarnetwork.util.ObjectUtils;
  * Generate {@code DELETE} SQL for metric values based on a filter.
  *
  * @author matt
- * @version 1.1
+ * @version 1.2
  */
 public class DeleteMetrics implements PreparedStatementCreator, SqlProvider {
 
+	/** The default table name. */
+	public static final String DEFAULT_TABLE_NAME = "solarnode.mtr_metric";
+
 	private final MetricFilter filter;
+	private final String tableName;
 
 	/**
 	 * Constructor.
@@ -52,14 +56,30 @@ public class DeleteMetrics implements PreparedStatementCreator, SqlProvider {
 	 *         if any argument is {@literal null}
 	 */
 	public DeleteMetrics(MetricFilter filter) {
+		this(filter, DEFAULT_TABLE_NAME);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param filter
+	 *        the filter
+	 * @param tableName
+	 *        the name of the table to delete from
+	 * @throws IllegalArgumentException
+	 *         if any argument is {@literal null}
+	 * @since 1.2
+	 */
+	public DeleteMetrics(MetricFilter filter, String tableName) {
 		super();
 		this.filter = ObjectUtils.requireNonNullArgument(filter, "filter");
+		this.tableName = ObjectUtils.requireNonNullArgument(tableName, "tableName");
 	}
 
 	@Override
 	public String getSql() {
 		StringBuilder buf = new StringBuilder();
-		buf.append("DELETE FROM solarnode.mtr_metric\n");
+		buf.append("DELETE FROM ").append(tableName).append("\n");
 		sqlWhere(buf);
 		return buf.toString();
 	}
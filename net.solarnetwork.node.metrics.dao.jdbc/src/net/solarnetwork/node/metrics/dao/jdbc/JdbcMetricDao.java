@@ -31,16 +31,29 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.PreparedStatementSetter;
 import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import net.solarnetwork.dao.BasicFilterResults;
 import net.solarnetwork.dao.FilterResults;
 import net.solarnetwork.domain.SortDescriptor;
@@ -55,12 +68,30 @@ import net.solarnetwork.settings.SettingSpecifierProvider;
 import net.solarnetwork.settings.support.BasicTextFieldSettingSpecifier;
 import net.solarnetwork.settings.support.BasicTitleSettingSpecifier;
 import net.solarnetwork.util.StatTracker;
+import net.solarnetwork.util.StatTracker.Accumulation;
 
 /**
  * JDBC implementation of {@link MetricDao}.
  *
+ * <p>
+ * Metrics passed to {@link #offer(Metric)} are held in an in-memory buffer and
+ * persisted as a single JDBC batch, either when the buffer reaches
+ * {@code bufferSize} metrics or {@code bufferFlushDelay} milliseconds after
+ * the first metric was added, whichever comes first. Metrics that already
+ * exist are ignored. The buffer is flushed before any query, and on
+ * {@link #shutdown()}.
+ * </p>
+ *
+ * <p>
+ * Hourly and daily rollups of the stored metrics are maintained as metrics
+ * are saved and deleted, and are used to compute the minimum, maximum,
+ * average, count, and sum aggregates of queries when the
+ * {@code rollupQueries} property is enabled. Deleting metrics re-computes only
+ * the rollup days of the deleted metrics.
+ * </p>
+ *
  * @author matt
- * @version 1.4
+ * @version 1.6
  */
 public class JdbcMetricDao extends BaseJdbcBatchableDao<Metric, MetricKey>
 		implements MetricDao, SettingSpecifierProvider {
@@ -75,14 +106,45 @@ public class JdbcMetricDao extends BaseJdbcBatchableDao<Metric, MetricKey>
 	public static final String TABLE_NAME = "metric";
 
 	/** The JDBC table version. */
-	public static final int VERSION = 1;
+	public static final int VERSION = 2;
 
 	/** The {@code stats.logFrequency} default value. */
 	public static final int DEFAULT_STAT_LOG_FREQUENCY = 100;
 
+	/**
+	 * The {@code bufferSize} property default value.
+	 *
+	 * @since 1.5
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 100;
+
+	/**
+	 * The {@code bufferFlushDelay} property default value.
+	 *
+	 * @since 1.5
+	 */
+	public static final long DEFAULT_BUFFER_FLUSH_DELAY = 5_000L;
+
+	/**
+	 * The SQL resource for an insert that ignores existing rows.
+	 *
+	 * @since 1.5
+	 */
+	public static final String SQL_INSERT_IGNORE = "insert-ignore";
+
+	/**
+	 * The SQL resource to insert or merge a rollup summary.
+	 *
+	 * @since 1.6
+	 */
+	public static final String SQL_ROLLUP_UPSERT = "agg-upsert";
+
 	/** An internal batch parameter for a {@link PreparedStatementSetter}. */
 	private static final String BATCH_PARAM_PSC = "_pss";
 
+	/** An internal batch parameter for the rollup days of deleted metrics. */
+	private static final String BATCH_PARAM_DELETED_ROLLUPS = "_deletedRollups";
+
 	/**
 	 * Enumeration of SQL resources.
 	 */
@@ -110,6 +172,13 @@ public class JdbcMetricDao extends BaseJdbcBatchableDao<Metric, MetricKey>
 	}
 
 	private final StatTracker stats;
+	private final Map<MetricKey, Metric> buffer = new LinkedHashMap<>(DEFAULT_BUFFER_SIZE);
+	private final Object flushLock = new Object();
+	private TaskScheduler taskScheduler;
+	private int bufferSize = DEFAULT_BUFFER_SIZE;
+	private long bufferFlushDelay = DEFAULT_BUFFER_FLUSH_DELAY;
+	private ScheduledFuture<?> bufferFlushFuture;
+	private boolean rollupQueries = true;
 
 	/**
 	 * Constructor.
@@ -127,20 +196,330 @@ public class JdbcMetricDao extends BaseJdbcBatchableDao<Metric, MetricKey>
 	@Override
 	public void init() {
 		super.init();
+		try {
+			if ( rollupsMissing() ) {
+				log.info("Populating metric rollups from stored metrics.");
+				rebuildRollups(null, null, null, null);
+			}
+		} catch ( RuntimeException e ) {
+			log.error("Error populating metric rollups: {}", e.toString(), e);
+		}
+	}
+
+	private boolean rollupsMissing() {
+		final Boolean missing = getJdbcTemplate().query(
+				"SELECT EXISTS (SELECT 1 FROM " + MetricRollups.TABLE_NAME + ")"
+						+ ", EXISTS (SELECT 1 FROM " + DeleteMetrics.DEFAULT_TABLE_NAME + ")",
+				rs -> rs.next() && !rs.getBoolean(1) && rs.getBoolean(2));
+		return (missing != null && missing);
 	}
 
 	@Override
 	public MetricKey save(Metric entity) {
 		insertDomainObject(entity, getSqlResource(SQL_INSERT));
+		updateRollups(Collections.singletonList(entity));
 		stats.increment(MetricDaoStat.MetricsStored);
 		postEntityEvent(entity.getId(), entity, EntityEventType.STORED);
 		return entity.getId();
 	}
 
+	/**
+	 * Shutdown, flushing any buffered metrics.
+	 *
+	 * @since 1.5
+	 */
+	public void shutdown() {
+		try {
+			flushBuffer();
+		} catch ( RuntimeException e ) {
+			log.error("Error flushing {} buffered metrics on shutdown: {}", getBufferedCount(),
+					e.toString());
+		}
+	}
+
+	@Override
+	public void offer(Metric metric) {
+		if ( metric == null ) {
+			return;
+		}
+		final TaskScheduler scheduler = this.taskScheduler;
+		final long flushDelay = this.bufferFlushDelay;
+		synchronized ( buffer ) {
+			buffer.putIfAbsent(metric.getId(), metric);
+			stats.increment(MetricDaoStat.MetricsBuffered);
+			if ( scheduler != null && flushDelay > 0 && buffer.size() < bufferSize ) {
+				if ( bufferFlushFuture == null ) {
+					bufferFlushFuture = scheduler.schedule(this::scheduledFlush,
+							Instant.now().plusMillis(flushDelay));
+				}
+				return;
+			}
+		}
+		try {
+			flushBuffer();
+		} catch ( RuntimeException e ) {
+			log.warn("Error flushing metric buffer, will try again later: {}", e.toString());
+		}
+	}
+
+	private void scheduledFlush() {
+		try {
+			flushBuffer();
+		} catch ( RuntimeException e ) {
+			log.warn("Error flushing metric buffer, will try again later: {}", e.toString());
+		}
+	}
+
+	/**
+	 * Persist all buffered metrics as a single batch.
+	 *
+	 * <p>
+	 * If persisting the batch fails, the metrics are returned to the buffer to
+	 * be tried again on the next flush, up to 10 times {@code bufferSize}
+	 * metrics.
+	 * </p>
+	 *
+	 * @return the number of metrics persisted
+	 * @throws RuntimeException
+	 *         if any error occurs persisting the metrics
+	 * @since 1.5
+	 */
+	public int flushBuffer() {
+		synchronized ( flushLock ) {
+			final List<Metric> batch;
+			synchronized ( buffer ) {
+				if ( bufferFlushFuture != null ) {
+					bufferFlushFuture.cancel(false);
+					bufferFlushFuture = null;
+				}
+				if ( buffer.isEmpty() ) {
+					return 0;
+				}
+				batch = new ArrayList<>(buffer.values());
+				buffer.clear();
+			}
+			final long start = System.currentTimeMillis();
+			try {
+				return saveAll(batch);
+			} catch ( RuntimeException e ) {
+				synchronized ( buffer ) {
+					final int max = Math.max(bufferSize, 1) * 10;
+					for ( Metric m : batch ) {
+						if ( buffer.size() >= max ) {
+							break;
+						}
+						buffer.putIfAbsent(m.getId(), m);
+					}
+				}
+				throw e;
+			} finally {
+				stats.add(MetricDaoStat.BufferDepth, batch.size());
+				stats.add(MetricDaoStat.BufferFlushTime, System.currentTimeMillis() - start);
+			}
+		}
+	}
+
+	/**
+	 * Persist a collection of metrics as a single batch.
+	 *
+	 * <p>
+	 * Metrics that already exist are ignored.
+	 * </p>
+	 *
+	 * @param metrics
+	 *        the metrics to persist
+	 * @return the number of metrics persisted
+	 * @since 1.5
+	 */
+	public int saveAll(Collection<Metric> metrics) {
+		if ( metrics == null || metrics.isEmpty() ) {
+			return 0;
+		}
+		final List<Metric> list = (metrics instanceof List<?> ? (List<Metric>) metrics
+				: new ArrayList<>(metrics));
+		final String sql = getSqlResource(SQL_INSERT_IGNORE);
+		final TransactionTemplate tt = getTransactionTemplate();
+		final List<Metric> stored = (tt != null ? tt.execute(status -> batchInsert(sql, list))
+				: batchInsert(sql, list));
+		for ( Metric m : stored ) {
+			postEntityEvent(m.getId(), m, EntityEventType.STORED);
+		}
+		if ( !stored.isEmpty() ) {
+			stats.increment(MetricDaoStat.MetricsStored, stored.size());
+		}
+		return stored.size();
+	}
+
+	private List<Metric> batchInsert(String sql, List<Metric> list) {
+		final int[][] counts = getJdbcTemplate().batchUpdate(sql, list, list.size(), (ps, m) -> {
+			setStoreStatementValues(m, ps);
+		});
+		final List<Metric> stored = new ArrayList<>(list.size());
+		int idx = 0;
+		for ( int[] batchCounts : counts ) {
+			for ( int count : batchCounts ) {
+				Metric m = list.get(idx++);
+				if ( count != 0 ) {
+					stored.add(m);
+				}
+			}
+		}
+		updateRollups(stored);
+		return stored;
+	}
+
+	/**
+	 * Merge metrics into their hourly and daily rollups.
+	 *
+	 * @param metrics
+	 *        the newly stored metrics
+	 */
+	private void updateRollups(Collection<Metric> metrics) {
+		if ( metrics.isEmpty() ) {
+			return;
+		}
+		final Map<MetricRollups.Key, MetricRollups.Summary> rollups = new LinkedHashMap<>(8);
+		for ( Metric m : metrics ) {
+			MetricRollups.add(rollups, m);
+		}
+		saveRollups(rollups);
+	}
+
+	private void saveRollups(Map<MetricRollups.Key, MetricRollups.Summary> rollups) {
+		if ( rollups.isEmpty() ) {
+			return;
+		}
+		final List<Entry<MetricRollups.Key, MetricRollups.Summary>> list = new ArrayList<>(
+				rollups.entrySet());
+		getJdbcTemplate().batchUpdate(getSqlResource(SQL_ROLLUP_UPSERT), list, list.size(),
+				(ps, e) -> {
+					final MetricRollups.Key k = e.getKey();
+					final MetricRollups.Summary v = e.getValue();
+					ps.setString(1, k.getAgg());
+					ps.setObject(2, k.getTimestamp().atOffset(UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+					ps.setString(3, k.getType());
+					ps.setString(4, k.getName());
+					ps.setLong(5, v.getCount());
+					ps.setDouble(6, v.getSum());
+					ps.setDouble(7, v.getMin());
+					ps.setDouble(8, v.getMax());
+				});
+	}
+
+	/**
+	 * Re-compute the rollups covering a date range from the stored metrics.
+	 *
+	 * <p>
+	 * The date range is expanded to whole days.
+	 * </p>
+	 *
+	 * @param start
+	 *        the starting date, or {@literal null} for no minimum
+	 * @param end
+	 *        the ending date (exclusive), or {@literal null} for no maximum
+	 * @param types
+	 *        the metric types, or {@literal null} for all types
+	 * @param names
+	 *        the metric names, or {@literal null} for all names
+	 * @since 1.6
+	 */
+	public void rebuildRollups(Instant start, Instant end, String[] types, String[] names) {
+		final BasicMetricFilter filter = new BasicMetricFilter();
+		filter.setStartDate(start != null ? MetricRollups.floorDay(start) : null);
+		filter.setEndDate(end != null ? MetricRollups.ceilDay(end) : null);
+		filter.setTypes(types);
+		filter.setNames(names);
+		final TransactionTemplate tt = getTransactionTemplate();
+		if ( tt != null ) {
+			tt.executeWithoutResult(status -> rebuildRollups(filter));
+		} else {
+			rebuildRollups(filter);
+		}
+	}
+
+	private void rebuildRollups(MetricFilter filter) {
+		final Map<MetricRollups.Key, MetricRollups.Summary> rollups = new LinkedHashMap<>(64);
+		final RowMapper<Metric> mapper = getRowMapper();
+		getJdbcTemplate().update(new DeleteMetrics(filter, MetricRollups.TABLE_NAME));
+		getJdbcTemplate().query(new SelectMetrics(filter), (RowCallbackHandler) rs -> {
+			MetricRollups.add(rollups, mapper.mapRow(rs, 0));
+		});
+		saveRollups(rollups);
+	}
+
+	/**
+	 * Get the number of metrics waiting in the write buffer.
+	 *
+	 * @return the buffered metric count
+	 * @since 1.5
+	 */
+	public int getBufferedCount() {
+		synchronized ( buffer ) {
+			return buffer.size();
+		}
+	}
+
+	@Override
+	public Metric get(MetricKey id) {
+		flushBufferQuietly();
+		return super.get(id);
+	}
+
+	@Override
+	public BatchResult batchProcess(BatchCallback<Metric> callback, BatchOptions options) {
+		flushBufferQuietly();
+		final BatchResult result = super.batchProcess(callback, options);
+		final Object deleted = (options != null && options.getParameters() != null
+				? options.getParameters().remove(BATCH_PARAM_DELETED_ROLLUPS)
+				: null);
+		if ( deleted instanceof Map<?, ?> ) {
+			for ( Entry<?, ?> e : ((Map<?, ?>) deleted).entrySet() ) {
+				final Instant day = (Instant) e.getKey();
+				final DeletedRollups r = (DeletedRollups) e.getValue();
+				rebuildRollups(day, day.plus(1, ChronoUnit.DAYS), r.types.toArray(String[]::new),
+						r.names.toArray(String[]::new));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The metric types and names deleted within a single rollup day.
+	 */
+	private static final class DeletedRollups {
+
+		private final Set<String> types = new LinkedHashSet<>(4);
+		private final Set<String> names = new LinkedHashSet<>(8);
+
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void addDeletedRollup(BatchOptions options, Metric entity) {
+		final Map<String, Object> params = options.getParameters();
+		if ( params == null || entity == null || entity.getTimestamp() == null ) {
+			return;
+		}
+		final Map<Instant, DeletedRollups> days = (Map<Instant, DeletedRollups>) params
+				.computeIfAbsent(BATCH_PARAM_DELETED_ROLLUPS, k -> new LinkedHashMap<>(4));
+		final DeletedRollups r = days.computeIfAbsent(MetricRollups.floorDay(entity.getTimestamp()),
+				k -> new DeletedRollups());
+		r.types.add(entity.getType());
+		r.names.add(entity.getName());
+	}
+
+	private void flushBufferQuietly() {
+		try {
+			flushBuffer();
+		} catch ( RuntimeException e ) {
+			log.warn("Error flushing metric buffer before query: {}", e.toString());
+		}
+	}
+
 	@Override
 	public FilterResults<Metric, MetricKey> findFiltered(MetricFilter filter, List<SortDescriptor> sorts,
 			Long offset, Integer max) {
-		SelectMetrics sql = new SelectMetrics(filter);
+		flushBufferQuietly();
+		SelectMetrics sql = new SelectMetrics(filter, SelectMetrics.DEFAULT_FETCH_SIZE, rollupQueries);
 		List<Metric> results = getJdbcTemplate().query(sql, getRowMapper());
 
 		Long totalResultCount = null;
@@ -207,6 +586,7 @@ public class JdbcMetricDao extends BaseJdbcBatchableDao<Metric, MetricKey>
 	protected void willDeleteBatchRowEntity(BatchOptions options, ResultSet queryResult, int intValue,
 			Metric entity) throws SQLException {
 		super.willDeleteBatchRowEntity(options, queryResult, intValue, entity);
+		addDeletedRollup(options, entity);
 		if ( TransactionSynchronizationManager.isSynchronizationActive() ) {
 			TransactionSynchronization txSynchronization = new TransactionSynchronization() {
 
@@ -225,10 +605,13 @@ public class JdbcMetricDao extends BaseJdbcBatchableDao<Metric, MetricKey>
 
 	@Override
 	public int deleteFiltered(MetricFilter filter) {
+		flushBufferQuietly();
 		DeleteMetrics sql = new DeleteMetrics(filter);
 		int result = getJdbcTemplate().update(sql);
 		if ( result > 0 ) {
 			stats.increment(MetricDaoStat.MetricsDeleted, result);
+			rebuildRollups(filter.getStartDate(), filter.getEndDate(), filter.getTypes(),
+					filter.getNames());
 		}
 		return result;
 	}
@@ -262,6 +645,10 @@ public class JdbcMetricDao extends BaseJdbcBatchableDao<Metric, MetricKey>
 		result.add(new BasicTitleSettingSpecifier("status", getStatusMessage(), true, true));
 		result.add(new BasicTextFieldSettingSpecifier("statLogFrequency",
 				String.valueOf(DEFAULT_STAT_LOG_FREQUENCY)));
+		result.add(new BasicTextFieldSettingSpecifier("bufferSize",
+				String.valueOf(DEFAULT_BUFFER_SIZE)));
+		result.add(new BasicTextFieldSettingSpecifier("bufferFlushDelay",
+				String.valueOf(DEFAULT_BUFFER_FLUSH_DELAY)));
 		return result;
 	}
 
@@ -273,11 +660,16 @@ public class JdbcMetricDao extends BaseJdbcBatchableDao<Metric, MetricKey>
 		} catch ( Exception e ) {
 			log.warn("Error finding metric row count.", e);
 		}
+		final Accumulation depth = stats.getAccumulation(MetricDaoStat.BufferDepth);
+		final Accumulation flushTime = stats.getAccumulation(MetricDaoStat.BufferFlushTime);
 		return getMessageSource().getMessage("status.msg",
 				new Object[] {
 						rowCount,
 						stats.get(MetricDaoStat.MetricsStored),
-						stats.get(MetricDaoStat.MetricsDeleted) },
+						stats.get(MetricDaoStat.MetricsDeleted),
+						getBufferedCount(),
+						depth != null ? Math.round(depth.avg()) : 0,
+						flushTime != null ? Math.round(flushTime.avg()) : 0 },
 				Locale.getDefault());
 		// @formatter:on
 	}
@@ -316,4 +708,97 @@ public class JdbcMetricDao extends BaseJdbcBatchableDao<Metric, MetricKey>
 		stats.setLogFrequency(logFrequency);
 	}
 
+	/**
+	 * Get the task scheduler.
+	 *
+	 * @return the task scheduler
+	 * @since 1.5
+	 */
+	public final TaskScheduler getTaskScheduler() {
+		return taskScheduler;
+	}
+
+	/**
+	 * Set the task scheduler.
+	 *
+	 * <p>
+	 * If not configured, buffered metrics are persisted immediately.
+	 * </p>
+	 *
+	 * @param taskScheduler
+	 *        the task scheduler to use for time-triggered buffer flushes
+	 * @since 1.5
+	 */
+	public final void setTaskScheduler(TaskScheduler taskScheduler) {
+		this.taskScheduler = taskScheduler;
+	}
+
+	/**
+	 * Get the buffer size.
+	 *
+	 * @return the number of buffered metrics that triggers a flush; defaults
+	 *         to {@link #DEFAULT_BUFFER_SIZE}
+	 * @since 1.5
+	 */
+	public final int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * Set the buffer size.
+	 *
+	 * @param bufferSize
+	 *        the number of buffered metrics that triggers a flush
+	 * @since 1.5
+	 */
+	public final void setBufferSize(int bufferSize) {
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * Get the buffer flush delay.
+	 *
+	 * @return the maximum number of milliseconds to buffer metrics for;
+	 *         defaults to {@link #DEFAULT_BUFFER_FLUSH_DELAY}
+	 * @since 1.5
+	 */
+	public final long getBufferFlushDelay() {
+		return bufferFlushDelay;
+	}
+
+	/**
+	 * Set the buffer flush delay.
+	 *
+	 * @param bufferFlushDelay
+	 *        the maximum number of milliseconds to buffer metrics for, or
+	 *        anything less than {@code 1} to persist metrics immediately
+	 * @since 1.5
+	 */
+	public final void setBufferFlushDelay(long bufferFlushDelay) {
+		this.bufferFlushDelay = bufferFlushDelay;
+	}
+
+	/**
+	 * Get the rollup queries mode.
+	 *
+	 * @return {@literal true} if aggregate queries can be computed from the
+	 *         hourly and daily rollups; defaults to {@literal true}
+	 * @since 1.6
+	 */
+	public final boolean isRollupQueries() {
+		return rollupQueries;
+	}
+
+	/**
+	 * Set the rollup queries mode.
+	 *
+	 * @param rollupQueries
+	 *        {@literal true} if aggregate queries can be computed from the
+	 *        hourly and daily rollups
+	 * @since 1.6
+	 */
+	public final void setRollupQueries(boolean rollupQueries) {
+		this.rollupQueries = rollupQueries;
+	}
+
 }
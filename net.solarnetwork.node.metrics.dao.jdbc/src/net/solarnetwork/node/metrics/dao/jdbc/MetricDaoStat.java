@@ -26,7 +26,7 @@ package net.solarnetwork.node.metrics.dao.jdbc;
  * Statics for the metric DAO.
  *
  * @author matt
- * @version 1.0
+ * @version 1.1
  */
 public enum MetricDaoStat {
 
@@ -36,6 +36,27 @@ public enum MetricDaoStat {
 	/** Messages deleted. */
 	MetricsDeleted("metrics deleted"),
 
+	/**
+	 * Metrics offered to the write buffer.
+	 *
+	 * @since 1.1
+	 */
+	MetricsBuffered("metrics buffered"),
+
+	/**
+	 * The write buffer depth at each flush.
+	 *
+	 * @since 1.1
+	 */
+	BufferDepth("buffer depth"),
+
+	/**
+	 * The time spent flushing the write buffer, in milliseconds.
+	 *
+	 * @since 1.1
+	 */
+	BufferFlushTime("buffer flush time"),
+
 	;
 
 	private final String description;
@@ -0,0 +1,280 @@
+/* ==================================================================
+ * MetricRollups.java - 19/10/2026 8:12:40 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.metrics.dao.jdbc;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Objects;
+import net.solarnetwork.node.metrics.domain.Metric;
+
+/**
+ * Support for hourly and daily metric rollups.
+ *
+ * <p>
+ * Rollups hold mergeable summaries (count, sum, minimum, maximum) of the raw
+ * metric values within a UTC hour or day, so that window aggregates can be
+ * computed from the rollups of all whole days and hours within the window,
+ * plus the raw values at the window edges.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 2.1
+ */
+public final class MetricRollups {
+
+	/** The rollup aggregation value for hourly rollups. */
+	public static final String AGG_HOUR = "h";
+
+	/** The rollup aggregation value for daily rollups. */
+	public static final String AGG_DAY = "d";
+
+	/** The rollup table name. */
+	public static final String TABLE_NAME = "solarnode.mtr_metric_agg";
+
+	private MetricRollups() {
+		// not available
+	}
+
+	/**
+	 * A rollup key.
+	 */
+	public static final class Key {
+
+		private final String agg;
+		private final Instant timestamp;
+		private final String type;
+		private final String name;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param agg
+		 *        the aggregation, i.e. {@link MetricRollups#AGG_HOUR} or
+		 *        {@link MetricRollups#AGG_DAY}
+		 * @param timestamp
+		 *        the rollup start date
+		 * @param type
+		 *        the metric type
+		 * @param name
+		 *        the metric name
+		 */
+		public Key(String agg, Instant timestamp, String type, String name) {
+			super();
+			this.agg = agg;
+			this.timestamp = timestamp;
+			this.type = type;
+			this.name = name;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(agg, timestamp, type, name);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if ( this == obj ) {
+				return true;
+			}
+			if ( !(obj instanceof Key) ) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return Objects.equals(agg, other.agg) && Objects.equals(timestamp, other.timestamp)
+					&& Objects.equals(type, other.type) && Objects.equals(name, other.name);
+		}
+
+		/**
+		 * Get the aggregation.
+		 *
+		 * @return the aggregation
+		 */
+		public String getAgg() {
+			return agg;
+		}
+
+		/**
+		 * Get the rollup start date.
+		 *
+		 * @return the timestamp
+		 */
+		public Instant getTimestamp() {
+			return timestamp;
+		}
+
+		/**
+		 * Get the metric type.
+		 *
+		 * @return the type
+		 */
+		public String getType() {
+			return type;
+		}
+
+		/**
+		 * Get the metric name.
+		 *
+		 * @return the name
+		 */
+		public String getName() {
+			return name;
+		}
+
+	}
+
+	/**
+	 * A mergeable summary of metric values.
+	 */
+	public static final class Summary {
+
+		private long count;
+		private double sum;
+		private double min = Double.NaN;
+		private double max = Double.NaN;
+
+		/**
+		 * Add a value to the summary.
+		 *
+		 * @param value
+		 *        the value to add
+		 */
+		public void add(double value) {
+			if ( count++ == 0 ) {
+				min = value;
+				max = value;
+			} else {
+				if ( value < min ) {
+					min = value;
+				}
+				if ( value > max ) {
+					max = value;
+				}
+			}
+			sum += value;
+		}
+
+		/**
+		 * Get the count of values.
+		 *
+		 * @return the count
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * Get the sum of values.
+		 *
+		 * @return the sum
+		 */
+		public double getSum() {
+			return sum;
+		}
+
+		/**
+		 * Get the minimum value.
+		 *
+		 * @return the minimum, or {@code NaN} if no values have been added
+		 */
+		public double getMin() {
+			return min;
+		}
+
+		/**
+		 * Get the maximum value.
+		 *
+		 * @return the maximum, or {@code NaN} if no values have been added
+		 */
+		public double getMax() {
+			return max;
+		}
+
+	}
+
+	/**
+	 * Add a metric to its hourly and daily rollups.
+	 *
+	 * @param rollups
+	 *        the rollups to add to
+	 * @param metric
+	 *        the metric to add
+	 */
+	public static void add(Map<Key, Summary> rollups, Metric metric) {
+		final Instant ts = metric.getTimestamp();
+		rollups.computeIfAbsent(new Key(AGG_HOUR, floorHour(ts), metric.getType(), metric.getName()),
+				k -> new Summary()).add(metric.getValue());
+		rollups.computeIfAbsent(new Key(AGG_DAY, floorDay(ts), metric.getType(), metric.getName()),
+				k -> new Summary()).add(metric.getValue());
+	}
+
+	/**
+	 * Truncate a date to the start of its UTC hour.
+	 *
+	 * @param date
+	 *        the date
+	 * @return the truncated date
+	 */
+	public static Instant floorHour(Instant date) {
+		return date.truncatedTo(ChronoUnit.HOURS);
+	}
+
+	/**
+	 * Round a date up to the next UTC hour, unless it is already at the start
+	 * of an hour.
+	 *
+	 * @param date
+	 *        the date
+	 * @return the rounded date
+	 */
+	public static Instant ceilHour(Instant date) {
+		Instant t = floorHour(date);
+		return (t.equals(date) ? t : t.plus(1, ChronoUnit.HOURS));
+	}
+
+	/**
+	 * Truncate a date to the start of its UTC day.
+	 *
+	 * @param date
+	 *        the date
+	 * @return the truncated date
+	 */
+	public static Instant floorDay(Instant date) {
+		return date.truncatedTo(ChronoUnit.DAYS);
+	}
+
+	/**
+	 * Round a date up to the next UTC day, unless it is already at the start
+	 * of a day.
+	 *
+	 * @param date
+	 *        the date
+	 * @return the rounded date
+	 */
+	public static Instant ceilDay(Instant date) {
+		Instant t = floorDay(date);
+		return (t.equals(date) ? t : t.plus(1, ChronoUnit.DAYS));
+	}
+
+}
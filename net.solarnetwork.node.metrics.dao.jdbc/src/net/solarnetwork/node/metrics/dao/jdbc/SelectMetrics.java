@@ -30,6 +30,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.time.Instant;
 import java.util.List;
 import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.PreparedStatementSetter;
@@ -43,8 +44,18 @@ import net.solarnetwork.util.ObjectUtils;
 /**
  * Generate {@code SELECT} SQL for metric values based on a filter.
  *
+ * <p>
+ * When rollups are enabled and the filter specifies a date range, the
+ * aggregates that can be merged from rollup summaries (all but quantiles) are
+ * computed from the daily rollups of whole days in the date range, the hourly
+ * rollups of the remaining whole hours, and the raw values of the remaining
+ * edges. Quantiles cannot be merged from the rollup summaries, so any
+ * requested quantiles are computed from the raw values of the whole date range
+ * and joined to the rollup aggregates.
+ * </p>
+ *
  * @author matt
- * @version 1.4
+ * @version 1.5
  */
 public class SelectMetrics implements PreparedStatementCreator, PreparedStatementSetter, SqlProvider {
 
@@ -53,6 +64,7 @@ public class SelectMetrics implements PreparedStatementCreator, PreparedStatemen
 
 	private final MetricFilter filter;
 	private final int fetchSize;
+	private final Instant[] rollupRanges;
 
 	/**
 	 * Constructor.
@@ -77,9 +89,66 @@ public class SelectMetrics implements PreparedStatementCreator, PreparedStatemen
 	 *         if any argument is {@literal null}
 	 */
 	public SelectMetrics(MetricFilter filter, int fetchSize) {
+		this(filter, fetchSize, false);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param filter
+	 *        the filter
+	 * @param fetchSize
+	 *        the fetch size, or {@code 0} to not specify
+	 * @param rollups
+	 *        {@literal true} to compute aggregates from rollups when possible
+	 * @throws IllegalArgumentException
+	 *         if any argument is {@literal null}
+	 * @since 1.5
+	 */
+	public SelectMetrics(MetricFilter filter, int fetchSize, boolean rollups) {
 		super();
 		this.filter = ObjectUtils.requireNonNullArgument(filter, "filter");
 		this.fetchSize = fetchSize;
+		this.rollupRanges = (rollups ? rollupRanges(filter) : null);
+	}
+
+	/**
+	 * Get the rollup date ranges for a filter.
+	 *
+	 * @param filter
+	 *        the filter
+	 * @return the range dates, in the order: start date, first hour, first
+	 *         day, last day, last hour, end date; or {@literal null} if
+	 *         rollups are not supported for the filter
+	 */
+	private static Instant[] rollupRanges(MetricFilter filter) {
+		if ( !(filter.hasAggregateCriteria() && filter.hasStartDate() && filter.hasEndDate()) ) {
+			return null;
+		}
+		final Instant start = filter.getStartDate();
+		final Instant end = filter.getEndDate();
+		final Instant h1 = MetricRollups.ceilHour(start);
+		final Instant h2 = MetricRollups.floorHour(end);
+		if ( !h1.isBefore(h2) ) {
+			return null;
+		}
+		Instant d1 = MetricRollups.ceilDay(h1);
+		Instant d2 = MetricRollups.floorDay(h2);
+		if ( !d1.isBefore(d2) ) {
+			d1 = h2;
+			d2 = h2;
+		}
+		return new Instant[] { start, h1, d1, d2, h2, end };
+	}
+
+	/**
+	 * Test if aggregates will be computed from rollups.
+	 *
+	 * @return {@literal true} if aggregates will be computed from rollups
+	 * @since 1.5
+	 */
+	public boolean isRollup() {
+		return rollupRanges != null;
 	}
 
 	@Override
@@ -130,6 +199,10 @@ public class SelectMetrics implements PreparedStatementCreator, PreparedStatemen
 	}
 
 	private void sqlAgg(StringBuilder buf) {
+		if ( rollupRanges != null ) {
+			sqlRollupAgg(buf);
+			return;
+		}
 		buf.append("WITH m AS (\n");
 		buf.append("\tSELECT mname\n");
 		int idx = 0;
@@ -164,8 +237,116 @@ public class SelectMetrics implements PreparedStatementCreator, PreparedStatemen
 		sqlWhere(buf);
 		buf.append("\tGROUP BY mname\n");
 		buf.append(")\n");
-		buf.append(", d AS (");
+		sqlAggRows(buf);
+	}
+
+	private void sqlRollupAgg(StringBuilder buf) {
+		buf.append("WITH r AS (\n");
+		buf.append("\tSELECT mname, cnt, vsum, vmin, vmax\n");
+		buf.append("\tFROM ").append(MetricRollups.TABLE_NAME).append("\n");
+		buf.append("\tWHERE ((agg = '").append(MetricRollups.AGG_DAY)
+				.append("' AND ts >= ? AND ts < ?)\n");
+		buf.append("\t\tOR (agg = '").append(MetricRollups.AGG_HOUR)
+				.append("' AND ((ts >= ? AND ts < ?) OR (ts >= ? AND ts < ?))))\n");
+		sqlRollupWhereCriteria(buf);
+		buf.append("\tUNION ALL\n");
+		buf.append("\tSELECT mname, CASE WHEN val IS NULL THEN 0 ELSE 1 END, val, val, val\n");
+		buf.append("\tFROM solarnode.mtr_metric\n");
+		buf.append("\tWHERE ((ts >= ? AND ts < ?) OR (ts >= ? AND ts < ?))\n");
+		sqlRollupWhereCriteria(buf);
+		buf.append(")\n");
+		final boolean quantiles = hasQuantileAggregate();
+		buf.append(", ").append(quantiles ? "rm" : "m").append(" AS (\n");
+		buf.append("\tSELECT mname\n");
+		int idx = 0;
+		for ( MetricAggregate agg : filter.getAggregates() ) {
+			if ( MetricAggregate.METRIC_TYPE_QUANTILE.equals(agg.getType()) ) {
+				idx++;
+				continue;
+			}
+			buf.append("\t\t, ");
+			switch (agg.getType()) {
+				case MetricAggregate.METRIC_TYPE_AVERAGE:
+					buf.append("sum(vsum) / NULLIF(sum(cnt), 0)");
+					break;
+				case MetricAggregate.METRIC_TYPE_MAXIMUM:
+					buf.append("max(vmax)");
+					break;
+				case MetricAggregate.METRIC_TYPE_MINIMUM:
+					buf.append("min(vmin)");
+					break;
+				case MetricAggregate.METRIC_TYPE_COUNT:
+					buf.append("sum(cnt)");
+					break;
+				case MetricAggregate.METRIC_TYPE_SUM:
+					buf.append("sum(vsum)");
+					break;
+				default:
+					throw new IllegalArgumentException(
+							format("MetricAggregate type [%s] not supported.", agg.getType()));
+			}
+			buf.append(" AS m").append(idx++).append("\n");
+		}
+		buf.append("\tFROM r\n");
+		buf.append("\tGROUP BY mname\n");
+		buf.append(")\n");
+		if ( quantiles ) {
+			sqlRollupQuantiles(buf);
+		}
+		sqlAggRows(buf);
+	}
+
+	private void sqlRollupQuantiles(StringBuilder buf) {
+		buf.append(", q AS (\n");
+		buf.append("\tSELECT mname\n");
+		int idx = 0;
+		for ( MetricAggregate agg : filter.getAggregates() ) {
+			if ( MetricAggregate.METRIC_TYPE_QUANTILE.equals(agg.getType()) ) {
+				buf.append("\t\t, percentile_cont(?) WITHIN GROUP (ORDER BY val) AS m").append(idx)
+						.append("\n");
+			}
+			idx++;
+		}
+		buf.append("\tFROM solarnode.mtr_metric\n");
+		buf.append("\tWHERE ts >= ? AND ts < ?\n");
+		sqlRollupWhereCriteria(buf);
+		buf.append("\tGROUP BY mname\n");
+		buf.append(")\n");
+		buf.append(", m AS (\n");
+		buf.append("\tSELECT rm.mname\n");
 		idx = 0;
+		for ( MetricAggregate agg : filter.getAggregates() ) {
+			buf.append("\t\t, ")
+					.append(MetricAggregate.METRIC_TYPE_QUANTILE.equals(agg.getType()) ? "q" : "rm")
+					.append(".m").append(idx).append(" AS m").append(idx).append("\n");
+			idx++;
+		}
+		buf.append("\tFROM rm\n");
+		buf.append("\tLEFT OUTER JOIN q ON q.mname = rm.mname\n");
+		buf.append(")\n");
+	}
+
+	private boolean hasQuantileAggregate() {
+		for ( MetricAggregate agg : filter.getAggregates() ) {
+			if ( MetricAggregate.METRIC_TYPE_QUANTILE.equals(agg.getType()) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void sqlRollupWhereCriteria(StringBuilder buf) {
+		if ( filter.hasTypeCriteria() ) {
+			buf.append("\t\tAND mtype = ANY(?)\n");
+		}
+		if ( filter.hasNameCriteria() ) {
+			buf.append("\t\tAND mname = ANY(?)\n");
+		}
+	}
+
+	private void sqlAggRows(StringBuilder buf) {
+		buf.append(", d AS (");
+		int idx = 0;
 		for ( MetricAggregate agg : filter.getAggregates() ) {
 			if ( idx > 0 ) {
 				buf.append("\tUNION ALL\n");
@@ -266,6 +447,9 @@ public class SelectMetrics implements PreparedStatementCreator, PreparedStatemen
 	}
 
 	private int prepareWhere(PreparedStatement stmt, int p) throws SQLException {
+		if ( rollupRanges != null ) {
+			return prepareRollupWhere(stmt, p);
+		}
 		if ( filter.hasAggregateCriteria() ) {
 			for ( MetricAggregate agg : filter.getAggregates() ) {
 				if ( MetricAggregate.METRIC_TYPE_QUANTILE.equals(agg.getType()) ) {
@@ -292,6 +476,49 @@ public class SelectMetrics implements PreparedStatementCreator, PreparedStatemen
 		return p;
 	}
 
+	private int prepareRollupWhere(PreparedStatement stmt, int p) throws SQLException {
+		final Instant[] r = rollupRanges;
+		// daily: [d1, d2), hourly: [h1, d1), [d2, h2)
+		p = prepareDates(stmt, p, r[2], r[3], r[1], r[2], r[3], r[4]);
+		p = prepareCriteria(stmt, p);
+		// raw: [start, h1), [h2, end)
+		p = prepareDates(stmt, p, r[0], r[1], r[4], r[5]);
+		p = prepareCriteria(stmt, p);
+		if ( hasQuantileAggregate() ) {
+			// quantiles from raw: [start, end)
+			for ( MetricAggregate agg : filter.getAggregates() ) {
+				if ( MetricAggregate.METRIC_TYPE_QUANTILE.equals(agg.getType()) ) {
+					stmt.setObject(++p, agg.numberParameter(0));
+				}
+			}
+			p = prepareDates(stmt, p, r[0], r[5]);
+			p = prepareCriteria(stmt, p);
+		}
+		return p;
+	}
+
+	private static int prepareDates(PreparedStatement stmt, int p, Instant... dates)
+			throws SQLException {
+		for ( Instant date : dates ) {
+			stmt.setObject(++p, date.atOffset(UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+		}
+		return p;
+	}
+
+	private int prepareCriteria(PreparedStatement stmt, int p) throws SQLException {
+		if ( filter.hasTypeCriteria() ) {
+			Array a = stmt.getConnection().createArrayOf("VARCHAR", filter.getTypes());
+			stmt.setArray(++p, a);
+			a.free();
+		}
+		if ( filter.hasNameCriteria() ) {
+			Array a = stmt.getConnection().createArrayOf("VARCHAR", filter.getNames());
+			stmt.setArray(++p, a);
+			a.free();
+		}
+		return p;
+	}
+
 	private int preparePagination(PreparedStatement stmt, int p) throws SQLException {
 		if ( filter.getOffset() != null ) {
 			stmt.setLong(++p, filter.getOffset());
@@ -0,0 +1,12 @@
+MERGE INTO solarnode.mtr_metric_agg t
+USING (VALUES (CAST(? AS CHAR(1)), CAST(? AS TIMESTAMP WITH TIME ZONE), CAST(? AS VARCHAR(64)), CAST(? AS VARCHAR(128)),
+		CAST(? AS BIGINT), CAST(? AS DOUBLE PRECISION), CAST(? AS DOUBLE PRECISION), CAST(? AS DOUBLE PRECISION)))
+	AS s (agg, ts, mtype, mname, cnt, vsum, vmin, vmax)
+ON t.agg = s.agg AND t.ts = s.ts AND t.mtype = s.mtype AND t.mname = s.mname
+WHEN MATCHED THEN UPDATE SET
+	cnt = t.cnt + s.cnt,
+	vsum = t.vsum + s.vsum,
+	vmin = LEAST(t.vmin, s.vmin),
+	vmax = GREATEST(t.vmax, s.vmax)
+WHEN NOT MATCHED THEN INSERT (agg, ts, mtype, mname, cnt, vsum, vmin, vmax)
+	VALUES (s.agg, s.ts, s.mtype, s.mname, s.cnt, s.vsum, s.vmin, s.vmax)
@@ -15,5 +15,17 @@ CREATE TABLE IF NOT EXISTS solarnode.mtr_metric (
 	CONSTRAINT mtr_metric_pk PRIMARY KEY (ts, mtype, mname)
 );
 
+CREATE TABLE IF NOT EXISTS solarnode.mtr_metric_agg (
+	agg					CHAR(1) NOT NULL,
+	ts					TIMESTAMP WITH TIME ZONE NOT NULL,
+	mtype				VARCHAR(64) NOT NULL,
+	mname				VARCHAR(128) NOT NULL,
+	cnt					BIGINT NOT NULL,
+	vsum				DOUBLE PRECISION,
+	vmin				DOUBLE PRECISION,
+	vmax				DOUBLE PRECISION,
+	CONSTRAINT mtr_metric_agg_pk PRIMARY KEY (agg, ts, mtype, mname)
+);
+
 INSERT INTO solarnode.mtr_metric_meta (skey, svalue) 
-VALUES ('solarnode.metric.version', '1');
+VALUES ('solarnode.metric.version', '2');
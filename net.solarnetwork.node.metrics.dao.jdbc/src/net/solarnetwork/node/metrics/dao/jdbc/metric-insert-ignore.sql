@@ -0,0 +1,5 @@
+MERGE INTO solarnode.mtr_metric t
+USING (VALUES (CAST(? AS TIMESTAMP WITH TIME ZONE), CAST(? AS VARCHAR(64)), CAST(? AS VARCHAR(128)), CAST(? AS DOUBLE PRECISION)))
+	AS s (ts, mtype, mname, val)
+ON t.ts = s.ts AND t.mtype = s.mtype AND t.mname = s.mname
+WHEN NOT MATCHED THEN INSERT (ts, mtype, mname, val) VALUES (s.ts, s.mtype, s.mname, s.val)
@@ -0,0 +1,14 @@
+CREATE TABLE IF NOT EXISTS solarnode.mtr_metric_agg (
+	agg					CHAR(1) NOT NULL,
+	ts					TIMESTAMP WITH TIME ZONE NOT NULL,
+	mtype				VARCHAR(64) NOT NULL,
+	mname				VARCHAR(128) NOT NULL,
+	cnt					BIGINT NOT NULL,
+	vsum				DOUBLE PRECISION,
+	vmin				DOUBLE PRECISION,
+	vmax				DOUBLE PRECISION,
+	CONSTRAINT mtr_metric_agg_pk PRIMARY KEY (agg, ts, mtype, mname)
+);
+
+UPDATE solarnode.mtr_metric_meta SET svalue = '2'
+WHERE skey = 'solarnode.metric.version';
@@ -0,0 +1,7 @@
+INSERT INTO solarnode.mtr_metric_agg (agg, ts, mtype, mname, cnt, vsum, vmin, vmax)
+VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+ON CONFLICT (agg, ts, mtype, mname) DO UPDATE SET
+	cnt = mtr_metric_agg.cnt + EXCLUDED.cnt,
+	vsum = mtr_metric_agg.vsum + EXCLUDED.vsum,
+	vmin = LEAST(mtr_metric_agg.vmin, EXCLUDED.vmin),
+	vmax = GREATEST(mtr_metric_agg.vmax, EXCLUDED.vmax)
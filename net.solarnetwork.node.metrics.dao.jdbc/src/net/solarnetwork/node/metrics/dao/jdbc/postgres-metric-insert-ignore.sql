@@ -0,0 +1,3 @@
+INSERT INTO solarnode.mtr_metric (ts, mtype, mname, val) 
+VALUES (?, ?, ?, ?)
+ON CONFLICT (ts, mtype, mname) DO NOTHING
\ No newline at end of file
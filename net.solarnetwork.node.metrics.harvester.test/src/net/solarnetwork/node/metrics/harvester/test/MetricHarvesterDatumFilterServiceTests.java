@@ -25,7 +25,7 @@ package net.solarnetwork.node.metrics.harvester.test;
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.singleton;
 import static org.easymock.EasyMock.capture;
-import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
@@ -58,7 +58,7 @@ import net.solarnetwork.service.StaticOptionalServiceCollection;
  * Test cases for the {@link MetricHarvesterDatumFilterService} class.
  *
  * @author matt
- * @version 1.0
+ * @version 1.1
  */
 public class MetricHarvesterDatumFilterServiceTests {
 
@@ -107,9 +107,7 @@ public class MetricHarvesterDatumFilterServiceTests {
 		SimpleDatum d = createTestDatum(start, SOURCE_ID_1, PROP_1, 1);
 
 		Capture<Metric> metricCaptor = Capture.newInstance();
-		expect(metricDao.save(capture(metricCaptor))).andAnswer(() -> {
-			return metricCaptor.getValue().getId();
-		});
+		metricDao.offer(capture(metricCaptor));
 
 		// WHEN
 		replayAll();
@@ -140,9 +138,7 @@ public class MetricHarvesterDatumFilterServiceTests {
 		SimpleDatum d = createTestDatum(start, SOURCE_ID_1, PROP_1, 1);
 
 		Capture<Metric> metricCaptor = Capture.newInstance();
-		expect(metricDao.save(capture(metricCaptor))).andAnswer(() -> {
-			return metricCaptor.getValue().getId();
-		});
+		metricDao.offer(capture(metricCaptor));
 
 		// WHEN
 		replayAll();
@@ -178,10 +174,8 @@ public class MetricHarvesterDatumFilterServiceTests {
 		service.setExpressionConfigs(new ExpressionConfig[] { config1, config2 });
 
 		Capture<Metric> metricCaptor = Capture.newInstance(CaptureType.ALL);
-		expect(metricDao.save(capture(metricCaptor))).andAnswer(() -> {
-			List<Metric> metrics = metricCaptor.getValues();
-			return metrics.get(metrics.size() - 1).getId();
-		}).times(2);
+		metricDao.offer(capture(metricCaptor));
+		expectLastCall().times(2);
 
 		// WHEN
 		replayAll();
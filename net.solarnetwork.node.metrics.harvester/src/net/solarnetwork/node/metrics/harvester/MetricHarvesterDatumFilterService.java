@@ -32,7 +32,6 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
-import org.springframework.dao.DuplicateKeyException;
 import net.solarnetwork.domain.datum.Datum;
 import net.solarnetwork.domain.datum.DatumSamples;
 import net.solarnetwork.domain.datum.DatumSamplesOperations;
@@ -55,7 +54,7 @@ import net.solarnetwork.util.ObjectUtils;
  * Datum filter service that "harvests" datum properties as metric values.
  *
  * @author matt
- * @version 1.1
+ * @version 1.2
  */
 public class MetricHarvesterDatumFilterService extends BaseDatumFilterSupport
 		implements DatumFilterService, SettingSpecifierProvider {
@@ -146,11 +145,7 @@ public class MetricHarvesterDatumFilterService extends BaseDatumFilterSupport
 	}
 
 	private void saveMetric(Metric m) {
-		try {
-			metricDao.save(m);
-		} catch ( DuplicateKeyException e ) {
-			log.debug("Ignoring metric value update.");
-		}
+		metricDao.offer(m);
 	}
 
 	@Override
@@ -25,6 +25,7 @@ package net.solarnetwork.node.metrics.dao;
 import static java.util.Arrays.asList;
 import static java.util.Collections.unmodifiableList;
 import java.util.List;
+import org.springframework.dao.DuplicateKeyException;
 import net.solarnetwork.dao.BatchableDao;
 import net.solarnetwork.dao.FilterableDao;
 import net.solarnetwork.dao.GenericDao;
@@ -37,7 +38,7 @@ import net.solarnetwork.node.metrics.domain.MetricKey;
  * DAO API for {@link Metric} entities.
  *
  * @author matt
- * @version 1.1
+ * @version 1.2
  */
 public interface MetricDao extends GenericDao<Metric, MetricKey>,
 		FilterableDao<Metric, MetricKey, MetricFilter>, BatchableDao<Metric> {
@@ -85,4 +86,26 @@ public interface MetricDao extends GenericDao<Metric, MetricKey>,
 	 */
 	int deleteFiltered(MetricFilter filter);
 
+	/**
+	 * Offer a metric to be persisted at some point in the future.
+	 *
+	 * <p>
+	 * Implementations may buffer metrics and persist them in batches. A metric
+	 * with the same key as one already persisted is ignored. This default
+	 * implementation calls {@code save(metric)} immediately, ignoring any
+	 * {@link DuplicateKeyException}.
+	 * </p>
+	 *
+	 * @param metric
+	 *        the metric to persist
+	 * @since 1.2
+	 */
+	default void offer(Metric metric) {
+		try {
+			save(metric);
+		} catch ( DuplicateKeyException e ) {
+			// ignore
+		}
+	}
+
 }
@@ -68,7 +68,7 @@ import net.solarnetwork.node.test.AbstractNodeTransactionalTest;
  * Test case for the {@link JdbcInstructionDao} class.
  *
  * @author matt
- * @version 2.2
+ * @version 2.3
  */
 public class JdbcInstructionDaoTests extends AbstractNodeTransactionalTest {
 
@@ -279,6 +279,37 @@ public class JdbcInstructionDaoTests extends AbstractNodeTransactionalTest {
 		assertThat("Immediate instruction returned", results.get(0).getId(), is(equalTo(instr.getId())));
 	}
 
+	@Test
+	public void findByState_withDeferredInstructionsUpToDate() {
+		// GIVEN
+		storeNew();
+		Instruction instr = lastDatum;
+
+		final Instant executeDate = Instant.now().truncatedTo(ChronoUnit.MINUTES).plus(1,
+				ChronoUnit.HOURS);
+		BasicInstruction instr2 = new BasicInstruction(
+				Math.abs(UUID.randomUUID().getMostSignificantBits()), TEST_TOPIC, Instant.now(),
+				TEST_INSTRUCTOR, null);
+		instr2.addParameter(Instruction.PARAM_EXECUTION_DATE,
+				DateTimeFormatter.ISO_INSTANT.format(executeDate));
+		dao.storeInstruction(instr2);
+		BasicInstruction instr3 = new BasicInstruction(
+				Math.abs(UUID.randomUUID().getMostSignificantBits()), TEST_TOPIC, Instant.now(),
+				TEST_INSTRUCTOR, null);
+		instr3.addParameter(Instruction.PARAM_EXECUTION_DATE,
+				DateTimeFormatter.ISO_INSTANT.format(executeDate.plus(1, ChronoUnit.DAYS)));
+		dao.storeInstruction(instr3);
+
+		// WHEN
+		List<Instruction> results = dao.findInstructionsForState(InstructionState.Received,
+				executeDate);
+
+		// THEN
+		assertThat("Immediate and deferred instructions up to date returned",
+				results.stream().map(Instruction::getId).collect(Collectors.toList()),
+				containsInAnyOrder(instr.getId(), instr2.getId()));
+	}
+
 	@Test
 	public void findByStateAndParent() {
 		// GIVEN
@@ -57,7 +57,7 @@ import net.solarnetwork.node.reactor.InstructionStatus;
  * JDBC implementation of {@link JdbcInstructionDao}.
  *
  * @author matt
- * @version 2.2
+ * @version 2.3
  */
 public class JdbcInstructionDao extends AbstractJdbcDao<Instruction> implements InstructionDao {
 
@@ -342,9 +342,21 @@ public class JdbcInstructionDao extends AbstractJdbcDao<Instruction> implements
 	@Override
 	@Transactional(readOnly = true, propagation = Propagation.REQUIRED)
 	public List<Instruction> findInstructionsForState(InstructionState state) {
+		return findInstructionsForState(state, Instant.now());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @since 2.3
+	 */
+	@Override
+	@Transactional(readOnly = true, propagation = Propagation.REQUIRED)
+	public List<Instruction> findInstructionsForState(InstructionState state,
+			Instant maxExecutionDate) {
 		return getJdbcTemplate().query(getSqlResource(RESOURCE_SQL_SELECT_INSTRUCTION_FOR_STATE), ps -> {
 			ps.setString(1, state.toString());
-			JdbcUtils.setUtcTimestampStatementValue(ps, 2, Instant.now());
+			JdbcUtils.setUtcTimestampStatementValue(ps, 2, maxExecutionDate);
 		}, (ResultSetExtractor<List<Instruction>>) rs -> extractInstructions(rs));
 	}
 
@@ -0,0 +1,321 @@
+/* ==================================================================
+ * InstructionTimerTests.java - 19/10/2026 3:02:18 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.reactor.simple.test;
+
+import static net.solarnetwork.domain.InstructionStatus.InstructionState.Completed;
+import static net.solarnetwork.domain.InstructionStatus.InstructionState.Executing;
+import static net.solarnetwork.domain.InstructionStatus.InstructionState.Received;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import net.solarnetwork.node.reactor.BasicInstruction;
+import net.solarnetwork.node.reactor.BasicInstructionStatus;
+import net.solarnetwork.node.reactor.Instruction;
+import net.solarnetwork.node.reactor.InstructionDao;
+import net.solarnetwork.node.reactor.InstructionExecutionService;
+import net.solarnetwork.node.reactor.InstructionStatus;
+import net.solarnetwork.node.reactor.InstructionUtils;
+import net.solarnetwork.node.reactor.simple.InstructionExecutionJob;
+import net.solarnetwork.node.reactor.simple.InstructionTimer;
+
+/**
+ * Test cases for the {@link InstructionTimer} class.
+ *
+ * @author matt
+ * @version 1.0
+ */
+public class InstructionTimerTests {
+
+	private static final String TEST_INSTRUCTOR_ID = "test.instructor";
+
+	private static final class TestClock extends Clock {
+
+		private Instant now;
+
+		private TestClock(Instant now) {
+			super();
+			this.now = now;
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+
+		private void advance(long ms) {
+			now = now.plusMillis(ms);
+		}
+
+	}
+
+	private InstructionDao instructionDao;
+	private InstructionExecutionService instructionExecutionService;
+	private TestClock clock;
+	private InstructionTimer timer;
+
+	@Before
+	public void setup() {
+		instructionDao = EasyMock.createMock(InstructionDao.class);
+		instructionExecutionService = EasyMock.createMock(InstructionExecutionService.class);
+		clock = new TestClock(Instant.now());
+		timer = new InstructionTimer(instructionDao,
+				new InstructionExecutionJob(instructionDao, instructionExecutionService), clock);
+	}
+
+	@After
+	public void teardown() {
+		EasyMock.verify(instructionDao, instructionExecutionService);
+	}
+
+	private void replayAll() {
+		EasyMock.replay(instructionDao, instructionExecutionService);
+	}
+
+	private BasicInstruction instruction(long id, long offsetMs) {
+		BasicInstruction instr = new BasicInstruction(id, "test", clock.instant(),
+				TEST_INSTRUCTOR_ID, new BasicInstructionStatus(id, Received, clock.instant()));
+		instr.addParameter(Instruction.PARAM_EXECUTION_DATE,
+				String.valueOf(clock.millis() + offsetMs));
+		return instr;
+	}
+
+	private void expectExecution(Instruction instr, List<Long> executed) {
+		expect(instructionDao.compareAndStoreInstructionStatus(eq(instr.getId()),
+				eq(TEST_INSTRUCTOR_ID), eq(Received), anyObject())).andReturn(true);
+		expect(instructionExecutionService.executeInstruction(instr)).andAnswer(() -> {
+			executed.add(instr.getId());
+			return InstructionUtils.createStatus(instr, Completed);
+		});
+		expect(instructionDao.compareAndStoreInstructionStatus(eq(instr.getId()),
+				eq(TEST_INSTRUCTOR_ID), eq(Executing), anyObject())).andReturn(true);
+	}
+
+	@Test
+	public void fireAtExecutionDate() {
+		// GIVEN
+		final BasicInstruction instr = instruction(1L, 2000L);
+		final List<Long> executed = new ArrayList<>();
+		expectExecution(instr, executed);
+
+		// WHEN
+		replayAll();
+		boolean armed = timer.arm(instr);
+		clock.advance(1999L);
+		int firedEarly = timer.fireExpired();
+		clock.advance(1L);
+		int fired = timer.fireExpired();
+
+		// THEN
+		assertThat("Instruction armed", armed, is(equalTo(true)));
+		assertThat("Nothing fired before execution date", firedEarly, is(equalTo(0)));
+		assertThat("Instruction fired at execution date", fired, is(equalTo(1)));
+		assertThat("Instruction executed", executed, contains(1L));
+		assertThat("Nothing left armed", timer.getArmedCount(), is(equalTo(0)));
+	}
+
+	@Test
+	public void fireInExecutionDateOrder() {
+		// GIVEN
+		final BasicInstruction instr1 = instruction(1L, 5000L);
+		final BasicInstruction instr2 = instruction(2L, 0L);
+		final BasicInstruction instr3 = instruction(3L, 2000L);
+		final List<Long> executed = new ArrayList<>();
+		expectExecution(instr2, executed);
+		expectExecution(instr3, executed);
+		expectExecution(instr1, executed);
+
+		// WHEN
+		replayAll();
+		timer.arm(instr1);
+		timer.arm(instr2);
+		timer.arm(instr3);
+		List<Integer> fired = new ArrayList<>();
+		for ( int i = 0; i < 6; i++ ) {
+			fired.add(timer.fireExpired());
+			clock.advance(1000L);
+		}
+
+		// THEN
+		assertThat("Instructions fired in the second they are due", fired,
+				contains(1, 0, 1, 0, 0, 1));
+		assertThat("Instructions executed in date order", executed, contains(2L, 3L, 1L));
+	}
+
+	@Test
+	public void armDuplicateIgnored() {
+		// GIVEN
+		final BasicInstruction instr = instruction(1L, 1000L);
+
+		// WHEN
+		replayAll();
+		boolean armed1 = timer.arm(instr);
+		boolean armed2 = timer.arm(instruction(1L, 1000L));
+
+		// THEN
+		assertThat("Instruction armed", armed1, is(equalTo(true)));
+		assertThat("Same instruction not armed again", armed2, is(equalTo(false)));
+		assertThat("One instruction armed", timer.getArmedCount(), is(equalTo(1)));
+	}
+
+	@Test
+	public void armBeyondHorizonIgnored() {
+		// GIVEN
+		final BasicInstruction instr = instruction(1L, timer.getArmHorizon().toMillis() + 1L);
+
+		// WHEN
+		replayAll();
+		boolean armed = timer.arm(instr);
+
+		// THEN
+		assertThat("Instruction past horizon not armed", armed, is(equalTo(false)));
+		assertThat("Nothing armed", timer.getArmedCount(), is(equalTo(0)));
+	}
+
+	@Test
+	public void rearmFromDao() {
+		// GIVEN
+		final BasicInstruction scheduled = instruction(1L, 3000L);
+		final BasicInstruction immediate = new BasicInstruction(2L, "test", clock.instant(),
+				TEST_INSTRUCTOR_ID, new BasicInstructionStatus(2L, Received, clock.instant()));
+		expect(instructionDao.findInstructionsForState(Received,
+				clock.instant().plus(timer.getArmHorizon())))
+				.andReturn(Arrays.asList(scheduled, immediate));
+		final List<Long> executed = new ArrayList<>();
+		expectExecution(scheduled, executed);
+
+		// WHEN
+		replayAll();
+		int count = timer.rearm();
+		clock.advance(3000L);
+		int fired = timer.fireExpired();
+
+		// THEN
+		assertThat("Scheduled instruction re-armed", count, is(equalTo(1)));
+		assertThat("Re-armed instruction fired", fired, is(equalTo(1)));
+		assertThat("Instruction executed", executed, contains(1L));
+	}
+
+	@Test
+	public void rearmErrorRetriesSoon() {
+		// GIVEN
+		final Instant start = clock.instant();
+		expect(instructionDao.findInstructionsForState(Received,
+				clock.instant().plus(timer.getArmHorizon())))
+				.andThrow(new RuntimeException("test"));
+
+		// WHEN
+		replayAll();
+		RuntimeException error = null;
+		try {
+			timer.rearm();
+		} catch ( RuntimeException e ) {
+			error = e;
+		}
+
+		// THEN
+		assertThat("DAO error propagated", error.getMessage(), is(equalTo("test")));
+		assertThat("Rearm retried after short delay", timer.getNextRearmDate(),
+				is(equalTo(start.plus(InstructionTimer.REARM_RETRY_DELAY))));
+	}
+
+	@Test
+	public void rearmSuccessSchedulesNext() {
+		// GIVEN
+		final Instant start = clock.instant();
+		expect(instructionDao.findInstructionsForState(Received,
+				clock.instant().plus(timer.getArmHorizon()))).andReturn(new ArrayList<>());
+
+		// WHEN
+		replayAll();
+		timer.rearm();
+
+		// THEN
+		assertThat("Rearm scheduled after half the arm horizon", timer.getNextRearmDate(),
+				is(equalTo(start.plus(timer.getArmHorizon().dividedBy(2)))));
+	}
+
+	@Test
+	public void fireWithoutStatusLoadsFromDao() {
+		// GIVEN
+		final BasicInstruction instr = new BasicInstruction(1L, "test", clock.instant(),
+				TEST_INSTRUCTOR_ID, null);
+		instr.addParameter(Instruction.PARAM_EXECUTION_DATE, String.valueOf(clock.millis() + 10));
+		final BasicInstruction stored = new BasicInstruction(instr,
+				new BasicInstructionStatus(1L, Received, clock.instant()));
+		expect(instructionDao.getInstruction(1L, TEST_INSTRUCTOR_ID)).andReturn(stored);
+		final List<Long> executed = new ArrayList<>();
+		expectExecution(stored, executed);
+
+		// WHEN
+		replayAll();
+		timer.arm(instr);
+		clock.advance(10L);
+		int fired = timer.fireExpired();
+
+		// THEN
+		assertThat("Instruction fired", fired, is(equalTo(1)));
+		assertThat("Stored instruction executed", executed, contains(1L));
+	}
+
+	@Test
+	public void alreadyExecutingNotExecutedAgain() {
+		// GIVEN
+		final BasicInstruction instr = instruction(1L, 0L);
+		expect(instructionDao.compareAndStoreInstructionStatus(eq(1L), eq(TEST_INSTRUCTOR_ID),
+				eq(Received), anyObject(InstructionStatus.class))).andReturn(false);
+
+		// WHEN
+		replayAll();
+		timer.arm(instr);
+		int fired = timer.fireExpired();
+
+		// THEN
+		assertThat("Instruction fired", fired, is(equalTo(1)));
+	}
+
+}
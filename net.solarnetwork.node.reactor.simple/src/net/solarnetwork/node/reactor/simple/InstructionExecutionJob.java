@@ -25,10 +25,19 @@ package net.solarnetwork.node.reactor.simple;
 import static net.solarnetwork.util.ObjectUtils.requireNonNullArgument;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import net.solarnetwork.domain.InstructionStatus.InstructionState;
 import net.solarnetwork.node.job.JobService;
 import net.solarnetwork.node.reactor.Instruction;
@@ -37,6 +46,7 @@ import net.solarnetwork.node.reactor.InstructionExecutionService;
 import net.solarnetwork.node.reactor.InstructionHandler;
 import net.solarnetwork.node.reactor.InstructionStatus;
 import net.solarnetwork.node.reactor.InstructionUtils;
+import net.solarnetwork.node.reactor.SimpleInstructionExecutionService;
 import net.solarnetwork.node.service.support.BaseIdentifiable;
 import net.solarnetwork.settings.SettingSpecifier;
 
@@ -66,8 +76,14 @@ import net.solarnetwork.settings.SettingSpecifier;
  * Instruction state and not pass the instruction to any other handlers.
  * </p>
  * 
+ * <p>
+ * If an {@code executor} is configured, instructions for different controls
+ * are executed concurrently. Instructions for the same control, or for topics
+ * that do not target specific controls, are executed in the order found.
+ * </p>
+ * 
  * @author matt
- * @version 1.1
+ * @version 1.2
  * @since 2.0
  */
 public class InstructionExecutionJob extends BaseIdentifiable implements JobService {
@@ -90,6 +106,7 @@ public class InstructionExecutionJob extends BaseIdentifiable implements JobServ
 	private final InstructionDao instructionDao;
 	private final InstructionExecutionService service;
 	private int maximumIncompleteHours = DEFAULT_MAXIMUM_INCOMPLETE_HOURS;
+	private Executor executor;
 
 	/**
 	 * Constructor.
@@ -120,42 +137,150 @@ public class InstructionExecutionJob extends BaseIdentifiable implements JobServ
 		List<Instruction> instructions = instructionDao
 				.findInstructionsForState(InstructionState.Received);
 		log.debug("Found {} instructions in Received state", instructions.size());
-		for ( Instruction instruction : instructions ) {
-			InstructionStatus receivedStatus = instruction.getStatus();
-
-			final InstructionStatus execStatus = receivedStatus
-					.newCopyWithState(InstructionStatus.InstructionState.Executing);
-			InstructionStatus status = null;
-			boolean canExecute = false;
+		final Executor exec = this.executor;
+		if ( exec == null || instructions.size() < 2 ) {
+			for ( Instruction instruction : instructions ) {
+				executeInstruction(instruction);
+			}
+		} else {
+			// instructions for independent controls execute concurrently, while those for the
+			// same control execute in order
+			final Collection<List<Instruction>> groups = executionGroups(instructions);
+			final List<CompletableFuture<Void>> futures = new ArrayList<>(groups.size());
+			for ( List<Instruction> group : groups ) {
+				futures.add(CompletableFuture.runAsync(() -> {
+					for ( Instruction instruction : group ) {
+						executeInstruction(instruction);
+					}
+				}, exec));
+			}
 			try {
-				// update state to Executing
-				canExecute = instructionDao.compareAndStoreInstructionStatus(instruction.getId(),
-						instruction.getInstructorId(), InstructionState.Received, execStatus);
-				if ( canExecute ) {
-					status = service.executeInstruction(instruction);
+				CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]))
+						.join();
+			} catch ( CompletionException e ) {
+				log.error("Concurrent execution of instructions threw exception", e.getCause());
+			}
+		}
+		expireExecutingInstructions();
+	}
+
+	/**
+	 * Group instructions that must execute in order.
+	 * 
+	 * <p>
+	 * Instructions sharing a control ID, or with a topic that does not target
+	 * controls, are placed in the same group.
+	 * </p>
+	 * 
+	 * @param instructions
+	 *        the instructions to group
+	 * @return the groups, each in instruction order
+	 */
+	private static Collection<List<Instruction>> executionGroups(List<Instruction> instructions) {
+		final Map<String, List<Instruction>> keyGroups = new HashMap<>(instructions.size());
+		final Set<List<Instruction>> groups = Collections.newSetFromMap(new IdentityHashMap<>());
+		for ( Instruction instruction : instructions ) {
+			final Set<String> keys = executionKeys(instruction);
+			List<Instruction> group = null;
+			for ( String key : keys ) {
+				List<Instruction> g = keyGroups.get(key);
+				if ( g == null || g == group ) {
+					continue;
 				}
-			} catch ( Exception e ) {
-				log.error("Execution of instruction {} {} threw exception", instruction.getId(),
-						instruction.getTopic(), e);
-			} finally {
-				if ( status == null ) {
-					// roll back to received status to try again later
-					status = receivedStatus;
+				if ( group == null ) {
+					group = g;
+				} else {
+					// merge groups; both are independent up to this instruction
+					group.addAll(g);
+					groups.remove(g);
+					for ( Entry<String, List<Instruction>> e : keyGroups.entrySet() ) {
+						if ( e.getValue() == g ) {
+							e.setValue(group);
+						}
+					}
 				}
-				if ( isExpired(instruction, status) ) {
-					status = expiredStatus(instruction);
+			}
+			if ( group == null ) {
+				group = new ArrayList<>(2);
+				groups.add(group);
+			}
+			group.add(instruction);
+			for ( String key : keys ) {
+				keyGroups.put(key, group);
+			}
+		}
+		return groups;
+	}
+
+	private static Set<String> executionKeys(Instruction instruction) {
+		final String topic = instruction.getTopic();
+		final Set<String> keys = new LinkedHashSet<>(2);
+		if ( SimpleInstructionExecutionService.CONTROL_TOPICS.contains(topic)
+				&& instruction.getParameterNames() != null ) {
+			for ( String controlId : instruction.getParameterNames() ) {
+				if ( controlId != null ) {
+					keys.add("control:" + controlId);
 				}
-				if ( instructionDao.compareAndStoreInstructionStatus(instruction.getId(),
-						instruction.getInstructorId(), InstructionState.Executing, status) ) {
-					if ( log.isInfoEnabled()
-							&& status.getInstructionState() != InstructionState.Received ) {
-						log.info("Instruction {} {} status changed to {}", instruction.getId(),
-								instruction.getTopic(), status.getInstructionState());
-					}
+			}
+		}
+		if ( keys.isEmpty() ) {
+			keys.add("topic:" + topic);
+		}
+		return keys;
+	}
+
+	/**
+	 * Execute a single instruction.
+	 * 
+	 * <p>
+	 * The instruction state is changed from {@literal Received} to
+	 * {@literal Executing} first, so an instruction is only executed once even
+	 * if this method is called concurrently for the same instruction.
+	 * </p>
+	 * 
+	 * @param instruction
+	 *        the instruction to execute
+	 */
+	void executeInstruction(Instruction instruction) {
+		InstructionStatus receivedStatus = instruction.getStatus();
+
+		final InstructionStatus execStatus = receivedStatus
+				.newCopyWithState(InstructionStatus.InstructionState.Executing);
+		try {
+			// update state to Executing
+			if ( !instructionDao.compareAndStoreInstructionStatus(instruction.getId(),
+					instruction.getInstructorId(), InstructionState.Received, execStatus) ) {
+				// already executing elsewhere
+				return;
+			}
+		} catch ( Exception e ) {
+			log.error("Updating instruction {} {} to Executing threw exception", instruction.getId(),
+					instruction.getTopic(), e);
+			return;
+		}
+		InstructionStatus status = null;
+		try {
+			status = service.executeInstruction(instruction);
+		} catch ( Exception e ) {
+			log.error("Execution of instruction {} {} threw exception", instruction.getId(),
+					instruction.getTopic(), e);
+		} finally {
+			if ( status == null ) {
+				// roll back to received status to try again later
+				status = receivedStatus;
+			}
+			if ( isExpired(instruction, status) ) {
+				status = expiredStatus(instruction);
+			}
+			if ( instructionDao.compareAndStoreInstructionStatus(instruction.getId(),
+					instruction.getInstructorId(), InstructionState.Executing, status) ) {
+				if ( log.isInfoEnabled()
+						&& status.getInstructionState() != InstructionState.Received ) {
+					log.info("Instruction {} {} status changed to {}", instruction.getId(),
+							instruction.getTopic(), status.getInstructionState());
 				}
 			}
 		}
-		expireExecutingInstructions();
 	}
 
 	private boolean isExpired(Instruction instruction, InstructionStatus status) {
@@ -223,4 +348,28 @@ public class InstructionExecutionJob extends BaseIdentifiable implements JobServ
 		this.maximumIncompleteHours = maximumIncompleteHours;
 	}
 
+	/**
+	 * Get the executor.
+	 * 
+	 * @return the executor, or {@literal null} if instructions are executed
+	 *         one at a time
+	 * @since 1.2
+	 */
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Set an executor to execute instructions for different controls
+	 * concurrently.
+	 * 
+	 * @param executor
+	 *        the executor to set, or {@literal null} to execute instructions
+	 *        one at a time
+	 * @since 1.2
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
 }
@@ -0,0 +1,448 @@
+/* ==================================================================
+ * InstructionTimer.java - 19/10/2026 2:14:37 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.reactor.simple;
+
+import static net.solarnetwork.util.ObjectUtils.requireNonNullArgument;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import net.solarnetwork.domain.InstructionStatus.InstructionState;
+import net.solarnetwork.node.reactor.Instruction;
+import net.solarnetwork.node.reactor.InstructionDao;
+import net.solarnetwork.service.ServiceLifecycleObserver;
+
+/**
+ * Timer to execute instructions at their execution date.
+ *
+ * <p>
+ * Instructions with a future {@link Instruction#getExecutionDate()} are armed
+ * when stored, and executed by a {@link InstructionExecutionJob} as soon as
+ * their execution date is reached, rather than when the job next polls for
+ * received instructions. Armed instructions are held in memory, ordered by
+ * execution date, and a single timer thread waits until the earliest one is
+ * due.
+ * </p>
+ *
+ * <p>
+ * Only instructions due within the {@code armHorizon} are armed. Received
+ * instructions within the horizon are re-armed from the {@link InstructionDao}
+ * at startup and periodically after that, so instructions stored before a
+ * restart or further in the future are armed as their execution date
+ * approaches.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 4.1
+ */
+public class InstructionTimer implements ServiceLifecycleObserver {
+
+	/** The {@code armHorizon} property default value. */
+	public static final Duration DEFAULT_ARM_HORIZON = Duration.ofHours(1);
+
+	/** The delay before retrying to arm instructions after an error. */
+	public static final Duration REARM_RETRY_DELAY = Duration.ofSeconds(10);
+
+	private static final Logger log = LoggerFactory.getLogger(InstructionTimer.class);
+
+	private final InstructionDao instructionDao;
+	private final InstructionExecutionJob executionJob;
+	private final Clock clock;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition changed = lock.newCondition();
+	private final PriorityQueue<Armed> queue = new PriorityQueue<>();
+	private final Set<String> armedKeys = new HashSet<>();
+	private Duration armHorizon = DEFAULT_ARM_HORIZON;
+	private Executor executor;
+	private long nextRearm = Long.MAX_VALUE;
+	private long seq = 0;
+	private Thread thread;
+
+	private static final class Armed implements Comparable<Armed> {
+
+		private final long deadline;
+		private final long seq;
+		private final String key;
+		private final Instruction instruction;
+
+		private Armed(long deadline, long seq, String key, Instruction instruction) {
+			super();
+			this.deadline = deadline;
+			this.seq = seq;
+			this.key = key;
+			this.instruction = instruction;
+		}
+
+		@Override
+		public int compareTo(Armed o) {
+			int result = Long.compare(deadline, o.deadline);
+			if ( result == 0 ) {
+				result = Long.compare(seq, o.seq);
+			}
+			return result;
+		}
+
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param instructionDao
+	 *        the instruction DAO
+	 * @param executionJob
+	 *        the job to execute instructions with
+	 * @throws IllegalArgumentException
+	 *         if any argument is {@literal null}
+	 */
+	public InstructionTimer(InstructionDao instructionDao, InstructionExecutionJob executionJob) {
+		this(instructionDao, executionJob, Clock.systemUTC());
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param instructionDao
+	 *        the instruction DAO
+	 * @param executionJob
+	 *        the job to execute instructions with
+	 * @param clock
+	 *        the clock to use
+	 * @throws IllegalArgumentException
+	 *         if any argument is {@literal null}
+	 */
+	public InstructionTimer(InstructionDao instructionDao, InstructionExecutionJob executionJob,
+			Clock clock) {
+		super();
+		this.instructionDao = requireNonNullArgument(instructionDao, "instructionDao");
+		this.executionJob = requireNonNullArgument(executionJob, "executionJob");
+		this.clock = requireNonNullArgument(clock, "clock");
+	}
+
+	@Override
+	public void serviceDidStartup() {
+		lock.lock();
+		try {
+			if ( thread != null ) {
+				return;
+			}
+			Thread t = new Thread(this::run, "InstructionTimer");
+			t.setDaemon(true);
+			thread = t;
+			t.start();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void serviceDidShutdown() {
+		Thread t;
+		lock.lock();
+		try {
+			t = thread;
+			thread = null;
+			queue.clear();
+			armedKeys.clear();
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		if ( t != null ) {
+			t.interrupt();
+		}
+	}
+
+	private static String key(Instruction instruction) {
+		return instruction.getInstructorId() + ":" + instruction.getId();
+	}
+
+	/**
+	 * Arm an instruction to execute at its execution date.
+	 *
+	 * <p>
+	 * Instructions without an ID or execution date, or with an execution date
+	 * past the arm horizon, are not armed. Instructions already armed are
+	 * ignored.
+	 * </p>
+	 *
+	 * @param instruction
+	 *        the instruction to arm
+	 * @return {@literal true} if the instruction was armed
+	 */
+	public boolean arm(Instruction instruction) {
+		if ( instruction == null || instruction.getId() == null ) {
+			return false;
+		}
+		final Instant date = instruction.getExecutionDate();
+		if ( date == null ) {
+			return false;
+		}
+		final long deadline = date.toEpochMilli();
+		final long now = clock.millis();
+		if ( deadline - now > armHorizon.toMillis() ) {
+			return false;
+		}
+		final String key = key(instruction);
+		lock.lock();
+		try {
+			if ( !armedKeys.add(key) ) {
+				return false;
+			}
+			Armed a = new Armed(deadline, ++seq, key, instruction);
+			queue.add(a);
+			if ( queue.peek() == a ) {
+				changed.signal();
+			}
+		} finally {
+			lock.unlock();
+		}
+		log.debug("Armed instruction {} {} for execution @ {}", instruction.getId(),
+				instruction.getTopic(), date);
+		return true;
+	}
+
+	/**
+	 * Arm all received instructions with an execution date within the arm
+	 * horizon.
+	 *
+	 * <p>
+	 * If an error occurs, the next rearm is scheduled after
+	 * {@link #REARM_RETRY_DELAY} rather than the normal interval.
+	 * </p>
+	 *
+	 * @return the number of instructions armed
+	 */
+	public int rearm() {
+		final long rearmInterval = Math.max(1000L, armHorizon.toMillis() / 2);
+		scheduleRearm(Math.min(REARM_RETRY_DELAY.toMillis(), rearmInterval));
+		final Instant max = clock.instant().plus(armHorizon);
+		final List<Instruction> instructions = instructionDao
+				.findInstructionsForState(InstructionState.Received, max);
+		int count = 0;
+		for ( Instruction instruction : instructions ) {
+			if ( arm(instruction) ) {
+				count++;
+			}
+		}
+		scheduleRearm(rearmInterval);
+		if ( count > 0 ) {
+			log.info("Armed {} instructions scheduled up to {}", count, max);
+		}
+		return count;
+	}
+
+	private void scheduleRearm(long delay) {
+		lock.lock();
+		try {
+			nextRearm = clock.millis() + delay;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Get the date the instructions will next be armed by the timer thread.
+	 *
+	 * @return the next rearm date, or {@literal null} if not scheduled
+	 */
+	public Instant getNextRearmDate() {
+		lock.lock();
+		try {
+			return (nextRearm != Long.MAX_VALUE ? Instant.ofEpochMilli(nextRearm) : null);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Get the number of armed instructions.
+	 *
+	 * @return the count
+	 */
+	public int getArmedCount() {
+		lock.lock();
+		try {
+			return queue.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Execute all armed instructions whose execution date has been reached.
+	 *
+	 * <p>
+	 * This method is called by the timer thread, but can also be called
+	 * directly.
+	 * </p>
+	 *
+	 * @return the number of instructions executed
+	 */
+	public int fireExpired() {
+		final List<Armed> due = new ArrayList<>(4);
+		lock.lock();
+		try {
+			final long now = clock.millis();
+			Armed a;
+			while ( (a = queue.peek()) != null && a.deadline <= now ) {
+				queue.poll();
+				armedKeys.remove(a.key);
+				due.add(a);
+			}
+		} finally {
+			lock.unlock();
+		}
+		final Executor exec = this.executor;
+		for ( Armed a : due ) {
+			if ( log.isDebugEnabled() ) {
+				log.debug("Firing instruction {} {} {}ms after execution date", a.instruction.getId(),
+						a.instruction.getTopic(), clock.millis() - a.deadline);
+			}
+			if ( exec != null ) {
+				exec.execute(() -> execute(a.instruction));
+			} else {
+				execute(a.instruction);
+			}
+		}
+		return due.size();
+	}
+
+	private void execute(Instruction instruction) {
+		Instruction instr = instruction;
+		if ( instr.getStatus() == null ) {
+			// armed before the status was stored
+			instr = instructionDao.getInstruction(instruction.getId(),
+					instruction.getInstructorId());
+			if ( instr == null || instr.getStatus() == null ) {
+				return;
+			}
+		}
+		executionJob.executeInstruction(instr);
+	}
+
+	private void run() {
+		try {
+			rearm();
+		} catch ( Exception e ) {
+			log.warn("Error arming scheduled instructions: {}", e.toString());
+		}
+		while ( true ) {
+			try {
+				fireExpired();
+				if ( clock.millis() >= nextRearm ) {
+					rearm();
+				}
+				lock.lock();
+				try {
+					if ( thread != Thread.currentThread() ) {
+						return;
+					}
+					final Armed next = queue.peek();
+					final long until = Math.min(nextRearm,
+							next != null ? next.deadline : Long.MAX_VALUE);
+					final long wait = until - clock.millis();
+					if ( wait > 0 ) {
+						changed.awaitNanos(TimeUnit.MILLISECONDS.toNanos(wait));
+					}
+				} finally {
+					lock.unlock();
+				}
+			} catch ( InterruptedException e ) {
+				lock.lock();
+				try {
+					if ( thread != Thread.currentThread() ) {
+						return;
+					}
+				} finally {
+					lock.unlock();
+				}
+			} catch ( Exception e ) {
+				log.error("Error executing scheduled instructions: {}", e.toString(), e);
+				// avoid a tight loop on a persistent error
+				try {
+					Thread.sleep(1000L);
+				} catch ( InterruptedException e2 ) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the arm horizon.
+	 *
+	 * @return the horizon; defaults to {@link #DEFAULT_ARM_HORIZON}
+	 */
+	public Duration getArmHorizon() {
+		return armHorizon;
+	}
+
+	/**
+	 * Set the arm horizon.
+	 *
+	 * <p>
+	 * Only instructions with an execution date up to this far in the future
+	 * are armed.
+	 * </p>
+	 *
+	 * @param armHorizon
+	 *        the horizon to set; if {@literal null} then
+	 *        {@link #DEFAULT_ARM_HORIZON} will be used
+	 */
+	public void setArmHorizon(Duration armHorizon) {
+		this.armHorizon = (armHorizon != null ? armHorizon : DEFAULT_ARM_HORIZON);
+	}
+
+	/**
+	 * Get the executor.
+	 *
+	 * @return the executor, or {@literal null} if instructions are executed on
+	 *         the timer thread
+	 */
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Set an executor to execute instructions with.
+	 *
+	 * @param executor
+	 *        the executor to set, or {@literal null} to execute instructions on
+	 *        the timer thread
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+}
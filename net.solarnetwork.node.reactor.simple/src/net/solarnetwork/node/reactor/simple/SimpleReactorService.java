@@ -24,6 +24,7 @@ package net.solarnetwork.node.reactor.simple;
 
 import static net.solarnetwork.node.reactor.InstructionUtils.createErrorResultParameters;
 import static net.solarnetwork.node.reactor.InstructionUtils.createStatus;
+import java.time.Instant;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,13 +41,19 @@ import net.solarnetwork.node.reactor.ReactorService;
 /**
  * Simple implementation of {@link ReactorService}.
  *
+ * <p>
+ * If an {@link InstructionTimer} is configured, stored instructions with a
+ * future execution date are armed on the timer so they execute at that date.
+ * </p>
+ *
  * @author matt
- * @version 1.1
+ * @version 1.2
  * @since 2.0
  */
 public class SimpleReactorService implements ReactorService, InstructionHandler {
 
 	private final InstructionDao instructionDao;
+	private InstructionTimer instructionTimer;
 
 	private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -80,6 +87,7 @@ public class SimpleReactorService implements ReactorService, InstructionHandler
 			// persist new status
 			instructionDao.storeInstruction(instruction);
 			instr = instructionDao.getInstruction(instruction.getId(), instruction.getInstructorId());
+			armInstruction(instr);
 		}
 		return instr.getStatus();
 	}
@@ -98,6 +106,22 @@ public class SimpleReactorService implements ReactorService, InstructionHandler
 			}
 		}
 		instructionDao.storeInstruction(instruction);
+		armInstruction(instruction);
+	}
+
+	private void armInstruction(Instruction instruction) {
+		final InstructionTimer timer = this.instructionTimer;
+		if ( timer == null || instruction == null ) {
+			return;
+		}
+		final InstructionStatus status = instruction.getStatus();
+		if ( status != null && status.getInstructionState() != InstructionState.Received ) {
+			return;
+		}
+		final Instant executeAt = instruction.getExecutionDate();
+		if ( executeAt != null && executeAt.isAfter(Instant.now()) ) {
+			timer.arm(instruction);
+		}
 	}
 
 	private InstructionStatus handleCancelInstruction(Instruction instruction) {
@@ -151,4 +175,26 @@ public class SimpleReactorService implements ReactorService, InstructionHandler
 		return createStatus(instruction, InstructionState.Completed);
 	}
 
+	/**
+	 * Get the instruction timer.
+	 *
+	 * @return the timer, or {@literal null}
+	 * @since 1.2
+	 */
+	public InstructionTimer getInstructionTimer() {
+		return instructionTimer;
+	}
+
+	/**
+	 * Set an instruction timer to arm instructions with future execution dates
+	 * on.
+	 *
+	 * @param instructionTimer
+	 *        the timer to set
+	 * @since 1.2
+	 */
+	public void setInstructionTimer(InstructionTimer instructionTimer) {
+		this.instructionTimer = instructionTimer;
+	}
+
 }
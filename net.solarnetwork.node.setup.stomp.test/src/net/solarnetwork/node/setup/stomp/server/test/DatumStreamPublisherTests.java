@@ -0,0 +1,220 @@
+/* ==================================================================
+ * DatumStreamPublisherTests.java - 19/10/2026 3:02:17 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.server.test;
+
+import static java.util.Collections.singletonList;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.expect;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.springframework.security.core.userdetails.User.withUsername;
+import java.nio.charset.Charset;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.easymock.Capture;
+import org.easymock.CaptureType;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.util.AntPathMatcher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.DefaultChannelPromise;
+import io.netty.handler.codec.stomp.StompCommand;
+import io.netty.handler.codec.stomp.StompFrame;
+import io.netty.handler.codec.stomp.StompHeaders;
+import net.solarnetwork.codec.BasicGeneralDatumSerializer;
+import net.solarnetwork.domain.datum.DatumSamples;
+import net.solarnetwork.domain.datum.GeneralDatum;
+import net.solarnetwork.node.domain.datum.SimpleDatum;
+import net.solarnetwork.node.reactor.InstructionHandler;
+import net.solarnetwork.node.reactor.SimpleInstructionExecutionService;
+import net.solarnetwork.node.service.DatumQueueProcessObserver.Stage;
+import net.solarnetwork.node.setup.UserService;
+import net.solarnetwork.node.setup.stomp.server.DatumStreamPublisher;
+import net.solarnetwork.node.setup.stomp.server.DatumStreamSubscription;
+import net.solarnetwork.node.setup.stomp.server.SetupSession;
+import net.solarnetwork.node.setup.stomp.server.StompSetupServerService;
+
+/**
+ * Test cases for the {@link DatumStreamPublisher} class.
+ *
+ * @author matt
+ * @version 1.1
+ */
+public class DatumStreamPublisherTests {
+
+	private static final String TEST_LOGIN = "foo";
+
+	private UserService userService;
+	private UserDetailsService userDetailsService;
+	private InstructionHandler instructionHandler;
+	private Channel channel;
+	private ConcurrentMap<UUID, SetupSession> sessions;
+	private DatumStreamPublisher publisher;
+
+	@Before
+	public void setup() {
+		userService = EasyMock.createMock(UserService.class);
+		userDetailsService = EasyMock.createMock(UserDetailsService.class);
+		instructionHandler = EasyMock.createMock(InstructionHandler.class);
+		channel = EasyMock.createMock(Channel.class);
+		sessions = new ConcurrentHashMap<>(4, 0.9f, 1);
+		StompSetupServerService serverService = new StompSetupServerService(userService,
+				userDetailsService, new AntPathMatcher(),
+				new SimpleInstructionExecutionService(singletonList(instructionHandler)));
+		ObjectMapper objectMapper = new ObjectMapper();
+		SimpleModule mod = new SimpleModule("Test");
+		mod.addSerializer(GeneralDatum.class, BasicGeneralDatumSerializer.INSTANCE);
+		objectMapper.registerModule(mod);
+		publisher = new DatumStreamPublisher(sessions, serverService, objectMapper);
+		publisher.setAllocator(UnpooledByteBufAllocator.DEFAULT);
+	}
+
+	@After
+	public void teardown() {
+		EasyMock.verify(userService, userDetailsService, instructionHandler, channel);
+	}
+
+	private void replayAll() {
+		EasyMock.replay(userService, userDetailsService, instructionHandler, channel);
+	}
+
+	private SetupSession givenSessionSubscribed(String dest, long minInterval) {
+		String[] roles = new String[] { "ROLE_USER" };
+		UserDetails user = withUsername(TEST_LOGIN).password("pw").authorities(roles).build();
+		SetupSession session = new SetupSession(TEST_LOGIN, channel);
+		session.setAuthentication(new TestingAuthenticationToken(user, null, roles));
+		session.addDatumStreamSubscription(new DatumStreamSubscription("1", dest, minInterval));
+		sessions.put(session.getSessionId(), session);
+		return session;
+	}
+
+	private static SimpleDatum datum(String sourceId, int watts) {
+		SimpleDatum d = SimpleDatum.nodeDatum(sourceId, Instant.now(), new DatumSamples());
+		d.getSamples().putInstantaneousSampleValue("watts", watts);
+		return d;
+	}
+
+	@Test
+	public void publish_matchingSource() {
+		// GIVEN
+		givenSessionSubscribed("/setup/datum/stream/meter/**", 0);
+
+		expect(channel.isWritable()).andReturn(true).anyTimes();
+
+		Capture<Object> msgCaptor = Capture.newInstance();
+		expect(channel.writeAndFlush(capture(msgCaptor)))
+				.andReturn(new DefaultChannelPromise(channel));
+
+		// WHEN
+		replayAll();
+		publisher.datumQueueWillProcess(null, datum("inverter/1", 1), Stage.PostFilter, true);
+		publisher.datumQueueWillProcess(null, datum("meter/1", 2), Stage.PreFilter, true);
+		publisher.datumQueueWillProcess(null, datum("meter/1", 3), Stage.PostFilter, true);
+
+		// THEN
+		assertThat("MESSAGE published", msgCaptor.getValue(), is(instanceOf(StompFrame.class)));
+		StompFrame msg = (StompFrame) msgCaptor.getValue();
+		assertThat("Message command", msg.command(), is(StompCommand.MESSAGE));
+		assertThat("Message destination includes source ID",
+				msg.headers().getAsString(StompHeaders.DESTINATION), is("/setup/datum/stream/meter/1"));
+		assertThat("Message subscription", msg.headers().getAsString(StompHeaders.SUBSCRIPTION),
+				is("1"));
+		assertThat("Message body is datum JSON", msg.content().toString(Charset.forName("UTF-8")),
+				containsString("\"watts\":3"));
+		msg.release();
+	}
+
+	@Test
+	public void publish_rateLimited() {
+		// GIVEN
+		givenSessionSubscribed("/setup/datum/stream", 60_000L);
+
+		expect(channel.isWritable()).andReturn(true).anyTimes();
+
+		Capture<Object> msgCaptor = Capture.newInstance(CaptureType.ALL);
+		expect(channel.writeAndFlush(capture(msgCaptor))).andReturn(new DefaultChannelPromise(channel))
+				.times(2);
+
+		// WHEN
+		replayAll();
+		publisher.datumQueueWillProcess(null, datum("a", 1), Stage.PostFilter, true);
+		publisher.datumQueueWillProcess(null, datum("a", 2), Stage.PostFilter, true);
+		publisher.datumQueueWillProcess(null, datum("b", 3), Stage.PostFilter, true);
+
+		// THEN
+		List<Object> msgs = msgCaptor.getValues();
+		assertThat("First message for source A",
+				((StompFrame) msgs.get(0)).headers().getAsString(StompHeaders.DESTINATION),
+				is("/setup/datum/stream/a"));
+		assertThat("Second message for source B",
+				((StompFrame) msgs.get(1)).headers().getAsString(StompHeaders.DESTINATION),
+				is("/setup/datum/stream/b"));
+	}
+
+	@Test
+	public void publish_channelNotWritable() {
+		// GIVEN
+		SetupSession session = givenSessionSubscribed("/setup/datum/stream", 60_000L);
+
+		// channel not writable for first two datum, then writable again
+		expect(channel.isWritable()).andReturn(false).times(2);
+		expect(channel.isWritable()).andReturn(true);
+
+		Capture<Object> msgCaptor = Capture.newInstance();
+		expect(channel.writeAndFlush(capture(msgCaptor)))
+				.andReturn(new DefaultChannelPromise(channel));
+
+		// WHEN
+		replayAll();
+		publisher.datumQueueWillProcess(null, datum("a", 1), Stage.PostFilter, true);
+		publisher.datumQueueWillProcess(null, datum("a", 2), Stage.PostFilter, true);
+		publisher.datumQueueWillProcess(null, datum("a", 3), Stage.PostFilter, true);
+
+		// THEN
+		DatumStreamSubscription sub = session.getDatumStreamSubscriptions().iterator().next();
+		assertThat("Messages dropped for subscription while channel not writable",
+				sub.getDroppedCount(), is(equalTo(2L)));
+		assertThat("Messages dropped for publisher while channel not writable",
+				publisher.getDroppedCount(), is(equalTo(2L)));
+
+		StompFrame msg = (StompFrame) msgCaptor.getValue();
+		assertThat("Dropped messages do not count towards rate limit, so next datum published",
+				msg.content().toString(Charset.forName("UTF-8")), containsString("\"watts\":3"));
+		msg.release();
+	}
+
+}
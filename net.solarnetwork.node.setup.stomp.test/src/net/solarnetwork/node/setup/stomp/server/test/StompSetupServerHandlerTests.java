@@ -30,6 +30,7 @@ import static org.easymock.EasyMock.capture;
 import static org.easymock.EasyMock.expect;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
@@ -84,6 +85,7 @@ import net.solarnetwork.node.setup.UserAuthenticationInfo;
 import net.solarnetwork.node.setup.UserService;
 import net.solarnetwork.node.setup.stomp.SetupHeader;
 import net.solarnetwork.node.setup.stomp.SetupStatus;
+import net.solarnetwork.node.setup.stomp.server.DatumStreamSubscription;
 import net.solarnetwork.node.setup.stomp.server.SetupSession;
 import net.solarnetwork.node.setup.stomp.server.StompSetupServerHandler;
 import net.solarnetwork.node.setup.stomp.server.StompSetupServerService;
@@ -94,7 +96,7 @@ import net.solarnetwork.test.CallingThreadExecutorService;
  * Test cases for the {@link StompSetupServerHandler} class.
  *
  * @author matt
- * @version 2.0
+ * @version 2.1
  */
 public class StompSetupServerHandlerTests {
 
@@ -482,6 +484,62 @@ public class StompSetupServerHandlerTests {
 				containsInAnyOrder(subId));
 	}
 
+	@Test
+	public void subscribe_datumStream() {
+		// GIVEN
+		// get the channel to associate with the session
+		expect(ctx.channel()).andReturn(channel);
+
+		// assume authenticated already
+		final SetupSession session = givenSessionAuthenticated();
+
+		// WHEN
+		replayAll();
+
+		final String subId = "123";
+		DefaultStompFrame f = new DefaultStompFrame(StompCommand.SUBSCRIBE);
+		f.headers().set(StompHeaders.ID, subId);
+		f.headers().set(StompHeaders.DESTINATION, "/setup/datum/stream/meter/**");
+		f.headers().set(SetupHeader.MinInterval.getValue(), "1000");
+		handler.channelRead(ctx, f);
+
+		// THEN
+		assertThat("Session not subscribed to regular topic",
+				session.subscriptionIdsForTopic("/setup/datum/stream/meter/1", new AntPathMatcher()),
+				hasSize(0));
+		assertThat("Session has datum stream subscription", session.getDatumStreamSubscriptions(),
+				hasSize(1));
+		DatumStreamSubscription sub = session.getDatumStreamSubscriptions().iterator().next();
+		assertThat("Subscription ID", sub.getId(), is(subId));
+		assertThat("Subscription destination", sub.getDestination(),
+				is("/setup/datum/stream/meter/**"));
+		assertThat("Subscription min interval", sub.getMinIntervalMs(), is(1000L));
+	}
+
+	@Test
+	public void unsubscribe_datumStream() {
+		// GIVEN
+		// get the channel to associate with the session
+		expect(ctx.channel()).andReturn(channel);
+
+		// assume authenticated and subscribed already
+		final SetupSession session = givenSessionAuthenticated();
+		final String subId = "123";
+		session.addDatumStreamSubscription(
+				new DatumStreamSubscription(subId, "/setup/datum/stream", 0));
+
+		// WHEN
+		replayAll();
+
+		DefaultStompFrame f = new DefaultStompFrame(StompCommand.UNSUBSCRIBE);
+		f.headers().set(StompHeaders.ID, subId);
+		handler.channelRead(ctx, f);
+
+		// THEN
+		assertThat("Datum stream subscription removed", session.getDatumStreamSubscriptions(),
+				hasSize(0));
+	}
+
 	private SetupSession givenSessionAuthenticatedAndSubscribed() {
 		SetupSession session = givenSessionAuthenticated();
 		session.addSubscription("0", "/setup/**");
@@ -26,7 +26,7 @@ package net.solarnetwork.node.setup.stomp;
  * SolarNode Setup specific STOMP header names.
  * 
  * @author matt
- * @version 1.0
+ * @version 1.1
  */
 public enum SetupHeader {
 
@@ -47,6 +47,14 @@ public enum SetupHeader {
 
 	Status("A status code, like HTTP status values."),
 
+	/**
+	 * A minimum number of milliseconds between messages.
+	 *
+	 * @since 1.1
+	 */
+	MinInterval("min-interval",
+			"The minimum number of milliseconds between messages for the same destination on a subscription."),
+
 	;
 
 	private final String value;
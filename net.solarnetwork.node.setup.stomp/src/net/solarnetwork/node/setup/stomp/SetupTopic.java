@@ -26,7 +26,7 @@ package net.solarnetwork.node.setup.stomp;
  * Supported STOMP setup topics.
  * 
  * @author matt
- * @version 1.0
+ * @version 1.1
  */
 public enum SetupTopic {
 
@@ -36,6 +36,18 @@ public enum SetupTopic {
 	/** Get the latest datum. */
 	DatumLatest("/setup/datum/latest"),
 
+	/**
+	 * Subscribe to a live stream of datum.
+	 *
+	 * <p>
+	 * A subscription destination can include a source ID pattern suffix, for
+	 * example {@code /setup/datum/stream/meter/**}.
+	 * </p>
+	 *
+	 * @since 1.1
+	 */
+	DatumStream("/setup/datum/stream"),
+
 	;
 
 	private final String topic;
@@ -52,4 +64,42 @@ public enum SetupTopic {
 	public String getValue() {
 		return topic;
 	}
+
+	/**
+	 * Test if a destination is this topic or a sub-topic of this topic.
+	 *
+	 * @param destination
+	 *        the destination to test
+	 * @return {@literal true} if {@code destination} is equal to this topic's
+	 *         value, or starts with this topic's value followed by a
+	 *         {@literal /} character
+	 * @since 1.1
+	 */
+	public boolean matches(String destination) {
+		return (destination != null && destination.startsWith(topic)
+				&& (destination.length() == topic.length()
+						|| destination.charAt(topic.length()) == '/'));
+	}
+
+	/**
+	 * Get a sub-topic destination of this topic.
+	 *
+	 * @param suffix
+	 *        the sub-topic suffix, for example a source ID
+	 * @return the destination
+	 * @since 1.1
+	 */
+	public String destination(String suffix) {
+		if ( suffix == null || suffix.isEmpty() ) {
+			return topic;
+		}
+		StringBuilder buf = new StringBuilder(topic.length() + suffix.length() + 1);
+		buf.append(topic);
+		if ( suffix.charAt(0) != '/' ) {
+			buf.append('/');
+		}
+		buf.append(suffix);
+		return buf.toString();
+	}
+
 }
@@ -0,0 +1,266 @@
+/* ==================================================================
+ * DatumStreamPublisher.java - 19/10/2026 2:31:45 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.server;
+
+import static net.solarnetwork.node.setup.stomp.StompUtils.JSON_UTF8_CONTENT_TYPE;
+import static net.solarnetwork.node.setup.stomp.StompUtils.encodeStompHeaderValue;
+import static net.solarnetwork.util.NumberUtils.getAndIncrementWithWrap;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.stomp.DefaultStompFrame;
+import io.netty.handler.codec.stomp.StompCommand;
+import io.netty.handler.codec.stomp.StompHeaders;
+import net.solarnetwork.node.domain.datum.NodeDatum;
+import net.solarnetwork.node.service.DatumQueue;
+import net.solarnetwork.node.service.DatumQueueProcessObserver;
+import net.solarnetwork.node.service.NettyEventLoopService;
+import net.solarnetwork.node.setup.stomp.SetupTopic;
+import net.solarnetwork.service.OptionalService;
+
+/**
+ * Publish datum to setup sessions subscribed to the
+ * {@link SetupTopic#DatumStream} topic.
+ *
+ * <p>
+ * Datum are published as they are processed by the datum queue, after filters
+ * have been applied. Each datum is encoded as JSON at most once, into a pooled
+ * buffer that is shared by all the messages published for that datum.
+ * </p>
+ *
+ * <p>
+ * Messages are not queued for a subscriber whose channel is not writable:
+ * datum published while the channel's outbound buffer is above its high water
+ * mark are dropped for that subscription instead, and counted in both
+ * {@link DatumStreamSubscription#getDroppedCount()} and
+ * {@link #getDroppedCount()}. A dropped message does not count towards the
+ * subscription's minimum interval, so the next datum is published as soon as
+ * the channel becomes writable again.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 4.1
+ */
+public class DatumStreamPublisher implements DatumQueueProcessObserver {
+
+	private static final Logger log = LoggerFactory.getLogger(DatumStreamPublisher.class);
+
+	private final AtomicInteger messageIds = new AtomicInteger(0);
+	private final AtomicLong droppedCount = new AtomicLong(0);
+
+	private final ConcurrentMap<UUID, SetupSession> sessions;
+	private final StompSetupServerService serverService;
+	private final ObjectMapper objectMapper;
+
+	private ByteBufAllocator allocator = PooledByteBufAllocator.DEFAULT;
+	private OptionalService<NettyEventLoopService> eventLoopService;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param sessions
+	 *        the session map, shared with the setup server
+	 * @param serverService
+	 *        the server service
+	 * @param objectMapper
+	 *        the object mapper
+	 * @throws IllegalArgumentException
+	 *         if any argument is {@literal null}
+	 */
+	public DatumStreamPublisher(ConcurrentMap<UUID, SetupSession> sessions,
+			StompSetupServerService serverService, ObjectMapper objectMapper) {
+		super();
+		if ( sessions == null ) {
+			throw new IllegalArgumentException("The sessions argument must not be null.");
+		}
+		this.sessions = sessions;
+		if ( serverService == null ) {
+			throw new IllegalArgumentException("The serverService argument must not be null.");
+		}
+		this.serverService = serverService;
+		if ( objectMapper == null ) {
+			throw new IllegalArgumentException("The objectMapper argument must not be null.");
+		}
+		this.objectMapper = objectMapper;
+	}
+
+	private static final class Target {
+
+		private final Channel channel;
+		private final String subscriptionId;
+
+		private Target(Channel channel, String subscriptionId) {
+			super();
+			this.channel = channel;
+			this.subscriptionId = subscriptionId;
+		}
+
+	}
+
+	@Override
+	public void datumQueueWillProcess(DatumQueue queue, NodeDatum datum, Stage stage, boolean persist) {
+		if ( stage != Stage.PostFilter || datum == null || datum.getSourceId() == null
+				|| sessions.isEmpty() ) {
+			return;
+		}
+		final String dest = SetupTopic.DatumStream.destination(datum.getSourceId());
+		final List<Target> targets = targets(dest);
+		if ( targets == null ) {
+			return;
+		}
+		final ByteBuf json = allocator().buffer();
+		try {
+			try (OutputStream out = new ByteBufOutputStream(json)) {
+				objectMapper.writeValue(out, datum);
+			} catch ( IOException e ) {
+				log.warn("Error encoding datum stream {} message as JSON: {}", dest, e.toString());
+				return;
+			}
+			final String contentLength = String.valueOf(json.readableBytes());
+			for ( Target t : targets ) {
+				DefaultStompFrame f = new DefaultStompFrame(StompCommand.MESSAGE,
+						json.retainedDuplicate());
+				f.headers().set(StompHeaders.DESTINATION, encodeStompHeaderValue(dest));
+				f.headers().set(StompHeaders.SUBSCRIPTION, encodeStompHeaderValue(t.subscriptionId));
+				f.headers().set(StompHeaders.MESSAGE_ID,
+						String.valueOf(getAndIncrementWithWrap(messageIds, 0)));
+				f.headers().set(StompHeaders.CONTENT_TYPE, JSON_UTF8_CONTENT_TYPE);
+				f.headers().set(StompHeaders.CONTENT_LENGTH, contentLength);
+				t.channel.writeAndFlush(f);
+			}
+		} finally {
+			json.release();
+		}
+	}
+
+	private List<Target> targets(String dest) {
+		final long now = System.currentTimeMillis();
+		List<Target> result = null;
+		for ( SetupSession session : sessions.values() ) {
+			if ( !session.isAuthenticated() ) {
+				continue;
+			}
+			final Channel channel = session.getChannel();
+			for ( DatumStreamSubscription sub : session.getDatumStreamSubscriptions() ) {
+				if ( !sub.matches(dest, serverService.getPathMatcher()) ) {
+					continue;
+				}
+				if ( !channel.isWritable() ) {
+					droppedCount.incrementAndGet();
+					long subDropped = sub.messageDropped();
+					log.debug("Dropped datum stream {} message for session {} subscription {}: "
+							+ "channel not writable ({} dropped)", dest, session.getSessionId(),
+							sub.getId(), subDropped);
+					continue;
+				}
+				if ( sub.tryPublish(dest, now) ) {
+					if ( result == null ) {
+						result = new ArrayList<>(4);
+					}
+					result.add(new Target(channel, sub.getId()));
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Get the number of messages dropped because a subscriber's channel was
+	 * not writable.
+	 *
+	 * @return the dropped message count, across all subscriptions
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	private ByteBufAllocator allocator() {
+		final NettyEventLoopService shared = OptionalService.service(eventLoopService);
+		return (shared != null ? shared.getAllocator() : allocator);
+	}
+
+	/**
+	 * Get the buffer allocator.
+	 *
+	 * @return the allocator; defaults to {@link PooledByteBufAllocator#DEFAULT}
+	 */
+	public ByteBufAllocator getAllocator() {
+		return allocator;
+	}
+
+	/**
+	 * Set the buffer allocator.
+	 *
+	 * @param allocator
+	 *        the allocator to set
+	 * @throws IllegalArgumentException
+	 *         if {@code allocator} is {@literal null}
+	 */
+	public void setAllocator(ByteBufAllocator allocator) {
+		if ( allocator == null ) {
+			throw new IllegalArgumentException("The allocator argument must not be null.");
+		}
+		this.allocator = allocator;
+	}
+
+	/**
+	 * Get the shared Netty event loop service.
+	 *
+	 * @return the service
+	 * @since 4.1
+	 */
+	public OptionalService<NettyEventLoopService> getEventLoopService() {
+		return eventLoopService;
+	}
+
+	/**
+	 * Set the shared Netty event loop service.
+	 *
+	 * <p>
+	 * If available, the shared buffer allocator will be used in place of the
+	 * configured {@code allocator}.
+	 * </p>
+	 *
+	 * @param eventLoopService
+	 *        the service to set
+	 * @since 4.1
+	 */
+	public void setEventLoopService(OptionalService<NettyEventLoopService> eventLoopService) {
+		this.eventLoopService = eventLoopService;
+	}
+
+}
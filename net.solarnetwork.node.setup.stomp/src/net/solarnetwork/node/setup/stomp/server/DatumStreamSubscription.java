@@ -0,0 +1,175 @@
+/* ==================================================================
+ * DatumStreamSubscription.java - 19/10/2026 2:14:08 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.stomp.server;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.util.PathMatcher;
+import net.solarnetwork.node.setup.stomp.SetupTopic;
+
+/**
+ * A subscription to the {@link SetupTopic#DatumStream} topic.
+ *
+ * @author matt
+ * @version 1.0
+ * @since 4.1
+ */
+public class DatumStreamSubscription {
+
+	private final String id;
+	private final String destination;
+	private final long minIntervalMs;
+	private final ConcurrentMap<String, Long> published = new ConcurrentHashMap<>(8, 0.9f, 1);
+	private final AtomicLong droppedCount = new AtomicLong(0);
+
+	/**
+	 * Constructor.
+	 *
+	 * <p>
+	 * If {@code destination} is exactly {@link SetupTopic#DatumStream} then all
+	 * datum will be matched.
+	 * </p>
+	 *
+	 * @param id
+	 *        the subscription ID
+	 * @param destination
+	 *        the subscription destination, which may contain path patterns
+	 * @param minIntervalMs
+	 *        the minimum number of milliseconds between messages for the same
+	 *        source ID, or {@literal 0} for no limit
+	 * @throws IllegalArgumentException
+	 *         if {@code id} or {@code destination} is {@literal null}
+	 */
+	public DatumStreamSubscription(String id, String destination, long minIntervalMs) {
+		super();
+		if ( id == null ) {
+			throw new IllegalArgumentException("The id argument must not be null.");
+		}
+		this.id = id;
+		if ( destination == null ) {
+			throw new IllegalArgumentException("The destination argument must not be null.");
+		}
+		this.destination = (SetupTopic.DatumStream.getValue().equals(destination)
+				? SetupTopic.DatumStream.destination("**")
+				: destination);
+		this.minIntervalMs = minIntervalMs;
+	}
+
+	/**
+	 * Test if a datum stream destination matches this subscription.
+	 *
+	 * @param dest
+	 *        the datum stream destination, for example as returned from
+	 *        {@code SetupTopic.DatumStream.destination(sourceId)}
+	 * @param pathMatcher
+	 *        an optional path patcher to interpret the subscription
+	 *        destination with
+	 * @return {@literal true} if the destination matches
+	 */
+	public boolean matches(String dest, PathMatcher pathMatcher) {
+		if ( pathMatcher != null && pathMatcher.isPattern(destination) ) {
+			return pathMatcher.match(destination, dest);
+		}
+		return destination.equals(dest);
+	}
+
+	/**
+	 * Test if a message can be published, according to the configured minimum
+	 * interval.
+	 *
+	 * <p>
+	 * If this method returns {@literal true} the given {@code now} is recorded
+	 * as the last publish time for {@code dest}.
+	 * </p>
+	 *
+	 * @param dest
+	 *        the destination to publish to
+	 * @param now
+	 *        the current time
+	 * @return {@literal true} if a message for {@code dest} can be published
+	 */
+	public boolean tryPublish(String dest, long now) {
+		if ( minIntervalMs < 1 ) {
+			return true;
+		}
+		Long prev = published.get(dest);
+		if ( prev != null && now - prev.longValue() < minIntervalMs ) {
+			return false;
+		}
+		published.put(dest, now);
+		return true;
+	}
+
+	/**
+	 * Record that a message for this subscription was dropped.
+	 *
+	 * @return the total number of dropped messages, including this one
+	 */
+	public long messageDropped() {
+		return droppedCount.incrementAndGet();
+	}
+
+	/**
+	 * Get the number of messages dropped for this subscription.
+	 *
+	 * <p>
+	 * Messages are dropped when the subscriber's channel is not writable, for
+	 * example because the client is not reading messages as fast as they are
+	 * published.
+	 * </p>
+	 *
+	 * @return the dropped message count
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * Get the subscription ID.
+	 *
+	 * @return the ID, never {@literal null}
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * Get the subscription destination.
+	 *
+	 * @return the destination, never {@literal null}
+	 */
+	public String getDestination() {
+		return destination;
+	}
+
+	/**
+	 * Get the minimum interval between messages for the same source ID.
+	 *
+	 * @return the minimum interval, in milliseconds
+	 */
+	public long getMinIntervalMs() {
+		return minIntervalMs;
+	}
+
+}
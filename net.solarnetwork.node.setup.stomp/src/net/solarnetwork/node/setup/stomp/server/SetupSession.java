@@ -23,6 +23,7 @@
 package net.solarnetwork.node.setup.stomp.server;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map.Entry;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -37,11 +38,12 @@ import io.netty.channel.Channel;
  * Details about a single setup session (i.e. connection).
  * 
  * @author matt
- * @version 1.0
+ * @version 1.1
  */
 public class SetupSession {
 
 	private final ConcurrentNavigableMap<String, String> subscriptions = new ConcurrentSkipListMap<>();
+	private final ConcurrentNavigableMap<String, DatumStreamSubscription> datumStreamSubscriptions = new ConcurrentSkipListMap<>();
 	private final UUID sessionId;
 	private final String login;
 	private final Channel channel;
@@ -186,7 +188,30 @@ public class SetupSession {
 	 *         not mapped
 	 */
 	public String removeSubscription(String id) {
-		return subscriptions.remove(id);
+		DatumStreamSubscription streamSub = datumStreamSubscriptions.remove(id);
+		String result = subscriptions.remove(id);
+		return (result == null && streamSub != null ? streamSub.getDestination() : result);
+	}
+
+	/**
+	 * Add a datum stream subscription.
+	 *
+	 * @param subscription
+	 *        the subscription to add
+	 * @since 1.1
+	 */
+	public void addDatumStreamSubscription(DatumStreamSubscription subscription) {
+		datumStreamSubscriptions.put(subscription.getId(), subscription);
+	}
+
+	/**
+	 * Get the datum stream subscriptions.
+	 *
+	 * @return the subscriptions, never {@literal null}
+	 * @since 1.1
+	 */
+	public Collection<DatumStreamSubscription> getDatumStreamSubscriptions() {
+		return Collections.unmodifiableCollection(datumStreamSubscriptions.values());
 	}
 
 	/**
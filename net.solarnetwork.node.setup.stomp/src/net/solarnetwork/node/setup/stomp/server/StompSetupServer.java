@@ -26,6 +26,9 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
@@ -49,7 +52,9 @@ import io.netty.handler.codec.stomp.StompSubframeEncoder;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import net.solarnetwork.node.service.NettyEventLoopService;
 import net.solarnetwork.node.service.support.BaseIdentifiable;
+import net.solarnetwork.service.OptionalService;
 import net.solarnetwork.settings.SettingSpecifier;
 import net.solarnetwork.settings.SettingSpecifierProvider;
 import net.solarnetwork.settings.SettingsChangeObserver;
@@ -60,7 +65,7 @@ import net.solarnetwork.settings.support.BasicTitleSettingSpecifier;
  * A STOMP protocol server for SolarNode Setup, using Netty.
  *
  * @author matt
- * @version 2.2
+ * @version 2.3
  */
 public class StompSetupServer extends BaseIdentifiable
 		implements SettingsChangeObserver, SettingSpecifierProvider {
@@ -76,6 +81,7 @@ public class StompSetupServer extends BaseIdentifiable
 
 	private static final Logger log = LoggerFactory.getLogger(StompSetupServer.class);
 
+	private final ConcurrentMap<UUID, SetupSession> sessions;
 	private final StompSetupServerService serverService;
 	private final ObjectMapper objectMapper;
 
@@ -84,10 +90,12 @@ public class StompSetupServer extends BaseIdentifiable
 	private final int port = DEFAULT_PORT;
 	private String bindAddress = DEFAULT_BIND_ADDRESS;
 	private int startupDelay = DEFAULT_STARTUP_DELAY_SECS;
+	private OptionalService<NettyEventLoopService> eventLoopService;
 
 	private ScheduledFuture<?> startupFuture;
 	private EventLoopGroup bossGroup;
 	private EventLoopGroup workerGroup;
+	private boolean sharedGroups;
 	private Channel channel;
 
 	/**
@@ -104,7 +112,31 @@ public class StompSetupServer extends BaseIdentifiable
 	 */
 	public StompSetupServer(StompSetupServerService serverService, ObjectMapper objectMapper,
 			Executor executor) {
+		this(new ConcurrentHashMap<>(4, 0.9f, 1), serverService, objectMapper, executor);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param sessions
+	 *        the session map, shared by all connections
+	 * @param serverService
+	 *        the server service
+	 * @param objectMapper
+	 *        the object mapper
+	 * @param executor
+	 *        the executor
+	 * @throws IllegalArgumentException
+	 *         if any argument is {@literal null}
+	 * @since 2.3
+	 */
+	public StompSetupServer(ConcurrentMap<UUID, SetupSession> sessions,
+			StompSetupServerService serverService, ObjectMapper objectMapper, Executor executor) {
 		super();
+		if ( sessions == null ) {
+			throw new IllegalArgumentException("The sessions argument must not be null.");
+		}
+		this.sessions = sessions;
 		if ( serverService == null ) {
 			throw new IllegalArgumentException("The serverService argument must not be null.");
 		}
@@ -134,6 +166,15 @@ public class StompSetupServer extends BaseIdentifiable
 			startupFuture.cancel(true);
 			startupFuture = null;
 		}
+		if ( sharedGroups ) {
+			// shared groups are owned by the event loop service, so only close our channel
+			if ( channel != null ) {
+				channel.close();
+			}
+			workerGroup = null;
+			bossGroup = null;
+			sharedGroups = false;
+		}
 		if ( workerGroup != null && !workerGroup.isShuttingDown() ) {
 			workerGroup.shutdownGracefully();
 			workerGroup = null;
@@ -173,10 +214,16 @@ public class StompSetupServer extends BaseIdentifiable
 				shutdown();
 				final int port = StompSetupServer.this.port;
 				final String bindAddress = StompSetupServer.this.bindAddress;
-				final ThreadFactory tf = new DefaultThreadFactory("STOMP-Setup:" + port, true);
-
-				bossGroup = new MultiThreadIoEventLoopGroup(tf, NioIoHandler.newFactory());
-				workerGroup = new MultiThreadIoEventLoopGroup(tf, NioIoHandler.newFactory());
+				final NettyEventLoopService shared = OptionalService.service(eventLoopService);
+				if ( shared != null ) {
+					bossGroup = shared.getBossGroup();
+					workerGroup = shared.getWorkerGroup();
+					sharedGroups = true;
+				} else {
+					final ThreadFactory tf = new DefaultThreadFactory("STOMP-Setup:" + port, true);
+					bossGroup = new MultiThreadIoEventLoopGroup(tf, NioIoHandler.newFactory());
+					workerGroup = new MultiThreadIoEventLoopGroup(tf, NioIoHandler.newFactory());
+				}
 				try {
 					ServerBootstrap b = new ServerBootstrap();
 					// @formatter:off
@@ -186,6 +233,9 @@ public class StompSetupServer extends BaseIdentifiable
 							.option(ChannelOption.SO_BACKLOG, 128)
 							.childOption(ChannelOption.SO_KEEPALIVE, true);
 					// @formatter:on
+					if ( shared != null ) {
+						b.childOption(ChannelOption.ALLOCATOR, shared.getAllocator());
+					}
 					ChannelFuture future = b.bind(bindAddress, port).sync();
 					StompSetupServer.this.channel = future.channel();
 					log.info("STOMP setup server listening on {}:{}", bindAddress, port);
@@ -217,7 +267,7 @@ public class StompSetupServer extends BaseIdentifiable
 					new StompSubframeDecoder(),
 					new StompSubframeAggregator(4096),
 					new StompSubframeEncoder(),
-					new StompSetupServerHandler(serverService, objectMapper, executor));
+					new StompSetupServerHandler(sessions, serverService, objectMapper, executor));
 			// @formatter:on
 		}
 	}
@@ -291,6 +341,33 @@ public class StompSetupServer extends BaseIdentifiable
 		this.startupDelay = startupDelay;
 	}
 
+	/**
+	 * Get the shared Netty event loop service.
+	 *
+	 * @return the service
+	 * @since 2.3
+	 */
+	public OptionalService<NettyEventLoopService> getEventLoopService() {
+		return eventLoopService;
+	}
+
+	/**
+	 * Set the shared Netty event loop service.
+	 *
+	 * <p>
+	 * If available when the server starts, the shared boss and worker groups
+	 * and buffer allocator will be used instead of dedicated event loop
+	 * groups.
+	 * </p>
+	 *
+	 * @param eventLoopService
+	 *        the service to set
+	 * @since 2.3
+	 */
+	public void setEventLoopService(OptionalService<NettyEventLoopService> eventLoopService) {
+		this.eventLoopService = eventLoopService;
+	}
+
 	/**
 	 * Get the address to bind to.
 	 *
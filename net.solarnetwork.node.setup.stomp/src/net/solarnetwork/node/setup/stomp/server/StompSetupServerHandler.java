@@ -101,7 +101,10 @@ import net.solarnetwork.security.SnsAuthorizationInfo;
  * details.</li>
  * <li>The client must send at least one {@literal SUBSCRIBE} frame with a
  * {@literal destination} header {@literal /setup/**} to receive future messages
- * on.</li>
+ * on. A {@literal SUBSCRIBE} frame with a {@literal destination} header of
+ * {@link SetupTopic#DatumStream} (optionally followed by a source ID pattern)
+ * subscribes to a live stream of datum, published by
+ * {@link DatumStreamPublisher}.</li>
  * <li>The client then can send any number of {@literal SEND} frames to various
  * destinations and expect {@literal MESSAGE} frames back from those same
  * destinations.</li>
@@ -126,7 +129,7 @@ import net.solarnetwork.security.SnsAuthorizationInfo;
  * </p>
  * 
  * @author matt
- * @version 2.0
+ * @version 2.1
  */
 public class StompSetupServerHandler extends ChannelInboundHandlerAdapter {
 
@@ -264,6 +267,10 @@ public class StompSetupServerHandler extends ChannelInboundHandlerAdapter {
 					handleSubscribe(ctx, frame, session);
 					break;
 
+				case UNSUBSCRIBE:
+					handleUnsubscribe(ctx, frame, session);
+					break;
+
 				default:
 					sendError(ctx, "Unsupported STOMP command");
 					break;
@@ -346,10 +353,35 @@ public class StompSetupServerHandler extends ChannelInboundHandlerAdapter {
 			sendError(ctx, "Missing destination header.");
 			return;
 		}
+		if ( SetupTopic.DatumStream.matches(dest) ) {
+			long minInterval = 0;
+			String minIntervalValue = decodeStompHeaderValue(
+					frame.headers().getAsString(SetupHeader.MinInterval.getValue()));
+			if ( minIntervalValue != null && !minIntervalValue.isEmpty() ) {
+				try {
+					minInterval = Long.parseLong(minIntervalValue);
+				} catch ( NumberFormatException e ) {
+					sendError(ctx, "Invalid min-interval header value.");
+					return;
+				}
+			}
+			session.addDatumStreamSubscription(new DatumStreamSubscription(subId, dest, minInterval));
+			return;
+		}
 		// TODO: support ack?
 		session.addSubscription(subId, dest);
 	}
 
+	private void handleUnsubscribe(final ChannelHandlerContext ctx, final StompFrame frame,
+			final SetupSession session) {
+		String subId = decodeStompHeaderValue(frame.headers().getAsString(StompHeaders.ID));
+		if ( subId == null || subId.isEmpty() ) {
+			sendError(ctx, "Missing id header.");
+			return;
+		}
+		session.removeSubscription(subId);
+	}
+
 	private void handleSend(final ChannelHandlerContext ctx, final StompFrame frame,
 			final SetupSession session) {
 		String dest = decodeStompHeaderValue(frame.headers().getAsString(StompHeaders.DESTINATION));
@@ -0,0 +1,78 @@
+/* ==================================================================
+ * SimpUserRegistryFactoryBean.java - 20/10/2026 8:14:32 am
+ * 
+ * Copyright 2026 SolarNetwork.net Dev Team
+ * 
+ * This program is free software; you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of 
+ * the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful, 
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with this program; if not, write to the Free Software 
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.setup.web.support;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.web.socket.messaging.DefaultSimpUserRegistry;
+
+/**
+ * Factory bean to work around getting access to the framework-generated
+ * {@link SimpUserRegistry}.
+ * 
+ * <p>
+ * The {@code websocket:message-broker} configuration registers a
+ * {@link DefaultSimpUserRegistry} under a generated bean name, so this looks up
+ * that instance by type.
+ * </p>
+ * 
+ * @author matt
+ * @version 1.0
+ * @since 5.3
+ */
+public class SimpUserRegistryFactoryBean
+		implements BeanFactoryAware, FactoryBean<SimpUserRegistry> {
+
+	private BeanFactory beanFactory;
+
+	/**
+	 * Default constructor.
+	 */
+	public SimpUserRegistryFactoryBean() {
+		super();
+	}
+
+	@Override
+	public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+		this.beanFactory = beanFactory;
+	}
+
+	@Override
+	public SimpUserRegistry getObject() throws Exception {
+		return beanFactory.getBean(DefaultSimpUserRegistry.class);
+	}
+
+	@Override
+	public Class<?> getObjectType() {
+		return SimpUserRegistry.class;
+	}
+
+	@Override
+	public boolean isSingleton() {
+		return true;
+	}
+
+}
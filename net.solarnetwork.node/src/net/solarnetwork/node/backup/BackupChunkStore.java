@@ -0,0 +1,356 @@
+/* ==================================================================
+ * BackupChunkStore.java - 19/10/2026 9:31:47 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.backup;
+
+import static net.solarnetwork.util.ObjectUtils.requireNonNullArgument;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A local, content-addressed store of backup resource chunks.
+ *
+ * <p>
+ * Resources are split into chunks with a {@link ContentDefinedChunker}, and
+ * each chunk is stored once in a file named after the hex-encoded SHA-256
+ * digest of its content, so data shared between resources or between backups
+ * is only stored once. Chunk files are compressed. A resource is restored by
+ * reading its chunks back in order.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 4.5
+ */
+public class BackupChunkStore {
+
+	private static final String TEMP_FILE_PREFIX = ".tmp-";
+
+	private static final Logger log = LoggerFactory.getLogger(BackupChunkStore.class);
+
+	private final File directory;
+	private final ContentDefinedChunker chunker;
+
+	/**
+	 * Constructor.
+	 *
+	 * <p>
+	 * A default {@link ContentDefinedChunker} will be used.
+	 * </p>
+	 *
+	 * @param directory
+	 *        the directory to store chunks in
+	 * @throws IllegalArgumentException
+	 *         if any argument is {@literal null}
+	 */
+	public BackupChunkStore(File directory) {
+		this(directory, new ContentDefinedChunker());
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param directory
+	 *        the directory to store chunks in
+	 * @param chunker
+	 *        the chunker to use
+	 * @throws IllegalArgumentException
+	 *         if any argument is {@literal null}
+	 */
+	public BackupChunkStore(File directory, ContentDefinedChunker chunker) {
+		super();
+		this.directory = requireNonNullArgument(directory, "directory");
+		this.chunker = requireNonNullArgument(chunker, "chunker");
+	}
+
+	/**
+	 * The result of storing a resource.
+	 */
+	public static final class StoreResult {
+
+		private final List<String> chunks;
+		private final String digest;
+		private final long size;
+		private final int newChunkCount;
+
+		private StoreResult(List<String> chunks, String digest, long size, int newChunkCount) {
+			super();
+			this.chunks = chunks;
+			this.digest = digest;
+			this.size = size;
+			this.newChunkCount = newChunkCount;
+		}
+
+		/**
+		 * Get the chunk digests, in resource order.
+		 *
+		 * @return the chunk digests
+		 */
+		public List<String> getChunks() {
+			return chunks;
+		}
+
+		/**
+		 * Get the SHA-256 digest of the entire resource.
+		 *
+		 * @return the hex-encoded digest
+		 */
+		public String getDigest() {
+			return digest;
+		}
+
+		/**
+		 * Get the resource size.
+		 *
+		 * @return the number of bytes stored
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * Get the number of chunks that were not already stored.
+		 *
+		 * @return the number of new chunks
+		 */
+		public int getNewChunkCount() {
+			return newChunkCount;
+		}
+
+	}
+
+	/**
+	 * Store the content of a stream as chunks.
+	 *
+	 * <p>
+	 * The stream is read until the end, but not closed.
+	 * </p>
+	 *
+	 * @param in
+	 *        the content to store
+	 * @return the store result
+	 * @throws IOException
+	 *         if an IO error occurs
+	 */
+	public StoreResult store(InputStream in) throws IOException {
+		final List<String> chunks = new ArrayList<>(8);
+		final MessageDigest contentDigest = DigestUtils.getSha256Digest();
+		final MessageDigest chunkDigest = DigestUtils.getSha256Digest();
+		final int[] newChunkCount = new int[] { 0 };
+		final long size = chunker.split(in, (data, offset, length) -> {
+			contentDigest.update(data, offset, length);
+			chunkDigest.update(data, offset, length);
+			final String digest = Hex.encodeHexString(chunkDigest.digest());
+			if ( saveChunk(digest, data, offset, length) ) {
+				newChunkCount[0]++;
+			}
+			chunks.add(digest);
+		});
+		return new StoreResult(chunks, Hex.encodeHexString(contentDigest.digest()), size,
+				newChunkCount[0]);
+	}
+
+	private boolean saveChunk(String digest, byte[] data, int offset, int length)
+			throws IOException {
+		final File f = chunkFile(digest);
+		if ( f.isFile() ) {
+			return false;
+		}
+		final File dir = f.getParentFile();
+		if ( !dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory() ) {
+			throw new IOException("Unable to create chunk directory " + dir.getAbsolutePath());
+		}
+		final File tmp = File.createTempFile(TEMP_FILE_PREFIX, null, dir);
+		try {
+			try (OutputStream out = new DeflaterOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+				out.write(data, offset, length);
+			}
+			Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} catch ( FileAlreadyExistsException e ) {
+			// stored concurrently
+			return false;
+		} finally {
+			Files.deleteIfExists(tmp.toPath());
+		}
+		return true;
+	}
+
+	private File chunkFile(String digest) {
+		if ( digest == null || digest.length() < 3 || digest.indexOf('/') >= 0
+				|| digest.indexOf('\\') >= 0 || digest.indexOf('.') >= 0 ) {
+			throw new IllegalArgumentException("Invalid chunk digest [" + digest + "]");
+		}
+		return new File(new File(directory, digest.substring(0, 2)), digest);
+	}
+
+	/**
+	 * Test if a chunk is stored.
+	 *
+	 * @param digest
+	 *        the chunk digest
+	 * @return {@literal true} if the chunk is stored
+	 */
+	public boolean contains(String digest) {
+		return chunkFile(digest).isFile();
+	}
+
+	/**
+	 * Open a single chunk for reading.
+	 *
+	 * @param digest
+	 *        the chunk digest
+	 * @return the chunk content
+	 * @throws FileNotFoundException
+	 *         if the chunk is not stored
+	 * @throws IOException
+	 *         if any other IO error occurs
+	 */
+	public InputStream openChunk(String digest) throws IOException {
+		final File f = chunkFile(digest);
+		if ( !f.isFile() ) {
+			throw new FileNotFoundException("Backup chunk " + digest + " not found.");
+		}
+		return new InflaterInputStream(new BufferedInputStream(Files.newInputStream(f.toPath())));
+	}
+
+	/**
+	 * Open a resource previously stored with {@link #store(InputStream)} for
+	 * reading.
+	 *
+	 * <p>
+	 * Each chunk is opened only once the previous chunk has been read.
+	 * </p>
+	 *
+	 * @param chunks
+	 *        the resource chunk digests, in resource order
+	 * @return the resource content
+	 * @throws FileNotFoundException
+	 *         if any chunk is not stored
+	 */
+	public InputStream open(List<String> chunks) throws FileNotFoundException {
+		for ( String digest : chunks ) {
+			if ( !contains(digest) ) {
+				throw new FileNotFoundException("Backup chunk " + digest + " not found.");
+			}
+		}
+		final Iterator<String> itr = chunks.iterator();
+		return new SequenceInputStream(new Enumeration<InputStream>() {
+
+			@Override
+			public boolean hasMoreElements() {
+				return itr.hasNext();
+			}
+
+			@Override
+			public InputStream nextElement() {
+				if ( !itr.hasNext() ) {
+					throw new NoSuchElementException();
+				}
+				final String digest = itr.next();
+				try {
+					return openChunk(digest);
+				} catch ( IOException e ) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Delete all stored chunks not in a given set.
+	 *
+	 * @param digests
+	 *        the digests of the chunks to keep
+	 * @return the number of chunks deleted
+	 */
+	public int retainAll(Set<String> digests) {
+		int count = 0;
+		final File[] dirs = directory.listFiles(File::isDirectory);
+		if ( dirs == null ) {
+			return count;
+		}
+		for ( File dir : dirs ) {
+			final File[] files = dir.listFiles(File::isFile);
+			if ( files == null ) {
+				continue;
+			}
+			for ( File f : files ) {
+				if ( f.getName().startsWith(TEMP_FILE_PREFIX) || digests.contains(f.getName()) ) {
+					continue;
+				}
+				if ( f.delete() ) {
+					count++;
+				} else {
+					log.warn("Unable to delete backup chunk {}", f.getAbsolutePath());
+				}
+			}
+			String[] remaining = dir.list();
+			if ( remaining != null && remaining.length < 1 ) {
+				dir.delete();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Get the directory chunks are stored in.
+	 *
+	 * @return the directory
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Get the chunker.
+	 *
+	 * @return the chunker
+	 */
+	public ContentDefinedChunker getChunker() {
+		return chunker;
+	}
+
+}
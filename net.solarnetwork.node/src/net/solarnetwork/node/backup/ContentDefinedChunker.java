@@ -0,0 +1,255 @@
+/* ==================================================================
+ * ContentDefinedChunker.java - 19/10/2026 9:04:12 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.backup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.SplittableRandom;
+
+/**
+ * Split a stream of data into variable-sized chunks, with chunk boundaries
+ * defined by the content itself.
+ *
+ * <p>
+ * Chunk boundaries are found with a "gear" rolling hash over the data, using
+ * normalized chunking to keep chunk sizes close to the configured average
+ * size. Because boundaries depend only on the nearby content, inserting or
+ * removing data in a stream only changes the chunks around the modification,
+ * and the remaining chunks are the same as before. The hash table is generated
+ * from a fixed seed, so the same data always produces the same chunks.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 4.5
+ */
+public class ContentDefinedChunker {
+
+	/** The default minimum chunk size. */
+	public static final int DEFAULT_MIN_SIZE = 16 * 1024;
+
+	/** The default average chunk size. */
+	public static final int DEFAULT_AVG_SIZE = 64 * 1024;
+
+	/** The default maximum chunk size. */
+	public static final int DEFAULT_MAX_SIZE = 256 * 1024;
+
+	private static final long GEAR_SEED = 0x536f6c61724e6f64L;
+
+	private static final long[] GEAR = gearTable();
+
+	private final int minSize;
+	private final int avgSize;
+	private final int maxSize;
+	private final long smallMask;
+	private final long largeMask;
+
+	/**
+	 * API for a handler of chunks.
+	 */
+	@FunctionalInterface
+	public interface ChunkHandler {
+
+		/**
+		 * Handle a chunk.
+		 *
+		 * <p>
+		 * The {@code data} array is re-used for subsequent chunks, so must not
+		 * be retained after this method returns.
+		 * </p>
+		 *
+		 * @param data
+		 *        the data array
+		 * @param offset
+		 *        the offset within {@code data} the chunk starts at
+		 * @param length
+		 *        the length of the chunk
+		 * @throws IOException
+		 *         if an IO error occurs
+		 */
+		void chunk(byte[] data, int offset, int length) throws IOException;
+
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * <p>
+	 * The default chunk sizes will be used.
+	 * </p>
+	 */
+	public ContentDefinedChunker() {
+		this(DEFAULT_MIN_SIZE, DEFAULT_AVG_SIZE, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param minSize
+	 *        the minimum chunk size
+	 * @param avgSize
+	 *        the average chunk size; must be a power of 2
+	 * @param maxSize
+	 *        the maximum chunk size
+	 * @throws IllegalArgumentException
+	 *         if the sizes are not ordered, or {@code avgSize} is not a power
+	 *         of 2
+	 */
+	public ContentDefinedChunker(int minSize, int avgSize, int maxSize) {
+		super();
+		if ( !(0 < minSize && minSize < avgSize && avgSize < maxSize) ) {
+			throw new IllegalArgumentException(
+					"The chunk sizes must satisfy 0 < minSize < avgSize < maxSize.");
+		}
+		if ( Integer.bitCount(avgSize) != 1 || avgSize < 64 ) {
+			throw new IllegalArgumentException("The avgSize must be a power of 2 of at least 64.");
+		}
+		this.minSize = minSize;
+		this.avgSize = avgSize;
+		this.maxSize = maxSize;
+		final int bits = Integer.numberOfTrailingZeros(avgSize);
+		this.smallMask = highBitsMask(bits + 2);
+		this.largeMask = highBitsMask(bits - 2);
+	}
+
+	private static long highBitsMask(int bits) {
+		return (-1L << (64 - bits));
+	}
+
+	private static long[] gearTable() {
+		final SplittableRandom rng = new SplittableRandom(GEAR_SEED);
+		final long[] table = new long[256];
+		for ( int i = 0; i < table.length; i++ ) {
+			table[i] = rng.nextLong();
+		}
+		return table;
+	}
+
+	/**
+	 * Split a stream into chunks.
+	 *
+	 * <p>
+	 * The stream is read until the end, but not closed.
+	 * </p>
+	 *
+	 * @param in
+	 *        the stream to split
+	 * @param handler
+	 *        the handler to pass each chunk to
+	 * @return the total number of bytes read
+	 * @throws IOException
+	 *         if an IO error occurs
+	 */
+	public long split(InputStream in, ChunkHandler handler) throws IOException {
+		final byte[] buf = new byte[maxSize];
+		long total = 0;
+		int len = 0;
+		boolean eof = false;
+		while ( true ) {
+			while ( !eof && len < buf.length ) {
+				int n = in.read(buf, len, buf.length - len);
+				if ( n < 0 ) {
+					eof = true;
+				} else {
+					len += n;
+				}
+			}
+			if ( len < 1 ) {
+				break;
+			}
+			final int cut = cutPoint(buf, len);
+			handler.chunk(buf, 0, cut);
+			total += cut;
+			len -= cut;
+			if ( len > 0 ) {
+				System.arraycopy(buf, cut, buf, 0, len);
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Find the next chunk boundary.
+	 *
+	 * @param data
+	 *        the data, starting at the beginning of a chunk
+	 * @param length
+	 *        the length of the available data; must be at least
+	 *        {@code maxSize} unless at the end of the stream
+	 * @return the length of the chunk
+	 */
+	private int cutPoint(byte[] data, int length) {
+		if ( length <= minSize ) {
+			return length;
+		}
+		final int end = Math.min(length, maxSize);
+		final int normal = Math.min(end, avgSize);
+		long hash = 0;
+		int i = minSize;
+		for ( ; i < normal; i++ ) {
+			hash = (hash << 1) + GEAR[data[i] & 0xFF];
+			if ( (hash & smallMask) == 0 ) {
+				return i + 1;
+			}
+		}
+		for ( ; i < end; i++ ) {
+			hash = (hash << 1) + GEAR[data[i] & 0xFF];
+			if ( (hash & largeMask) == 0 ) {
+				return i + 1;
+			}
+		}
+		return end;
+	}
+
+	/**
+	 * Get the minimum chunk size.
+	 *
+	 * @return the minimum size
+	 */
+	public int getMinSize() {
+		return minSize;
+	}
+
+	/**
+	 * Get the average chunk size.
+	 *
+	 * @return the average size
+	 */
+	public int getAvgSize() {
+		return avgSize;
+	}
+
+	/**
+	 * Get the maximum chunk size.
+	 *
+	 * @return the maximum size
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+}
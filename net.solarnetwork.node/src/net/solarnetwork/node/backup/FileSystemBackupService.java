@@ -28,11 +28,15 @@ import static net.solarnetwork.node.backup.BackupStatus.Error;
 import static net.solarnetwork.node.backup.BackupStatus.RunningBackup;
 import static net.solarnetwork.node.backup.BackupStatus.Unconfigured;
 import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
@@ -43,9 +47,11 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -61,13 +67,24 @@ import net.solarnetwork.settings.SettingSpecifierProvider;
 import net.solarnetwork.settings.support.BasicSliderSettingSpecifier;
 import net.solarnetwork.settings.support.BasicTextFieldSettingSpecifier;
 import net.solarnetwork.settings.support.BasicTitleSettingSpecifier;
+import net.solarnetwork.settings.support.BasicToggleSettingSpecifier;
 
 /**
  * {@link BackupService} implementation that copies files to another location in
  * the file system.
  *
+ * <p>
+ * When {@code chunkedStorage} is enabled, resources are not copied into the
+ * backup archives directly. Instead they are split into content-defined chunks
+ * and stored once in a {@link BackupChunkStore} in the {@code chunks}
+ * directory within the backup directory, and each archive entry holds just the
+ * list of chunks of its resource. Unchanged data is then not copied again on
+ * subsequent backups. Chunks no longer referenced by any backup archive are
+ * deleted when old backups are deleted.
+ * </p>
+ *
  * @author matt
- * @version 2.4
+ * @version 2.5
  */
 public class FileSystemBackupService extends BackupServiceSupport implements SettingSpecifierProvider {
 
@@ -82,6 +99,28 @@ public class FileSystemBackupService extends BackupServiceSupport implements Set
 
 	private static final String ARCHIVE_NAME_FORMAT = "node-%2$d-backup-%1$tY%1$tm%1$tdT%1$tH%1$tM%1$tS.zip";
 
+	/**
+	 * The name of the chunk store directory within the backup directory.
+	 *
+	 * @since 2.5
+	 */
+	public static final String CHUNK_DIR_NAME = "chunks";
+
+	/**
+	 * The archive entry comment used to mark entries that contain a chunk list
+	 * rather than the resource content.
+	 *
+	 * @since 2.5
+	 */
+	public static final String CHUNKED_ENTRY_COMMENT = "sn-chunks";
+
+	/**
+	 * The default value of the {@code chunkedStorage} property.
+	 *
+	 * @since 2.5
+	 */
+	public static final boolean DEFAULT_CHUNKED_STORAGE = true;
+
 	private final Logger log = LoggerFactory.getLogger(getClass());
 
 	private MessageSource messageSource;
@@ -89,6 +128,7 @@ public class FileSystemBackupService extends BackupServiceSupport implements Set
 	private OptionalService<IdentityService> identityService;
 	private int additionalBackupCount = 1;
 	private BackupStatus status = Configured;
+	private boolean chunkedStorage = DEFAULT_CHUNKED_STORAGE;
 
 	/**
 	 * Default constructor.
@@ -131,6 +171,7 @@ public class FileSystemBackupService extends BackupServiceSupport implements Set
 				defaults.getBackupDir().getAbsolutePath()));
 		results.add(new BasicSliderSettingSpecifier("additionalBackupCount",
 				(double) defaults.getAdditionalBackupCount(), 0.0, 10.0, 1.0));
+		results.add(new BasicToggleSettingSpecifier("chunkedStorage", defaults.isChunkedStorage()));
 		return results;
 	}
 
@@ -194,14 +235,30 @@ public class FileSystemBackupService extends BackupServiceSupport implements Set
 		final String archiveKey = getArchiveKey(archiveName);
 		log.info("Starting backup to archive {}", archiveName);
 		log.trace("Backup archive: {}", archiveFile.getAbsolutePath());
+		final BackupChunkStore chunkStore = (chunkedStorage ? chunkStore() : null);
 		Backup backup = null;
 		ZipOutputStream zos = null;
 		try {
 			zos = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(archiveFile)));
+			long totalSize = 0;
+			int newChunkCount = 0;
 			while ( itr.hasNext() ) {
 				BackupResource r = itr.next();
 				log.debug("Backup up resource {} to archive {}", r.getBackupPath(), archiveName);
-				zos.putNextEntry(new ZipEntry(r.getBackupPath()));
+				ZipEntry entry = new ZipEntry(r.getBackupPath());
+				if ( chunkStore != null ) {
+					BackupChunkStore.StoreResult stored;
+					try (InputStream in = r.getInputStream()) {
+						stored = chunkStore.store(in);
+					}
+					totalSize += stored.getSize();
+					newChunkCount += stored.getNewChunkCount();
+					entry.setComment(CHUNKED_ENTRY_COMMENT);
+					zos.putNextEntry(entry);
+					zos.write(chunkManifest(stored));
+					continue;
+				}
+				zos.putNextEntry(entry);
 				FileCopyUtils.copy(r.getInputStream(), new FilterOutputStream(zos) {
 
 					@Override
@@ -213,20 +270,31 @@ public class FileSystemBackupService extends BackupServiceSupport implements Set
 			}
 			zos.flush();
 			zos.finish();
-			log.info("Backup complete to archive {}", archiveName);
+			if ( chunkStore != null ) {
+				log.info("Backup complete to archive {}; {} bytes stored with {} new chunks",
+						archiveName, totalSize, newChunkCount);
+			} else {
+				log.info("Backup complete to archive {}", archiveName);
+			}
 			backup = new SimpleBackup(nodeId, Date.from(now), archiveKey, archiveFile.length(), true);
 
 			// clean out older backups
 			File[] backupFiles = getAvailableBackupFiles();
+			boolean deleted = false;
 			if ( backupFiles != null && backupFiles.length > additionalBackupCount + 1 ) {
 				// delete older files
 				for ( int i = additionalBackupCount + 1; i < backupFiles.length; i++ ) {
 					log.info("Deleting old backup archive {}", backupFiles[i].getName());
-					if ( !backupFiles[i].delete() ) {
+					if ( backupFiles[i].delete() ) {
+						deleted = true;
+					} else {
 						log.warn("Unable to delete backup archive {}", backupFiles[i].getAbsolutePath());
 					}
 				}
 			}
+			if ( deleted ) {
+				removeUnusedChunks();
+			}
 		} catch ( IOException e ) {
 			log.error("IO error creating backup: {}", e.getMessage());
 			setStatus(Error);
@@ -252,6 +320,83 @@ public class FileSystemBackupService extends BackupServiceSupport implements Set
 		return backup;
 	}
 
+	private BackupChunkStore chunkStore() {
+		return new BackupChunkStore(new File(backupDir, CHUNK_DIR_NAME));
+	}
+
+	private static byte[] chunkManifest(BackupChunkStore.StoreResult stored) {
+		StringBuilder buf = new StringBuilder(65 * (stored.getChunks().size() + 1));
+		buf.append(stored.getDigest()).append('\n');
+		for ( String chunk : stored.getChunks() ) {
+			buf.append(chunk).append('\n');
+		}
+		return buf.toString().getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Read a chunk manifest from an archive entry.
+	 *
+	 * @param zf
+	 *        the archive
+	 * @param entry
+	 *        the entry
+	 * @return the manifest, whose first element is the resource digest and
+	 *         remaining elements the chunk digests
+	 * @throws IOException
+	 *         if an IO error occurs
+	 */
+	private static List<String> readChunkManifest(ZipFile zf, ZipEntry entry) throws IOException {
+		List<String> result = new ArrayList<>(8);
+		try (BufferedReader r = new BufferedReader(
+				new InputStreamReader(zf.getInputStream(entry), StandardCharsets.US_ASCII))) {
+			String line;
+			while ( (line = r.readLine()) != null ) {
+				if ( !line.isEmpty() ) {
+					result.add(line);
+				}
+			}
+		}
+		return result;
+	}
+
+	private static boolean isChunkedEntry(ZipEntry entry) {
+		return CHUNKED_ENTRY_COMMENT.equals(entry.getComment());
+	}
+
+	/**
+	 * Delete any stored chunks not referenced by an available backup.
+	 */
+	private void removeUnusedChunks() {
+		final BackupChunkStore chunkStore = chunkStore();
+		if ( !chunkStore.getDirectory().isDirectory() ) {
+			return;
+		}
+		final Set<String> used = new HashSet<>(256);
+		File[] archives = backupDir.listFiles(new ArchiveFilter());
+		if ( archives != null ) {
+			for ( File archive : archives ) {
+				try (ZipFile zf = new ZipFile(archive)) {
+					Enumeration<? extends ZipEntry> entries = zf.entries();
+					while ( entries.hasMoreElements() ) {
+						ZipEntry entry = entries.nextElement();
+						if ( isChunkedEntry(entry) ) {
+							List<String> manifest = readChunkManifest(zf, entry);
+							used.addAll(manifest.subList(1, manifest.size()));
+						}
+					}
+				} catch ( IOException e ) {
+					log.warn("Error reading backup archive {}, not removing unused chunks: {}",
+							archive.getName(), e.getMessage());
+					return;
+				}
+			}
+		}
+		int count = chunkStore.retainAll(used);
+		if ( count > 0 ) {
+			log.info("Deleted {} unused backup chunks", count);
+		}
+	}
+
 	private final Long nodeIdForArchiveFileName(Map<String, String> props) {
 		Long nodeId = backupNodeIdFromProps(null, props);
 		if ( nodeId == 0L ) {
@@ -298,10 +443,18 @@ public class FileSystemBackupService extends BackupServiceSupport implements Set
 		}
 		try {
 			final ZipFile zf = new ZipFile(archiveFile);
+			final BackupChunkStore chunkStore = chunkStore();
 			Enumeration<? extends ZipEntry> entries = zf.entries();
 			List<BackupResource> result = new ArrayList<BackupResource>(20);
 			while ( entries.hasMoreElements() ) {
-				result.add(new ZipEntryBackupResource(zf, entries.nextElement()));
+				ZipEntry entry = entries.nextElement();
+				if ( isChunkedEntry(entry) ) {
+					List<String> manifest = readChunkManifest(zf, entry);
+					result.add(new ChunkedZipEntryBackupResource(zf, entry, chunkStore,
+							manifest.get(0), manifest.subList(1, manifest.size())));
+				} else {
+					result.add(new ZipEntryBackupResource(zf, entry));
+				}
 			}
 			return new CollectionBackupResourceIterable(result) {
 
@@ -339,6 +492,7 @@ public class FileSystemBackupService extends BackupServiceSupport implements Set
 				log.warn("Unable to delete archive file {}", archive.getAbsolutePath());
 			}
 		}
+		removeUnusedChunks();
 	}
 
 	/**
@@ -446,6 +600,35 @@ public class FileSystemBackupService extends BackupServiceSupport implements Set
 		};
 	}
 
+	/**
+	 * A zip entry resource whose content is read from a chunk store.
+	 */
+	private static class ChunkedZipEntryBackupResource extends ZipEntryBackupResource {
+
+		private final BackupChunkStore chunkStore;
+		private final String digest;
+		private final List<String> chunks;
+
+		private ChunkedZipEntryBackupResource(ZipFile archiveFile, ZipEntry entry,
+				BackupChunkStore chunkStore, String digest, List<String> chunks) {
+			super(archiveFile, entry);
+			this.chunkStore = chunkStore;
+			this.digest = digest;
+			this.chunks = chunks;
+		}
+
+		@Override
+		public InputStream getInputStream() throws IOException {
+			return chunkStore.open(chunks);
+		}
+
+		@Override
+		public String getSha256Digest() {
+			return digest;
+		}
+
+	}
+
 	private static class ArchiveFilter implements FilenameFilter {
 
 		@Override
@@ -534,6 +717,35 @@ public class FileSystemBackupService extends BackupServiceSupport implements Set
 		this.additionalBackupCount = additionalBackupCount;
 	}
 
+	/**
+	 * Get the chunked storage mode.
+	 *
+	 * @return {@literal true} to store resources as de-duplicated chunks;
+	 *         defaults to {@link #DEFAULT_CHUNKED_STORAGE}
+	 * @since 2.5
+	 */
+	public boolean isChunkedStorage() {
+		return chunkedStorage;
+	}
+
+	/**
+	 * Set the chunked storage mode.
+	 *
+	 * <p>
+	 * Changing this setting does not affect existing backups, which can still
+	 * be restored.
+	 * </p>
+	 *
+	 * @param chunkedStorage
+	 *        {@literal true} to store resources as de-duplicated chunks in a
+	 *        chunk store shared by all backups, or {@literal false} to copy
+	 *        resources into each backup archive
+	 * @since 2.5
+	 */
+	public void setChunkedStorage(boolean chunkedStorage) {
+		this.chunkedStorage = chunkedStorage;
+	}
+
 	/**
 	 * Get the identity service.
 	 *
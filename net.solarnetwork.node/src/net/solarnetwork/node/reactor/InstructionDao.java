@@ -22,6 +22,7 @@
 
 package net.solarnetwork.node.reactor;
 
+import java.time.Instant;
 import java.util.List;
 import net.solarnetwork.domain.InstructionStatus.InstructionState;
 
@@ -29,7 +30,7 @@ import net.solarnetwork.domain.InstructionStatus.InstructionState;
  * DAO API for Instructor entities.
  * 
  * @author matt
- * @version 2.1
+ * @version 2.2
  */
 public interface InstructionDao {
 
@@ -98,6 +99,29 @@ public interface InstructionDao {
 	 */
 	List<Instruction> findInstructionsForState(InstructionState state);
 
+	/**
+	 * Find all instructions in a given state with an execution date up to a
+	 * given date.
+	 * 
+	 * <p>
+	 * This can be used to find instructions scheduled for future execution.
+	 * This default implementation calls
+	 * {@link #findInstructionsForState(InstructionState)} and thus only returns
+	 * instructions that are already due for execution.
+	 * </p>
+	 * 
+	 * @param state
+	 *        the instruction state
+	 * @param maxExecutionDate
+	 *        the maximum execution date to include
+	 * @return the found instructions, or empty list if none available
+	 * @since 2.2
+	 */
+	default List<Instruction> findInstructionsForState(InstructionState state,
+			Instant maxExecutionDate) {
+		return findInstructionsForState(state);
+	}
+
 	/**
 	 * Find all instructions in a given state that also have a parameters for a
 	 * given parent instruction.
@@ -24,7 +24,19 @@ package net.solarnetwork.node.reactor;
 
 import static net.solarnetwork.node.reactor.InstructionUtils.createErrorResultParameters;
 import static net.solarnetwork.node.reactor.InstructionUtils.createStatus;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import net.solarnetwork.domain.InstructionStatus.InstructionState;
@@ -32,8 +44,18 @@ import net.solarnetwork.domain.InstructionStatus.InstructionState;
 /**
  * Default implementation of {@link InstructionExecutionService}.
  * 
+ * <p>
+ * Instructions can be executed concurrently from different threads. The
+ * handlers for each topic are found from an index that is rebuilt whenever the
+ * configured handlers change. Instructions with a topic in
+ * {@link #CONTROL_TOPICS} are serialized by the control IDs given as their
+ * parameter names, so instructions for different controls can execute at the
+ * same time while instructions for the same control execute one at a time.
+ * Instructions for all other topics are serialized per handler.
+ * </p>
+ * 
  * @author matt
- * @version 1.0
+ * @version 1.1
  * @since 2.0
  */
 public class SimpleInstructionExecutionService implements InstructionExecutionService {
@@ -41,7 +63,29 @@ public class SimpleInstructionExecutionService implements InstructionExecutionSe
 	/** Default value for the {@code executionReceivedHourLimit} property. */
 	public static final int DEFAULT_EXECUTION_RECEIVED_HOUR_LIMIT = 24;
 
+	/**
+	 * The topics whose instruction parameter names are control IDs.
+	 * 
+	 * @since 1.1
+	 */
+	public static final Set<String> CONTROL_TOPICS = Collections.unmodifiableSet(
+			new HashSet<>(Arrays.asList(InstructionHandler.TOPIC_SET_CONTROL_PARAMETER,
+					InstructionHandler.TOPIC_DEMAND_BALANCE, InstructionHandler.TOPIC_SHED_LOAD,
+					InstructionHandler.TOPIC_SET_OPERATING_STATE, InstructionHandler.TOPIC_SIGNAL)));
+
+	/**
+	 * The number of locks used to serialize instructions.
+	 * 
+	 * @since 1.1
+	 */
+	public static final int LOCK_STRIPE_COUNT = 64;
+
 	private final List<InstructionHandler> handlers;
+	private final ReentrantLock[] locks;
+	private final ThreadLocal<Boolean> executing = new ThreadLocal<>();
+	private final ConcurrentMap<String, TopicStats> topicStats = new ConcurrentHashMap<>(16, 0.9f,
+			2);
+	private volatile HandlerIndex handlerIndex = new HandlerIndex(new InstructionHandler[0]);
 	private int executionReceivedHourLimit = DEFAULT_EXECUTION_RECEIVED_HOUR_LIMIT;
 
 	private final Logger log = LoggerFactory.getLogger(getClass());
@@ -60,10 +104,135 @@ public class SimpleInstructionExecutionService implements InstructionExecutionSe
 			throw new IllegalArgumentException("The handlers argument must not be null.");
 		}
 		this.handlers = handlers;
+		this.locks = new ReentrantLock[LOCK_STRIPE_COUNT];
+		for ( int i = 0; i < LOCK_STRIPE_COUNT; i++ ) {
+			locks[i] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * An index of handlers by topic, for a specific list of handlers.
+	 */
+	private static final class HandlerIndex {
+
+		private final InstructionHandler[] handlers;
+		private final ConcurrentMap<String, List<InstructionHandler>> topicHandlers;
+
+		private HandlerIndex(InstructionHandler[] handlers) {
+			super();
+			this.handlers = handlers;
+			this.topicHandlers = new ConcurrentHashMap<>(16, 0.9f, 2);
+		}
+
+		private boolean matches(List<InstructionHandler> list) {
+			int i = 0;
+			for ( InstructionHandler handler : list ) {
+				if ( i >= handlers.length || handlers[i] != handler ) {
+					return false;
+				}
+				i++;
+			}
+			return (i == handlers.length);
+		}
+
+		private List<InstructionHandler> handlersForTopic(String topic) {
+			return topicHandlers.computeIfAbsent(topic, k -> {
+				List<InstructionHandler> result = new ArrayList<>(2);
+				for ( InstructionHandler handler : handlers ) {
+					if ( handler.handlesTopic(k) ) {
+						result.add(handler);
+					}
+				}
+				return Collections.unmodifiableList(result);
+			});
+		}
+
+	}
+
+	/**
+	 * Execution statistics for a single instruction topic.
+	 * 
+	 * @since 1.1
+	 */
+	public static final class TopicStats {
+
+		private final AtomicInteger queueDepth = new AtomicInteger();
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong waitTimeTotal = new AtomicLong();
+		private final AtomicLong executionTimeTotal = new AtomicLong();
+		private final AtomicLong executionTimeMax = new AtomicLong();
+
+		private TopicStats() {
+			super();
+		}
+
+		private void executed(long waitNanos, long execNanos) {
+			count.incrementAndGet();
+			waitTimeTotal.addAndGet(waitNanos);
+			executionTimeTotal.addAndGet(execNanos);
+			executionTimeMax.accumulateAndGet(execNanos, Math::max);
+		}
+
+		/**
+		 * Get the number of instructions currently waiting for or undergoing
+		 * execution.
+		 * 
+		 * @return the queue depth
+		 */
+		public int getQueueDepth() {
+			return queueDepth.get();
+		}
+
+		/**
+		 * Get the number of handler executions.
+		 * 
+		 * @return the count
+		 */
+		public long getCount() {
+			return count.get();
+		}
+
+		/**
+		 * Get the average time spent waiting for other instructions on the same
+		 * control or handler to finish.
+		 * 
+		 * @return the average wait time, in milliseconds
+		 */
+		public double getAverageWaitTime() {
+			final long n = count.get();
+			return (n > 0 ? waitTimeTotal.get() / (double) n / 1_000_000.0 : 0.0);
+		}
+
+		/**
+		 * Get the average handler execution time.
+		 * 
+		 * @return the average execution time, in milliseconds
+		 */
+		public double getAverageExecutionTime() {
+			final long n = count.get();
+			return (n > 0 ? executionTimeTotal.get() / (double) n / 1_000_000.0 : 0.0);
+		}
+
+		/**
+		 * Get the maximum handler execution time.
+		 * 
+		 * @return the maximum execution time, in milliseconds
+		 */
+		public double getMaximumExecutionTime() {
+			return executionTimeMax.get() / 1_000_000.0;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("TopicStats{queueDepth=%d, count=%d, avgWait=%.1f, avgExec=%.1f, "
+					+ "maxExec=%.1f}", getQueueDepth(), getCount(), getAverageWaitTime(),
+					getAverageExecutionTime(), getMaximumExecutionTime());
+		}
+
 	}
 
 	@Override
-	public synchronized InstructionStatus executeInstruction(Instruction instruction) {
+	public InstructionStatus executeInstruction(Instruction instruction) {
 		if ( instruction == null ) {
 			return null;
 		}
@@ -71,15 +240,30 @@ public class SimpleInstructionExecutionService implements InstructionExecutionSe
 		final long timeLimitMs = executionReceivedHourLimit * 60 * 60 * 1000;
 		final InstructionStatus startingStatus = instruction.getStatus();
 
-		if ( handlers.isEmpty() ) {
+		final String topic = instruction.getTopic();
+		final List<InstructionHandler> topicHandlers = handlersForTopic(topic);
+		if ( topicHandlers == null ) {
 			log.trace("No InstructionHandler instances available");
 			return null;
 		}
-		final String topic = instruction.getTopic();
 		log.trace("Passing instruction {} [{}] to handlers", instruction.getIdentifier(), topic);
-		for ( InstructionHandler handler : handlers ) {
-			if ( !handler.handlesTopic(topic) ) {
-				continue;
+
+		// instructions executed by a handler while handling another instruction run under the
+		// locks already held by the thread, to avoid lock ordering problems
+		final boolean nested = (executing.get() != null);
+		final ReentrantLock[] controlLocks = (nested ? new ReentrantLock[0]
+				: controlLocks(instruction));
+		final TopicStats stats = (topicHandlers.isEmpty() ? null
+				: topicStats.computeIfAbsent(topic, k -> new TopicStats()));
+		for ( InstructionHandler handler : topicHandlers ) {
+			final ReentrantLock[] lockSet = (controlLocks != null ? controlLocks
+					: new ReentrantLock[] { lockFor(System.identityHashCode(handler)) });
+			stats.queueDepth.incrementAndGet();
+			final long waitStart = System.nanoTime();
+			lockAll(lockSet);
+			final long execStart = System.nanoTime();
+			if ( !nested ) {
+				executing.set(Boolean.TRUE);
 			}
 			try {
 				InstructionStatus status = handler.processInstruction(instruction);
@@ -97,6 +281,15 @@ public class SimpleInstructionExecutionService implements InstructionExecutionSe
 						instruction.getIdentifier(), topic, handler, root.getMessage());
 				log.error(msg, e);
 				throw new RuntimeException(msg, e);
+			} finally {
+				if ( !nested ) {
+					executing.remove();
+				}
+				unlockAll(lockSet);
+				stats.queueDepth.decrementAndGet();
+				stats.executed(execStart - waitStart, System.nanoTime() - execStart);
+				log.trace("Instruction {} [{}] handled by {}: {}", instruction.getIdentifier(), topic,
+						handler, stats);
 			}
 		}
 		if ( instruction.getInstructionDate() != null ) {
@@ -114,6 +307,87 @@ public class SimpleInstructionExecutionService implements InstructionExecutionSe
 		return null;
 	}
 
+	/**
+	 * Get the handlers of a topic.
+	 * 
+	 * @param topic
+	 *        the topic
+	 * @return the handlers, or {@literal null} if no handlers are available
+	 */
+	private List<InstructionHandler> handlersForTopic(String topic) {
+		HandlerIndex index = handlerIndex;
+		if ( !index.matches(handlers) ) {
+			index = new HandlerIndex(handlers.toArray(new InstructionHandler[0]));
+			handlerIndex = index;
+			log.debug("InstructionHandler index reset with {} handlers", index.handlers.length);
+		}
+		if ( index.handlers.length < 1 ) {
+			return null;
+		}
+		return (topic != null ? index.handlersForTopic(topic) : Collections.emptyList());
+	}
+
+	private ReentrantLock lockFor(int hash) {
+		return locks[stripe(hash)];
+	}
+
+	private static int stripe(int hash) {
+		return (hash ^ (hash >>> 16)) & (LOCK_STRIPE_COUNT - 1);
+	}
+
+	/**
+	 * Get the locks for the control IDs of an instruction.
+	 * 
+	 * @param instruction
+	 *        the instruction
+	 * @return the locks, ordered by stripe, or {@literal null} if the
+	 *         instruction does not target any controls
+	 */
+	private ReentrantLock[] controlLocks(Instruction instruction) {
+		if ( !CONTROL_TOPICS.contains(instruction.getTopic()) ) {
+			return null;
+		}
+		final Iterable<String> controlIds = instruction.getParameterNames();
+		if ( controlIds == null ) {
+			return null;
+		}
+		Map<Integer, ReentrantLock> result = null;
+		for ( String controlId : controlIds ) {
+			if ( controlId == null ) {
+				continue;
+			}
+			if ( result == null ) {
+				result = new TreeMap<>();
+			}
+			final int idx = stripe(controlId.hashCode());
+			result.putIfAbsent(idx, locks[idx]);
+		}
+		return (result != null ? result.values().toArray(new ReentrantLock[result.size()]) : null);
+	}
+
+	private static void lockAll(ReentrantLock[] lockSet) {
+		// locks are always acquired in stripe order, to avoid deadlock
+		for ( ReentrantLock lock : lockSet ) {
+			lock.lock();
+		}
+	}
+
+	private static void unlockAll(ReentrantLock[] lockSet) {
+		for ( int i = lockSet.length - 1; i >= 0; i-- ) {
+			lockSet[i].unlock();
+		}
+	}
+
+	/**
+	 * Get the execution statistics, per instruction topic.
+	 * 
+	 * @return the statistics, never {@literal null}
+	 * @since 1.1
+	 */
+	public Map<String, TopicStats> getTopicStats() {
+		return Collections.unmodifiableMap(topicStats);
+	}
+
 	/**
 	 * Set the minimum amount of time to wait before forcing instructions into
 	 * the {@link InstructionState#Declined} state. This prevents instructions
@@ -0,0 +1,337 @@
+/* ==================================================================
+ * DefaultDatumBus.java - 19/10/2026 6:41:33 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.runtime;
+
+import static net.solarnetwork.service.OptionalService.service;
+import static net.solarnetwork.util.ObjectUtils.requireNonNullArgument;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.PathMatcher;
+import net.solarnetwork.node.domain.datum.NodeDatum;
+import net.solarnetwork.node.service.DatumBus;
+import net.solarnetwork.node.service.DatumEvents;
+import net.solarnetwork.service.OptionalService;
+import net.solarnetwork.util.StringUtils;
+
+/**
+ * Default implementation of {@link DatumBus}.
+ *
+ * <p>
+ * Subscribers are delivered datum synchronously on the publishing thread. The
+ * subscribers matching a given source ID are resolved once and cached, so
+ * publishing a datum does not allocate any objects once the source ID has been
+ * seen. The cache is discarded whenever the subscriptions change.
+ * </p>
+ *
+ * <p>
+ * If the {@code eventAdminBridge} property is enabled, then every published
+ * datum is also posted to {@link EventAdmin} using the event topic of the
+ * publication stage, so existing event handlers continue to receive datum
+ * events.
+ * </p>
+ *
+ * <p>
+ * {@link Subscriber} services can be subscribed automatically via the
+ * {@link #onBindSubscriber(Subscriber, Map)} and
+ * {@link #onUnbindSubscriber(Subscriber, Map)} methods.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 4.5
+ */
+public class DefaultDatumBus implements DatumBus {
+
+	/** The maximum number of source IDs to cache resolved subscribers for. */
+	public static final int MAX_RESOLVED_SOURCE_IDS = 4096;
+
+	private static final Subscriber[] NO_SUBSCRIBERS = new Subscriber[0];
+
+	private static final Stage[] STAGES = Stage.values();
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+
+	private final PathMatcher pathMatcher;
+	private final OptionalService<EventAdmin> eventAdmin;
+	private final Map<Subscriber, Subscription> subscriptions = new LinkedHashMap<>(8);
+	private volatile Routes routes = new Routes(new Subscription[0]);
+	private boolean eventAdminBridge = true;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param pathMatcher
+	 *        the path matcher to use for source ID patterns
+	 * @param eventAdmin
+	 *        the event admin to bridge published datum to
+	 * @throws IllegalArgumentException
+	 *         if any argument is {@literal null}
+	 */
+	public DefaultDatumBus(PathMatcher pathMatcher, OptionalService<EventAdmin> eventAdmin) {
+		super();
+		this.pathMatcher = requireNonNullArgument(pathMatcher, "pathMatcher");
+		this.eventAdmin = requireNonNullArgument(eventAdmin, "eventAdmin");
+	}
+
+	private static final class Subscription {
+
+		private final Subscriber subscriber;
+		private final String[] sourceIdPatterns;
+		private final Set<Stage> stages;
+
+		private Subscription(Subscriber subscriber, String[] sourceIdPatterns, Set<Stage> stages) {
+			super();
+			this.subscriber = subscriber;
+			this.sourceIdPatterns = sourceIdPatterns;
+			this.stages = stages;
+		}
+
+	}
+
+	/**
+	 * An immutable snapshot of the subscriptions, with a cache of resolved
+	 * subscribers per source ID.
+	 */
+	private final class Routes {
+
+		private final Subscription[] subscriptions;
+		private final ConcurrentMap<String, Subscriber[][]> resolved;
+
+		private Routes(Subscription[] subscriptions) {
+			super();
+			this.subscriptions = subscriptions;
+			this.resolved = new ConcurrentHashMap<>(16, 0.9f, 2);
+		}
+
+		private Subscriber[] subscribers(Stage stage, String sourceId) {
+			if ( subscriptions.length < 1 ) {
+				return NO_SUBSCRIBERS;
+			}
+			Subscriber[][] result = resolved.get(sourceId);
+			if ( result == null ) {
+				result = resolve(sourceId);
+				if ( resolved.size() < MAX_RESOLVED_SOURCE_IDS ) {
+					resolved.putIfAbsent(sourceId, result);
+				}
+			}
+			return result[stage.ordinal()];
+		}
+
+		private Subscriber[][] resolve(String sourceId) {
+			Subscriber[][] result = new Subscriber[STAGES.length][];
+			List<Subscriber> list = new ArrayList<>(subscriptions.length);
+			for ( Stage stage : STAGES ) {
+				for ( Subscription sub : subscriptions ) {
+					if ( sub.stages.contains(stage) && sourceIdMatches(sub, sourceId) ) {
+						list.add(sub.subscriber);
+					}
+				}
+				result[stage.ordinal()] = (list.isEmpty() ? NO_SUBSCRIBERS
+						: list.toArray(Subscriber[]::new));
+				list.clear();
+			}
+			return result;
+		}
+
+	}
+
+	private boolean sourceIdMatches(Subscription sub, String sourceId) {
+		if ( sub.sourceIdPatterns == null ) {
+			return true;
+		}
+		for ( String pattern : sub.sourceIdPatterns ) {
+			if ( pathMatcher.match(pattern, sourceId) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void publish(Stage stage, NodeDatum datum) {
+		if ( stage == null || datum == null ) {
+			return;
+		}
+		final String sourceId = datum.getSourceId();
+		if ( sourceId != null ) {
+			for ( Subscriber subscriber : routes.subscribers(stage, sourceId) ) {
+				try {
+					subscriber.datumPublished(stage, datum);
+				} catch ( Throwable t ) {
+					log.error("Datum bus subscriber {} error on {} datum {}; ignoring.", subscriber,
+							stage, datum, t);
+				}
+			}
+		}
+		if ( eventAdminBridge ) {
+			final EventAdmin admin = service(eventAdmin);
+			if ( admin != null ) {
+				Event event = DatumEvents.datumEvent(stage.getEventTopic(), datum);
+				admin.postEvent(event);
+			}
+		}
+	}
+
+	@Override
+	public synchronized void subscribe(Subscriber subscriber, Set<String> sourceIdPatterns,
+			Set<Stage> stages) {
+		requireNonNullArgument(subscriber, "subscriber");
+		String[] patterns = (sourceIdPatterns != null && !sourceIdPatterns.isEmpty()
+				? sourceIdPatterns.toArray(String[]::new)
+				: null);
+		Set<Stage> s = (stages != null && !stages.isEmpty() ? EnumSet.copyOf(stages)
+				: EnumSet.allOf(Stage.class));
+		subscriptions.put(subscriber, new Subscription(subscriber, patterns, s));
+		updateRoutes();
+	}
+
+	@Override
+	public synchronized void unsubscribe(Subscriber subscriber) {
+		if ( subscriptions.remove(subscriber) != null ) {
+			updateRoutes();
+		}
+	}
+
+	/**
+	 * Callback when a {@link Subscriber} service has been registered.
+	 *
+	 * <p>
+	 * The {@link DatumBus#SUBSCRIBER_SOURCE_IDS_PROPERTY} and
+	 * {@link DatumBus#SUBSCRIBER_STAGES_PROPERTY} service properties are used
+	 * to configure the subscription.
+	 * </p>
+	 *
+	 * @param subscriber
+	 *        the subscriber
+	 * @param properties
+	 *        the service properties
+	 */
+	public void onBindSubscriber(Subscriber subscriber, Map<String, ?> properties) {
+		if ( subscriber == null ) {
+			return;
+		}
+		Set<String> sourceIds = propertyValues(properties, SUBSCRIBER_SOURCE_IDS_PROPERTY);
+		Set<Stage> stages = null;
+		Set<String> stageNames = propertyValues(properties, SUBSCRIBER_STAGES_PROPERTY);
+		if ( stageNames != null ) {
+			stages = EnumSet.noneOf(Stage.class);
+			for ( String name : stageNames ) {
+				try {
+					stages.add(Stage.valueOf(name));
+				} catch ( IllegalArgumentException e ) {
+					log.warn("Ignoring unsupported datum bus stage [{}] for subscriber {}", name,
+							subscriber);
+				}
+			}
+			if ( stages.isEmpty() ) {
+				log.warn("No supported datum bus stages configured for subscriber {}; ignoring.",
+						subscriber);
+				return;
+			}
+		}
+		log.debug("Subscribing {} to datum bus stages {} for source IDs {}", subscriber,
+				(stages != null ? stages : "*"), (sourceIds != null ? sourceIds : "*"));
+		subscribe(subscriber, sourceIds, stages);
+	}
+
+	/**
+	 * Callback when a {@link Subscriber} service has been un-registered.
+	 *
+	 * @param subscriber
+	 *        the subscriber
+	 * @param properties
+	 *        the service properties
+	 */
+	public void onUnbindSubscriber(Subscriber subscriber, Map<String, ?> properties) {
+		if ( subscriber == null ) {
+			return;
+		}
+		unsubscribe(subscriber);
+	}
+
+	private static Set<String> propertyValues(Map<String, ?> properties, String key) {
+		Object val = (properties != null ? properties.get(key) : null);
+		Set<String> result = null;
+		if ( val instanceof String[] ) {
+			result = new LinkedHashSet<>(Arrays.asList((String[]) val));
+		} else if ( val instanceof Collection<?> ) {
+			result = new LinkedHashSet<>(8);
+			for ( Object o : (Collection<?>) val ) {
+				if ( o != null ) {
+					result.add(o.toString());
+				}
+			}
+		} else if ( val != null ) {
+			result = StringUtils.commaDelimitedStringToSet(val.toString());
+		}
+		return (result != null && !result.isEmpty() ? result : null);
+	}
+
+	private void updateRoutes() {
+		routes = new Routes(subscriptions.values().toArray(Subscription[]::new));
+	}
+
+	/**
+	 * Get the number of registered subscribers.
+	 *
+	 * @return the subscriber count
+	 */
+	public synchronized int getSubscriberCount() {
+		return subscriptions.size();
+	}
+
+	/**
+	 * Get the EventAdmin bridge mode.
+	 *
+	 * @return {@literal true} if published datum are also posted as events;
+	 *         defaults to {@literal true}
+	 */
+	public boolean isEventAdminBridge() {
+		return eventAdminBridge;
+	}
+
+	/**
+	 * Set the EventAdmin bridge mode.
+	 *
+	 * @param eventAdminBridge
+	 *        {@literal true} to also post published datum as events, using the
+	 *        event topic of the publication stage
+	 */
+	public void setEventAdminBridge(boolean eventAdminBridge) {
+		this.eventAdminBridge = eventAdminBridge;
+	}
+
+}
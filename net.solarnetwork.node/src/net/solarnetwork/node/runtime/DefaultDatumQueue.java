@@ -45,7 +45,7 @@ import org.osgi.service.event.EventAdmin;
 import net.solarnetwork.domain.datum.DatumSamplesOperations;
 import net.solarnetwork.node.dao.DatumDao;
 import net.solarnetwork.node.domain.datum.NodeDatum;
-import net.solarnetwork.node.service.DatumDataSource;
+import net.solarnetwork.node.service.DatumBus;
 import net.solarnetwork.node.service.DatumEvents;
 import net.solarnetwork.node.service.DatumQueue;
 import net.solarnetwork.node.service.DatumQueueProcessObserver;
@@ -74,9 +74,10 @@ import net.solarnetwork.util.StatCounter;
  * </p>
  *
  * <p>
- * The {@code processObserver} passed to the constructor will receive datum
- * before and after filters have been applied, sequentially in queue order
- * directly on the queue processing thread.
+ * The {@code processObserver} passed to the constructor, and any configured
+ * {@code processObservers}, will receive datum before and after filters have
+ * been applied, sequentially in queue order directly on the queue processing
+ * thread.
  * </p>
  *
  * <p>
@@ -84,8 +85,14 @@ import net.solarnetwork.util.StatCounter;
  * order via a single thread.
  * </p>
  *
+ * <p>
+ * If a {@code datumBus} is available, captured and acquired datum are published
+ * to that; otherwise the equivalent events are posted directly to
+ * {@link EventAdmin}.
+ * </p>
+ *
  * @author matt
- * @version 3.1
+ * @version 3.3
  * @since 1.89
  */
 public class DefaultDatumQueue extends BaseIdentifiable
@@ -110,6 +117,8 @@ public class DefaultDatumQueue extends BaseIdentifiable
 	private final DatumDao nodeDatumDao;
 	private final OptionalService<EventAdmin> eventAdmin;
 	private final OptionalService<DatumQueueProcessObserver> processObserver;
+	private Iterable<DatumQueueProcessObserver> processObservers;
+	private OptionalService<DatumBus> datumBus;
 	private long startupDelayMs = DEFAULT_STARTUP_DELAY_MS;
 	private long queueDelayMs = DEFAULT_QUEUE_DELAY_MS;
 	private OptionalFilterableService<DatumFilterService> datumFilterService;
@@ -436,17 +445,8 @@ public class DefaultDatumQueue extends BaseIdentifiable
 							}
 						}
 						stats.incrementAndGet(QueueStats.Processed);
-						if ( procObserver != null ) {
-							try {
-								procObserver.datumQueueWillProcess(DefaultDatumQueue.this, event.datum,
-										Stage.PreFilter, event.persist);
-							} catch ( Throwable t ) {
-								stats.incrementAndGet(QueueStats.Errors);
-								log.error("Direct consumer {} error on PreFilter datum {}; ignoring.",
-										procObserver, event.datum, t);
-							}
-						}
-						postEvent(DatumDataSource.EVENT_TOPIC_DATUM_CAPTURED, event.datum);
+						observeDatum(procObserver, event.datum, Stage.PreFilter, event.persist);
+						publishDatum(DatumBus.Stage.Captured, event.datum);
 						NodeDatum result;
 						try {
 							result = applyTransform(event);
@@ -463,18 +463,8 @@ public class DefaultDatumQueue extends BaseIdentifiable
 							}
 						}
 						if ( result != null ) {
-							if ( procObserver != null ) {
-								try {
-									procObserver.datumQueueWillProcess(DefaultDatumQueue.this, result,
-											Stage.PostFilter, event.persist);
-								} catch ( Throwable t ) {
-									stats.incrementAndGet(QueueStats.Errors);
-									log.error(
-											"Direct consumer {} error on PostFilter datum {}; ignoring.",
-											procObserver, result, t);
-								}
-							}
-							postEvent(DatumQueue.EVENT_TOPIC_DATUM_ACQUIRED, result);
+							observeDatum(procObserver, result, Stage.PostFilter, event.persist);
+							publishDatum(DatumBus.Stage.Acquired, result);
 							if ( event.persist ) {
 								try {
 									persistDatum(result);
@@ -503,6 +493,38 @@ public class DefaultDatumQueue extends BaseIdentifiable
 
 	}
 
+	private void observeDatum(DatumQueueProcessObserver procObserver, NodeDatum datum, Stage stage,
+			boolean persist) {
+		if ( procObserver != null ) {
+			observeDatum0(procObserver, datum, stage, persist);
+		}
+		final Iterable<DatumQueueProcessObserver> observers = this.processObservers;
+		if ( observers != null ) {
+			for ( DatumQueueProcessObserver o : observers ) {
+				observeDatum0(o, datum, stage, persist);
+			}
+		}
+	}
+
+	private void observeDatum0(DatumQueueProcessObserver observer, NodeDatum datum, Stage stage,
+			boolean persist) {
+		try {
+			observer.datumQueueWillProcess(this, datum, stage, persist);
+		} catch ( Throwable t ) {
+			stats.incrementAndGet(QueueStats.Errors);
+			log.error("Direct consumer {} error on {} datum {}; ignoring.", observer, stage, datum, t);
+		}
+	}
+
+	private void publishDatum(DatumBus.Stage stage, NodeDatum datum) {
+		final DatumBus bus = service(datumBus);
+		if ( bus != null ) {
+			bus.publish(stage, datum);
+		} else {
+			postEvent(stage.getEventTopic(), datum);
+		}
+	}
+
 	private void postEvent(String topic, NodeDatum datum) {
 		final EventAdmin service = service(eventAdmin);
 		if ( service != null ) {
@@ -811,4 +833,56 @@ public class DefaultDatumQueue extends BaseIdentifiable
 		this.discardDatumOnFilterException = discardDatumOnFilterException;
 	}
 
+	/**
+	 * Get the additional process observers.
+	 *
+	 * @return the observers
+	 * @since 3.2
+	 */
+	public final Iterable<DatumQueueProcessObserver> getProcessObservers() {
+		return processObservers;
+	}
+
+	/**
+	 * Set additional process observers.
+	 *
+	 * <p>
+	 * These observers are invoked after the {@code processObserver} passed to
+	 * the constructor, in the same way.
+	 * </p>
+	 *
+	 * @param processObservers
+	 *        the observers to set
+	 * @since 3.2
+	 */
+	public final void setProcessObservers(Iterable<DatumQueueProcessObserver> processObservers) {
+		this.processObservers = processObservers;
+	}
+
+	/**
+	 * Get the datum bus.
+	 *
+	 * @return the datum bus
+	 * @since 3.3
+	 */
+	public final OptionalService<DatumBus> getDatumBus() {
+		return datumBus;
+	}
+
+	/**
+	 * Set the datum bus.
+	 *
+	 * <p>
+	 * When available, captured and acquired datum are published to this bus,
+	 * which is then responsible for posting the equivalent events.
+	 * </p>
+	 *
+	 * @param datumBus
+	 *        the datum bus to set
+	 * @since 3.3
+	 */
+	public final void setDatumBus(OptionalService<DatumBus> datumBus) {
+		this.datumBus = datumBus;
+	}
+
 }
@@ -0,0 +1,310 @@
+/* ==================================================================
+ * DefaultNettyEventLoopService.java - 19/10/2026 5:31:08 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.runtime;
+
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocatorMetric;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultiThreadIoEventLoopGroup;
+import io.netty.channel.nio.NioIoHandler;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.MultithreadEventExecutorGroup;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import net.solarnetwork.node.service.NettyEventLoopService;
+import net.solarnetwork.service.ServiceLifecycleObserver;
+
+/**
+ * Default implementation of {@link NettyEventLoopService}.
+ *
+ * <p>
+ * The event loop groups and buffer allocator are created when first
+ * requested, so no threads are started until a component uses this service.
+ * The buffer allocator is configured with one direct and heap arena per worker
+ * thread.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 4.5
+ */
+public class DefaultNettyEventLoopService
+		implements NettyEventLoopService, ServiceLifecycleObserver {
+
+	/** The {@code bossThreadCount} property default value. */
+	public static final int DEFAULT_BOSS_THREAD_COUNT = 1;
+
+	/** The {@code workerThreadCount} property default value. */
+	public static final int DEFAULT_WORKER_THREAD_COUNT = Math.max(1,
+			Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+	/** The {@code shutdownTimeoutSeconds} property default value. */
+	public static final int DEFAULT_SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+	private static final Logger log = LoggerFactory.getLogger(DefaultNettyEventLoopService.class);
+
+	private int bossThreadCount = DEFAULT_BOSS_THREAD_COUNT;
+	private int workerThreadCount = DEFAULT_WORKER_THREAD_COUNT;
+	private boolean preferDirect = true;
+	private int shutdownTimeoutSeconds = DEFAULT_SHUTDOWN_TIMEOUT_SECONDS;
+
+	private volatile EventLoopGroup bossGroup;
+	private volatile EventLoopGroup workerGroup;
+	private volatile PooledByteBufAllocator allocator;
+
+	/**
+	 * Constructor.
+	 */
+	public DefaultNettyEventLoopService() {
+		super();
+	}
+
+	@Override
+	public void serviceDidStartup() {
+		// groups created on demand
+	}
+
+	@Override
+	public synchronized void serviceDidShutdown() {
+		final EventLoopGroup boss = this.bossGroup;
+		final EventLoopGroup worker = this.workerGroup;
+		this.bossGroup = null;
+		this.workerGroup = null;
+		this.allocator = null;
+		if ( boss != null ) {
+			boss.shutdownGracefully(0, shutdownTimeoutSeconds, TimeUnit.SECONDS);
+		}
+		if ( worker != null ) {
+			worker.shutdownGracefully(0, shutdownTimeoutSeconds, TimeUnit.SECONDS);
+		}
+		if ( boss != null || worker != null ) {
+			log.info("Shut down shared Netty event loop groups");
+		}
+	}
+
+	@Override
+	public EventLoopGroup getBossGroup() {
+		EventLoopGroup g = this.bossGroup;
+		if ( g == null ) {
+			synchronized ( this ) {
+				g = this.bossGroup;
+				if ( g == null ) {
+					g = createGroup("boss", bossThreadCount);
+					this.bossGroup = g;
+				}
+			}
+		}
+		return g;
+	}
+
+	@Override
+	public EventLoopGroup getWorkerGroup() {
+		EventLoopGroup g = this.workerGroup;
+		if ( g == null ) {
+			synchronized ( this ) {
+				g = this.workerGroup;
+				if ( g == null ) {
+					g = createGroup("worker", workerThreadCount);
+					this.workerGroup = g;
+				}
+			}
+		}
+		return g;
+	}
+
+	private static EventLoopGroup createGroup(String name, int threadCount) {
+		log.info("Creating shared Netty {} event loop group with {} threads", name, threadCount);
+		return new MultiThreadIoEventLoopGroup(threadCount,
+				new DefaultThreadFactory("SolarNode-Netty-" + name, true),
+				NioIoHandler.newFactory());
+	}
+
+	@Override
+	public ByteBufAllocator getAllocator() {
+		PooledByteBufAllocator a = this.allocator;
+		if ( a == null ) {
+			synchronized ( this ) {
+				a = this.allocator;
+				if ( a == null ) {
+					final int arenas = Math.max(1, workerThreadCount);
+					a = new PooledByteBufAllocator(preferDirect, arenas, arenas,
+							PooledByteBufAllocator.defaultPageSize(),
+							PooledByteBufAllocator.defaultMaxOrder(),
+							PooledByteBufAllocator.defaultSmallCacheSize(),
+							PooledByteBufAllocator.defaultNormalCacheSize(),
+							PooledByteBufAllocator.defaultUseCacheForAllThreads());
+					this.allocator = a;
+				}
+			}
+		}
+		return a;
+	}
+
+	@Override
+	public int getBossThreadCount() {
+		return threadCount(bossGroup);
+	}
+
+	@Override
+	public int getWorkerThreadCount() {
+		return threadCount(workerGroup);
+	}
+
+	private static int threadCount(EventLoopGroup group) {
+		if ( group instanceof MultithreadEventExecutorGroup ) {
+			return ((MultithreadEventExecutorGroup) group).executorCount();
+		}
+		return 0;
+	}
+
+	@Override
+	public long getPendingTaskCount() {
+		return pendingTaskCount(bossGroup) + pendingTaskCount(workerGroup);
+	}
+
+	private static long pendingTaskCount(EventLoopGroup group) {
+		if ( group == null ) {
+			return 0;
+		}
+		long count = 0;
+		for ( EventExecutor e : group ) {
+			if ( e instanceof SingleThreadEventExecutor ) {
+				count += ((SingleThreadEventExecutor) e).pendingTasks();
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public long getUsedHeapMemory() {
+		final PooledByteBufAllocatorMetric metric = allocatorMetric();
+		return (metric != null ? metric.usedHeapMemory() : 0);
+	}
+
+	@Override
+	public long getUsedDirectMemory() {
+		final PooledByteBufAllocatorMetric metric = allocatorMetric();
+		return (metric != null ? metric.usedDirectMemory() : 0);
+	}
+
+	private PooledByteBufAllocatorMetric allocatorMetric() {
+		final PooledByteBufAllocator a = this.allocator;
+		return (a != null ? a.metric() : null);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("NettyEventLoopService{bossThreads=");
+		builder.append(getBossThreadCount());
+		builder.append(", workerThreads=");
+		builder.append(getWorkerThreadCount());
+		builder.append(", pendingTasks=");
+		builder.append(getPendingTaskCount());
+		builder.append(", usedHeapMemory=");
+		builder.append(getUsedHeapMemory());
+		builder.append(", usedDirectMemory=");
+		builder.append(getUsedDirectMemory());
+		builder.append("}");
+		return builder.toString();
+	}
+
+	/**
+	 * Set the number of boss group threads.
+	 *
+	 * <p>
+	 * This only takes effect if set before the boss group is created.
+	 * </p>
+	 *
+	 * @param bossThreadCount
+	 *        the thread count to set; will be forced to at least {@literal 1}
+	 */
+	public void setBossThreadCount(int bossThreadCount) {
+		this.bossThreadCount = Math.max(1, bossThreadCount);
+	}
+
+	/**
+	 * Set the number of worker group threads.
+	 *
+	 * <p>
+	 * This only takes effect if set before the worker group is created. This
+	 * also determines the number of buffer allocator arenas.
+	 * </p>
+	 *
+	 * @param workerThreadCount
+	 *        the thread count to set; will be forced to at least {@literal 1}
+	 */
+	public void setWorkerThreadCount(int workerThreadCount) {
+		this.workerThreadCount = Math.max(1, workerThreadCount);
+	}
+
+	/**
+	 * Get the direct buffer preference.
+	 *
+	 * @return {@literal true} if the buffer allocator prefers direct buffers;
+	 *         defaults to {@literal true}
+	 */
+	public boolean isPreferDirect() {
+		return preferDirect;
+	}
+
+	/**
+	 * Set the direct buffer preference.
+	 *
+	 * <p>
+	 * This only takes effect if set before the buffer allocator is created.
+	 * </p>
+	 *
+	 * @param preferDirect
+	 *        {@literal true} if the buffer allocator should prefer direct
+	 *        buffers
+	 */
+	public void setPreferDirect(boolean preferDirect) {
+		this.preferDirect = preferDirect;
+	}
+
+	/**
+	 * Get the shutdown timeout.
+	 *
+	 * @return the maximum number of seconds to wait for the groups to shut
+	 *         down; defaults to {@link #DEFAULT_SHUTDOWN_TIMEOUT_SECONDS}
+	 */
+	public int getShutdownTimeoutSeconds() {
+		return shutdownTimeoutSeconds;
+	}
+
+	/**
+	 * Set the shutdown timeout.
+	 *
+	 * @param shutdownTimeoutSeconds
+	 *        the maximum number of seconds to wait for the groups to shut down
+	 */
+	public void setShutdownTimeoutSeconds(int shutdownTimeoutSeconds) {
+		this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+	}
+
+}
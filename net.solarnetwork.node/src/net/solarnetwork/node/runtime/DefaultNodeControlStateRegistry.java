@@ -0,0 +1,239 @@
+/* ==================================================================
+ * DefaultNodeControlStateRegistry.java - 19/10/2026 10:14:27 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.runtime;
+
+import static net.solarnetwork.service.OptionalService.service;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+import org.osgi.service.event.EventHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import net.solarnetwork.domain.NodeControlInfo;
+import net.solarnetwork.node.domain.datum.NodeDatum;
+import net.solarnetwork.node.domain.datum.SimpleNodeControlInfoDatum;
+import net.solarnetwork.node.service.DatumEvents;
+import net.solarnetwork.node.service.NodeControlProvider;
+import net.solarnetwork.node.service.NodeControlStateRegistry;
+import net.solarnetwork.service.OptionalService;
+import net.solarnetwork.util.StringUtils;
+
+/**
+ * Default implementation of {@link NodeControlStateRegistry}.
+ *
+ * <p>
+ * This service should be registered as an {@link EventHandler} for the
+ * {@link NodeControlProvider#EVENT_TOPIC_CONTROL_INFO_CAPTURED} and
+ * {@link NodeControlProvider#EVENT_TOPIC_CONTROL_INFO_CHANGED} topics, so that
+ * control state is cached even for providers that do not publish to the
+ * registry directly.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 4.5
+ */
+public class DefaultNodeControlStateRegistry implements NodeControlStateRegistry, EventHandler {
+
+	private static final Logger log = LoggerFactory
+			.getLogger(DefaultNodeControlStateRegistry.class);
+
+	private final OptionalService<EventAdmin> eventAdmin;
+	private final ConcurrentMap<String, ControlState> states = new ConcurrentHashMap<>(32, 0.9f,
+			4);
+	private final ConcurrentMap<String, Double> deadbands = new ConcurrentHashMap<>(8, 0.9f, 2);
+
+	/**
+	 * Constructor.
+	 *
+	 * @param eventAdmin
+	 *        the event admin to post control state changed events with
+	 */
+	public DefaultNodeControlStateRegistry(OptionalService<EventAdmin> eventAdmin) {
+		super();
+		this.eventAdmin = eventAdmin;
+	}
+
+	private static final class ControlState {
+
+		private final NodeControlInfo info;
+		private final Instant date;
+		private final String significantValue;
+
+		private ControlState(NodeControlInfo info, Instant date, String significantValue) {
+			super();
+			this.info = info;
+			this.date = date;
+			this.significantValue = significantValue;
+		}
+
+	}
+
+	@Override
+	public void handleEvent(Event event) {
+		final String topic = event.getTopic();
+		if ( !(NodeControlProvider.EVENT_TOPIC_CONTROL_INFO_CAPTURED.equals(topic)
+				|| NodeControlProvider.EVENT_TOPIC_CONTROL_INFO_CHANGED.equals(topic)) ) {
+			return;
+		}
+		final Object val = event.getProperty(DatumEvents.DATUM_PROPERTY);
+		if ( val instanceof NodeControlInfo ) {
+			publishControlInfo((NodeControlInfo) val);
+		}
+	}
+
+	@Override
+	public boolean publishControlInfo(NodeControlInfo info) {
+		if ( info == null || info.getControlId() == null ) {
+			return false;
+		}
+		final String controlId = info.getControlId();
+		final double deadband = getControlDeadband(controlId);
+		final Instant now = Instant.now();
+		final boolean[] changed = new boolean[1];
+		states.compute(controlId, (k, prev) -> {
+			String significant = (prev != null ? prev.significantValue : null);
+			if ( prev == null || isChange(significant, info.getValue(), deadband) ) {
+				significant = info.getValue();
+				changed[0] = true;
+			}
+			return new ControlState(info, now, significant);
+		});
+		if ( changed[0] ) {
+			log.debug("Control [{}] state changed to [{}]", controlId, info.getValue());
+			postControlStateChangedEvent(info, now);
+		}
+		return changed[0];
+	}
+
+	private static boolean isChange(String prev, String curr, double deadband) {
+		if ( prev == null ) {
+			return curr != null;
+		} else if ( curr == null ) {
+			return true;
+		} else if ( prev.equals(curr) ) {
+			return false;
+		} else if ( deadband <= 0 ) {
+			return true;
+		}
+		try {
+			BigDecimal diff = new BigDecimal(curr).subtract(new BigDecimal(prev)).abs();
+			return diff.compareTo(BigDecimal.valueOf(deadband)) > 0;
+		} catch ( NumberFormatException e ) {
+			// not numeric
+			return true;
+		}
+	}
+
+	private void postControlStateChangedEvent(NodeControlInfo info, Instant date) {
+		final EventAdmin admin = service(eventAdmin);
+		if ( admin == null ) {
+			return;
+		}
+		NodeDatum datum = (info instanceof NodeDatum ? (NodeDatum) info
+				: new SimpleNodeControlInfoDatum(info, date));
+		admin.postEvent(DatumEvents.datumEvent(EVENT_TOPIC_CONTROL_STATE_CHANGED, datum));
+	}
+
+	@Override
+	public NodeControlInfo getControlInfo(String controlId) {
+		final ControlState state = (controlId != null ? states.get(controlId) : null);
+		return (state != null ? state.info : null);
+	}
+
+	@Override
+	public Instant getControlInfoDate(String controlId) {
+		final ControlState state = (controlId != null ? states.get(controlId) : null);
+		return (state != null ? state.date : null);
+	}
+
+	@Override
+	public Collection<NodeControlInfo> getControlInfos() {
+		Collection<NodeControlInfo> result = new ArrayList<>(states.size());
+		for ( ControlState state : states.values() ) {
+			result.add(state.info);
+		}
+		return result;
+	}
+
+	@Override
+	public void setControlDeadband(String controlId, double deadband) {
+		if ( controlId == null ) {
+			return;
+		}
+		if ( deadband > 0 ) {
+			deadbands.put(controlId, deadband);
+		} else {
+			deadbands.remove(controlId);
+		}
+	}
+
+	@Override
+	public double getControlDeadband(String controlId) {
+		Double d = (controlId != null ? deadbands.get(controlId) : null);
+		return (d != null ? d : 0);
+	}
+
+	/**
+	 * Get the configured control deadbands as a delimited string.
+	 *
+	 * @return the deadbands, as a comma-delimited list of
+	 *         {@code controlId=deadband} pairs
+	 */
+	public String getControlDeadbandsValue() {
+		return StringUtils.delimitedStringFromMap(deadbands);
+	}
+
+	/**
+	 * Set the control deadbands from a delimited string.
+	 *
+	 * <p>
+	 * Any previously configured deadbands are replaced.
+	 * </p>
+	 *
+	 * @param value
+	 *        a comma-delimited list of {@code controlId=deadband} pairs
+	 */
+	public void setControlDeadbandsValue(String value) {
+		deadbands.clear();
+		Map<String, String> m = StringUtils.commaDelimitedStringToMap(value);
+		if ( m == null ) {
+			return;
+		}
+		for ( Map.Entry<String, String> e : m.entrySet() ) {
+			try {
+				setControlDeadband(e.getKey(), Double.parseDouble(e.getValue()));
+			} catch ( NumberFormatException ex ) {
+				log.warn("Ignoring invalid deadband [{}] for control [{}]", e.getValue(),
+						e.getKey());
+			}
+		}
+	}
+
+}
@@ -23,42 +23,93 @@
 package net.solarnetwork.node.runtime;
 
 import static net.solarnetwork.util.ObjectUtils.requireNonNullArgument;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import net.solarnetwork.node.service.SystemHealthService;
 import net.solarnetwork.service.PingTest;
 import net.solarnetwork.service.PingTestResult;
 import net.solarnetwork.service.PingTestResultDisplay;
+import net.solarnetwork.service.ServiceLifecycleObserver;
 import net.solarnetwork.service.support.BasicIdentifiable;
 import net.solarnetwork.util.StringUtils;
 
 /**
  * Default implementation of {@link SystemHealthService}.
  * 
+ * <p>
+ * All matching tests are started concurrently, and each is still limited by
+ * its own {@link PingTest#getPingTestMaximumExecutionMilliseconds()}. The
+ * {@code maximumExecutionMilliseconds} property sets an overall deadline
+ * for a call to {@link #performPingTests(Set)}: any test that has not finished
+ * by then is reported as timed out, but is left running so its result can be
+ * cached.
+ * </p>
+ * 
+ * <p>
+ * Each test result is cached for {@code resultCacheSeconds}. Callers that
+ * request a test while it is already running share that execution rather than
+ * starting another one. If a {@code taskScheduler} is configured and
+ * {@code refreshSeconds} is greater than {@literal 0}, all tests are executed
+ * periodically in the background so callers get cached results.
+ * </p>
+ * 
  * @author matt
- * @version 1.0
+ * @version 1.1
  * @since 2.2
  */
-public class DefaultSystemHealthService extends BasicIdentifiable implements SystemHealthService {
+public class DefaultSystemHealthService extends BasicIdentifiable
+		implements SystemHealthService, ServiceLifecycleObserver {
+
+	/**
+	 * The {@code resultCacheSeconds} property default value.
+	 * 
+	 * @since 1.1
+	 */
+	public static final int DEFAULT_RESULT_CACHE_SECONDS = 10;
+
+	/**
+	 * The {@code maximumExecutionMilliseconds} property default value.
+	 * 
+	 * @since 1.1
+	 */
+	public static final long DEFAULT_MAXIMUM_EXECUTION_MILLISECONDS = 60_000L;
 
 	private static final ExecutorService EXECUTOR = Executors
 			.newCachedThreadPool(new CustomizableThreadFactory("Ping-"));
 
+	private static final Logger log = LoggerFactory.getLogger(DefaultSystemHealthService.class);
+
 	private final List<PingTest> tests;
+	private final ConcurrentMap<String, TestEntry> entries = new ConcurrentHashMap<>(16, 0.9f, 2);
+	private int resultCacheSeconds = DEFAULT_RESULT_CACHE_SECONDS;
+	private long maximumExecutionMilliseconds = DEFAULT_MAXIMUM_EXECUTION_MILLISECONDS;
+	private int refreshSeconds;
+	private TaskScheduler taskScheduler;
+
+	private ScheduledFuture<?> refreshFuture;
 
 	/**
 	 * Constructor.
@@ -73,9 +124,61 @@ public class DefaultSystemHealthService extends BasicIdentifiable implements Sys
 		this.tests = requireNonNullArgument(tests, "tests");
 	}
 
+	@Override
+	public synchronized void serviceDidStartup() {
+		if ( refreshFuture != null || taskScheduler == null || refreshSeconds < 1 ) {
+			return;
+		}
+		final Duration freq = Duration.ofSeconds(refreshSeconds);
+		refreshFuture = taskScheduler.scheduleWithFixedDelay(new RefreshTask(),
+				Instant.now().plus(freq), freq);
+	}
+
+	@Override
+	public synchronized void serviceDidShutdown() {
+		if ( refreshFuture != null ) {
+			refreshFuture.cancel(true);
+			refreshFuture = null;
+		}
+	}
+
+	/**
+	 * Call when the configuration has been updated.
+	 * 
+	 * <p>
+	 * This restarts the background refresh task, if configured.
+	 * </p>
+	 * 
+	 * @param properties
+	 *        the updated properties (ignored)
+	 * @since 1.1
+	 */
+	public void configurationChanged(Map<String, Object> properties) {
+		serviceDidShutdown();
+		serviceDidStartup();
+	}
+
+	private final class RefreshTask implements Runnable {
+
+		@Override
+		public void run() {
+			final long now = System.currentTimeMillis();
+			for ( PingTest t : tests ) {
+				try {
+					entry(t).result(t, now, true);
+				} catch ( RuntimeException e ) {
+					log.warn("Error refreshing ping test [{}]: {}", t.getPingTestId(),
+							e.toString());
+				}
+			}
+		}
+
+	}
+
 	@Override
 	public PingTestResults performPingTests(Set<String> pingTestIds) {
 		final Instant start = Instant.now();
+		final long now = start.toEpochMilli();
 		Map<String, PingTestResultDisplay> results = new TreeMap<>();
 		List<PingTest> runTests = new ArrayList<>();
 		try {
@@ -94,36 +197,40 @@ public class DefaultSystemHealthService extends BasicIdentifiable implements Sys
 					}
 				}
 			}
+
+			// start all tests (or join in-flight executions) before waiting on any
+			Map<PingTest, CompletableFuture<PingTestResultDisplay>> pending = new LinkedHashMap<>(
+					runTests.size());
 			for ( PingTest t : runTests ) {
-				final Instant testStart = Instant.now();
-				PingTest.Result pingTestResult = null;
-				Future<PingTest.Result> f = null;
-				try {
-					f = EXECUTOR.submit(new Callable<PingTest.Result>() {
+				pending.put(t, entry(t).result(t, now, false));
+			}
 
-						@Override
-						public PingTest.Result call() throws Exception {
-							return t.performPingTest();
-						}
-					});
-					pingTestResult = f.get(t.getPingTestMaximumExecutionMilliseconds(),
-							TimeUnit.MILLISECONDS);
-				} catch ( TimeoutException e ) {
-					if ( f != null ) {
-						f.cancel(true);
-					}
-					pingTestResult = new PingTestResult(false, "Timeout: no result provided within "
-							+ t.getPingTestMaximumExecutionMilliseconds() + "ms");
-				} catch ( Throwable e ) {
-					Throwable root = e;
-					while ( root.getCause() != null ) {
-						root = root.getCause();
+			final long maxMs = maximumExecutionMilliseconds;
+			final long deadline = (maxMs > 0
+					? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxMs) : 0);
+			for ( Map.Entry<PingTest, CompletableFuture<PingTestResultDisplay>> e : pending
+					.entrySet() ) {
+				final PingTest t = e.getKey();
+				PingTestResultDisplay r;
+				try {
+					if ( deadline > 0 ) {
+						r = e.getValue().get(Math.max(0, deadline - System.nanoTime()),
+								TimeUnit.NANOSECONDS);
+					} else {
+						r = e.getValue().get();
 					}
-					pingTestResult = new PingTestResult(false, "Exception: " + root.toString());
-				} finally {
-					results.put(t.getPingTestId(),
-							new PingTestResultDisplay(t, pingTestResult, testStart));
+				} catch ( TimeoutException ex ) {
+					r = new PingTestResultDisplay(t, new PingTestResult(false,
+							"Timeout: no result provided within overall " + maxMs + "ms"),
+							start);
+				} catch ( InterruptedException ex ) {
+					Thread.currentThread().interrupt();
+					r = new PingTestResultDisplay(t,
+							new PingTestResult(false, "Interrupted waiting for result"), start);
+				} catch ( ExecutionException ex ) {
+					r = new PingTestResultDisplay(t, exceptionResult(ex), start);
 				}
+				results.put(t.getPingTestId(), r);
 			}
 		} catch ( PatternSyntaxException e ) {
 			String msg = getMessageSource().getMessage("error.invalidIdPattern",
@@ -136,4 +243,328 @@ public class DefaultSystemHealthService extends BasicIdentifiable implements Sys
 		return new PingTestResults(start, results);
 	}
 
+	private TestEntry entry(PingTest t) {
+		return entries.computeIfAbsent(t.getPingTestId(), k -> new TestEntry());
+	}
+
+	private static PingTestResult exceptionResult(Throwable e) {
+		Throwable root = e;
+		while ( root.getCause() != null ) {
+			root = root.getCause();
+		}
+		return new PingTestResult(false, "Exception: " + root.toString());
+	}
+
+	/**
+	 * The cached result and in-flight execution of a single test.
+	 */
+	private final class TestEntry {
+
+		private final PingTestHistory history = new PingTestHistory();
+		private PingTestResultDisplay cached;
+		private long cachedExpiry;
+		private CompletableFuture<PingTestResultDisplay> inflight;
+
+		private synchronized CompletableFuture<PingTestResultDisplay> result(PingTest t, long now,
+				boolean refresh) {
+			if ( inflight != null ) {
+				return inflight;
+			}
+			if ( !refresh && cached != null && now < cachedExpiry ) {
+				return CompletableFuture.completedFuture(cached);
+			}
+			final CompletableFuture<PingTestResultDisplay> result = new CompletableFuture<>();
+			inflight = result;
+			execute(t, result);
+			return result;
+		}
+
+		private void execute(PingTest t, CompletableFuture<PingTestResultDisplay> result) {
+			final Instant testStart = Instant.now();
+			final long startNanos = System.nanoTime();
+			final long maxMs = t.getPingTestMaximumExecutionMilliseconds();
+			final Future<?> f = EXECUTOR.submit(() -> {
+				PingTest.Result r;
+				try {
+					r = t.performPingTest();
+				} catch ( Throwable e ) {
+					r = exceptionResult(e);
+				}
+				complete(t, result, r, testStart, startNanos);
+			});
+			if ( maxMs > 0 ) {
+				CompletableFuture.delayedExecutor(maxMs, TimeUnit.MILLISECONDS).execute(() -> {
+					if ( !result.isDone() ) {
+						f.cancel(true);
+						complete(t, result, new PingTestResult(false,
+								"Timeout: no result provided within " + maxMs + "ms"), testStart,
+								startNanos);
+					}
+				});
+			}
+		}
+
+		private void complete(PingTest t, CompletableFuture<PingTestResultDisplay> result,
+				PingTest.Result r, Instant testStart, long startNanos) {
+			final PingTestResultDisplay display = new PingTestResultDisplay(t, r, testStart);
+			synchronized ( this ) {
+				if ( inflight != result ) {
+					// already completed, i.e. by timeout
+					return;
+				}
+				final long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+				history.record(display.isSuccess(), latency, Instant.now());
+				cached = display;
+				cachedExpiry = System.currentTimeMillis() + resultCacheSeconds * 1000L;
+				inflight = null;
+			}
+			result.complete(display);
+		}
+
+	}
+
+	/**
+	 * Get the execution history of all tests that have been executed.
+	 * 
+	 * @return a map of test ID to associated history, never {@literal null}
+	 * @since 1.1
+	 */
+	public Map<String, PingTestHistory> getPingTestHistory() {
+		Map<String, PingTestHistory> result = new TreeMap<>();
+		for ( Map.Entry<String, TestEntry> e : entries.entrySet() ) {
+			result.put(e.getKey(), e.getValue().history.copy());
+		}
+		return result;
+	}
+
+	/**
+	 * Latency and success history of a single ping test.
+	 * 
+	 * @since 1.1
+	 */
+	public static final class PingTestHistory {
+
+		private long executionCount;
+		private long successCount;
+		private int consecutiveFailureCount;
+		private long lastLatency;
+		private long minLatency;
+		private long maxLatency;
+		private long totalLatency;
+		private Instant lastSuccessDate;
+		private Instant lastFailureDate;
+
+		private synchronized void record(boolean success, long latency, Instant date) {
+			if ( executionCount == 0 || latency < minLatency ) {
+				minLatency = latency;
+			}
+			if ( latency > maxLatency ) {
+				maxLatency = latency;
+			}
+			executionCount++;
+			totalLatency += latency;
+			lastLatency = latency;
+			if ( success ) {
+				successCount++;
+				consecutiveFailureCount = 0;
+				lastSuccessDate = date;
+			} else {
+				consecutiveFailureCount++;
+				lastFailureDate = date;
+			}
+		}
+
+		private synchronized PingTestHistory copy() {
+			PingTestHistory c = new PingTestHistory();
+			c.executionCount = executionCount;
+			c.successCount = successCount;
+			c.consecutiveFailureCount = consecutiveFailureCount;
+			c.lastLatency = lastLatency;
+			c.minLatency = minLatency;
+			c.maxLatency = maxLatency;
+			c.totalLatency = totalLatency;
+			c.lastSuccessDate = lastSuccessDate;
+			c.lastFailureDate = lastFailureDate;
+			return c;
+		}
+
+		/**
+		 * Get the number of times the test has been executed.
+		 * 
+		 * @return the execution count
+		 */
+		public long getExecutionCount() {
+			return executionCount;
+		}
+
+		/**
+		 * Get the number of times the test has succeeded.
+		 * 
+		 * @return the success count
+		 */
+		public long getSuccessCount() {
+			return successCount;
+		}
+
+		/**
+		 * Get the number of times the test has failed, including timeouts.
+		 * 
+		 * @return the failure count
+		 */
+		public long getFailureCount() {
+			return executionCount - successCount;
+		}
+
+		/**
+		 * Get the number of times the test has failed since it last succeeded.
+		 * 
+		 * @return the consecutive failure count
+		 */
+		public int getConsecutiveFailureCount() {
+			return consecutiveFailureCount;
+		}
+
+		/**
+		 * Get the latency of the most recent execution.
+		 * 
+		 * @return the latency, in milliseconds
+		 */
+		public long getLastLatency() {
+			return lastLatency;
+		}
+
+		/**
+		 * Get the minimum execution latency.
+		 * 
+		 * @return the latency, in milliseconds
+		 */
+		public long getMinLatency() {
+			return minLatency;
+		}
+
+		/**
+		 * Get the maximum execution latency.
+		 * 
+		 * @return the latency, in milliseconds
+		 */
+		public long getMaxLatency() {
+			return maxLatency;
+		}
+
+		/**
+		 * Get the average execution latency.
+		 * 
+		 * @return the latency, in milliseconds
+		 */
+		public long getAverageLatency() {
+			return (executionCount > 0 ? totalLatency / executionCount : 0);
+		}
+
+		/**
+		 * Get the date the test last succeeded.
+		 * 
+		 * @return the date, or {@literal null} if never succeeded
+		 */
+		public Instant getLastSuccessDate() {
+			return lastSuccessDate;
+		}
+
+		/**
+		 * Get the date the test last failed.
+		 * 
+		 * @return the date, or {@literal null} if never failed
+		 */
+		public Instant getLastFailureDate() {
+			return lastFailureDate;
+		}
+
+	}
+
+	/**
+	 * Get the result cache time.
+	 * 
+	 * @return the number of seconds to cache each test result; defaults to
+	 *         {@link #DEFAULT_RESULT_CACHE_SECONDS}
+	 * @since 1.1
+	 */
+	public int getResultCacheSeconds() {
+		return resultCacheSeconds;
+	}
+
+	/**
+	 * Set the result cache time.
+	 * 
+	 * @param resultCacheSeconds
+	 *        the number of seconds to cache each test result, or {@literal 0}
+	 *        to only share results between concurrent callers
+	 * @since 1.1
+	 */
+	public void setResultCacheSeconds(int resultCacheSeconds) {
+		this.resultCacheSeconds = resultCacheSeconds;
+	}
+
+	/**
+	 * Get the overall maximum execution time.
+	 * 
+	 * @return the maximum number of milliseconds to wait for all tests to
+	 *         complete; defaults to
+	 *         {@link #DEFAULT_MAXIMUM_EXECUTION_MILLISECONDS}
+	 * @since 1.1
+	 */
+	public long getMaximumExecutionMilliseconds() {
+		return maximumExecutionMilliseconds;
+	}
+
+	/**
+	 * Set the overall maximum execution time.
+	 * 
+	 * @param maximumExecutionMilliseconds
+	 *        the maximum number of milliseconds to wait for all tests to
+	 *        complete, or {@literal 0} to only use the limit of each test
+	 * @since 1.1
+	 */
+	public void setMaximumExecutionMilliseconds(long maximumExecutionMilliseconds) {
+		this.maximumExecutionMilliseconds = maximumExecutionMilliseconds;
+	}
+
+	/**
+	 * Get the background refresh frequency.
+	 * 
+	 * @return the number of seconds between background executions of all
+	 *         tests; defaults to {@literal 0}
+	 * @since 1.1
+	 */
+	public int getRefreshSeconds() {
+		return refreshSeconds;
+	}
+
+	/**
+	 * Set the background refresh frequency.
+	 * 
+	 * <p>
+	 * This requires a {@link #setTaskScheduler(TaskScheduler)} to be
+	 * configured. For callers to always see a cached result,
+	 * {@code resultCacheSeconds} should be greater than this value.
+	 * </p>
+	 * 
+	 * @param refreshSeconds
+	 *        the number of seconds between background executions of all
+	 *        tests, or {@literal 0} to disable
+	 * @since 1.1
+	 */
+	public void setRefreshSeconds(int refreshSeconds) {
+		this.refreshSeconds = refreshSeconds;
+	}
+
+	/**
+	 * Set the task scheduler.
+	 * 
+	 * @param taskScheduler
+	 *        the task scheduler to use for background refresh
+	 * @since 1.1
+	 */
+	public void setTaskScheduler(TaskScheduler taskScheduler) {
+		this.taskScheduler = taskScheduler;
+	}
+
 }
@@ -23,12 +23,17 @@
 package net.solarnetwork.node.runtime;
 
 import static net.solarnetwork.util.ObjectUtils.requireNonNullArgument;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.function.Function;
 import org.osgi.service.event.Event;
@@ -38,7 +43,12 @@ import org.slf4j.LoggerFactory;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.core.MessageSendingOperations;
 import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.messaging.simp.user.SimpSubscription;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
 import org.springframework.messaging.support.GenericMessage;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
 import net.solarnetwork.domain.Result;
 import net.solarnetwork.node.dao.DatumDao;
 import net.solarnetwork.node.service.DatumDataSource;
@@ -55,8 +65,17 @@ import net.solarnetwork.util.StringUtils;
 /**
  * Bridge between OSGi EventAdmin events and a Spring Messaging.
  *
+ * <p>
+ * If a {@link SimpUserRegistry} is configured, events that map to a
+ * {@link #MESSAGE_TOPIC_PREFIX} destination are ignored unless a client has
+ * subscribed to a matching destination. If a {@link TaskScheduler} is
+ * configured, events for the configured coalescing topics are posted at most
+ * once per frame interval per destination, with only the latest event data
+ * posted.
+ * </p>
+ *
  * @author matt
- * @version 2.2
+ * @version 2.3
  */
 public class EventMessageBridge implements EventHandler, EventMessageRegistrar {
 
@@ -76,12 +95,47 @@ public class EventMessageBridge implements EventHandler, EventMessageRegistrar {
 	 */
 	public static final String PUBLIC_MESSAGE_TOPIC_PREFIX = "/pub/topic/";
 
+	/**
+	 * The default {@code frameIntervalMs} property value.
+	 *
+	 * @since 2.3
+	 */
+	public static final long DEFAULT_FRAME_INTERVAL_MS = 250L;
+
+	/**
+	 * The default {@code subscriptionCacheMs} property value.
+	 *
+	 * @since 2.3
+	 */
+	public static final long DEFAULT_SUBSCRIPTION_CACHE_MS = 1000L;
+
+	/**
+	 * The default {@code coalesceTopics} property value.
+	 *
+	 * @since 2.3
+	 */
+	public static final Set<String> DEFAULT_COALESCE_TOPICS = defaultCoalesceTopics();
+
+	/** The maximum number of destination subscription results to cache. */
+	private static final int MAX_DESTINATION_CACHE_SIZE = 1000;
+
 	private final OptionalService<SimpMessageSendingOperations> messageSendingOps;
 	private final Executor executor;
+	private final PathMatcher pathMatcher = new AntPathMatcher();
+	private final ConcurrentMap<String, TopicTemplate> topicTemplates = new ConcurrentHashMap<>(16,
+			0.9f, 2);
+	private final Map<String, Map<String, ?>> pendingMessages = new LinkedHashMap<>(16);
 
 	private Map<String, String> topicMapping;
 	private Map<String, String> publicTopicMapping;
 	private Map<String, Set<Function<Event, Map<String, ?>>>> eventExtractors;
+	private OptionalService<SimpUserRegistry> userRegistry;
+	private TaskScheduler taskScheduler;
+	private Set<String> coalesceTopics = DEFAULT_COALESCE_TOPICS;
+	private long frameIntervalMs = DEFAULT_FRAME_INTERVAL_MS;
+	private long subscriptionCacheMs = DEFAULT_SUBSCRIPTION_CACHE_MS;
+	private volatile Subscriptions subscriptions;
+	private boolean pendingFlushScheduled;
 
 	private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -102,6 +156,132 @@ public class EventMessageBridge implements EventHandler, EventMessageRegistrar {
 		return Collections.unmodifiableMap(map);
 	}
 
+	private static Set<String> defaultCoalesceTopics() {
+		Set<String> set = new HashSet<>(8);
+		set.add(DatumDataSource.EVENT_TOPIC_DATUM_CAPTURED);
+		set.add(DatumQueue.EVENT_TOPIC_DATUM_ACQUIRED);
+		set.add(DatumDao.EVENT_TOPIC_DATUM_STORED);
+		set.add(UploadService.EVENT_TOPIC_DATUM_UPLOADED);
+		set.add(NodeControlProvider.EVENT_TOPIC_CONTROL_INFO_CAPTURED);
+		return Collections.unmodifiableSet(set);
+	}
+
+	/**
+	 * A compiled message topic template.
+	 *
+	 * <p>
+	 * The template is split into literal and variable segments, so that
+	 * expanding the template for a given event does not require parsing the
+	 * template again.
+	 * </p>
+	 */
+	private static final class TopicTemplate {
+
+		private final String template;
+		private final boolean publicTopic;
+		private final boolean coalesce;
+		private final String[] literals;
+		private final String[] variables;
+		private final String[] defaults;
+
+		private TopicTemplate(String template, boolean publicTopic, boolean coalesce) {
+			super();
+			this.template = template;
+			this.publicTopic = publicTopic;
+			this.coalesce = coalesce;
+			List<String> lits = new ArrayList<>(4);
+			List<String> vars = new ArrayList<>(4);
+			List<String> defs = new ArrayList<>(4);
+			int pos = 0;
+			while ( true ) {
+				int start = template.indexOf('{', pos);
+				int end = (start < 0 ? -1 : template.indexOf('}', start + 1));
+				if ( end < 0 ) {
+					lits.add(template.substring(pos));
+					break;
+				}
+				lits.add(template.substring(pos, start));
+				String var = template.substring(start + 1, end);
+				int defIdx = var.indexOf(':');
+				if ( defIdx < 0 ) {
+					vars.add(var);
+					defs.add(null);
+				} else {
+					vars.add(var.substring(0, defIdx));
+					defs.add(var.substring(defIdx + 1));
+				}
+				pos = end + 1;
+			}
+			this.literals = lits.toArray(String[]::new);
+			this.variables = vars.toArray(String[]::new);
+			this.defaults = defs.toArray(String[]::new);
+		}
+
+		/**
+		 * Expand the template into a message destination.
+		 *
+		 * @param data
+		 *        the template variables
+		 * @return the destination
+		 */
+		private String destination(Map<String, ?> data) {
+			String topic;
+			if ( variables.length < 1 || data == null || data.isEmpty() ) {
+				topic = template;
+			} else {
+				StringBuilder buf = new StringBuilder(template.length() + 32);
+				for ( int i = 0; i < variables.length; i++ ) {
+					buf.append(literals[i]);
+					Object val = data.get(variables[i]);
+					if ( val != null ) {
+						buf.append(val);
+					} else if ( defaults[i] != null ) {
+						buf.append(defaults[i]);
+					}
+				}
+				buf.append(literals[variables.length]);
+				topic = buf.toString();
+			}
+			if ( topic.startsWith(NODE_EVENT_PREFIX) ) {
+				topic = topic.substring(NODE_EVENT_PREFIX.length());
+			} else if ( topic.startsWith(SN_EVENT_PREFIX) ) {
+				topic = topic.substring(SN_EVENT_PREFIX.length());
+			}
+
+			final String prefix = (publicTopic ? PUBLIC_MESSAGE_TOPIC_PREFIX : MESSAGE_TOPIC_PREFIX);
+			StringBuilder buf = new StringBuilder(prefix.length() + topic.length());
+			buf.append(prefix);
+
+			// remove double-slashes
+			for ( int i = 0, len = topic.length(); i < len; i++ ) {
+				char c = topic.charAt(i);
+				if ( c == '/' && i + 1 < len && topic.charAt(i + 1) == '/' ) {
+					i++;
+				}
+				buf.append(c);
+			}
+			return buf.toString();
+		}
+
+	}
+
+	/**
+	 * A snapshot of the active subscription destinations.
+	 */
+	private static final class Subscriptions {
+
+		private final long expires;
+		private final String[] destinations;
+		private final ConcurrentMap<String, Boolean> matches = new ConcurrentHashMap<>(16, 0.9f, 2);
+
+		private Subscriptions(long expires, String[] destinations) {
+			super();
+			this.expires = expires;
+			this.destinations = destinations;
+		}
+
+	}
+
 	/**
 	 * Constructor.
 	 *
@@ -154,6 +334,7 @@ public class EventMessageBridge implements EventHandler, EventMessageRegistrar {
 			}
 			topicMapping.put(eventTopic, messageTopic);
 		}
+		topicTemplates.clear();
 	}
 
 	@Override
@@ -163,6 +344,7 @@ public class EventMessageBridge implements EventHandler, EventMessageRegistrar {
 		synchronized ( topicMapping ) {
 			topicMapping.remove(eventTopic, messageTopic);
 		}
+		topicTemplates.clear();
 	}
 
 	@Override
@@ -190,6 +372,12 @@ public class EventMessageBridge implements EventHandler, EventMessageRegistrar {
 
 	@Override
 	public void handleEvent(Event event) {
+		final TopicTemplate template = topicTemplate(event.getTopic());
+		final Subscriptions subs = (template.publicTopic ? null : subscriptions());
+		if ( subs != null && subs.destinations.length < 1 ) {
+			// nobody is listening
+			return;
+		}
 		final Set<Function<Event, Map<String, ?>>> extractors = eventExtractors.get(event.getTopic());
 		Map<String, ?> data;
 		if ( extractors != null && !extractors.isEmpty() ) {
@@ -204,8 +392,11 @@ public class EventMessageBridge implements EventHandler, EventMessageRegistrar {
 		} else {
 			data = DatumEvents.datumEventMap(event);
 		}
-		String topic = messageTopicForEvent(event, data);
-		if ( topic == null ) {
+		final String topic = template.destination(data);
+		if ( subs != null && !isSubscribed(subs, topic) ) {
+			return;
+		}
+		if ( template.coalesce && coalesceMessage(topic, data) ) {
 			return;
 		}
 		log.debug("Posting event {} to message topic {} with data {}", event.getTopic(), topic, data);
@@ -216,15 +407,28 @@ public class EventMessageBridge implements EventHandler, EventMessageRegistrar {
 		}
 	}
 
-	private String messageTopicForEvent(Event event, Map<String, ?> data) {
+	private TopicTemplate topicTemplate(String eventTopic) {
+		TopicTemplate t = topicTemplates.get(eventTopic);
+		if ( t == null ) {
+			t = topicTemplates.computeIfAbsent(eventTopic, this::compileTopicTemplate);
+		}
+		return t;
+	}
+
+	private TopicTemplate compileTopicTemplate(String eventTopic) {
 		boolean pubTopic = false;
-		String topic = event.getTopic();
+		String topic = eventTopic;
+		final Map<String, String> topicMapping = this.topicMapping;
 		if ( topicMapping != null ) {
-			String val = topicMapping.get(topic);
+			String val;
+			synchronized ( topicMapping ) {
+				val = topicMapping.get(topic);
+			}
 			if ( val != null ) {
 				topic = val;
 			}
 		}
+		final Map<String, String> publicTopicMapping = this.publicTopicMapping;
 		if ( publicTopicMapping != null ) {
 			String val = publicTopicMapping.get(topic);
 			if ( val != null ) {
@@ -232,17 +436,102 @@ public class EventMessageBridge implements EventHandler, EventMessageRegistrar {
 				pubTopic = true;
 			}
 		}
-		topic = StringUtils.expandTemplateString(topic, data);
-		if ( topic.startsWith(NODE_EVENT_PREFIX) ) {
-			topic = topic.substring(NODE_EVENT_PREFIX.length());
-		} else if ( topic.startsWith(SN_EVENT_PREFIX) ) {
-			topic = topic.substring(SN_EVENT_PREFIX.length());
+		final Set<String> coalesceTopics = this.coalesceTopics;
+		return new TopicTemplate(topic, pubTopic,
+				coalesceTopics != null && coalesceTopics.contains(eventTopic));
+	}
+
+	/**
+	 * Get the active subscriptions.
+	 *
+	 * @return the subscriptions, or {@literal null} if subscriptions are not
+	 *         known and thus all messages should be posted
+	 */
+	private Subscriptions subscriptions() {
+		final SimpUserRegistry registry = OptionalService.service(userRegistry);
+		if ( registry == null ) {
+			return null;
 		}
+		final long now = System.currentTimeMillis();
+		Subscriptions subs = this.subscriptions;
+		if ( subs == null || subs.expires < now ) {
+			Set<SimpSubscription> all = registry.findSubscriptions(s -> true);
+			String[] dests = all.stream().map(SimpSubscription::getDestination)
+					.filter(d -> d != null && !d.startsWith(PUBLIC_MESSAGE_TOPIC_PREFIX)).distinct()
+					.toArray(String[]::new);
+			subs = new Subscriptions(now + subscriptionCacheMs, dests);
+			this.subscriptions = subs;
+		}
+		return subs;
+	}
 
-		// remove double-slashes
-		topic = topic.replaceAll("\\/\\/", "/");
+	private boolean isSubscribed(Subscriptions subs, String destination) {
+		Boolean result = subs.matches.get(destination);
+		if ( result == null ) {
+			result = Boolean.FALSE;
+			for ( String pattern : subs.destinations ) {
+				if ( pattern.equals(destination) || (pathMatcher.isPattern(pattern)
+						&& pathMatcher.match(pattern, destination)) ) {
+					result = Boolean.TRUE;
+					break;
+				}
+			}
+			if ( subs.matches.size() < MAX_DESTINATION_CACHE_SIZE ) {
+				subs.matches.put(destination, result);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Coalesce a message, to be posted when the current frame completes.
+	 *
+	 * @param dest
+	 *        the message destination
+	 * @param data
+	 *        the message data, which replaces any data already pending for
+	 *        the same destination
+	 * @return {@literal true} if the message was coalesced, {@literal false}
+	 *         if it should be posted immediately
+	 */
+	private boolean coalesceMessage(String dest, Map<String, ?> data) {
+		final TaskScheduler scheduler = this.taskScheduler;
+		final long frameMs = this.frameIntervalMs;
+		if ( scheduler == null || frameMs < 1 ) {
+			return false;
+		}
+		synchronized ( pendingMessages ) {
+			pendingMessages.put(dest, data);
+			if ( !pendingFlushScheduled ) {
+				scheduler.schedule(this::flushPendingMessages,
+						Instant.ofEpochMilli(System.currentTimeMillis() + frameMs));
+				pendingFlushScheduled = true;
+			}
+		}
+		return true;
+	}
 
-		return (pubTopic ? PUBLIC_MESSAGE_TOPIC_PREFIX : MESSAGE_TOPIC_PREFIX) + topic;
+	private void flushPendingMessages() {
+		final List<Map.Entry<String, Map<String, ?>>> messages;
+		synchronized ( pendingMessages ) {
+			pendingFlushScheduled = false;
+			if ( pendingMessages.isEmpty() ) {
+				return;
+			}
+			messages = new ArrayList<>(pendingMessages.entrySet().size());
+			for ( Map.Entry<String, Map<String, ?>> e : pendingMessages.entrySet() ) {
+				messages.add(Map.entry(e.getKey(), e.getValue()));
+			}
+			pendingMessages.clear();
+		}
+		log.debug("Posting {} coalesced messages", messages.size());
+		for ( Map.Entry<String, Map<String, ?>> e : messages ) {
+			try {
+				postMessage(e.getKey(), e.getValue());
+			} catch ( RuntimeException ex ) {
+				log.warn("Error posting message to topic {}: {}", e.getKey(), ex.toString());
+			}
+		}
 	}
 
 	/**
@@ -322,6 +611,7 @@ public class EventMessageBridge implements EventHandler, EventMessageRegistrar {
 	 */
 	public void setTopicMapping(Map<String, String> topicMapping) {
 		this.topicMapping = topicMapping;
+		topicTemplates.clear();
 	}
 
 	/**
@@ -342,6 +632,7 @@ public class EventMessageBridge implements EventHandler, EventMessageRegistrar {
 	 */
 	public void setPublicTopicMapping(Map<String, String> publicTopicMapping) {
 		this.publicTopicMapping = publicTopicMapping;
+		topicTemplates.clear();
 	}
 
 	/**
@@ -366,4 +657,129 @@ public class EventMessageBridge implements EventHandler, EventMessageRegistrar {
 		this.eventExtractors = (eventExtractors != null ? eventExtractors : new HashMap<>(8));
 	}
 
+	/**
+	 * Get the user registry.
+	 *
+	 * @return the user registry
+	 * @since 2.3
+	 */
+	public final OptionalService<SimpUserRegistry> getUserRegistry() {
+		return userRegistry;
+	}
+
+	/**
+	 * Set the user registry.
+	 *
+	 * <p>
+	 * When configured, events are only posted to {@link #MESSAGE_TOPIC_PREFIX}
+	 * destinations that match an active subscription.
+	 * </p>
+	 *
+	 * @param userRegistry
+	 *        the user registry to set
+	 * @since 2.3
+	 */
+	public final void setUserRegistry(OptionalService<SimpUserRegistry> userRegistry) {
+		this.userRegistry = userRegistry;
+		this.subscriptions = null;
+	}
+
+	/**
+	 * Get the task scheduler.
+	 *
+	 * @return the task scheduler
+	 * @since 2.3
+	 */
+	public final TaskScheduler getTaskScheduler() {
+		return taskScheduler;
+	}
+
+	/**
+	 * Set the task scheduler.
+	 *
+	 * <p>
+	 * A scheduler is required for messages to be coalesced.
+	 * </p>
+	 *
+	 * @param taskScheduler
+	 *        the task scheduler to set
+	 * @since 2.3
+	 */
+	public final void setTaskScheduler(TaskScheduler taskScheduler) {
+		this.taskScheduler = taskScheduler;
+	}
+
+	/**
+	 * Get the event topics whose messages should be coalesced.
+	 *
+	 * @return the topics; defaults to {@link #DEFAULT_COALESCE_TOPICS}
+	 * @since 2.3
+	 */
+	public final Set<String> getCoalesceTopics() {
+		return coalesceTopics;
+	}
+
+	/**
+	 * Set the event topics whose messages should be coalesced.
+	 *
+	 * @param coalesceTopics
+	 *        the topics to set
+	 * @since 2.3
+	 */
+	public final void setCoalesceTopics(Set<String> coalesceTopics) {
+		this.coalesceTopics = coalesceTopics;
+		topicTemplates.clear();
+	}
+
+	/**
+	 * Get the frame interval.
+	 *
+	 * @return the frame interval, in milliseconds; defaults to
+	 *         {@link #DEFAULT_FRAME_INTERVAL_MS}
+	 * @since 2.3
+	 */
+	public final long getFrameIntervalMs() {
+		return frameIntervalMs;
+	}
+
+	/**
+	 * Set the frame interval.
+	 *
+	 * <p>
+	 * Messages for coalescing topics are posted at most once per frame
+	 * interval per destination, with only the latest message posted.
+	 * </p>
+	 *
+	 * @param frameIntervalMs
+	 *        the frame interval, in milliseconds; anything less than
+	 *        {@literal 1} disables coalescing
+	 * @since 2.3
+	 */
+	public final void setFrameIntervalMs(long frameIntervalMs) {
+		this.frameIntervalMs = frameIntervalMs;
+	}
+
+	/**
+	 * Get the subscription cache time.
+	 *
+	 * @return the number of milliseconds to cache the active subscriptions
+	 *         for; defaults to {@link #DEFAULT_SUBSCRIPTION_CACHE_MS}
+	 * @since 2.3
+	 */
+	public final long getSubscriptionCacheMs() {
+		return subscriptionCacheMs;
+	}
+
+	/**
+	 * Set the subscription cache time.
+	 *
+	 * @param subscriptionCacheMs
+	 *        the number of milliseconds to cache the active subscriptions for
+	 * @since 2.3
+	 */
+	public final void setSubscriptionCacheMs(long subscriptionCacheMs) {
+		this.subscriptionCacheMs = subscriptionCacheMs;
+		this.subscriptions = null;
+	}
+
 }
@@ -0,0 +1,176 @@
+/* ==================================================================
+ * DatumBus.java - 19/10/2026 6:20:14 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.service;
+
+import java.util.Set;
+import net.solarnetwork.node.dao.DatumDao;
+import net.solarnetwork.node.domain.datum.NodeDatum;
+
+/**
+ * API for a typed, in-process datum publish/subscribe service.
+ *
+ * <p>
+ * This service delivers {@link NodeDatum} instances directly to subscribers,
+ * as an alternative to receiving datum as properties on OSGi
+ * {@link org.osgi.service.event.Event} objects. Each publication stage
+ * corresponds to one of the datum event topics, and implementations are
+ * expected to also post the equivalent event for compatibility with existing
+ * event handlers.
+ * </p>
+ *
+ * <p>
+ * Subscribers can be registered directly via
+ * {@link #subscribe(Subscriber, Set, Set)}, or published as
+ * {@link Subscriber} services, in which case the
+ * {@link #SUBSCRIBER_SOURCE_IDS_PROPERTY} and
+ * {@link #SUBSCRIBER_STAGES_PROPERTY} service properties can be used to limit
+ * the datum delivered to them.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 4.5
+ */
+public interface DatumBus {
+
+	/**
+	 * A {@link Subscriber} service property for a comma-delimited list (or
+	 * array) of Ant-style source ID patterns to limit the published datum to.
+	 */
+	String SUBSCRIBER_SOURCE_IDS_PROPERTY = "datumBusSourceIds";
+
+	/**
+	 * A {@link Subscriber} service property for a comma-delimited list (or
+	 * array) of {@link Stage} names to limit the published datum to.
+	 */
+	String SUBSCRIBER_STAGES_PROPERTY = "datumBusStages";
+
+	/**
+	 * A datum publication stage.
+	 */
+	enum Stage {
+
+		/**
+		 * A datum has been captured, before any datum filters have been
+		 * applied.
+		 *
+		 * @see DatumDataSource#EVENT_TOPIC_DATUM_CAPTURED
+		 */
+		Captured(DatumDataSource.EVENT_TOPIC_DATUM_CAPTURED),
+
+		/**
+		 * A datum has been acquired by the datum queue, after datum filters
+		 * have been applied.
+		 *
+		 * @see DatumQueue#EVENT_TOPIC_DATUM_ACQUIRED
+		 */
+		Acquired(DatumQueue.EVENT_TOPIC_DATUM_ACQUIRED),
+
+		/**
+		 * A datum has been persisted.
+		 *
+		 * @see DatumDao#EVENT_TOPIC_DATUM_STORED
+		 */
+		Stored(DatumDao.EVENT_TOPIC_DATUM_STORED),
+
+		;
+
+		private final String eventTopic;
+
+		private Stage(String eventTopic) {
+			this.eventTopic = eventTopic;
+		}
+
+		/**
+		 * Get the event topic associated with this stage.
+		 *
+		 * @return the event topic
+		 */
+		public String getEventTopic() {
+			return eventTopic;
+		}
+
+	}
+
+	/**
+	 * API for a datum bus subscriber.
+	 */
+	@FunctionalInterface
+	interface Subscriber {
+
+		/**
+		 * Receive a published datum.
+		 *
+		 * <p>
+		 * This method is invoked on the publishing thread, and thus should
+		 * return quickly, handing off any lengthy processing to another
+		 * thread.
+		 * </p>
+		 *
+		 * @param stage
+		 *        the publication stage
+		 * @param datum
+		 *        the datum
+		 */
+		void datumPublished(Stage stage, NodeDatum datum);
+
+	}
+
+	/**
+	 * Publish a datum to all matching subscribers.
+	 *
+	 * @param stage
+	 *        the publication stage
+	 * @param datum
+	 *        the datum to publish
+	 */
+	void publish(Stage stage, NodeDatum datum);
+
+	/**
+	 * Register a subscriber.
+	 *
+	 * <p>
+	 * If the subscriber is already registered, its source ID patterns and
+	 * stages will be replaced by the given values.
+	 * </p>
+	 *
+	 * @param subscriber
+	 *        the subscriber to register
+	 * @param sourceIdPatterns
+	 *        an optional set of Ant-style source ID patterns to limit the
+	 *        published datum to; {@literal null} or empty for all datum
+	 * @param stages
+	 *        an optional set of stages to limit the published datum to;
+	 *        {@literal null} or empty for all stages
+	 */
+	void subscribe(Subscriber subscriber, Set<String> sourceIdPatterns, Set<Stage> stages);
+
+	/**
+	 * De-register a previously registered subscriber.
+	 *
+	 * @param subscriber
+	 *        the subscriber to remove
+	 */
+	void unsubscribe(Subscriber subscriber);
+
+}
@@ -0,0 +1,103 @@
+/* ==================================================================
+ * NettyEventLoopService.java - 19/10/2026 5:12:40 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.service;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.EventLoopGroup;
+
+/**
+ * API for shared, node-wide Netty event loop groups and buffer allocator.
+ *
+ * <p>
+ * Components that use Netty NIO channels can use the groups provided by this
+ * service instead of creating their own, so that the number of I/O threads
+ * and pooled buffer arenas across the node stays bounded. The groups are owned
+ * by this service: components must close their own channels when done, but
+ * must <b>not</b> shut down the groups.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 4.5
+ */
+public interface NettyEventLoopService {
+
+	/**
+	 * Get the shared boss event loop group, for accepting server connections.
+	 *
+	 * @return the group, never {@literal null}
+	 */
+	EventLoopGroup getBossGroup();
+
+	/**
+	 * Get the shared worker event loop group, for handling channel I/O.
+	 *
+	 * @return the group, never {@literal null}
+	 */
+	EventLoopGroup getWorkerGroup();
+
+	/**
+	 * Get the shared pooled buffer allocator.
+	 *
+	 * @return the allocator, never {@literal null}
+	 */
+	ByteBufAllocator getAllocator();
+
+	/**
+	 * Get the number of boss group threads.
+	 *
+	 * @return the thread count, or {@literal 0} if the group has not been
+	 *         created yet
+	 */
+	int getBossThreadCount();
+
+	/**
+	 * Get the number of worker group threads.
+	 *
+	 * @return the thread count, or {@literal 0} if the group has not been
+	 *         created yet
+	 */
+	int getWorkerThreadCount();
+
+	/**
+	 * Get the number of tasks waiting to be executed across all event loops.
+	 *
+	 * @return the pending task count
+	 */
+	long getPendingTaskCount();
+
+	/**
+	 * Get the amount of heap memory used by the buffer allocator.
+	 *
+	 * @return the used heap memory, in bytes
+	 */
+	long getUsedHeapMemory();
+
+	/**
+	 * Get the amount of direct memory used by the buffer allocator.
+	 *
+	 * @return the used direct memory, in bytes
+	 */
+	long getUsedDirectMemory();
+
+}
@@ -0,0 +1,126 @@
+/* ==================================================================
+ * NodeControlStateRegistry.java - 19/10/2026 9:58:03 pm
+ *
+ * Copyright 2026 SolarNetwork.net Dev Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ * 02111-1307 USA
+ * ==================================================================
+ */
+
+package net.solarnetwork.node.service;
+
+import java.time.Instant;
+import java.util.Collection;
+import net.solarnetwork.domain.NodeControlInfo;
+
+/**
+ * API for a registry of the most recently known state of node controls.
+ *
+ * <p>
+ * The registry caches the last {@link NodeControlInfo} seen for each control,
+ * either published directly by a {@link NodeControlProvider} via
+ * {@link #publishControlInfo(NodeControlInfo)} or captured from
+ * {@link NodeControlProvider#EVENT_TOPIC_CONTROL_INFO_CAPTURED} and
+ * {@link NodeControlProvider#EVENT_TOPIC_CONTROL_INFO_CHANGED} events.
+ * Components that would otherwise poll providers for control values can read
+ * the cached state instead.
+ * </p>
+ *
+ * <p>
+ * The registry also tracks the last <i>significant</i> value of each control,
+ * using an optional per-control numeric deadband, and posts an
+ * {@link #EVENT_TOPIC_CONTROL_STATE_CHANGED} event only when a new value
+ * differs from that by more than the deadband.
+ * </p>
+ *
+ * @author matt
+ * @version 1.0
+ * @since 4.5
+ */
+public interface NodeControlStateRegistry {
+
+	/**
+	 * An {@link org.osgi.service.event.Event} topic for when a control value
+	 * has changed by more than its configured deadband.
+	 *
+	 * <p>
+	 * The {@link DatumEvents#DATUM_PROPERTY} event property will be populated
+	 * with the {@link NodeControlInfo} instance.
+	 * </p>
+	 */
+	String EVENT_TOPIC_CONTROL_STATE_CHANGED = "net/solarnetwork/node/service/NodeControlStateRegistry/CONTROL_STATE_CHANGED";
+
+	/**
+	 * Publish the current state of a control.
+	 *
+	 * @param info
+	 *        the control info
+	 * @return {@literal true} if the value changed by more than the deadband
+	 *         configured for the control
+	 */
+	boolean publishControlInfo(NodeControlInfo info);
+
+	/**
+	 * Get the most recently known state of a control.
+	 *
+	 * @param controlId
+	 *        the ID of the control to get
+	 * @return the control info, or {@literal null} if not known
+	 */
+	NodeControlInfo getControlInfo(String controlId);
+
+	/**
+	 * Get the date the state of a control was last updated.
+	 *
+	 * @param controlId
+	 *        the ID of the control to get
+	 * @return the date, or {@literal null} if not known
+	 */
+	Instant getControlInfoDate(String controlId);
+
+	/**
+	 * Get the most recently known state of all controls.
+	 *
+	 * @return the control infos, never {@literal null}
+	 */
+	Collection<NodeControlInfo> getControlInfos();
+
+	/**
+	 * Set the deadband for a control.
+	 *
+	 * <p>
+	 * For numeric control values, a new value is considered a change only if
+	 * it differs from the last significant value by more than the deadband.
+	 * Non-numeric values are considered a change whenever they differ.
+	 * </p>
+	 *
+	 * @param controlId
+	 *        the ID of the control to configure
+	 * @param deadband
+	 *        the deadband, or {@literal 0} to treat any difference as a change
+	 */
+	void setControlDeadband(String controlId, double deadband);
+
+	/**
+	 * Get the deadband for a control.
+	 *
+	 * @param controlId
+	 *        the ID of the control to get the deadband for
+	 * @return the deadband, or {@literal 0} if none configured
+	 */
+	double getControlDeadband(String controlId);
+
+}
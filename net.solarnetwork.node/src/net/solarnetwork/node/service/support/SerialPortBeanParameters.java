@@ -30,15 +30,23 @@ import net.solarnetwork.settings.support.BasicTextFieldSettingSpecifier;
  * Parameters to configure a serial port with.
  * 
  * @author matt
- * @version 1.0
+ * @version 1.1
  */
 public class SerialPortBeanParameters extends SerialPortBean {
 
+	/**
+	 * The {@code frameBufferSize} property default value.
+	 *
+	 * @since 1.1
+	 */
+	public static final int DEFAULT_FRAME_BUFFER_SIZE = 4096;
+
 	private static final SerialPortBeanParameters DEFAULTS = new SerialPortBeanParameters();
 
 	private String serialPort = "/dev/ttyUSB0";
 	private String commPortAppName = "SolarNode";
 	private long maxWait = 0;
+	private int frameBufferSize = DEFAULT_FRAME_BUFFER_SIZE;
 
 	/**
 	 * Default constructor.
@@ -74,6 +82,8 @@ public class SerialPortBeanParameters extends SerialPortBean {
 				defaults.getCommPortAppName()));
 		results.add(new BasicTextFieldSettingSpecifier(prefix + "maxWait",
 				String.valueOf(defaults.getMaxWait())));
+		results.add(new BasicTextFieldSettingSpecifier(prefix + "frameBufferSize",
+				String.valueOf(defaults.getFrameBufferSize())));
 		return results;
 	}
 
@@ -103,6 +113,35 @@ public class SerialPortBeanParameters extends SerialPortBean {
 		this.maxWait = maxWait;
 	}
 
+	/**
+	 * Get the received data buffer size.
+	 *
+	 * @return the buffer size, in bytes; defaults to
+	 *         {@link #DEFAULT_FRAME_BUFFER_SIZE}
+	 * @since 1.1
+	 */
+	public int getFrameBufferSize() {
+		return frameBufferSize;
+	}
+
+	/**
+	 * Set the received data buffer size.
+	 *
+	 * <p>
+	 * This is the maximum number of received bytes that can be held while
+	 * waiting for a complete message. It should be larger than the largest
+	 * expected message. Once full, the oldest bytes are discarded.
+	 * </p>
+	 *
+	 * @param frameBufferSize
+	 *        the buffer size to set, in bytes; if less than {@literal 1} then
+	 *        {@link #DEFAULT_FRAME_BUFFER_SIZE} will be used
+	 * @since 1.1
+	 */
+	public void setFrameBufferSize(int frameBufferSize) {
+		this.frameBufferSize = (frameBufferSize > 0 ? frameBufferSize : DEFAULT_FRAME_BUFFER_SIZE);
+	}
+
 	/**
 	 * Get the name of the serial port to use.
 	 * 